@@ -42,6 +42,7 @@ import org.springframework.context.annotation.Configuration;
 
 import javax.inject.Inject;
 import java.io.File;
+import java.util.Optional;
 
 import static org.apache.commons.lang.StringUtils.isBlank;
 
@@ -73,7 +74,14 @@ public class DocumentArchivingConfiguration extends AbstractJobsConfiguration<Do
 
   @Bean
   @JobScope
-  public Step exportStep(DocumentExporter documentExporter) {
+  public Step exportStep(DocumentExporter documentExporter,
+                         ParallelShardExporter parallelShardExporter,
+                         @Value("#{jobExecution.executionContext.get('jobProperties')}") DocumentArchivingProperties properties) {
+    if (properties.isParallelShardExport())
+      return steps.get("export")
+              .tasklet(parallelShardExporter)
+              .build();
+
     return steps.get("export")
             .tasklet(documentExporter)
             .build();
@@ -90,38 +98,11 @@ public class DocumentArchivingConfiguration extends AbstractJobsConfiguration<Do
                                            JobContextRepository jobContextRepository,
                                            PasswordStore passwordStore) {
 
-    File baseDir = new File(infraManagerDataConfig.getDataFolder(), "exporting");
     CompositeFileAction fileAction = new CompositeFileAction(new TarGzCompressor());
-    switch (properties.getDestination()) {
-      case S3:
-        fileAction.add(new S3Uploader(
-                properties.s3Properties().orElseThrow(() -> new IllegalStateException("S3 properties are not provided!")),
-                passwordStore));
-        break;
-      case HDFS:
-        org.apache.hadoop.conf.Configuration conf = new org.apache.hadoop.conf.Configuration();
-        conf.set("fs.defaultFS", properties.getHdfsEndpoint());
-        fileAction.add(new HdfsUploader(conf, new Path(properties.getHdfsDestinationDirectory())));
-        break;
-      case LOCAL:
-        baseDir = new File(properties.getLocalDestinationDirectory());
-        break;
-    }
-
+    uploader(properties, passwordStore).ifPresent(fileAction::add);
     FileNameSuffixFormatter fileNameSuffixFormatter = FileNameSuffixFormatter.from(properties);
     LocalItemWriterListener itemWriterListener = new LocalItemWriterListener(fileAction, documentWiper);
-    File destinationDirectory = new File(
-            baseDir,
-            String.format("%s_%s_%s",
-                    properties.getSolr().getCollection(),
-                    jobId,
-                    isBlank(intervalEnd) ? "" : fileNameSuffixFormatter.format(intervalEnd)));
-    LOG.info("Destination directory path={}", destinationDirectory);
-    if (!destinationDirectory.exists()) {
-      if (!destinationDirectory.mkdirs()) {
-        LOG.warn("Unable to create directory {}", destinationDirectory);
-      }
-    }
+    File destinationDirectory = destinationDirectory(properties, infraManagerDataConfig, jobId, intervalEnd, fileNameSuffixFormatter);
 
     return new DocumentExporter(
             documentItemReader,
@@ -130,6 +111,37 @@ public class DocumentArchivingConfiguration extends AbstractJobsConfiguration<Do
             properties.getWriteBlockSize(), jobContextRepository);
   }
 
+  @Bean
+  @StepScope
+  public ParallelShardExporter parallelShardExporter(@Value("#{stepExecution.jobExecution.jobId}") String jobId,
+                                                     @Value("#{stepExecution.jobExecution.executionContext.get('jobProperties')}") DocumentArchivingProperties properties,
+                                                     InfraManagerDataConfig infraManagerDataConfig,
+                                                     @Value("#{jobParameters[start]}") String intervalStart,
+                                                     @Value("#{jobParameters[end]}") String intervalEnd,
+                                                     DocumentWiper documentWiper,
+                                                     SolrDAO solrDAO,
+                                                     JobContextRepository jobContextRepository,
+                                                     PasswordStore passwordStore) {
+
+    // files are compressed while they are written, no tar.gz step
+    CompositeFileAction uploadAction = new CompositeFileAction();
+    uploader(properties, passwordStore).ifPresent(uploadAction::add);
+    FileNameSuffixFormatter fileNameSuffixFormatter = FileNameSuffixFormatter.from(properties);
+    File destinationDirectory = destinationDirectory(properties, infraManagerDataConfig, jobId, intervalEnd, fileNameSuffixFormatter);
+
+    return new ParallelShardExporter(
+            new SolrShardDocumentSource(solrDAO, intervalStart, intervalEnd, properties.getReadBlockSize(),
+                    properties.getSolr().getSortColumn()),
+            (shard, firstDocument, itemWriterListener) -> new LocalDocumentItemWriter(
+                    shardOutFile(properties.getSolr().getCollection(), shard, destinationDirectory, fileNameSuffixFormatter.format(firstDocument)),
+                    itemWriterListener, true),
+            uploadAction,
+            documentWiper,
+            properties.getWriteBlockSize(),
+            properties.getShardExportThreads(),
+            jobContextRepository);
+  }
+
   @Bean
   @StepScope
   public DocumentWiper documentWiper(@Value("#{stepExecution.jobExecution.executionContext.get('jobProperties')}") DocumentArchivingProperties properties,
@@ -145,12 +157,53 @@ public class DocumentArchivingConfiguration extends AbstractJobsConfiguration<Do
     return new SolrDAO(properties.getSolr());
   }
 
+  private Optional<FileAction> uploader(DocumentArchivingProperties properties, PasswordStore passwordStore) {
+    switch (properties.getDestination()) {
+      case S3:
+        return Optional.of(new S3Uploader(
+                properties.s3Properties().orElseThrow(() -> new IllegalStateException("S3 properties are not provided!")),
+                passwordStore));
+      case HDFS:
+        org.apache.hadoop.conf.Configuration conf = new org.apache.hadoop.conf.Configuration();
+        conf.set("fs.defaultFS", properties.getHdfsEndpoint());
+        return Optional.of(new HdfsUploader(conf, new Path(properties.getHdfsDestinationDirectory())));
+      default:
+        return Optional.empty();
+    }
+  }
+
+  private File destinationDirectory(DocumentArchivingProperties properties, InfraManagerDataConfig infraManagerDataConfig,
+                                    String jobId, String intervalEnd, FileNameSuffixFormatter fileNameSuffixFormatter) {
+    File baseDir = properties.getDestination() == ExportDestination.LOCAL ?
+            new File(properties.getLocalDestinationDirectory()) :
+            new File(infraManagerDataConfig.getDataFolder(), "exporting");
+    File destinationDirectory = new File(
+            baseDir,
+            String.format("%s_%s_%s",
+                    properties.getSolr().getCollection(),
+                    jobId,
+                    isBlank(intervalEnd) ? "" : fileNameSuffixFormatter.format(intervalEnd)));
+    LOG.info("Destination directory path={}", destinationDirectory);
+    if (!destinationDirectory.exists()) {
+      if (!destinationDirectory.mkdirs()) {
+        LOG.warn("Unable to create directory {}", destinationDirectory);
+      }
+    }
+    return destinationDirectory;
+  }
+
   private File outFile(String collection, File directoryPath, String suffix) {
     File file = new File(directoryPath, String.format("%s_-_%s.json", collection, suffix));
     LOG.info("Exporting to temp file {}", file.getAbsolutePath());
     return file;
   }
 
+  private File shardOutFile(String collection, String shard, File directoryPath, String suffix) {
+    File file = new File(directoryPath, String.format("%s_-_%s_-_%s.json.gz", collection, shard, suffix));
+    LOG.info("Exporting to temp file {}", file.getAbsolutePath());
+    return file;
+  }
+
   @Bean
   @StepScope
   public DocumentItemReader reader(ObjectSource<Document> documentSource,
@@ -45,6 +45,9 @@ public class DocumentArchivingProperties extends JobProperties<DocumentArchiving
   private String hdfsEndpoint;
   private String hdfsDestinationDirectory;
 
+  private boolean parallelShardExport;
+  private int shardExportThreads;
+
   public DocumentArchivingProperties() {
     super(DocumentArchivingProperties.class);
   }
@@ -164,6 +167,22 @@ public class DocumentArchivingProperties extends JobProperties<DocumentArchiving
     this.hdfsDestinationDirectory = hdfsDestinationDirectory;
   }
 
+  public boolean isParallelShardExport() {
+    return parallelShardExport;
+  }
+
+  public void setParallelShardExport(boolean parallelShardExport) {
+    this.parallelShardExport = parallelShardExport;
+  }
+
+  public int getShardExportThreads() {
+    return shardExportThreads;
+  }
+
+  public void setShardExportThreads(int shardExportThreads) {
+    this.shardExportThreads = shardExportThreads;
+  }
+
   @Override
   public void apply(JobParameters jobParameters) {
     readBlockSize = getIntJobParameter(jobParameters, "readBlockSize", readBlockSize);
@@ -176,6 +195,8 @@ public class DocumentArchivingProperties extends JobProperties<DocumentArchiving
     s3Endpoint = jobParameters.getString("s3Endpoint", s3Endpoint);
     hdfsEndpoint = jobParameters.getString("hdfsEndpoint", hdfsEndpoint);
     hdfsDestinationDirectory = jobParameters.getString("hdfsDestinationDirectory", hdfsDestinationDirectory);
+    parallelShardExport = Boolean.parseBoolean(jobParameters.getString("parallelShardExport", Boolean.toString(parallelShardExport)));
+    shardExportThreads = getIntJobParameter(jobParameters, "shardExportThreads", shardExportThreads);
     solr.apply(jobParameters);
   }
 
@@ -221,7 +242,13 @@ public class DocumentArchivingProperties extends JobProperties<DocumentArchiving
                   "The property hdfsDestinationDirectory can not be null or empty string when destination is set to %s!", HDFS.name()));
     }
 
+    if (shardExportThreads < 0)
+      throw new IllegalArgumentException("The property shardExportThreads can not be negative!");
+
     requireNonNull(solr, "No solr query was specified for archiving job!");
     solr.validate();
+
+    if (parallelShardExport && (solr.getSortColumn() == null || solr.getSortColumn().length == 0))
+      throw new IllegalArgumentException("The property sortColumn can not be empty when parallelShardExport is enabled!");
   }
 }
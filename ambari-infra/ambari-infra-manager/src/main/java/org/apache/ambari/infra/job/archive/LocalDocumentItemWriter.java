@@ -19,6 +19,7 @@
 package org.apache.ambari.infra.job.archive;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
 import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -38,13 +39,23 @@ public class LocalDocumentItemWriter implements DocumentItemWriter {
   private Document lastDocument = null;
 
   public LocalDocumentItemWriter(File outFile, ItemWriterListener itemWriterListener) {
+    this(outFile, itemWriterListener, false);
+  }
+
+  /**
+   * @param compress gzip the documents while they are written instead of compressing the file in a separate pass
+   */
+  public LocalDocumentItemWriter(File outFile, ItemWriterListener itemWriterListener, boolean compress) {
     this.itemWriterListener = itemWriterListener;
     this.outFile = outFile;
     try {
-      this.bufferedWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(outFile), ENCODING));
+      OutputStream outputStream = new FileOutputStream(outFile);
+      if (compress)
+        outputStream = new GzipCompressorOutputStream(outputStream);
+      this.bufferedWriter = new BufferedWriter(new OutputStreamWriter(outputStream, ENCODING));
     } catch (UnsupportedEncodingException e) {
       throw new RuntimeException(e);
-    } catch (FileNotFoundException e) {
+    } catch (IOException e) {
       throw new UncheckedIOException(e);
     }
   }
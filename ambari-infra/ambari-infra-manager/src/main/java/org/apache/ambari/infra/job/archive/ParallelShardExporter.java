@@ -0,0 +1,283 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ambari.infra.job.archive;
+
+import org.apache.ambari.infra.job.JobContextRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.repeat.RepeatStatus;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Exports the shards of a collection concurrently. Every shard is read with its own cursor and written in blocks of
+ * writeBlockSize documents. While the next block is exported the previous one is uploaded, when the upload is done
+ * the position of the shard is saved so a restarted job continues after the last uploaded block.
+ * Documents are deleted only when every shard is exported since a delete query may span more than one shard.
+ */
+public class ParallelShardExporter implements Tasklet, StepExecutionListener {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ParallelShardExporter.class);
+
+  public static final String CHECKPOINT_PREFIX = "shard-checkpoint-";
+
+  private boolean complete = false;
+  private final ShardDocumentSource documentSource;
+  private final ShardDocumentDestination documentDestination;
+  private final FileAction uploadAction;
+  private final DocumentWiper documentWiper;
+  private final int writeBlockSize;
+  private final int exportThreads;
+  private final JobContextRepository jobContextRepository;
+  private final AtomicBoolean aborted = new AtomicBoolean(false);
+
+  /**
+   * @param exportThreads number of shards exported at the same time, 0 means all shards
+   */
+  public ParallelShardExporter(ShardDocumentSource documentSource, ShardDocumentDestination documentDestination,
+                               FileAction uploadAction, DocumentWiper documentWiper, int writeBlockSize,
+                               int exportThreads, JobContextRepository jobContextRepository) {
+    this.documentSource = documentSource;
+    this.documentDestination = documentDestination;
+    this.uploadAction = uploadAction;
+    this.documentWiper = documentWiper;
+    this.writeBlockSize = writeBlockSize;
+    this.exportThreads = exportThreads;
+    this.jobContextRepository = jobContextRepository;
+  }
+
+  @Override
+  public void beforeStep(StepExecution stepExecution) {
+
+  }
+
+  @Override
+  public ExitStatus afterStep(StepExecution stepExecution) {
+    if (complete) {
+      return ExitStatus.COMPLETED;
+    }
+    else {
+      return ExitStatus.FAILED;
+    }
+  }
+
+  @Override
+  public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) throws Exception {
+    StepExecution stepExecution = chunkContext.getStepContext().getStepExecution();
+    List<String> shards = new ArrayList<>(documentSource.getShards());
+    if (shards.isEmpty()) {
+      complete = true;
+      return RepeatStatus.FINISHED;
+    }
+
+    aborted.set(false);
+    int threadCount = exportThreads > 0 ? Math.min(exportThreads, shards.size()) : shards.size();
+    LOG.info("Exporting shards {} using {} threads", shards, threadCount);
+    ExecutorService exportExecutor = Executors.newFixedThreadPool(threadCount);
+    ExecutorService uploadExecutor = Executors.newFixedThreadPool(threadCount);
+    boolean allShardsExported = true;
+    try {
+      Map<String, Future<Boolean>> results = new LinkedHashMap<>();
+      for (String shard : shards)
+        results.put(shard, exportExecutor.submit(new ShardExport(shard, stepExecution, uploadExecutor)));
+
+      Exception failure = null;
+      for (Map.Entry<String, Future<Boolean>> result : results.entrySet()) {
+        try {
+          allShardsExported &= getResult(result.getValue());
+        }
+        catch (Exception e) {
+          LOG.error("Export of shard {} failed", result.getKey(), e);
+          aborted.set(true);
+          if (failure == null)
+            failure = e;
+        }
+      }
+      if (failure != null)
+        throw failure;
+    }
+    finally {
+      exportExecutor.shutdownNow();
+      uploadExecutor.shutdownNow();
+    }
+
+    if (!allShardsExported) {
+      LOG.info("Received stop signal.");
+      return RepeatStatus.CONTINUABLE;
+    }
+
+    for (String shard : shards) {
+      ShardCheckpoint checkpoint = getCheckpoint(stepExecution, shard);
+      if (checkpoint.getFirstDocument() != null)
+        documentWiper.delete(checkpoint.getFirstDocument(), checkpoint.getLastDocument());
+    }
+
+    complete = true;
+    return RepeatStatus.FINISHED;
+  }
+
+  private ShardCheckpoint getCheckpoint(StepExecution stepExecution, String shard) {
+    ExecutionContext executionContext = stepExecution.getExecutionContext();
+    if (!executionContext.containsKey(CHECKPOINT_PREFIX + shard))
+      return ShardCheckpoint.START;
+    return (ShardCheckpoint) executionContext.get(CHECKPOINT_PREFIX + shard);
+  }
+
+  private synchronized void saveCheckpoint(StepExecution stepExecution, String shard, ShardCheckpoint checkpoint) {
+    stepExecution.getExecutionContext().put(CHECKPOINT_PREFIX + shard, checkpoint);
+    jobContextRepository.updateExecutionContext(stepExecution);
+  }
+
+  private synchronized boolean isStopRequested(StepExecution stepExecution) {
+    if (aborted.get())
+      return true;
+    StepExecution currentStepExecution = jobContextRepository.getStepExecution(stepExecution.getJobExecutionId(), stepExecution.getId());
+    return currentStepExecution.getJobExecution().getStatus() == BatchStatus.STOPPING;
+  }
+
+  private static <T> T getResult(Future<T> future) throws Exception {
+    try {
+      return future.get();
+    }
+    catch (ExecutionException e) {
+      if (e.getCause() instanceof Exception)
+        throw (Exception) e.getCause();
+      throw e;
+    }
+  }
+
+  private class ShardExport implements Callable<Boolean> {
+    private final String shard;
+    private final StepExecution stepExecution;
+    private final ExecutorService uploadExecutor;
+    private final BlockListener blockListener = new BlockListener();
+    private Future<File> pendingUpload = null;
+    private ShardCheckpoint pendingCheckpoint = null;
+
+    private ShardExport(String shard, StepExecution stepExecution, ExecutorService uploadExecutor) {
+      this.shard = shard;
+      this.stepExecution = stepExecution;
+      this.uploadExecutor = uploadExecutor;
+    }
+
+    /**
+     * @return true if every document of the shard is exported, false if the export was stopped
+     */
+    @Override
+    public Boolean call() throws Exception {
+      ShardCheckpoint checkpoint = getCheckpoint(stepExecution, shard);
+      if (checkpoint.isComplete()) {
+        LOG.info("Shard {} is already exported", shard);
+        return true;
+      }
+
+      DocumentItemWriter writer = null;
+      int writtenCount = 0;
+      try (ShardDocumentIterator iterator = documentSource.open(shard, checkpoint.getCursorMark(), checkpoint.getOffset())) {
+        Document document;
+        while ((document = iterator.next()) != null) {
+          if (writer == null)
+            writer = documentDestination.open(shard, document, blockListener);
+
+          writer.write(document);
+          if (++writtenCount < writeBlockSize)
+            continue;
+
+          writer.close();
+          writer = null;
+          writtenCount = 0;
+          checkpoint = checkpoint.next(iterator.getCursorMark(), iterator.getOffset(), blockListener.event);
+          upload(blockListener.event.getOutFile(), checkpoint);
+
+          if (isStopRequested(stepExecution)) {
+            awaitUpload();
+            return false;
+          }
+        }
+
+        if (writer != null) {
+          writer.close();
+          writer = null;
+          checkpoint = checkpoint.next(iterator.getCursorMark(), iterator.getOffset(), blockListener.event);
+          upload(blockListener.event.getOutFile(), checkpoint);
+        }
+        awaitUpload();
+      }
+      catch (Exception e) {
+        if (writer != null)
+          writer.revert();
+        try {
+          awaitUpload();
+        }
+        catch (Exception uploadException) {
+          LOG.warn("Upload of the last exported block of shard {} failed", shard, uploadException);
+        }
+        throw e;
+      }
+
+      saveCheckpoint(stepExecution, shard, checkpoint.completed());
+      LOG.info("Shard {} is exported", shard);
+      return true;
+    }
+
+    private void upload(File file, ShardCheckpoint checkpoint) throws Exception {
+      // at most one upload is running per shard to keep the saved checkpoints in order
+      awaitUpload();
+      pendingUpload = uploadExecutor.submit(() -> uploadAction.perform(file));
+      pendingCheckpoint = checkpoint;
+    }
+
+    private void awaitUpload() throws Exception {
+      if (pendingUpload == null)
+        return;
+
+      Future<File> upload = pendingUpload;
+      pendingUpload = null;
+      getResult(upload);
+      saveCheckpoint(stepExecution, shard, pendingCheckpoint);
+    }
+  }
+
+  private static class BlockListener implements ItemWriterListener {
+    private WriteCompletedEvent event;
+
+    @Override
+    public void onCompleted(WriteCompletedEvent event) {
+      this.event = event;
+    }
+  }
+}
@@ -2,6 +2,7 @@ package org.apache.ambari.infra.job.archive;
 
 import com.amazonaws.auth.BasicAWSCredentials;
 import com.amazonaws.services.s3.AmazonS3Client;
+import com.amazonaws.services.s3.transfer.TransferManager;
 import org.apache.ambari.infra.conf.security.CompositePasswordStore;
 import org.apache.ambari.infra.conf.security.PasswordStore;
 import org.slf4j.Logger;
@@ -68,7 +69,16 @@ public class S3Uploader extends AbstractFileAction {
       throw new UnsupportedOperationException(String.format("Object '%s' already exists in bucket '%s'", key, bucketName));
     }
 
-    client.putObject(bucketName, key, inputFile);
+    // large archives are uploaded in parts, in parallel
+    TransferManager transferManager = new TransferManager(client);
+    try {
+      transferManager.upload(bucketName, key, inputFile).waitForCompletion();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(String.format("Upload of '%s' to bucket '%s' was interrupted", key, bucketName), e);
+    } finally {
+      transferManager.shutdownNow(false);
+    }
     return inputFile;
   }
 }
@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ambari.infra.job.archive;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Position of a shard export which has been written to the destination: the cursor mark of the page and the
+ * number of documents consumed from it. The first and last archived documents of the shard are kept for the
+ * deletion which runs after every shard is exported.
+ * <p>
+ * Checkpoints are stored in the step execution context, which is persisted as json.
+ */
+public class ShardCheckpoint {
+  public static final ShardCheckpoint START = new ShardCheckpoint(null, 0, null, null, false);
+
+  private final String cursorMark;
+  private final int offset;
+  private final Document firstDocument;
+  private final Document lastDocument;
+  private final boolean complete;
+
+  @JsonCreator
+  public ShardCheckpoint(@JsonProperty("cursorMark") String cursorMark,
+                         @JsonProperty("offset") int offset,
+                         @JsonProperty("firstDocument") Document firstDocument,
+                         @JsonProperty("lastDocument") Document lastDocument,
+                         @JsonProperty("complete") boolean complete) {
+    this.cursorMark = cursorMark;
+    this.offset = offset;
+    this.firstDocument = firstDocument;
+    this.lastDocument = lastDocument;
+    this.complete = complete;
+  }
+
+  public String getCursorMark() {
+    return cursorMark;
+  }
+
+  public int getOffset() {
+    return offset;
+  }
+
+  public Document getFirstDocument() {
+    return firstDocument;
+  }
+
+  public Document getLastDocument() {
+    return lastDocument;
+  }
+
+  public boolean isComplete() {
+    return complete;
+  }
+
+  public ShardCheckpoint next(String cursorMark, int offset, WriteCompletedEvent event) {
+    return new ShardCheckpoint(
+            cursorMark,
+            offset,
+            firstDocument == null ? event.getFirstDocument() : firstDocument,
+            event.getLastDocument(),
+            false);
+  }
+
+  public ShardCheckpoint completed() {
+    return new ShardCheckpoint(cursorMark, offset, firstDocument, lastDocument, true);
+  }
+}
@@ -22,12 +22,20 @@ import org.apache.ambari.infra.job.SolrDAOBase;
 import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.impl.CloudSolrClient;
+import org.apache.solr.client.solrj.impl.HttpSolrClient;
+import org.apache.solr.client.solrj.request.schema.SchemaRequest;
 import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.cloud.DocCollection;
+import org.apache.solr.common.cloud.Replica;
+import org.apache.solr.common.cloud.Slice;
+import org.apache.solr.common.params.CommonParams;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.TreeMap;
 
 public class SolrDAO extends SolrDAOBase implements DocumentWiper {
   private static final Logger LOG = LoggerFactory.getLogger(SolrDAO.class);
@@ -65,4 +73,49 @@ public class SolrDAO extends SolrDAOBase implements DocumentWiper {
       throw new UncheckedIOException(e);
     }
   }
+
+  /**
+   * @return core url of the leader replica of each active shard of the collection by shard name
+   */
+  public Map<String, String> getShardUrls() {
+    try (CloudSolrClient client = createClient()) {
+      client.connect();
+      DocCollection collection = client.getZkStateReader().getClusterState().getCollection(queryProperties.getCollection());
+      Map<String, String> shardUrls = new TreeMap<>();
+      for (Slice slice : collection.getActiveSlices()) {
+        Replica leader = slice.getLeader();
+        if (leader == null)
+          throw new IllegalStateException(String.format("Shard %s of collection %s has no leader!", slice.getName(), collection.getName()));
+        shardUrls.put(slice.getName(), leader.getCoreUrl());
+      }
+      return shardUrls;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * @return name of the unique key field of the collection
+   */
+  public String getUniqueKey() {
+    try (CloudSolrClient client = createClient()) {
+      return new SchemaRequest.UniqueKey().process(client, queryProperties.getCollection()).getUniqueKey();
+    } catch (SolrServerException e) {
+      throw new RuntimeException(e);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  public ShardDocumentIterator queryShard(String shardUrl, String start, String end, String cursorMark, int offset, int rows) {
+    SolrQuery query = queryProperties.toQueryBuilder()
+            .setInterval(start, end)
+            .build();
+    query.setRows(rows);
+    query.set(CommonParams.DISTRIB, false);
+
+    LOG.info("Executing solr query {} on shard {} from cursor mark {} offset {}", query.toLocalParamsString(), shardUrl, cursorMark, offset);
+
+    return new SolrShardDocumentIterator(new HttpSolrClient.Builder(shardUrl).build(), query, cursorMark, offset);
+  }
 }
@@ -25,21 +25,17 @@ import org.apache.solr.common.SolrDocument;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
-import java.util.TimeZone;
 
 public class SolrDocumentIterator implements CloseableIterator<Document> {
 
   public static final String SOLR_DATE_FORMAT_TEXT = "yyyy-MM-dd'T'HH:mm:ss.SSSX";
-  private static final DateFormat SOLR_DATE_FORMAT = new SimpleDateFormat(SOLR_DATE_FORMAT_TEXT);
-
-  static {
-    SOLR_DATE_FORMAT.setTimeZone(TimeZone.getTimeZone("UTC"));
-  }
+  // documents of different shards are converted concurrently, the formatter has to be thread safe
+  private static final DateTimeFormatter SOLR_DATE_FORMAT = DateTimeFormatter.ofPattern(SOLR_DATE_FORMAT_TEXT).withZone(ZoneOffset.UTC);
 
   private final Iterator<SolrDocument> documentIterator;
   private final CloudSolrClient client;
@@ -55,7 +51,10 @@ public class SolrDocumentIterator implements CloseableIterator<Document> {
     if (!documentIterator.hasNext())
       return null;
     
-    SolrDocument document = documentIterator.next();
+    return toDocument(documentIterator.next());
+  }
+
+  static Document toDocument(SolrDocument document) {
     HashMap<String, String> fieldMap = new HashMap<>();
     for (String key : document.getFieldNames()) {
       fieldMap.put(key, toString(document.get(key)));
@@ -64,12 +63,12 @@ public class SolrDocumentIterator implements CloseableIterator<Document> {
     return new Document(fieldMap);
   }
 
-  private String toString(Object value) {
+  private static String toString(Object value) {
     if (value == null) {
       return null;
     }
     else if (value instanceof Date) {
-      return SOLR_DATE_FORMAT.format(value);
+      return SOLR_DATE_FORMAT.format(((Date) value).toInstant());
     }
     else {
       return value.toString();
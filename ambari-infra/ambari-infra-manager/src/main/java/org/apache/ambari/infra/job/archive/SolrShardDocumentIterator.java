@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ambari.infra.job.archive;
+
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.params.CursorMarkParams;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+
+import static org.apache.ambari.infra.job.archive.SolrDocumentIterator.toDocument;
+
+/**
+ * Iterates over the documents of one shard page by page using a cursor mark. A position returned by
+ * {@link #getCursorMark()} and {@link #getOffset()} can be used to continue the iteration later.
+ */
+public class SolrShardDocumentIterator implements ShardDocumentIterator {
+
+  private final SolrClient client;
+  private final SolrQuery query;
+  private String cursorMark;
+  private String nextCursorMark;
+  private Iterator<SolrDocument> pageIterator;
+  private int offset;
+
+  public SolrShardDocumentIterator(SolrClient client, SolrQuery query, String cursorMark, int offset) {
+    this.client = client;
+    this.query = query;
+    fetch(cursorMark == null ? CursorMarkParams.CURSOR_MARK_START : cursorMark);
+    while (this.offset < offset && pageIterator.hasNext()) {
+      pageIterator.next();
+      ++this.offset;
+    }
+  }
+
+  private void fetch(String cursorMark) {
+    query.set(CursorMarkParams.CURSOR_MARK_PARAM, cursorMark);
+    try {
+      QueryResponse response = client.query(query);
+      this.cursorMark = cursorMark;
+      this.nextCursorMark = response.getNextCursorMark();
+      this.pageIterator = response.getResults().iterator();
+      this.offset = 0;
+    } catch (SolrServerException e) {
+      throw new RuntimeException(e);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public boolean hasNext() {
+    // solr returns the same cursor mark when there are no more documents
+    while (!pageIterator.hasNext() && !cursorMark.equals(nextCursorMark))
+      fetch(nextCursorMark);
+    return pageIterator.hasNext();
+  }
+
+  @Override
+  public Document next() {
+    if (!hasNext())
+      return null;
+
+    ++offset;
+    return toDocument(pageIterator.next());
+  }
+
+  @Override
+  public String getCursorMark() {
+    return cursorMark;
+  }
+
+  @Override
+  public int getOffset() {
+    return offset;
+  }
+
+  @Override
+  public void close() {
+    try {
+      client.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
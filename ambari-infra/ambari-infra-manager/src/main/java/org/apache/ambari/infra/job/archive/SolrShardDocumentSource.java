@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ambari.infra.job.archive;
+
+import java.util.Collection;
+import java.util.Map;
+
+import static java.util.Arrays.asList;
+
+public class SolrShardDocumentSource implements ShardDocumentSource {
+  private final SolrDAO solrDAO;
+  private final String start;
+  private final String end;
+  private final int rows;
+  private final String[] sortColumn;
+  private Map<String, String> shardUrls = null;
+
+  public SolrShardDocumentSource(SolrDAO solrDAO, String start, String end, int rows, String[] sortColumn) {
+    this.solrDAO = solrDAO;
+    this.start = start;
+    this.end = end;
+    this.rows = rows;
+    this.sortColumn = sortColumn;
+  }
+
+  @Override
+  public synchronized Collection<String> getShards() {
+    return getShardUrls().keySet();
+  }
+
+  @Override
+  public ShardDocumentIterator open(String shard, String cursorMark, int offset) {
+    String shardUrl = getShardUrls().get(shard);
+    if (shardUrl == null)
+      throw new IllegalStateException(String.format("Shard %s does not exist!", shard));
+    return solrDAO.queryShard(shardUrl, start, end, cursorMark, offset, rows);
+  }
+
+  private synchronized Map<String, String> getShardUrls() {
+    if (shardUrls == null) {
+      // a cursor mark can only be used when the sort includes the unique key
+      String uniqueKey = solrDAO.getUniqueKey();
+      if (sortColumn == null || !asList(sortColumn).contains(uniqueKey))
+        throw new IllegalStateException(String.format(
+                "The property sortColumn must contain the unique key field %s when parallelShardExport is enabled!", uniqueKey));
+      shardUrls = solrDAO.getShardUrls();
+    }
+    return shardUrls;
+  }
+}
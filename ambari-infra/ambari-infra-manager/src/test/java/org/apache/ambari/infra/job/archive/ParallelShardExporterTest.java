@@ -0,0 +1,273 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ambari.infra.job.archive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.ambari.infra.job.JobContextRepository;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.apache.commons.io.IOUtils;
+import org.easymock.EasyMockRunner;
+import org.easymock.EasyMockSupport;
+import org.easymock.Mock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.repeat.RepeatStatus;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Arrays.asList;
+import static org.apache.ambari.infra.job.archive.ParallelShardExporter.CHECKPOINT_PREFIX;
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+@RunWith(EasyMockRunner.class)
+public class ParallelShardExporterTest extends EasyMockSupport {
+
+  private static final long JOB_EXECUTION_ID = 1L;
+  private static final long STEP_EXECUTION_ID = 1L;
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+  private static final Document DOCUMENT_1 = document("1");
+  private static final Document DOCUMENT_2 = document("2");
+  private static final Document DOCUMENT_3 = document("3");
+  private static final Document DOCUMENT_4 = document("4");
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+  @Mock
+  private JobContextRepository jobContextRepository;
+  @Mock
+  private DocumentWiper documentWiper;
+
+  private FakeShardDocumentSource documentSource;
+  private List<File> uploadedFiles;
+  private ChunkContext chunkContext;
+
+  private static Document document(String id) {
+    Map<String, String> fieldMap = new HashMap<>();
+    fieldMap.put("id", id);
+    return new Document(fieldMap);
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    documentSource = new FakeShardDocumentSource();
+    uploadedFiles = Collections.synchronizedList(new ArrayList<>());
+    chunkContext = chunkContext(BatchStatus.STARTED);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    verifyAll();
+  }
+
+  private ChunkContext chunkContext(BatchStatus batchStatus) {
+    StepExecution stepExecution = new StepExecution("exportDoc", new JobExecution(JOB_EXECUTION_ID));
+    stepExecution.setId(STEP_EXECUTION_ID);
+    stepExecution.getJobExecution().setStatus(batchStatus);
+    return new ChunkContext(new StepContext(stepExecution));
+  }
+
+  private ParallelShardExporter parallelShardExporter(int writeBlockSize) {
+    return new ParallelShardExporter(
+            documentSource,
+            (shard, firstDocument, itemWriterListener) -> new LocalDocumentItemWriter(
+                    new File(folder.getRoot(), shard + "_" + firstDocument.get("id") + ".json.gz"), itemWriterListener, true),
+            inputFile -> {
+              uploadedFiles.add(inputFile);
+              return inputFile;
+            },
+            documentWiper,
+            writeBlockSize,
+            0,
+            jobContextRepository);
+  }
+
+  private void expectStatus(ChunkContext statusChunkContext) {
+    expect(jobContextRepository.getStepExecution(JOB_EXECUTION_ID, STEP_EXECUTION_ID))
+            .andReturn(statusChunkContext.getStepContext().getStepExecution()).anyTimes();
+    jobContextRepository.updateExecutionContext(anyObject(StepExecution.class)); expectLastCall().anyTimes();
+  }
+
+  private ExecutionContext executionContext() {
+    return chunkContext.getStepContext().getStepExecution().getExecutionContext();
+  }
+
+  private ShardCheckpoint checkpoint(String shard) {
+    return (ShardCheckpoint) executionContext().get(CHECKPOINT_PREFIX + shard);
+  }
+
+  @Test
+  public void testNoShards() throws Exception {
+    replayAll();
+
+    assertThat(parallelShardExporter(2).execute(null, chunkContext), is(RepeatStatus.FINISHED));
+  }
+
+  @Test
+  public void testEveryShardIsExportedAndDeletedAfterwards() throws Exception {
+    documentSource.add("shard1", DOCUMENT_1, DOCUMENT_2, DOCUMENT_3);
+    documentSource.add("shard2", DOCUMENT_4);
+    expectStatus(chunkContext);
+    documentWiper.delete(DOCUMENT_1, DOCUMENT_3); expectLastCall();
+    documentWiper.delete(DOCUMENT_4, DOCUMENT_4); expectLastCall();
+    replayAll();
+
+    assertThat(parallelShardExporter(2).execute(null, chunkContext), is(RepeatStatus.FINISHED));
+
+    assertThat(uploadedFiles.size(), is(3));
+    assertThat(readBack(new File(folder.getRoot(), "shard1_1.json.gz")).size(), is(2));
+    assertThat(readBack(new File(folder.getRoot(), "shard1_3.json.gz")).size(), is(1));
+    assertThat(readBack(new File(folder.getRoot(), "shard2_4.json.gz")).get(0).get("id"), is("4"));
+    assertThat(checkpoint("shard1").isComplete(), is(true));
+    assertThat(checkpoint("shard2").isComplete(), is(true));
+  }
+
+  @Test
+  public void testExportContinuesFromCheckpoint() throws Exception {
+    documentSource.add("shard1", DOCUMENT_1, DOCUMENT_2, DOCUMENT_3);
+    documentSource.add("shard2", DOCUMENT_4);
+    executionContext().put(CHECKPOINT_PREFIX + "shard1", new ShardCheckpoint("mark", 2, DOCUMENT_1, DOCUMENT_2, false));
+    executionContext().put(CHECKPOINT_PREFIX + "shard2", new ShardCheckpoint("mark", 1, DOCUMENT_4, DOCUMENT_4, true));
+    expectStatus(chunkContext);
+    documentWiper.delete(DOCUMENT_1, DOCUMENT_3); expectLastCall();
+    documentWiper.delete(DOCUMENT_4, DOCUMENT_4); expectLastCall();
+    replayAll();
+
+    assertThat(parallelShardExporter(2).execute(null, chunkContext), is(RepeatStatus.FINISHED));
+
+    assertThat(documentSource.openedShards, is(asList("shard1")));
+    assertThat(uploadedFiles.size(), is(1));
+    assertThat(readBack(uploadedFiles.get(0)).get(0).get("id"), is("3"));
+  }
+
+  @Test
+  public void testStopKeepsCheckpointOfUploadedBlock() throws Exception {
+    documentSource.add("shard1", DOCUMENT_1, DOCUMENT_2, DOCUMENT_3);
+    expectStatus(chunkContext(BatchStatus.STOPPING));
+    replayAll();
+
+    assertThat(parallelShardExporter(2).execute(null, chunkContext), is(RepeatStatus.CONTINUABLE));
+
+    assertThat(uploadedFiles.size(), is(1));
+    assertThat(checkpoint("shard1").isComplete(), is(false));
+    assertThat(checkpoint("shard1").getOffset(), is(2));
+    assertThat(checkpoint("shard1").getLastDocument(), is(DOCUMENT_2));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testShardFailure() throws Exception {
+    documentSource.add("shard1", DOCUMENT_1);
+    documentSource.failing = true;
+    expectStatus(chunkContext);
+    replayAll();
+
+    parallelShardExporter(2).execute(null, chunkContext);
+  }
+
+  private List<Document> readBack(File file) throws IOException {
+    List<Document> documentList = new ArrayList<>();
+    try (InputStream inputStream = new GzipCompressorInputStream(new FileInputStream(file))) {
+      for (String line : IOUtils.readLines(inputStream, "UTF-8")) {
+        documentList.add(OBJECT_MAPPER.readValue(line, Document.class));
+      }
+    }
+    return documentList;
+  }
+
+  private static class FakeShardDocumentSource implements ShardDocumentSource {
+    private final Map<String, List<Document>> shards = new LinkedHashMap<>();
+    private final List<String> openedShards = Collections.synchronizedList(new ArrayList<>());
+    private boolean failing = false;
+
+    private void add(String shard, Document... documents) {
+      shards.put(shard, asList(documents));
+    }
+
+    @Override
+    public Collection<String> getShards() {
+      return shards.keySet();
+    }
+
+    @Override
+    public ShardDocumentIterator open(String shard, String cursorMark, int offset) {
+      if (failing)
+        throw new IllegalStateException("TEST");
+      openedShards.add(shard);
+      return new FakeShardDocumentIterator(shards.get(shard), offset);
+    }
+  }
+
+  private static class FakeShardDocumentIterator implements ShardDocumentIterator {
+    private final List<Document> documents;
+    private int offset;
+
+    private FakeShardDocumentIterator(List<Document> documents, int offset) {
+      this.documents = documents;
+      this.offset = offset;
+    }
+
+    @Override
+    public String getCursorMark() {
+      return "mark";
+    }
+
+    @Override
+    public int getOffset() {
+      return offset;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public boolean hasNext() {
+      return offset < documents.size();
+    }
+
+    @Override
+    public Document next() {
+      return hasNext() ? documents.get(offset++) : null;
+    }
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ambari.infra.job.archive;
+
+import org.junit.Test;
+import org.springframework.batch.core.repository.dao.Jackson2ExecutionContextStringSerializer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static java.util.Collections.singletonMap;
+import static org.apache.ambari.infra.job.archive.ParallelShardExporter.CHECKPOINT_PREFIX;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+
+public class ShardCheckpointTest {
+
+  private final Jackson2ExecutionContextStringSerializer serializer = new Jackson2ExecutionContextStringSerializer();
+
+  @Test
+  public void testCheckpointSurvivesExecutionContextSerialization() throws Exception {
+    Document firstDocument = new Document(singletonMap("id", "1"));
+    Document lastDocument = new Document(singletonMap("id", "2"));
+    ShardCheckpoint checkpoint = new ShardCheckpoint("AoE/", 10, firstDocument, lastDocument, true);
+
+    ShardCheckpoint deserialized = roundTrip(CHECKPOINT_PREFIX + "shard1", checkpoint);
+
+    assertThat(deserialized.getCursorMark(), is("AoE/"));
+    assertThat(deserialized.getOffset(), is(10));
+    assertThat(deserialized.getFirstDocument().getFieldMap(), is(firstDocument.getFieldMap()));
+    assertThat(deserialized.getLastDocument().getFieldMap(), is(lastDocument.getFieldMap()));
+    assertThat(deserialized.isComplete(), is(true));
+  }
+
+  @Test
+  public void testStartCheckpointSurvivesExecutionContextSerialization() throws Exception {
+    ShardCheckpoint deserialized = roundTrip(CHECKPOINT_PREFIX + "shard1", ShardCheckpoint.START);
+
+    assertThat(deserialized.getCursorMark(), is(nullValue()));
+    assertThat(deserialized.getOffset(), is(0));
+    assertThat(deserialized.getFirstDocument(), is(nullValue()));
+    assertThat(deserialized.getLastDocument(), is(nullValue()));
+    assertThat(deserialized.isComplete(), is(false));
+  }
+
+  private ShardCheckpoint roundTrip(String key, ShardCheckpoint checkpoint) throws IOException {
+    Map<String, Object> context = new HashMap<>();
+    context.put(key, checkpoint);
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    serializer.serialize(context, outputStream);
+    Map<String, Object> deserializedContext = serializer.deserialize(new ByteArrayInputStream(outputStream.toByteArray()));
+    return (ShardCheckpoint) deserializedContext.get(key);
+  }
+}
@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ambari.infra.job.archive;
+
+import org.easymock.EasyMockRunner;
+import org.easymock.EasyMockSupport;
+import org.easymock.Mock;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonMap;
+import static org.easymock.EasyMock.expect;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+@RunWith(EasyMockRunner.class)
+public class SolrShardDocumentSourceTest extends EasyMockSupport {
+
+  @Mock
+  private SolrDAO solrDAO;
+
+  @After
+  public void tearDown() throws Exception {
+    verifyAll();
+  }
+
+  @Test
+  public void testGetShardsWhenSortContainsUniqueKey() {
+    expect(solrDAO.getUniqueKey()).andReturn("id");
+    expect(solrDAO.getShardUrls()).andReturn(singletonMap("shard1", "http://solr1:8983/solr/collection_shard1_replica1/"));
+    replayAll();
+
+    SolrShardDocumentSource documentSource = new SolrShardDocumentSource(solrDAO, "*", "*", 10, new String[] {"logtime", "id"});
+    assertThat(new ArrayList<>(documentSource.getShards()), is(asList("shard1")));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testGetShardsFailsWhenSortDoesNotContainUniqueKey() {
+    expect(solrDAO.getUniqueKey()).andReturn("id");
+    replayAll();
+
+    new SolrShardDocumentSource(solrDAO, "*", "*", 10, new String[] {"logtime"}).getShards();
+  }
+}
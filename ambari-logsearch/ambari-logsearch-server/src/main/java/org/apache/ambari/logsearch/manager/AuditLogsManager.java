@@ -21,18 +21,20 @@ package org.apache.ambari.logsearch.manager;
 
 import javax.inject.Inject;
 import javax.inject.Named;
-import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 
-import java.io.File;
-import java.io.FileOutputStream;
+import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.StringWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import com.google.gson.Gson;
 import freemarker.template.Configuration;
 import freemarker.template.Template;
 import freemarker.template.TemplateException;
@@ -221,7 +223,6 @@ public class AuditLogsManager extends ManagerBase<AuditLogData, AuditLogResponse
 
     String dataFormat = request.getFormat();
 
-    FileOutputStream fis = null;
     try {
       QueryResponse queryResponse = auditSolrDao.process(facetQuery);
       if (queryResponse == null) {
@@ -231,38 +232,40 @@ public class AuditLogsManager extends ManagerBase<AuditLogData, AuditLogResponse
       }
       BarGraphDataListResponse vBarUserDataList = responseDataGenerator.generateSecondLevelBarGraphDataResponse(queryResponse, 0);
       BarGraphDataListResponse vBarResourceDataList = responseDataGenerator.generateSecondLevelBarGraphDataResponse(queryResponse, 1);
-      String data = "";
+      StreamingOutput output;
       if ("text".equals(dataFormat)) {
-        StringWriter stringWriter = new StringWriter();
         Template template = freemarkerConfiguration.getTemplate(AUDIT_LOG_TEMPLATE);
         Map<String, Object> models = new HashMap<>();
         DownloadUtil.fillUserResourcesModel(models, vBarUserDataList, vBarResourceDataList);
-        template.process(models, stringWriter);
-        data = stringWriter.toString();
+        output = outputStream -> {
+          Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+          try {
+            template.process(models, writer);
+          } catch (TemplateException e) {
+            throw new IOException("Error during processing " + AUDIT_LOG_TEMPLATE, e);
+          }
+          writer.flush();
+        };
 
       } else {
-        data = "{" + convertObjToString(vBarUserDataList) + "," + convertObjToString(vBarResourceDataList) + "}";
+        Gson gson = createGson();
+        output = outputStream -> {
+          Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+          writer.write('{');
+          gson.toJson(vBarUserDataList, writer);
+          writer.write(',');
+          gson.toJson(vBarResourceDataList, writer);
+          writer.write('}');
+          writer.flush();
+        };
         dataFormat = "json";
       }
-      String fileName = "Users_Resource" + startTime + endTime + ".";
-      File file = File.createTempFile(fileName, dataFormat);
-      fis = new FileOutputStream(file);
-      fis.write(data.getBytes());
-      return Response
-        .ok(file, MediaType.APPLICATION_OCTET_STREAM)
-        .header("Content-Disposition", "attachment;filename=" + fileName + dataFormat)
-        .build();
+      String fileName = "Users_Resource" + startTime + endTime + "." + dataFormat;
+      return DownloadUtil.createExportResponse(output, fileName, request.isGzip());
 
     } catch (IOException e) {
       logger.error("Error during download file (audit log) " + e);
       throw RESTErrorUtil.createRESTException(MessageEnums.SOLR_ERROR.getMessage().getMessage(), MessageEnums.ERROR_SYSTEM);
-    } finally {
-      if (fis != null) {
-        try {
-          fis.close();
-        } catch (IOException e) {
-        }
-      }
     }
   }
 
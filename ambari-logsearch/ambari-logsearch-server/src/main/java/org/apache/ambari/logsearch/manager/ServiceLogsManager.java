@@ -18,11 +18,14 @@
  */
 package org.apache.ambari.logsearch.manager;
 
-import java.io.File;
-import java.io.FileOutputStream;
+import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.StringWriter;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -32,11 +35,12 @@ import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 import javax.inject.Named;
-import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 
 import com.google.common.base.Splitter;
 import com.google.common.collect.Lists;
+import com.google.gson.Gson;
 import freemarker.template.Configuration;
 import freemarker.template.Template;
 import freemarker.template.TemplateException;
@@ -95,6 +99,8 @@ import org.apache.solr.client.solrj.response.UpdateResponse;
 import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrDocumentList;
 import org.apache.solr.common.SolrException;
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.params.CursorMarkParams;
 import org.springframework.core.convert.ConversionService;
 import org.springframework.data.solr.core.DefaultQueryParser;
 import org.springframework.data.solr.core.query.Criteria;
@@ -117,6 +123,7 @@ public class ServiceLogsManager extends ManagerBase<ServiceLogData, ServiceLogRe
   private static final Logger logger = Logger.getLogger(ServiceLogsManager.class);
 
   private static final String SERVICE_LOG_TEMPLATE = "service_log_txt.ftl";
+  private static final int EXPORT_PAGE_SIZE = 1000;
 
   @Inject
   private ServiceLogsSolrDao serviceLogsSolrDao;
@@ -396,43 +403,122 @@ public class ServiceLogsManager extends ManagerBase<ServiceLogData, ServiceLogRe
       from = DateUtil.addOffsetToDate(from, Long.parseLong(utcOffset), "yyyy-MM-dd HH:mm:ss,SSS");
     }
 
-    String textToSave = "";
-    try {
-      QueryResponse response = serviceLogsSolrDao.process(solrQuery);
-      if (response == null) {
-        throw RESTErrorUtil.createRESTException(MessageEnums.SOLR_ERROR.getMessage().getMessage(), MessageEnums.ERROR_SYSTEM);
-      }
-      SolrDocumentList docList = response.getResults();
-      if (docList == null) {
-        throw RESTErrorUtil.createRESTException(MessageEnums.SOLR_ERROR.getMessage().getMessage(), MessageEnums.ERROR_SYSTEM);
-      }
+    // every matching log is exported, page by page with a cursor, so the paging of the request is not used
+    SolrQuery exportQuery = new DefaultQueryParser().doConstructSolrQuery(solrQuery);
+    exportQuery.setStart(0);
+    exportQuery.setRows(EXPORT_PAGE_SIZE);
+    String sort = exportQuery.get(CommonParams.SORT);
+    exportQuery.set(CommonParams.SORT, SolrUtil.addUniqueKeySort(sort, ID));
 
+    StreamingOutput output;
+    try {
       if (format.toLowerCase(Locale.ENGLISH).equals(".txt")) {
         Template template = freemarkerConfiguration.getTemplate(SERVICE_LOG_TEMPLATE);
-        Map<String, Object> models = new HashMap<>();
-        DownloadUtil.fillModelsForLogFile(docList, models, request, format, from, to);
-        StringWriter stringWriter = new StringWriter();
-        template.process(models, stringWriter);
-        textToSave = stringWriter.toString();
+        Map<String, Object> models = createLogFileModels(exportQuery, request, format, from, to);
+        output = outputStream -> {
+          Writer writer = createExportWriter(outputStream);
+          try {
+            template.process(models, writer);
+          } catch (TemplateException e) {
+            throw new IOException("Error during processing " + SERVICE_LOG_TEMPLATE, e);
+          }
+          exportDocuments(exportQuery, (doc, index) -> {
+            writer.write(DownloadUtil.formatLogLine(doc));
+            writer.write('\n');
+          });
+          writer.flush();
+        };
       } else if (format.toLowerCase(Locale.ENGLISH).equals(".json")) {
-        textToSave = convertObjToString(docList);
+        Gson gson = createGson();
+        output = outputStream -> {
+          Writer writer = createExportWriter(outputStream);
+          writer.write('[');
+          exportDocuments(exportQuery, (doc, index) -> {
+            if (index > 0) {
+              writer.write(',');
+            }
+            gson.toJson(doc, writer);
+          });
+          writer.write(']');
+          writer.flush();
+        };
       } else {
         throw RESTErrorUtil.createRESTException(
             "unsoported format either should be json or text",
             MessageEnums.ERROR_SYSTEM);
       }
-      File file = File.createTempFile(fileName, format);
-      FileOutputStream fis = new FileOutputStream(file);
-      fis.write(textToSave.getBytes());
-      fis.close();
-      return Response
-        .ok(file, MediaType.APPLICATION_OCTET_STREAM)
-        .header("Content-Disposition", "attachment;filename=" + fileName + format)
-        .build();
-    } catch (SolrException | TemplateException | IOException e) {
+    } catch (SolrException | IOException e) {
       logger.error("Error during solrQuery=" + solrQuery, e);
       throw RESTErrorUtil.createRESTException(MessageEnums.SOLR_ERROR.getMessage().getMessage(), MessageEnums.ERROR_SYSTEM);
     }
+    return DownloadUtil.createExportResponse(output, fileName + format, request.isGzip());
+  }
+
+  /**
+   * The summary of the exported logs comes from a single facet query, so it can be written before the logs.
+   */
+  private Map<String, Object> createLogFileModels(SolrQuery exportQuery, ServiceLogExportRequest request, String format,
+                                                  String from, String to) {
+    SolrQuery summaryQuery = exportQuery.getCopy();
+    summaryQuery.setRows(0);
+    summaryQuery.setFacet(true);
+    summaryQuery.setFacetMinCount(1);
+    summaryQuery.setFacetLimit(-1);
+    summaryQuery.addFacetField(HOST, COMPONENT, LEVEL);
+    QueryResponse response = serviceLogsSolrDao.process(summaryQuery);
+    if (response == null || response.getResults() == null) {
+      throw RESTErrorUtil.createRESTException(MessageEnums.SOLR_ERROR.getMessage().getMessage(), MessageEnums.ERROR_SYSTEM);
+    }
+
+    Map<String, Object> models = new HashMap<>();
+    DownloadUtil.fillModelsForLogFile(response.getResults().getNumFound(), getFacetValues(response, HOST),
+      getFacetValues(response, COMPONENT), getFacetValues(response, LEVEL), models, request, format, from, to);
+    models.put("logs", Collections.emptyList());
+    return models;
+  }
+
+  private List<String> getFacetValues(QueryResponse response, String field) {
+    List<String> values = new ArrayList<>();
+    FacetField facetField = response.getFacetField(field);
+    if (facetField != null && facetField.getValues() != null) {
+      for (Count count : facetField.getValues()) {
+        values.add(count.getName());
+      }
+    }
+    return values;
+  }
+
+  private Writer createExportWriter(OutputStream outputStream) {
+    return new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Passes every document matching the query to the writer, fetching one page at a time with a Solr cursor.
+   * The query has to be sorted by the unique key as its last sort field.
+   */
+  void exportDocuments(SolrQuery exportQuery, ExportedDocumentWriter documentWriter) throws IOException {
+    SolrQuery pageQuery = exportQuery.getCopy();
+    String cursorMark = CursorMarkParams.CURSOR_MARK_START;
+    long index = 0;
+    while (true) {
+      pageQuery.set(CursorMarkParams.CURSOR_MARK_PARAM, cursorMark);
+      QueryResponse response = serviceLogsSolrDao.process(pageQuery);
+      if (response == null || response.getResults() == null) {
+        throw new IOException("No response for solrQuery=" + pageQuery);
+      }
+      for (SolrDocument doc : response.getResults()) {
+        documentWriter.write(doc, index++);
+      }
+      String nextCursorMark = response.getNextCursorMark();
+      if (nextCursorMark == null || nextCursorMark.equals(cursorMark)) {
+        break;
+      }
+      cursorMark = nextCursorMark;
+    }
+  }
+
+  interface ExportedDocumentWriter {
+    void write(SolrDocument doc, long index) throws IOException;
   }
 
   public NodeListResponse getComponentListWithLevelCounts(ServiceLogComponentLevelRequest request) {
@@ -20,8 +20,10 @@ package org.apache.ambari.logsearch.model.request.impl;
 
 import org.apache.ambari.logsearch.common.Marker;
 import org.apache.ambari.logsearch.model.request.FormatParamDefinition;
+import org.apache.ambari.logsearch.model.request.GzipParamDefinition;
 import org.apache.ambari.logsearch.model.request.UserParamDefinition;
 
 @Marker
-public interface UserExportRequest extends FieldAuditLogRequest, FormatParamDefinition, UserParamDefinition {
+public interface UserExportRequest extends FieldAuditLogRequest, FormatParamDefinition, UserParamDefinition,
+  GzipParamDefinition {
 }
@@ -29,6 +29,9 @@ public class ServiceLogExportBodyRequest extends ServiceLogBodyRequest implement
   @JsonProperty(LogSearchConstants.REQUEST_PARAM_UTC_OFFSET)
   private String utcOffset;
 
+  @JsonProperty(LogSearchConstants.REQUEST_PARAM_GZIP)
+  private boolean gzip;
+
   @Override
   public String getFormat() {
     return format;
@@ -48,4 +51,14 @@ public class ServiceLogExportBodyRequest extends ServiceLogBodyRequest implement
   public void setUtcOffset(String utcOffset) {
     this.utcOffset = utcOffset;
   }
+
+  @Override
+  public boolean isGzip() {
+    return gzip;
+  }
+
+  @Override
+  public void setGzip(boolean gzip) {
+    this.gzip = gzip;
+  }
 }
@@ -29,6 +29,9 @@ public class UserExportBodyRequest extends FieldAuditLogBodyRequest implements U
   @JsonProperty(LogSearchConstants.REQUEST_PARAM_USERS)
   private String userList;
 
+  @JsonProperty(LogSearchConstants.REQUEST_PARAM_GZIP)
+  private boolean gzip;
+
   @Override
   public String getFormat() {
     return format;
@@ -48,4 +51,14 @@ public class UserExportBodyRequest extends FieldAuditLogBodyRequest implements U
   public void setUserList(String userList) {
     this.userList = userList;
   }
+
+  @Override
+  public boolean isGzip() {
+    return gzip;
+  }
+
+  @Override
+  public void setGzip(boolean gzip) {
+    this.gzip = gzip;
+  }
 }
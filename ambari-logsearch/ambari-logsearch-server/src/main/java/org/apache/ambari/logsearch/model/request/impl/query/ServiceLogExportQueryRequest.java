@@ -30,6 +30,9 @@ public class ServiceLogExportQueryRequest extends ServiceLogQueryRequest impleme
   @QueryParam(LogSearchConstants.REQUEST_PARAM_UTC_OFFSET)
   private String utcOffset;
 
+  @QueryParam(LogSearchConstants.REQUEST_PARAM_GZIP)
+  private boolean gzip;
+
   @Override
   public String getFormat() {
     return format;
@@ -49,4 +52,14 @@ public class ServiceLogExportQueryRequest extends ServiceLogQueryRequest impleme
   public void setUtcOffset(String utcOffset) {
     this.utcOffset = utcOffset;
   }
+
+  @Override
+  public boolean isGzip() {
+    return gzip;
+  }
+
+  @Override
+  public void setGzip(boolean gzip) {
+    this.gzip = gzip;
+  }
 }
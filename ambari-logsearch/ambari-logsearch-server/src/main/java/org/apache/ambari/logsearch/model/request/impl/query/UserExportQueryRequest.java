@@ -30,6 +30,9 @@ public class UserExportQueryRequest extends FieldAuditLogQueryRequest implements
   @QueryParam(LogSearchConstants.REQUEST_PARAM_USERS)
   private String userList;
 
+  @QueryParam(LogSearchConstants.REQUEST_PARAM_GZIP)
+  private boolean gzip;
+
   @Override
   public String getFormat() {
     return format;
@@ -49,4 +52,14 @@ public class UserExportQueryRequest extends FieldAuditLogQueryRequest implements
   public void setUserList(String userList) {
     this.userList = userList;
   }
+
+  @Override
+  public boolean isGzip() {
+    return gzip;
+  }
+
+  @Override
+  public void setGzip(boolean gzip) {
+    this.gzip = gzip;
+  }
 }
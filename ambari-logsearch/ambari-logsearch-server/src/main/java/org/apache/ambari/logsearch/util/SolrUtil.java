@@ -231,6 +231,22 @@ public class SolrUtil {
     solrQuery.set("facet.limit", limit);
   }
 
+  /**
+   * Appends the unique key to a sort parameter as the last sort field, unless one of the sort clauses is already
+   * on the unique key. Solr cursors require the unique key in the sort.
+   */
+  public static String addUniqueKeySort(String sort, String uniqueKey) {
+    if (StringUtils.isBlank(sort)) {
+      return uniqueKey + " asc";
+    }
+    for (String sortClause : Splitter.on(',').trimResults().omitEmptyStrings().split(sort)) {
+      if (uniqueKey.equals(Splitter.on(' ').omitEmptyStrings().split(sortClause).iterator().next())) {
+        return sort;
+      }
+    }
+    return sort + "," + uniqueKey + " asc";
+  }
+
   public static void setRowCount(SolrQuery solrQuery, int rows) {
     if (rows > 0) {
       solrQuery.setRows(rows);
@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ambari.logsearch.manager;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ambari.logsearch.dao.ServiceLogsSolrDao;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.params.CursorMarkParams;
+import org.easymock.Capture;
+import org.easymock.CaptureType;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.easymock.EasyMock.capture;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.newCapture;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+
+public class ServiceLogsManagerTest {
+
+  private ServiceLogsManager underTest;
+  private ServiceLogsSolrDao mockServiceLogsSolrDao;
+
+  @Before
+  public void setUp() throws Exception {
+    underTest = new ServiceLogsManager();
+    mockServiceLogsSolrDao = createMock(ServiceLogsSolrDao.class);
+    Field daoField = ServiceLogsManager.class.getDeclaredField("serviceLogsSolrDao");
+    daoField.setAccessible(true);
+    daoField.set(underTest, mockServiceLogsSolrDao);
+  }
+
+  @Test
+  public void testExportDocumentsPagesWithCursor() throws Exception {
+    // GIVEN
+    // cursorMark is read when the query is processed, as the same query object is reused for every page
+    List<String> cursorMarks = new ArrayList<>();
+    Capture<SolrQuery> queryCapture = newCapture(CaptureType.ALL);
+    expect(mockServiceLogsSolrDao.process(capture(queryCapture)))
+      .andAnswer(() -> recordCursorMark(queryCapture, cursorMarks, createResponse("page2", "doc1", "doc2")))
+      .andAnswer(() -> recordCursorMark(queryCapture, cursorMarks, createResponse("page3", "doc3")))
+      .andAnswer(() -> recordCursorMark(queryCapture, cursorMarks, createResponse("page3")));
+    replay(mockServiceLogsSolrDao);
+    List<String> exported = new ArrayList<>();
+    List<Long> indexes = new ArrayList<>();
+    // WHEN
+    underTest.exportDocuments(new SolrQuery("*:*"), (doc, index) -> {
+      exported.add((String) doc.getFieldValue("id"));
+      indexes.add(index);
+    });
+    // THEN
+    verify(mockServiceLogsSolrDao);
+    assertEquals(3, queryCapture.getValues().size());
+    assertEquals("[*, page2, page3]", cursorMarks.toString());
+    assertEquals("[doc1, doc2, doc3]", exported.toString());
+    assertEquals("[0, 1, 2]", indexes.toString());
+  }
+
+  private QueryResponse recordCursorMark(Capture<SolrQuery> queryCapture, List<String> cursorMarks, QueryResponse response) {
+    cursorMarks.add(queryCapture.getValue().get(CursorMarkParams.CURSOR_MARK_PARAM));
+    return response;
+  }
+
+  private QueryResponse createResponse(String nextCursorMark, String... ids) {
+    SolrDocumentList docs = new SolrDocumentList();
+    for (String id : ids) {
+      SolrDocument doc = new SolrDocument();
+      doc.setField("id", id);
+      docs.add(doc);
+    }
+    QueryResponse response = createMock(QueryResponse.class);
+    expect(response.getResults()).andReturn(docs).anyTimes();
+    expect(response.getNextCursorMark()).andReturn(nextCursorMark).anyTimes();
+    replay(response);
+    return response;
+  }
+}
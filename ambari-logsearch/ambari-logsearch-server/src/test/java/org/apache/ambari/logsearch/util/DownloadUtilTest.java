@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ambari.logsearch.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.solr.common.SolrDocument;
+import org.junit.Test;
+
+import static org.apache.ambari.logsearch.solr.SolrConstants.CommonLogConstants.FILE;
+import static org.apache.ambari.logsearch.solr.SolrConstants.ServiceLogConstants.LEVEL;
+import static org.apache.ambari.logsearch.solr.SolrConstants.ServiceLogConstants.LINE_NUMBER;
+import static org.apache.ambari.logsearch.solr.SolrConstants.ServiceLogConstants.LOGGER_NAME;
+import static org.apache.ambari.logsearch.solr.SolrConstants.ServiceLogConstants.LOGTIME;
+import static org.apache.ambari.logsearch.solr.SolrConstants.ServiceLogConstants.LOG_MESSAGE;
+import static org.apache.ambari.logsearch.solr.SolrConstants.ServiceLogConstants.THREAD_NAME;
+import static org.junit.Assert.assertEquals;
+
+public class DownloadUtilTest {
+
+  private static final String EXPORTED = "exported logs";
+
+  private final StreamingOutput output = outputStream -> outputStream.write(EXPORTED.getBytes(StandardCharsets.UTF_8));
+
+  @Test
+  public void testCreateExportResponse() throws Exception {
+    // WHEN
+    Response response = DownloadUtil.createExportResponse(output, "logs.txt", false);
+    // THEN
+    assertEquals("attachment;filename=logs.txt", response.getHeaderString("Content-Disposition"));
+    assertEquals(EXPORTED, new String(write(response), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testCreateGzipExportResponse() throws Exception {
+    // WHEN
+    Response response = DownloadUtil.createExportResponse(output, "logs.txt", true);
+    // THEN
+    assertEquals("attachment;filename=logs.txt.gz", response.getHeaderString("Content-Disposition"));
+    GZIPInputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(write(response)));
+    assertEquals(EXPORTED, IOUtils.toString(inputStream, StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testFormatLogLine() {
+    // GIVEN
+    SolrDocument doc = new SolrDocument();
+    doc.setField(LOGTIME, "2017-01-01 10:00:00,000");
+    doc.setField(LEVEL, "INFO");
+    doc.setField(THREAD_NAME, " main ");
+    doc.setField(LOGGER_NAME, "MyClass");
+    doc.setField(FILE, "MyClass.java");
+    doc.setField(LINE_NUMBER, 12);
+    doc.setField(LOG_MESSAGE, "message");
+    // WHEN
+    String line = DownloadUtil.formatLogLine(doc);
+    // THEN
+    assertEquals("2017-01-01 10:00:00,000 INFO main MyClass MyClass.java:12 - message", line);
+  }
+
+  private byte[] write(Response response) throws Exception {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    ((StreamingOutput) response.getEntity()).write(outputStream);
+    return outputStream.toByteArray();
+  }
+}
@@ -0,0 +1,49 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ambari.logsearch.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class SolrUtilTest {
+
+  @Test
+  public void testAddUniqueKeySortWithoutSort() {
+    assertEquals("id asc", SolrUtil.addUniqueKeySort(null, "id"));
+    assertEquals("id asc", SolrUtil.addUniqueKeySort(" ", "id"));
+  }
+
+  @Test
+  public void testAddUniqueKeySortAppendsUniqueKey() {
+    assertEquals("logtime desc,seq_num desc,id asc", SolrUtil.addUniqueKeySort("logtime desc,seq_num desc", "id"));
+  }
+
+  @Test
+  public void testAddUniqueKeySortKeepsExistingUniqueKey() {
+    assertEquals("logtime desc, id desc", SolrUtil.addUniqueKeySort("logtime desc, id desc", "id"));
+    assertEquals("id  asc", SolrUtil.addUniqueKeySort("id  asc", "id"));
+  }
+
+  @Test
+  public void testAddUniqueKeySortIgnoresFieldsStartingWithUniqueKey() {
+    assertEquals("ident asc,id asc", SolrUtil.addUniqueKeySort("ident asc", "id"));
+  }
+}
@@ -43,6 +43,8 @@ import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLSocketFactory;
 import javax.net.ssl.TrustManagerFactory;
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -64,6 +66,8 @@ import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 public abstract class AbstractTimelineMetricsSink {
   public static final String TAGS_FOR_PREFIX_PROPERTY_PREFIX = "tagsForPrefix.";
@@ -89,6 +93,14 @@ public abstract class AbstractTimelineMetricsSink {
   public static final String INSTANCE_ID_PROPERTY = "instanceId";
   public static final String SET_INSTANCE_ID_PROPERTY = "set.instanceId";
   public static final String COOKIE = "Cookie";
+  public static final String COMPRESSION_ENABLED_PROPERTY = "compression.enabled";
+  public static final String MAX_POINTS_PER_POST_PROPERTY = "maxPointsPerPost";
+  public static final String SPILL_DIR_PROPERTY = "spill.dir";
+  public static final String SPILL_MAX_SIZE_BYTES_PROPERTY = "spill.maxSizeBytes";
+  public static final int DEFAULT_MAX_POINTS_PER_POST = 100000;
+  public static final long DEFAULT_SPILL_MAX_SIZE_BYTES = 64 * 1024 * 1024;
+  // Number of spilled payloads replayed after each successful post
+  public static final int MAX_SPILLED_PAYLOADS_PER_REPLAY = 10;
   private static final String WWW_AUTHENTICATE = "WWW-Authenticate";
   private static final String NEGOTIATE = "Negotiate";
 
@@ -106,6 +118,7 @@ public abstract class AbstractTimelineMetricsSink {
 
   private SSLSocketFactory sslSocketFactory;
   private AppCookieManager appCookieManager = null;
+  private MetricsSpillBuffer spillBuffer = null;
 
   protected final Log LOG;
 
@@ -163,7 +176,24 @@ public abstract class AbstractTimelineMetricsSink {
     isInitializedForHA = true;
   }
 
-  protected boolean emitMetricsJson(String connectUrl, String jsonData) {
+  protected boolean emitMetricsJson(String connectUrl, final String jsonData) {
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("emitMetricsJson to " + connectUrl + ", " + jsonData);
+    }
+    return emitMetricsPayload(connectUrl, jsonData == null ? null : os -> os.write(jsonData.getBytes("UTF-8")), false);
+  }
+
+  /**
+   * Post a metrics payload to the collector.
+   *
+   * @param connectUrl     collector url
+   * @param payloadWriter  writes the request body, invoked again if the request has to be resent;
+   *                       null for an empty body
+   * @param gzipped        whether the body written by the payloadWriter is gzip compressed
+   * @return true if the payload was posted, false if the failure is ignored
+   * @throws UnableToConnectException if the collector is not reachable
+   */
+  protected boolean emitMetricsPayload(String connectUrl, MetricsPayloadWriter payloadWriter, boolean gzipped) {
     int timeout = getTimeoutSeconds() * 1000;
     HttpURLConnection connection = null;
     try {
@@ -173,9 +203,6 @@ public abstract class AbstractTimelineMetricsSink {
       connection = connectUrl.startsWith("https") ?
           getSSLConnection(connectUrl) : getConnection(connectUrl);
 
-      if (LOG.isDebugEnabled()) {
-        LOG.debug("emitMetricsJson to " + connectUrl + ", " + jsonData);
-      }
       AppCookieManager appCookieManager = getAppCookieManager();
       String appCookie = appCookieManager.getCachedAppCookie(connectUrl);
       if (appCookie != null) {
@@ -185,7 +212,7 @@ public abstract class AbstractTimelineMetricsSink {
         connection.setRequestProperty(COOKIE, appCookie);
       }
 
-      int statusCode = emitMetricsJson(connection, timeout, jsonData);
+      int statusCode = emitMetricsPayload(connection, timeout, payloadWriter, gzipped);
 
       if (statusCode == HttpStatus.SC_UNAUTHORIZED ) {
         String wwwAuthHeader = connection.getHeaderField(WWW_AUTHENTICATE);
@@ -199,7 +226,7 @@ public abstract class AbstractTimelineMetricsSink {
             connection = connectUrl.startsWith("https") ?
                 getSSLConnection(connectUrl) : getConnection(connectUrl);
             connection.setRequestProperty(COOKIE, appCookie);
-            statusCode = emitMetricsJson(connection, timeout, jsonData);
+            statusCode = emitMetricsPayload(connection, timeout, payloadWriter, gzipped);
           }
         } else {
           // no supported authentication type found
@@ -249,23 +276,28 @@ public abstract class AbstractTimelineMetricsSink {
     }
   }
 
-  private int emitMetricsJson(HttpURLConnection connection, int timeout, String jsonData) throws IOException {
+  private int emitMetricsPayload(HttpURLConnection connection, int timeout, MetricsPayloadWriter payloadWriter,
+                                 boolean gzipped) throws IOException {
     connection.setRequestMethod("POST");
     connection.setRequestProperty("Content-Type", "application/json");
+    if (gzipped) {
+      connection.setRequestProperty("Content-Encoding", "gzip");
+    }
+    // The underlying connection is reused as long as the response streams are fully read, see cleanupInputStream
     connection.setRequestProperty("Connection", "Keep-Alive");
     connection.setConnectTimeout(timeout);
     connection.setReadTimeout(timeout);
     connection.setDoOutput(true);
 
-    if (jsonData != null) {
+    if (payloadWriter != null) {
       try (OutputStream os = connection.getOutputStream()) {
-        os.write(jsonData.getBytes("UTF-8"));
+        payloadWriter.write(os);
       }
     }
 
     int statusCode = connection.getResponseCode();
     if (LOG.isDebugEnabled()) {
-      LOG.debug("emitMetricsJson: statusCode = " + statusCode);
+      LOG.debug("emitMetricsPayload: statusCode = " + statusCode);
     }
     return statusCode;
   }
@@ -340,19 +372,151 @@ public abstract class AbstractTimelineMetricsSink {
       metricsPostCache.invalidateAll();
     }
 
-    if (validCollectorHost) {
-      String jsonData = null;
-      LOG.debug("EmitMetrics connectUrl = "  + connectUrl);
+    List<TimelineMetrics> chunks = splitMetrics(metricsToEmit, getMaxPointsPerPost());
+    if (!validCollectorHost) {
+      spillMetrics(chunks);
+      return false;
+    }
+
+    LOG.debug("EmitMetrics connectUrl = "  + connectUrl);
+    for (int i = 0; i < chunks.size(); i++) {
+      boolean emitted;
+      try {
+        emitted = emitMetricsChunk(connectUrl, chunks.get(i));
+      } catch (UnableToConnectException e) {
+        spillMetrics(chunks.subList(i, chunks.size()));
+        throw e;
+      }
+      if (!emitted) {
+        spillMetrics(chunks.subList(i, chunks.size()));
+        return false;
+      }
+    }
+    replaySpilledMetrics(connectUrl);
+    return true;
+  }
+
+  private boolean emitMetricsChunk(String connectUrl, final TimelineMetrics metrics) {
+    if (isCompressionEnabled()) {
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("Emitting " + metrics.getMetrics().size() + " compressed metrics to " + connectUrl);
+      }
+      return emitMetricsPayload(connectUrl, os -> writeCompressed(metrics, os), true);
+    }
+
+    String jsonData = null;
+    try {
+      jsonData = mapper.writeValueAsString(metrics);
+    } catch (IOException e) {
+      LOG.error("Unable to parse metrics", e);
+    }
+    return jsonData != null && emitMetricsJson(connectUrl, jsonData);
+  }
+
+  /**
+   * Split metrics into chunks of at most maxPointsPerPost data points, a single metric
+   * is never split. There is always at least one chunk.
+   *
+   * @param metrics          metrics to split
+   * @param maxPointsPerPost maximum number of data points in a chunk, no limit if not positive
+   * @return chunks of metrics
+   */
+  protected List<TimelineMetrics> splitMetrics(TimelineMetrics metrics, int maxPointsPerPost) {
+    List<TimelineMetrics> chunks = new ArrayList<>();
+    if (maxPointsPerPost <= 0) {
+      chunks.add(metrics);
+      return chunks;
+    }
+
+    TimelineMetrics chunk = new TimelineMetrics();
+    int chunkPoints = 0;
+    for (TimelineMetric metric : metrics.getMetrics()) {
+      int metricPoints = metric.getMetricValues() == null ? 0 : metric.getMetricValues().size();
+      if (!chunk.getMetrics().isEmpty() && chunkPoints + metricPoints > maxPointsPerPost) {
+        chunks.add(chunk);
+        chunk = new TimelineMetrics();
+        chunkPoints = 0;
+      }
+      chunk.getMetrics().add(metric);
+      chunkPoints += metricPoints;
+    }
+    chunks.add(chunk);
+    return chunks;
+  }
+
+  private void writeCompressed(TimelineMetrics metrics, OutputStream os) throws IOException {
+    GZIPOutputStream gzipOutputStream = new GZIPOutputStream(os);
+    mapper.writeValue(gzipOutputStream, metrics);
+    gzipOutputStream.finish();
+  }
+
+  private void spillMetrics(List<TimelineMetrics> chunks) {
+    if (spillBuffer == null) {
+      return;
+    }
+    for (TimelineMetrics chunk : chunks) {
+      if (chunk.getMetrics().isEmpty()) {
+        continue;
+      }
       try {
-        jsonData = mapper.writeValueAsString(metricsToEmit);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        writeCompressed(chunk, bytes);
+        spillBuffer.add(bytes.toByteArray());
       } catch (IOException e) {
-        LOG.error("Unable to parse metrics", e);
+        LOG.error("Unable to spill metrics", e);
       }
-      if (jsonData != null) {
-        return emitMetricsJson(connectUrl, jsonData);
+    }
+  }
+
+  /**
+   * Post metrics spilled by earlier failed posts, oldest first. Stops at the first failure.
+   */
+  private void replaySpilledMetrics(String connectUrl) {
+    if (spillBuffer == null) {
+      return;
+    }
+    List<File> spilledFiles = spillBuffer.getSpilledFiles();
+    for (File spilledFile : spilledFiles.subList(0, Math.min(spilledFiles.size(), MAX_SPILLED_PAYLOADS_PER_REPLAY))) {
+      try {
+        final byte[] payload = spillBuffer.read(spilledFile);
+        boolean replayed = isCompressionEnabled() ?
+            emitMetricsPayload(connectUrl, os -> os.write(payload), true) :
+            emitMetricsJson(connectUrl, IOUtils.toString(new GZIPInputStream(new ByteArrayInputStream(payload)), "UTF-8"));
+        if (!replayed) {
+          return;
+        }
+        spillBuffer.remove(spilledFile);
+      } catch (UnableToConnectException e) {
+        LOG.debug("Unable to replay spilled metrics", e);
+        return;
+      } catch (IOException e) {
+        LOG.warn("Discarding unreadable spilled metrics " + spilledFile, e);
+        spillBuffer.remove(spilledFile);
       }
     }
-    return false;
+  }
+
+  /**
+   * Enable buffering of metrics which could not be posted on local disk, they are
+   * posted again after the next successful post.
+   *
+   * @param directory    directory to store the metrics in
+   * @param maxSizeBytes maximum size of the stored metrics, the oldest are dropped beyond it
+   */
+  protected void initSpillBuffer(String directory, long maxSizeBytes) {
+    try {
+      spillBuffer = new MetricsSpillBuffer(new File(directory), maxSizeBytes);
+      LOG.info("Spilling metrics which could not be posted to " + directory);
+    } catch (IOException e) {
+      LOG.error("Unable to initialize metrics spill buffer, metrics which could not be posted will be discarded.", e);
+    }
+  }
+
+  /**
+   * Writes a metrics request body.
+   */
+  protected interface MetricsPayloadWriter {
+    void write(OutputStream os) throws IOException;
   }
 
   /**
@@ -751,4 +915,19 @@ public abstract class AbstractTimelineMetricsSink {
    * @return
    */
   abstract protected String getHostInMemoryAggregationProtocol();
+
+  /**
+   * Whether metrics are posted gzip compressed.
+   * Disabled by default since older collectors do not accept compressed requests.
+   */
+  protected boolean isCompressionEnabled() {
+    return false;
+  }
+
+  /**
+   * Maximum number of data points posted in a single request, larger payloads are split.
+   */
+  protected int getMaxPointsPerPost() {
+    return DEFAULT_MAX_POINTS_PER_POST;
+  }
 }
@@ -0,0 +1,120 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.metrics2.sink.timeline;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded local disk buffer for metric payloads which could not be posted to the collector.
+ * Every payload is kept in its own file, payloads are returned oldest first.
+ * When adding a payload would exceed the size bound the oldest payloads are dropped.
+ */
+public class MetricsSpillBuffer {
+  private static final Log LOG = LogFactory.getLog(MetricsSpillBuffer.class);
+
+  static final String FILE_PREFIX = "metrics-";
+  static final String FILE_SUFFIX = ".json.gz";
+  private static final String TMP_SUFFIX = ".tmp";
+
+  private final File directory;
+  private final long maxSizeBytes;
+  private final AtomicLong sequence = new AtomicLong(0);
+
+  public MetricsSpillBuffer(File directory, long maxSizeBytes) throws IOException {
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("Unable to create metrics spill directory " + directory);
+    }
+    this.directory = directory;
+    this.maxSizeBytes = maxSizeBytes;
+  }
+
+  /**
+   * Store a payload, dropping the oldest payloads if needed to stay within the size bound.
+   *
+   * @param payload payload to store
+   * @return true if the payload was stored
+   */
+  public synchronized boolean add(byte[] payload) {
+    if (payload.length > maxSizeBytes) {
+      LOG.warn("Metrics payload of " + payload.length + " bytes exceeds the spill buffer size, discarding it.");
+      return false;
+    }
+
+    List<File> files = getSpilledFiles();
+    long size = 0;
+    for (File file : files) {
+      size += file.length();
+    }
+    while (size + payload.length > maxSizeBytes && !files.isEmpty()) {
+      File oldest = files.remove(0);
+      size -= oldest.length();
+      LOG.info("Metrics spill buffer is full, discarding " + oldest.getName());
+      remove(oldest);
+    }
+
+    String name = String.format("%s%020d-%010d", FILE_PREFIX, System.currentTimeMillis(), sequence.incrementAndGet());
+    File tmpFile = new File(directory, name + TMP_SUFFIX);
+    try {
+      try (OutputStream os = new FileOutputStream(tmpFile)) {
+        os.write(payload);
+      }
+      if (!tmpFile.renameTo(new File(directory, name + FILE_SUFFIX))) {
+        throw new IOException("Unable to rename " + tmpFile);
+      }
+      return true;
+    } catch (IOException e) {
+      LOG.warn("Unable to spill metrics to " + directory, e);
+      tmpFile.delete();
+      return false;
+    }
+  }
+
+  /**
+   * @return the files holding the stored payloads, oldest first
+   */
+  public synchronized List<File> getSpilledFiles() {
+    File[] files = directory.listFiles((dir, name) -> name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX));
+    if (files == null) {
+      return Collections.emptyList();
+    }
+    Arrays.sort(files);
+    return new ArrayList<>(Arrays.asList(files));
+  }
+
+  public byte[] read(File file) throws IOException {
+    return Files.readAllBytes(file.toPath());
+  }
+
+  public synchronized void remove(File file) {
+    if (!file.delete() && file.exists()) {
+      LOG.warn("Unable to delete spilled metrics file " + file);
+    }
+  }
+}
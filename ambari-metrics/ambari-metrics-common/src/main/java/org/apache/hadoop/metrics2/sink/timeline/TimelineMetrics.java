@@ -39,6 +39,7 @@ import org.apache.hadoop.classification.InterfaceStability;
 public class TimelineMetrics implements Serializable{
 
   private List<TimelineMetric> allMetrics = new ArrayList<TimelineMetric>();
+  private Boolean partialResult;
 
   public TimelineMetrics() {}
 
@@ -51,6 +52,19 @@ public class TimelineMetrics implements Serializable{
     this.allMetrics = allMetrics;
   }
 
+  /**
+   * @return true if part of the requested metrics could not be read in time,
+   * null for complete results so the field is left out of sink payloads
+   */
+  @XmlElement(name = "partialResult")
+  public Boolean getPartialResult() {
+    return partialResult;
+  }
+
+  public void setPartialResult(Boolean partialResult) {
+    this.partialResult = partialResult;
+  }
+
   private boolean isEqualTimelineMetrics(TimelineMetric metric1,
                                          TimelineMetric metric2) {
 
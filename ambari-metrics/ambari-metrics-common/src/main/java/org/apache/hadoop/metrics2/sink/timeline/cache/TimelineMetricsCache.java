@@ -17,6 +17,7 @@
  */
 package org.apache.hadoop.metrics2.sink.timeline.cache;
 
+import com.google.common.util.concurrent.Striped;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.classification.InterfaceAudience;
@@ -24,26 +25,55 @@ import org.apache.hadoop.classification.InterfaceStability;
 import org.apache.hadoop.metrics2.sink.timeline.TimelineMetric;
 import org.apache.hadoop.metrics2.sink.timeline.TimelineMetrics;
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.Lock;
 
+/**
+ * Buffers metric values per metric name until at least maxEvictionTimeInMillis worth of
+ * values are collected.
+ * <p/>
+ * Values are kept in per metric ring buffers of primitive timestamps and values. Puts and
+ * evictions of the same metric are serialized by a lock stripe, different metrics are handled
+ * concurrently. The buffer of a metric is removed from the cache when it is evicted, and is
+ * recycled for the next metric put.
+ */
 @InterfaceAudience.Public
 @InterfaceStability.Evolving
 public class TimelineMetricsCache {
 
-  private final TimelineMetricHolder timelineMetricCache = new TimelineMetricHolder();
   private static final Log LOG = LogFactory.getLog(TimelineMetric.class);
   public static final int MAX_RECS_PER_NAME_DEFAULT = 10000;
   public static final int MAX_EVICTION_TIME_MILLIS = 59000; // ~ 1 min
+  private static final int LOCK_STRIPES = 64;
+  private static final int MAX_FREE_BUFFERS = 1024;
   private final int maxRecsPerName;
   private final int maxEvictionTimeInMillis;
   private boolean skipCounterTransform = true;
-  private final Map<String, Double> counterMetricLastValue = new HashMap<String, Double>();
+
+  // TODO: Add weighted eviction
+  private final ConcurrentSkipListMap<String, MetricBuffer> metricBuffers = new ConcurrentSkipListMap<>();
+  // Evicted buffers, reused so that their arrays are not allocated again
+  private final BlockingQueue<MetricBuffer> freeBuffers = new ArrayBlockingQueue<>(MAX_FREE_BUFFERS);
+  // Kept across evictions, guarded by the lock stripe of the metric name
+  private final Map<String, Double> counterMetricLastValue = new ConcurrentHashMap<>();
+  // To avoid duplication at the end of the buffer and beginning of the next
+  // segment of values
+  private final Map<String, Long> endOfBufferTimestamps = new ConcurrentHashMap<>();
+  private final Striped<Lock> locks = Striped.lock(LOCK_STRIPES);
 
   public TimelineMetricsCache(int maxRecsPerName, int maxEvictionTimeInMillis) {
     this(maxRecsPerName, maxEvictionTimeInMillis, false);
@@ -56,14 +86,59 @@ public class TimelineMetricsCache {
     this.skipCounterTransform = skipCounterTransform;
   }
 
-  class TimelineMetricWrapper {
+  /**
+   * Values of a single metric. Not thread safe, guarded by the lock stripe of the metric name.
+   */
+  class MetricBuffer {
+    private static final int INITIAL_CAPACITY = 16;
+    // Buffers grown beyond this are not recycled after eviction
+    private static final int MAX_RETAINED_CAPACITY = 1024;
+
+    // Metric the values were first put with, null if the buffer is empty
+    private TimelineMetric timelineMetric;
+    private long startTime;
     private long timeDiff = -1;
     private long oldestTimestamp = -1;
-    private TimelineMetric timelineMetric;
 
-    TimelineMetricWrapper(TimelineMetric timelineMetric) {
-      this.timelineMetric = timelineMetric;
-      this.oldestTimestamp = timelineMetric.getStartTime();
+    // Ring buffer, capacity is a power of two
+    private long[] timestamps = new long[INITIAL_CAPACITY];
+    private double[] values = new double[INITIAL_CAPACITY];
+    private int head = 0;
+    private int size = 0;
+    // Timestamps are strictly increasing unless a value was put with a timestamp lower
+    // than the last one
+    private boolean sorted = true;
+
+    void putMetric(TimelineMetric metric, boolean transformToDerivative) {
+      if (timelineMetric == null) {
+        timelineMetric = metric;
+        startTime = metric.getStartTime();
+        oldestTimestamp = metric.getStartTime();
+      } else if (size > maxRecsPerName) {
+        removeEldestValues(metric);
+      }
+
+      Map<Long, Double> metricValues = metric.getMetricValues();
+      if (transformToDerivative) {
+        String metricName = metric.getMetricName();
+        Double lastValue = counterMetricLastValue.get(metricName);
+        double previousValue = lastValue != null ? lastValue
+          : (metricValues.isEmpty() ? 0 : metricValues.values().iterator().next());
+        for (Map.Entry<Long, Double> entry : metricValues.entrySet()) {
+          double value = entry.getValue();
+          append(entry.getKey(), value - previousValue);
+          previousValue = value;
+        }
+        counterMetricLastValue.put(metricName, previousValue);
+      } else {
+        for (Map.Entry<Long, Double> entry : metricValues.entrySet()) {
+          append(entry.getKey(), entry.getValue());
+        }
+      }
+
+      if (timelineMetric != metric) {
+        updateTimeDiff(metric.getStartTime());
+      }
     }
 
     private void updateTimeDiff(long timestamp) {
@@ -74,112 +149,284 @@ public class TimelineMetricsCache {
       }
     }
 
-    public synchronized void putMetric(TimelineMetric metric) {
-      TreeMap<Long, Double> metricValues = this.timelineMetric.getMetricValues();
-      if (metricValues.size() > maxRecsPerName) {
-        // remove values for eldest maxEvictionTimeInMillis
-        long newEldestTimestamp = oldestTimestamp + maxEvictionTimeInMillis;
-        TreeMap<Long, Double> metricsSubSet =
-          new TreeMap<>(metricValues.tailMap(newEldestTimestamp));
-        if (metricsSubSet.isEmpty()) {
-          oldestTimestamp = metric.getStartTime();
-          this.timelineMetric.setStartTime(metric.getStartTime());
-        } else {
-          Long newStartTime = metricsSubSet.firstKey();
-          oldestTimestamp = newStartTime;
-          this.timelineMetric.setStartTime(newStartTime);
+    /**
+     * Remove values for eldest maxEvictionTimeInMillis.
+     */
+    private void removeEldestValues(TimelineMetric metric) {
+      long newEldestTimestamp = oldestTimestamp + maxEvictionTimeInMillis;
+      if (sorted) {
+        int removed = 0;
+        while (removed < size && timestamps[index(removed)] < newEldestTimestamp) {
+          removed++;
+        }
+        head = index(removed);
+        size -= removed;
+      } else {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+          int from = index(i);
+          if (timestamps[from] >= newEldestTimestamp) {
+            int to = index(kept++);
+            timestamps[to] = timestamps[from];
+            values[to] = values[from];
+          }
+        }
+        size = kept;
+      }
+
+      if (size == 0) {
+        head = 0;
+        sorted = true;
+        oldestTimestamp = metric.getStartTime();
+      } else {
+        oldestTimestamp = sorted ? timestamps[head] : minTimestamp();
+      }
+      startTime = oldestTimestamp;
+      LOG.warn("Metrics cache overflow. Values for metric " +
+        metric.getMetricName() + " older than " + newEldestTimestamp +
+        " were removed to clean up the cache.");
+    }
+
+    private void append(long timestamp, double value) {
+      if (size > 0) {
+        int last = index(size - 1);
+        if (timestamps[last] == timestamp) {
+          values[last] = value;
+          return;
         }
-        this.timelineMetric.setMetricValues(metricsSubSet);
-        LOG.warn("Metrics cache overflow. Values for metric " +
-          metric.getMetricName() + " older than " + newEldestTimestamp +
-          " were removed to clean up the cache.");
+        if (timestamp < timestamps[last]) {
+          sorted = false;
+        }
+      }
+      if (size == timestamps.length) {
+        grow();
       }
-      this.timelineMetric.addMetricValues(metric.getMetricValues());
-      updateTimeDiff(metric.getStartTime());
+      int next = index(size++);
+      timestamps[next] = timestamp;
+      values[next] = value;
     }
 
-    public synchronized long getTimeDiff() {
-      return timeDiff;
+    private void grow() {
+      long[] newTimestamps = new long[timestamps.length * 2];
+      double[] newValues = new double[values.length * 2];
+      for (int i = 0; i < size; i++) {
+        newTimestamps[i] = timestamps[index(i)];
+        newValues[i] = values[index(i)];
+      }
+      timestamps = newTimestamps;
+      values = newValues;
+      head = 0;
     }
 
-    public synchronized TimelineMetric getTimelineMetric() {
-      return timelineMetric;
+    private int index(int i) {
+      return (head + i) & (timestamps.length - 1);
     }
-  }
 
-  // TODO: Add weighted eviction
-  class TimelineMetricHolder extends ConcurrentSkipListMap<String, TimelineMetricWrapper> {
-    private static final long serialVersionUID = 2L;
-    // To avoid duplication at the end of the buffer and beginning of the next
-    // segment of values
-    private Map<String, Long> endOfBufferTimestamps = new HashMap<String, Long>();
+    private long minTimestamp() {
+      long min = Long.MAX_VALUE;
+      for (int i = 0; i < size; i++) {
+        min = Math.min(min, timestamps[index(i)]);
+      }
+      return min;
+    }
 
-    public TimelineMetric evict(String metricName) {
-      TimelineMetricWrapper metricWrapper = this.get(metricName);
+    boolean isEvictable() {
+      return timelineMetric != null && timeDiff >= getMaxEvictionTimeInMillis();
+    }
 
-      if (metricWrapper == null
-        || metricWrapper.getTimeDiff() < getMaxEvictionTimeInMillis()) {
-        return null;
+    /**
+     * Move the buffered values into the metric they were first put with and reset the buffer.
+     */
+    TimelineMetric evict() {
+      TreeMap<Long, Double> metricValues;
+      if (sorted) {
+        // built in linear time, without comparing or rebalancing
+        metricValues = new TreeMap<>(new SortedValues(this));
+      } else {
+        // later values win over earlier ones with the same timestamp
+        metricValues = new TreeMap<>();
+        for (int i = 0; i < size; i++) {
+          int index = index(i);
+          metricValues.put(timestamps[index], values[index]);
+        }
       }
+      TimelineMetric evicted = timelineMetric;
+      evicted.setMetricValues(metricValues);
+      evicted.setStartTime(startTime);
 
-      TimelineMetric timelineMetric = metricWrapper.getTimelineMetric();
-      this.remove(metricName);
+      timelineMetric = null;
+      timeDiff = -1;
+      oldestTimestamp = -1;
+      head = 0;
+      size = 0;
+      sorted = true;
+      return evicted;
+    }
 
-      return timelineMetric;
+    boolean isRecyclable() {
+      return timestamps.length <= MAX_RETAINED_CAPACITY;
     }
+  }
 
-    public TimelineMetrics evictAll() {
-      List<TimelineMetric> metricList = new ArrayList<TimelineMetric>();
+  /**
+   * Read only view of the strictly increasing values of a buffer, from which a TreeMap is built
+   * without comparing keys.
+   */
+  private static class SortedValues extends AbstractMap<Long, Double> implements SortedMap<Long, Double> {
+    private final MetricBuffer buffer;
+
+    SortedValues(MetricBuffer buffer) {
+      this.buffer = buffer;
+    }
 
-      for (Iterator<Map.Entry<String, TimelineMetricWrapper>> it = this.entrySet().iterator(); it.hasNext();) {
-        Map.Entry<String, TimelineMetricWrapper> cacheEntry = it.next();
-        TimelineMetricWrapper metricWrapper = cacheEntry.getValue();
-        if (metricWrapper != null) {
-          TimelineMetric timelineMetric = cacheEntry.getValue().getTimelineMetric();
-          metricList.add(timelineMetric);
+    @Override
+    public Set<Entry<Long, Double>> entrySet() {
+      return new AbstractSet<Entry<Long, Double>>() {
+        @Override
+        public Iterator<Entry<Long, Double>> iterator() {
+          return new ValueIterator(buffer);
         }
-        it.remove();
+
+        @Override
+        public int size() {
+          return buffer.size;
+        }
+      };
+    }
+
+    @Override
+    public int size() {
+      return buffer.size;
+    }
+
+    @Override
+    public Comparator<? super Long> comparator() {
+      return null;
+    }
+
+    @Override
+    public Long firstKey() {
+      if (buffer.size == 0) {
+        throw new NoSuchElementException();
       }
-      TimelineMetrics timelineMetrics = new TimelineMetrics();
-      timelineMetrics.setMetrics(metricList);
-      return timelineMetrics;
+      return buffer.timestamps[buffer.index(0)];
     }
 
-    public void put(String metricName, TimelineMetric timelineMetric) {
-      if (isDuplicate(timelineMetric)) {
-        return;
+    @Override
+    public Long lastKey() {
+      if (buffer.size == 0) {
+        throw new NoSuchElementException();
       }
-      TimelineMetricWrapper metric = this.get(metricName);
-      if (metric == null) {
-        this.put(metricName, new TimelineMetricWrapper(timelineMetric));
-      } else {
-        metric.putMetric(timelineMetric);
+      return buffer.timestamps[buffer.index(buffer.size - 1)];
+    }
+
+    @Override
+    public SortedMap<Long, Double> subMap(Long fromKey, Long toKey) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public SortedMap<Long, Double> headMap(Long toKey) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public SortedMap<Long, Double> tailMap(Long fromKey) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  /**
+   * Iterator over the values of a buffer which is its own entry. TreeMap copies the key and
+   * value of each entry while it is built, so no entry is allocated per value.
+   */
+  private static class ValueIterator implements Iterator<Map.Entry<Long, Double>>, Map.Entry<Long, Double> {
+    private final MetricBuffer buffer;
+    private int next = 0;
+    private int index = -1;
+
+    ValueIterator(MetricBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next < buffer.size;
+    }
+
+    @Override
+    public Map.Entry<Long, Double> next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
       }
-      // Buffer last ts value
-      endOfBufferTimestamps.put(metricName, timelineMetric.getStartTime());
+      index = buffer.index(next++);
+      return this;
     }
 
-    /**
-     * Test whether last buffered timestamp is same as the newly received.
-     * @param timelineMetric @TimelineMetric
-     * @return true/false
-     */
-    private boolean isDuplicate(TimelineMetric timelineMetric) {
-      return endOfBufferTimestamps.containsKey(timelineMetric.getMetricName())
-        && endOfBufferTimestamps.get(timelineMetric.getMetricName()).equals(timelineMetric.getStartTime());
+    @Override
+    public Long getKey() {
+      return buffer.timestamps[index];
+    }
+
+    @Override
+    public Double getValue() {
+      return buffer.values[index];
     }
+
+    @Override
+    public Double setValue(Double value) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  /**
+   * Evict a buffer which was removed from the cache and recycle it.
+   */
+  private TimelineMetric evict(MetricBuffer metricBuffer) {
+    TimelineMetric evicted = metricBuffer.evict();
+    if (metricBuffer.isRecyclable()) {
+      freeBuffers.offer(metricBuffer);
+    }
+    return evicted;
   }
 
   public TimelineMetric getTimelineMetric(String metricName) {
-    if (timelineMetricCache.containsKey(metricName)) {
-      return timelineMetricCache.evict(metricName);
+    if (!metricBuffers.containsKey(metricName)) {
+      return null;
     }
 
-    return null;
+    Lock lock = locks.get(metricName);
+    lock.lock();
+    try {
+      MetricBuffer metricBuffer = metricBuffers.get(metricName);
+      if (metricBuffer == null || !metricBuffer.isEvictable()) {
+        return null;
+      }
+      metricBuffers.remove(metricName);
+      return evict(metricBuffer);
+    } finally {
+      lock.unlock();
+    }
   }
 
   public TimelineMetrics getAllMetrics() {
-    return timelineMetricCache.evictAll();
+    List<TimelineMetric> metricList = new ArrayList<TimelineMetric>();
+
+    for (String metricName : metricBuffers.keySet()) {
+      Lock lock = locks.get(metricName);
+      lock.lock();
+      try {
+        MetricBuffer metricBuffer = metricBuffers.remove(metricName);
+        if (metricBuffer != null) {
+          metricList.add(evict(metricBuffer));
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+    TimelineMetrics timelineMetrics = new TimelineMetrics();
+    timelineMetrics.setMetrics(metricList);
+    return timelineMetrics;
   }
 
   /**
@@ -191,29 +438,40 @@ public class TimelineMetricsCache {
   }
 
   public void putTimelineMetric(TimelineMetric timelineMetric) {
-    timelineMetricCache.put(timelineMetric.getMetricName(), timelineMetric);
+    putTimelineMetric(timelineMetric, false);
   }
 
-  private void transformMetricValuesToDerivative(TimelineMetric timelineMetric) {
+  public void putTimelineMetric(TimelineMetric timelineMetric, boolean isCounter) {
     String metricName = timelineMetric.getMetricName();
-    double firstValue = timelineMetric.getMetricValues().size() > 0
-        ? timelineMetric.getMetricValues().entrySet().iterator().next().getValue() : 0;
-    Double value = counterMetricLastValue.get(metricName);
-    double previousValue = value != null ? value : firstValue;
-    Map<Long, Double> metricValues = timelineMetric.getMetricValues();
-    TreeMap<Long, Double>   newMetricValues = new TreeMap<Long, Double>();
-    for (Map.Entry<Long, Double> entry : metricValues.entrySet()) {
-      newMetricValues.put(entry.getKey(), entry.getValue() - previousValue);
-      previousValue = entry.getValue();
-    }
-    timelineMetric.setMetricValues(newMetricValues);
-    counterMetricLastValue.put(metricName, previousValue);
+    Lock lock = locks.get(metricName);
+    lock.lock();
+    try {
+      if (isDuplicate(timelineMetric)) {
+        return;
+      }
+      MetricBuffer metricBuffer = metricBuffers.get(metricName);
+      if (metricBuffer == null) {
+        metricBuffer = freeBuffers.poll();
+        if (metricBuffer == null) {
+          metricBuffer = new MetricBuffer();
+        }
+        metricBuffers.put(metricName, metricBuffer);
+      }
+      metricBuffer.putMetric(timelineMetric, isCounter && !skipCounterTransform);
+      // Buffer last ts value
+      endOfBufferTimestamps.put(metricName, timelineMetric.getStartTime());
+    } finally {
+      lock.unlock();
+    }
   }
 
-  public void putTimelineMetric(TimelineMetric timelineMetric, boolean isCounter) {
-    if (isCounter && !skipCounterTransform) {
-      transformMetricValuesToDerivative(timelineMetric);
-    }
-    putTimelineMetric(timelineMetric);
+  /**
+   * Test whether last buffered timestamp is same as the newly received.
+   * @param timelineMetric @TimelineMetric
+   * @return true/false
+   */
+  private boolean isDuplicate(TimelineMetric timelineMetric) {
+    Long endOfBufferTimestamp = endOfBufferTimestamps.get(timelineMetric.getMetricName());
+    return endOfBufferTimestamp != null && endOfBufferTimestamp == timelineMetric.getStartTime();
   }
 }
@@ -24,15 +24,24 @@ import org.powermock.api.easymock.PowerMock;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Rule;
+import org.junit.rules.TemporaryFolder;
 
 import static org.easymock.EasyMock.anyString;
 import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
 import static org.powermock.api.easymock.PowerMock.expectNew;
 import static org.powermock.api.easymock.PowerMock.replayAll;
 
@@ -40,6 +49,9 @@ import static org.powermock.api.easymock.PowerMock.replayAll;
 @PrepareForTest({AbstractTimelineMetricsSink.class, HttpURLConnection.class})
 public class AbstractTimelineMetricSinkTest {
 
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
   @Test
   public void testParseHostsStringIntoCollection() {
     AbstractTimelineMetricsSink sink = new TestTimelineMetricsSink();
@@ -186,7 +198,104 @@ public class AbstractTimelineMetricSinkTest {
     Assert.assertEquals(0, sink.getMetricsPostCache().size());
   }
 
+  @Test
+  public void testSplitMetrics() {
+    TestTimelineMetricsSink sink = new TestTimelineMetricsSink();
+    TimelineMetrics timelineMetrics = new TimelineMetrics();
+    timelineMetrics.addOrMergeTimelineMetric(createMetric("metric1", 3));
+    timelineMetrics.addOrMergeTimelineMetric(createMetric("metric2", 2));
+    timelineMetrics.addOrMergeTimelineMetric(createMetric("metric3", 6));
+    timelineMetrics.addOrMergeTimelineMetric(createMetric("metric4", 1));
+
+    List<TimelineMetrics> chunks = sink.splitMetrics(timelineMetrics, 5);
+    Assert.assertEquals(3, chunks.size());
+    Assert.assertEquals(2, chunks.get(0).getMetrics().size());
+    // a single metric is never split
+    Assert.assertEquals(1, chunks.get(1).getMetrics().size());
+    Assert.assertEquals("metric3", chunks.get(1).getMetrics().get(0).getMetricName());
+    Assert.assertEquals("metric4", chunks.get(2).getMetrics().get(0).getMetricName());
+
+    Assert.assertEquals(1, sink.splitMetrics(timelineMetrics, 0).size());
+    Assert.assertEquals(1, sink.splitMetrics(new TimelineMetrics(), 5).size());
+  }
+
+  @Test
+  @PrepareForTest({URL.class, AbstractTimelineMetricsSink.class, HttpURLConnection.class})
+  public void testEmitCompressedMetrics() throws Exception {
+    HttpURLConnection connection = PowerMock.createNiceMock(HttpURLConnection.class);
+    URL url = PowerMock.createNiceMock(URL.class);
+    expectNew(URL.class, anyString()).andReturn(url).anyTimes();
+    expect(url.openConnection()).andReturn(connection).anyTimes();
+    expect(connection.getResponseCode()).andReturn(200).anyTimes();
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    expect(connection.getOutputStream()).andReturn(os).anyTimes();
+    connection.setRequestProperty("Content-Encoding", "gzip");
+    expectLastCall().once();
+    replayAll();
+
+    TestTimelineMetricsSink sink = new TestTimelineMetricsSink();
+    sink.compressionEnabled = true;
+    TimelineMetrics timelineMetrics = new TimelineMetrics();
+    timelineMetrics.addOrMergeTimelineMetric(createMetric("metric1", 3));
+    Assert.assertTrue(sink.emitMetrics(timelineMetrics, true));
+
+    TimelineMetrics posted = AbstractTimelineMetricsSink.mapper.readValue(
+      new GZIPInputStream(new ByteArrayInputStream(os.toByteArray())), TimelineMetrics.class);
+    Assert.assertEquals(1, posted.getMetrics().size());
+    Assert.assertEquals("metric1", posted.getMetrics().get(0).getMetricName());
+    Assert.assertEquals(3, posted.getMetrics().get(0).getMetricValues().size());
+    PowerMock.verify(connection);
+  }
+
+  @Test
+  @PrepareForTest({URL.class, AbstractTimelineMetricsSink.class, HttpURLConnection.class})
+  public void testFailedMetricsAreSpilledAndReplayed() throws Exception {
+    HttpURLConnection connection = PowerMock.createNiceMock(HttpURLConnection.class);
+    URL url = PowerMock.createNiceMock(URL.class);
+    expectNew(URL.class, anyString()).andReturn(url).anyTimes();
+    expect(url.openConnection()).andReturn(connection).anyTimes();
+    expect(connection.getOutputStream()).andReturn(new ByteArrayOutputStream()).anyTimes();
+    expect(connection.getResponseCode()).andThrow(new IOException()).once();
+    expect(connection.getResponseCode()).andReturn(200).anyTimes();
+    replayAll();
+
+    TestTimelineMetricsSink sink = new TestTimelineMetricsSink();
+    sink.initSpillBuffer(folder.newFolder("spill").getAbsolutePath(), 1024 * 1024);
+    TimelineMetrics timelineMetrics = new TimelineMetrics();
+    timelineMetrics.addOrMergeTimelineMetric(createMetric("metric1", 3));
+    try {
+      sink.emitMetrics(timelineMetrics, true);
+      Assert.fail("Expected UnableToConnectException");
+    } catch (UnableToConnectException e) {
+      // expected
+    }
+    Assert.assertEquals(1, folder.getRoot().toPath().resolve("spill").toFile().list().length);
+
+    timelineMetrics = new TimelineMetrics();
+    timelineMetrics.addOrMergeTimelineMetric(createMetric("metric2", 3));
+    Assert.assertTrue(sink.emitMetrics(timelineMetrics, true));
+    Assert.assertEquals(0, folder.getRoot().toPath().resolve("spill").toFile().list().length);
+  }
+
+  private TimelineMetric createMetric(String metricName, int points) {
+    TimelineMetric timelineMetric = new TimelineMetric(metricName, "host1", "app1", "instance1");
+    TreeMap<Long, Double> metricValues = new TreeMap<>();
+    for (int i = 0; i < points; i++) {
+      metricValues.put(1000L * i, (double) i);
+    }
+    timelineMetric.setStartTime(metricValues.firstKey());
+    timelineMetric.addMetricValues(metricValues);
+    return timelineMetric;
+  }
+
   private class TestTimelineMetricsSink extends AbstractTimelineMetricsSink {
+    boolean compressionEnabled = false;
+
+    @Override
+    protected boolean isCompressionEnabled() {
+      return compressionEnabled;
+    }
+
     @Override
     protected String getCollectorUri(String host) {
       return "";
@@ -0,0 +1,67 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.metrics2.sink.timeline;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.List;
+
+public class MetricsSpillBufferTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testPayloadsAreReturnedOldestFirst() throws Exception {
+    MetricsSpillBuffer buffer = new MetricsSpillBuffer(folder.newFolder("spill"), 1024);
+    Assert.assertTrue(buffer.add(new byte[] {1}));
+    Assert.assertTrue(buffer.add(new byte[] {2}));
+    Assert.assertTrue(buffer.add(new byte[] {3}));
+
+    List<File> files = buffer.getSpilledFiles();
+    Assert.assertEquals(3, files.size());
+    Assert.assertArrayEquals(new byte[] {1}, buffer.read(files.get(0)));
+    Assert.assertArrayEquals(new byte[] {3}, buffer.read(files.get(2)));
+
+    buffer.remove(files.get(0));
+    files = buffer.getSpilledFiles();
+    Assert.assertEquals(2, files.size());
+    Assert.assertArrayEquals(new byte[] {2}, buffer.read(files.get(0)));
+  }
+
+  @Test
+  public void testOldestPayloadsAreDroppedWhenFull() throws Exception {
+    MetricsSpillBuffer buffer = new MetricsSpillBuffer(folder.newFolder("spill"), 10);
+    Assert.assertTrue(buffer.add(new byte[] {1, 1, 1, 1}));
+    Assert.assertTrue(buffer.add(new byte[] {2, 2, 2, 2}));
+    Assert.assertTrue(buffer.add(new byte[] {3, 3, 3, 3}));
+
+    List<File> files = buffer.getSpilledFiles();
+    Assert.assertEquals(2, files.size());
+    Assert.assertArrayEquals(new byte[] {2, 2, 2, 2}, buffer.read(files.get(0)));
+    Assert.assertArrayEquals(new byte[] {3, 3, 3, 3}, buffer.read(files.get(1)));
+
+    // larger than the whole buffer
+    Assert.assertFalse(buffer.add(new byte[11]));
+    Assert.assertEquals(2, buffer.getSpilledFiles().size());
+  }
+}
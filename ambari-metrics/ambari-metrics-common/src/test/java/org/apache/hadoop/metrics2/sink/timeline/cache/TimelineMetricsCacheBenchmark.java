@@ -0,0 +1,119 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.metrics2.sink.timeline.cache;
+
+import org.apache.hadoop.metrics2.sink.timeline.TimelineMetric;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link TimelineMetricsCache} with concurrent writers, as in a Kafka broker or Storm worker
+ * where several threads report metrics. Like the sinks, every writer checks whether the metric it
+ * has just put can be evicted.
+ * <p/>
+ * Not run as part of the unit tests, run it with
+ * <pre>
+ *   mvn test-compile exec:java -Dexec.classpathScope=test
+ *     -Dexec.mainClass=org.apache.hadoop.metrics2.sink.timeline.cache.TimelineMetricsCacheBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class TimelineMetricsCacheBenchmark {
+
+  private static final int METRIC_COUNT = 1000;
+  private static final int POINTS_PER_PUT = 1;
+  private static final long INTERVAL_MILLIS = 10000;
+
+  private static final String[] METRIC_NAMES = new String[METRIC_COUNT];
+
+  static {
+    for (int i = 0; i < METRIC_COUNT; i++) {
+      METRIC_NAMES[i] = "dfs.namenode.metric" + i;
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class CacheState {
+    TimelineMetricsCache cache;
+
+    @Setup
+    public void setup() {
+      cache = new TimelineMetricsCache(TimelineMetricsCache.MAX_RECS_PER_NAME_DEFAULT,
+        TimelineMetricsCache.MAX_EVICTION_TIME_MILLIS);
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class WriterState {
+    int metricIndex = 0;
+    long timestamp = System.currentTimeMillis();
+    boolean counter;
+
+    @Setup
+    public void setup() {
+      counter = Thread.currentThread().getId() % 2 == 0;
+    }
+
+    TimelineMetric nextMetric() {
+      if (++metricIndex == METRIC_COUNT) {
+        metricIndex = 0;
+        timestamp += INTERVAL_MILLIS;
+      }
+      TimelineMetric metric = new TimelineMetric(METRIC_NAMES[metricIndex], "host1", "namenode", null);
+      metric.setStartTime(timestamp);
+      TreeMap<Long, Double> values = new TreeMap<>();
+      for (int i = 0; i < POINTS_PER_PUT; i++) {
+        values.put(timestamp + i, (double) timestamp);
+      }
+      metric.setMetricValues(values);
+      return metric;
+    }
+  }
+
+  @Benchmark
+  public TimelineMetric putAndEvict(CacheState state, WriterState writer) {
+    TimelineMetric metric = writer.nextMetric();
+    state.cache.putTimelineMetric(metric, writer.counter);
+    return state.cache.getTimelineMetric(metric.getMetricName());
+  }
+
+  public static void main(String[] args) throws Exception {
+    new Runner(new OptionsBuilder()
+      .include(TimelineMetricsCacheBenchmark.class.getSimpleName())
+      .build()).run();
+  }
+}
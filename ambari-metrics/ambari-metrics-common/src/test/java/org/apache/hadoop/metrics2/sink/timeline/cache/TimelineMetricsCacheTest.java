@@ -18,14 +18,22 @@
 package org.apache.hadoop.metrics2.sink.timeline.cache;
 
 import org.apache.hadoop.metrics2.sink.timeline.TimelineMetric;
+import org.apache.hadoop.metrics2.sink.timeline.TimelineMetrics;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 
 public class TimelineMetricsCacheTest {
 
@@ -124,6 +132,95 @@ public class TimelineMetricsCacheTest {
     assertEquals(DEFAULT_START_TIME + maxEvictionTime * 2, cachedMetric.getStartTime());
   }
 
+  @Test
+  public void testOutOfOrderValues() throws Exception {
+    int maxEvictionTime = TimelineMetricsCache.MAX_EVICTION_TIME_MILLIS;
+    timelineMetricsCache.putTimelineMetric(createTimelineMetric(new TreeMap<Long, Double>() {{
+      put(DEFAULT_START_TIME + 20, 3.0);
+      put(DEFAULT_START_TIME + 30, 4.0);
+    }}, DEFAULT_START_TIME + 20));
+    timelineMetricsCache.putTimelineMetric(createTimelineMetric(new TreeMap<Long, Double>() {{
+      put(DEFAULT_START_TIME, 1.0);
+      put(DEFAULT_START_TIME + 20, 5.0);
+    }}, DEFAULT_START_TIME));
+    assertNull(timelineMetricsCache.getTimelineMetric(METRIC_NAME));
+    timelineMetricsCache.putTimelineMetric(createTimelineMetric(new TreeMap<Long, Double>() {{
+      put(DEFAULT_START_TIME + maxEvictionTime, 6.0);
+    }}, DEFAULT_START_TIME + maxEvictionTime));
+
+    TimelineMetric cachedMetric = timelineMetricsCache.getTimelineMetric(METRIC_NAME);
+    assertNotNull(cachedMetric);
+    assertEquals(4, cachedMetric.getMetricValues().size());
+    assertEquals(DEFAULT_START_TIME, (long) cachedMetric.getMetricValues().firstKey());
+    // last put value wins
+    assertEquals(5.0, cachedMetric.getMetricValues().get(DEFAULT_START_TIME + 20), delta);
+
+    // buffer is empty after eviction
+    assertNull(timelineMetricsCache.getTimelineMetric(METRIC_NAME));
+    assertEquals(0, timelineMetricsCache.getAllMetrics().getMetrics().size());
+  }
+
+  @Test
+  public void testEvictedBufferIsReused() throws Exception {
+    int maxEvictionTime = TimelineMetricsCache.MAX_EVICTION_TIME_MILLIS;
+    timelineMetricsCache.putTimelineMetric(createTimelineMetricSingleValue(DEFAULT_START_TIME));
+    timelineMetricsCache.putTimelineMetric(createTimelineMetricSingleValue(DEFAULT_START_TIME + maxEvictionTime));
+    TimelineMetric evicted = timelineMetricsCache.getTimelineMetric(METRIC_NAME);
+    assertNotNull(evicted);
+
+    // another metric gets the evicted buffer, the evicted values are not affected
+    TimelineMetric other = createTimelineMetricSingleValue(DEFAULT_START_TIME + 1);
+    other.setMetricName("other");
+    timelineMetricsCache.putTimelineMetric(other);
+
+    assertEquals(2, evicted.getMetricValues().size());
+    assertEquals(DEFAULT_START_TIME, (long) evicted.getMetricValues().firstKey());
+    assertEquals(DEFAULT_START_TIME + maxEvictionTime, (long) evicted.getMetricValues().lastKey());
+
+    List<TimelineMetric> remaining = timelineMetricsCache.getAllMetrics().getMetrics();
+    assertEquals(1, remaining.size());
+    assertEquals("other", remaining.get(0).getMetricName());
+    assertEquals(1, remaining.get(0).getMetricValues().size());
+  }
+
+  @Test
+  public void testConcurrentPuts() throws Exception {
+    final int threads = 4;
+    final int metricsPerThread = 50;
+    final int putsPerMetric = 100;
+    final TimelineMetricsCache cache = new TimelineMetricsCache(
+      TimelineMetricsCache.MAX_RECS_PER_NAME_DEFAULT, TimelineMetricsCache.MAX_EVICTION_TIME_MILLIS);
+
+    ExecutorService executorService = Executors.newFixedThreadPool(threads);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      final int thread = t;
+      futures.add(executorService.submit(new Callable<Void>() {
+        @Override
+        public Void call() {
+          for (int i = 0; i < putsPerMetric; i++) {
+            for (int m = 0; m < metricsPerThread; m++) {
+              TimelineMetric metric = createTimelineMetricSingleValue(DEFAULT_START_TIME + i);
+              metric.setMetricName("metric" + thread + "_" + m);
+              cache.putTimelineMetric(metric, true);
+            }
+          }
+          return null;
+        }
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executorService.shutdown();
+
+    TimelineMetrics allMetrics = cache.getAllMetrics();
+    assertEquals(threads * metricsPerThread, allMetrics.getMetrics().size());
+    for (TimelineMetric metric : allMetrics.getMetrics()) {
+      assertEquals(putsPerMetric, metric.getMetricValues().size());
+    }
+  }
+
   private TimelineMetric createTimelineMetricSingleValue(final long startTime) {
     TreeMap<Long, Double> values = new TreeMap<Long, Double>();
     values.put(startTime, 0.0);
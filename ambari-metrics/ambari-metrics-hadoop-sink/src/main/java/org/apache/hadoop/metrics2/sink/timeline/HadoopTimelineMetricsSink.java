@@ -78,6 +78,8 @@ public class HadoopTimelineMetricsSink extends AbstractTimelineMetricsSink imple
   private int hostInMemoryAggregationPort;
   private boolean hostInMemoryAggregationEnabled;
   private String hostInMemoryAggregationProtocol;
+  private boolean compressionEnabled;
+  private int maxPointsPerPost;
 
   @Override
   public void init(SubsetConfiguration conf) {
@@ -136,6 +138,12 @@ public class HadoopTimelineMetricsSink extends AbstractTimelineMetricsSink imple
 
 
     timeoutSeconds = conf.getInt(METRICS_POST_TIMEOUT_SECONDS, DEFAULT_POST_TIMEOUT_SECONDS);
+    compressionEnabled = conf.getBoolean(COMPRESSION_ENABLED_PROPERTY, false);
+    maxPointsPerPost = conf.getInt(MAX_POINTS_PER_POST_PROPERTY, DEFAULT_MAX_POINTS_PER_POST);
+    String spillDir = conf.getString(SPILL_DIR_PROPERTY, null);
+    if (StringUtils.isNotEmpty(spillDir)) {
+      initSpillBuffer(spillDir.trim(), conf.getLong(SPILL_MAX_SIZE_BYTES_PROPERTY, DEFAULT_SPILL_MAX_SIZE_BYTES));
+    }
 
     int maxRowCacheSize = conf.getInt(MAX_METRIC_ROW_CACHE_SIZE,
       TimelineMetricsCache.MAX_RECS_PER_NAME_DEFAULT);
@@ -268,6 +276,16 @@ public class HadoopTimelineMetricsSink extends AbstractTimelineMetricsSink imple
     return hostInMemoryAggregationProtocol;
   }
 
+  @Override
+  protected boolean isCompressionEnabled() {
+    return compressionEnabled;
+  }
+
+  @Override
+  protected int getMaxPointsPerPost() {
+    return maxPointsPerPost;
+  }
+
   @Override
   public void putMetrics(MetricsRecord record) {
     try {
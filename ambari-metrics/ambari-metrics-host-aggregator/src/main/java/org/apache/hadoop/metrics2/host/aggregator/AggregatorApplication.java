@@ -17,6 +17,7 @@
  */
 package org.apache.hadoop.metrics2.host.aggregator;
 
+import com.sun.jersey.api.container.filter.GZIPContentEncodingFilter;
 import com.sun.jersey.api.container.httpserver.HttpServerFactory;
 import com.sun.jersey.api.core.PackagesResourceConfig;
 import com.sun.jersey.api.core.ResourceConfig;
@@ -85,7 +86,13 @@ public class AggregatorApplication {
       skipAggregationPatterns.addAll(getJavaMetricPatterns(skipAggregationMetricPatternsString));
     }
 
-    this.timelineMetricsHolder = TimelineMetricsHolder.getInstance(rawPublishingInterval, aggregationInterval, skipAggregationPatterns);
+    // Bound the memory used for metrics received between publishing.
+    int maxAggregatedMetrics = configuration.getInt("timeline.metrics.host.inmemory.aggregation.max.metrics",
+      TimelineMetricsHolder.DEFAULT_MAX_AGGREGATED_METRICS);
+    long maxRawMetricValues = configuration.getLong("timeline.metrics.host.inmemory.aggregation.max.raw.values",
+      TimelineMetricsHolder.DEFAULT_MAX_RAW_METRIC_VALUES);
+
+    this.timelineMetricsHolder = TimelineMetricsHolder.getInstance(skipAggregationPatterns, maxAggregatedMetrics, maxRawMetricValues);
     try {
       this.httpServer = createHttpServer();
     } catch (Exception e) {
@@ -148,6 +155,8 @@ public class AggregatorApplication {
     ResourceConfig resourceConfig = new PackagesResourceConfig("org.apache.hadoop.metrics2.host.aggregator");
     HashMap<String, Object> params = new HashMap();
     params.put("com.sun.jersey.api.json.POJOMappingFeature", "true");
+    // Sinks may post gzip compressed metrics
+    params.put(ResourceConfig.PROPERTY_CONTAINER_REQUEST_FILTERS, GZIPContentEncodingFilter.class.getName());
     resourceConfig.setPropertiesAndFeatures(params);
     HttpServer server = HttpServerFactory.create(getURI(), resourceConfig);
 
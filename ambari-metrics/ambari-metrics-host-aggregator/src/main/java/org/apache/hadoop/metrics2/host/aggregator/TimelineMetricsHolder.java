@@ -17,9 +17,11 @@
  */
 package org.apache.hadoop.metrics2.host.aggregator;
 
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.metrics2.sink.timeline.MetricHostAggregate;
 import org.apache.hadoop.metrics2.sink.timeline.TimelineMetric;
+import org.apache.hadoop.metrics2.sink.timeline.TimelineMetricWithAggregatedValues;
 import org.apache.hadoop.metrics2.sink.timeline.TimelineMetrics;
 
 import java.util.ArrayList;
@@ -28,96 +30,242 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
 
 /**
- * Singleton class with 2 guava caches for raw and aggregated metrics storing
+ * Singleton class holding the metrics received since the last raw and aggregated publishing.
+ * <p/>
+ * Metrics for aggregated publishing are reduced to a running min/max/sum/count per metric name as they
+ * are received. Metrics for raw publishing are kept as received. Both are held in buffers which are swapped
+ * for empty ones on extraction, so writers are never blocked by publishing. The number of aggregated metrics
+ * and raw metric values held are capped, values received beyond the caps are dropped and counted.
  */
 public class TimelineMetricsHolder {
-  private static final int DEFAULT_RAW_CACHE_EXPIRE_TIME = 60;
-  private static final int DEFAULT_AGGREGATION_CACHE_EXPIRE_TIME = 300;
-  private Cache<String, TimelineMetrics> aggregationMetricsCache;
-  private Cache<String, TimelineMetrics> rawMetricsCache;
+  private static final Log LOG = LogFactory.getLog(TimelineMetricsHolder.class);
+  public static final int DEFAULT_MAX_AGGREGATED_METRICS = 100000;
+  // Each raw value is a boxed TreeMap entry of roughly 80 bytes, the aggregator runs with -Xmx256m by default
+  public static final long DEFAULT_MAX_RAW_METRIC_VALUES = 500000;
   private static TimelineMetricsHolder instance = null;
-  //to ensure no metric values are expired
-  private static int EXPIRE_DELAY = 30;
-  ReadWriteLock aggregationCacheLock = new ReentrantReadWriteLock();
-  ReadWriteLock rawCacheLock = new ReentrantReadWriteLock();
-  private List<String> skipAggregationPatternStrings = new ArrayList<>();
+  private final List<Pattern> skipAggregationPatterns = new ArrayList<>();
+  private final int maxAggregatedMetrics;
+  private final long maxRawMetricValues;
+  private final AtomicReference<AggregationBuffer> aggregationBuffer = new AtomicReference<>(new AggregationBuffer());
+  private final AtomicReference<RawBuffer> rawBuffer = new AtomicReference<>(new RawBuffer());
+  private final AtomicLong droppedAggregationMetricValues = new AtomicLong(0);
+  private final AtomicLong droppedRawMetricValues = new AtomicLong(0);
+  // Makes raw buffer keys unique for metrics posted within the same millisecond
+  private final AtomicLong rawMetricsSequence = new AtomicLong(0);
 
-  private TimelineMetricsHolder(int rawCacheExpireTime, int aggregationCacheExpireTime, List<String> skipAggregationPatternStrings) {
-    this.rawMetricsCache = CacheBuilder.newBuilder().expireAfterWrite(rawCacheExpireTime + EXPIRE_DELAY, TimeUnit.SECONDS).build();
-    this.aggregationMetricsCache = CacheBuilder.newBuilder().expireAfterWrite(aggregationCacheExpireTime + EXPIRE_DELAY, TimeUnit.SECONDS).build();
-    this.skipAggregationPatternStrings = skipAggregationPatternStrings;
+  private TimelineMetricsHolder(List<String> skipAggregationPatternStrings, int maxAggregatedMetrics, long maxRawMetricValues) {
+    for (String pattern : skipAggregationPatternStrings) {
+      skipAggregationPatterns.add(Pattern.compile(pattern));
+    }
+    this.maxAggregatedMetrics = maxAggregatedMetrics;
+    this.maxRawMetricValues = maxRawMetricValues;
   }
 
-  public static TimelineMetricsHolder getInstance(int rawCacheExpireTime, int aggregationCacheExpireTime, List<String> skipAggregationPatternStrings) {
+  public static TimelineMetricsHolder getInstance(List<String> skipAggregationPatternStrings, int maxAggregatedMetrics,
+                                                  long maxRawMetricValues) {
     if (instance == null) {
-      instance = new TimelineMetricsHolder(rawCacheExpireTime, aggregationCacheExpireTime, skipAggregationPatternStrings);
+      instance = new TimelineMetricsHolder(skipAggregationPatternStrings, maxAggregatedMetrics, maxRawMetricValues);
     }
     return instance;
   }
 
   /**
-   * Uses default expiration time for caches initialization if they are not initialized yet.
+   * Uses default limits for initialization if the holder is not initialized yet.
    * @return
    */
   public static TimelineMetricsHolder getInstance() {
-    return getInstance(DEFAULT_RAW_CACHE_EXPIRE_TIME, DEFAULT_AGGREGATION_CACHE_EXPIRE_TIME, Collections.emptyList());
+    return getInstance(Collections.<String>emptyList(), DEFAULT_MAX_AGGREGATED_METRICS, DEFAULT_MAX_RAW_METRIC_VALUES);
   }
 
   public void putMetricsForAggregationPublishing(TimelineMetrics timelineMetrics) {
-
-    //Remove metrics that need to be skipped during caching stage itself.
-    for (Iterator<TimelineMetric> iterator = timelineMetrics.getMetrics().iterator(); iterator.hasNext();) {
-      TimelineMetric timelineMetric = iterator.next();
-      for (String pattern : skipAggregationPatternStrings) {
-        if (timelineMetric.getMetricName().matches(pattern)) {
+    AggregationBuffer buffer = acquire(aggregationBuffer);
+    try {
+      for (Iterator<TimelineMetric> iterator = timelineMetrics.getMetrics().iterator(); iterator.hasNext();) {
+        TimelineMetric timelineMetric = iterator.next();
+        if (timelineMetric.getMetricName() == null) {
+          continue;
+        }
+        //Remove metrics that need to be skipped during caching stage itself.
+        if (isSkipAggregation(timelineMetric)) {
           iterator.remove();
+          continue;
         }
+        RunningAggregate aggregate = buffer.aggregates.get(timelineMetric.getMetricName());
+        if (aggregate == null) {
+          if (buffer.aggregates.size() >= maxAggregatedMetrics) {
+            buffer.dropped.addAndGet(timelineMetric.getMetricValues().size());
+            continue;
+          }
+          RunningAggregate newAggregate = new RunningAggregate(timelineMetric);
+          aggregate = buffer.aggregates.putIfAbsent(timelineMetric.getMetricName(), newAggregate);
+          if (aggregate == null) {
+            aggregate = newAggregate;
+          }
+        }
+        aggregate.add(timelineMetric.getMetricValues().values());
       }
+    } finally {
+      buffer.writers.decrementAndGet();
     }
-    aggregationCacheLock.writeLock().lock();
-    aggregationMetricsCache.put(calculateCacheKey(timelineMetrics), timelineMetrics);
-    aggregationCacheLock.writeLock().unlock();
+  }
+
+  private boolean isSkipAggregation(TimelineMetric timelineMetric) {
+    for (Pattern pattern : skipAggregationPatterns) {
+      if (pattern.matcher(timelineMetric.getMetricName()).matches()) {
+        return true;
+      }
+    }
+    return false;
   }
 
   private String calculateCacheKey(TimelineMetrics timelineMetrics) {
     List<TimelineMetric> metrics = timelineMetrics.getMetrics();
+    String key = System.currentTimeMillis() + "_" + rawMetricsSequence.incrementAndGet();
     if (metrics.size() > 0) {
-      return metrics.get(0).getAppId() + System.currentTimeMillis();
+      return metrics.get(0).getAppId() + key;
     }
-    return String.valueOf(System.currentTimeMillis());
+    return key;
   }
 
-  public Map<String, TimelineMetrics> extractMetricsForAggregationPublishing() {
-    return extractMetricsFromCacheWithLock(aggregationMetricsCache, aggregationCacheLock);
+  /**
+   * Returns the aggregates of the metrics received since the last extraction, by metric name.
+   * @return
+   */
+  public Map<String, TimelineMetricWithAggregatedValues> extractMetricsForAggregationPublishing() {
+    AggregationBuffer buffer = swap(aggregationBuffer, new AggregationBuffer());
+    logDropped("aggregated", buffer.dropped.get(), droppedAggregationMetricValues);
+
+    Map<String, TimelineMetricWithAggregatedValues> metricsMap = new TreeMap<>();
+    for (Map.Entry<String, RunningAggregate> entry : buffer.aggregates.entrySet()) {
+      metricsMap.put(entry.getKey(), entry.getValue().toAggregatedValues());
+    }
+    return metricsMap;
   }
 
   public void putMetricsForRawPublishing(TimelineMetrics metrics) {
-    rawCacheLock.writeLock().lock();
-    rawMetricsCache.put(calculateCacheKey(metrics), metrics);
-    rawCacheLock.writeLock().unlock();
+    int metricValues = 0;
+    for (TimelineMetric timelineMetric : metrics.getMetrics()) {
+      metricValues += timelineMetric.getMetricValues().size();
+    }
+
+    RawBuffer buffer = acquire(rawBuffer);
+    try {
+      if (buffer.metricValues.addAndGet(metricValues) > maxRawMetricValues) {
+        buffer.metricValues.addAndGet(-metricValues);
+        buffer.dropped.addAndGet(metricValues);
+        return;
+      }
+      buffer.metrics.put(calculateCacheKey(metrics), metrics);
+    } finally {
+      buffer.writers.decrementAndGet();
+    }
   }
 
+  /**
+   * Returns the metrics received since the last extraction.
+   * @return
+   */
   public Map<String, TimelineMetrics> extractMetricsForRawPublishing() {
-    return extractMetricsFromCacheWithLock(rawMetricsCache, rawCacheLock);
+    RawBuffer buffer = swap(rawBuffer, new RawBuffer());
+    logDropped("raw", buffer.dropped.get(), droppedRawMetricValues);
+    return new TreeMap<>(buffer.metrics);
   }
 
   /**
-   * Returns values from cache and clears the cache
-   * @param cache
-   * @param lock
-   * @return
+   * @return the number of metric values dropped from aggregation since startup because the aggregated metrics cap was reached
    */
-  private Map<String, TimelineMetrics> extractMetricsFromCacheWithLock(Cache<String, TimelineMetrics> cache, ReadWriteLock lock) {
-    lock.writeLock().lock();
-    Map<String, TimelineMetrics> metricsMap = new TreeMap<>(cache.asMap());
-    cache.invalidateAll();
-    lock.writeLock().unlock();
-    return metricsMap;
+  public long getDroppedAggregationMetricValues() {
+    return droppedAggregationMetricValues.get() + aggregationBuffer.get().dropped.get();
+  }
+
+  /**
+   * @return the number of metric values dropped from raw publishing since startup because the raw metric values cap was reached
+   */
+  public long getDroppedRawMetricValues() {
+    return droppedRawMetricValues.get() + rawBuffer.get().dropped.get();
+  }
+
+  private void logDropped(String type, long dropped, AtomicLong totalDropped) {
+    if (dropped > 0) {
+      LOG.warn(String.format("Dropped %d %s metric values since the last publishing because the memory cap was reached, " +
+        "%d dropped since startup.", dropped, type, totalDropped.addAndGet(dropped)));
+    }
+  }
+
+  /**
+   * Registers a writer with the current buffer. The buffer is not extracted until the writer decrements
+   * the writers count of the buffer.
+   */
+  private static <T extends MetricsBuffer> T acquire(AtomicReference<T> bufferReference) {
+    while (true) {
+      T buffer = bufferReference.get();
+      buffer.writers.incrementAndGet();
+      if (bufferReference.get() == buffer) {
+        return buffer;
+      }
+      // swapped in the meantime, retry with the new buffer
+      buffer.writers.decrementAndGet();
+    }
+  }
+
+  /**
+   * Replaces the current buffer with the given one, and returns the replaced buffer once all of its writers are done.
+   */
+  private static <T extends MetricsBuffer> T swap(AtomicReference<T> bufferReference, T newBuffer) {
+    T buffer = bufferReference.getAndSet(newBuffer);
+    while (buffer.writers.get() > 0) {
+      Thread.yield();
+    }
+    return buffer;
+  }
+
+  private static class MetricsBuffer {
+    final AtomicInteger writers = new AtomicInteger(0);
+    final AtomicLong dropped = new AtomicLong(0);
   }
 
+  private static class AggregationBuffer extends MetricsBuffer {
+    final ConcurrentHashMap<String, RunningAggregate> aggregates = new ConcurrentHashMap<>();
+  }
+
+  private static class RawBuffer extends MetricsBuffer {
+    final ConcurrentHashMap<String, TimelineMetrics> metrics = new ConcurrentHashMap<>();
+    final AtomicLong metricValues = new AtomicLong(0);
+  }
+
+  /**
+   * Min, max, sum and count of the values received for a metric.
+   */
+  private static class RunningAggregate {
+    private final TimelineMetric timelineMetric;
+    private double sum = 0;
+    private double max = Integer.MIN_VALUE;
+    private double min = Integer.MAX_VALUE;
+    private int count = 0;
+
+    RunningAggregate(TimelineMetric metric) {
+      timelineMetric = new TimelineMetric(metric);
+      timelineMetric.setMetricValues(new TreeMap<Long, Double>());
+    }
+
+    synchronized void add(Iterable<Double> values) {
+      for (Double value : values) {
+        sum += value;
+        max = Math.max(max, value);
+        min = Math.min(min, value);
+        count++;
+      }
+    }
+
+    synchronized TimelineMetricWithAggregatedValues toAggregatedValues() {
+      return new TimelineMetricWithAggregatedValues(timelineMetric, new MetricHostAggregate(sum, count, 0d, max, min));
+    }
+  }
 }
@@ -27,8 +27,9 @@ import java.util.Map;
 
 /**
  * Abstract class that runs a thread that publishes metrics data to AMS collector in specified intervals.
+ * @param <T> type of the metrics taken from the {@link TimelineMetricsHolder}
  */
-public abstract class AbstractMetricPublisher extends AbstractTimelineMetricsSink implements Runnable {
+public abstract class AbstractMetricPublisher<T> extends AbstractTimelineMetricsSink implements Runnable {
 
     private static final String AMS_SITE_SSL_TRUSTSTORE_PATH_PROPERTY = "ssl.server.truststore.location";
     private static final String AMS_SITE_SSL_TRUSTSTORE_TYPE_PROPERTY = "ssl.server.truststore.type";
@@ -100,7 +101,7 @@ public abstract class AbstractMetricPublisher extends AbstractTimelineMetricsSin
      * @param metricsFromCache
      * @throws Exception
      */
-    protected void processAndPublishMetrics(Map<String, TimelineMetrics> metricsFromCache) throws Exception {
+    protected void processAndPublishMetrics(Map<String, T> metricsFromCache) throws Exception {
         if (metricsFromCache.size()==0) return;
 
         LOG.info(String.format("Preparing %s timeline metrics for publishing", metricsFromCache.size()));
@@ -111,14 +112,14 @@ public abstract class AbstractMetricPublisher extends AbstractTimelineMetricsSin
      * Returns metrics map. Source is based on implementation.
      * @return
      */
-    protected abstract Map<String,TimelineMetrics> getMetricsFromCache();
+    protected abstract Map<String, T> getMetricsFromCache();
 
     /**
      * Processes given metrics (aggregates or merges them) and converts them into json string that will be send to collector
      * @param metricValues
      * @return
      */
-    protected abstract String processMetrics(Map<String, TimelineMetrics> metricValues);
+    protected abstract String processMetrics(Map<String, T> metricValues);
 
     protected abstract String getPostUrl();
 
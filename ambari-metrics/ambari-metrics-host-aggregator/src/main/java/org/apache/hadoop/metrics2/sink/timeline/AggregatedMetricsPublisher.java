@@ -24,16 +24,14 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.metrics2.host.aggregator.TimelineMetricsHolder;
 
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeMap;
 
 /**
  * Thread that aggregates and publishes metrics to collector on specified interval.
  */
-public class AggregatedMetricsPublisher extends AbstractMetricPublisher {
+public class AggregatedMetricsPublisher extends AbstractMetricPublisher<TimelineMetricWithAggregatedValues> {
     private static String AGGREGATED_POST_PREFIX = "/aggregated";
     private Log LOG;
 
@@ -47,44 +45,19 @@ public class AggregatedMetricsPublisher extends AbstractMetricPublisher {
      * @return
      */
     @Override
-    protected Map<String, TimelineMetrics> getMetricsFromCache() {
+    protected Map<String, TimelineMetricWithAggregatedValues> getMetricsFromCache() {
         return timelineMetricsHolder.extractMetricsForAggregationPublishing();
     }
 
     /**
-     * Aggregates given metrics and converts them into json string that will be send to collector
-     * @param metricForAggregationValues
+     * Converts given metric aggregates into json string that will be send to collector.
+     * Values are aggregated by @TimelineMetricsHolder as they are received.
+     * @param metricAggregates
      * @return
      */
     @Override
-    protected String processMetrics(Map<String, TimelineMetrics> metricForAggregationValues) {
-        HashMap<String, TimelineMetrics> nameToMetricMap = new HashMap<>();
-        for (TimelineMetrics timelineMetrics : metricForAggregationValues.values()) {
-            for (TimelineMetric timelineMetric : timelineMetrics.getMetrics()) {
-                if (!nameToMetricMap.containsKey(timelineMetric.getMetricName())) {
-                    nameToMetricMap.put(timelineMetric.getMetricName(), new TimelineMetrics());
-                }
-                nameToMetricMap.get(timelineMetric.getMetricName()).addOrMergeTimelineMetric(timelineMetric);
-            }
-        }
-        Set<TimelineMetricWithAggregatedValues> metricAggregateMap = new HashSet<>();
-        for (TimelineMetrics metrics : nameToMetricMap.values()) {
-            double sum = 0;
-            double max = Integer.MIN_VALUE;
-            double min = Integer.MAX_VALUE;
-            int count = 0;
-            for (TimelineMetric metric : metrics.getMetrics()) {
-                for (Double value : metric.getMetricValues().values()) {
-                    sum+=value;
-                    max = Math.max(max, value);
-                    min = Math.min(min, value);
-                    count++;
-                }
-            }
-            TimelineMetric tmpMetric = new TimelineMetric(metrics.getMetrics().get(0));
-            tmpMetric.setMetricValues(new TreeMap<Long, Double>());
-            metricAggregateMap.add(new TimelineMetricWithAggregatedValues(tmpMetric, new MetricHostAggregate(sum, count, 0d, max, min)));
-        }
+    protected String processMetrics(Map<String, TimelineMetricWithAggregatedValues> metricAggregates) {
+        Set<TimelineMetricWithAggregatedValues> metricAggregateMap = new HashSet<>(metricAggregates.values());
         String json = null;
         try {
             json = mapper.writeValueAsString(new AggregationResult(metricAggregateMap, System.currentTimeMillis()));
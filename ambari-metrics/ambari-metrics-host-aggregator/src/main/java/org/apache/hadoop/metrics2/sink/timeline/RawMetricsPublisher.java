@@ -25,7 +25,7 @@ import org.apache.hadoop.metrics2.host.aggregator.TimelineMetricsHolder;
 
 import java.util.Map;
 
-public class RawMetricsPublisher extends AbstractMetricPublisher {
+public class RawMetricsPublisher extends AbstractMetricPublisher<TimelineMetrics> {
     private final Log LOG;
 
     public RawMetricsPublisher(TimelineMetricsHolder timelineMetricsHolder, Configuration configuration, int interval) {
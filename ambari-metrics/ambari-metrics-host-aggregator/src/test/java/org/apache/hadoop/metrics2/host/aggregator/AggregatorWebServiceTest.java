@@ -27,6 +27,7 @@ import com.sun.jersey.test.framework.WebAppDescriptor;
 import com.sun.jersey.test.framework.spi.container.TestContainerFactory;
 import com.sun.jersey.test.framework.spi.container.grizzly2.GrizzlyTestContainerFactory;
 import junit.framework.Assert;
+import org.apache.hadoop.metrics2.sink.timeline.TimelineMetricWithAggregatedValues;
 import org.apache.hadoop.metrics2.sink.timeline.TimelineMetrics;
 import org.codehaus.jackson.jaxrs.JacksonJaxbJsonProvider;
 import org.junit.Test;
@@ -90,13 +91,13 @@ public class AggregatorWebServiceTest extends JerseyTest {
         assertEquals(200, response.getStatus());
         assertEquals(MediaType.TEXT_PLAIN, response.getType().toString());
 
-        Map<String, TimelineMetrics> aggregationMap =  timelineMetricsHolder.extractMetricsForAggregationPublishing();
+        Map<String, TimelineMetricWithAggregatedValues> aggregationMap =  timelineMetricsHolder.extractMetricsForAggregationPublishing();
         Map<String, TimelineMetrics> rawMap =  timelineMetricsHolder.extractMetricsForRawPublishing();
 
         Assert.assertEquals(1, aggregationMap.size());
         Assert.assertEquals(1, rawMap.size());
 
-        Collection<TimelineMetrics> aggregationCollection = aggregationMap.values();
+        Collection<TimelineMetricWithAggregatedValues> aggregationCollection = aggregationMap.values();
         Collection<TimelineMetrics> rawCollection = rawMap.values();
 
         Collection<String> aggregationCollectionKeys = aggregationMap.keySet();
@@ -113,14 +114,13 @@ public class AggregatorWebServiceTest extends JerseyTest {
         Assert.assertEquals(1, aggregationCollection.size());
         Assert.assertEquals(1, rawCollection.size());
 
-        TimelineMetrics aggregationTimelineMetrics = (TimelineMetrics) aggregationCollection.toArray()[0];
+        TimelineMetricWithAggregatedValues aggregatedValues = (TimelineMetricWithAggregatedValues) aggregationCollection.toArray()[0];
         TimelineMetrics rawTimelineMetrics = (TimelineMetrics) rawCollection.toArray()[0];
 
 
-        Assert.assertEquals(1, aggregationTimelineMetrics.getMetrics().size());
         Assert.assertEquals(1, rawTimelineMetrics.getMetrics().size());
 
-        Assert.assertEquals("appid", aggregationTimelineMetrics.getMetrics().get(0).getAppId());
+        Assert.assertEquals("appid", aggregatedValues.getTimelineMetric().getAppId());
         Assert.assertEquals("appid", rawTimelineMetrics.getMetrics().get(0).getAppId());
 
         aggregationMap =  timelineMetricsHolder.extractMetricsForAggregationPublishing();
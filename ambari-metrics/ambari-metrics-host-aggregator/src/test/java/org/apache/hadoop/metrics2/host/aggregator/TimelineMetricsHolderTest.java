@@ -18,7 +18,9 @@
 package org.apache.hadoop.metrics2.host.aggregator;
 
 import junit.framework.Assert;
+import org.apache.hadoop.metrics2.sink.timeline.MetricHostAggregate;
 import org.apache.hadoop.metrics2.sink.timeline.TimelineMetric;
+import org.apache.hadoop.metrics2.sink.timeline.TimelineMetricWithAggregatedValues;
 import org.apache.hadoop.metrics2.sink.timeline.TimelineMetrics;
 import org.junit.Test;
 
@@ -26,6 +28,9 @@ import java.lang.reflect.Field;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 
 public class TimelineMetricsHolderTest {
@@ -47,23 +52,23 @@ public class TimelineMetricsHolderTest {
     @Test
     public void testGetInstanceWithParameters() throws Exception {
         clearHolderSingleton();
-        Assert.assertNotNull(TimelineMetricsHolder.getInstance(1,2, Collections.EMPTY_LIST));
+        Assert.assertNotNull(TimelineMetricsHolder.getInstance(Collections.<String>emptyList(), 1, 2));
     }
 
     @Test
     public void testCache() throws Exception {
         clearHolderSingleton();
-        timelineMetricsHolderInstance = TimelineMetricsHolder.getInstance(4,4, Collections.EMPTY_LIST);
+        timelineMetricsHolderInstance = TimelineMetricsHolder.getInstance();
         timelineMetricsHolderInstance.putMetricsForAggregationPublishing(getTimelineMetricsWithAppID("aggr"));
         timelineMetricsHolderInstance.putMetricsForRawPublishing(getTimelineMetricsWithAppID("raw"));
 
-        Map<String, TimelineMetrics> aggregationMap =  timelineMetricsHolderInstance.extractMetricsForAggregationPublishing();
+        Map<String, TimelineMetricWithAggregatedValues> aggregationMap =  timelineMetricsHolderInstance.extractMetricsForAggregationPublishing();
         Map<String, TimelineMetrics> rawMap =  timelineMetricsHolderInstance.extractMetricsForRawPublishing();
 
         Assert.assertEquals(1, aggregationMap.size());
         Assert.assertEquals(1, rawMap.size());
 
-        Collection<TimelineMetrics> aggregationCollection = aggregationMap.values();
+        Collection<TimelineMetricWithAggregatedValues> aggregationCollection = aggregationMap.values();
         Collection<TimelineMetrics> rawCollection = rawMap.values();
 
         Collection<String> aggregationCollectionKeys = aggregationMap.keySet();
@@ -80,14 +85,12 @@ public class TimelineMetricsHolderTest {
         Assert.assertEquals(1, aggregationCollection.size());
         Assert.assertEquals(1, rawCollection.size());
 
-        TimelineMetrics aggregationTimelineMetrics = (TimelineMetrics) aggregationCollection.toArray()[0];
+        TimelineMetricWithAggregatedValues aggregatedValues = (TimelineMetricWithAggregatedValues) aggregationCollection.toArray()[0];
         TimelineMetrics rawTimelineMetrics = (TimelineMetrics) rawCollection.toArray()[0];
 
-
-        Assert.assertEquals(1, aggregationTimelineMetrics.getMetrics().size());
         Assert.assertEquals(1, rawTimelineMetrics.getMetrics().size());
 
-        Assert.assertEquals("aggr", aggregationTimelineMetrics.getMetrics().get(0).getAppId());
+        Assert.assertEquals("aggr", aggregatedValues.getTimelineMetric().getAppId());
         Assert.assertEquals("raw", rawTimelineMetrics.getMetrics().get(0).getAppId());
 
         aggregationMap =  timelineMetricsHolderInstance.extractMetricsForAggregationPublishing();
@@ -98,11 +101,130 @@ public class TimelineMetricsHolderTest {
         Assert.assertEquals(0, rawMap.size());
     }
 
+    @Test
+    public void testAggregatesAreUpdatedOnPut() throws Exception {
+        clearHolderSingleton();
+        timelineMetricsHolderInstance = TimelineMetricsHolder.getInstance(Collections.singletonList("transient.*"), 10, 10);
+        timelineMetricsHolderInstance.putMetricsForAggregationPublishing(getTimelineMetrics("metric1", 1d, 5d));
+        timelineMetricsHolderInstance.putMetricsForAggregationPublishing(getTimelineMetrics("metric1", 3d));
+        timelineMetricsHolderInstance.putMetricsForAggregationPublishing(getTimelineMetrics("transient.metric", 7d));
+
+        Map<String, TimelineMetricWithAggregatedValues> aggregationMap = timelineMetricsHolderInstance.extractMetricsForAggregationPublishing();
+        Assert.assertEquals(1, aggregationMap.size());
+        MetricHostAggregate aggregate = aggregationMap.get("metric1").getMetricAggregate();
+        Assert.assertEquals(9d, aggregate.getSum());
+        Assert.assertEquals(5d, aggregate.getMax());
+        Assert.assertEquals(1d, aggregate.getMin());
+        Assert.assertEquals(3, aggregate.getNumberOfSamples());
+        Assert.assertTrue(aggregationMap.get("metric1").getTimelineMetric().getMetricValues().isEmpty());
+    }
+
+    @Test
+    public void testSkippedMetricsAreNotPublishedRaw() throws Exception {
+        clearHolderSingleton();
+        timelineMetricsHolderInstance = TimelineMetricsHolder.getInstance(Collections.singletonList("transient.*"), 10, 10);
+        TimelineMetrics metrics = getTimelineMetrics("metric1", 1d);
+        metrics.getMetrics().addAll(getTimelineMetrics("transient.metric", 7d).getMetrics());
+        timelineMetricsHolderInstance.putMetricsForAggregationPublishing(metrics);
+        timelineMetricsHolderInstance.putMetricsForRawPublishing(metrics);
+
+        Map<String, TimelineMetrics> rawMap = timelineMetricsHolderInstance.extractMetricsForRawPublishing();
+        Assert.assertEquals(1, rawMap.size());
+        TimelineMetrics rawMetrics = rawMap.values().iterator().next();
+        Assert.assertEquals(1, rawMetrics.getMetrics().size());
+        Assert.assertEquals("metric1", rawMetrics.getMetrics().get(0).getMetricName());
+    }
+
+    @Test
+    public void testRawMetricsPostedTogetherAreAllKept() throws Exception {
+        clearHolderSingleton();
+        timelineMetricsHolderInstance = TimelineMetricsHolder.getInstance();
+        for (int i = 0; i < 100; i++) {
+            timelineMetricsHolderInstance.putMetricsForRawPublishing(getTimelineMetrics("metric" + i, 1d));
+        }
+        Assert.assertEquals(100, timelineMetricsHolderInstance.extractMetricsForRawPublishing().size());
+    }
+
+    @Test
+    public void testMetricsBeyondCapsAreDropped() throws Exception {
+        clearHolderSingleton();
+        timelineMetricsHolderInstance = TimelineMetricsHolder.getInstance(Collections.<String>emptyList(), 2, 3);
+        timelineMetricsHolderInstance.putMetricsForAggregationPublishing(getTimelineMetrics("metric1", 1d));
+        timelineMetricsHolderInstance.putMetricsForAggregationPublishing(getTimelineMetrics("metric2", 1d));
+        timelineMetricsHolderInstance.putMetricsForAggregationPublishing(getTimelineMetrics("metric3", 1d, 2d));
+        // existing metrics are still aggregated
+        timelineMetricsHolderInstance.putMetricsForAggregationPublishing(getTimelineMetrics("metric1", 2d));
+
+        timelineMetricsHolderInstance.putMetricsForRawPublishing(getTimelineMetrics("metric1", 1d, 2d));
+        timelineMetricsHolderInstance.putMetricsForRawPublishing(getTimelineMetrics("metric2", 1d, 2d));
+
+        Assert.assertEquals(2, timelineMetricsHolderInstance.getDroppedAggregationMetricValues());
+        Assert.assertEquals(2, timelineMetricsHolderInstance.getDroppedRawMetricValues());
+
+        Map<String, TimelineMetricWithAggregatedValues> aggregationMap = timelineMetricsHolderInstance.extractMetricsForAggregationPublishing();
+        Assert.assertEquals(2, aggregationMap.size());
+        Assert.assertEquals(2, aggregationMap.get("metric1").getMetricAggregate().getNumberOfSamples());
+        Assert.assertEquals(1, timelineMetricsHolderInstance.extractMetricsForRawPublishing().size());
+
+        // caps apply per publishing interval
+        timelineMetricsHolderInstance.putMetricsForAggregationPublishing(getTimelineMetrics("metric3", 1d));
+        timelineMetricsHolderInstance.putMetricsForRawPublishing(getTimelineMetrics("metric2", 1d, 2d));
+        Assert.assertEquals(1, timelineMetricsHolderInstance.extractMetricsForAggregationPublishing().size());
+        Assert.assertEquals(1, timelineMetricsHolderInstance.extractMetricsForRawPublishing().size());
+        Assert.assertEquals(2, timelineMetricsHolderInstance.getDroppedAggregationMetricValues());
+        Assert.assertEquals(2, timelineMetricsHolderInstance.getDroppedRawMetricValues());
+    }
+
+    @Test
+    public void testNoValuesAreLostWhenExtractingConcurrently() throws Exception {
+        clearHolderSingleton();
+        timelineMetricsHolderInstance = TimelineMetricsHolder.getInstance();
+        final int writerCount = 4;
+        final int putsPerWriter = 5000;
+        final CountDownLatch writersDone = new CountDownLatch(writerCount);
+        for (int i = 0; i < writerCount; i++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < putsPerWriter; j++) {
+                        timelineMetricsHolderInstance.putMetricsForAggregationPublishing(getTimelineMetrics("metric" + (j % 10), 1d));
+                    }
+                    writersDone.countDown();
+                }
+            }).start();
+        }
+
+        long samples = 0;
+        boolean done = false;
+        while (!done) {
+            done = writersDone.await(1, TimeUnit.MILLISECONDS);
+            for (TimelineMetricWithAggregatedValues value : timelineMetricsHolderInstance.extractMetricsForAggregationPublishing().values()) {
+                samples += value.getMetricAggregate().getNumberOfSamples();
+            }
+        }
+        Assert.assertEquals(writerCount * putsPerWriter, samples);
+    }
+
     public static TimelineMetrics getTimelineMetricsWithAppID(String appId) {
         TimelineMetric timelineMetric = new TimelineMetric();
+        timelineMetric.setMetricName(appId + ".metric");
         timelineMetric.setAppId(appId);
         TimelineMetrics timelineMetrics = new TimelineMetrics();
         timelineMetrics.addOrMergeTimelineMetric(timelineMetric);
         return timelineMetrics;
     }
-}
\ No newline at end of file
+
+    private static TimelineMetrics getTimelineMetrics(String metricName, Double... values) {
+        TimelineMetric timelineMetric = new TimelineMetric();
+        timelineMetric.setMetricName(metricName);
+        timelineMetric.setAppId("app");
+        TreeMap<Long, Double> metricValues = new TreeMap<>();
+        for (int i = 0; i < values.length; i++) {
+            metricValues.put((long) i, values[i]);
+        }
+        timelineMetric.setMetricValues(metricValues);
+        TimelineMetrics timelineMetrics = new TimelineMetrics();
+        timelineMetrics.addOrMergeTimelineMetric(timelineMetric);
+        return timelineMetrics;
+    }
+}
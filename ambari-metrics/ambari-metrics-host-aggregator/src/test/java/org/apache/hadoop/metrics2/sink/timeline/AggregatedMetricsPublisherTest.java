@@ -25,8 +25,6 @@ import org.junit.Test;
 import org.apache.hadoop.conf.Configuration;
 
 import java.util.Collection;
-import java.util.Collections;
-import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 
@@ -117,7 +115,7 @@ public class AggregatedMetricsPublisherTest {
 
     @Test
     public void testGetMetricsFromCache() throws InterruptedException {
-        TimelineMetricsHolder timelineMetricsHolder = TimelineMetricsHolder.getInstance(4,4, Collections.EMPTY_LIST);
+        TimelineMetricsHolder timelineMetricsHolder = TimelineMetricsHolder.getInstance();
         timelineMetricsHolder.extractMetricsForAggregationPublishing();
         timelineMetricsHolder.extractMetricsForRawPublishing();
 
@@ -129,16 +127,14 @@ public class AggregatedMetricsPublisherTest {
         AggregatedMetricsPublisher aggregatedMetricsPublisher =
                 new AggregatedMetricsPublisher(TimelineMetricsHolder.getInstance(), configuration, 1);
 
-        Map<String, TimelineMetrics> metricsFromCache = aggregatedMetricsPublisher.getMetricsFromCache();
+        Map<String, TimelineMetricWithAggregatedValues> metricsFromCache = aggregatedMetricsPublisher.getMetricsFromCache();
         Assert.assertNotNull(metricsFromCache);
-        Collection<TimelineMetrics> actualTimelineMetrics = metricsFromCache.values();
-        Assert.assertNotNull(actualTimelineMetrics);
-        Assert.assertEquals(2, actualTimelineMetrics.size());
-
-        for (TimelineMetrics timelineMetrics : actualTimelineMetrics) {
-            List<TimelineMetric> metrics = timelineMetrics.getMetrics();
-            Assert.assertEquals(1, metrics.size());
-            Assert.assertTrue(metrics.get(0).getAppId().contains("aggr"));
+        Collection<TimelineMetricWithAggregatedValues> actualMetricAggregates = metricsFromCache.values();
+        Assert.assertNotNull(actualMetricAggregates);
+        Assert.assertEquals(2, actualMetricAggregates.size());
+
+        for (TimelineMetricWithAggregatedValues metricAggregate : actualMetricAggregates) {
+            Assert.assertTrue(metricAggregate.getTimelineMetric().getAppId().contains("aggr"));
         }
 
     }
@@ -25,7 +25,6 @@ import org.easymock.cglib.core.CollectionUtils;
 import org.junit.Test;
 
 import java.util.Collection;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
@@ -115,7 +114,7 @@ public class RawMetricsPublisherTest {
     @Test
     public void testGetMetricsFromCache() throws InterruptedException {
 
-        TimelineMetricsHolder timelineMetricsHolder = TimelineMetricsHolder.getInstance(4,4, Collections.EMPTY_LIST);
+        TimelineMetricsHolder timelineMetricsHolder = TimelineMetricsHolder.getInstance();
         timelineMetricsHolder.extractMetricsForAggregationPublishing();
         timelineMetricsHolder.extractMetricsForRawPublishing();
 
@@ -81,6 +81,7 @@ public class HBaseTimelineMetricsService extends AbstractService implements Time
   private final TimelineMetricConfiguration configuration;
   private TimelineMetricDistributedCache cache;
   private PhoenixHBaseAccessor hBaseAccessor;
+  private ParallelMetricQueryExecutor queryExecutor;
   private static volatile boolean isInitialized = false;
   private final ScheduledExecutorService watchdogExecutorService = Executors.newSingleThreadScheduledExecutor();
   private final Map<AGGREGATOR_NAME, ScheduledExecutorService> scheduledExecutors = new HashMap<>();
@@ -125,6 +126,10 @@ public class HBaseTimelineMetricsService extends AbstractService implements Time
 
       // Initialize policies before TTL update
       hBaseAccessor.initPoliciesAndTTL();
+
+      queryExecutor = new ParallelMetricQueryExecutor(hBaseAccessor,
+        configuration.getQueryParallelThreads(), configuration.getQueryParallelMinUuids(),
+        TimeUnit.SECONDS.toMillis(configuration.getQueryParallelTimeout()));
       // Start HA service
       // Start the controller
       if (!configuration.isDistributedCollectorModeDisabled()) {
@@ -225,6 +230,12 @@ public class HBaseTimelineMetricsService extends AbstractService implements Time
 
   @Override
   protected void serviceStop() throws Exception {
+    if (queryExecutor != null) {
+      queryExecutor.shutdown();
+    }
+    if (hBaseAccessor != null) {
+      hBaseAccessor.stop();
+    }
     super.serviceStop();
   }
 
@@ -288,11 +299,7 @@ public class HBaseTimelineMetricsService extends AbstractService implements Time
 
     Condition condition = conditionBuilder.build();
 
-    if (CollectionUtils.isEmpty(hostnames)) {
-      metrics = hBaseAccessor.getAggregateMetricRecords(condition, metricFunctions);
-    } else {
-      metrics = hBaseAccessor.getMetricRecords(condition, metricFunctions);
-    }
+    metrics = queryExecutor.getMetricRecords(condition, metricFunctions, CollectionUtils.isEmpty(hostnames));
 
     metrics = postProcessMetrics(metrics);
 
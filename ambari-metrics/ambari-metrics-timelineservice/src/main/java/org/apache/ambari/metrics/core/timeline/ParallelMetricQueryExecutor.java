@@ -0,0 +1,248 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.metrics.core.timeline;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ambari.metrics.core.timeline.aggregators.Function;
+import org.apache.ambari.metrics.core.timeline.query.Condition;
+import org.apache.ambari.metrics.core.timeline.query.DefaultCondition;
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.metrics2.sink.timeline.TimelineMetric;
+import org.apache.hadoop.metrics2.sink.timeline.TimelineMetrics;
+
+import com.google.common.collect.Multimap;
+import com.google.common.primitives.UnsignedBytes;
+
+/**
+ * Reads the metrics of a query with many uuids as several queries, one per uuid range, which
+ * run concurrently on a bounded pool. Ranges never span the split points the tables were created
+ * with, so each query is served by the scans of one region. Queries not done within the timeout
+ * are cancelled and the result is flagged partial.
+ * <p/>
+ * A row limit of the query applies to the whole result, as for a single query: the ranges are
+ * read ungrouped with the limit, and rows are taken in uuid order until the limit is reached.
+ */
+public class ParallelMetricQueryExecutor {
+  private static final Log LOG = LogFactory.getLog(ParallelMetricQueryExecutor.class);
+  private static final Comparator<byte[]> UUID_COMPARATOR = UnsignedBytes.lexicographicalComparator();
+
+  private final PhoenixHBaseAccessor hBaseAccessor;
+  private final int parallelism;
+  private final int minUuidsPerPartition;
+  private final long timeoutMillis;
+  private final ThreadPoolExecutor executor;
+
+  public ParallelMetricQueryExecutor(PhoenixHBaseAccessor hBaseAccessor, int parallelism,
+                                     int minUuidsPerPartition, long timeoutMillis) {
+    this.hBaseAccessor = hBaseAccessor;
+    this.parallelism = Math.max(1, parallelism);
+    this.minUuidsPerPartition = Math.max(1, minUuidsPerPartition);
+    this.timeoutMillis = timeoutMillis;
+    // Every range is queued, so the timeout covers all of them. A query has at most
+    // parallelism + split points ranges, and queued ranges are cancelled on timeout.
+    this.executor = new ThreadPoolExecutor(this.parallelism, this.parallelism, 60, TimeUnit.SECONDS,
+      new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+          Thread thread = new Thread(r, "ams-query-" + count.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+    this.executor.allowCoreThreadTimeOut(true);
+  }
+
+  public TimelineMetrics getMetricRecords(Condition condition,
+                                          Multimap<String, List<Function>> metricFunctions,
+                                          boolean aggregate) throws SQLException, IOException {
+    List<List<byte[]>> partitions = null;
+    if (parallelism > 1 && isSplittable(condition)) {
+      List<byte[]> splitPoints = aggregate ? hBaseAccessor.getAggregateSplitPoints()
+        : hBaseAccessor.getPrecisionSplitPoints();
+      int maxPartitionSize = Math.max(minUuidsPerPartition,
+        (condition.getUuids().size() + parallelism - 1) / parallelism);
+      partitions = partition(condition.getUuids(), splitPoints, maxPartitionSize);
+    }
+    if (partitions == null || partitions.size() < 2) {
+      return read(condition, metricFunctions, aggregate);
+    }
+
+    // With a limit the rows of each range are needed to apply it, so the ranges are read ungrouped
+    Integer limit = condition.getLimit();
+    boolean groupPartitions = limit == null && condition.isGrouped();
+
+    CompletionService<TimelineMetrics> completionService = new ExecutorCompletionService<>(executor);
+    Map<Future<TimelineMetrics>, Integer> futures = new HashMap<>();
+    TimelineMetrics[] partitionMetrics = new TimelineMetrics[partitions.size()];
+    boolean partialResult = false;
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    try {
+      for (int i = 0; i < partitions.size(); i++) {
+        final Condition partitionCondition =
+          ((DefaultCondition) condition).copyForUuids(partitions.get(i), groupPartitions);
+        futures.put(completionService.submit(new Callable<TimelineMetrics>() {
+          @Override
+          public TimelineMetrics call() throws Exception {
+            return read(partitionCondition, metricFunctions, aggregate);
+          }
+        }), i);
+      }
+
+      for (int i = 0; i < partitions.size(); i++) {
+        Future<TimelineMetrics> future = completionService.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        if (future == null) {
+          LOG.warn("Timed out reading " + (partitions.size() - i) + " of " + partitions.size() +
+            " partitions of the query for " + condition.getMetricNames() + ", returning partial result.");
+          partialResult = true;
+          break;
+        }
+        partitionMetrics[futures.get(future)] = future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      partialResult = true;
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof SQLException) {
+        throw (SQLException) cause;
+      }
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IOException(cause);
+    } finally {
+      for (Future<TimelineMetrics> future : futures.keySet()) {
+        future.cancel(true);
+      }
+    }
+
+    TimelineMetrics metrics = merge(partitionMetrics, limit, condition.isGrouped());
+    if (partialResult) {
+      metrics.setPartialResult(true);
+    }
+    return metrics;
+  }
+
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  private TimelineMetrics read(Condition condition, Multimap<String, List<Function>> metricFunctions,
+                               boolean aggregate) throws SQLException, IOException {
+    if (aggregate) {
+      return hBaseAccessor.getAggregateMetricRecords(condition, metricFunctions);
+    }
+    return hBaseAccessor.getMetricRecords(condition, metricFunctions);
+  }
+
+  /**
+   * Only plain range reads are split, point in time, top N, transient metric and ordered
+   * queries are read as one query.
+   */
+  private static boolean isSplittable(Condition condition) {
+    return condition.getClass() == DefaultCondition.class
+      && !condition.isPointInTime()
+      && condition.getStatement() == null
+      && condition.getOrderByClause(true) == null
+      && !((DefaultCondition) condition).isMetricNamesNotCondition()
+      && CollectionUtils.isEmpty(condition.getTransientMetricNames())
+      && CollectionUtils.isNotEmpty(condition.getUuids());
+  }
+
+  /**
+   * Merge the metrics of the ranges in uuid order. With a limit, at most limit metrics are taken
+   * from the ungrouped ranges, which is the number of rows the single query would have returned.
+   */
+  private static TimelineMetrics merge(TimelineMetrics[] partitionMetrics, Integer limit, boolean grouped) {
+    TimelineMetrics metrics = new TimelineMetrics();
+    int remaining = limit == null ? Integer.MAX_VALUE : limit;
+    for (TimelineMetrics partition : partitionMetrics) {
+      if (partition == null) {
+        continue;
+      }
+      for (TimelineMetric metric : partition.getMetrics()) {
+        if (remaining-- <= 0) {
+          return metrics;
+        }
+        if (grouped) {
+          metrics.addOrMergeTimelineMetric(metric);
+        } else {
+          metrics.getMetrics().add(metric);
+        }
+      }
+    }
+    return metrics;
+  }
+
+  /**
+   * Sort the uuids and cut them into ranges of at most maxPartitionSize uuids which do not
+   * span any of the split points.
+   */
+  static List<List<byte[]>> partition(List<byte[]> uuids, List<byte[]> splitPoints, int maxPartitionSize) {
+    List<byte[]> sortedUuids = new ArrayList<>(uuids);
+    Collections.sort(sortedUuids, UUID_COMPARATOR);
+    List<byte[]> sortedSplitPoints = new ArrayList<>(splitPoints);
+    Collections.sort(sortedSplitPoints, UUID_COMPARATOR);
+
+    List<List<byte[]>> partitions = new ArrayList<>();
+    List<byte[]> partition = new ArrayList<>();
+    int splitPointIndex = 0;
+    for (byte[] uuid : sortedUuids) {
+      boolean crossesSplitPoint = false;
+      while (splitPointIndex < sortedSplitPoints.size()
+        && UUID_COMPARATOR.compare(uuid, sortedSplitPoints.get(splitPointIndex)) >= 0) {
+        splitPointIndex++;
+        crossesSplitPoint = true;
+      }
+      if (!partition.isEmpty() && (crossesSplitPoint || partition.size() >= maxPartitionSize)) {
+        partitions.add(partition);
+        partition = new ArrayList<>();
+      }
+      partition.add(uuid);
+    }
+    if (!partition.isEmpty()) {
+      partitions.add(partition);
+    }
+    return partitions;
+  }
+}
@@ -88,6 +88,7 @@ import static org.apache.ambari.metrics.core.timeline.source.InternalSourceProvi
 import static org.apache.hadoop.metrics2.sink.timeline.TimelineMetricUtils.getJavaMetricPatterns;
 
 import java.io.IOException;
+import java.net.UnknownHostException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -98,6 +99,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -120,6 +122,7 @@ import org.apache.ambari.metrics.core.timeline.discovery.TimelineMetricHostMetad
 import org.apache.ambari.metrics.core.timeline.discovery.TimelineMetricMetadataKey;
 import org.apache.ambari.metrics.core.timeline.discovery.TimelineMetricMetadataManager;
 import org.apache.ambari.metrics.core.timeline.query.Condition;
+import org.apache.ambari.metrics.core.timeline.query.DefaultCondition;
 import org.apache.ambari.metrics.core.timeline.query.DefaultPhoenixDataSource;
 import org.apache.ambari.metrics.core.timeline.query.PhoenixConnectionProvider;
 import org.apache.ambari.metrics.core.timeline.query.PhoenixTransactSQL;
@@ -169,6 +172,7 @@ public class PhoenixHBaseAccessor {
   private static final Log LOG = LogFactory.getLog(PhoenixHBaseAccessor.class);
 
   static final int PHOENIX_MAX_MUTATION_STATE_SIZE = 50000;
+  static final String WRITER_METRICS_APP_ID = "ams-collector";
 
   /**
    * 22 metrics for 2hours in SECONDS, 2 hosts (1 minute data records)
@@ -202,6 +206,11 @@ public class PhoenixHBaseAccessor {
   private TimelineMetricMetadataManager metadataManagerInstance;
   private Set<String> eventMetricPatterns = new HashSet<>();
   private boolean supportMultipleClusterMetrics = false;
+  private List<byte[]> precisionSplitPoints = Collections.emptyList();
+  private List<byte[]> aggregateSplitPoints = Collections.emptyList();
+  private RecentMetricsStore recentMetricsStore;
+  private PhoenixMetricsWriter metricsWriter;
+  private String writerMetricsHostname;
 
   private Map<String, Integer> tableTTL = new HashMap<>();
 
@@ -263,6 +272,23 @@ public class PhoenixHBaseAccessor {
 
     this.supportMultipleClusterMetrics = Boolean.valueOf(metricsConf.get(TIMELINE_METRICS_SUPPORT_MULTIPLE_CLUSTERS, "false"));
 
+    if (configuration.isHotTierEnabled()) {
+      recentMetricsStore = new RecentMetricsStore(SECONDS.toMillis(configuration.getHotTierWindow()),
+        configuration.getHotTierPointsPerMetric(), configuration.getHotTierMaxMemory());
+    }
+
+    if (cacheEnabled && configuration.getWriterThreads() > 0) {
+      metricsWriter = new PhoenixMetricsWriter(dataSource, recentMetricsStore, configuration.getWriterThreads(),
+        configuration.getWriterQueueSize(), configuration.getWriterMinBatchSize(),
+        Math.min(configuration.getWriterMaxBatchSize(), PHOENIX_MAX_MUTATION_STATE_SIZE - 1),
+        configuration.getWriterTargetCommitLatency(), configuration.getWriterRetryQueueSize());
+      try {
+        writerMetricsHostname = configuration.getInstanceHostnameFromEnv();
+      } catch (UnknownHostException e) {
+        writerMetricsHostname = "localhost";
+      }
+    }
+
     if (cacheEnabled) {
       LOG.debug("Initialising and starting metrics cache committer thread...");
       metricsCommiterThread = new MetricsCacheCommitterThread(this);
@@ -293,6 +319,18 @@ public class PhoenixHBaseAccessor {
     TIMELINE_METRIC_READ_HELPER = new TimelineMetricReadHelper(this.metadataManagerInstance);
   }
 
+  /**
+   * Stop committing the insert cache and stop the metric writers.
+   */
+  public void stop() {
+    if (scheduledExecutorService != null) {
+      scheduledExecutorService.shutdown();
+    }
+    if (metricsWriter != null) {
+      metricsWriter.stop();
+    }
+  }
+
   public boolean isInsertCacheEmpty() {
     return insertCache.isEmpty();
   }
@@ -304,10 +342,19 @@ public class PhoenixHBaseAccessor {
       insertCache.drainTo(metricsList); // More performant than poll
     }
     if (metricsList.size() > 0) {
-      commitMetrics(metricsList);
+      if (metricsWriter != null) {
+        writeMetrics(metricsList);
+      } else {
+        commitMetrics(metricsList);
+      }
       if (!rawMetricsSources.isEmpty()) {
+        List<TimelineMetrics> publishedMetrics = metricsList;
+        if (metricsWriter != null) {
+          publishedMetrics = new ArrayList<>(metricsList);
+          publishedMetrics.add(metricsWriter.getWriterMetrics(writerMetricsHostname, WRITER_METRICS_APP_ID));
+        }
         for (InternalMetricsSource rawMetricsSource : rawMetricsSources) {
-          rawMetricsSource.publishTimelineMetrics(metricsList);
+          rawMetricsSource.publishTimelineMetrics(publishedMetrics);
         }
       }
     }
@@ -335,53 +382,29 @@ public class PhoenixHBaseAccessor {
             transientMetrics.add(metric);
             continue;
           }
-          metricRecordStmt.clearParameters();
-
-          if (LOG.isTraceEnabled()) {
-            LOG.trace("host: " + metric.getHostName() + ", " +
-                    "metricName = " + metric.getMetricName() + ", " +
-                    "values: " + metric.getMetricValues());
+          PhoenixMetricsWriter.MetricRow row = getMetricRow(metric);
+          if (row == null) {
+            continue;
           }
-          double[] aggregates = AggregatorUtils.calculateAggregates(
-                  metric.getMetricValues());
-
-          if (aggregates[3] != 0.0) {
-            rowCount++;
-            byte[] uuid = metadataManagerInstance.getUuid(metric, true);
-            if (uuid == null) {
-              LOG.error("Error computing UUID for metric. Cannot write metrics : " + metric.toString());
-              continue;
-            }
-            metricRecordStmt.setBytes(1, uuid);
-            metricRecordStmt.setLong(2, metric.getStartTime());
-            metricRecordStmt.setDouble(3, aggregates[0]);
-            metricRecordStmt.setDouble(4, aggregates[1]);
-            metricRecordStmt.setDouble(5, aggregates[2]);
-            metricRecordStmt.setLong(6, (long) aggregates[3]);
-            String json = TimelineUtils.dumpTimelineRecordtoJSON(metric.getMetricValues());
-            metricRecordStmt.setString(7, json);
-
-            try {
-              int rows = metricRecordStmt.executeUpdate();
-            } catch (SQLException | NumberFormatException ex) {
-              LOG.warn("Failed on insert records to store : " + ex.getMessage());
-              LOG.warn("Metric that cannot be stored : [" + metric.getMetricName() + "," + metric.getAppId() + "]" +
-                metric.getMetricValues().toString());
-              continue;
-            }
-
-            if (rowCount >= PHOENIX_MAX_MUTATION_STATE_SIZE - 1) {
-              conn.commit();
-              rowCount = 0;
-            }
+          rowCount++;
+          row.bind(metricRecordStmt);
 
-          } else {
-            LOG.debug("Discarding empty metric record for : [" + metric.getMetricName() + "," +
-              metric.getAppId() + "," +
-              metric.getHostName() + "," +
-              metric.getInstanceId() + "]");
+          try {
+            int rows = metricRecordStmt.executeUpdate();
+          } catch (SQLException | NumberFormatException ex) {
+            LOG.warn("Failed on insert records to store : " + ex.getMessage());
+            LOG.warn("Metric that cannot be stored : [" + metric.getMetricName() + "," + metric.getAppId() + "]" +
+              metric.getMetricValues().toString());
+            continue;
+          }
+          if (recentMetricsStore != null) {
+            recentMetricsStore.put(row.uuid, metric.getMetricValues());
           }
 
+          if (rowCount >= PHOENIX_MAX_MUTATION_STATE_SIZE - 1) {
+            conn.commit();
+            rowCount = 0;
+          }
         }
       }
       if (CollectionUtils.isNotEmpty(transientMetrics)) {
@@ -411,6 +434,86 @@ public class PhoenixHBaseAccessor {
     }
   }
 
+  /**
+   * Hand the precision rows to the metrics writer, transient metrics are committed right away.
+   */
+  private void writeMetrics(Collection<TimelineMetrics> timelineMetricsCollection) {
+    LOG.debug("Writing metrics to store");
+    List<TimelineMetric> transientMetrics = new ArrayList<>();
+    List<PhoenixMetricsWriter.MetricRow> rows = new ArrayList<>();
+    for (TimelineMetrics timelineMetrics : timelineMetricsCollection) {
+      for (TimelineMetric metric : timelineMetrics.getMetrics()) {
+        if (metadataManagerInstance.isTransientMetric(metric.getMetricName(), metric.getAppId())) {
+          transientMetrics.add(metric);
+          continue;
+        }
+        try {
+          PhoenixMetricsWriter.MetricRow row = getMetricRow(metric);
+          if (row != null) {
+            rows.add(row);
+          }
+        } catch (IOException e) {
+          LOG.warn("Metric that cannot be stored : [" + metric.getMetricName() + "," + metric.getAppId() + "]", e);
+        }
+      }
+    }
+
+    try {
+      metricsWriter.write(rows);
+    } catch (InterruptedException e) {
+      LOG.warn("Interrupted while queueing metrics for the writers.");
+      Thread.currentThread().interrupt();
+    }
+
+    if (CollectionUtils.isNotEmpty(transientMetrics)) {
+      Connection conn = null;
+      try {
+        conn = getConnection();
+        commitTransientMetrics(conn, transientMetrics);
+        conn.commit();
+      } catch (SQLException | IOException e) {
+        LOG.error("Failed on committing transient metric records to store.", e);
+      } finally {
+        if (conn != null) {
+          try {
+            conn.close();
+          } catch (SQLException sql) {
+            // Ignore
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * @return precision table row of the metric, null if the metric has no values or no uuid
+   */
+  private PhoenixMetricsWriter.MetricRow getMetricRow(TimelineMetric metric) throws IOException {
+    if (LOG.isTraceEnabled()) {
+      LOG.trace("host: " + metric.getHostName() + ", " +
+              "metricName = " + metric.getMetricName() + ", " +
+              "values: " + metric.getMetricValues());
+    }
+    double[] aggregates = AggregatorUtils.calculateAggregates(
+            metric.getMetricValues());
+
+    if (aggregates[3] == 0.0) {
+      LOG.debug("Discarding empty metric record for : [" + metric.getMetricName() + "," +
+        metric.getAppId() + "," +
+        metric.getHostName() + "," +
+        metric.getInstanceId() + "]");
+      return null;
+    }
+    byte[] uuid = metadataManagerInstance.getUuid(metric, true);
+    if (uuid == null) {
+      LOG.error("Error computing UUID for metric. Cannot write metrics : " + metric.toString());
+      return null;
+    }
+    String json = TimelineUtils.dumpTimelineRecordtoJSON(metric.getMetricValues());
+    return new PhoenixMetricsWriter.MetricRow(uuid, metric.getStartTime(), aggregates, json,
+      metric.getMetricValues());
+  }
+
   private void commitTransientMetrics(Connection conn, Collection<TimelineMetric> transientMetrics) throws SQLException, IOException {
     LOG.debug("Committing transient metrics to store");
     PreparedStatement metricTransientRecordStmt = null;
@@ -500,6 +603,20 @@ public class PhoenixHBaseAccessor {
     return dataSource.getConnection();
   }
 
+  /**
+   * @return split points the precision table was created with
+   */
+  public List<byte[]> getPrecisionSplitPoints() {
+    return precisionSplitPoints;
+  }
+
+  /**
+   * @return split points the minute and second aggregate tables were created with
+   */
+  public List<byte[]> getAggregateSplitPoints() {
+    return aggregateSplitPoints;
+  }
+
   /**
    * Unit test purpose only for now.
    * @return @HBaseAdmin
@@ -516,6 +633,8 @@ public class PhoenixHBaseAccessor {
     TimelineMetricSplitPointComputer splitPointComputer = new TimelineMetricSplitPointComputer(
       metricsConf, hbaseConf, metadataManagerInstance);
     splitPointComputer.computeSplitPoints();
+    precisionSplitPoints = splitPointComputer.getPrecisionSplitPoints();
+    aggregateSplitPoints = splitPointComputer.getClusterAggregateSplitPoints();
 
     String encoding = metricsConf.get(HBASE_ENCODING_SCHEME, DEFAULT_ENCODING);
     String compression = metricsConf.get(HBASE_COMPRESSION_SCHEME, DEFAULT_TABLE_COMPRESSION);
@@ -954,6 +1073,13 @@ public class PhoenixHBaseAccessor {
 
     validateConditionIsNotEmpty(condition);
 
+    if (isRecentMetricsQuery(condition, metricFunctions)) {
+      long completeSince = recentMetricsStore.getCompleteSince(condition.getUuids());
+      if (condition.getEndTime() > completeSince) {
+        return getRecentMetricRecords(condition, metricFunctions, completeSince);
+      }
+    }
+
     Connection conn = getConnection();
     PreparedStatement stmt = null;
     ResultSet rs = null;
@@ -967,7 +1093,7 @@ public class PhoenixHBaseAccessor {
         if (condition.getEndTime() >= condition.getStartTime()) {
 
           if (CollectionUtils.isNotEmpty(condition.getUuids())) {
-            stmt = PhoenixTransactSQL.prepareGetMetricsSqlStmt(conn, condition);
+            stmt = PhoenixTransactSQL.prepareGetMetricsSqlStmt(conn, condition, getReadFunctions(metricFunctions));
             rs = stmt.executeQuery();
             while (rs.next()) {
               appendMetricFromResultSet(metrics, condition, metricFunctions, rs);
@@ -1056,6 +1182,81 @@ public class PhoenixHBaseAccessor {
     return metrics;
   }
 
+  /**
+   * Precision reads of plain values can be served from {@link RecentMetricsStore}.
+   */
+  private boolean isRecentMetricsQuery(Condition condition, Multimap<String, List<Function>> metricFunctions) {
+    if (recentMetricsStore == null || condition.getClass() != DefaultCondition.class
+      || condition.isPointInTime() || condition.getStatement() != null
+      || condition.getOrderByClause(true) != null
+      || CollectionUtils.isNotEmpty(condition.getTransientMetricNames())
+      || CollectionUtils.isEmpty(condition.getUuids())
+      || condition.getStartTime() == null || condition.getEndTime() == null) {
+      return false;
+    }
+    Set<Function.ReadFunction> readFunctions = getReadFunctions(metricFunctions);
+    if (readFunctions == null || !EnumSet.of(Function.ReadFunction.VALUE).equals(readFunctions)) {
+      return false;
+    }
+    Precision precision = condition.getPrecision();
+    if (precision == null) {
+      precision = PhoenixTransactSQL.planQuery(condition).getPrecision();
+    }
+    return precision == Precision.SECONDS;
+  }
+
+  /**
+   * Read the points from completeSince on from memory and the older ones from HBase.
+   */
+  private TimelineMetrics getRecentMetricRecords(Condition condition,
+                                                 Multimap<String, List<Function>> metricFunctions,
+                                                 long completeSince) throws SQLException, IOException {
+    condition.setPrecision(Precision.SECONDS);
+    long startTime = Math.max(condition.getStartTime(), completeSince);
+    TimelineMetrics metrics;
+    if (condition.getStartTime() < startTime) {
+      Condition olderCondition = new DefaultCondition(condition.getUuids(), condition.getMetricNames(),
+        condition.getHostnames(), condition.getAppId(), condition.getInstanceId(),
+        condition.getStartTime(), startTime, Precision.SECONDS, condition.getLimit(), condition.isGrouped());
+      metrics = getMetricRecords(olderCondition, metricFunctions);
+      // Rows written before startTime can hold points after it, those are read from memory
+      for (TimelineMetric metric : metrics.getMetrics()) {
+        if (metric.getMetricValues() != null) {
+          metric.getMetricValues().tailMap(startTime).clear();
+        }
+      }
+    } else {
+      metrics = new TimelineMetrics();
+    }
+
+    for (byte[] uuid : condition.getUuids()) {
+      TreeMap<Long, Double> values = recentMetricsStore.getMetricValues(uuid, startTime, condition.getEndTime());
+      if (values == null) {
+        continue;
+      }
+      TimelineMetric base = metadataManagerInstance.getMetricFromUuid(uuid);
+      if (base == null) {
+        continue;
+      }
+      for (List<Function> functions : findMetricFunctions(metricFunctions, base.getMetricName())) {
+        Function f = CollectionUtils.isEmpty(functions) ? null : functions.get(0);
+        TimelineMetric metric = new TimelineMetric(base);
+        if (f != null && f.getSuffix() != null) {
+          metric.setMetricName(metric.getMetricName() + f.getSuffix());
+        }
+        metric.setStartTime(values.firstKey());
+        metric.setMetricValues(new TreeMap<>(values));
+        if (condition.isGrouped()) {
+          metrics.addOrMergeTimelineMetric(metric);
+        } else {
+          metrics.getMetrics().add(metric);
+        }
+      }
+    }
+    LOG.debug("Metrics records size: " + metrics.getMetrics().size() + ", read from memory since " + startTime);
+    return metrics;
+  }
+
   /**
    * Apply aggregate function to the result if supplied else get precision
    * or aggregate data with default function applied.
@@ -1100,6 +1301,26 @@ public class PhoenixHBaseAccessor {
     }
   }
 
+  /**
+   * Functions applied to the rows read, a metric without function is read as is.
+   */
+  private static Set<Function.ReadFunction> getReadFunctions(Multimap<String, List<Function>> metricFunctions) {
+    if (metricFunctions == null) {
+      return null;
+    }
+    Set<Function.ReadFunction> readFunctions = EnumSet.noneOf(Function.ReadFunction.class);
+    for (List<Function> functions : metricFunctions.values()) {
+      if (CollectionUtils.isEmpty(functions)) {
+        readFunctions.add(Function.ReadFunction.VALUE);
+      } else {
+        for (Function f : functions) {
+          readFunctions.add(f.getReadFunction());
+        }
+      }
+    }
+    return readFunctions;
+  }
+
   private boolean isEventDownsampledMetric(String metricName) {
     for (String pattern : eventMetricPatterns) {
       if (metricName.matches(pattern)) {
@@ -1187,7 +1408,7 @@ public class PhoenixHBaseAccessor {
       } else {
 
         if (CollectionUtils.isNotEmpty(condition.getUuids())) {
-          stmt = PhoenixTransactSQL.prepareGetAggregateSqlStmt(conn, condition);
+          stmt = PhoenixTransactSQL.prepareGetAggregateSqlStmt(conn, condition, getReadFunctions(metricFunctions));
           rs = stmt.executeQuery();
           while (rs.next()) {
             appendAggregateMetricFromResultSet(metrics, condition, metricFunctions, rs);
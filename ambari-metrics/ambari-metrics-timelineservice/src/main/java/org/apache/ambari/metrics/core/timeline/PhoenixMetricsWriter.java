@@ -0,0 +1,352 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.metrics.core.timeline;
+
+import static org.apache.ambari.metrics.core.timeline.query.PhoenixTransactSQL.METRICS_RECORD_TABLE_NAME;
+import static org.apache.ambari.metrics.core.timeline.query.PhoenixTransactSQL.UPSERT_METRICS_SQL;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.ambari.metrics.core.timeline.query.ConnectionProvider;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.metrics2.sink.timeline.TimelineMetric;
+import org.apache.hadoop.metrics2.sink.timeline.TimelineMetrics;
+
+/**
+ * Writes precision metric rows on several threads, each with its own connection. Rows are routed
+ * to a writer by uuid, so the rows of one metric are written in order. Every writer commits
+ * batches sized from the latency of its previous commits: batches grow while commits are fast
+ * and shrink when they are slow. Batches which fail to commit are retried from a bounded queue
+ * with a backoff, the oldest are dropped once it is full. Writers keep taking new rows while the
+ * store is failing, so callers only block once the queue of a writer is full.
+ */
+public class PhoenixMetricsWriter {
+  private static final Log LOG = LogFactory.getLog(PhoenixMetricsWriter.class);
+
+  static final String ROWS_WRITTEN_RATE = "writer.rows.written.rate";
+  static final String ROWS_DROPPED = "writer.rows.dropped";
+  static final String QUEUE_DEPTH = "writer.queue.depth";
+  static final String COMMIT_LATENCY_AVG = "writer.commit.latency.avg";
+  static final String COMMIT_LATENCY_MAX = "writer.commit.latency.max";
+
+  private static final long MAX_RETRY_BACKOFF_MILLIS = 30000;
+
+  private final ConnectionProvider connectionProvider;
+  private final RecentMetricsStore recentMetricsStore;
+  private final Writer[] writers;
+  private final int minBatchSize;
+  private final int maxBatchSize;
+  private final long targetCommitLatencyMillis;
+  private final int retryQueueSize;
+
+  private final AtomicLong rowsWritten = new AtomicLong();
+  private final AtomicLong rowsDropped = new AtomicLong();
+  private final AtomicLong commits = new AtomicLong();
+  private final AtomicLong commitTimeMillis = new AtomicLong();
+  private final AtomicLong maxCommitTimeMillis = new AtomicLong();
+  private long lastSnapshotTime = System.currentTimeMillis();
+
+  /**
+   * Precision table row of one metric.
+   */
+  static class MetricRow {
+    final byte[] uuid;
+    final long startTime;
+    final double[] aggregates;
+    final String metricValuesJson;
+    final TreeMap<Long, Double> metricValues;
+
+    MetricRow(byte[] uuid, long startTime, double[] aggregates, String metricValuesJson,
+              TreeMap<Long, Double> metricValues) {
+      this.uuid = uuid;
+      this.startTime = startTime;
+      this.aggregates = aggregates;
+      this.metricValuesJson = metricValuesJson;
+      this.metricValues = metricValues;
+    }
+
+    void bind(PreparedStatement stmt) throws SQLException {
+      stmt.clearParameters();
+      stmt.setBytes(1, uuid);
+      stmt.setLong(2, startTime);
+      stmt.setDouble(3, aggregates[0]);
+      stmt.setDouble(4, aggregates[1]);
+      stmt.setDouble(5, aggregates[2]);
+      stmt.setLong(6, (long) aggregates[3]);
+      stmt.setString(7, metricValuesJson);
+    }
+  }
+
+  public PhoenixMetricsWriter(ConnectionProvider connectionProvider, RecentMetricsStore recentMetricsStore,
+                              int threads, int queueSize, int minBatchSize, int maxBatchSize,
+                              long targetCommitLatencyMillis, int retryQueueSize) {
+    this.connectionProvider = connectionProvider;
+    this.recentMetricsStore = recentMetricsStore;
+    this.minBatchSize = Math.max(1, minBatchSize);
+    this.maxBatchSize = Math.max(this.minBatchSize, maxBatchSize);
+    this.targetCommitLatencyMillis = targetCommitLatencyMillis;
+    this.retryQueueSize = Math.max(0, retryQueueSize);
+    this.writers = new Writer[Math.max(1, threads)];
+    for (int i = 0; i < writers.length; i++) {
+      writers[i] = new Writer(i, Math.max(1, queueSize));
+      writers[i].start();
+    }
+  }
+
+  /**
+   * Queue the rows with their writers, blocks while the queue of a writer is full.
+   */
+  public void write(List<MetricRow> rows) throws InterruptedException {
+    for (MetricRow row : rows) {
+      writers[(Arrays.hashCode(row.uuid) & Integer.MAX_VALUE) % writers.length].queue.put(row);
+    }
+  }
+
+  /**
+   * Rows waiting to be written, including the rows of failed batches waiting for retry.
+   */
+  public int getQueueDepth() {
+    int depth = 0;
+    for (Writer writer : writers) {
+      depth += writer.queue.size() + writer.retryRows;
+    }
+    return depth;
+  }
+
+  /**
+   * Write throughput, queue depth and commit latency since the previous call, as metrics of the
+   * given host and app.
+   */
+  public synchronized TimelineMetrics getWriterMetrics(String hostname, String appId) {
+    long now = System.currentTimeMillis();
+    long elapsedMillis = Math.max(1, now - lastSnapshotTime);
+    lastSnapshotTime = now;
+    long commitCount = commits.getAndSet(0);
+    long commitTime = commitTimeMillis.getAndSet(0);
+
+    TimelineMetrics metrics = new TimelineMetrics();
+    metrics.addOrMergeTimelineMetric(createMetric(ROWS_WRITTEN_RATE, hostname, appId, now,
+      rowsWritten.getAndSet(0) * 1000.0 / elapsedMillis));
+    metrics.addOrMergeTimelineMetric(createMetric(ROWS_DROPPED, hostname, appId, now, rowsDropped.getAndSet(0)));
+    metrics.addOrMergeTimelineMetric(createMetric(QUEUE_DEPTH, hostname, appId, now, getQueueDepth()));
+    metrics.addOrMergeTimelineMetric(createMetric(COMMIT_LATENCY_AVG, hostname, appId, now,
+      commitCount == 0 ? 0 : (double) commitTime / commitCount));
+    metrics.addOrMergeTimelineMetric(createMetric(COMMIT_LATENCY_MAX, hostname, appId, now,
+      maxCommitTimeMillis.getAndSet(0)));
+    return metrics;
+  }
+
+  public void stop() {
+    for (Writer writer : writers) {
+      writer.interrupt();
+    }
+  }
+
+  private static TimelineMetric createMetric(String metricName, String hostname, String appId,
+                                             long timestamp, double value) {
+    TimelineMetric metric = new TimelineMetric();
+    metric.setMetricName(metricName);
+    metric.setHostName(hostname);
+    metric.setAppId(appId);
+    metric.setStartTime(timestamp);
+    TreeMap<Long, Double> values = new TreeMap<>();
+    values.put(timestamp, value);
+    metric.setMetricValues(values);
+    return metric;
+  }
+
+  /**
+   * Double the batch size while full batches commit in under half the target latency, halve it
+   * when a commit takes longer than the target.
+   */
+  static int adaptBatchSize(int batchSize, int rows, long commitMillis, long targetMillis,
+                            int minBatchSize, int maxBatchSize) {
+    if (commitMillis > targetMillis) {
+      return Math.max(minBatchSize, batchSize / 2);
+    }
+    if (rows >= batchSize && commitMillis < targetMillis / 2) {
+      return (int) Math.min(maxBatchSize, batchSize * 2L);
+    }
+    return batchSize;
+  }
+
+  private class Writer extends Thread {
+    final BlockingQueue<MetricRow> queue;
+    // Batches which failed to commit, only used by this thread
+    final Deque<List<MetricRow>> retryQueue = new ArrayDeque<>();
+    volatile int retryRows;
+    int batchSize = minBatchSize;
+    long retryBackoffMillis;
+    long nextRetryTime;
+
+    Writer(int index, int queueSize) {
+      super("ams-writer-" + index);
+      setDaemon(true);
+      this.queue = new ArrayBlockingQueue<>(queueSize);
+    }
+
+    @Override
+    public void run() {
+      while (!isInterrupted()) {
+        try {
+          // Retry the oldest failed batch once its backoff has passed
+          List<MetricRow> retryBatch = retryQueue.peekFirst();
+          if (retryBatch != null && System.currentTimeMillis() >= nextRetryTime) {
+            if (commit(retryBatch)) {
+              retryQueue.pollFirst();
+              retryRows -= retryBatch.size();
+              retryBackoffMillis = 0;
+            } else {
+              backOff();
+            }
+          }
+
+          // New rows keep being taken while the store is failing, so callers are not blocked.
+          // They are queued for retry until the backoff has passed.
+          List<MetricRow> batch = nextBatch(retryQueue.isEmpty() ? 1000 :
+            Math.max(0, Math.min(1000, nextRetryTime - System.currentTimeMillis())));
+          if (batch == null) {
+            continue;
+          }
+          if (System.currentTimeMillis() < nextRetryTime) {
+            addRetry(batch);
+          } else if (commit(batch)) {
+            retryBackoffMillis = 0;
+          } else {
+            addRetry(batch);
+            backOff();
+          }
+        } catch (InterruptedException e) {
+          break;
+        } catch (RuntimeException e) {
+          LOG.error("Unexpected error writing metrics.", e);
+        }
+      }
+    }
+
+    private void backOff() {
+      batchSize = minBatchSize;
+      retryBackoffMillis = retryBackoffMillis == 0 ? 1000 : Math.min(MAX_RETRY_BACKOFF_MILLIS, retryBackoffMillis * 2);
+      nextRetryTime = System.currentTimeMillis() + retryBackoffMillis;
+    }
+
+    private List<MetricRow> nextBatch(long timeoutMillis) throws InterruptedException {
+      MetricRow first = queue.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+      if (first == null) {
+        return null;
+      }
+      List<MetricRow> batch = new ArrayList<>(Math.min(batchSize, queue.size() + 1));
+      batch.add(first);
+      queue.drainTo(batch, batchSize - 1);
+      return batch;
+    }
+
+    private void addRetry(List<MetricRow> batch) {
+      if (retryQueueSize == 0) {
+        dropped(batch);
+        return;
+      }
+      if (retryQueue.size() >= retryQueueSize) {
+        List<MetricRow> oldest = retryQueue.pollFirst();
+        retryRows -= oldest.size();
+        dropped(oldest);
+      }
+      retryQueue.addLast(batch);
+      retryRows += batch.size();
+    }
+
+    private void dropped(List<MetricRow> batch) {
+      LOG.warn("Dropping " + batch.size() + " metric rows which could not be written to the store.");
+      rowsDropped.addAndGet(batch.size());
+    }
+
+    /**
+     * @return false if the batch could not be committed and should be retried
+     */
+    private boolean commit(List<MetricRow> batch) {
+      long start = System.currentTimeMillis();
+      Connection conn = null;
+      PreparedStatement stmt = null;
+      int written = 0;
+      try {
+        conn = connectionProvider.getConnection();
+        stmt = conn.prepareStatement(String.format(UPSERT_METRICS_SQL, METRICS_RECORD_TABLE_NAME));
+        for (MetricRow row : batch) {
+          try {
+            row.bind(stmt);
+            stmt.executeUpdate();
+            written++;
+          } catch (SQLException | NumberFormatException ex) {
+            LOG.warn("Failed on insert records to store : " + ex.getMessage());
+            rowsDropped.incrementAndGet();
+          }
+        }
+        conn.commit();
+      } catch (SQLException e) {
+        LOG.warn("Failed to commit " + batch.size() + " metric rows, will retry : " + e.getMessage());
+        return false;
+      } finally {
+        if (stmt != null) {
+          try {
+            stmt.close();
+          } catch (SQLException e) {
+            // Ignore
+          }
+        }
+        if (conn != null) {
+          try {
+            conn.close();
+          } catch (SQLException sql) {
+            // Ignore
+          }
+        }
+      }
+
+      long commitMillis = System.currentTimeMillis() - start;
+      commits.incrementAndGet();
+      commitTimeMillis.addAndGet(commitMillis);
+      long max;
+      while ((max = maxCommitTimeMillis.get()) < commitMillis && !maxCommitTimeMillis.compareAndSet(max, commitMillis)) {
+        // Retry
+      }
+      rowsWritten.addAndGet(written);
+
+      if (recentMetricsStore != null) {
+        for (MetricRow row : batch) {
+          recentMetricsStore.put(row.uuid, row.metricValues);
+        }
+      }
+      batchSize = adaptBatchSize(batchSize, batch.size(), commitMillis, targetCommitLatencyMillis,
+        minBatchSize, maxBatchSize);
+      return true;
+    }
+  }
+}
@@ -0,0 +1,208 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.metrics.core.timeline;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Keeps the precision data of the last few minutes in memory, so that reads of recent data
+ * do not have to scan HBase. Every uuid gets a ring buffer of (timestamp, value) slots in one
+ * direct buffer allocated up front, so the memory used is bounded and outside of the heap.
+ * <p/>
+ * When all blocks are taken the uuid written least recently is evicted. Reads use
+ * {@link #getCompleteSince} to find from which time on the store holds every point written
+ * for a set of uuids, older points have to be read from HBase.
+ */
+public class RecentMetricsStore {
+  private static final Log LOG = LogFactory.getLog(RecentMetricsStore.class);
+  private static final int SLOT_BYTES = 16;
+
+  private final long windowMillis;
+  private final int slotsPerSeries;
+  private final int blockBytes;
+  private final ByteBuffer buffer;
+  private final Deque<Integer> freeBlocks = new ArrayDeque<>();
+  // Insertion ordered, a series is moved to the end when written
+  private final LinkedHashMap<ByteBuffer, Series> seriesMap = new LinkedHashMap<>();
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  // Points older than this may have been evicted for uuids without a series
+  private long completeSince;
+
+  public RecentMetricsStore(long windowMillis, int slotsPerSeries, long maxMemoryBytes) {
+    this.windowMillis = windowMillis;
+    this.slotsPerSeries = slotsPerSeries;
+    this.blockBytes = slotsPerSeries * SLOT_BYTES;
+    int blocks = (int) (Math.min(maxMemoryBytes, Integer.MAX_VALUE) / blockBytes);
+    if (blocks < 1) {
+      throw new IllegalArgumentException("Memory limit of " + maxMemoryBytes +
+        " bytes is too small for " + slotsPerSeries + " points per metric.");
+    }
+    this.buffer = ByteBuffer.allocateDirect(blocks * blockBytes);
+    for (int i = 0; i < blocks; i++) {
+      freeBlocks.add(i);
+    }
+    this.completeSince = currentTime();
+    LOG.info("Keeping the last " + windowMillis / 1000 + " seconds of up to " + blocks +
+      " metrics in memory, " + slotsPerSeries + " points per metric.");
+  }
+
+  /**
+   * Store the values of a metric written to the precision table.
+   */
+  public void put(byte[] uuid, Map<Long, Double> values) {
+    long now = currentTime();
+    long windowStart = now - windowMillis;
+    lock.writeLock().lock();
+    try {
+      ByteBuffer key = ByteBuffer.wrap(uuid);
+      Series series = seriesMap.remove(key);
+      if (series == null) {
+        Integer block = allocateBlock(now);
+        if (block == null) {
+          return;
+        }
+        series = new Series(block, completeSince);
+      }
+      seriesMap.put(key, series);
+
+      for (Map.Entry<Long, Double> entry : values.entrySet()) {
+        if (entry.getKey() < windowStart || entry.getValue() == null) {
+          continue;
+        }
+        int offset = series.offset(series.next);
+        if (series.size == slotsPerSeries) {
+          // The oldest point written is overwritten
+          series.validFrom = Math.max(series.validFrom, buffer.getLong(offset) + 1);
+        } else {
+          series.size++;
+        }
+        buffer.putLong(offset, entry.getKey());
+        buffer.putDouble(offset + 8, entry.getValue());
+        series.next = (series.next + 1) % slotsPerSeries;
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * @return time from which on all points of the uuids are in memory
+   */
+  public long getCompleteSince(Collection<byte[]> uuids) {
+    long since = currentTime() - windowMillis;
+    lock.readLock().lock();
+    try {
+      for (byte[] uuid : uuids) {
+        Series series = seriesMap.get(ByteBuffer.wrap(uuid));
+        since = Math.max(since, series != null ? series.validFrom : completeSince);
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    return since;
+  }
+
+  /**
+   * @return values of the uuid with startTime <= timestamp < endTime, null if there are none
+   */
+  public TreeMap<Long, Double> getMetricValues(byte[] uuid, long startTime, long endTime) {
+    lock.readLock().lock();
+    try {
+      Series series = seriesMap.get(ByteBuffer.wrap(uuid));
+      if (series == null) {
+        return null;
+      }
+      TreeMap<Long, Double> values = null;
+      for (int i = 0; i < series.size; i++) {
+        int offset = series.offset(i);
+        long timestamp = buffer.getLong(offset);
+        if (timestamp >= startTime && timestamp < endTime) {
+          if (values == null) {
+            values = new TreeMap<>();
+          }
+          values.put(timestamp, buffer.getDouble(offset + 8));
+        }
+      }
+      return values;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public long getWindowMillis() {
+    return windowMillis;
+  }
+
+  long currentTime() {
+    return System.currentTimeMillis();
+  }
+
+  /**
+   * Take a free block or the one of the series written least recently. Evicting a series which
+   * still has points in the window moves {@link #completeSince} past them.
+   */
+  private Integer allocateBlock(long now) {
+    Integer block = freeBlocks.poll();
+    if (block != null) {
+      return block;
+    }
+    Iterator<Series> iterator = seriesMap.values().iterator();
+    if (!iterator.hasNext()) {
+      return null;
+    }
+    Series eldest = iterator.next();
+    iterator.remove();
+    long newest = Long.MIN_VALUE;
+    for (int i = 0; i < eldest.size; i++) {
+      newest = Math.max(newest, buffer.getLong(eldest.offset(i)));
+    }
+    if (newest >= now - windowMillis) {
+      completeSince = Math.max(completeSince, Math.max(now, newest + 1));
+      LOG.debug("Evicted a metric with points in the window, in memory reads start at " + completeSince);
+    }
+    return eldest.block;
+  }
+
+  private class Series {
+    final int block;
+    int next;
+    int size;
+    long validFrom;
+
+    Series(int block, long validFrom) {
+      this.block = block;
+      this.validFrom = validFrom;
+    }
+
+    int offset(int slot) {
+      return block * blockBytes + slot * SLOT_BYTES;
+    }
+  }
+}
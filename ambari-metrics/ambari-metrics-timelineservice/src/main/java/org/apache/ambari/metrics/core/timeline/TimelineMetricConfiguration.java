@@ -247,6 +247,51 @@ public class TimelineMetricConfiguration {
   public static final String WATCHER_MAX_FAILURES =
     "timeline.metrics.service.watcher.max.failures";
 
+  public static final String QUERY_PARALLEL_THREADS =
+    "timeline.metrics.service.query.parallel.threads";
+
+  public static final String QUERY_PARALLEL_MIN_UUIDS =
+    "timeline.metrics.service.query.parallel.min.uuids";
+
+  public static final String QUERY_PARALLEL_TIMEOUT =
+    "timeline.metrics.service.query.parallel.timeout";
+
+  public static final String HOT_TIER_ENABLED =
+    "timeline.metrics.service.hot.tier.enabled";
+
+  public static final String HOT_TIER_WINDOW =
+    "timeline.metrics.service.hot.tier.window";
+
+  public static final String HOT_TIER_POINTS_PER_METRIC =
+    "timeline.metrics.service.hot.tier.points.per.metric";
+
+  public static final String HOT_TIER_MAX_MEMORY_MB =
+    "timeline.metrics.service.hot.tier.max.memory.mb";
+
+  public static final String WRITER_THREADS =
+    "timeline.metrics.service.writer.threads";
+
+  public static final String WRITER_QUEUE_SIZE =
+    "timeline.metrics.service.writer.queue.size";
+
+  public static final String WRITER_MIN_BATCH_SIZE =
+    "timeline.metrics.service.writer.batch.min";
+
+  public static final String WRITER_MAX_BATCH_SIZE =
+    "timeline.metrics.service.writer.batch.max";
+
+  public static final String WRITER_TARGET_COMMIT_LATENCY =
+    "timeline.metrics.service.writer.commit.target.latency.ms";
+
+  public static final String WRITER_RETRY_QUEUE_SIZE =
+    "timeline.metrics.service.writer.retry.queue.size";
+
+  public static final String AGGREGATOR_SHARDS =
+    "timeline.metrics.service.aggregator.shards";
+
+  public static final String AGGREGATOR_SHARD_STEAL_LAG_CYCLES =
+    "timeline.metrics.service.aggregator.shard.steal.lag.cycles";
+
   public static final String AGGREGATORS_SKIP_BLOCK_CACHE =
     "timeline.metrics.aggregators.skip.blockcache.enabled";
 
@@ -505,6 +550,151 @@ public class TimelineMetricConfiguration {
     return 3;
   }
 
+  /**
+   * Number of threads reading partitions of a metrics query, 0 or 1 disables parallel reads.
+   */
+  public int getQueryParallelThreads() {
+    if (metricsConf != null) {
+      return Integer.parseInt(metricsConf.get(QUERY_PARALLEL_THREADS, "8"));
+    }
+    return 8;
+  }
+
+  /**
+   * Minimum number of metric uuids read by one partition of a metrics query.
+   */
+  public int getQueryParallelMinUuids() {
+    if (metricsConf != null) {
+      return Integer.parseInt(metricsConf.get(QUERY_PARALLEL_MIN_UUIDS, "100"));
+    }
+    return 100;
+  }
+
+  /**
+   * Seconds to wait for the partitions of a metrics query before returning a partial result.
+   */
+  public int getQueryParallelTimeout() {
+    if (metricsConf != null) {
+      return Integer.parseInt(metricsConf.get(QUERY_PARALLEL_TIMEOUT, "60"));
+    }
+    return 60;
+  }
+
+  /**
+   * Keep the most recent precision data in memory to serve reads of it without HBase.
+   */
+  public boolean isHotTierEnabled() {
+    if (metricsConf != null) {
+      return Boolean.parseBoolean(metricsConf.get(HOT_TIER_ENABLED, "false"));
+    }
+    return false;
+  }
+
+  /**
+   * Seconds of precision data kept in memory.
+   */
+  public int getHotTierWindow() {
+    if (metricsConf != null) {
+      return Integer.parseInt(metricsConf.get(HOT_TIER_WINDOW, "3600"));
+    }
+    return 3600;
+  }
+
+  /**
+   * Points of one metric kept in memory, older points are overwritten.
+   */
+  public int getHotTierPointsPerMetric() {
+    if (metricsConf != null) {
+      return Integer.parseInt(metricsConf.get(HOT_TIER_POINTS_PER_METRIC, "360"));
+    }
+    return 360;
+  }
+
+  /**
+   * Off heap memory used for the precision data kept in memory.
+   */
+  public long getHotTierMaxMemory() {
+    if (metricsConf != null) {
+      return Long.parseLong(metricsConf.get(HOT_TIER_MAX_MEMORY_MB, "256")) * 1024 * 1024;
+    }
+    return 256L * 1024 * 1024;
+  }
+
+  /**
+   * Threads committing precision metrics from the cache, 0 commits on the cache committer thread.
+   */
+  public int getWriterThreads() {
+    if (metricsConf != null) {
+      return Integer.parseInt(metricsConf.get(WRITER_THREADS, "0"));
+    }
+    return 0;
+  }
+
+  /**
+   * Rows waiting to be written by one writer thread before the cache committer blocks.
+   */
+  public int getWriterQueueSize() {
+    if (metricsConf != null) {
+      return Integer.parseInt(metricsConf.get(WRITER_QUEUE_SIZE, "100000"));
+    }
+    return 100000;
+  }
+
+  public int getWriterMinBatchSize() {
+    if (metricsConf != null) {
+      return Integer.parseInt(metricsConf.get(WRITER_MIN_BATCH_SIZE, "1000"));
+    }
+    return 1000;
+  }
+
+  public int getWriterMaxBatchSize() {
+    if (metricsConf != null) {
+      return Integer.parseInt(metricsConf.get(WRITER_MAX_BATCH_SIZE, "49999"));
+    }
+    return 49999;
+  }
+
+  /**
+   * Commit latency the writers size their batches for.
+   */
+  public long getWriterTargetCommitLatency() {
+    if (metricsConf != null) {
+      return Long.parseLong(metricsConf.get(WRITER_TARGET_COMMIT_LATENCY, "1000"));
+    }
+    return 1000;
+  }
+
+  /**
+   * Failed batches one writer thread keeps for retry, the oldest are dropped beyond that.
+   */
+  public int getWriterRetryQueueSize() {
+    if (metricsConf != null) {
+      return Integer.parseInt(metricsConf.get(WRITER_RETRY_QUEUE_SIZE, "10"));
+    }
+    return 10;
+  }
+
+  /**
+   * Number of uuid ranges the host and cluster time aggregators are split into when
+   * running on several collectors, 1 leaves the aggregators unsharded.
+   */
+  public int getAggregatorShards() {
+    if (metricsConf != null) {
+      return Integer.parseInt(metricsConf.get(AGGREGATOR_SHARDS, "1"));
+    }
+    return 1;
+  }
+
+  /**
+   * Aggregation cycles a shard must be behind before a collector not owning it takes it over.
+   */
+  public int getAggregatorShardStealLagCycles() {
+    if (metricsConf != null) {
+      return Integer.parseInt(metricsConf.get(AGGREGATOR_SHARD_STEAL_LAG_CYCLES, "1"));
+    }
+    return 1;
+  }
+
   public boolean getTimelineMetricsMultipleClusterSupport() {
     if (metricsConf != null) {
       return Boolean.parseBoolean(metricsConf.get(TIMELINE_METRICS_SUPPORT_MULTIPLE_CLUSTERS, "false"));
@@ -23,6 +23,8 @@ import static org.apache.ambari.metrics.core.timeline.TimelineMetricConfiguratio
 import static org.apache.ambari.metrics.core.timeline.aggregators.AggregatorUtils.getRoundedAggregateTimeMillis;
 import static org.apache.ambari.metrics.core.timeline.aggregators.AggregatorUtils.getRoundedCheckPointTimeMillis;
 import static org.apache.ambari.metrics.core.timeline.availability.AggregationTaskRunner.ACTUAL_AGGREGATOR_NAMES;
+import static org.apache.ambari.metrics.core.timeline.discovery.TimelineMetricMetadataManager.HOSTNAME_UUID_LENGTH;
+import static org.apache.ambari.metrics.core.timeline.discovery.TimelineMetricMetadataManager.TIMELINE_METRIC_UUID_LENGTH;
 
 import java.io.File;
 import java.io.IOException;
@@ -30,12 +32,16 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
 
+import org.apache.ambari.metrics.core.timeline.availability.AggregatorShard;
+import org.apache.ambari.metrics.core.timeline.availability.AggregatorShardManager;
 import org.apache.ambari.metrics.core.timeline.availability.MetricCollectorHAController;
 import org.apache.ambari.metrics.core.timeline.query.Condition;
+import org.apache.ambari.metrics.core.timeline.query.DefaultCondition;
 import org.apache.ambari.metrics.core.timeline.query.EmptyCondition;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.io.FileUtils;
@@ -66,6 +72,8 @@ public abstract class AbstractTimelineAggregator implements TimelineMetricAggreg
   protected String outputTableName;
   protected Long nativeTimeRangeDelay;
   protected AggregationTaskRunner taskRunner;
+  // Shard aggregated by the current run, if the aggregator is sharded
+  private AggregatorShard currentShard;
   protected List<String> downsampleMetricPatterns;
   protected List<CustomDownSampler> configuredDownSamplers;
 
@@ -119,6 +127,11 @@ public abstract class AbstractTimelineAggregator implements TimelineMetricAggreg
    * Access relaxed for tests
    */
   public void runOnce(Long SLEEP_INTERVAL) {
+    if (taskRunner != null && taskRunner.isSharded(aggregatorName)) {
+      runShards(SLEEP_INTERVAL);
+      return;
+    }
+
     boolean performAggregationFunction = true;
     if (taskRunner != null) {
       switch (getAggregatorType()) {
@@ -131,27 +144,70 @@ public abstract class AbstractTimelineAggregator implements TimelineMetricAggreg
     }
 
     if (performAggregationFunction) {
-      long currentTime = System.currentTimeMillis();
-      long lastCheckPointTime = readLastCheckpointSavingOnFirstRun(currentTime);
+      aggregateNextInterval(SLEEP_INTERVAL);
+    } else {
+      LOG.info("Skipping aggregation function not owned by this instance.");
+    }
+  }
 
-      if (lastCheckPointTime != -1) {
-        LOG.info("Last check point time: " + lastCheckPointTime + ", lagBy: "
-          + ((currentTime - lastCheckPointTime) / 1000)
-          + " seconds.");
-
-        boolean success = doWork(lastCheckPointTime, lastCheckPointTime + SLEEP_INTERVAL);
-
-        if (success) {
-          try {
-            saveCheckPoint(lastCheckPointTime + SLEEP_INTERVAL);
-          } catch (IOException io) {
-            LOG.warn("Error saving checkpoint, restarting aggregation at " +
-              "previous checkpoint.");
-          }
+  /**
+   * Aggregate the shards this instance is the preferred owner of, then take over the lagging
+   * shards of other instances.
+   */
+  private void runShards(Long SLEEP_INTERVAL) {
+    AggregatorShardManager shardManager = taskRunner.getShardManager();
+    List<AggregatorShard> otherShards = new ArrayList<>();
+    for (AggregatorShard shard : shardManager.getShards(aggregatorName)) {
+      if (shardManager.isPreferredOwner(shard)) {
+        runShard(shard, SLEEP_INTERVAL);
+      } else {
+        otherShards.add(shard);
+      }
+    }
+
+    for (AggregatorShard shard : otherShards) {
+      long checkpoint = taskRunner.getCheckpointManager().readCheckpoint(shard);
+      if (shardManager.isLagging(checkpoint, System.currentTimeMillis(), SLEEP_INTERVAL)) {
+        LOG.info("Taking over lagging shard " + shard + ", last checkpoint: " + new Date(checkpoint));
+        runShard(shard, SLEEP_INTERVAL);
+      }
+    }
+  }
+
+  private void runShard(AggregatorShard shard, Long SLEEP_INTERVAL) {
+    AggregatorShardManager shardManager = taskRunner.getShardManager();
+    if (!shardManager.acquireLease(shard, SLEEP_INTERVAL)) {
+      LOG.info("Skipping shard " + shard + " aggregated by another instance.");
+      return;
+    }
+    currentShard = shard;
+    try {
+      aggregateNextInterval(SLEEP_INTERVAL);
+    } finally {
+      currentShard = null;
+      shardManager.releaseLease(shard);
+    }
+  }
+
+  private void aggregateNextInterval(Long SLEEP_INTERVAL) {
+    long currentTime = System.currentTimeMillis();
+    long lastCheckPointTime = readLastCheckpointSavingOnFirstRun(currentTime);
+
+    if (lastCheckPointTime != -1) {
+      LOG.info("Last check point time: " + lastCheckPointTime + ", lagBy: "
+        + ((currentTime - lastCheckPointTime) / 1000)
+        + " seconds.");
+
+      boolean success = doWork(lastCheckPointTime, lastCheckPointTime + SLEEP_INTERVAL);
+
+      if (success) {
+        try {
+          saveCheckPoint(lastCheckPointTime + SLEEP_INTERVAL);
+        } catch (IOException io) {
+          LOG.warn("Error saving checkpoint, restarting aggregation at " +
+            "previous checkpoint.", io);
         }
       }
-    } else {
-      LOG.info("Skipping aggregation function not owned by this instance.");
     }
   }
 
@@ -209,6 +265,9 @@ public abstract class AbstractTimelineAggregator implements TimelineMetricAggreg
   }
 
   protected long readCheckPoint() {
+    if (currentShard != null) {
+      return taskRunner.getCheckpointManager().readCheckpoint(currentShard);
+    }
     if (taskRunner != null) {
       return taskRunner.getCheckpointManager().readCheckpoint(aggregatorName);
     }
@@ -227,7 +286,17 @@ public abstract class AbstractTimelineAggregator implements TimelineMetricAggreg
   }
 
   protected void saveCheckPoint(long checkpointTime) throws IOException {
-    if (taskRunner != null) {
+    if (currentShard != null) {
+      // Another instance may have taken over the shard if the lease was lost during the run
+      if (!taskRunner.getShardManager().holdsLease(currentShard)) {
+        throw new IOException("Lease on " + currentShard + " was lost, not saving checkpoint " + checkpointTime);
+      }
+      boolean success = taskRunner.getCheckpointManager().writeCheckpoint(currentShard, checkpointTime);
+      if (!success) {
+        LOG.error("Error saving checkpoint with AggregationTaskRunner, " +
+          "shard = " + currentShard + "value = " + checkpointTime);
+      }
+    } else if (taskRunner != null) {
       boolean success = taskRunner.getCheckpointManager().writeCheckpoint(aggregatorName, checkpointTime);
       if (!success) {
         LOG.error("Error saving checkpoint with AggregationTaskRunner, " +
@@ -259,6 +328,12 @@ public abstract class AbstractTimelineAggregator implements TimelineMetricAggreg
 
     boolean success = true;
     Condition condition = prepareMetricQueryCondition(startTime, endTime);
+    if (currentShard != null && condition instanceof DefaultCondition) {
+      int uuidLength = getAggregatorType() == AGGREGATOR_TYPE.HOST ?
+        TIMELINE_METRIC_UUID_LENGTH + HOSTNAME_UUID_LENGTH : TIMELINE_METRIC_UUID_LENGTH;
+      ((DefaultCondition) condition).setUuidRange(currentShard.getUuidRangeStart(uuidLength),
+        currentShard.getUuidRangeEnd(uuidLength));
+    }
 
     Connection conn = null;
     PreparedStatement stmt = null;
@@ -0,0 +1,207 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.metrics.core.timeline.aggregators;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.hadoop.metrics2.sink.timeline.PostProcessingUtil;
+import org.apache.hadoop.metrics2.sink.timeline.TimelineMetric;
+
+/**
+ * Time slices of an aggregation cycle with reusable primitive buffers, into which the values of
+ * one host metric at a time are sliced and interpolated. Gives the same values as
+ * {@link AggregatorUtils#sliceFromTimelineMetric} without creating a key per slice.
+ */
+class MetricTimeSlices {
+  private final long[] sliceStarts;
+  private final long[] sliceEnds;
+  private final double[] sums;
+  private final int[] counts;
+  // Slices with points of the metric
+  private final boolean[] sliced;
+  private final int[] nextSliced;
+  private final double[] values;
+  private final boolean[] hasValue;
+
+  MetricTimeSlices(List<Long[]> timeSlices) {
+    int size = timeSlices.size();
+    sliceStarts = new long[size];
+    sliceEnds = new long[size];
+    for (int i = 0; i < size; i++) {
+      sliceStarts[i] = timeSlices.get(i)[0];
+      sliceEnds[i] = timeSlices.get(i)[1];
+    }
+    sums = new double[size];
+    counts = new int[size];
+    sliced = new boolean[size];
+    nextSliced = new int[size];
+    values = new double[size];
+    hasValue = new boolean[size];
+  }
+
+  int size() {
+    return sliceEnds.length;
+  }
+
+  /**
+   * @return end of the slice, the timestamp of its aggregate
+   */
+  long getSliceTime(int slice) {
+    return sliceEnds[slice];
+  }
+
+  boolean hasValue(int slice) {
+    return hasValue[slice];
+  }
+
+  double getValue(int slice) {
+    return values[slice];
+  }
+
+  /**
+   * Average the values of the metric within every slice, overwriting the previous metric.
+   *
+   * @return false if the metric has no values
+   */
+  boolean slice(TimelineMetric metric, boolean interpolationEnabled) {
+    TreeMap<Long, Double> metricValues = metric.getMetricValues();
+    if (metricValues.isEmpty()) {
+      return false;
+    }
+    Arrays.fill(sliced, false);
+    Arrays.fill(hasValue, false);
+
+    int slice = 0;
+    int prevSlice = -1;
+    for (Map.Entry<Long, Double> entry : metricValues.entrySet()) {
+      Double value = entry.getValue();
+      if (value == null) {
+        continue;
+      }
+      long timestamp = entry.getKey();
+      // Values are sorted by time, so slices are only ever moved forward
+      while (slice < sliceEnds.length && timestamp >= sliceEnds[slice]) {
+        slice++;
+      }
+      if (slice == sliceEnds.length) {
+        break;
+      }
+      if (timestamp < sliceStarts[slice]) {
+        continue;
+      }
+      if (prevSlice >= 0 && slice != prevSlice) {
+        sums[slice] = value;
+        counts[slice] = value > 0.0 ? 1 : 0;
+      } else {
+        if (prevSlice < 0) {
+          sums[slice] = 0.0;
+          counts[slice] = 0;
+        }
+        if (value > 0.0) {
+          sums[slice] += value;
+          counts[slice]++;
+        }
+      }
+      sliced[slice] = true;
+      prevSlice = slice;
+    }
+
+    for (int i = 0; i < sliceEnds.length; i++) {
+      if (sliced[i]) {
+        values[i] = counts[i] > 0 ? sums[i] / counts[i] : 0.0;
+        hasValue[i] = true;
+      }
+    }
+
+    if (interpolationEnabled) {
+      if ("COUNTER".equalsIgnoreCase(metric.getType())) {
+        interpolateCounter(metricValues);
+      } else {
+        interpolate(prevSlice < 0 ? metricValues.firstEntry().getValue() : null);
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Fill empty slices from the closest slices with values before and after them.
+   *
+   * @param defaultNextValue used when no slice has values
+   */
+  private void interpolate(Double defaultNextValue) {
+    int next = -1;
+    for (int i = sliceEnds.length - 1; i >= 0; i--) {
+      nextSliced[i] = next;
+      if (sliced[i]) {
+        next = i;
+      }
+    }
+
+    int prev = -1;
+    for (int i = 0; i < sliceEnds.length; i++) {
+      if (sliced[i]) {
+        prev = i;
+        continue;
+      }
+      next = nextSliced[i];
+      if (prev >= 0 && next >= 0) {
+        double slope = (values[next] - values[prev]) / (sliceEnds[next] - sliceEnds[prev]);
+        values[i] = values[prev] + slope * (sliceEnds[i] - sliceEnds[prev]);
+        hasValue[i] = true;
+      } else if (prev >= 0) {
+        values[i] = values[prev];
+        hasValue[i] = true;
+      } else if (next >= 0) {
+        values[i] = values[next];
+        hasValue[i] = true;
+      } else if (defaultNextValue != null) {
+        values[i] = defaultNextValue;
+        hasValue[i] = true;
+      }
+    }
+  }
+
+  /**
+   * Counters are inter- and extrapolated from all points of the metric.
+   */
+  private void interpolateCounter(TreeMap<Long, Double> metricValues) {
+    List<Long> requiredTimestamps = new ArrayList<>();
+    for (int i = 0; i < sliceEnds.length; i++) {
+      if (!sliced[i]) {
+        requiredTimestamps.add(sliceEnds[i]);
+      }
+    }
+    Map<Long, Double> interpolatedValues = PostProcessingUtil.interpolate(metricValues, requiredTimestamps);
+    if (interpolatedValues == null) {
+      return;
+    }
+    for (int i = 0; i < sliceEnds.length; i++) {
+      if (!sliced[i]) {
+        Double value = interpolatedValues.get(sliceEnds[i]);
+        if (value != null) {
+          values[i] = value;
+          hasValue[i] = true;
+        }
+      }
+    }
+  }
+}
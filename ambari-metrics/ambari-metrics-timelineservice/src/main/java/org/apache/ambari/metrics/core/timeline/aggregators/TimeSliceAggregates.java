@@ -0,0 +1,88 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.metrics.core.timeline.aggregators;
+
+import java.util.Map;
+
+import org.apache.hadoop.metrics2.sink.timeline.MetricClusterAggregate;
+
+/**
+ * Cluster aggregates of one metric across hosts for every time slice of an aggregation cycle,
+ * accumulated in primitive arrays indexed by slice.
+ */
+class TimeSliceAggregates {
+  private final String metricName;
+  private final String appId;
+  private final String instanceId;
+  private final double[] sums;
+  private final double[] maxs;
+  private final double[] mins;
+  private final int[] numberOfHosts;
+
+  TimeSliceAggregates(String metricName, String appId, String instanceId, int numberOfSlices) {
+    this.metricName = metricName;
+    this.appId = appId;
+    this.instanceId = instanceId;
+    this.sums = new double[numberOfSlices];
+    this.maxs = new double[numberOfSlices];
+    this.mins = new double[numberOfSlices];
+    this.numberOfHosts = new int[numberOfSlices];
+  }
+
+  /**
+   * Add the value of a host to the slice.
+   *
+   * @return number of hosts aggregated into the slice
+   */
+  int update(int slice, double value) {
+    if (numberOfHosts[slice] == 0) {
+      sums[slice] = value;
+      maxs[slice] = value;
+      mins[slice] = value;
+    } else {
+      sums[slice] += value;
+      if (value > maxs[slice]) {
+        maxs[slice] = value;
+      }
+      if (value < mins[slice]) {
+        mins[slice] = value;
+      }
+    }
+    return ++numberOfHosts[slice];
+  }
+
+  /**
+   * Add an aggregate for every slice with values, merging with aggregates already present.
+   */
+  void addTo(Map<TimelineClusterMetric, MetricClusterAggregate> aggregateClusterMetrics, MetricTimeSlices timeSlices) {
+    for (int i = 0; i < numberOfHosts.length; i++) {
+      if (numberOfHosts[i] == 0) {
+        continue;
+      }
+      TimelineClusterMetric clusterMetric = new TimelineClusterMetric(metricName, appId, instanceId,
+        timeSlices.getSliceTime(i));
+      MetricClusterAggregate aggregate = new MetricClusterAggregate(sums[i], numberOfHosts[i], null, maxs[i], mins[i]);
+      MetricClusterAggregate existing = aggregateClusterMetrics.get(clusterMetric);
+      if (existing == null) {
+        aggregateClusterMetrics.put(clusterMetric, aggregate);
+      } else {
+        existing.updateAggregates(aggregate);
+      }
+    }
+  }
+}
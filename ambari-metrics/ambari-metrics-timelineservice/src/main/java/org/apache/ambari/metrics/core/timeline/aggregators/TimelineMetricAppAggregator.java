@@ -100,23 +100,53 @@ public class TimelineMetricAppAggregator {
         updateAppAggregatesFromHostMetric(clusterMetric, hostname, metricValue);
       }
     } else {
-      // Build the hostedapps map if not a host metric
-      // Check app candidacy for host aggregation
-      if (appIdsToAggregate.contains(appId)) {
-        TimelineMetricHostMetadata timelineMetricHostMetadata = hostMetadata.get(hostname);
-        ConcurrentHashMap<String, String> appIds;
-        if (timelineMetricHostMetadata == null) {
-          appIds = new ConcurrentHashMap<>();
-          hostMetadata.put(hostname, new TimelineMetricHostMetadata(appIds));
-        } else {
-          appIds = timelineMetricHostMetadata.getHostedApps();
-        }
-        if (!appIds.containsKey(appId)) {
-          appIds.put(appId, appId);
-          LOG.info("Adding appId to hosted apps: appId = " +
-            clusterMetric.getAppId() + ", hostname = " + hostname);
+      addHostedApp(appId, hostname);
+    }
+  }
+
+  /**
+   * Same as {@link #processTimelineClusterMetric} for the values of a host metric in every time
+   * slice of the aggregation cycle.
+   */
+  void processTimeSlices(String metricName, String appId, String instanceId,
+                         String hostname, MetricTimeSlices timeSlices) {
+    if (appId == null) {
+      return;
+    }
+
+    if (appId.equalsIgnoreCase(HOST_APP_ID)) {
+      if (hostMetadata.containsKey(hostname)) {
+        for (int i = 0; i < timeSlices.size(); i++) {
+          if (timeSlices.hasValue(i)) {
+            updateAppAggregatesFromHostMetric(new TimelineClusterMetric(metricName, appId, instanceId,
+              timeSlices.getSliceTime(i)), hostname, timeSlices.getValue(i));
+          }
         }
       }
+    } else {
+      addHostedApp(appId, hostname);
+    }
+  }
+
+  /**
+   * Build the hostedapps map if not a host metric
+   */
+  private void addHostedApp(String appId, String hostname) {
+    // Check app candidacy for host aggregation
+    if (appIdsToAggregate.contains(appId)) {
+      TimelineMetricHostMetadata timelineMetricHostMetadata = hostMetadata.get(hostname);
+      ConcurrentHashMap<String, String> appIds;
+      if (timelineMetricHostMetadata == null) {
+        appIds = new ConcurrentHashMap<>();
+        hostMetadata.put(hostname, new TimelineMetricHostMetadata(appIds));
+      } else {
+        appIds = timelineMetricHostMetadata.getHostedApps();
+      }
+      if (!appIds.containsKey(appId)) {
+        appIds.put(appId, appId);
+        LOG.info("Adding appId to hosted apps: appId = " +
+          appId + ", hostname = " + hostname);
+      }
     }
   }
 
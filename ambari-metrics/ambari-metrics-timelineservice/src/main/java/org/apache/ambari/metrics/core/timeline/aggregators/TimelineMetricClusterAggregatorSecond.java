@@ -24,7 +24,6 @@ import static org.apache.ambari.metrics.core.timeline.TimelineMetricConfiguratio
 import static org.apache.ambari.metrics.core.timeline.TimelineMetricConfiguration.TIMELINE_METRICS_SUPPORT_MULTIPLE_CLUSTERS;
 import static org.apache.ambari.metrics.core.timeline.TimelineMetricConfiguration.TIMELINE_METRIC_AGGREGATION_SQL_FILTERS;
 import static org.apache.ambari.metrics.core.timeline.aggregators.AggregatorUtils.getTimeSlices;
-import static org.apache.ambari.metrics.core.timeline.aggregators.AggregatorUtils.sliceFromTimelineMetric;
 import static org.apache.ambari.metrics.core.timeline.query.PhoenixTransactSQL.GET_METRIC_SQL;
 import static org.apache.ambari.metrics.core.timeline.query.PhoenixTransactSQL.METRICS_RECORD_TABLE_NAME;
 import static org.apache.hadoop.metrics2.sink.timeline.TimelineMetricUtils.getJavaMetricPatterns;
@@ -151,8 +150,9 @@ public class TimelineMetricClusterAggregatorSecond extends AbstractTimelineAggre
 
   Map<TimelineClusterMetric, MetricClusterAggregate> aggregateMetricsFromResultSet(ResultSet rs, List<Long[]> timeSlices)
     throws SQLException, IOException {
-    Map<TimelineClusterMetric, MetricClusterAggregate> aggregateClusterMetrics =
-      new HashMap<TimelineClusterMetric, MetricClusterAggregate>();
+    MetricTimeSlices metricTimeSlices = new MetricTimeSlices(timeSlices);
+    // Aggregates are accumulated per metric and only expanded per slice once all rows are read
+    Map<TimelineClusterMetric, TimeSliceAggregates> sliceAggregates = new HashMap<>();
 
     TimelineMetric metric = null;
     Map<String, MutableInt> hostedAppCounter = new HashMap<>();
@@ -176,7 +176,7 @@ public class TimelineMetricClusterAggregatorSecond extends AbstractTimelineAggre
           metric.addMetricValues(nextMetric.getMetricValues());
         } else {
           // Process the current metric
-          int numHosts = processAggregateClusterMetrics(aggregateClusterMetrics, metric, timeSlices);
+          int numHosts = processAggregateClusterMetrics(sliceAggregates, metric, metricTimeSlices);
           if (!hostedAppCounter.containsKey(metric.getAppId())) {
             hostedAppCounter.put(metric.getAppId(), new MutableInt(numHosts));
           } else {
@@ -191,7 +191,7 @@ public class TimelineMetricClusterAggregatorSecond extends AbstractTimelineAggre
     }
     // Process last metric
     if (metric != null) {
-      int numHosts = processAggregateClusterMetrics(aggregateClusterMetrics, metric, timeSlices);
+      int numHosts = processAggregateClusterMetrics(sliceAggregates, metric, metricTimeSlices);
       if (!hostedAppCounter.containsKey(metric.getAppId())) {
         hostedAppCounter.put(metric.getAppId(), new MutableInt(numHosts));
       } else {
@@ -202,6 +202,11 @@ public class TimelineMetricClusterAggregatorSecond extends AbstractTimelineAggre
       }
     }
 
+    Map<TimelineClusterMetric, MetricClusterAggregate> aggregateClusterMetrics = new HashMap<>();
+    for (TimeSliceAggregates aggregates : sliceAggregates.values()) {
+      aggregates.addTo(aggregateClusterMetrics, metricTimeSlices);
+    }
+
     // Add app level aggregates to save
     aggregateClusterMetrics.putAll(appAggregator.getAggregateClusterMetrics());
 
@@ -219,6 +224,23 @@ public class TimelineMetricClusterAggregatorSecond extends AbstractTimelineAggre
    */
   protected int processAggregateClusterMetrics(Map<TimelineClusterMetric, MetricClusterAggregate> aggregateClusterMetrics,
                                                TimelineMetric metric, List<Long[]> timeSlices) {
+    MetricTimeSlices metricTimeSlices = new MetricTimeSlices(timeSlices);
+    Map<TimelineClusterMetric, TimeSliceAggregates> sliceAggregates = new HashMap<>();
+    int numHosts = processAggregateClusterMetrics(sliceAggregates, metric, metricTimeSlices);
+    for (TimeSliceAggregates aggregates : sliceAggregates.values()) {
+      aggregates.addTo(aggregateClusterMetrics, metricTimeSlices);
+    }
+    return numHosts;
+  }
+
+  /**
+   * Slice the metric into the reusable slice buffers and add the slices to the aggregates of the
+   * metric across hosts.
+   *
+   * @return number of hosts of the metric
+   */
+  int processAggregateClusterMetrics(Map<TimelineClusterMetric, TimeSliceAggregates> sliceAggregates,
+                                     TimelineMetric metric, MetricTimeSlices metricTimeSlices) {
     // Create time slices
     TimelineMetricMetadataKey appKey =  new TimelineMetricMetadataKey(metric.getMetricName(), metric.getAppId(), metric.getInstanceId());
     TimelineMetricMetadata metricMetadata = metadataManagerInstance.getMetadataCacheValue(appKey);
@@ -230,39 +252,29 @@ public class TimelineMetricClusterAggregatorSecond extends AbstractTimelineAggre
 
     boolean skipInterpolationForMetric = shouldInterpolationBeSkipped(metric.getMetricName());
 
-    Map<TimelineClusterMetric, Double> clusterMetrics = sliceFromTimelineMetric(metric, timeSlices, !skipInterpolationForMetric && interpolationEnabled);
-
-    return aggregateClusterMetricsFromSlices(clusterMetrics, aggregateClusterMetrics, metric.getHostName());
-  }
+    if (!metricTimeSlices.slice(metric, !skipInterpolationForMetric && interpolationEnabled)) {
+      return 0;
+    }
 
-  protected int aggregateClusterMetricsFromSlices(Map<TimelineClusterMetric, Double> clusterMetrics,
-                                                  Map<TimelineClusterMetric, MetricClusterAggregate> aggregateClusterMetrics,
-                                                  String hostname) {
+    // Keyed without time, slices are indexes into the aggregate arrays
+    TimelineClusterMetric clusterMetric = new TimelineClusterMetric(metric.getMetricName(), metric.getAppId(),
+      metric.getInstanceId(), 0);
+    TimeSliceAggregates aggregates = sliceAggregates.get(clusterMetric);
+    if (aggregates == null) {
+      aggregates = new TimeSliceAggregates(metric.getMetricName(), metric.getAppId(), metric.getInstanceId(),
+        metricTimeSlices.size());
+      sliceAggregates.put(clusterMetric, aggregates);
+    }
 
     int numHosts = 0;
-    if (clusterMetrics != null && !clusterMetrics.isEmpty()) {
-      for (Map.Entry<TimelineClusterMetric, Double> clusterMetricEntry : clusterMetrics.entrySet()) {
-
-        TimelineClusterMetric clusterMetric = clusterMetricEntry.getKey();
-        Double avgValue = clusterMetricEntry.getValue();
-
-        MetricClusterAggregate aggregate = aggregateClusterMetrics.get(clusterMetric);
-
-        if (aggregate == null) {
-          aggregate = new MetricClusterAggregate(avgValue, 1, null, avgValue, avgValue);
-          aggregateClusterMetrics.put(clusterMetric, aggregate);
-        } else {
-          aggregate.updateSum(avgValue);
-          aggregate.updateNumberOfHosts(1);
-          aggregate.updateMax(avgValue);
-          aggregate.updateMin(avgValue);
-        }
-
-        numHosts = aggregate.getNumberOfHosts();
-        // Update app level aggregates
-        appAggregator.processTimelineClusterMetric(clusterMetric, hostname, avgValue);
+    for (int i = 0; i < metricTimeSlices.size(); i++) {
+      if (metricTimeSlices.hasValue(i)) {
+        numHosts = Math.max(numHosts, aggregates.update(i, metricTimeSlices.getValue(i)));
       }
     }
+    // Update app level aggregates
+    appAggregator.processTimeSlices(metric.getMetricName(), metric.getAppId(), metric.getInstanceId(),
+      metric.getHostName(), metricTimeSlices);
     return numHosts;
   }
 
@@ -44,6 +44,9 @@ public class AggregationTaskRunner {
   private HelixManager manager;
   private static final Log LOG = LogFactory.getLog(AggregationTaskRunner.class);
   private CheckpointManager checkpointManager;
+  private AggregatorShardManager shardManager;
+  private final int shardCount;
+  private final int shardStealLagCycles;
   // Map partition name to an aggregator dimension
   static final Map<String, TimelineMetricAggregator.AGGREGATOR_TYPE> PARTITION_AGGREGATION_TYPES = new HashMap<>();
   // Ownership flags to be set by the State transitions
@@ -77,9 +80,16 @@ public class AggregationTaskRunner {
   }
 
   public AggregationTaskRunner(String instanceName, String zkAddress, String clusterName) {
+    this(instanceName, zkAddress, clusterName, 1, 1);
+  }
+
+  public AggregationTaskRunner(String instanceName, String zkAddress, String clusterName,
+                               int shardCount, int shardStealLagCycles) {
     this.instanceName = instanceName;
     this.zkAddress = zkAddress;
     this.clusterName = clusterName;
+    this.shardCount = shardCount;
+    this.shardStealLagCycles = shardStealLagCycles;
   }
 
   public void initialize() throws Exception {
@@ -94,6 +104,7 @@ public class AggregationTaskRunner {
     manager.connect();
 
     checkpointManager = new CheckpointManager(manager.getHelixPropertyStore());
+    shardManager = new AggregatorShardManager(instanceName, manager, shardCount, shardStealLagCycles);
   }
 
   public boolean performsClusterAggregation() {
@@ -108,6 +119,18 @@ public class AggregationTaskRunner {
     return checkpointManager;
   }
 
+  public AggregatorShardManager getShardManager() {
+    return shardManager;
+  }
+
+  /**
+   * True if the aggregator is split in uuid ranges shared by all live collectors instead of
+   * being run by the owner of its partition.
+   */
+  public boolean isSharded(AGGREGATOR_NAME aggregatorName) {
+    return shardManager != null && shardManager.isSharded(aggregatorName);
+  }
+
   public void setPartitionAggregationFunction(TimelineMetricAggregator.AGGREGATOR_TYPE type) {
     switch (type) {
       case HOST:
@@ -136,6 +159,9 @@ public class AggregationTaskRunner {
    * Disconnect participant before controller shutdown
    */
   void stop() {
+    if (shardManager != null) {
+      shardManager.stop();
+    }
     manager.disconnect();
   }
 }
@@ -0,0 +1,123 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.metrics.core.timeline.availability;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One of the uuid ranges an aggregator's work is split into. Ranges are cut on the two leading
+ * bytes of the uuid, which belong to the metric uuid, so all hosts of a metric fall in the same
+ * shard.
+ */
+public class AggregatorShard {
+  static final int KEY_SPACE = 1 << 16;
+
+  private final AggregationTaskRunner.AGGREGATOR_NAME aggregatorName;
+  private final int index;
+  private final int count;
+
+  AggregatorShard(AggregationTaskRunner.AGGREGATOR_NAME aggregatorName, int index, int count) {
+    this.aggregatorName = aggregatorName;
+    this.index = index;
+    this.count = count;
+  }
+
+  /**
+   * Shards of the aggregator, a single shard covers all uuids.
+   */
+  public static List<AggregatorShard> getShards(AggregationTaskRunner.AGGREGATOR_NAME aggregatorName, int count) {
+    count = Math.max(1, Math.min(count, KEY_SPACE));
+    List<AggregatorShard> shards = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      shards.add(new AggregatorShard(aggregatorName, i, count));
+    }
+    return Collections.unmodifiableList(shards);
+  }
+
+  public AggregationTaskRunner.AGGREGATOR_NAME getAggregatorName() {
+    return aggregatorName;
+  }
+
+  public int getIndex() {
+    return index;
+  }
+
+  public int getCount() {
+    return count;
+  }
+
+  /**
+   * Inclusive lower bound of the range as a uuid of the given length, null for the first shard.
+   */
+  public byte[] getUuidRangeStart(int uuidLength) {
+    return index == 0 ? null : toUuid(boundary(index), uuidLength);
+  }
+
+  /**
+   * Exclusive upper bound of the range as a uuid of the given length, null for the last shard.
+   */
+  public byte[] getUuidRangeEnd(int uuidLength) {
+    return index == count - 1 ? null : toUuid(boundary(index + 1), uuidLength);
+  }
+
+  /**
+   * True if the uuid falls in this shard.
+   */
+  public boolean contains(byte[] uuid) {
+    int key = ((uuid[0] & 0xff) << 8) | (uuid.length > 1 ? uuid[1] & 0xff : 0);
+    return key >= boundary(index) && (index == count - 1 || key < boundary(index + 1));
+  }
+
+  private int boundary(int i) {
+    return (int) ((long) i * KEY_SPACE / count);
+  }
+
+  private static byte[] toUuid(int key, int uuidLength) {
+    byte[] uuid = new byte[uuidLength];
+    uuid[0] = (byte) (key >>> 8);
+    uuid[1] = (byte) key;
+    return uuid;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    AggregatorShard that = (AggregatorShard) o;
+    return index == that.index && count == that.count && aggregatorName == that.aggregatorName;
+  }
+
+  @Override
+  public int hashCode() {
+    int result = aggregatorName.hashCode();
+    result = 31 * result + index;
+    result = 31 * result + count;
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return AggregationTaskRunner.ACTUAL_AGGREGATOR_NAMES.get(aggregatorName) + "[" + index + "/" + count + "]";
+  }
+}
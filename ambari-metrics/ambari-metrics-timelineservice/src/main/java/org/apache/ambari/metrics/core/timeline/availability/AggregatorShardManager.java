@@ -0,0 +1,269 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.metrics.core.timeline.availability;
+
+import static org.apache.ambari.metrics.core.timeline.availability.AggregationTaskRunner.AGGREGATOR_NAME.METRIC_AGGREGATE_SECOND;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.I0Itec.zkclient.DataUpdater;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.helix.AccessOption;
+import org.apache.helix.HelixDataAccessor;
+import org.apache.helix.HelixManager;
+import org.apache.helix.ZNRecord;
+import org.apache.helix.store.zk.ZkHelixPropertyStore;
+import org.apache.zookeeper.data.Stat;
+
+/**
+ * Spreads the uuid range shards of the aggregators over the live collectors. Every shard has a
+ * preferred owner picked from the sorted live instances, which runs it first. A collector done
+ * with its own shards takes over shards of other collectors that are lagging. A shard is only
+ * run under a lease held in the Helix property store, so two collectors never run it at the
+ * same time. The lease is renewed while the shard runs and expires if its holder dies, a
+ * holder which lost its lease must not save the checkpoint of the shard.
+ */
+public class AggregatorShardManager {
+  private static final Log LOG = LogFactory.getLog(AggregatorShardManager.class);
+
+  static final String LEASE_PATH_PREFIX = "SHARD_LEASES";
+  static final String OWNER_FIELD = "owner";
+  static final String EXPIRY_FIELD = "expiry";
+  static final int RENEWALS_PER_LEASE = 3;
+
+  // The second aggregator also writes per application host counts, which need all metrics
+  static final Set<AggregationTaskRunner.AGGREGATOR_NAME> SHARDED_AGGREGATORS =
+    Collections.unmodifiableSet(EnumSet.complementOf(EnumSet.of(METRIC_AGGREGATE_SECOND)));
+
+  private final String instanceName;
+  private final HelixManager manager;
+  private final ZkHelixPropertyStore<ZNRecord> propertyStore;
+  private final int shardCount;
+  private final int stealLagCycles;
+  private final ConcurrentMap<AggregatorShard, ScheduledFuture<?>> leaseRenewals = new ConcurrentHashMap<>();
+  private final ScheduledExecutorService leaseRenewer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+    @Override
+    public Thread newThread(Runnable r) {
+      Thread thread = new Thread(r, "ams-shard-lease-renewer");
+      thread.setDaemon(true);
+      return thread;
+    }
+  });
+
+  public AggregatorShardManager(String instanceName, HelixManager manager, int shardCount, int stealLagCycles) {
+    this.instanceName = instanceName;
+    this.manager = manager;
+    this.propertyStore = manager.getHelixPropertyStore();
+    this.shardCount = shardCount;
+    this.stealLagCycles = stealLagCycles;
+  }
+
+  public boolean isSharded(AggregationTaskRunner.AGGREGATOR_NAME aggregatorName) {
+    return shardCount > 1 && SHARDED_AGGREGATORS.contains(aggregatorName);
+  }
+
+  public List<AggregatorShard> getShards(AggregationTaskRunner.AGGREGATOR_NAME aggregatorName) {
+    return AggregatorShard.getShards(aggregatorName, isSharded(aggregatorName) ? shardCount : 1);
+  }
+
+  /**
+   * True if this collector is the preferred owner of the shard among the live collectors.
+   */
+  public boolean isPreferredOwner(AggregatorShard shard) {
+    return instanceName.equals(getPreferredOwner(shard, getLiveInstances()));
+  }
+
+  /**
+   * True if a shard at the checkpoint is far enough behind for other collectors to take it over.
+   */
+  public boolean isLagging(long checkpoint, long currentTime, long sleepIntervalMillis) {
+    return isLagging(checkpoint, currentTime, sleepIntervalMillis, stealLagCycles);
+  }
+
+  /**
+   * Take the lease on the shard unless another collector holds an unexpired one. A lease taken
+   * is renewed every leaseMillis / RENEWALS_PER_LEASE until it is released.
+   *
+   * @return true if this collector holds the lease
+   */
+  public boolean acquireLease(final AggregatorShard shard, final long leaseMillis) {
+    final String path = getLeaseZKPath(shard);
+    long now = System.currentTimeMillis();
+    propertyStore.update(path, new LeaseDataUpdater(path, instanceName, now, now + leaseMillis),
+      AccessOption.PERSISTENT);
+    ZNRecord znRecord = propertyStore.get(path, new Stat(), AccessOption.PERSISTENT);
+    boolean acquired = isHeldBy(znRecord, instanceName, now);
+    if (!acquired) {
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("Lease on " + shard + " is held by " + (znRecord != null ? znRecord.getSimpleField(OWNER_FIELD) : null));
+      }
+      return false;
+    }
+
+    long renewalMillis = Math.max(1, leaseMillis / RENEWALS_PER_LEASE);
+    ScheduledFuture<?> renewal = leaseRenewer.scheduleWithFixedDelay(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          long now = System.currentTimeMillis();
+          propertyStore.update(path, new LeaseRenewalDataUpdater(path, instanceName, now, now + leaseMillis),
+            AccessOption.PERSISTENT);
+        } catch (Exception e) {
+          LOG.warn("Unable to renew lease on " + shard, e);
+        }
+      }
+    }, renewalMillis, renewalMillis, TimeUnit.MILLISECONDS);
+    ScheduledFuture<?> previous = leaseRenewals.put(shard, renewal);
+    if (previous != null) {
+      previous.cancel(false);
+    }
+    return true;
+  }
+
+  /**
+   * True if this collector holds an unexpired lease on the shard, checked before the results of
+   * the shard are committed.
+   */
+  public boolean holdsLease(AggregatorShard shard) {
+    ZNRecord znRecord = propertyStore.get(getLeaseZKPath(shard), new Stat(), AccessOption.PERSISTENT);
+    return isHeldBy(znRecord, instanceName, System.currentTimeMillis());
+  }
+
+  public void releaseLease(AggregatorShard shard) {
+    ScheduledFuture<?> renewal = leaseRenewals.remove(shard);
+    if (renewal != null) {
+      renewal.cancel(false);
+    }
+    String path = getLeaseZKPath(shard);
+    propertyStore.update(path, new LeaseDataUpdater(path, instanceName, 0, 0), AccessOption.PERSISTENT);
+  }
+
+  /**
+   * Stop renewing leases, the leases still held expire.
+   */
+  public void stop() {
+    leaseRenewer.shutdownNow();
+  }
+
+  List<String> getLiveInstances() {
+    HelixDataAccessor accessor = manager.getHelixDataAccessor();
+    return accessor.getChildNames(accessor.keyBuilder().liveInstances());
+  }
+
+  /**
+   * Shards are dealt round robin over the sorted live instances, starting at a different
+   * instance for every aggregator.
+   */
+  static String getPreferredOwner(AggregatorShard shard, List<String> liveInstances) {
+    if (liveInstances == null || liveInstances.isEmpty()) {
+      return null;
+    }
+    List<String> sortedInstances = new ArrayList<>(liveInstances);
+    Collections.sort(sortedInstances);
+    int position = (shard.getIndex() + shard.getAggregatorName().ordinal()) % sortedInstances.size();
+    return sortedInstances.get(position);
+  }
+
+  /**
+   * A shard is due once its checkpoint is one interval old, it lags when stealLagCycles more
+   * intervals have passed without its owner aggregating it.
+   */
+  static boolean isLagging(long checkpoint, long currentTime, long sleepIntervalMillis, int stealLagCycles) {
+    return checkpoint != -1 && currentTime - checkpoint >= (stealLagCycles + 1L) * sleepIntervalMillis;
+  }
+
+  static boolean isHeldBy(ZNRecord lease, String instanceName, long now) {
+    return lease != null && instanceName.equals(lease.getSimpleField(OWNER_FIELD))
+      && lease.getLongField(EXPIRY_FIELD, 0) > now;
+  }
+
+  String getLeaseZKPath(AggregatorShard shard) {
+    StringBuilder sb = new StringBuilder("/");
+    sb.append(LEASE_PATH_PREFIX);
+    sb.append("/");
+    sb.append(AggregationTaskRunner.ACTUAL_AGGREGATOR_NAMES.get(shard.getAggregatorName()));
+    sb.append("_SHARD_").append(shard.getIndex()).append("_OF_").append(shard.getCount());
+    return sb.toString();
+  }
+
+  /**
+   * Sets the lease holder and expiry unless another instance holds a lease which has not expired.
+   * Property store updates are retried on concurrent modification, so only one instance wins.
+   */
+  static class LeaseDataUpdater implements DataUpdater<ZNRecord> {
+    final String path;
+    final String instanceName;
+    final long now;
+    final long expiry;
+
+    LeaseDataUpdater(String path, String instanceName, long now, long expiry) {
+      this.path = path;
+      this.instanceName = instanceName;
+      this.now = now;
+      this.expiry = expiry;
+    }
+
+    @Override
+    public ZNRecord update(ZNRecord currentData) {
+      if (currentData == null) {
+        currentData = new ZNRecord(path);
+      }
+      String owner = currentData.getSimpleField(OWNER_FIELD);
+      if (owner != null && !owner.equals(instanceName) && currentData.getLongField(EXPIRY_FIELD, 0) > now) {
+        return currentData;
+      }
+      currentData.setSimpleField(OWNER_FIELD, instanceName);
+      currentData.setLongField(EXPIRY_FIELD, expiry);
+      return currentData;
+    }
+  }
+
+  /**
+   * Extends the lease only while the instance still holds it, a lease which expired or was taken
+   * over is not claimed back by its former holder.
+   */
+  static class LeaseRenewalDataUpdater extends LeaseDataUpdater {
+    LeaseRenewalDataUpdater(String path, String instanceName, long now, long expiry) {
+      super(path, instanceName, now, expiry);
+    }
+
+    @Override
+    public ZNRecord update(ZNRecord currentData) {
+      if (currentData == null) {
+        return new ZNRecord(path);
+      }
+      if (!isHeldBy(currentData, instanceName, now)) {
+        return currentData;
+      }
+      currentData.setLongField(EXPIRY_FIELD, expiry);
+      return currentData;
+    }
+  }
+}
@@ -66,6 +66,36 @@ public class CheckpointManager {
     return propertyStore.update(path, new CheckpointDataUpdater(path, value), AccessOption.PERSISTENT);
   }
 
+  /**
+   * Read the checkpoint of one shard of an aggregator, a shard without a checkpoint of its own
+   * continues from the checkpoint of the unsharded aggregator.
+   *
+   * @return timestamp
+   */
+  public long readCheckpoint(AggregatorShard shard) {
+    String path = getCheckpointZKPath(shard);
+    LOG.debug("Reading checkpoint at " + path);
+    ZNRecord znRecord = propertyStore.get(path, new Stat(), AccessOption.PERSISTENT);
+    if (znRecord == null) {
+      return readCheckpoint(shard.getAggregatorName());
+    }
+    long checkpoint = znRecord.getLongField(ZNODE_FIELD, -1);
+    LOG.debug("Checkpoint value = " + checkpoint);
+    return checkpoint;
+  }
+
+  /**
+   * Write the checkpoint of one shard of an aggregator in zookeeper
+   *
+   * @param value timestamp
+   * @return sucsess
+   */
+  public boolean writeCheckpoint(AggregatorShard shard, long value) {
+    String path = getCheckpointZKPath(shard);
+    LOG.debug(String.format("Saving checkpoint at %s with value %s", path, value));
+    return propertyStore.update(path, new CheckpointDataUpdater(path, value), AccessOption.PERSISTENT);
+  }
+
   static class CheckpointDataUpdater implements DataUpdater<ZNRecord> {
     final String path;
     final Long value;
@@ -92,4 +122,9 @@ public class CheckpointManager {
     sb.append(AggregationTaskRunner.ACTUAL_AGGREGATOR_NAMES.get(aggregatorName));
     return sb.toString();
   }
+
+  String getCheckpointZKPath(AggregatorShard shard) {
+    // Shards of a different split of the uuid space do not share checkpoints
+    return getCheckpointZKPath(shard.getAggregatorName()) + "_SHARD_" + shard.getIndex() + "_OF_" + shard.getCount();
+  }
 }
@@ -113,7 +113,8 @@ public class MetricCollectorHAController {
     instanceConfig.setPort(instancePort);
     instanceConfig.setInstanceEnabled(true);
     aggregationTaskRunner = new AggregationTaskRunner(
-      instanceConfig.getInstanceName(), zkConnectUrl, getClusterName());
+      instanceConfig.getInstanceName(), zkConnectUrl, getClusterName(),
+      configuration.getAggregatorShards(), configuration.getAggregatorShardStealLagCycles());
   }
 
   /**
@@ -311,20 +312,33 @@ public class MetricCollectorHAController {
   public Map<String, String> getAggregationSummary() {
     Map<String, String> summary = new HashMap<>();
 
-    CheckpointManager checkpointManager = aggregationTaskRunner.getCheckpointManager();
-
     summary.put(ACTUAL_AGGREGATOR_NAMES.get(AggregationTaskRunner.AGGREGATOR_NAME.METRIC_RECORD_MINUTE),
-      new Date(checkpointManager.readCheckpoint(AggregationTaskRunner.AGGREGATOR_NAME.METRIC_RECORD_MINUTE)).toString());
+      new Date(readCheckpoint(AggregationTaskRunner.AGGREGATOR_NAME.METRIC_RECORD_MINUTE)).toString());
     summary.put(ACTUAL_AGGREGATOR_NAMES.get(AggregationTaskRunner.AGGREGATOR_NAME.METRIC_RECORD_HOURLY),
-      new Date(checkpointManager.readCheckpoint(AggregationTaskRunner.AGGREGATOR_NAME.METRIC_RECORD_HOURLY)).toString());
+      new Date(readCheckpoint(AggregationTaskRunner.AGGREGATOR_NAME.METRIC_RECORD_HOURLY)).toString());
 
     summary.put(ACTUAL_AGGREGATOR_NAMES.get(AggregationTaskRunner.AGGREGATOR_NAME.METRIC_AGGREGATE_SECOND),
-      new Date(checkpointManager.readCheckpoint(AggregationTaskRunner.AGGREGATOR_NAME.METRIC_AGGREGATE_SECOND)).toString());
+      new Date(readCheckpoint(AggregationTaskRunner.AGGREGATOR_NAME.METRIC_AGGREGATE_SECOND)).toString());
     summary.put(ACTUAL_AGGREGATOR_NAMES.get(AggregationTaskRunner.AGGREGATOR_NAME.METRIC_AGGREGATE_MINUTE),
-      new Date(checkpointManager.readCheckpoint(AggregationTaskRunner.AGGREGATOR_NAME.METRIC_AGGREGATE_MINUTE)).toString());
+      new Date(readCheckpoint(AggregationTaskRunner.AGGREGATOR_NAME.METRIC_AGGREGATE_MINUTE)).toString());
     summary.put(ACTUAL_AGGREGATOR_NAMES.get(AggregationTaskRunner.AGGREGATOR_NAME.METRIC_AGGREGATE_HOURLY),
-      new Date(checkpointManager.readCheckpoint(AggregationTaskRunner.AGGREGATOR_NAME.METRIC_AGGREGATE_HOURLY)).toString());
+      new Date(readCheckpoint(AggregationTaskRunner.AGGREGATOR_NAME.METRIC_AGGREGATE_HOURLY)).toString());
 
     return summary;
   }
+
+  /**
+   * Checkpoint of an aggregator, the oldest shard checkpoint if it is sharded.
+   */
+  private long readCheckpoint(AggregationTaskRunner.AGGREGATOR_NAME aggregatorName) {
+    CheckpointManager checkpointManager = aggregationTaskRunner.getCheckpointManager();
+    if (!aggregationTaskRunner.isSharded(aggregatorName)) {
+      return checkpointManager.readCheckpoint(aggregatorName);
+    }
+    long checkpoint = Long.MAX_VALUE;
+    for (AggregatorShard shard : aggregationTaskRunner.getShardManager().getShards(aggregatorName)) {
+      checkpoint = Math.min(checkpoint, checkpointManager.readCheckpoint(shard));
+    }
+    return checkpoint;
+  }
 }
@@ -48,6 +48,8 @@ public class DefaultCondition implements Condition {
   boolean hostNamesNotCondition = false;
   boolean uuidNotCondition = false;
   List<byte[]> uuids = new ArrayList<>();
+  byte[] uuidRangeStart;
+  byte[] uuidRangeEnd;
 
   private static final Log LOG = LogFactory.getLog(DefaultCondition.class);
 
@@ -258,6 +260,10 @@ public class DefaultCondition implements Condition {
       sb.append(")");
     }
 
+    // UUID >= ? AND UUID < ?
+    appendConjunction = append(sb, appendConjunction, uuidRangeStart, " UUID >= ?");
+    appendConjunction = append(sb, appendConjunction, uuidRangeEnd, " UUID < ?");
+
     return appendConjunction;
   }
 
@@ -310,11 +316,49 @@ public class DefaultCondition implements Condition {
     this.uuidNotCondition = uuidNotCondition;
   }
 
+  public boolean isMetricNamesNotCondition() {
+    return metricNamesNotCondition;
+  }
+
+  /**
+   * Copy of this condition which reads the given uuids, grouped as requested.
+   */
+  public DefaultCondition copyForUuids(List<byte[]> uuids, boolean grouped) {
+    DefaultCondition copy = new DefaultCondition(uuids, metricNames, hostnames, appId, instanceId,
+      startTime, endTime, precision, limit, grouped);
+    copy.noLimit = noLimit;
+    copy.fetchSize = fetchSize;
+    copy.statement = statement;
+    copy.orderByColumns = new LinkedHashSet<>(orderByColumns);
+    copy.metricNamesNotCondition = metricNamesNotCondition;
+    copy.hostNamesNotCondition = hostNamesNotCondition;
+    copy.uuidNotCondition = uuidNotCondition;
+    copy.uuidRangeStart = uuidRangeStart;
+    copy.uuidRangeEnd = uuidRangeEnd;
+    return copy;
+  }
+
   @Override
   public List<byte[]> getUuids() {
     return uuids;
   }
 
+  /**
+   * Restrict the rows read to the uuids in [start, end), a null bound leaves that side open.
+   */
+  public void setUuidRange(byte[] start, byte[] end) {
+    this.uuidRangeStart = start;
+    this.uuidRangeEnd = end;
+  }
+
+  public byte[] getUuidRangeStart() {
+    return uuidRangeStart;
+  }
+
+  public byte[] getUuidRangeEnd() {
+    return uuidRangeEnd;
+  }
+
   @Override
   public List<String> getTransientMetricNames() {
     return Collections.EMPTY_LIST;
@@ -0,0 +1,64 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.metrics.core.timeline.query;
+
+import org.apache.hadoop.metrics2.sink.timeline.Precision;
+
+/**
+ * Precision table a metrics read is served from and, if its rows are too fine grained to fit
+ * in the result set limit, the width of the time buckets they are grouped into by Phoenix.
+ */
+public class MetricQueryPlan {
+  private final Precision precision;
+  private final long bucketMillis;
+
+  MetricQueryPlan(Precision precision, long bucketMillis) {
+    this.precision = precision;
+    this.bucketMillis = bucketMillis;
+  }
+
+  public Precision getPrecision() {
+    return precision;
+  }
+
+  /**
+   * @return bucket width in milliseconds, 0 if rows are read at the table resolution
+   */
+  public long getBucketMillis() {
+    return bucketMillis;
+  }
+
+  public boolean isDownsampled() {
+    return bucketMillis > 0;
+  }
+
+  /**
+   * @return expression truncating SERVER_TIME to the start of its bucket
+   */
+  String getServerTimeExpression() {
+    return isDownsampled() ? "SERVER_TIME / " + bucketMillis + " * " + bucketMillis : "SERVER_TIME";
+  }
+
+  @Override
+  public String toString() {
+    return "MetricQueryPlan{" +
+      "precision=" + precision +
+      ", bucketMillis=" + bucketMillis +
+      '}';
+  }
+}
@@ -21,10 +21,12 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
 import org.apache.ambari.metrics.core.timeline.TimelineMetricConfiguration;
+import org.apache.ambari.metrics.core.timeline.aggregators.Function.ReadFunction;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -501,10 +503,22 @@ public class PhoenixTransactSQL {
 
   public static PreparedStatement prepareGetMetricsSqlStmt(Connection connection,
                                                            Condition condition) throws SQLException {
+    return prepareGetMetricsSqlStmt(connection, condition, null);
+  }
+
+  /**
+   * @param readFunctions functions applied to the rows read, if known only the columns they need
+   *                      are selected and a read without precision may be downsampled by Phoenix
+   */
+  public static PreparedStatement prepareGetMetricsSqlStmt(Connection connection,
+                                                           Condition condition,
+                                                           Set<ReadFunction> readFunctions) throws SQLException {
 
     validateConditionIsNotEmpty(condition);
     validateRowCountLimit(condition);
 
+    boolean planned = isPlannable(condition, readFunctions);
+    MetricQueryPlan plan = null;
     String stmtStr;
     if (condition.getStatement() != null) {
       stmtStr = condition.getStatement();
@@ -512,10 +526,18 @@ public class PhoenixTransactSQL {
       String metricsTable;
       String query;
       if (condition.getPrecision() == null) {
-        condition.setPrecision(getBestPrecisionForCondition(condition));
+        if (planned) {
+          plan = planQuery(condition);
+          condition.setPrecision(plan.getPrecision());
+        } else {
+          condition.setPrecision(getBestPrecisionForCondition(condition));
+        }
       } else {
         condition.setNoLimit();
       }
+      if (plan == null) {
+        plan = new MetricQueryPlan(condition.getPrecision(), 0);
+      }
       switch (condition.getPrecision()) {
         case DAYS:
           metricsTable = METRICS_AGGREGATE_DAILY_TABLE_NAME;
@@ -534,6 +556,10 @@ public class PhoenixTransactSQL {
           query = GET_METRIC_SQL;
       }
 
+      if (planned) {
+        boolean readMetricsBlob = plan.getPrecision() == Precision.SECONDS;
+        query = getSelectSql(plan, readFunctions, "METRIC_COUNT", readMetricsBlob, false);
+      }
       stmtStr = String.format(query, metricsTable);
     }
 
@@ -545,6 +571,8 @@ public class PhoenixTransactSQL {
       String orderByClause = condition.getOrderByClause(true);
       if (orderByClause != null) {
         sb.append(orderByClause);
+      } else if (plan != null && plan.isDownsampled()) {
+        appendGroupByTimeBucket(sb, plan);
       } else {
         sb.append(" ORDER BY UUID, SERVER_TIME ");
       }
@@ -681,6 +709,115 @@ public class PhoenixTransactSQL {
     return precisions[i];
   }
 
+  /**
+   * Only reads with known functions and the default ordering are planned, custom statements
+   * and top N queries are left untouched.
+   */
+  private static boolean isPlannable(Condition condition, Set<ReadFunction> readFunctions) {
+    return readFunctions != null && !readFunctions.isEmpty()
+      && condition.getStatement() == null
+      && !(condition instanceof TopNCondition)
+      && !(condition instanceof EmptyCondition)
+      && condition.getOrderByClause(true) == null;
+  }
+
+  /**
+   * Given a condition without precision, find the cheapest table for the resolution that fits in
+   * the result set limit. That is the coarsest aggregate table, still covering the start time,
+   * whose rows are at least as fine as the resolution. Its rows are grouped into buckets of that
+   * resolution by Phoenix, so wide time ranges are returned in one pass instead of being
+   * truncated at the limit. If no aggregate table is fine enough, falls back to
+   * {@link #getBestPrecisionForCondition(Condition)}.
+   * @param condition
+   * @return
+   */
+  public static MetricQueryPlan planQuery(Condition condition) {
+    List<String> metricNames = condition.getMetricNames();
+    List<String> hostNames = condition.getHostnames();
+    boolean withHosts = CollectionUtils.isNotEmpty(hostNames);
+    long range = condition.getEndTime() - condition.getStartTime();
+
+    if (CollectionUtils.isNotEmpty(metricNames) && range > 0) {
+      long numSeries = (long) metricNames.size() * (withHosts ? hostNames.size() : 1);
+      // Leave room for the partial buckets at both ends of the range
+      long pointsPerSeries = RESULTSET_LIMIT / numSeries - 1;
+      if (pointsPerSeries > 0) {
+        long resolution = (range + pointsPerSeries - 1) / pointsPerSeries;
+        long currentTime = System.currentTimeMillis();
+        Precision[] precisions = {Precision.DAYS, Precision.HOURS, Precision.MINUTES};
+        for (Precision precision : precisions) {
+          long interval = getIntervalForPrecision(precision, withHosts);
+          long ttl = getTtlForPrecision(precision, withHosts);
+          if (interval <= resolution && currentTime - ttl * 1000 <= condition.getStartTime()) {
+            long bucket = (resolution + interval - 1) / interval * interval;
+            return new MetricQueryPlan(precision, bucket > interval ? bucket : 0);
+          }
+        }
+      }
+    }
+    return new MetricQueryPlan(getBestPrecisionForCondition(condition), 0);
+  }
+
+  /**
+   * @return interval between two rows of a metric in the table of the given precision
+   */
+  private static long getIntervalForPrecision(Precision precision, boolean withHosts) {
+    switch (precision) {
+      case DAYS:
+        return TimeUnit.DAYS.toMillis(1);
+      case HOURS:
+        return TimeUnit.HOURS.toMillis(1);
+      case MINUTES:
+        return TimeUnit.SECONDS.toMillis(withHosts ? PhoenixHBaseAccessor.hostMinuteAggregatorDataInterval
+          : PhoenixHBaseAccessor.clusterMinuteAggregatorDataInterval);
+      default:
+        return TimeUnit.SECONDS.toMillis(withHosts ? 60 : PhoenixHBaseAccessor.clusterSecondAggregatorDataInterval);
+    }
+  }
+
+  /**
+   * Select only the columns read by the given functions. Downsampled rows are rolled up the same
+   * way the aggregators do: host metrics are summed, cluster metrics are averaged over time.
+   */
+  private static String getSelectSql(MetricQueryPlan plan, Set<ReadFunction> readFunctions,
+                                     String countColumn, boolean readMetricsBlob, boolean clusterTable) {
+    boolean downsampled = plan.isDownsampled();
+    String sum = clusterTable ? "AVG(METRIC_SUM)" : "SUM(METRIC_SUM)";
+    String count = clusterTable ? "ROUND(AVG(" + countColumn + "))" : "SUM(" + countColumn + ")";
+
+    StringBuilder sb = new StringBuilder("SELECT UUID, ");
+    sb.append(plan.getServerTimeExpression());
+    if (downsampled) {
+      sb.append(" AS SERVER_TIME");
+    }
+    if (readFunctions.contains(ReadFunction.VALUE) && readMetricsBlob) {
+      sb.append(", METRICS");
+    }
+    if (readFunctions.contains(ReadFunction.AVG) || readFunctions.contains(ReadFunction.SUM)
+      || (readFunctions.contains(ReadFunction.VALUE) && !readMetricsBlob)) {
+      if (downsampled) {
+        sb.append(", ").append(sum).append(" AS METRIC_SUM, ")
+          .append(count).append(" AS ").append(countColumn);
+      } else {
+        sb.append(", METRIC_SUM, ").append(countColumn);
+      }
+    }
+    if (readFunctions.contains(ReadFunction.MAX)) {
+      sb.append(downsampled ? ", MAX(METRIC_MAX) AS METRIC_MAX" : ", METRIC_MAX");
+    }
+    if (readFunctions.contains(ReadFunction.MIN)) {
+      sb.append(downsampled ? ", MIN(METRIC_MIN) AS METRIC_MIN" : ", METRIC_MIN");
+    }
+    sb.append(" FROM %s");
+    return sb.toString();
+  }
+
+  private static void appendGroupByTimeBucket(StringBuilder sb, MetricQueryPlan plan) {
+    String serverTime = plan.getServerTimeExpression();
+    sb.append(" GROUP BY UUID, ").append(serverTime);
+    sb.append(" ORDER BY UUID, ").append(serverTime).append(" ");
+  }
+
   private static long getTtlForPrecision(Precision precision, boolean withHosts) {
     TimelineMetricConfiguration configuration = TimelineMetricConfiguration.getInstance();
 
@@ -742,17 +879,36 @@ public class PhoenixTransactSQL {
 
   public static PreparedStatement prepareGetAggregateSqlStmt(
     Connection connection, Condition condition) throws SQLException {
+    return prepareGetAggregateSqlStmt(connection, condition, null);
+  }
+
+  /**
+   * @param readFunctions functions applied to the rows read, if known only the columns they need
+   *                      are selected and a read without precision may be downsampled by Phoenix
+   */
+  public static PreparedStatement prepareGetAggregateSqlStmt(
+    Connection connection, Condition condition, Set<ReadFunction> readFunctions) throws SQLException {
 
     validateConditionIsNotEmpty(condition);
     validateRowCountLimit(condition);
 
+    boolean planned = isPlannable(condition, readFunctions);
+    MetricQueryPlan plan = null;
     String metricsAggregateTable;
     String queryStmt;
     if (condition.getPrecision() == null) {
-      condition.setPrecision(getBestPrecisionForCondition(condition));
+      if (planned) {
+        plan = planQuery(condition);
+        condition.setPrecision(plan.getPrecision());
+      } else {
+        condition.setPrecision(getBestPrecisionForCondition(condition));
+      }
     } else {
       condition.setNoLimit();
     }
+    if (plan == null) {
+      plan = new MetricQueryPlan(condition.getPrecision(), 0);
+    }
     switch (condition.getPrecision()) {
       case DAYS:
         metricsAggregateTable = METRICS_CLUSTER_AGGREGATE_DAILY_TABLE_NAME;
@@ -771,12 +927,20 @@ public class PhoenixTransactSQL {
         queryStmt = GET_CLUSTER_AGGREGATE_SQL;
     }
 
+    if (planned) {
+      String countColumn = plan.getPrecision() == Precision.SECONDS ? "HOSTS_COUNT" : "METRIC_COUNT";
+      queryStmt = getSelectSql(plan, readFunctions, countColumn, false, true);
+    }
     queryStmt = String.format(queryStmt, metricsAggregateTable);
 
     StringBuilder sb = new StringBuilder(queryStmt);
     sb.append(" WHERE ");
     sb.append(condition.getConditionClause());
-    sb.append(" ORDER BY UUID, SERVER_TIME");
+    if (plan.isDownsampled()) {
+      appendGroupByTimeBucket(sb, plan);
+    } else {
+      sb.append(" ORDER BY UUID, SERVER_TIME");
+    }
     if (condition.getLimit() != null) {
       sb.append(" LIMIT ").append(condition.getLimit());
     }
@@ -1032,6 +1196,15 @@ public class PhoenixTransactSQL {
         stmt.setBytes(pos, condition.getUuids().get(pos2 - 1));
       }
     }
+    if (condition instanceof DefaultCondition) {
+      DefaultCondition defaultCondition = (DefaultCondition) condition;
+      if (defaultCondition.getUuidRangeStart() != null) {
+        stmt.setBytes(pos++, defaultCondition.getUuidRangeStart());
+      }
+      if (defaultCondition.getUuidRangeEnd() != null) {
+        stmt.setBytes(pos++, defaultCondition.getUuidRangeEnd());
+      }
+    }
     return pos;
   }
 
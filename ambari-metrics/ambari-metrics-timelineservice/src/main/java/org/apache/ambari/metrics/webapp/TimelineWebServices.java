@@ -127,6 +127,8 @@ public class TimelineWebServices {
   /**
    * Store the given metrics into the timeline store, and return errors that
    * happened during storing.
+   * Gzip compressed requests (Content-Encoding: gzip) are decoded by the
+   * GZIPContentEncodingFilter which the YARN WebApp registers with Jersey.
    */
   @Path("/metrics")
   @POST
@@ -0,0 +1,244 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.metrics.core.timeline;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.capture;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ambari.metrics.core.timeline.aggregators.Function;
+import org.apache.ambari.metrics.core.timeline.query.Condition;
+import org.apache.ambari.metrics.core.timeline.query.DefaultCondition;
+import org.apache.hadoop.metrics2.sink.timeline.TimelineMetric;
+import org.apache.hadoop.metrics2.sink.timeline.TimelineMetrics;
+import org.easymock.Capture;
+import org.easymock.CaptureType;
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Multimap;
+
+public class ParallelMetricQueryExecutorTest {
+
+  @Test
+  public void testPartitionBySplitPointsAndSize() {
+    List<byte[]> uuids = new ArrayList<>();
+    for (int i = 10; i > 0; i--) {
+      uuids.add(new byte[] {(byte) i, 1});
+    }
+    uuids.add(new byte[] {(byte) 0x80, 1});
+
+    List<List<byte[]>> partitions = ParallelMetricQueryExecutor.partition(uuids,
+      Collections.singletonList(new byte[] {5}), 3);
+
+    Assert.assertEquals(5, partitions.size());
+    assertPartition(partitions.get(0), 1, 2, 3);
+    assertPartition(partitions.get(1), 4);
+    assertPartition(partitions.get(2), 5, 6, 7);
+    assertPartition(partitions.get(3), 8, 9, 10);
+    // uuids are compared as unsigned bytes, like HBase row keys
+    assertPartition(partitions.get(4), 0x80);
+  }
+
+  @Test
+  public void testPartitionsAreMerged() throws Exception {
+    PhoenixHBaseAccessor accessor = EasyMock.createNiceMock(PhoenixHBaseAccessor.class);
+    expect(accessor.getPrecisionSplitPoints()).andReturn(Collections.singletonList(new byte[] {3})).anyTimes();
+    expect(accessor.getMetricRecords(anyObject(Condition.class), anyObject(Multimap.class)))
+      .andAnswer(new MetricRecordsAnswer(0)).anyTimes();
+    replay(accessor);
+
+    ParallelMetricQueryExecutor executor = new ParallelMetricQueryExecutor(accessor, 4, 1, 10000);
+    try {
+      TimelineMetrics metrics = executor.getMetricRecords(newCondition(1, 2, 3, 4), newFunctions(), false);
+      Assert.assertEquals(4, metrics.getMetrics().size());
+      Assert.assertNull(metrics.getPartialResult());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testPartialResultOnTimeout() throws Exception {
+    PhoenixHBaseAccessor accessor = EasyMock.createNiceMock(PhoenixHBaseAccessor.class);
+    expect(accessor.getAggregateSplitPoints()).andReturn(Collections.<byte[]>emptyList()).anyTimes();
+    expect(accessor.getAggregateMetricRecords(anyObject(Condition.class), anyObject(Multimap.class)))
+      .andAnswer(new MetricRecordsAnswer(4)).anyTimes();
+    replay(accessor);
+
+    ParallelMetricQueryExecutor executor = new ParallelMetricQueryExecutor(accessor, 2, 1, 500);
+    try {
+      long start = System.nanoTime();
+      TimelineMetrics metrics = executor.getMetricRecords(newCondition(1, 2, 3, 4), newFunctions(), true);
+      Assert.assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 5);
+      Assert.assertEquals(2, metrics.getMetrics().size());
+      Assert.assertTrue(metrics.getPartialResult());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testLimitAppliesToWholeResult() throws Exception {
+    PhoenixHBaseAccessor accessor = EasyMock.createNiceMock(PhoenixHBaseAccessor.class);
+    expect(accessor.getPrecisionSplitPoints()).andReturn(Collections.<byte[]>emptyList()).anyTimes();
+    Capture<Condition> conditions = EasyMock.newCapture(CaptureType.ALL);
+    expect(accessor.getMetricRecords(capture(conditions), anyObject(Multimap.class)))
+      .andAnswer(new MetricRecordsAnswer(0)).anyTimes();
+    replay(accessor);
+
+    ParallelMetricQueryExecutor executor = new ParallelMetricQueryExecutor(accessor, 4, 1, 10000);
+    try {
+      DefaultCondition condition = newLimitedCondition(3, 4, 3, 2, 1);
+      TimelineMetrics metrics = executor.getMetricRecords(condition, newFunctions(), false);
+
+      // the first rows in uuid order, as a single query would return
+      Assert.assertEquals(3, metrics.getMetrics().size());
+      for (int i = 0; i < 3; i++) {
+        Assert.assertEquals("h" + (i + 1), metrics.getMetrics().get(i).getHostName());
+      }
+      Assert.assertEquals(4, conditions.getValues().size());
+      for (Condition partitionCondition : conditions.getValues()) {
+        Assert.assertEquals(Integer.valueOf(3), partitionCondition.getLimit());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testPartitionConditionKeepsQueryOptions() throws Exception {
+    PhoenixHBaseAccessor accessor = EasyMock.createNiceMock(PhoenixHBaseAccessor.class);
+    expect(accessor.getPrecisionSplitPoints()).andReturn(Collections.<byte[]>emptyList()).anyTimes();
+    Capture<Condition> conditions = EasyMock.newCapture(CaptureType.ALL);
+    expect(accessor.getMetricRecords(capture(conditions), anyObject(Multimap.class)))
+      .andAnswer(new MetricRecordsAnswer(0)).anyTimes();
+    replay(accessor);
+
+    ParallelMetricQueryExecutor executor = new ParallelMetricQueryExecutor(accessor, 2, 1, 10000);
+    try {
+      DefaultCondition condition = newCondition(1, 2, 3, 4);
+      condition.setNoLimit();
+      condition.setFetchSize(100);
+      executor.getMetricRecords(condition, newFunctions(), false);
+
+      Assert.assertEquals(2, conditions.getValues().size());
+      for (Condition partitionCondition : conditions.getValues()) {
+        Assert.assertNull(partitionCondition.getLimit());
+        Assert.assertEquals(Integer.valueOf(100), partitionCondition.getFetchSize());
+        Assert.assertEquals(2, partitionCondition.getUuids().size());
+      }
+
+      // the uuids of a NOT IN clause are not split
+      conditions.reset();
+      condition.setMetricNamesNotCondition(true);
+      executor.getMetricRecords(condition, newFunctions(), false);
+      Assert.assertEquals(1, conditions.getValues().size());
+      Assert.assertSame(condition, conditions.getValue());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testTimeoutCoversQueuedPartitions() throws Exception {
+    // many more partitions than threads, all of them blocking
+    int[] uuids = new int[40];
+    for (int i = 0; i < uuids.length; i++) {
+      uuids[i] = i + 1;
+    }
+    DefaultCondition condition = newCondition(uuids);
+
+    PhoenixHBaseAccessor accessor = EasyMock.createNiceMock(PhoenixHBaseAccessor.class);
+    expect(accessor.getPrecisionSplitPoints()).andReturn(condition.getUuids()).anyTimes();
+    expect(accessor.getMetricRecords(anyObject(Condition.class), anyObject(Multimap.class)))
+      .andAnswer(new MetricRecordsAnswer(MetricRecordsAnswer.ALL)).anyTimes();
+    replay(accessor);
+
+    ParallelMetricQueryExecutor executor = new ParallelMetricQueryExecutor(accessor, 2, 1, 500);
+    try {
+      long start = System.nanoTime();
+      TimelineMetrics metrics = executor.getMetricRecords(condition, newFunctions(), false);
+      Assert.assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 5);
+      Assert.assertTrue(metrics.getPartialResult());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private static void assertPartition(List<byte[]> partition, int... firstBytes) {
+    Assert.assertEquals(firstBytes.length, partition.size());
+    for (int i = 0; i < firstBytes.length; i++) {
+      Assert.assertEquals((byte) firstBytes[i], partition.get(i)[0]);
+    }
+  }
+
+  private static DefaultCondition newCondition(int... firstBytes) {
+    return newLimitedCondition(null, firstBytes);
+  }
+
+  private static DefaultCondition newLimitedCondition(Integer limit, int... firstBytes) {
+    List<byte[]> uuids = new ArrayList<>();
+    for (int firstByte : firstBytes) {
+      uuids.add(new byte[] {(byte) firstByte});
+    }
+    return new DefaultCondition(uuids, Collections.singletonList("cpu_user"), Collections.singletonList("h1"),
+      "a1", null, 0L, 1000L, null, limit, false);
+  }
+
+  private static Multimap<String, List<Function>> newFunctions() {
+    Multimap<String, List<Function>> functions = ArrayListMultimap.create();
+    functions.put("cpu_user", Arrays.asList(Function.DEFAULT_VALUE_FUNCTION));
+    return functions;
+  }
+
+  /**
+   * Returns one metric per uuid, blocks on reading the given uuid.
+   */
+  private static class MetricRecordsAnswer implements IAnswer<TimelineMetrics> {
+    static final int ALL = -1;
+    private final int blockingUuid;
+
+    MetricRecordsAnswer(int blockingUuid) {
+      this.blockingUuid = blockingUuid;
+    }
+
+    @Override
+    public TimelineMetrics answer() throws Throwable {
+      Condition condition = (Condition) EasyMock.getCurrentArguments()[0];
+      TimelineMetrics metrics = new TimelineMetrics();
+      for (byte[] uuid : condition.getUuids()) {
+        if (uuid[0] == blockingUuid || blockingUuid == ALL) {
+          Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+        }
+        metrics.getMetrics().add(new TimelineMetric("cpu_user", "h" + uuid[0], "a1", null));
+      }
+      return metrics;
+    }
+  }
+}
@@ -0,0 +1,181 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.metrics.core.timeline;
+
+import static org.easymock.EasyMock.anyLong;
+import static org.easymock.EasyMock.anyString;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.getCurrentArguments;
+import static org.easymock.EasyMock.replay;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ambari.metrics.core.timeline.query.ConnectionProvider;
+import org.apache.hadoop.metrics2.sink.timeline.TimelineMetric;
+import org.apache.hadoop.metrics2.sink.timeline.TimelineMetrics;
+import org.easymock.IAnswer;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PhoenixMetricsWriterTest {
+
+  @Test
+  public void testAdaptBatchSize() {
+    // Fast full batch grows, up to the max
+    Assert.assertEquals(2000, PhoenixMetricsWriter.adaptBatchSize(1000, 1000, 100, 1000, 500, 5000));
+    Assert.assertEquals(5000, PhoenixMetricsWriter.adaptBatchSize(4000, 4000, 100, 1000, 500, 5000));
+    // Partial batches say nothing about larger ones
+    Assert.assertEquals(1000, PhoenixMetricsWriter.adaptBatchSize(1000, 10, 100, 1000, 500, 5000));
+    Assert.assertEquals(1000, PhoenixMetricsWriter.adaptBatchSize(1000, 1000, 700, 1000, 500, 5000));
+    // Slow commit shrinks, down to the min
+    Assert.assertEquals(500, PhoenixMetricsWriter.adaptBatchSize(1000, 10, 1500, 1000, 500, 5000));
+    Assert.assertEquals(500, PhoenixMetricsWriter.adaptBatchSize(600, 600, 1500, 1000, 500, 5000));
+  }
+
+  @Test(timeout = 30000)
+  public void testFailedCommitIsRetried() throws Exception {
+    final AtomicInteger updates = new AtomicInteger();
+    final Set<Long> committedRows = new HashSet<>();
+    final List<Long> pendingRows = new ArrayList<>();
+    final AtomicInteger commitAttempts = new AtomicInteger();
+
+    final PreparedStatement stmt = createNiceMock(PreparedStatement.class);
+    stmt.setLong(eq(2), anyLong());
+    expectLastCall().andAnswer(new IAnswer<Object>() {
+      @Override
+      public Object answer() throws Throwable {
+        synchronized (pendingRows) {
+          pendingRows.add((Long) getCurrentArguments()[1]);
+        }
+        return null;
+      }
+    }).anyTimes();
+    expect(stmt.executeUpdate()).andAnswer(new IAnswer<Integer>() {
+      @Override
+      public Integer answer() throws Throwable {
+        updates.incrementAndGet();
+        return 1;
+      }
+    }).anyTimes();
+
+    final Connection conn = createNiceMock(Connection.class);
+    expect(conn.prepareStatement(anyString())).andReturn(stmt).anyTimes();
+    conn.commit();
+    expectLastCall().andAnswer(new IAnswer<Object>() {
+      @Override
+      public Object answer() throws Throwable {
+        synchronized (pendingRows) {
+          if (commitAttempts.incrementAndGet() == 1) {
+            pendingRows.clear();
+            throw new SQLException("RegionServer unavailable");
+          }
+          committedRows.addAll(pendingRows);
+          pendingRows.clear();
+        }
+        return null;
+      }
+    }).anyTimes();
+    replay(stmt, conn);
+
+    PhoenixMetricsWriter writer = new PhoenixMetricsWriter(new ConnectionProvider() {
+      @Override
+      public Connection getConnection() throws SQLException {
+        return conn;
+      }
+    }, null, 1, 100, 10, 100, 1000, 2);
+
+    List<PhoenixMetricsWriter.MetricRow> rows = new ArrayList<>();
+    for (long i = 0; i < 10; i++) {
+      rows.add(new PhoenixMetricsWriter.MetricRow(new byte[] {(byte) i}, i, new double[] {1, 1, 1, 1},
+        "{}", new TreeMap<Long, Double>()));
+    }
+    writer.write(rows);
+
+    while (true) {
+      synchronized (pendingRows) {
+        if (committedRows.size() == rows.size()) {
+          break;
+        }
+      }
+      Thread.sleep(100);
+    }
+    writer.stop();
+
+    Assert.assertEquals(2, commitAttempts.get());
+    Assert.assertEquals(20, updates.get());
+    Assert.assertEquals(0, writer.getQueueDepth());
+
+    TimelineMetrics metrics = writer.getWriterMetrics("h1", "ams-collector");
+    Assert.assertEquals(5, metrics.getMetrics().size());
+    for (TimelineMetric metric : metrics.getMetrics()) {
+      Assert.assertEquals("h1", metric.getHostName());
+      if (metric.getMetricName().equals(PhoenixMetricsWriter.ROWS_DROPPED)) {
+        Assert.assertEquals(0.0, metric.getMetricValues().firstEntry().getValue(), 0);
+      }
+    }
+  }
+
+  @Test(timeout = 30000)
+  public void testRowsAreTakenWhileStoreIsFailing() throws Exception {
+    final AtomicInteger connectionAttempts = new AtomicInteger();
+    PhoenixMetricsWriter writer = new PhoenixMetricsWriter(new ConnectionProvider() {
+      @Override
+      public Connection getConnection() throws SQLException {
+        connectionAttempts.incrementAndGet();
+        throw new SQLException("HBase unavailable");
+      }
+    }, null, 1, 5, 5, 5, 1000, 2);
+
+    // Far more rows than the writer queue and the retry queue hold, only written if the
+    // writer keeps taking rows
+    List<PhoenixMetricsWriter.MetricRow> rows = new ArrayList<>();
+    for (long i = 0; i < 100; i++) {
+      rows.add(new PhoenixMetricsWriter.MetricRow(new byte[] {(byte) i}, i, new double[] {1, 1, 1, 1},
+        "{}", new TreeMap<Long, Double>()));
+    }
+    writer.write(rows);
+
+    double dropped = 0;
+    while (dropped + writer.getQueueDepth() < rows.size()) {
+      Thread.sleep(100);
+      for (TimelineMetric metric : writer.getWriterMetrics("h1", "ams-collector").getMetrics()) {
+        if (metric.getMetricName().equals(PhoenixMetricsWriter.ROWS_DROPPED)) {
+          dropped += metric.getMetricValues().firstEntry().getValue();
+        }
+      }
+    }
+    writer.stop();
+
+    // At most the writer queue and two retried batches are kept, the oldest are dropped
+    Assert.assertTrue(writer.getQueueDepth() <= 15);
+    Assert.assertTrue(dropped >= 85);
+    // Backing off, not every batch is tried against the store
+    Assert.assertTrue(connectionAttempts.get() < 20);
+  }
+}
@@ -0,0 +1,101 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.metrics.core.timeline;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.TreeMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RecentMetricsStoreTest {
+
+  private static final long WINDOW = 3600000;
+  private static final byte[] UUID1 = {1, 1};
+  private static final byte[] UUID2 = {2, 2};
+  private static final byte[] UUID3 = {3, 3};
+
+  private static class TestStore extends RecentMetricsStore {
+    long now;
+
+    TestStore(int slotsPerSeries, long maxMemoryBytes) {
+      super(WINDOW, slotsPerSeries, maxMemoryBytes);
+    }
+
+    @Override
+    long currentTime() {
+      return now;
+    }
+  }
+
+  private static TreeMap<Long, Double> values(long... timestamps) {
+    TreeMap<Long, Double> values = new TreeMap<>();
+    for (long timestamp : timestamps) {
+      values.put(timestamp, (double) timestamp);
+    }
+    return values;
+  }
+
+  @Test
+  public void testValuesAreReadInRange() {
+    long now = 10 * WINDOW;
+    TestStore store = new TestStore(10, 1024);
+    store.now = now;
+    store.put(UUID1, values(now - WINDOW - 1, now - 3000, now - 2000, now - 1000));
+
+    Assert.assertEquals(values(now - 3000, now - 2000), store.getMetricValues(UUID1, now - WINDOW, now - 1000));
+    Assert.assertEquals(values(now - 1000), store.getMetricValues(UUID1, now - 1000, now));
+    Assert.assertNull(store.getMetricValues(UUID1, now, now + 1000));
+    Assert.assertNull(store.getMetricValues(UUID2, now - WINDOW, now));
+  }
+
+  @Test
+  public void testOverwrittenPointsAreNotComplete() {
+    long now = 10 * WINDOW;
+    TestStore store = new TestStore(3, 1024);
+    store.now = now;
+    Assert.assertEquals(now - WINDOW, store.getCompleteSince(Collections.singletonList(UUID1)));
+
+    store.put(UUID1, values(now - 4000, now - 3000, now - 2000));
+    Assert.assertEquals(now - WINDOW, store.getCompleteSince(Collections.singletonList(UUID1)));
+
+    store.put(UUID1, values(now - 1000));
+    Assert.assertEquals(now - 4000 + 1, store.getCompleteSince(Collections.singletonList(UUID1)));
+    Assert.assertEquals(values(now - 3000, now - 2000, now - 1000), store.getMetricValues(UUID1, 0, now));
+  }
+
+  @Test
+  public void testEldestMetricIsEvicted() {
+    long now = 10 * WINDOW;
+    // Room for two metrics of two points
+    TestStore store = new TestStore(2, 64);
+    store.now = now;
+    store.put(UUID1, values(now - 3000));
+    store.put(UUID2, values(now - 2000));
+    store.put(UUID1, values(now - 1000));
+    store.put(UUID3, values(now - 500));
+
+    Assert.assertNull(store.getMetricValues(UUID2, 0, now));
+    Assert.assertEquals(values(now - 3000, now - 1000), store.getMetricValues(UUID1, 0, now));
+    Assert.assertEquals(values(now - 500), store.getMetricValues(UUID3, 0, now));
+    // Points of the evicted metric are only in HBase
+    Assert.assertEquals(now, store.getCompleteSince(Collections.singletonList(UUID2)));
+    Assert.assertEquals(now, store.getCompleteSince(Arrays.asList(UUID1, UUID3)));
+  }
+}
@@ -17,6 +17,7 @@
  */
 package org.apache.ambari.metrics.core.timeline;
 
+import org.apache.ambari.metrics.core.timeline.aggregators.Function.ReadFunction;
 import org.apache.ambari.metrics.core.timeline.query.TransientMetricCondition;
 import org.apache.hadoop.metrics2.sink.timeline.Precision;
 import org.apache.hadoop.metrics2.sink.timeline.PrecisionLimitExceededException;
@@ -36,7 +37,9 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import static org.easymock.EasyMock.createNiceMock;
 import static org.easymock.EasyMock.expect;
@@ -282,6 +285,126 @@ public class TestPhoenixTransactSQL {
     verify(connection, preparedStatement);
   }
 
+  @Test
+  public void testPrepareGetMetricsSelectsReadColumnsOnly() throws SQLException {
+    Long endTime = System.currentTimeMillis();
+    Long startTime = endTime - 200 * 1000;
+
+    // Precision data is read from the METRICS column only
+    Condition condition = new DefaultCondition(
+      new ArrayList<>(Arrays.asList("cpu_user", "mem_free")), Collections.singletonList("h1"),
+      "a1", "i1", startTime, endTime, null, null, false);
+    Connection connection = createNiceMock(Connection.class);
+    PreparedStatement preparedStatement = createNiceMock(PreparedStatement.class);
+    Capture<String> stmtCapture = new Capture<String>();
+    expect(connection.prepareStatement(EasyMock.and(EasyMock.anyString(), EasyMock.capture(stmtCapture))))
+      .andReturn(preparedStatement);
+
+    replay(connection, preparedStatement);
+    PhoenixTransactSQL.prepareGetMetricsSqlStmt(connection, condition, EnumSet.of(ReadFunction.VALUE));
+    String stmt = stmtCapture.getValue();
+    Assert.assertTrue(stmt.startsWith("SELECT UUID, SERVER_TIME, METRICS FROM METRIC_RECORD_UUID"));
+    Assert.assertEquals(Precision.SECONDS, condition.getPrecision());
+    verify(connection, preparedStatement);
+
+    // The METRICS column is skipped for aggregate functions
+    condition = new DefaultCondition(
+      new ArrayList<>(Arrays.asList("cpu_user", "mem_free")), Collections.singletonList("h1"),
+      "a1", "i1", startTime, endTime, null, null, false);
+    connection = createNiceMock(Connection.class);
+    preparedStatement = createNiceMock(PreparedStatement.class);
+    stmtCapture = new Capture<String>();
+    expect(connection.prepareStatement(EasyMock.and(EasyMock.anyString(), EasyMock.capture(stmtCapture))))
+      .andReturn(preparedStatement);
+
+    replay(connection, preparedStatement);
+    PhoenixTransactSQL.prepareGetMetricsSqlStmt(connection, condition, EnumSet.of(ReadFunction.MAX));
+    stmt = stmtCapture.getValue();
+    Assert.assertTrue(stmt.startsWith("SELECT UUID, SERVER_TIME, METRIC_MAX FROM METRIC_RECORD_UUID"));
+    Assert.assertTrue(stmt.contains("ORDER BY UUID, SERVER_TIME"));
+    Assert.assertFalse(stmt.contains("GROUP BY"));
+    verify(connection, preparedStatement);
+  }
+
+  @Test
+  public void testPrepareGetMetricsDownsampled() throws SQLException {
+    List<String> metrics = new ArrayList<>();
+    List<String> hosts = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      metrics.add("TestMetric" + i);
+      hosts.add("TestHost" + i);
+    }
+    Long endTime = System.currentTimeMillis();
+    Long startTime = endTime - TimeUnit.DAYS.toMillis(1);
+
+    // 10 Metrics x 10 Hosts x 1 day fits in 56 points per metric, i.e. 30 minute buckets of minute data
+    Condition condition = new DefaultCondition(metrics, hosts,
+      "a1", "i1", startTime, endTime, null, null, false);
+    Connection connection = createNiceMock(Connection.class);
+    PreparedStatement preparedStatement = createNiceMock(PreparedStatement.class);
+    Capture<String> stmtCapture = new Capture<String>();
+    expect(connection.prepareStatement(EasyMock.and(EasyMock.anyString(), EasyMock.capture(stmtCapture))))
+      .andReturn(preparedStatement);
+
+    replay(connection, preparedStatement);
+    PhoenixTransactSQL.prepareGetMetricsSqlStmt(connection, condition, EnumSet.of(ReadFunction.AVG, ReadFunction.MIN));
+    String stmt = stmtCapture.getValue();
+    Assert.assertEquals(Precision.MINUTES, condition.getPrecision());
+    Assert.assertTrue(stmt.startsWith("SELECT UUID, SERVER_TIME / 1800000 * 1800000 AS SERVER_TIME, " +
+      "SUM(METRIC_SUM) AS METRIC_SUM, SUM(METRIC_COUNT) AS METRIC_COUNT, MIN(METRIC_MIN) AS METRIC_MIN " +
+      "FROM METRIC_RECORD_MINUTE_UUID"));
+    Assert.assertFalse(stmt.contains("METRIC_MAX"));
+    Assert.assertTrue(stmt.contains("GROUP BY UUID, SERVER_TIME / 1800000 * 1800000 " +
+      "ORDER BY UUID, SERVER_TIME / 1800000 * 1800000"));
+    Assert.assertTrue(stmt.endsWith("LIMIT " + PhoenixHBaseAccessor.RESULTSET_LIMIT));
+    verify(connection, preparedStatement);
+
+    // Without functions the table is chosen as before
+    condition = new DefaultCondition(metrics, hosts,
+      "a1", "i1", startTime, endTime, null, null, false);
+    connection = createNiceMock(Connection.class);
+    preparedStatement = createNiceMock(PreparedStatement.class);
+    stmtCapture = new Capture<String>();
+    expect(connection.prepareStatement(EasyMock.and(EasyMock.anyString(), EasyMock.capture(stmtCapture))))
+      .andReturn(preparedStatement);
+
+    replay(connection, preparedStatement);
+    PhoenixTransactSQL.prepareGetMetricsSqlStmt(connection, condition);
+    stmt = stmtCapture.getValue();
+    Assert.assertEquals(Precision.HOURS, condition.getPrecision());
+    Assert.assertFalse(stmt.contains("GROUP BY"));
+    verify(connection, preparedStatement);
+  }
+
+  @Test
+  public void testPrepareGetAggregateDownsampled() throws SQLException {
+    List<String> metrics = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      metrics.add("TestMetric" + i);
+    }
+    Long endTime = System.currentTimeMillis();
+    Long startTime = endTime - TimeUnit.DAYS.toMillis(20);
+
+    // 100 Metrics x 20 days fits in 56 points per metric, i.e. 9 hour buckets of hourly data
+    Condition condition = new DefaultCondition(metrics, Collections.emptyList(),
+      "a1", "i1", startTime, endTime, null, null, false);
+    Connection connection = createNiceMock(Connection.class);
+    PreparedStatement preparedStatement = createNiceMock(PreparedStatement.class);
+    Capture<String> stmtCapture = new Capture<String>();
+    expect(connection.prepareStatement(EasyMock.and(EasyMock.anyString(), EasyMock.capture(stmtCapture))))
+      .andReturn(preparedStatement);
+
+    replay(connection, preparedStatement);
+    PhoenixTransactSQL.prepareGetAggregateSqlStmt(connection, condition, EnumSet.of(ReadFunction.SUM));
+    String stmt = stmtCapture.getValue();
+    Assert.assertEquals(Precision.HOURS, condition.getPrecision());
+    Assert.assertTrue(stmt.startsWith("SELECT UUID, SERVER_TIME / 32400000 * 32400000 AS SERVER_TIME, " +
+      "AVG(METRIC_SUM) AS METRIC_SUM, ROUND(AVG(METRIC_COUNT)) AS METRIC_COUNT " +
+      "FROM METRIC_AGGREGATE_HOURLY_UUID"));
+    Assert.assertTrue(stmt.contains("GROUP BY UUID, SERVER_TIME / 32400000 * 32400000"));
+    verify(connection, preparedStatement);
+  }
+
   @Test
   public void testPrepareGetMetricsNoPrecision() throws SQLException {
 
@@ -0,0 +1,116 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.metrics.core.timeline.aggregators;
+
+import static org.apache.ambari.metrics.core.timeline.aggregators.AggregatorUtils.getTimeSlices;
+import static org.apache.ambari.metrics.core.timeline.aggregators.AggregatorUtils.sliceFromTimelineMetric;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.apache.hadoop.metrics2.sink.timeline.MetricClusterAggregate;
+import org.apache.hadoop.metrics2.sink.timeline.TimelineMetric;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MetricTimeSlicesTest {
+
+  private static final long START_TIME = 1500000000000L;
+  private static final long SLICE_INTERVAL = 30000;
+
+  private final List<Long[]> timeSlices = getTimeSlices(START_TIME, START_TIME + 120000, SLICE_INTERVAL);
+
+  private static Map<Long, Double> toMap(MetricTimeSlices slices) {
+    Map<Long, Double> values = new HashMap<>();
+    for (int i = 0; i < slices.size(); i++) {
+      if (slices.hasValue(i)) {
+        values.put(slices.getSliceTime(i), slices.getValue(i));
+      }
+    }
+    return values;
+  }
+
+  private static Map<Long, Double> toMap(Map<TimelineClusterMetric, Double> clusterMetrics) {
+    Map<Long, Double> values = new HashMap<>();
+    if (clusterMetrics != null) {
+      for (Map.Entry<TimelineClusterMetric, Double> entry : clusterMetrics.entrySet()) {
+        values.put(entry.getKey().getTimestamp(), entry.getValue());
+      }
+    }
+    return values;
+  }
+
+  @Test
+  public void testSameValuesAsSliceFromTimelineMetric() {
+    Random random = new Random(42);
+    MetricTimeSlices slices = new MetricTimeSlices(timeSlices);
+
+    for (int run = 0; run < 500; run++) {
+      TimelineMetric metric = new TimelineMetric("m1", "h1", "a1", null);
+      metric.setType(run % 3 == 0 ? "COUNTER" : "GAUGE");
+      TreeMap<Long, Double> values = new TreeMap<>();
+      int points = random.nextInt(12);
+      for (int i = 0; i < points; i++) {
+        // Points before, within and after the slices, zero and negative values
+        long timestamp = START_TIME - 30000 + random.nextInt(200000);
+        values.put(timestamp, (double) (random.nextInt(10) - 2));
+      }
+      metric.setMetricValues(values);
+      boolean interpolate = run % 2 == 0;
+
+      boolean sliced = slices.slice(metric, interpolate);
+      Assert.assertEquals(!values.isEmpty(), sliced);
+      if (sliced) {
+        Assert.assertEquals("Values " + values + ", interpolate " + interpolate,
+          toMap(sliceFromTimelineMetric(metric, timeSlices, interpolate)), toMap(slices));
+      }
+    }
+  }
+
+  @Test
+  public void testAggregatesAcrossHosts() {
+    MetricTimeSlices slices = new MetricTimeSlices(timeSlices);
+    TimeSliceAggregates aggregates = new TimeSliceAggregates("m1", "a1", null, slices.size());
+
+    TimelineMetric metric = new TimelineMetric("m1", "h1", "a1", null);
+    TreeMap<Long, Double> values = new TreeMap<>();
+    values.put(START_TIME + 10000, 1.0);
+    values.put(START_TIME + 20000, 3.0);
+    metric.setMetricValues(values);
+    slices.slice(metric, false);
+    Assert.assertEquals(1, aggregates.update(0, slices.getValue(0)));
+
+    values.clear();
+    values.put(START_TIME + 10000, 6.0);
+    slices.slice(metric, false);
+    Assert.assertEquals(2, aggregates.update(0, slices.getValue(0)));
+
+    Map<TimelineClusterMetric, MetricClusterAggregate> aggregateClusterMetrics = new HashMap<>();
+    aggregates.addTo(aggregateClusterMetrics, slices);
+    Assert.assertEquals(1, aggregateClusterMetrics.size());
+    MetricClusterAggregate aggregate = aggregateClusterMetrics.get(
+      new TimelineClusterMetric("m1", "a1", null, START_TIME + SLICE_INTERVAL));
+    Assert.assertEquals(8.0, aggregate.getSum(), 0.0);
+    Assert.assertEquals(2, aggregate.getNumberOfHosts());
+    Assert.assertEquals(6.0, aggregate.getMax(), 0.0);
+    Assert.assertEquals(2.0, aggregate.getMin(), 0.0);
+  }
+}
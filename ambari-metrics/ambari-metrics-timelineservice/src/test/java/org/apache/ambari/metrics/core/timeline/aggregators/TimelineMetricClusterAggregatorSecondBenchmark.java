@@ -0,0 +1,166 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.metrics.core.timeline.aggregators;
+
+import static org.apache.ambari.metrics.core.timeline.aggregators.AggregatorUtils.getTimeSlices;
+import static org.apache.ambari.metrics.core.timeline.availability.AggregationTaskRunner.AGGREGATOR_NAME.METRIC_AGGREGATE_SECOND;
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.getCurrentArguments;
+import static org.easymock.EasyMock.replay;
+
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ambari.metrics.core.timeline.discovery.TimelineMetricHostMetadata;
+import org.apache.ambari.metrics.core.timeline.discovery.TimelineMetricMetadataKey;
+import org.apache.ambari.metrics.core.timeline.discovery.TimelineMetricMetadataManager;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.metrics2.sink.timeline.MetricClusterAggregate;
+import org.apache.hadoop.metrics2.sink.timeline.TimelineMetric;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.easymock.IAnswer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures one cycle of {@link TimelineMetricClusterAggregatorSecond} over a result set of the
+ * precision table recorded up front, 12 points per host metric as written by sinks reporting
+ * every 10 seconds. The rows are replayed in UUID order as returned by the aggregator query.
+ * <p/>
+ * Not run as part of the unit tests, run it with
+ * <pre>
+ *   mvn test-compile exec:java -Dexec.classpathScope=test
+ *     -Dexec.mainClass=org.apache.ambari.metrics.core.timeline.aggregators.TimelineMetricClusterAggregatorSecondBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TimelineMetricClusterAggregatorSecondBenchmark {
+
+  private static final long AGGREGATOR_INTERVAL = 120000;
+  private static final long SLICE_INTERVAL = 30000;
+  private static final long POINT_INTERVAL = 10000;
+
+  @Param({"1000"})
+  int metrics;
+
+  @Param({"10", "100"})
+  int hosts;
+
+  private TimelineMetricClusterAggregatorSecond aggregator;
+  private List<Long[]> timeSlices;
+  private final List<Object[]> rows = new ArrayList<>();
+
+  @Setup
+  public void setup() throws Exception {
+    final Map<ByteBuffer, String[]> uuids = new HashMap<>();
+    long startTime = AggregatorUtils.getRoundedCheckPointTimeMillis(System.currentTimeMillis(), AGGREGATOR_INTERVAL);
+    timeSlices = getTimeSlices(startTime, startTime + AGGREGATOR_INTERVAL, SLICE_INTERVAL);
+
+    ObjectMapper mapper = new ObjectMapper();
+    for (int m = 0; m < metrics; m++) {
+      for (int h = 0; h < hosts; h++) {
+        byte[] uuid = ByteBuffer.allocate(8).putInt(m).putInt(h).array();
+        uuids.put(ByteBuffer.wrap(uuid), new String[] {"metric" + m, "host" + h, m % 10 == 0 ? "HOST" : "app" + m % 10});
+        TreeMap<Long, Double> values = new TreeMap<>();
+        // Hosts report at different offsets, some miss a point
+        long offset = h * 997 % POINT_INTERVAL;
+        for (long time = startTime + offset; time < startTime + AGGREGATOR_INTERVAL; time += POINT_INTERVAL) {
+          if ((time / POINT_INTERVAL + h) % 7 != 0) {
+            values.put(time, (double) (m + h + time % 100));
+          }
+        }
+        rows.add(new Object[] {uuid, startTime, mapper.writeValueAsString(values)});
+      }
+    }
+
+    TimelineMetricMetadataManager metadataManager = createNiceMock(TimelineMetricMetadataManager.class);
+    expect(metadataManager.getMetadataCacheValue((TimelineMetricMetadataKey) anyObject())).andReturn(null).anyTimes();
+    expect(metadataManager.getHostedAppsCache()).andReturn(new ConcurrentHashMap<String, TimelineMetricHostMetadata>()).anyTimes();
+    expect(metadataManager.getMetricFromUuid((byte[]) anyObject())).andAnswer(new IAnswer<TimelineMetric>() {
+      @Override
+      public TimelineMetric answer() {
+        String[] metric = uuids.get(ByteBuffer.wrap((byte[]) getCurrentArguments()[0]));
+        return new TimelineMetric(metric[0], metric[1], metric[2], null);
+      }
+    }).anyTimes();
+    replay(metadataManager);
+
+    aggregator = new TimelineMetricClusterAggregatorSecond(
+      METRIC_AGGREGATE_SECOND, metadataManager, null, new Configuration(), null,
+      AGGREGATOR_INTERVAL, 2, "false", "", "", AGGREGATOR_INTERVAL, SLICE_INTERVAL, null);
+  }
+
+  /**
+   * Replays the recorded rows, only the columns read by the aggregator are supported.
+   */
+  private ResultSet replayResultSet() {
+    final int[] row = {-1};
+    return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[] {ResultSet.class},
+      (proxy, method, args) -> {
+        switch (method.getName()) {
+          case "next":
+            return ++row[0] < rows.size();
+          case "getBytes":
+            return rows.get(row[0])[0];
+          case "getLong":
+            return rows.get(row[0])[1];
+          case "getString":
+            return rows.get(row[0])[2];
+          default:
+            throw new UnsupportedOperationException(method.getName());
+        }
+      });
+  }
+
+  @Benchmark
+  public Map<TimelineClusterMetric, MetricClusterAggregate> aggregate() throws Exception {
+    return aggregator.aggregateMetricsFromResultSet(replayResultSet(), timeSlices);
+  }
+
+  public static void main(String[] args) throws Exception {
+    new Runner(new OptionsBuilder()
+      .include(TimelineMetricClusterAggregatorSecondBenchmark.class.getSimpleName())
+      .build()).run();
+  }
+}
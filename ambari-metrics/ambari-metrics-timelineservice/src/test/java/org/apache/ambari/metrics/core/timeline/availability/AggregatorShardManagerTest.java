@@ -0,0 +1,142 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.metrics.core.timeline.availability;
+
+import static org.apache.ambari.metrics.core.timeline.availability.AggregationTaskRunner.AGGREGATOR_NAME.METRIC_AGGREGATE_MINUTE;
+import static org.apache.ambari.metrics.core.timeline.availability.AggregationTaskRunner.AGGREGATOR_NAME.METRIC_RECORD_MINUTE;
+import static org.apache.ambari.metrics.core.timeline.availability.AggregatorShardManager.EXPIRY_FIELD;
+import static org.apache.ambari.metrics.core.timeline.availability.AggregatorShardManager.OWNER_FIELD;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.helix.ZNRecord;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AggregatorShardManagerTest {
+
+  @Test
+  public void testShardsCoverUuidSpace() {
+    List<AggregatorShard> shards = AggregatorShard.getShards(METRIC_RECORD_MINUTE, 3);
+    Assert.assertEquals(3, shards.size());
+    Assert.assertNull(shards.get(0).getUuidRangeStart(20));
+    Assert.assertNull(shards.get(2).getUuidRangeEnd(20));
+
+    for (int i = 0; i < shards.size() - 1; i++) {
+      byte[] end = shards.get(i).getUuidRangeEnd(20);
+      Assert.assertEquals(20, end.length);
+      Assert.assertArrayEquals(end, shards.get(i + 1).getUuidRangeStart(20));
+    }
+
+    for (int key = 0; key < AggregatorShard.KEY_SPACE; key++) {
+      byte[] uuid = new byte[] { (byte) (key >>> 8), (byte) key, 7, 7 };
+      int owners = 0;
+      for (AggregatorShard shard : shards) {
+        if (shard.contains(uuid)) {
+          owners++;
+        }
+      }
+      Assert.assertEquals("Key " + key, 1, owners);
+    }
+  }
+
+  @Test
+  public void testPreferredOwnersSpreadShards() {
+    List<String> liveInstances = Arrays.asList("h2_6188", "h1_6188");
+    Map<String, Integer> shardsPerInstance = new HashMap<>();
+    for (AggregatorShard shard : AggregatorShard.getShards(METRIC_RECORD_MINUTE, 4)) {
+      String owner = AggregatorShardManager.getPreferredOwner(shard, liveInstances);
+      shardsPerInstance.put(owner, shardsPerInstance.containsKey(owner) ? shardsPerInstance.get(owner) + 1 : 1);
+    }
+    Assert.assertEquals(2, (int) shardsPerInstance.get("h1_6188"));
+    Assert.assertEquals(2, (int) shardsPerInstance.get("h2_6188"));
+
+    // Owners do not depend on the order live instances are listed in
+    AggregatorShard shard = AggregatorShard.getShards(METRIC_AGGREGATE_MINUTE, 4).get(1);
+    Assert.assertEquals(AggregatorShardManager.getPreferredOwner(shard, liveInstances),
+      AggregatorShardManager.getPreferredOwner(shard, Arrays.asList("h1_6188", "h2_6188")));
+    Assert.assertNull(AggregatorShardManager.getPreferredOwner(shard, null));
+  }
+
+  @Test
+  public void testLagging() {
+    long interval = 300000L;
+    long now = 10 * interval;
+    // Due, but still with its owner
+    Assert.assertFalse(AggregatorShardManager.isLagging(now - interval, now, interval, 1));
+    Assert.assertTrue(AggregatorShardManager.isLagging(now - 2 * interval, now, interval, 1));
+    Assert.assertFalse(AggregatorShardManager.isLagging(now - 2 * interval, now, interval, 2));
+    Assert.assertFalse(AggregatorShardManager.isLagging(-1, now, interval, 1));
+  }
+
+  @Test
+  public void testLeaseIsExclusiveUntilExpiry() {
+    String path = "/SHARD_LEASES/TimelineMetricHostAggregatorMinute_SHARD_0_OF_2";
+    ZNRecord lease = new AggregatorShardManager.LeaseDataUpdater(path, "h1", 1000, 2000).update(null);
+    Assert.assertEquals("h1", lease.getSimpleField(OWNER_FIELD));
+
+    // Held by h1
+    lease = new AggregatorShardManager.LeaseDataUpdater(path, "h2", 1500, 2500).update(lease);
+    Assert.assertEquals("h1", lease.getSimpleField(OWNER_FIELD));
+    Assert.assertEquals(2000, lease.getLongField(EXPIRY_FIELD, -1));
+
+    // Renewed by its holder
+    lease = new AggregatorShardManager.LeaseDataUpdater(path, "h1", 1500, 2500).update(lease);
+    Assert.assertEquals(2500, lease.getLongField(EXPIRY_FIELD, -1));
+
+    // Expired
+    lease = new AggregatorShardManager.LeaseDataUpdater(path, "h2", 3000, 4000).update(lease);
+    Assert.assertEquals("h2", lease.getSimpleField(OWNER_FIELD));
+
+    // Released by h1 only once it holds the lease
+    lease = new AggregatorShardManager.LeaseDataUpdater(path, "h1", 0, 0).update(lease);
+    Assert.assertEquals("h2", lease.getSimpleField(OWNER_FIELD));
+    lease = new AggregatorShardManager.LeaseDataUpdater(path, "h2", 0, 0).update(lease);
+    lease = new AggregatorShardManager.LeaseDataUpdater(path, "h1", 3500, 4500).update(lease);
+    Assert.assertEquals("h1", lease.getSimpleField(OWNER_FIELD));
+  }
+
+  @Test
+  public void testLeaseIsRenewedOnlyByItsHolder() {
+    String path = "/SHARD_LEASES/TimelineMetricHostAggregatorMinute_SHARD_0_OF_2";
+    ZNRecord lease = new AggregatorShardManager.LeaseDataUpdater(path, "h1", 1000, 2000).update(null);
+    Assert.assertTrue(AggregatorShardManager.isHeldBy(lease, "h1", 1500));
+    Assert.assertFalse(AggregatorShardManager.isHeldBy(lease, "h2", 1500));
+
+    lease = new AggregatorShardManager.LeaseRenewalDataUpdater(path, "h1", 1500, 2500).update(lease);
+    Assert.assertEquals(2500, lease.getLongField(EXPIRY_FIELD, -1));
+    lease = new AggregatorShardManager.LeaseRenewalDataUpdater(path, "h2", 1500, 3000).update(lease);
+    Assert.assertEquals("h1", lease.getSimpleField(OWNER_FIELD));
+    Assert.assertEquals(2500, lease.getLongField(EXPIRY_FIELD, -1));
+
+    // Expired and taken over, the former holder neither renews nor holds it
+    Assert.assertFalse(AggregatorShardManager.isHeldBy(lease, "h1", 2500));
+    lease = new AggregatorShardManager.LeaseDataUpdater(path, "h2", 2600, 3600).update(lease);
+    lease = new AggregatorShardManager.LeaseRenewalDataUpdater(path, "h1", 2700, 3700).update(lease);
+    Assert.assertEquals("h2", lease.getSimpleField(OWNER_FIELD));
+    Assert.assertEquals(3600, lease.getLongField(EXPIRY_FIELD, -1));
+
+    // Released, the former holder does not claim it back
+    lease = new AggregatorShardManager.LeaseDataUpdater(path, "h2", 0, 0).update(lease);
+    lease = new AggregatorShardManager.LeaseRenewalDataUpdater(path, "h2", 2800, 3800).update(lease);
+    Assert.assertFalse(AggregatorShardManager.isHeldBy(lease, "h2", 2800));
+  }
+}
@@ -27,8 +27,12 @@ import org.apache.helix.model.ExternalView;
 import org.apache.helix.model.InstanceConfig;
 import org.junit.Before;
 import org.junit.Test;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import static org.apache.ambari.metrics.core.timeline.availability.AggregationTaskRunner.AGGREGATOR_NAME.METRIC_AGGREGATE_SECOND;
+import static org.apache.ambari.metrics.core.timeline.availability.AggregationTaskRunner.AGGREGATOR_NAME.METRIC_RECORD_MINUTE;
 import static org.apache.ambari.metrics.core.timeline.availability.MetricCollectorHAController.DEFAULT_STATE_MODEL;
 import static org.apache.ambari.metrics.core.timeline.availability.MetricCollectorHAController.METRIC_AGGREGATORS;
 import static org.apache.ambari.metrics.core.timeline.availability.MetricCollectorHAController.CLUSTER_NAME;
@@ -103,4 +107,74 @@ public class MetricCollectorHAControllerTest extends AbstractMiniHBaseClusterTes
     haController.getAggregationTaskRunner().stop();
     haController.manager.disconnect();
   }
+
+  @Test(timeout = 180000)
+  public void testShardedAggregationAcrossCollectors() throws Exception {
+    MetricCollectorHAController haController = new MetricCollectorHAController(configuration);
+    haController.initializeHAController();
+
+    AggregationTaskRunner runner1 = startShardedTaskRunner(haController, "h3_12003");
+    AggregationTaskRunner runner2 = startShardedTaskRunner(haController, "h4_12004");
+    // Wait for the collectors to go live
+    Thread.sleep(10000);
+
+    AggregatorShardManager shardManager1 = runner1.getShardManager();
+    AggregatorShardManager shardManager2 = runner2.getShardManager();
+    Assert.assertTrue(runner1.isSharded(METRIC_RECORD_MINUTE));
+    Assert.assertFalse(runner1.isSharded(METRIC_AGGREGATE_SECOND));
+    Assert.assertTrue(shardManager1.getLiveInstances().containsAll(Arrays.asList("h3_12003", "h4_12004")));
+
+    List<AggregatorShard> shards = shardManager1.getShards(METRIC_RECORD_MINUTE);
+    Assert.assertEquals(4, shards.size());
+    AggregatorShard otherShard = null;
+    for (AggregatorShard shard : shards) {
+      Assert.assertFalse(shardManager1.isPreferredOwner(shard) && shardManager2.isPreferredOwner(shard));
+      if (!shardManager1.isPreferredOwner(shard)) {
+        otherShard = shard;
+      }
+    }
+    Assert.assertNotNull(otherShard);
+
+    // Shards continue from the unsharded checkpoint, then keep their own
+    CheckpointManager checkpointManager = runner1.getCheckpointManager();
+    long interval = 300000L;
+    long now = System.currentTimeMillis();
+    checkpointManager.writeCheckpoint(METRIC_RECORD_MINUTE, now - interval);
+    Assert.assertEquals(now - interval, checkpointManager.readCheckpoint(otherShard));
+    checkpointManager.writeCheckpoint(otherShard, now - 3 * interval);
+    Assert.assertEquals(now - 3 * interval, runner2.getCheckpointManager().readCheckpoint(otherShard));
+    Assert.assertEquals(now - interval, checkpointManager.readCheckpoint(METRIC_RECORD_MINUTE));
+
+    // An idle collector takes over the lagging shard, others keep off it while the lease is held
+    Assert.assertTrue(shardManager1.isLagging(checkpointManager.readCheckpoint(otherShard), now, interval));
+    Assert.assertTrue(shardManager1.acquireLease(otherShard, interval));
+    Assert.assertFalse(shardManager2.acquireLease(otherShard, interval));
+    Assert.assertTrue(shardManager1.holdsLease(otherShard));
+    Assert.assertFalse(shardManager2.holdsLease(otherShard));
+    shardManager1.releaseLease(otherShard);
+    Assert.assertFalse(shardManager1.holdsLease(otherShard));
+
+    // A lease is renewed while the shard runs
+    Assert.assertTrue(shardManager1.acquireLease(otherShard, 3000));
+    Thread.sleep(6000);
+    Assert.assertTrue(shardManager1.holdsLease(otherShard));
+    Assert.assertFalse(shardManager2.acquireLease(otherShard, interval));
+    shardManager1.releaseLease(otherShard);
+    Assert.assertTrue(shardManager2.acquireLease(otherShard, interval));
+    shardManager2.releaseLease(otherShard);
+
+    runner1.stop();
+    runner2.stop();
+    haController.getAggregationTaskRunner().stop();
+    haController.manager.disconnect();
+  }
+
+  private AggregationTaskRunner startShardedTaskRunner(MetricCollectorHAController haController,
+                                                      String instanceName) throws Exception {
+    haController.admin.addInstance(CLUSTER_NAME, new InstanceConfig(instanceName));
+    AggregationTaskRunner taskRunner = new AggregationTaskRunner(instanceName,
+      haController.zkConnectUrl, CLUSTER_NAME, 4, 1);
+    taskRunner.initialize();
+    return taskRunner;
+  }
 }
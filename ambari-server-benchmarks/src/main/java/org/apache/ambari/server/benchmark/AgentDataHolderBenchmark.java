@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ambari.server.agent.stomp.AgentDataHolder;
+import org.apache.ambari.server.agent.stomp.MetadataHolder;
+import org.apache.ambari.server.agent.stomp.TopologyHolder;
+import org.apache.ambari.server.agent.stomp.dto.Hashable;
+import org.apache.ambari.server.events.MetadataUpdateEvent;
+import org.apache.ambari.server.events.TopologyUpdateEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.inject.Injector;
+
+/**
+ * Measures {@link AgentDataHolder#getHash}, which serializes the whole event
+ * to JSON and digests it whenever topology or metadata is regenerated.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AgentDataHolderBenchmark {
+
+  @Param({"100", "1000"})
+  public int hosts;
+
+  private final Hasher<TopologyUpdateEvent> topologyHasher = new Hasher<>();
+  private final Hasher<MetadataUpdateEvent> metadataHasher = new Hasher<>();
+  private TopologyUpdateEvent topology;
+  private MetadataUpdateEvent metadata;
+
+  @Setup
+  public void setup() throws Exception {
+    ClusterFixture.get(hosts);
+    Injector injector = ClusterFixture.getInjector();
+    topology = injector.getInstance(TopologyHolder.class).getCurrentData();
+    metadata = injector.getInstance(MetadataHolder.class).getCurrentData();
+  }
+
+  @Benchmark
+  public String topologyHash() {
+    return topologyHasher.hash(topology);
+  }
+
+  @Benchmark
+  public String metadataHash() {
+    return metadataHasher.hash(metadata);
+  }
+
+  /**
+   * Exposes the hash function holders use for their data.
+   */
+  private static class Hasher<T extends Hashable> extends AgentDataHolder<T> {
+
+    String hash(T data) {
+      return getHash(data);
+    }
+
+    @Override
+    protected T getEmptyData() {
+      return null;
+    }
+  }
+}
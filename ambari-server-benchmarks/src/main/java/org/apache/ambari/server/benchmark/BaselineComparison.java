@@ -0,0 +1,222 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * Compares two JMH result files written with {@code -rf json}, typically the
+ * baseline of an earlier build with the results of the current one, and
+ * reports the change of every benchmark present in both.
+ * <p/>
+ * A change counts as a regression when it is worse than the threshold and
+ * larger than the combined error margins of both scores, so that noise of a
+ * short run does not fail a build.
+ * <p/>
+ * Usage: {@code BaselineComparison <baseline.json> <result.json> [threshold-percent]}
+ */
+public class BaselineComparison {
+
+  public static final double DEFAULT_THRESHOLD_PERCENT = 10.0;
+
+  private final Map<String, Score> baseline;
+  private final Map<String, Score> current;
+
+  public BaselineComparison(Map<String, Score> baseline, Map<String, Score> current) {
+    this.baseline = baseline;
+    this.current = current;
+  }
+
+  public static BaselineComparison load(File baseline, File current) throws IOException {
+    return new BaselineComparison(read(baseline), read(current));
+  }
+
+  /**
+   * Reads a JMH JSON result file.
+   *
+   * @return scores keyed by benchmark name and parameters
+   */
+  public static Map<String, Score> read(File file) throws IOException {
+    try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+      Map<String, Score> scores = new LinkedHashMap<>();
+      for (JsonElement element : new JsonParser().parse(reader).getAsJsonArray()) {
+        JsonObject result = element.getAsJsonObject();
+        JsonObject metric = result.getAsJsonObject("primaryMetric");
+        Map<String, String> params = new TreeMap<>();
+        if (result.has("params")) {
+          for (Map.Entry<String, JsonElement> param : result.getAsJsonObject("params").entrySet()) {
+            params.put(param.getKey(), param.getValue().getAsString());
+          }
+        }
+        Score score = new Score(result.get("benchmark").getAsString(), params, result.get("mode").getAsString(),
+            metric.get("score").getAsDouble(), metric.get("scoreError").getAsDouble(),
+            metric.get("scoreUnit").getAsString());
+        scores.put(score.getKey(), score);
+      }
+      return scores;
+    }
+  }
+
+  /**
+   * @return the benchmarks present in both files
+   */
+  public List<Difference> getDifferences() {
+    List<Difference> differences = new ArrayList<>();
+    for (Map.Entry<String, Score> entry : current.entrySet()) {
+      Score before = baseline.get(entry.getKey());
+      if (before != null) {
+        differences.add(new Difference(before, entry.getValue()));
+      }
+    }
+    return differences;
+  }
+
+  public boolean hasRegressions(double thresholdPercent) {
+    for (Difference difference : getDifferences()) {
+      if (difference.isRegression(thresholdPercent)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public String report(double thresholdPercent) {
+    StringBuilder report = new StringBuilder();
+    report.append(String.format("%-70s %14s %14s %9s%n", "Benchmark", "Baseline", "Current", "Change"));
+    for (Difference difference : getDifferences()) {
+      Score before = difference.getBaseline();
+      Score after = difference.getCurrent();
+      report.append(String.format("%-70s %14.3f %14.3f %+8.1f%% %s%s%n", displayName(after.getKey()),
+          before.getScore(), after.getScore(), difference.getChangePercent(), after.getUnit(),
+          difference.isRegression(thresholdPercent) ? "  REGRESSION" : ""));
+    }
+    for (String key : current.keySet()) {
+      if (!baseline.containsKey(key)) {
+        report.append(String.format("%-70s %14s %14.3f%n", displayName(key), "-", current.get(key).getScore()));
+      }
+    }
+    return report.toString();
+  }
+
+  private static String displayName(String key) {
+    String prefix = BaselineComparison.class.getPackage().getName() + ".";
+    return key.startsWith(prefix) ? key.substring(prefix.length()) : key;
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2) {
+      System.err.println("Usage: BaselineComparison <baseline.json> <result.json> [threshold-percent]");
+      System.exit(2);
+    }
+    double threshold = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_THRESHOLD_PERCENT;
+    BaselineComparison comparison = load(new File(args[0]), new File(args[1]));
+    System.out.print(comparison.report(threshold));
+    System.exit(comparison.hasRegressions(threshold) ? 1 : 0);
+  }
+
+  /**
+   * The primary score of one benchmark with one set of parameters.
+   */
+  public static class Score {
+    private final String benchmark;
+    private final Map<String, String> params;
+    private final String mode;
+    private final double score;
+    private final double error;
+    private final String unit;
+
+    public Score(String benchmark, Map<String, String> params, String mode, double score, double error,
+        String unit) {
+      this.benchmark = benchmark;
+      this.params = params;
+      this.mode = mode;
+      this.score = score;
+      this.error = Double.isNaN(error) ? 0.0 : error;
+      this.unit = unit;
+    }
+
+    public String getKey() {
+      return params.isEmpty() ? benchmark : benchmark + params;
+    }
+
+    public double getScore() {
+      return score;
+    }
+
+    public double getError() {
+      return error;
+    }
+
+    public String getUnit() {
+      return unit;
+    }
+
+    /**
+     * @return whether a higher score is better, i.e. the score is a throughput
+     */
+    public boolean isHigherBetter() {
+      return "thrpt".equals(mode);
+    }
+  }
+
+  /**
+   * The change of one benchmark between the baseline and the current results.
+   */
+  public static class Difference {
+    private final Score baseline;
+    private final Score current;
+
+    Difference(Score baseline, Score current) {
+      this.baseline = baseline;
+      this.current = current;
+    }
+
+    public Score getBaseline() {
+      return baseline;
+    }
+
+    public Score getCurrent() {
+      return current;
+    }
+
+    public double getChangePercent() {
+      return baseline.getScore() == 0.0 ? 0.0
+          : (current.getScore() - baseline.getScore()) * 100.0 / baseline.getScore();
+    }
+
+    public boolean isRegression(double thresholdPercent) {
+      double change = getChangePercent();
+      boolean worse = current.isHigherBetter() ? change < -thresholdPercent : change > thresholdPercent;
+      double margin = baseline.getError() + current.getError();
+      return worse && Math.abs(current.getScore() - baseline.getScore()) > margin;
+    }
+  }
+}
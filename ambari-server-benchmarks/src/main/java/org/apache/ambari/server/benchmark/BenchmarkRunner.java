@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.benchmark;
+
+import java.io.File;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+/**
+ * Runs the benchmarks, writes the results as JSON and optionally compares them
+ * with the results of an earlier run. Settings are system properties:
+ * <ul>
+ *   <li>{@code benchmark.include} - regular expression of benchmarks to run, all by default</li>
+ *   <li>{@code benchmark.hosts} - comma separated cluster sizes, overrides the {@code hosts} parameter</li>
+ *   <li>{@code benchmark.tasks} - comma separated task counts, overrides the {@code tasks} parameter</li>
+ *   <li>{@code benchmark.quick} - a single short iteration per benchmark, for smoke runs</li>
+ *   <li>{@code benchmark.result} - result file, {@code target/benchmark-result.json} by default</li>
+ *   <li>{@code benchmark.baseline} - result file of an earlier run to compare with</li>
+ *   <li>{@code benchmark.threshold} - regression threshold in percent, 10 by default</li>
+ *   <li>{@code benchmark.failOnRegression} - exit with 1 if a benchmark regressed</li>
+ * </ul>
+ */
+public class BenchmarkRunner {
+
+  public static void main(String[] args) throws Exception {
+    File result = new File(System.getProperty("benchmark.result", "target/benchmark-result.json"));
+    File parent = result.getAbsoluteFile().getParentFile();
+    if (!parent.isDirectory() && !parent.mkdirs()) {
+      throw new IllegalStateException("Unable to create " + parent);
+    }
+
+    ChainedOptionsBuilder options = new OptionsBuilder()
+        .include(System.getProperty("benchmark.include", BenchmarkRunner.class.getPackage().getName() + ".*Benchmark"))
+        .resultFormat(ResultFormatType.JSON)
+        .result(result.getPath());
+    String hosts = System.getProperty("benchmark.hosts");
+    if (hosts != null) {
+      options.param("hosts", hosts.split(","));
+    }
+    String tasks = System.getProperty("benchmark.tasks");
+    if (tasks != null) {
+      options.param("tasks", tasks.split(","));
+    }
+    if (Boolean.getBoolean("benchmark.quick")) {
+      options.warmupIterations(1).warmupTime(TimeValue.seconds(1))
+          .measurementIterations(1).measurementTime(TimeValue.seconds(1));
+    }
+    new Runner(options.build()).run();
+
+    String baseline = System.getProperty("benchmark.baseline");
+    if (baseline != null) {
+      double threshold = Double.parseDouble(System.getProperty("benchmark.threshold",
+          Double.toString(BaselineComparison.DEFAULT_THRESHOLD_PERCENT)));
+      BaselineComparison comparison = BaselineComparison.load(new File(baseline), result);
+      System.out.print(comparison.report(threshold));
+      if (comparison.hasRegressions(threshold) && Boolean.getBoolean("benchmark.failOnRegression")) {
+        System.exit(1);
+      }
+    }
+  }
+}
@@ -0,0 +1,246 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ambari.server.AmbariException;
+import org.apache.ambari.server.api.services.AmbariMetaInfo;
+import org.apache.ambari.server.controller.AmbariManagementController;
+import org.apache.ambari.server.controller.internal.BlueprintConfigurationProcessor;
+import org.apache.ambari.server.controller.internal.Stack;
+import org.apache.ambari.server.orm.dao.ClusterDAO;
+import org.apache.ambari.server.state.Clusters;
+import org.apache.ambari.server.state.ConfigHelper;
+import org.apache.ambari.server.state.StackId;
+import org.apache.ambari.server.topology.AmbariContext;
+import org.apache.ambari.server.topology.Blueprint;
+import org.apache.ambari.server.topology.BlueprintImpl;
+import org.apache.ambari.server.topology.ClusterTopology;
+import org.apache.ambari.server.topology.ClusterTopologyImpl;
+import org.apache.ambari.server.topology.Component;
+import org.apache.ambari.server.topology.ConfigRecommendationStrategy;
+import org.apache.ambari.server.topology.Configuration;
+import org.apache.ambari.server.topology.HostGroup;
+import org.apache.ambari.server.topology.HostGroupImpl;
+import org.apache.ambari.server.topology.HostGroupInfo;
+import org.apache.ambari.server.topology.TopologyRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.inject.Injector;
+
+/**
+ * Measures {@link BlueprintConfigurationProcessor#doUpdateForClusterCreate},
+ * which resolves the configuration of a cluster created from a blueprint. The
+ * cluster configuration inherits the HDFS defaults of the fixture stack, with
+ * the NameNode addresses pointing to {@code localhost}. The hosts are spread
+ * over {@code hostGroups} worker host groups which run DATANODE and HDFS_CLIENT,
+ * each overriding a few cluster properties, plus a master host group.
+ * <p/>
+ * The processor updates the configuration in place, so every invocation works
+ * on a new topology.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BlueprintConfigurationBenchmark {
+
+  private static final String BLUEPRINT_NAME = "benchmark";
+  private static final String CLUSTER_ENV = "cluster-env";
+  private static final String MASTER_GROUP = "master";
+  private static final List<String> MASTER_COMPONENTS = Arrays.asList("NAMENODE", "SECONDARY_NAMENODE");
+  private static final List<String> WORKER_COMPONENTS = Arrays.asList("DATANODE", "HDFS_CLIENT");
+
+  @Param({"100", "1000"})
+  public int hosts;
+
+  @Param({"10", "50"})
+  public int hostGroups;
+
+  private Stack stack;
+  private AmbariContext ambariContext;
+  private ClusterTopology topology;
+
+  @Setup
+  public void setup() throws Exception {
+    Injector injector = ClusterFixture.getInjector();
+    StackId stackId = new StackId(ClusterFixture.STACK);
+    // the stacks of the fixture don't define cluster-env, which every production stack
+    // has and its services depend on
+    stack = new Stack(stackId.getStackName(), stackId.getStackVersion(),
+        injector.getInstance(AmbariManagementController.class)) {
+      @Override
+      public String getServiceForConfigType(String config) {
+        return CLUSTER_ENV.equals(config) ? ClusterFixture.SERVICE : super.getServiceForConfigType(config);
+      }
+    };
+    ConfigHelper configHelper = new ConfigHelper(injector.getInstance(Clusters.class),
+        injector.getInstance(AmbariMetaInfo.class),
+        injector.getInstance(org.apache.ambari.server.configuration.Configuration.class),
+        injector.getInstance(ClusterDAO.class)) {
+      @Override
+      public Map<String, Map<String, String>> getDefaultStackProperties(StackId stack) throws AmbariException {
+        Map<String, Map<String, String>> properties = super.getDefaultStackProperties(stack);
+        properties.putIfAbsent(CLUSTER_ENV, new HashMap<>());
+        return properties;
+      }
+    };
+
+    // the cluster is not created, so its name is never looked up from the database
+    ambariContext = new AmbariContext() {
+      @Override
+      public String getClusterName(long clusterId) {
+        return BLUEPRINT_NAME;
+      }
+
+      @Override
+      public ConfigHelper getConfigHelper() {
+        return configHelper;
+      }
+    };
+    injector.injectMembers(ambariContext);
+  }
+
+  @Setup(Level.Invocation)
+  public void createTopology() throws Exception {
+    Configuration stackConfiguration = stack.getConfiguration(Collections.singleton(ClusterFixture.SERVICE));
+    Map<String, Map<String, String>> clusterProperties = new HashMap<>();
+    Map<String, String> hdfsSite = new HashMap<>();
+    hdfsSite.put("dfs.namenode.http-address", "localhost:50070");
+    hdfsSite.put("dfs.namenode.https-address", "localhost:50470");
+    hdfsSite.put("dfs.namenode.rpc-address", "localhost:8020");
+    hdfsSite.put("dfs.namenode.secondary.http-address", "localhost:50090");
+    clusterProperties.put("hdfs-site", hdfsSite);
+    clusterProperties.put("core-site", new HashMap<>(Collections.singletonMap("fs.defaultFS", "hdfs://localhost:8020")));
+    Configuration clusterConfiguration = new Configuration(clusterProperties,
+        new HashMap<>(), stackConfiguration);
+
+    Collection<HostGroup> groups = new ArrayList<>();
+    Map<String, HostGroupInfo> groupInfos = new HashMap<>();
+    groups.add(createHostGroup(MASTER_GROUP, MASTER_COMPONENTS));
+    HostGroupInfo masterInfo = new HostGroupInfo(MASTER_GROUP);
+    masterInfo.addHost("master.example.com");
+    masterInfo.setConfiguration(new Configuration(new HashMap<>(), new HashMap<>()));
+    groupInfos.put(MASTER_GROUP, masterInfo);
+    for (int i = 0; i < hostGroups; i++) {
+      String name = "workers-" + i;
+      groups.add(createHostGroup(name, WORKER_COMPONENTS));
+      HostGroupInfo groupInfo = new HostGroupInfo(name);
+      Map<String, Map<String, String>> groupProperties = new HashMap<>();
+      Map<String, String> groupHdfsSite = new HashMap<>();
+      groupHdfsSite.put("dfs.datanode.data.dir", "/grid/" + i + "/hdfs/data");
+      groupHdfsSite.put("dfs.datanode.du.reserved", String.valueOf(1073741824L * (i + 1)));
+      groupProperties.put("hdfs-site", groupHdfsSite);
+      groupInfo.setConfiguration(new Configuration(groupProperties, new HashMap<>()));
+      groupInfos.put(name, groupInfo);
+    }
+    for (int i = 0; i < hosts; i++) {
+      groupInfos.get("workers-" + i % hostGroups).addHost(String.format("worker-%05d.example.com", i));
+    }
+
+    Blueprint blueprint = new BlueprintImpl(BLUEPRINT_NAME, groups, stack, new Configuration(
+        new HashMap<>(), new HashMap<>()), null);
+    topology = new ClusterTopologyImpl(ambariContext, new BenchmarkTopologyRequest(blueprint,
+        clusterConfiguration, groupInfos));
+    topology.setConfigRecommendationStrategy(ConfigRecommendationStrategy.NEVER_APPLY);
+  }
+
+  @Benchmark
+  public Set<String> doUpdateForClusterCreate() throws Exception {
+    return new BlueprintConfigurationProcessor(topology).doUpdateForClusterCreate();
+  }
+
+  private HostGroup createHostGroup(String name, List<String> componentNames) {
+    List<Component> components = new ArrayList<>();
+    for (String componentName : componentNames) {
+      components.add(new Component(componentName));
+    }
+    return new HostGroupImpl(name, BLUEPRINT_NAME, stack, components,
+        new Configuration(new HashMap<>(), new HashMap<>()), "1+");
+  }
+
+  /**
+   * Provision request of the topology, only the parts read by
+   * {@link ClusterTopologyImpl} are set.
+   */
+  private static class BenchmarkTopologyRequest implements TopologyRequest {
+
+    private final Blueprint blueprint;
+    private final Configuration configuration;
+    private final Map<String, HostGroupInfo> hostGroupInfo;
+
+    BenchmarkTopologyRequest(Blueprint blueprint, Configuration configuration,
+        Map<String, HostGroupInfo> hostGroupInfo) {
+      this.blueprint = blueprint;
+      this.configuration = configuration;
+      this.hostGroupInfo = hostGroupInfo;
+    }
+
+    @Override
+    public Long getClusterId() {
+      return 1L;
+    }
+
+    @Override
+    public Type getType() {
+      return Type.PROVISION;
+    }
+
+    @Override
+    public Blueprint getBlueprint() {
+      return blueprint;
+    }
+
+    @Override
+    public Configuration getConfiguration() {
+      return configuration;
+    }
+
+    @Override
+    public Map<String, HostGroupInfo> getHostGroupInfo() {
+      return hostGroupInfo;
+    }
+
+    @Override
+    public String getDescription() {
+      return "Provision benchmark cluster";
+    }
+  }
+}
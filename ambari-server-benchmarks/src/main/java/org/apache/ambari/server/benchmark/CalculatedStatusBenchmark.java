@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.benchmark;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ambari.server.actionmanager.HostRoleStatus;
+import org.apache.ambari.server.controller.internal.CalculatedStatus;
+import org.apache.ambari.server.orm.dao.HostRoleCommandStatusSummaryDTO;
+import org.apache.ambari.server.orm.entities.HostRoleCommandEntity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the {@link CalculatedStatus} counting done for request, stage and
+ * upgrade resources, over a request whose tasks are partly completed, in
+ * progress, queued and pending.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CalculatedStatusBenchmark {
+
+  private static final int TASKS_PER_STAGE = 100;
+  private static final HostRoleStatus[] STATUSES = {
+      HostRoleStatus.COMPLETED, HostRoleStatus.COMPLETED, HostRoleStatus.COMPLETED, HostRoleStatus.COMPLETED,
+      HostRoleStatus.IN_PROGRESS, HostRoleStatus.QUEUED, HostRoleStatus.PENDING, HostRoleStatus.PENDING};
+
+  @Param({"1000", "100000"})
+  public int tasks;
+
+  private List<HostRoleCommandEntity> taskEntities;
+  private List<HostRoleStatus> taskStatuses;
+  private Map<Long, HostRoleCommandStatusSummaryDTO> stageSummaries;
+
+  @Setup
+  public void setup() {
+    taskEntities = new ArrayList<>(tasks);
+    taskStatuses = new ArrayList<>(tasks);
+    int stages = (tasks + TASKS_PER_STAGE - 1) / TASKS_PER_STAGE;
+    for (int i = 0; i < tasks; i++) {
+      // earlier stages are further along
+      int progress = i / TASKS_PER_STAGE * STATUSES.length / stages;
+      HostRoleStatus status = STATUSES[Math.min(STATUSES.length - 1, progress + i % 3)];
+      HostRoleCommandEntity entity = new HostRoleCommandEntity();
+      entity.setTaskId((long) i);
+      entity.setStageId((long) (i / TASKS_PER_STAGE));
+      entity.setStatus(status);
+      taskEntities.add(entity);
+      taskStatuses.add(status);
+    }
+
+    stageSummaries = new HashMap<>();
+    for (long stageId = 0; stageId * TASKS_PER_STAGE < tasks; stageId++) {
+      int[] counts = new int[HostRoleStatus.values().length];
+      for (HostRoleStatus status : taskStatuses.subList((int) stageId * TASKS_PER_STAGE,
+          (int) Math.min(tasks, (stageId + 1) * TASKS_PER_STAGE))) {
+        counts[status.ordinal()]++;
+      }
+      stageSummaries.put(stageId, new HostRoleCommandStatusSummaryDTO(0, 0L, 0L, stageId,
+          counts[HostRoleStatus.ABORTED.ordinal()], counts[HostRoleStatus.COMPLETED.ordinal()],
+          counts[HostRoleStatus.FAILED.ordinal()], counts[HostRoleStatus.HOLDING.ordinal()],
+          counts[HostRoleStatus.HOLDING_FAILED.ordinal()], counts[HostRoleStatus.HOLDING_TIMEDOUT.ordinal()],
+          counts[HostRoleStatus.IN_PROGRESS.ordinal()], counts[HostRoleStatus.PENDING.ordinal()],
+          counts[HostRoleStatus.QUEUED.ordinal()], counts[HostRoleStatus.TIMEDOUT.ordinal()],
+          counts[HostRoleStatus.SKIPPED_FAILED.ordinal()]));
+    }
+  }
+
+  @Benchmark
+  public CalculatedStatus statusFromTaskEntities() {
+    return CalculatedStatus.statusFromTaskEntities(taskEntities, false);
+  }
+
+  @Benchmark
+  public HostRoleStatus summaryStatusFromCounts() {
+    Map<HostRoleStatus, Integer> counts = CalculatedStatus.calculateStatusCounts(taskStatuses);
+    return CalculatedStatus.calculateSummaryStatus(counts, taskStatuses.size(), false);
+  }
+
+  @Benchmark
+  public CalculatedStatus statusFromStageSummary() {
+    return CalculatedStatus.statusFromStageSummary(stageSummaries, stageSummaries.keySet());
+  }
+}
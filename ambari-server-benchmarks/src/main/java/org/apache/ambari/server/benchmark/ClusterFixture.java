@@ -0,0 +1,280 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.ambari.server.api.services.AmbariMetaInfo;
+import org.apache.ambari.server.audit.AuditLoggerModule;
+import org.apache.ambari.server.configuration.Configuration;
+import org.apache.ambari.server.controller.ControllerModule;
+import org.apache.ambari.server.ldap.LdapModule;
+import org.apache.ambari.server.orm.DBAccessor;
+import org.apache.ambari.server.orm.GuiceJpaInitializer;
+import org.apache.ambari.server.orm.PersistenceType;
+import org.apache.ambari.server.orm.dao.RepositoryVersionDAO;
+import org.apache.ambari.server.orm.dao.StackDAO;
+import org.apache.ambari.server.orm.entities.RepoDefinitionEntity;
+import org.apache.ambari.server.orm.entities.RepoOsEntity;
+import org.apache.ambari.server.orm.entities.RepositoryVersionEntity;
+import org.apache.ambari.server.state.Cluster;
+import org.apache.ambari.server.state.Clusters;
+import org.apache.ambari.server.state.Config;
+import org.apache.ambari.server.state.ConfigFactory;
+import org.apache.ambari.server.state.Host;
+import org.apache.ambari.server.state.HostConfig;
+import org.apache.ambari.server.state.Service;
+import org.apache.ambari.server.state.ServiceComponent;
+import org.apache.ambari.server.state.ServiceComponentHost;
+import org.apache.ambari.server.state.StackId;
+import org.apache.ambari.server.topology.TopologyManager;
+import org.apache.ambari.server.utils.StageUtils;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+/**
+ * Synthetic cluster for benchmarks which need real server state. The cluster
+ * lives in a Guice injector built from the production {@link ControllerModule}
+ * on top of an in-memory H2 database created from the Derby DDL, so entities,
+ * DAOs and caches behave exactly as they do in the server.
+ * <p/>
+ * A cluster of {@code n} hosts runs HDFS with NAMENODE on the first host,
+ * SECONDARY_NAMENODE on the second, and DATANODE and HDFS_CLIENT on every host.
+ * {@code hdfs-site} and {@code core-site} are desired at tag {@code version2},
+ * which changes a few properties, while every host component last reported
+ * {@code version1}, so every component has stale configs.
+ * <p/>
+ * Stack definitions are read from {@code ../ambari-server/src/test/resources},
+ * override with {@code -Dbenchmark.resources.dir}. Server properties can be
+ * overridden with {@code -Dbenchmark.ambari.<property>=<value>}.
+ */
+public class ClusterFixture {
+
+  public static final String STACK = "HDP-2.2.0";
+  public static final String SERVICE = "HDFS";
+  public static final List<String> CONFIG_TYPES = Collections.unmodifiableList(
+      Arrays.asList("hdfs-site", "core-site"));
+
+  private static final String RESOURCES_DIR_PROPERTY = "benchmark.resources.dir";
+  private static final String DEFAULT_RESOURCES_DIR = "../ambari-server/src/test/resources";
+  private static final String AMBARI_PROPERTY_PREFIX = "benchmark.ambari.";
+  private static final String DDL_SCRIPT = "Ambari-DDL-Derby-CREATE.sql";
+
+  private static final String REPOSITORY_VERSION = "2.2.0.0-1";
+  private static final String ACTUAL_TAG = "version1";
+  private static final String DESIRED_TAG = "version2";
+  // the Derby DDL limits the serialized properties of a config to 3000 characters
+  private static final int CONFIG_PROPERTIES = 80;
+  private static final int CHANGED_PROPERTIES = 10;
+  private static final int HOSTS_PER_RACK = 40;
+
+  private static Injector injector;
+  private static final Map<Integer, ClusterFixture> FIXTURES = new HashMap<>();
+
+  private final Cluster cluster;
+  private final List<String> hostNames = new ArrayList<>();
+
+  /**
+   * Returns the cluster of the given size, creating it on first use. Clusters of
+   * different sizes share one injector and database.
+   */
+  public static synchronized ClusterFixture get(int hostCount) throws Exception {
+    ClusterFixture fixture = FIXTURES.get(hostCount);
+    if (fixture == null) {
+      fixture = new ClusterFixture(getInjector(), hostCount);
+      FIXTURES.put(hostCount, fixture);
+    }
+    return fixture;
+  }
+
+  public static synchronized Injector getInjector() throws Exception {
+    if (injector == null) {
+      injector = createInjector();
+    }
+    return injector;
+  }
+
+  private ClusterFixture(Injector injector, int hostCount) throws Exception {
+    String clusterName = "c" + hostCount;
+    StackId stackId = new StackId(STACK);
+    Clusters clusters = injector.getInstance(Clusters.class);
+    clusters.addCluster(clusterName, stackId);
+    cluster = clusters.getCluster(clusterName);
+
+    Map<String, String> hostAttributes = new HashMap<>();
+    hostAttributes.put("os_family", "redhat");
+    hostAttributes.put("os_release_version", "6.9");
+    for (int i = 0; i < hostCount; i++) {
+      String hostName = String.format("%s-host-%05d.example.com", clusterName, i);
+      clusters.addHost(hostName);
+      Host host = clusters.getHost(hostName);
+      host.setHostAttributes(hostAttributes);
+      host.setIPv4(String.format("10.%d.%d.%d", hostCount % 256, i / 256 % 256, i % 256));
+      host.setRackInfo("/rack-" + i / HOSTS_PER_RACK);
+      hostNames.add(hostName);
+    }
+    clusters.mapAndPublishHostsToCluster(new LinkedHashSet<>(hostNames), clusterName);
+
+    Service service = cluster.addService(SERVICE, getRepositoryVersion(injector, stackId));
+    List<ServiceComponentHost> hostComponents = new ArrayList<>();
+    hostComponents.add(service.addServiceComponent("NAMENODE").addServiceComponentHost(hostNames.get(0)));
+    hostComponents.add(service.addServiceComponent("SECONDARY_NAMENODE")
+        .addServiceComponentHost(hostNames.get(Math.min(1, hostCount - 1))));
+    ServiceComponent dataNode = service.addServiceComponent("DATANODE");
+    ServiceComponent client = service.addServiceComponent("HDFS_CLIENT");
+    for (String hostName : hostNames) {
+      hostComponents.add(dataNode.addServiceComponentHost(hostName));
+      hostComponents.add(client.addServiceComponentHost(hostName));
+    }
+
+    ConfigFactory configFactory = injector.getInstance(ConfigFactory.class);
+    for (String type : CONFIG_TYPES) {
+      Map<String, String> properties = new HashMap<>();
+      for (int i = 0; i < CONFIG_PROPERTIES; i++) {
+        properties.put("property." + i, "value-" + i);
+      }
+      configFactory.createNew(stackId, cluster, type, ACTUAL_TAG, new HashMap<>(properties),
+          new HashMap<>());
+      for (int i = 0; i < CHANGED_PROPERTIES; i++) {
+        properties.put("property." + i, "changed-" + i);
+      }
+      Config desired = configFactory.createNew(stackId, cluster, type, DESIRED_TAG, properties,
+          new HashMap<>());
+      cluster.addDesiredConfig("admin", Collections.singleton(desired));
+    }
+
+    for (ServiceComponentHost hostComponent : hostComponents) {
+      for (String type : CONFIG_TYPES) {
+        HostConfig hostConfig = new HostConfig();
+        hostConfig.setDefaultVersionTag(ACTUAL_TAG);
+        hostComponent.getActualConfigs().put(type, hostConfig);
+      }
+    }
+  }
+
+  public Cluster getCluster() {
+    return cluster;
+  }
+
+  public List<String> getHostNames() {
+    return hostNames;
+  }
+
+  /**
+   * @return every host component of the cluster
+   */
+  public List<ServiceComponentHost> getServiceComponentHosts() {
+    return cluster.getServiceComponentHosts();
+  }
+
+  private static RepositoryVersionEntity getRepositoryVersion(Injector injector, StackId stackId)
+      throws Exception {
+    RepositoryVersionDAO repositoryVersionDAO = injector.getInstance(RepositoryVersionDAO.class);
+    RepositoryVersionEntity repositoryVersion = repositoryVersionDAO.findByStackAndVersion(stackId,
+        REPOSITORY_VERSION);
+    if (repositoryVersion == null) {
+      RepoDefinitionEntity repoDefinition = new RepoDefinitionEntity();
+      repoDefinition.setRepoID(stackId.getStackId());
+      repoDefinition.setRepoName(stackId.getStackName());
+      repoDefinition.setBaseUrl("");
+      RepoOsEntity repoOs = new RepoOsEntity();
+      repoOs.setFamily("redhat6");
+      repoOs.setAmbariManaged(true);
+      repoOs.addRepoDefinition(repoDefinition);
+      repositoryVersion = repositoryVersionDAO.create(injector.getInstance(StackDAO.class).find(stackId),
+          REPOSITORY_VERSION, STACK + "-" + REPOSITORY_VERSION, Collections.singletonList(repoOs));
+    }
+    return repositoryVersion;
+  }
+
+  private static Injector createInjector() throws Exception {
+    File resourcesDir = new File(System.getProperty(RESOURCES_DIR_PROPERTY, DEFAULT_RESOURCES_DIR))
+        .getCanonicalFile();
+    if (!new File(resourcesDir, "stacks").isDirectory()) {
+      throw new IllegalStateException("No stack definitions in " + resourcesDir + ", set -D"
+          + RESOURCES_DIR_PROPERTY);
+    }
+    File workDir = Files.createTempDirectory("ambari-benchmark").toFile();
+    File passwordFile = new File(workDir, "password.dat");
+    Files.write(passwordFile.toPath(), "bigdata".getBytes(StandardCharsets.UTF_8));
+
+    // the "in-memory" persistence type leaves the database without its seed data,
+    // so the H2 database is used as a remote one and created from the DDL script
+    Properties properties = new Properties();
+    properties.setProperty(Configuration.SERVER_PERSISTENCE_TYPE.getKey(), PersistenceType.REMOTE.getValue());
+    properties.setProperty(Configuration.SERVER_JDBC_URL.getKey(), Configuration.JDBC_IN_MEMORY_URL);
+    properties.setProperty(Configuration.SERVER_JDBC_DRIVER.getKey(), Configuration.JDBC_IN_MEMORY_DRIVER);
+    properties.setProperty(Configuration.SERVER_JDBC_USER_NAME.getKey(), Configuration.JDBC_IN_MEMORY_USER);
+    properties.setProperty(Configuration.SERVER_JDBC_USER_PASSWD.getKey(), passwordFile.getPath());
+    properties.setProperty(Configuration.METADATA_DIR_PATH.getKey(), new File(resourcesDir, "stacks").getPath());
+    properties.setProperty(Configuration.COMMON_SERVICES_DIR_PATH.getKey(),
+        new File(resourcesDir, "common-services").getPath());
+    properties.setProperty(Configuration.SERVER_VERSION_FILE.getKey(), new File(resourcesDir, "version").getPath());
+    properties.setProperty(Configuration.SHARED_RESOURCES_DIR.getKey(), resourcesDir.getPath());
+    properties.setProperty(Configuration.RESOURCES_DIR.getKey(), resourcesDir.getPath());
+    properties.setProperty(Configuration.OS_VERSION.getKey(), "centos6");
+    properties.setProperty(Configuration.SRVR_KSTR_DIR.getKey(), workDir.getPath());
+    properties.setProperty(Configuration.SERVER_TMP_DIR.getKey(), workDir.getPath());
+    for (String name : System.getProperties().stringPropertyNames()) {
+      if (name.startsWith(AMBARI_PROPERTY_PREFIX)) {
+        properties.setProperty(name.substring(AMBARI_PROPERTY_PREFIX.length()), System.getProperty(name));
+      }
+    }
+
+    Injector injector = Guice.createInjector(new ControllerModule(properties), new AuditLoggerModule(),
+        new LdapModule());
+    injector.getInstance(GuiceJpaInitializer.class).setInitialized();
+    DBAccessor dbAccessor = injector.getInstance(DBAccessor.class);
+    // the Derby script seeds its tables from Derby's single row dummy table
+    dbAccessor.executeQuery("CREATE SCHEMA IF NOT EXISTS SYSIBM");
+    dbAccessor.executeQuery("CREATE TABLE IF NOT EXISTS SYSIBM.SYSDUMMY1 (IBMREQD CHAR(1))");
+    dbAccessor.executeQuery("INSERT INTO SYSIBM.SYSDUMMY1 VALUES ('Y')");
+    dbAccessor.executeScript(extractDdlScript(workDir).getPath());
+    // reading the stack definitions adds the stacks to the database
+    injector.getInstance(AmbariMetaInfo.class);
+
+    StageUtils.setTopologyManager(injector.getInstance(TopologyManager.class));
+    StageUtils.setConfiguration(injector.getInstance(Configuration.class));
+    return injector;
+  }
+
+  private static File extractDdlScript(File workDir) throws IOException {
+    File script = new File(workDir, DDL_SCRIPT);
+    try (InputStream in = ClusterFixture.class.getClassLoader().getResourceAsStream(DDL_SCRIPT)) {
+      if (in == null) {
+        throw new IllegalStateException(DDL_SCRIPT + " is not on the classpath");
+      }
+      Files.copy(in, script.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+    return script;
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ambari.server.RoleCommand;
+import org.apache.ambari.server.actionmanager.ExecutionCommandWrapper;
+import org.apache.ambari.server.actionmanager.ExecutionCommandWrapperFactory;
+import org.apache.ambari.server.agent.ExecutionCommand;
+import org.apache.ambari.server.state.Cluster;
+import org.apache.ambari.server.utils.StageUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.Gson;
+import com.google.inject.Injector;
+
+/**
+ * Measures the Gson round trip of an {@link ExecutionCommand} through
+ * {@link ExecutionCommandWrapper}: serializing a command for persistence and
+ * de-serializing it again, the first step of
+ * {@link ExecutionCommandWrapper#getExecutionCommand()}. The remaining steps
+ * merge configurations of a persisted task and are not covered.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExecutionCommandBenchmark {
+
+  @Param({"100", "1000"})
+  public int hosts;
+
+  private ExecutionCommandWrapperFactory wrapperFactory;
+  private Gson gson;
+  private ExecutionCommand command;
+  private String json;
+
+  @Setup
+  public void setup() throws Exception {
+    ClusterFixture fixture = ClusterFixture.get(hosts);
+    Injector injector = ClusterFixture.getInjector();
+    wrapperFactory = injector.getInstance(ExecutionCommandWrapperFactory.class);
+    gson = injector.getInstance(Gson.class);
+
+    Cluster cluster = fixture.getCluster();
+    command = new ExecutionCommand();
+    command.setRequestAndStage(1L, 1L);
+    command.setTaskId(1L);
+    command.setClusterName(cluster.getClusterName());
+    command.setClusterId(Long.toString(cluster.getClusterId()));
+    command.setHostname(fixture.getHostNames().get(0));
+    command.setServiceName(ClusterFixture.SERVICE);
+    command.setComponentName("DATANODE");
+    command.setRole("DATANODE");
+    command.setRoleCommand(RoleCommand.START);
+    command.setClusterHostInfo(StageUtils.getClusterHostInfo(cluster));
+
+    Map<String, Map<String, String>> configurations = new TreeMap<>();
+    Map<String, Map<String, String>> configurationTags = new TreeMap<>();
+    for (String type : ClusterFixture.CONFIG_TYPES) {
+      configurations.put(type, new TreeMap<>(cluster.getDesiredConfigByType(type).getProperties()));
+      Map<String, String> tags = new HashMap<>();
+      tags.put("tag", cluster.getDesiredConfigByType(type).getTag());
+      configurationTags.put(type, tags);
+    }
+    command.setConfigurations(configurations);
+    command.setConfigurationTags(configurationTags);
+    command.setConfigurationAttributes(new TreeMap<>());
+
+    Map<String, String> commandParams = new TreeMap<>();
+    commandParams.put("command_timeout", "600");
+    commandParams.put("script", "scripts/datanode.py");
+    commandParams.put("script_type", "PYTHON");
+    commandParams.put("service_package_folder", "common-services/HDFS/2.1.0.2.0/package");
+    command.setCommandParams(commandParams);
+
+    json = wrapperFactory.createFromCommand(command).getJson();
+  }
+
+  @Benchmark
+  public String toJson() {
+    return wrapperFactory.createFromCommand(command).getJson();
+  }
+
+  @Benchmark
+  public ExecutionCommand fromJson() {
+    return gson.fromJson(json, ExecutionCommand.class);
+  }
+}
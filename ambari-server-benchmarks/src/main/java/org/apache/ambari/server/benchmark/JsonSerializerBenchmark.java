@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ambari.server.api.services.Result;
+import org.apache.ambari.server.api.services.ResultImpl;
+import org.apache.ambari.server.api.services.ResultStatus;
+import org.apache.ambari.server.api.services.serializers.JsonSerializer;
+import org.apache.ambari.server.api.util.TreeNode;
+import org.apache.ambari.server.controller.internal.ResourceImpl;
+import org.apache.ambari.server.controller.spi.Resource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures rendering a {@code GET /clusters/c1/hosts?fields=Hosts/*,host_components/HostRoles/*}
+ * response with {@link JsonSerializer}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonSerializerBenchmark {
+
+  private static final String HREF = "http://ambari.example.com:8080/api/v1/clusters/c1/hosts/";
+  private static final String[] COMPONENTS = {"DATANODE", "HDFS_CLIENT", "NODEMANAGER", "ZOOKEEPER_CLIENT"};
+
+  @Param({"100", "1000"})
+  public int hosts;
+
+  private Result result;
+
+  @Setup
+  public void setup() {
+    result = new ResultImpl(true);
+    result.setResultStatus(new ResultStatus(ResultStatus.STATUS.OK));
+    TreeNode<Resource> items = result.getResultTree().addChild(null, "items");
+    for (int i = 0; i < hosts; i++) {
+      String hostName = String.format("host-%05d.example.com", i);
+      Resource host = new ResourceImpl(Resource.Type.Host);
+      host.setProperty("Hosts/cluster_name", "c1");
+      host.setProperty("Hosts/host_name", hostName);
+      host.setProperty("Hosts/ip", "10.0." + i / 256 + "." + i % 256);
+      host.setProperty("Hosts/rack_info", "/rack-" + i / 40);
+      host.setProperty("Hosts/cpu_count", 8);
+      host.setProperty("Hosts/total_mem", 32L * 1024 * 1024);
+      host.setProperty("Hosts/os_type", "centos6");
+      host.setProperty("Hosts/host_state", "HEALTHY");
+      host.setProperty("Hosts/host_status", "HEALTHY");
+      host.setProperty("Hosts/maintenance_state", "OFF");
+      host.setProperty("Hosts/last_heartbeat_time", 1500000000000L + i);
+      host.setProperty("Hosts/disk_info", "[{\"mountpoint\":\"/\",\"available\":\"81920000\",\"used\":\"1024\"}]");
+      TreeNode<Resource> hostNode = items.addChild(host, "Host:" + i);
+      hostNode.setProperty("href", HREF + hostName);
+
+      TreeNode<Resource> hostComponents = hostNode.addChild(null, "host_components");
+      for (String component : COMPONENTS) {
+        Resource hostComponent = new ResourceImpl(Resource.Type.HostComponent);
+        hostComponent.setProperty("HostRoles/cluster_name", "c1");
+        hostComponent.setProperty("HostRoles/component_name", component);
+        hostComponent.setProperty("HostRoles/host_name", hostName);
+        hostComponent.setProperty("HostRoles/state", "STARTED");
+        hostComponent.setProperty("HostRoles/desired_state", "STARTED");
+        hostComponent.setProperty("HostRoles/stale_configs", false);
+        hostComponent.setProperty("HostRoles/maintenance_state", "OFF");
+        TreeNode<Resource> componentNode = hostComponents.addChild(hostComponent, "HostComponent:" + component);
+        componentNode.setProperty("href", HREF + hostName + "/host_components/" + component);
+      }
+    }
+  }
+
+  @Benchmark
+  public Object serialize() {
+    return new JsonSerializer().serialize(result);
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ambari.server.api.predicate.CachingPredicateCompiler;
+import org.apache.ambari.server.api.predicate.InvalidQueryException;
+import org.apache.ambari.server.api.predicate.PredicateCompiler;
+import org.apache.ambari.server.api.predicate.QueryLexer;
+import org.apache.ambari.server.api.predicate.QueryParser;
+import org.apache.ambari.server.api.predicate.Token;
+import org.apache.ambari.server.controller.internal.ResourceImpl;
+import org.apache.ambari.server.controller.spi.Predicate;
+import org.apache.ambari.server.controller.spi.Resource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures compiling a REST query predicate, split into {@link QueryLexer} and
+ * {@link QueryParser}, and evaluating the compiled predicate. The query has the
+ * shape the web UI sends for host component pages: an {@code .in()} list with
+ * every host of the cluster plus a few state and maintenance filters.
+ * <p/>
+ * The {@code cached} benchmarks compile through {@link CachingPredicateCompiler}
+ * with its default cache sizes: {@code cachedRepeated} sends the query with a
+ * new {@code _} cache buster every time, as the UI does when polling, and
+ * {@code cachedNewValues} changes a literal value of the query every time, more
+ * often than the predicate cache can hold, so only the scan is saved.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QueryBenchmark {
+
+  @Param({"100", "1000"})
+  public int hosts;
+
+  private static final int VARIANTS = 4096;
+
+  private String query;
+  private String[] repeatedQueries;
+  private String[] newValueQueries;
+  private int variant;
+  private CachingPredicateCompiler cachingCompiler;
+  private Token[] tokens;
+  private Predicate predicate;
+  private List<Resource> resources;
+
+  @Setup
+  public void setup() throws InvalidQueryException {
+    StringBuilder hostList = new StringBuilder();
+    resources = new ArrayList<>(hosts);
+    for (int i = 0; i < hosts; i++) {
+      String hostName = String.format("host-%05d.example.com", i);
+      hostList.append(i == 0 ? "" : ",").append(hostName);
+
+      Resource resource = new ResourceImpl(Resource.Type.HostComponent);
+      resource.setProperty("HostRoles/host_name", hostName);
+      resource.setProperty("HostRoles/component_name", i % 2 == 0 ? "DATANODE" : "NODEMANAGER");
+      resource.setProperty("HostRoles/state", i % 10 == 0 ? "INSTALLED" : "STARTED");
+      resource.setProperty("HostRoles/maintenance_state", "OFF");
+      resources.add(resource);
+    }
+    query = "HostRoles/host_name.in(" + hostList + ")&(HostRoles/component_name=DATANODE"
+        + "|HostRoles/component_name=NODEMANAGER)&HostRoles/state!=STARTED"
+        + "&HostRoles/maintenance_state=OFF";
+    repeatedQueries = new String[VARIANTS];
+    newValueQueries = new String[VARIANTS];
+    for (int i = 0; i < VARIANTS; i++) {
+      repeatedQueries[i] = query + "&_=" + (1500000000000L + i);
+      newValueQueries[i] = query.replace("maintenance_state=OFF", "maintenance_state=OFF" + i);
+    }
+    cachingCompiler = new CachingPredicateCompiler(500, 1000);
+    tokens = new QueryLexer().tokens(query);
+    predicate = new PredicateCompiler().compile(query);
+  }
+
+  @Benchmark
+  public Token[] lex() throws InvalidQueryException {
+    return new QueryLexer().tokens(query);
+  }
+
+  @Benchmark
+  public Predicate parse() throws InvalidQueryException {
+    return new QueryParser().parse(tokens);
+  }
+
+  @Benchmark
+  public Predicate compile() throws InvalidQueryException {
+    return new PredicateCompiler().compile(query);
+  }
+
+  @Benchmark
+  public Predicate cachedRepeated() throws InvalidQueryException {
+    variant = (variant + 1) % VARIANTS;
+    return cachingCompiler.compile(repeatedQueries[variant]);
+  }
+
+  @Benchmark
+  public Predicate cachedNewValues() throws InvalidQueryException {
+    variant = (variant + 1) % VARIANTS;
+    return cachingCompiler.compile(newValueQueries[variant]);
+  }
+
+  @Benchmark
+  public void evaluate(Blackhole blackhole) {
+    for (Resource resource : resources) {
+      blackhole.consume(predicate.evaluate(resource));
+    }
+  }
+}
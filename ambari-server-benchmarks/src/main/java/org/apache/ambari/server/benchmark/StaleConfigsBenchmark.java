@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.benchmark;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ambari.server.AmbariException;
+import org.apache.ambari.server.state.Cluster;
+import org.apache.ambari.server.state.ConfigHelper;
+import org.apache.ambari.server.state.DesiredConfig;
+import org.apache.ambari.server.state.ServiceComponentHost;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link ConfigHelper#isStaleConfigs} for every host component of the
+ * cluster, as done when rendering all host components. After the first pass
+ * the results come from the stale configs cache, run with
+ * {@code -Dbenchmark.ambari.server.cache.isStale.enabled=false} to measure the
+ * full calculation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StaleConfigsBenchmark {
+
+  @Param({"100", "1000"})
+  public int hosts;
+
+  private ConfigHelper configHelper;
+  private Cluster cluster;
+  private List<ServiceComponentHost> hostComponents;
+
+  @Setup
+  public void setup() throws Exception {
+    ClusterFixture fixture = ClusterFixture.get(hosts);
+    configHelper = ClusterFixture.getInjector().getInstance(ConfigHelper.class);
+    cluster = fixture.getCluster();
+    hostComponents = fixture.getServiceComponentHosts();
+  }
+
+  @Benchmark
+  public int isStaleConfigs() throws AmbariException {
+    Map<String, DesiredConfig> desiredConfigs = cluster.getDesiredConfigs();
+    int stale = 0;
+    for (ServiceComponentHost hostComponent : hostComponents) {
+      if (configHelper.isStaleConfigs(hostComponent, desiredConfigs)) {
+        stale++;
+      }
+    }
+    return stale;
+  }
+}
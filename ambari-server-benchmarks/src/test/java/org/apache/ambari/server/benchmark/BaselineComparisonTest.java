@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.benchmark;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.apache.ambari.server.benchmark.BaselineComparison.Difference;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BaselineComparisonTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testAverageTimeRegression() throws Exception {
+    BaselineComparison comparison = BaselineComparison.load(
+        write("baseline.json", result("a.B.lex", "avgt", "100", 10.0, 0.5)),
+        write("current.json", result("a.B.lex", "avgt", "100", 12.0, 0.5)));
+
+    List<Difference> differences = comparison.getDifferences();
+    assertEquals(1, differences.size());
+    assertEquals(20.0, differences.get(0).getChangePercent(), 0.001);
+    assertTrue(comparison.hasRegressions(10.0));
+    assertFalse(comparison.hasRegressions(25.0));
+    assertTrue(comparison.report(10.0).contains("REGRESSION"));
+  }
+
+  @Test
+  public void testThroughputHigherIsBetter() throws Exception {
+    BaselineComparison comparison = BaselineComparison.load(
+        write("baseline.json", result("a.B.lex", "thrpt", "100", 100.0, 1.0)),
+        write("current.json", result("a.B.lex", "thrpt", "100", 150.0, 1.0)));
+    assertFalse(comparison.hasRegressions(10.0));
+
+    comparison = BaselineComparison.load(
+        write("baseline2.json", result("a.B.lex", "thrpt", "100", 100.0, 1.0)),
+        write("current2.json", result("a.B.lex", "thrpt", "100", 50.0, 1.0)));
+    assertTrue(comparison.hasRegressions(10.0));
+  }
+
+  @Test
+  public void testChangeWithinErrorIsNoRegression() throws Exception {
+    BaselineComparison comparison = BaselineComparison.load(
+        write("baseline.json", result("a.B.lex", "avgt", "100", 10.0, 2.0)),
+        write("current.json", result("a.B.lex", "avgt", "100", 13.0, 2.0)));
+    assertFalse(comparison.hasRegressions(10.0));
+  }
+
+  @Test
+  public void testParametersAreMatched() throws Exception {
+    BaselineComparison comparison = BaselineComparison.load(
+        write("baseline.json", result("a.B.lex", "avgt", "100", 10.0, 0.1)),
+        write("current.json", result("a.B.lex", "avgt", "100", 10.0, 0.1) + ","
+            + result("a.B.lex", "avgt", "1000", 90.0, 0.1)));
+
+    assertEquals(1, comparison.getDifferences().size());
+    assertFalse(comparison.hasRegressions(10.0));
+    assertTrue(comparison.report(10.0).contains("a.B.lex{hosts=1000}"));
+  }
+
+  private File write(String name, String results) throws Exception {
+    File file = folder.newFile(name);
+    Files.write(file.toPath(), ("[" + results + "]").getBytes(StandardCharsets.UTF_8));
+    return file;
+  }
+
+  private static String result(String benchmark, String mode, String hosts, double score, double error) {
+    return "{\"benchmark\":\"" + benchmark + "\",\"mode\":\"" + mode + "\",\"params\":{\"hosts\":\"" + hosts + "\"},"
+        + "\"primaryMetric\":{\"score\":" + score + ",\"scoreError\":" + error + ",\"scoreUnit\":\"ms/op\"}}";
+  }
+}
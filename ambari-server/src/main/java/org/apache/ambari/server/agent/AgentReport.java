@@ -33,6 +33,10 @@ public abstract class AgentReport<R> {
     return hostName;
   }
 
+  public R getReport() {
+    return report;
+  }
+
   public final void process() throws AmbariException {
     process(report, hostName);
   }
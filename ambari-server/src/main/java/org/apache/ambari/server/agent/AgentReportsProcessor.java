@@ -18,7 +18,11 @@
 package org.apache.ambari.server.agent;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
@@ -41,11 +45,48 @@ public class AgentReportsProcessor {
 
   private final List<ExecutorService> executors;
 
+  /**
+   * Reports waiting for each executor.  Every executor drains its queue at
+   * once, so status reports of a host which arrive while it is busy are
+   * merged before they are processed.
+   */
+  private final List<Queue<AgentReport>> pendingReports;
+
   public void addAgentReport(AgentReport agentReport) {
     int hash = agentReport.getHostName().hashCode();
     hash = hash == Integer.MIN_VALUE ? 0 : hash;
     int executorNumber = Math.abs(hash) % poolSize;
-    executors.get(executorNumber).execute(new AgentReportProcessingTask(agentReport));
+    pendingReports.get(executorNumber).add(agentReport);
+    executors.get(executorNumber).execute(new AgentReportProcessingTask(pendingReports.get(executorNumber)));
+  }
+
+  /**
+   * Merges consecutive component status reports of a host which are not
+   * separated by another report of the same host, so that the component
+   * states of the host are transitioned and persisted in one batch.
+   *
+   * @param agentReports  reports in the order received
+   * @return the reports to process, in order
+   */
+  static List<AgentReport> coalesce(List<AgentReport> agentReports) {
+    List<AgentReport> coalesced = new ArrayList<>(agentReports.size());
+    Map<String, Integer> openStatusReports = new HashMap<>();
+    for (AgentReport agentReport : agentReports) {
+      String hostName = agentReport.getHostName();
+      if (agentReport instanceof ComponentStatusAgentReport) {
+        Integer index = openStatusReports.get(hostName);
+        if (index != null) {
+          ComponentStatusAgentReport earlier = (ComponentStatusAgentReport) coalesced.get(index);
+          coalesced.set(index, earlier.merge((ComponentStatusAgentReport) agentReport));
+          continue;
+        }
+        openStatusReports.put(hostName, coalesced.size());
+      } else {
+        openStatusReports.remove(hostName);
+      }
+      coalesced.add(agentReport);
+    }
+    return coalesced;
   }
 
   @Inject
@@ -57,30 +98,45 @@ public class AgentReportsProcessor {
     ThreadFactory threadFactory = new ThreadFactoryBuilder().setNameFormat("agent-report-processor-%d").build();
     poolSize = configuration.getAgentsReportThreadPoolSize();
     executors = new ArrayList<>();
+    pendingReports = new ArrayList<>();
     for (int i = 0; i < poolSize; i++) {
       executors.add(Executors.newSingleThreadExecutor(threadFactory));
+      pendingReports.add(new ConcurrentLinkedQueue<>());
     }
   }
 
   private class AgentReportProcessingTask implements Runnable {
 
-    private final AgentReport agentReport;
+    private final Queue<AgentReport> agentReports;
 
-    public AgentReportProcessingTask(AgentReport agentReport) {
-      this.agentReport = agentReport;
+    public AgentReportProcessingTask(Queue<AgentReport> agentReports) {
+      this.agentReports = agentReports;
     }
 
     @Override
     public void run() {
-      try {
+      List<AgentReport> drained = new ArrayList<>();
+      AgentReport agentReport;
+      while ((agentReport = agentReports.poll()) != null) {
+        drained.add(agentReport);
+      }
+      if (drained.isEmpty()) {
+        // processed by an earlier task
+        return;
+      }
+
+      // each report gets its own unit of work, so the persistence context
+      // does not grow with the number of reports drained at once
+      for (AgentReport report : coalesce(drained)) {
         unitOfWork.begin();
         try {
-          agentReport.process();
-        } catch (AmbariException e) {
+          report.process();
+        } catch (AmbariException | RuntimeException e) {
+          // keep processing the other reports drained with this one
           LOG.error("Error processing agent reports", e);
+        } finally {
+          unitOfWork.end();
         }
-      } finally {
-        unitOfWork.end();
       }
     }
   }
@@ -17,7 +17,10 @@
  */
 package org.apache.ambari.server.agent;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.ambari.server.AmbariException;
 
@@ -29,6 +32,30 @@ public class ComponentStatusAgentReport extends AgentReport<List<ComponentStatus
     this.hh = hh;
   }
 
+  /**
+   * Combines this report with a later status report of the same host.  The
+   * statuses of components which are reported again are replaced by the later
+   * ones, so only the latest status of each component is applied.
+   *
+   * @param later  a status report received after this one
+   * @return the combined report
+   */
+  public ComponentStatusAgentReport merge(ComponentStatusAgentReport later) {
+    Map<String, ComponentStatus> statuses = new LinkedHashMap<>();
+    for (ComponentStatus status : getReport()) {
+      statuses.put(getKey(status), status);
+    }
+    for (ComponentStatus status : later.getReport()) {
+      statuses.remove(getKey(status));
+      statuses.put(getKey(status), status);
+    }
+    return new ComponentStatusAgentReport(hh, getHostName(), new ArrayList<>(statuses.values()));
+  }
+
+  private static String getKey(ComponentStatus status) {
+    return status.getClusterId() + "/" + status.getServiceName() + "/" + status.getComponentName();
+  }
+
   @Override
   protected void process(List<ComponentStatus> report, String hostName) throws AmbariException {
     hh.handleComponentReportStatus(report, hostName);
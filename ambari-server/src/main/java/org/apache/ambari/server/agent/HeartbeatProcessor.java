@@ -76,6 +76,8 @@ import org.apache.ambari.server.state.svccomphost.ServiceComponentHostOpInProgre
 import org.apache.ambari.server.state.svccomphost.ServiceComponentHostOpSucceededEvent;
 import org.apache.ambari.server.state.svccomphost.ServiceComponentHostStartedEvent;
 import org.apache.ambari.server.state.svccomphost.ServiceComponentHostStoppedEvent;
+import org.apache.ambari.server.state.svccomphost.ServiceComponentHostTransitionProcessor;
+import org.apache.ambari.server.state.svccomphost.ServiceComponentHostTransitionProcessor.Transition;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
@@ -142,6 +144,9 @@ public class HeartbeatProcessor extends AbstractService{
   @Inject
   Gson gson;
 
+  @Inject
+  ServiceComponentHostTransitionProcessor transitionProcessor;
+
   @Inject
   public HeartbeatProcessor(Clusters clusterFsm, ActionManager am, HeartbeatMonitor heartbeatMonitor,
                             Injector injector) {
@@ -331,6 +336,8 @@ public class HeartbeatProcessor extends AbstractService{
     }
     Map<Long, HostRoleCommand> commands = actionManager.getTasksMap(taskIds);
 
+    // state transitions of all reports are persisted together
+    List<Transition> transitions = new ArrayList<>();
     for (CommandReport report : reports) {
 
       Long clusterId = Long.parseLong(report.getClusterId());
@@ -428,6 +435,7 @@ public class HeartbeatProcessor extends AbstractService{
       Cluster cl = clusterFsm.getCluster(Long.parseLong(report.getClusterId()));
       String service = report.getServiceName();
       if (service == null || service.isEmpty()) {
+        transitionProcessor.process(transitions);
         throw new AmbariException("Invalid command report, service: " + service);
       }
       if (actionMetadata.getActions(service.toLowerCase()).contains(report.getRole())) {
@@ -487,17 +495,17 @@ public class HeartbeatProcessor extends AbstractService{
             if (RoleCommand.START.toString().equals(report.getRoleCommand()) ||
                 (RoleCommand.CUSTOM_COMMAND.toString().equals(report.getRoleCommand()) &&
                     "START".equals(report.getCustomCommand()))) {
-              scHost.handleEvent(new ServiceComponentHostStartedEvent(schName,
-                  hostName, now));
+              transitions.add(Transition.of(scHost, new ServiceComponentHostStartedEvent(schName,
+                  hostName, now)));
               scHost.setRestartRequired(false);
             } else if (RoleCommand.STOP.toString().equals(report.getRoleCommand()) ||
                 (RoleCommand.CUSTOM_COMMAND.toString().equals(report.getRoleCommand()) &&
                     "STOP".equals(report.getCustomCommand()))) {
-              scHost.handleEvent(new ServiceComponentHostStoppedEvent(schName,
-                  hostName, now));
+              transitions.add(Transition.of(scHost, new ServiceComponentHostStoppedEvent(schName,
+                  hostName, now)));
             } else {
-              scHost.handleEvent(new ServiceComponentHostOpSucceededEvent(schName,
-                  hostName, now));
+              transitions.add(Transition.of(scHost, new ServiceComponentHostOpSucceededEvent(schName,
+                  hostName, now)));
             }
           } else if (report.getStatus().equals("FAILED")) {
 
@@ -516,27 +524,23 @@ public class HeartbeatProcessor extends AbstractService{
             LOG.error("Operation failed - may be retried. Service component host: "
                 + schName + ", host: " + hostName + " Action id " + report.getActionId() + " and taskId " + report.getTaskId());
             if (actionManager.isInProgressCommand(report)) {
-              scHost.handleEvent(new ServiceComponentHostOpFailedEvent
-                  (schName, hostName, now));
+              transitions.add(Transition.of(scHost, new ServiceComponentHostOpFailedEvent
+                  (schName, hostName, now)));
             } else {
               LOG.info("Received report for a command that is no longer active. " + report);
             }
           } else if (report.getStatus().equals("IN_PROGRESS")) {
-            scHost.handleEvent(new ServiceComponentHostOpInProgressEvent(schName,
-                hostName, now));
+            transitions.add(Transition.of(scHost, new ServiceComponentHostOpInProgressEvent(schName,
+                hostName, now)));
           }
         } catch (ServiceComponentNotFoundException scnex) {
           LOG.warn("Service component not found ", scnex);
-        } catch (InvalidStateTransitionException ex) {
-          if (LOG.isDebugEnabled()) {
-            LOG.warn("State machine exception.", ex);
-          } else {
-            LOG.warn("State machine exception. " + ex.getMessage());
-          }
         }
       }
     }
 
+    transitionProcessor.process(transitions);
+
     //Update state machines from reports
     actionManager.processTaskResponse(hostName, reports, commands);
   }
@@ -621,6 +625,7 @@ public class HeartbeatProcessor extends AbstractService{
    */
   public void processStatusReports(List<ComponentStatus> componentStatuses, String hostname) throws AmbariException {
     Set<Cluster> clusters = clusterFsm.getClustersForHost(hostname);
+    List<Transition> transitions = new ArrayList<>();
     for (Cluster cl : clusters) {
       for (ComponentStatus status : componentStatuses) {
         if (status.getClusterId().equals(cl.getClusterId())) {
@@ -634,24 +639,11 @@ public class HeartbeatProcessor extends AbstractService{
               ServiceComponentHost scHost = svcComp.getServiceComponentHost(
                   hostname);
               if (status.getStatus() != null) {
-                org.apache.ambari.server.state.State prevState = scHost.getState();
                 org.apache.ambari.server.state.State liveState =
                     org.apache.ambari.server.state.State.valueOf(org.apache.ambari.server.state.State.class,
                         status.getStatus());
-                //ignore reports from status commands if component is in INIT or any "in progress" state
-                if (prevState.equals(org.apache.ambari.server.state.State.INSTALLED)
-                    || prevState.equals(org.apache.ambari.server.state.State.STARTED)
-                    || prevState.equals(org.apache.ambari.server.state.State.UNKNOWN)) {
-                  scHost.setState(liveState);
-                  if (!prevState.equals(liveState)) {
-                    LOG.info("State of service component " + componentName
-                        + " of service " + status.getServiceName()
-                        + " of cluster " + status.getClusterId()
-                        + " has changed from " + prevState + " to " + liveState
-                        + " at host " + hostname
-                        + " according to STATUS_COMMAND report");
-                  }
-                }
+                // ignored if the component is in INIT or any "in progress" state once it is locked
+                transitions.add(Transition.ofStatusReport(scHost, liveState));
               }
 
               Map<String, Object> extra = status.getExtra();
@@ -713,6 +705,8 @@ public class HeartbeatProcessor extends AbstractService{
       }
     }
 
+    transitionProcessor.process(transitions);
+
     Host host = clusterFsm.getHost(hostname);
     long now = System.currentTimeMillis();
     // If the host is waiting for component status updates, notify it
@@ -0,0 +1,237 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.api.predicate;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+import org.apache.ambari.server.configuration.Configuration;
+import org.apache.ambari.server.controller.spi.Predicate;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Predicate compiler which caches its work across requests. The UI issues the
+ * same few query shapes over and over with only the IDs varying, so:
+ * <ul>
+ *   <li>the token stream of every query shape is cached as a {@link QueryPlan},
+ *   keyed by the query with its literal values replaced by slots and by the
+ *   properties ignored for the resource type, and is bound to the values of
+ *   each query instead of scanning the query</li>
+ *   <li>the plan holds the expression tree parsed from its tokens, the values
+ *   of each query are bound into that tree instead of parsing the query</li>
+ *   <li>the predicate built from a plan is cached by the values bound to it,
+ *   so a repeated query costs a lookup only; the values of ignored properties
+ *   such as the {@code _} cache buster are not part of that key</li>
+ * </ul>
+ * Predicates are immutable and are shared by all requests which compile the
+ * same query.
+ */
+public class CachingPredicateCompiler extends PredicateCompiler {
+
+  /**
+   * The compiler used by API requests.
+   */
+  private static volatile CachingPredicateCompiler instance = new CachingPredicateCompiler(
+      Configuration.API_QUERY_PLAN_CACHE_SIZE.getDefaultValue(),
+      Configuration.API_QUERY_PREDICATE_CACHE_SIZE.getDefaultValue());
+
+  private final QueryLexer lexer = new QueryLexer();
+  private final QueryParser parser = new QueryParser();
+
+  private final boolean enabled;
+
+  /**
+   * Plans by query shape and ignored properties.
+   */
+  private final Cache<PlanKey, QueryPlan> plans;
+
+  /**
+   * Predicates by plan and bound values.  An empty optional stands for an
+   * expression which only holds ignored properties.
+   */
+  private final Cache<PredicateKey, Optional<Predicate>> predicates;
+
+  /**
+   * Constructor.
+   *
+   * @param planCacheSize       maximum number of cached plans, 0 disables caching
+   * @param predicateCacheSize  maximum number of cached predicates
+   */
+  public CachingPredicateCompiler(int planCacheSize, int predicateCacheSize) {
+    enabled = planCacheSize > 0;
+    plans = CacheBuilder.newBuilder().maximumSize(planCacheSize).recordStats().build();
+    predicates = CacheBuilder.newBuilder().maximumSize(predicateCacheSize).recordStats().build();
+  }
+
+  /**
+   * Size the caches of the compiler used by API requests.
+   *
+   * @param configuration  the server configuration
+   */
+  public static void init(Configuration configuration) {
+    instance = new CachingPredicateCompiler(configuration.getApiQueryPlanCacheSize(),
+        configuration.getApiQueryPredicateCacheSize());
+  }
+
+  /**
+   * Get the compiler used by API requests.
+   *
+   * @return the shared compiler
+   */
+  public static CachingPredicateCompiler getInstance() {
+    return instance;
+  }
+
+  @Override
+  public Predicate compile(String exp) throws InvalidQueryException {
+    return compile(exp, Collections.emptySet());
+  }
+
+  @Override
+  public Predicate compile(String exp, Collection<String> ignoredProperties) throws InvalidQueryException {
+    QueryPlan.Shape shape = enabled ? QueryPlan.shape(exp) : null;
+    if (shape == null) {
+      return super.compile(exp, ignoredProperties);
+    }
+
+    Set<String> ignored = ignoredProperties == null ? Collections.emptySet() :
+        ignoredProperties instanceof Set ? (Set<String>) ignoredProperties : new HashSet<>(ignoredProperties);
+    PlanKey planKey = new PlanKey(shape.getText(), ignored);
+    QueryPlan plan = plans.getIfPresent(planKey);
+    if (plan == null) {
+      plan = QueryPlan.create(lexer, parser, shape, ignored);
+      // resource definitions hand out their modifiable directives
+      plans.put(new PlanKey(shape.getText(), ImmutableSet.copyOf(ignored)), plan);
+    }
+    if (!plan.isCacheable()) {
+      return super.compile(exp, ignoredProperties);
+    }
+
+    List<String> values = plan.getBoundValues(shape);
+    PredicateKey predicateKey = new PredicateKey(plan, values);
+    Optional<Predicate> predicate = predicates.getIfPresent(predicateKey);
+    if (predicate == null) {
+      predicate = Optional.ofNullable(plan.isParsed() ?
+          plan.toPredicate(values) : parser.parse(plan.bind(values)));
+      predicates.put(predicateKey, predicate);
+    }
+    return predicate.orElse(null);
+  }
+
+  /**
+   * Get the statistics of the plan cache.  A miss means that a query was
+   * scanned by the lexer.
+   *
+   * @return the cumulative statistics
+   */
+  public CacheStats getPlanCacheStatistics() {
+    return plans.stats();
+  }
+
+  /**
+   * Get the statistics of the predicate cache.  A miss means that a query was
+   * parsed.
+   *
+   * @return the cumulative statistics
+   */
+  public CacheStats getPredicateCacheStatistics() {
+    return predicates.stats();
+  }
+
+  public long getPlanCacheSize() {
+    return plans.size();
+  }
+
+  public long getPredicateCacheSize() {
+    return predicates.size();
+  }
+
+  /**
+   * Key of a plan.
+   */
+  private static final class PlanKey {
+    private final String shape;
+    private final Set<String> ignoredProperties;
+    private final int hashCode;
+
+    private PlanKey(String shape, Set<String> ignoredProperties) {
+      this.shape = shape;
+      this.ignoredProperties = ignoredProperties;
+      hashCode = 31 * shape.hashCode() + ignoredProperties.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof PlanKey)) {
+        return false;
+      }
+      PlanKey that = (PlanKey) o;
+      return hashCode == that.hashCode && shape.equals(that.shape) &&
+          ignoredProperties.equals(that.ignoredProperties);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+
+  /**
+   * Key of a predicate; plans are compared by identity.
+   */
+  private static final class PredicateKey {
+    private final QueryPlan plan;
+    private final List<String> values;
+    private final int hashCode;
+
+    private PredicateKey(QueryPlan plan, List<String> values) {
+      this.plan = plan;
+      this.values = values;
+      hashCode = 31 * System.identityHashCode(plan) + values.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof PredicateKey)) {
+        return false;
+      }
+      PredicateKey that = (PredicateKey) o;
+      return plan == that.plan && hashCode == that.hashCode && Objects.equals(values, that.values);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+}
@@ -53,6 +53,8 @@ public class QueryLexer {
   public static final String QUERY_FROM      = "from";
   public static final String QUERY_MINIMAL   = "minimal_response";
   public static final String QUERY_SORT      = "sortBy";
+  public static final String QUERY_PROVIDER_TIMING = "provider_timing";
+  public static final String QUERY_SINCE     = "since";
 
   /**
    * All valid deliminators.
@@ -60,6 +62,20 @@ public class QueryLexer {
   private static final String[] ALL_DELIMS =
       {".matches\\(",".in\\(",".isEmpty\\(","<=",">=","!=","=","<",">","&","|","!","(", ")"};
 
+  /**
+   * Pattern which splits a query expression on all deliminators.
+   */
+  private static final Pattern DELIMS_PATTERN = generatePattern();
+
+  /**
+   * Patterns used by the token handlers to recognize string tokens.
+   */
+  private static final Pattern PROPERTY_OPERAND_PATTERN = Pattern.compile("[^!&\\|<=|>=|!=|=|<|>\\(\\)]+");
+  private static final Pattern VALUE_OPERAND_PATTERN = Pattern.compile("[^!&\\|<=|>=|!=|=|<|>]+");
+  private static final Pattern RELATIONAL_OPERATOR_PATTERN = Pattern.compile("<=|>=|!=|=|<|>");
+  private static final Pattern RELATIONAL_OPERATOR_FUNC_PATTERN = Pattern.compile("\\.[a-zA-Z]+\\(");
+  private static final Pattern LOGICAL_OPERATOR_PATTERN = Pattern.compile("[!&\\|]");
+
   /**
    * Map of token type to list of valid handlers for next token.
    */
@@ -168,8 +184,7 @@ public class QueryLexer {
    * @return list of string tokens from the query expression
    */
   private List<String> parseStringTokens(String exp) {
-    Pattern      pattern       = generatePattern();
-    Matcher      matcher       = pattern.matcher(exp);
+    Matcher      matcher       = DELIMS_PATTERN.matcher(exp);
     List<String> listStrTokens = new ArrayList<>();
     int pos = 0;
 
@@ -193,7 +208,7 @@ public class QueryLexer {
    *
    * @return the regex pattern
    */
-  private Pattern generatePattern() {
+  private static Pattern generatePattern() {
     StringBuilder sb = new StringBuilder();
     sb.append('(');
     for (String delim : ALL_DELIMS) { // For each delimiter
@@ -216,6 +231,8 @@ public class QueryLexer {
     SET_IGNORE.add(QUERY_FROM);
     SET_IGNORE.add(QUERY_MINIMAL);
     SET_IGNORE.add(QUERY_SORT);
+    SET_IGNORE.add(QUERY_PROVIDER_TIMING);
+    SET_IGNORE.add(QUERY_SINCE);
     SET_IGNORE.add("_");
   }
 
@@ -530,7 +547,7 @@ public class QueryLexer {
 
     @Override
     public boolean handles(String token, ScanContext ctx) {
-      return token.matches("[^!&\\|<=|>=|!=|=|<|>\\(\\)]+");
+      return PROPERTY_OPERAND_PATTERN.matcher(token).matches();
     }
   }
 
@@ -550,7 +567,7 @@ public class QueryLexer {
 
     @Override
     public boolean handles(String token, ScanContext ctx) {
-      return token.matches("[^!&\\|<=|>=|!=|=|<|>]+");
+      return VALUE_OPERAND_PATTERN.matcher(token).matches();
     }
   }
 
@@ -570,7 +587,7 @@ public class QueryLexer {
 
     @Override
     public boolean handles(String token, ScanContext ctx) {
-      return token.matches("\\(");
+      return "(".equals(token);
     }
   }
 
@@ -590,7 +607,7 @@ public class QueryLexer {
 
     @Override
     public boolean handles(String token, ScanContext ctx) {
-      return token.matches("\\)");
+      return ")".equals(token);
     }
   }
 
@@ -611,7 +628,7 @@ public class QueryLexer {
 
     @Override
     public boolean handles(String token, ScanContext ctx) {
-      return token.matches("<=|>=|!=|=|<|>");
+      return RELATIONAL_OPERATOR_PATTERN.matcher(token).matches();
     }
   }
 
@@ -633,7 +650,7 @@ public class QueryLexer {
     //todo: add a unary relational operator func
     @Override
     public boolean handles(String token, ScanContext ctx) {
-      return token.matches("\\.[a-zA-Z]+\\(");
+      return RELATIONAL_OPERATOR_FUNC_PATTERN.matcher(token).matches();
     }
   }
 
@@ -710,7 +727,7 @@ public class QueryLexer {
 
     @Override
     public boolean handles(String token, ScanContext ctx) {
-      return token.matches("[!&\\|]");
+      return LOGICAL_OPERATOR_PATTERN.matcher(token).matches();
     }
   }
 
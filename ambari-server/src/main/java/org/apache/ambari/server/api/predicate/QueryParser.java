@@ -90,14 +90,27 @@ public class QueryParser {
    * @throws InvalidQueryException if unable to parse the tokens and produce a predicate
    */
   public Predicate parse(Token[] tokens) throws InvalidQueryException {
+    Expression expression = parseExpression(tokens);
+    return expression == null ? null : expression.toPredicate();
+  }
+
+  /**
+   * Generate the tree of expressions from an array of tokens, as done by {@link #parse(Token[])}
+   * before building the predicate.
+   *
+   * @param tokens  an array of tokens which represent the query
+   *
+   * @return the root of the expression tree, or null if the tokens hold no expression
+   * @throws InvalidQueryException if unable to parse the tokens
+   */
+  Expression parseExpression(Token[] tokens) throws InvalidQueryException {
     ParseContext ctx = parseExpressions(tokens);
 
     List<Expression> listExpressions       = ctx.getExpressions();
     changeHostNameToLowerCase(listExpressions);
     List<Expression> listMergedExpressions = mergeExpressions(listExpressions, ctx.getMaxPrecedence());
 
-    return listMergedExpressions.isEmpty() ? null :
-        listMergedExpressions.get(0).toPredicate();
+    return listMergedExpressions.isEmpty() ? null : listMergedExpressions.get(0);
   }
 
   private void changeHostNameToLowerCase(List<Expression> listExpressions) {
@@ -0,0 +1,363 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.api.predicate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.ambari.server.api.predicate.expressions.Expression;
+import org.apache.ambari.server.api.predicate.expressions.LogicalExpression;
+import org.apache.ambari.server.api.predicate.expressions.NotLogicalExpression;
+import org.apache.ambari.server.api.predicate.operators.LogicalOperator;
+import org.apache.ambari.server.api.predicate.operators.RelationalOperator;
+import org.apache.ambari.server.controller.predicate.NotPredicate;
+import org.apache.ambari.server.controller.spi.Predicate;
+
+/**
+ * Token stream of a query expression whose literal values were replaced by
+ * parameter slots. A plan is created once per query shape, i.e. per query
+ * expression with its literal values taken out, and then bound to the values
+ * of every expression of that shape instead of scanning the expression again.
+ * <p/>
+ * Only values which the lexer treats as a single opaque token get a slot:
+ * simple values, and function arguments without deliminators such as the
+ * host names of {@code .in(...)}. Expressions with other values are not
+ * planned at all, so a bound plan always equals the tokens the lexer
+ * produces for the expression.
+ * <p/>
+ * The plan also holds the expression tree parsed from its tokens, with
+ * sentinels in place of the values, from which the predicate of every
+ * expression of the shape is built without parsing.
+ */
+class QueryPlan {
+
+  /**
+   * Plan of a shape which could not be planned, e.g. because it is invalid.
+   */
+  static final QueryPlan UNCACHEABLE = new QueryPlan(null, null, false, null);
+
+  /**
+   * Characters which end a value.
+   */
+  private static final String DELIMITERS = "&|()!<>=";
+
+  /**
+   * Relational functions which take a value.
+   */
+  private static final String[] FUNCTIONS = {".in(", ".matches(", ".isEmpty("};
+
+  /**
+   * Placeholder of a value in the shape of an expression.
+   */
+  private static final char SLOT = '?';
+
+  /**
+   * Marks the slot numbers substituted into a shape to locate the slots in the
+   * token stream.
+   */
+  private static final char SENTINEL = '\u0001';
+
+  /**
+   * The tokens of the shape; the tokens of slots are null.
+   */
+  private final Token[] tokens;
+
+  /**
+   * The slot each token is bound from, or -1 for constant tokens.
+   */
+  private final int[] slots;
+
+  /**
+   * Whether the tokens could be parsed into {@link #expression}.
+   */
+  private final boolean parsed;
+
+  /**
+   * The expression tree of the tokens, whose operands hold numbered sentinels
+   * in place of bound values; null if there is no expression, e.g. because
+   * all properties are ignored.  The tree is never modified once created.
+   */
+  private final Expression expression;
+
+  private QueryPlan(Token[] tokens, int[] slots, boolean parsed, Expression expression) {
+    this.tokens = tokens;
+    this.slots = slots;
+    this.parsed = parsed;
+    this.expression = expression;
+  }
+
+  /**
+   * Split a query expression into its shape and its literal values.
+   *
+   * @param exp  the query expression
+   *
+   * @return the shape, or null if the expression has values which can not be
+   *         bound into slots
+   */
+  static Shape shape(String exp) {
+    StringBuilder text = new StringBuilder(exp.length());
+    List<String> values = new ArrayList<>();
+    int length = exp.length();
+    int i = 0;
+    while (i < length) {
+      char c = exp.charAt(i);
+      String function = c == '.' ? getFunction(exp, i) : null;
+      if (function != null) {
+        int start = i + function.length();
+        int end = endOfValue(exp, start);
+        if (end == length || exp.charAt(end) != ')') {
+          // nested brackets or operators in the argument span several tokens
+          return null;
+        }
+        text.append(function);
+        if (end > start) {
+          text.append(SLOT);
+          values.add(exp.substring(start, end));
+        }
+        text.append(')');
+        i = end + 1;
+      } else if (c == '=' || c == '<' || c == '>' || (c == '!' && i + 1 < length && exp.charAt(i + 1) == '=')) {
+        int start = c != '=' && i + 1 < length && exp.charAt(i + 1) == '=' ? i + 2 : i + 1;
+        int end = endOfValue(exp, start);
+        if (end == start || (end < length && exp.charAt(end) == '(')) {
+          // an invalid expression, leave the error to the lexer
+          return null;
+        }
+        text.append(exp, i, start).append(SLOT);
+        values.add(exp.substring(start, end));
+        i = end;
+      } else {
+        text.append(c);
+        i++;
+      }
+    }
+    return new Shape(text.toString(), values);
+  }
+
+  /**
+   * Create the plan of a shape by scanning the shape with numbered sentinels in
+   * place of its values.
+   *
+   * @param lexer              the lexer
+   * @param parser             the parser of the expression tree
+   * @param shape              the shape
+   * @param ignoredProperties  property names which should be ignored
+   *
+   * @return the plan, or {@link #UNCACHEABLE} if the shape can't be scanned
+   */
+  static QueryPlan create(QueryLexer lexer, QueryParser parser, Shape shape, Collection<String> ignoredProperties) {
+    StringBuilder probe = new StringBuilder();
+    String text = shape.getText();
+    int slot = 0;
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c == SLOT && i > 0 && isSlotPosition(text, i)) {
+        probe.append(SENTINEL).append(slot++).append(SENTINEL);
+      } else {
+        probe.append(c);
+      }
+    }
+    if (slot != shape.getValues().size()) {
+      return UNCACHEABLE;
+    }
+
+    Token[] tokens;
+    try {
+      tokens = lexer.tokens(probe.toString(), ignoredProperties == null ?
+          Collections.emptySet() : ignoredProperties);
+    } catch (InvalidQueryException e) {
+      return UNCACHEABLE;
+    }
+
+    int[] slots = new int[tokens.length];
+    // the tokens with sentinels numbered by bound value, rather than by slot
+    Token[] boundTokens = new Token[tokens.length];
+    int boundValue = 0;
+    for (int i = 0; i < tokens.length; i++) {
+      String value = tokens[i].getValue();
+      slots[i] = -1;
+      boundTokens[i] = tokens[i];
+      if (value != null && value.indexOf(SENTINEL) != -1) {
+        if (tokens[i].getType() != Token.TYPE.VALUE_OPERAND || value.length() < 3 ||
+            value.charAt(0) != SENTINEL || value.charAt(value.length() - 1) != SENTINEL) {
+          return UNCACHEABLE;
+        }
+        slots[i] = Integer.parseInt(value.substring(1, value.length() - 1));
+        tokens[i] = null;
+        boundTokens[i] = new Token(Token.TYPE.VALUE_OPERAND, SENTINEL + String.valueOf(boundValue++) + SENTINEL);
+      }
+    }
+
+    // the structure of the tree only depends on the token types, so the tokens
+    // of every expression of the shape parse into this tree or fail alike
+    try {
+      return new QueryPlan(tokens, slots, true, parser.parseExpression(boundTokens));
+    } catch (InvalidQueryException e) {
+      return new QueryPlan(tokens, slots, false, null);
+    }
+  }
+
+  /**
+   * Determine whether this plan can be bound.
+   *
+   * @return false for {@link #UNCACHEABLE}
+   */
+  boolean isCacheable() {
+    return tokens != null;
+  }
+
+  /**
+   * Get the values of an expression of this plan's shape which end up in its
+   * tokens, in token order.  Values of ignored properties are left out.
+   *
+   * @param shape  the shape of the expression
+   *
+   * @return the bound values
+   */
+  List<String> getBoundValues(Shape shape) {
+    List<String> values = new ArrayList<>();
+    for (int slot : slots) {
+      if (slot != -1) {
+        values.add(shape.getValues().get(slot));
+      }
+    }
+    return values;
+  }
+
+  /**
+   * Create the token stream of an expression of this plan's shape.
+   *
+   * @param boundValues  the values returned by {@link #getBoundValues(Shape)}
+   *
+   * @return the tokens
+   */
+  Token[] bind(List<String> boundValues) {
+    Token[] bound = new Token[tokens.length];
+    int value = 0;
+    for (int i = 0; i < tokens.length; i++) {
+      bound[i] = slots[i] == -1 ? tokens[i] : new Token(Token.TYPE.VALUE_OPERAND, boundValues.get(value++));
+    }
+    return bound;
+  }
+
+  /**
+   * Determine whether the predicates of this plan can be built by
+   * {@link #toPredicate(List)}; if not, the bound tokens have to be parsed,
+   * which reports why they are invalid.
+   *
+   * @return true if the tokens of this plan were parsed
+   */
+  boolean isParsed() {
+    return parsed;
+  }
+
+  /**
+   * Create the predicate of an expression of this plan's shape from the
+   * expression tree of the plan.  This gives the predicate the parser creates
+   * for the bound tokens, without parsing them.
+   *
+   * @param boundValues  the values returned by {@link #getBoundValues(Shape)}
+   *
+   * @return the predicate, or null if the expression only holds ignored properties
+   * @throws InvalidQueryException if a value is invalid for its operator
+   */
+  Predicate toPredicate(List<String> boundValues) throws InvalidQueryException {
+    return expression == null ? null : toPredicate(expression, boundValues);
+  }
+
+  private static Predicate toPredicate(Expression expression, List<String> boundValues)
+      throws InvalidQueryException {
+    if (expression instanceof NotLogicalExpression) {
+      return new NotPredicate(toPredicate((Expression) expression.getRightOperand(), boundValues));
+    }
+    if (expression instanceof LogicalExpression) {
+      return ((LogicalOperator) expression.getOperator()).toPredicate(
+          toPredicate((Expression) expression.getLeftOperand(), boundValues),
+          toPredicate((Expression) expression.getRightOperand(), boundValues));
+    }
+
+    String property = (String) expression.getLeftOperand();
+    String value = (String) expression.getRightOperand();
+    if (value != null && value.length() > 2 && value.charAt(0) == SENTINEL) {
+      value = boundValues.get(Integer.parseInt(value.substring(1, value.length() - 1)));
+      // as done by the parser
+      if (property != null && property.endsWith("/host_name")) {
+        value = value.toLowerCase();
+      }
+    }
+    return ((RelationalOperator) expression.getOperator()).toPredicate(property, value);
+  }
+
+  private static String getFunction(String exp, int index) {
+    for (String function : FUNCTIONS) {
+      if (exp.startsWith(function, index)) {
+        return function;
+      }
+    }
+    return null;
+  }
+
+  private static int endOfValue(String exp, int start) {
+    int end = start;
+    while (end < exp.length() && DELIMITERS.indexOf(exp.charAt(end)) == -1) {
+      end++;
+    }
+    return end;
+  }
+
+  /**
+   * Slots directly follow a relational operator or the bracket of a function;
+   * a literal '?' can't be in those positions of a shape.
+   */
+  private static boolean isSlotPosition(String text, int index) {
+    char previous = text.charAt(index - 1);
+    return previous == '=' || previous == '<' || previous == '>' || (previous == '(' && isFunction(text, index));
+  }
+
+  private static boolean isFunction(String text, int index) {
+    for (String function : FUNCTIONS) {
+      if (text.startsWith(function, index - function.length())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * A query expression split into its text with slots and its values.
+   */
+  static class Shape {
+    private final String text;
+    private final List<String> values;
+
+    Shape(String text, List<String> values) {
+      this.text = text;
+      this.values = values;
+    }
+
+    String getText() {
+      return text;
+    }
+
+    List<String> getValues() {
+      return values;
+    }
+  }
+}
@@ -37,6 +37,7 @@ import org.apache.ambari.server.api.services.Result;
 import org.apache.ambari.server.api.services.ResultImpl;
 import org.apache.ambari.server.api.util.TreeNode;
 import org.apache.ambari.server.api.util.TreeNodeImpl;
+import org.apache.ambari.server.controller.internal.PropertyProviderTimings;
 import org.apache.ambari.server.controller.internal.QueryResponseImpl;
 import org.apache.ambari.server.controller.predicate.AndPredicate;
 import org.apache.ambari.server.controller.predicate.EqualsPredicate;
@@ -219,8 +220,27 @@ public class QueryImpl implements Query, ResourceInstance {
              SystemException,
              NoSuchResourceException,
              NoSuchParentResourceException {
-    queryForResources();
-    return getResult(null);
+    PropertyProviderTimings timings = Boolean.parseBoolean(
+        requestInfoProperties.get(BaseRequest.PROVIDER_TIMING_PROPERTY_KEY)) ? PropertyProviderTimings.start() : null;
+    Result result;
+    try {
+      queryForResources();
+      result = getResult(null);
+    } finally {
+      if (timings != null) {
+        PropertyProviderTimings.stop();
+      }
+    }
+
+    if (timings != null) {
+      // report the timings next to the resource of a single resource request
+      TreeNode<Resource> tree = result.getResultTree();
+      if (!isCollectionResource() && tree.getChildren().size() == 1) {
+        tree = tree.getChildren().iterator().next();
+      }
+      tree.setProperty("provider_timing", timings.getTimings());
+    }
+    return result;
   }
 
   @Override
@@ -35,6 +35,7 @@ import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.UriInfo;
 
 import org.apache.ambari.server.api.handlers.RequestHandler;
+import org.apache.ambari.server.api.predicate.CachingPredicateCompiler;
 import org.apache.ambari.server.api.predicate.InvalidQueryException;
 import org.apache.ambari.server.api.predicate.PredicateCompiler;
 import org.apache.ambari.server.api.predicate.QueryLexer;
@@ -43,6 +44,7 @@ import org.apache.ambari.server.api.resources.ResourceInstance;
 import org.apache.ambari.server.controller.internal.PageRequestImpl;
 import org.apache.ambari.server.controller.internal.SortRequestImpl;
 import org.apache.ambari.server.controller.internal.TemporalInfoImpl;
+import org.apache.ambari.server.controller.predicate.AndPredicate;
 import org.apache.ambari.server.controller.spi.PageRequest;
 import org.apache.ambari.server.controller.spi.Predicate;
 import org.apache.ambari.server.controller.spi.SortRequest;
@@ -102,6 +104,11 @@ public abstract class BaseRequest implements Request {
    */
   public static final String ASC_ORDER_PROPERTY_KEY = "Request_Info/asc_order";
 
+  /**
+   * Property provider timing property key. (true - report the time spent in each property provider)
+   */
+  public static final String PROVIDER_TIMING_PROPERTY_KEY = "Request_Info/provider_timing";
+
   /**
    * Associated resource renderer.
    * Will default to the default renderer if non is specified.
@@ -291,7 +298,7 @@ public abstract class BaseRequest implements Request {
    * @return the predicate compiler
    */
   protected PredicateCompiler getPredicateCompiler() {
-    return new PredicateCompiler();
+    return CachingPredicateCompiler.getInstance();
   }
 
   /**
@@ -308,6 +315,7 @@ public abstract class BaseRequest implements Request {
    * Parse the query string and compile it into a predicate.
    * The query string may have already been extracted from the http body.
    * If the query string didn't exist in the body use the query string in the URL.
+   * A delta predicate set on the body is combined with the query predicate.
    *
    * @throws InvalidQueryException  if unable to parse a non-null query string into a predicate
    */
@@ -348,6 +356,11 @@ public abstract class BaseRequest implements Request {
         throw new RuntimeException("Unable to decode URI: " + e, e);
       }
     }
+
+    Predicate deltaPredicate = m_body.getDeltaPredicate();
+    if (deltaPredicate != null) {
+      m_predicate = (m_predicate == null) ? deltaPredicate : new AndPredicate(m_predicate, deltaPredicate);
+    }
   }
 
   /**
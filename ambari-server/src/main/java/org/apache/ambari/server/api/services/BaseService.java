@@ -27,6 +27,7 @@ import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
 
+import org.apache.ambari.server.api.predicate.QueryLexer;
 import org.apache.ambari.server.api.resources.ResourceInstance;
 import org.apache.ambari.server.api.resources.ResourceInstanceFactory;
 import org.apache.ambari.server.api.resources.ResourceInstanceFactoryImpl;
@@ -37,7 +38,9 @@ import org.apache.ambari.server.api.services.serializers.CsvSerializer;
 import org.apache.ambari.server.api.services.serializers.JsonSerializer;
 import org.apache.ambari.server.api.services.serializers.ResultSerializer;
 import org.apache.ambari.server.audit.request.RequestAuditLogger;
+import org.apache.ambari.server.controller.spi.Predicate;
 import org.apache.ambari.server.controller.spi.Resource;
+import org.apache.ambari.server.security.authorization.AuthorizationHelper;
 import org.apache.ambari.server.utils.RetryHelper;
 import org.eclipse.jetty.util.ajax.JSON;
 import org.slf4j.Logger;
@@ -108,6 +111,15 @@ public abstract class BaseService {
     requestAuditLogger = instance;
   }
 
+  /**
+   * Versions of the polled resources; null unless resource versioning is enabled.
+   */
+  private static volatile ResourceChangeTracker resourceChangeTracker;
+
+  public static void setResourceChangeTracker(ResourceChangeTracker instance) {
+    resourceChangeTracker = instance;
+  }
+
   /**
    * Requests are funneled through this method so that common logic can be executed.
    * Creates a request instance and invokes it's process method.  Uses the default
@@ -144,6 +156,33 @@ public abstract class BaseService {
                                    UriInfo uriInfo, Request.Type requestType,
                                    MediaType mediaType, ResourceInstance resource) {
 
+    // version of a tracked GET request which the client may already have
+    ResourceChangeTracker tracker = resourceChangeTracker;
+    Long version = null;
+    String eTag = null;
+    String since = null;
+    Predicate deltaPredicate = null;
+    if (tracker != null && requestType == Request.Type.GET && (body == null || body.isEmpty()) &&
+        tracker.isTracked(resource, uriInfo.getQueryParameters(), uriInfo.getRequestUri().getRawQuery())) {
+
+      Resource.Type type = resource.getResourceDefinition().getType();
+      version = tracker.getVersion(type);
+      eTag = ResourceChangeTracker.getETag(version, AuthorizationHelper.getAuthenticatedName(), uriInfo.getPath(),
+          uriInfo.getQueryParameters());
+      since = uriInfo.getQueryParameters().getFirst(QueryLexer.QUERY_SINCE);
+      Long sinceVersion = parseVersion(since);
+
+      if (ResourceChangeTracker.matches(headers.getRequestHeader(HttpHeaders.IF_NONE_MATCH), eTag) ||
+          (sinceVersion != null && sinceVersion >= version)) {
+        return Response.notModified().header(HttpHeaders.ETAG, eTag)
+            .header(ResourceChangeTracker.VERSION_HEADER, version).build();
+      }
+      if (sinceVersion != null && resource.isCollectionResource() &&
+          uriInfo.getQueryParameters().getFirst(QueryLexer.QUERY_FORMAT) == null) {
+        deltaPredicate = tracker.getChangedSince(type, sinceVersion);
+      }
+    }
+
     // original request and initial result
     RequestBody rb = new RequestBody();
     rb.setBody(body);
@@ -156,6 +195,7 @@ public abstract class BaseService {
       Iterator<RequestBody> iterator = requestBodySet.iterator();
       while (iterator.hasNext() && result.getStatus().getStatus().equals(ResultStatus.STATUS.OK)) {
         RequestBody requestBody = iterator.next();
+        requestBody.setDeltaPredicate(deltaPredicate);
 
         request = getRequestFactory().createRequest(
             headers, requestBody, uriInfo, requestType, resource);
@@ -177,6 +217,11 @@ public abstract class BaseService {
     } catch (Throwable t) {
       requestAuditLogger.log(request, new ResultImpl(new ResultStatus(ResultStatus.STATUS.SERVER_ERROR, t.getMessage())));
       throw t;
+    } finally {
+      if (tracker != null && requestType != Request.Type.GET) {
+        // resources may have been added or removed without an update event
+        tracker.resetAll();
+      }
     }
 
     ResultSerializer serializer = mediaType == null ? getResultSerializer() : getResultSerializer(mediaType);
@@ -188,10 +233,35 @@ public abstract class BaseService {
       builder.type(mediaType);
     }
 
+    if (version != null && result.getStatus().getStatus() == ResultStatus.STATUS.OK) {
+      builder.header(HttpHeaders.ETAG, eTag).header(ResourceChangeTracker.VERSION_HEADER, version);
+      if (since != null) {
+        builder.header(ResourceChangeTracker.DELTA_HEADER, deltaPredicate != null);
+      }
+    }
+
     RetryHelper.clearAffectedClusters();
     return builder.build();
   }
 
+  /**
+   * Parse the version given with {@link QueryLexer#QUERY_SINCE}.
+   *
+   * @param since  the parameter value; may be null
+   *
+   * @return the version or null if not given as a number
+   */
+  private static Long parseVersion(String since) {
+    if (since != null) {
+      try {
+        return Long.valueOf(since.trim());
+      } catch (NumberFormatException e) {
+        LOG.debug("Ignoring invalid resource version {}", since);
+      }
+    }
+    return null;
+  }
+
   /**
    * Obtain the factory from which to create Request instances.
    *
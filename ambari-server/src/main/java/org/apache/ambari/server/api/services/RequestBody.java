@@ -23,6 +23,8 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
+import org.apache.ambari.server.controller.spi.Predicate;
+
 /**
  * Represents the http body of the request.
  */
@@ -53,6 +55,11 @@ public class RequestBody {
    */
   private Map<String, String> m_requestInfoProps = new HashMap<>();
 
+  /**
+   * Predicate restricting a request to the resources changed since a version.
+   */
+  private Predicate m_deltaPredicate;
+
 
   /**
    * Set the query string.
@@ -142,6 +149,25 @@ public class RequestBody {
     m_requestInfoProps.put(key, val);
   }
 
+  /**
+   * Set the predicate which restricts the request to the resources changed
+   * since the version given by the client.
+   *
+   * @param deltaPredicate  the predicate; may be null
+   */
+  public void setDeltaPredicate(Predicate deltaPredicate) {
+    m_deltaPredicate = deltaPredicate;
+  }
+
+  /**
+   * Obtain the predicate which restricts the request to changed resources.
+   *
+   * @return the predicate or null if the whole result is requested
+   */
+  public Predicate getDeltaPredicate() {
+    return m_deltaPredicate;
+  }
+
   /**
    * Set the body from the request.
    * Also sets the body as a request info property.
@@ -26,6 +26,7 @@ import java.util.Map;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.UriInfo;
 
+import org.apache.ambari.server.api.predicate.QueryLexer;
 import org.apache.ambari.server.api.resources.ResourceDefinition;
 import org.apache.ambari.server.api.resources.ResourceInstance;
 
@@ -181,6 +182,10 @@ public class RequestFactory {
         if (directives.contains(entry.getKey())) {
           requestInfoProperties.put(entry.getKey(), entry.getValue());
         }
+        else if (requestType == Request.Type.GET && QueryLexer.QUERY_PROVIDER_TIMING.equals(entry.getKey())) {
+          // not a directive of the resource, but it is not part of the query predicate either
+          requestInfoProperties.put(BaseRequest.PROVIDER_TIMING_PROPERTY_KEY, entry.getValue());
+        }
         else {
           allDirectivesApplicable = false;
         }
@@ -0,0 +1,531 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.api.services;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.ws.rs.core.MultivaluedMap;
+
+import org.apache.ambari.server.api.predicate.CachingPredicateCompiler;
+import org.apache.ambari.server.api.predicate.InvalidQueryException;
+import org.apache.ambari.server.api.predicate.QueryLexer;
+import org.apache.ambari.server.api.resources.ResourceInstance;
+import org.apache.ambari.server.configuration.Configuration;
+import org.apache.ambari.server.controller.predicate.AlwaysPredicate;
+import org.apache.ambari.server.controller.predicate.AndPredicate;
+import org.apache.ambari.server.controller.predicate.EqualsPredicate;
+import org.apache.ambari.server.controller.predicate.NotPredicate;
+import org.apache.ambari.server.controller.predicate.OrPredicate;
+import org.apache.ambari.server.controller.spi.Predicate;
+import org.apache.ambari.server.controller.spi.Resource;
+import org.apache.ambari.server.controller.spi.SortRequest;
+import org.apache.ambari.server.controller.utilities.PredicateHelper;
+import org.apache.ambari.server.events.AlertDefinitionDeleteEvent;
+import org.apache.ambari.server.events.AlertDefinitionDisabledEvent;
+import org.apache.ambari.server.events.AlertUpdateEvent;
+import org.apache.ambari.server.events.HostComponentUpdate;
+import org.apache.ambari.server.events.HostComponentsUpdateEvent;
+import org.apache.ambari.server.events.HostRegisteredEvent;
+import org.apache.ambari.server.events.HostUpdateEvent;
+import org.apache.ambari.server.events.HostsAddedEvent;
+import org.apache.ambari.server.events.HostsRemovedEvent;
+import org.apache.ambari.server.events.RequestUpdateEvent;
+import org.apache.ambari.server.events.ServiceComponentInstalledEvent;
+import org.apache.ambari.server.events.ServiceComponentUninstalledEvent;
+import org.apache.ambari.server.events.ServiceInstalledEvent;
+import org.apache.ambari.server.events.ServiceRemovedEvent;
+import org.apache.ambari.server.events.publishers.AmbariEventPublisher;
+import org.apache.ambari.server.events.publishers.STOMPUpdatePublisher;
+
+import com.google.common.eventbus.AllowConcurrentEvents;
+import com.google.common.eventbus.Subscribe;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * Keeps a version for each of the resource types the web UI polls: hosts, host
+ * components, requests and alerts.  The versions are advanced by the STOMP
+ * update events which are pushed to the UI for the same changes, so a GET
+ * response built from properties covered by these events can be tagged with
+ * the version and answered with {@code 304 Not Modified} until the next event.
+ * The keys of the most recent changes are kept to answer requests for the
+ * resources changed after a given version.
+ * <p/>
+ * Changes which are not announced by an update event, e.g. resources being
+ * added or removed, reset the history of the affected types.
+ */
+@Singleton
+public class ResourceChangeTracker {
+
+  /**
+   * Response header carrying the version a response was built at.
+   */
+  public static final String VERSION_HEADER = "X-Ambari-Resource-Version";
+
+  /**
+   * Response header telling whether a {@link QueryLexer#QUERY_SINCE} request
+   * was answered with the changed resources only.
+   */
+  public static final String DELTA_HEADER = "X-Ambari-Delta";
+
+  /**
+   * The tracked properties of each resource type.  A property, or all
+   * properties of a category, is tracked if the update events of the type
+   * report its changes.
+   */
+  private static final Map<Resource.Type, Set<String>> TRACKED_PROPERTIES = new HashMap<>();
+
+  /**
+   * Sub-resources whose changes are also recorded for their parent resource.
+   */
+  private static final Map<Resource.Type, Map<String, Resource.Type>> TRACKED_SUB_RESOURCES = new HashMap<>();
+
+  private static final String HOST_NAME_PROPERTY_ID = "Hosts/host_name";
+  private static final String HOST_COMPONENT_HOST_NAME_PROPERTY_ID = "HostRoles/host_name";
+  private static final String HOST_COMPONENT_NAME_PROPERTY_ID = "HostRoles/component_name";
+  private static final String REQUEST_ID_PROPERTY_ID = "Requests/id";
+  private static final String ALERT_DEFINITION_NAME_PROPERTY_ID = "Alert/definition_name";
+
+  static {
+    TRACKED_PROPERTIES.put(Resource.Type.Host, new HashSet<>(Arrays.asList(
+        HOST_NAME_PROPERTY_ID, "Hosts/cluster_name", "Hosts/host_status", "Hosts/host_state",
+        "Hosts/maintenance_state", "alerts_summary")));
+    TRACKED_PROPERTIES.put(Resource.Type.HostComponent, new HashSet<>(Arrays.asList(
+        HOST_COMPONENT_HOST_NAME_PROPERTY_ID, HOST_COMPONENT_NAME_PROPERTY_ID, "HostRoles/cluster_name",
+        "HostRoles/service_name", "HostRoles/state", "HostRoles/maintenance_state", "HostRoles/stale_configs")));
+    TRACKED_PROPERTIES.put(Resource.Type.Request, Collections.singleton("Requests"));
+    TRACKED_PROPERTIES.put(Resource.Type.Alert, new HashSet<>(Arrays.asList(
+        "Alert/id", "Alert/definition_id", ALERT_DEFINITION_NAME_PROPERTY_ID, "Alert/state", "Alert/cluster_name",
+        "Alert/host_name", "Alert/service_name", "Alert/component_name", "Alert/label", "Alert/maintenance_state",
+        "Alert/scope")));
+
+    TRACKED_SUB_RESOURCES.put(Resource.Type.Host,
+        Collections.singletonMap("host_components", Resource.Type.HostComponent));
+  }
+
+  /**
+   * The source of versions; seeded from the clock so that versions handed out
+   * before a restart are older than any version handed out after it.  Versions
+   * are taken by the change logs while they record a change, so the changes of
+   * a type are recorded in the order of their versions.
+   */
+  private final AtomicLong m_versions = new AtomicLong(System.currentTimeMillis() * 1000L);
+
+  private final Map<Resource.Type, ChangeLog> m_changeLogs = new HashMap<>();
+
+  @Inject
+  public ResourceChangeTracker(Configuration configuration, STOMPUpdatePublisher stompUpdatePublisher,
+                               AmbariEventPublisher ambariEventPublisher) {
+    long version = m_versions.incrementAndGet();
+    for (Resource.Type type : TRACKED_PROPERTIES.keySet()) {
+      m_changeLogs.put(type, new ChangeLog(configuration.getApiResourceVersioningHistorySize(), m_versions, version));
+    }
+    stompUpdatePublisher.register(this);
+    ambariEventPublisher.register(this);
+  }
+
+  // ----- update events -----------------------------------------------------
+
+  @Subscribe
+  @AllowConcurrentEvents
+  public void onHostUpdate(HostUpdateEvent event) {
+    if (event.getHostName() != null) {
+      record(Resource.Type.Host, Collections.singletonMap(HOST_NAME_PROPERTY_ID, event.getHostName()));
+    }
+  }
+
+  @Subscribe
+  @AllowConcurrentEvents
+  public void onHostComponentsUpdate(HostComponentsUpdateEvent event) {
+    for (HostComponentUpdate update : event.getHostComponentUpdates()) {
+      Map<String, String> key = new HashMap<>();
+      key.put(HOST_COMPONENT_HOST_NAME_PROPERTY_ID, update.getHostName());
+      key.put(HOST_COMPONENT_NAME_PROPERTY_ID, update.getComponentName());
+      record(Resource.Type.HostComponent, key);
+      record(Resource.Type.Host, Collections.singletonMap(HOST_NAME_PROPERTY_ID, update.getHostName()));
+    }
+  }
+
+  @Subscribe
+  @AllowConcurrentEvents
+  public void onRequestUpdate(RequestUpdateEvent event) {
+    if (event.getRequestId() != null) {
+      record(Resource.Type.Request, Collections.singletonMap(REQUEST_ID_PROPERTY_ID, event.getRequestId().toString()));
+    }
+  }
+
+  @Subscribe
+  @AllowConcurrentEvents
+  public void onAlertUpdate(AlertUpdateEvent event) {
+    for (Map<String, ?> summaries : event.getSummaries().values()) {
+      for (String definitionName : summaries.keySet()) {
+        record(Resource.Type.Alert, Collections.singletonMap(ALERT_DEFINITION_NAME_PROPERTY_ID, definitionName));
+      }
+    }
+  }
+
+  // ----- membership events -------------------------------------------------
+
+  @Subscribe
+  public void onHostRegistered(HostRegisteredEvent event) {
+    reset(Resource.Type.Host);
+  }
+
+  @Subscribe
+  public void onHostsAdded(HostsAddedEvent event) {
+    reset(Resource.Type.Host, Resource.Type.HostComponent, Resource.Type.Alert);
+  }
+
+  @Subscribe
+  public void onHostsRemoved(HostsRemovedEvent event) {
+    reset(Resource.Type.Host, Resource.Type.HostComponent, Resource.Type.Alert);
+  }
+
+  @Subscribe
+  public void onServiceInstalled(ServiceInstalledEvent event) {
+    reset(Resource.Type.Host, Resource.Type.HostComponent);
+  }
+
+  @Subscribe
+  public void onServiceRemoved(ServiceRemovedEvent event) {
+    reset(Resource.Type.Host, Resource.Type.HostComponent, Resource.Type.Alert);
+  }
+
+  @Subscribe
+  public void onServiceComponentInstalled(ServiceComponentInstalledEvent event) {
+    reset(Resource.Type.Host, Resource.Type.HostComponent);
+  }
+
+  @Subscribe
+  public void onServiceComponentUninstalled(ServiceComponentUninstalledEvent event) {
+    reset(Resource.Type.Host, Resource.Type.HostComponent, Resource.Type.Alert);
+  }
+
+  @Subscribe
+  public void onAlertDefinitionDeleted(AlertDefinitionDeleteEvent event) {
+    reset(Resource.Type.Alert);
+  }
+
+  @Subscribe
+  public void onAlertDefinitionDisabled(AlertDefinitionDisabledEvent event) {
+    reset(Resource.Type.Alert);
+  }
+
+  // ----- ResourceChangeTracker ---------------------------------------------
+
+  /**
+   * Forget the history of all types.  Called for modifications made through
+   * the REST API, which may add or remove resources.
+   */
+  public void resetAll() {
+    reset(TRACKED_PROPERTIES.keySet().toArray(new Resource.Type[0]));
+  }
+
+  /**
+   * Obtain the current version of the given type.
+   *
+   * @param type  a tracked resource type
+   *
+   * @return the version of the latest change to a resource of the type
+   */
+  public long getVersion(Resource.Type type) {
+    return m_changeLogs.get(type).getLatest();
+  }
+
+  /**
+   * Obtain a predicate matching the resources of the given type which changed
+   * after the given version.
+   *
+   * @param type     a tracked resource type
+   * @param version  the version the caller has seen
+   *
+   * @return the predicate, or null if the changes since the version are no
+   *         longer known
+   */
+  public Predicate getChangedSince(Resource.Type type, long version) {
+    Collection<Map<String, String>> keys = m_changeLogs.get(type).getChangedSince(version);
+    if (keys == null) {
+      return null;
+    }
+    if (keys.isEmpty()) {
+      return new NotPredicate(AlwaysPredicate.INSTANCE);
+    }
+
+    List<Predicate> predicates = new ArrayList<>(keys.size());
+    for (Map<String, String> key : keys) {
+      List<Predicate> equalsPredicates = new ArrayList<>(key.size());
+      for (Map.Entry<String, String> entry : key.entrySet()) {
+        equalsPredicates.add(new EqualsPredicate<>(entry.getKey(), entry.getValue()));
+      }
+      predicates.add(AndPredicate.instance(equalsPredicates.toArray(new Predicate[equalsPredicates.size()])));
+    }
+    return OrPredicate.instance(predicates.toArray(new Predicate[predicates.size()]));
+  }
+
+  /**
+   * Determine whether a GET request only reads properties whose changes are
+   * announced by update events, so that its response only changes with the
+   * version of its type.
+   *
+   * @param resource         the requested resource
+   * @param queryParameters  the decoded query parameters
+   * @param queryString      the raw query string; may be null
+   *
+   * @return true if the response can be tagged with the version of the type
+   */
+  public boolean isTracked(ResourceInstance resource, MultivaluedMap<String, String> queryParameters,
+                           String queryString) {
+    Resource.Type type = resource.getResourceDefinition().getType();
+    if (!TRACKED_PROPERTIES.containsKey(type)) {
+      return false;
+    }
+
+    String format = queryParameters.getFirst(QueryLexer.QUERY_FORMAT);
+    if (format != null && !format.equals("minimal") &&
+        !(format.equals("summary") && type == Resource.Type.Alert)) {
+      return false;
+    }
+
+    List<String> fields = split(queryParameters.get(QueryLexer.QUERY_FIELDS));
+    if (fields.isEmpty() && !resource.isCollectionResource()) {
+      return false;
+    }
+    for (String field : fields) {
+      if (!isTracked(type, field)) {
+        return false;
+      }
+    }
+
+    for (String sortBy : split(queryParameters.get(QueryLexer.QUERY_SORT))) {
+      int orderIndex = sortBy.lastIndexOf('.');
+      String order = orderIndex == -1 ? "" : sortBy.substring(orderIndex + 1);
+      if (order.equals(SortRequest.Order.ASC.toString().toLowerCase()) ||
+          order.equals(SortRequest.Order.DESC.toString().toLowerCase())) {
+        sortBy = sortBy.substring(0, orderIndex);
+      }
+      if (!isTracked(type, sortBy)) {
+        return false;
+      }
+    }
+
+    if (queryString != null) {
+      try {
+        Predicate predicate = CachingPredicateCompiler.getInstance().compile(
+            URLDecoder.decode(queryString, "UTF-8"), resource.getResourceDefinition().getReadDirectives());
+        if (predicate != null) {
+          for (String propertyId : PredicateHelper.getPropertyIds(predicate)) {
+            if (!isTracked(type, propertyId)) {
+              return false;
+            }
+          }
+        }
+      } catch (InvalidQueryException | UnsupportedEncodingException | IllegalArgumentException e) {
+        // let the request report the invalid query
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Build the entity tag of a tracked response.  Besides the version, the tag
+   * depends on the user, as responses are filtered by the user's permissions,
+   * and on the query parameters other than the cache busting {@code _}.
+   *
+   * @param version          the version of the requested type
+   * @param userName         the authenticated user; may be null
+   * @param path             the request path
+   * @param queryParameters  the decoded query parameters
+   *
+   * @return the quoted entity tag
+   */
+  public static String getETag(long version, String userName, String path,
+                               MultivaluedMap<String, String> queryParameters) {
+    Map<String, List<String>> parameters = new TreeMap<>(queryParameters);
+    parameters.remove("_");
+    int hash = Objects.hash(userName, path, parameters.toString());
+    return "\"" + version + "-" + Integer.toHexString(hash) + "\"";
+  }
+
+  /**
+   * Determine whether an entity tag is listed in {@code If-None-Match} headers.
+   *
+   * @param ifNoneMatch  the header values; may be null
+   * @param eTag         the quoted entity tag of the response
+   *
+   * @return true if the client already has the response
+   */
+  public static boolean matches(List<String> ifNoneMatch, String eTag) {
+    if (ifNoneMatch != null) {
+      for (String value : ifNoneMatch) {
+        for (String tag : value.split(",")) {
+          tag = tag.trim();
+          if (tag.startsWith("W/")) {
+            tag = tag.substring(2);
+          }
+          if (tag.equals(eTag)) {
+            return true;
+          }
+        }
+      }
+    }
+    return false;
+  }
+
+  // ----- helper methods ----------------------------------------------------
+
+  private void record(Resource.Type type, Map<String, String> key) {
+    m_changeLogs.get(type).record(key);
+  }
+
+  private void reset(Resource.Type... types) {
+    for (Resource.Type type : types) {
+      m_changeLogs.get(type).reset();
+    }
+  }
+
+  private static boolean isTracked(Resource.Type type, String propertyId) {
+    if (propertyId.indexOf('[') != -1) {
+      // temporal properties are read from metrics
+      return false;
+    }
+    for (String trackedProperty : TRACKED_PROPERTIES.get(type)) {
+      if (propertyId.equals(trackedProperty) || propertyId.startsWith(trackedProperty + "/")) {
+        return true;
+      }
+    }
+    Map<String, Resource.Type> subResources = TRACKED_SUB_RESOURCES.get(type);
+    if (subResources != null) {
+      for (Map.Entry<String, Resource.Type> entry : subResources.entrySet()) {
+        if (propertyId.startsWith(entry.getKey() + "/")) {
+          return isTracked(entry.getValue(), propertyId.substring(entry.getKey().length() + 1));
+        }
+      }
+    }
+    return false;
+  }
+
+  private static List<String> split(List<String> values) {
+    if (values == null) {
+      return Collections.emptyList();
+    }
+    List<String> result = new ArrayList<>();
+    for (String value : values) {
+      for (String element : value.split(",")) {
+        element = element.trim();
+        if (!element.isEmpty()) {
+          result.add(element);
+        }
+      }
+    }
+    return result;
+  }
+
+  // ----- inner classes -----------------------------------------------------
+
+  /**
+   * A bounded history of the changes of one resource type.  The version of a
+   * change is taken under the lock of the log, as handlers of concurrent events
+   * would otherwise record a change after a newer one and a reader seeing the
+   * newer version would miss it.
+   */
+  private static class ChangeLog {
+
+    private final int m_capacity;
+
+    private final AtomicLong m_versions;
+
+    private final ArrayDeque<Change> m_changes = new ArrayDeque<>();
+
+    /**
+     * The version after which all changes are still known.
+     */
+    private long m_floor;
+
+    private volatile long m_latest;
+
+    private ChangeLog(int capacity, AtomicLong versions, long version) {
+      m_capacity = capacity;
+      m_versions = versions;
+      m_floor = version;
+      m_latest = version;
+    }
+
+    private long getLatest() {
+      return m_latest;
+    }
+
+    private synchronized void record(Map<String, String> key) {
+      long version = m_versions.incrementAndGet();
+      m_changes.addLast(new Change(version, key));
+      while (m_changes.size() > m_capacity) {
+        m_floor = m_changes.removeFirst().m_version;
+      }
+      m_latest = version;
+    }
+
+    private synchronized void reset() {
+      long version = m_versions.incrementAndGet();
+      m_changes.clear();
+      m_floor = version;
+      m_latest = version;
+    }
+
+    private synchronized Collection<Map<String, String>> getChangedSince(long version) {
+      if (version < m_floor) {
+        return null;
+      }
+      Set<Map<String, String>> keys = new LinkedHashSet<>();
+      for (Iterator<Change> iterator = m_changes.descendingIterator(); iterator.hasNext(); ) {
+        Change change = iterator.next();
+        if (change.m_version > version) {
+          keys.add(change.m_key);
+        }
+      }
+      return keys;
+    }
+  }
+
+  private static class Change {
+
+    private final long m_version;
+
+    private final Map<String, String> m_key;
+
+    private Change(long version, Map<String, String> key) {
+      m_version = version;
+      m_key = key;
+    }
+  }
+}
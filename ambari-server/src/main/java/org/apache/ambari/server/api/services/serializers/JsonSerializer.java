@@ -177,6 +177,7 @@ public class JsonSerializer implements ResultSerializer {
 
       writeHref(node);
       writeItemCount(node);
+      writeProviderTiming(node);
 
       Resource r = node.getObject();
       if (r != null) {
@@ -298,4 +299,14 @@ public class JsonSerializer implements ResultSerializer {
       node.setProperty("count", null);
     }
   }
+
+  private void writeProviderTiming(TreeNode<Resource> node) throws IOException {
+    Object timingProp = node.getProperty("provider_timing");
+    if (timingProp != null) {
+      m_generator.writeFieldName("provider_timing");
+      m_mapper.writeValue(m_generator, timingProp);
+      // Write once
+      node.setProperty("provider_timing", null);
+    }
+  }
 }
@@ -482,6 +482,44 @@ public class Configuration {
   public static final ConfigurationProperty<String> API_GZIP_MIN_COMPRESSION_SIZE = new ConfigurationProperty<>(
       "api.gzip.compression.min.size", "10240");
 
+  /**
+   * The maximum number of query shapes whose compiled plans are cached.
+   */
+  @Markdown(description = "The maximum number of distinct REST API query shapes, i.e. queries with their literal values taken out, whose scanned tokens are cached. "
+      + "Set to `0` to compile every query from scratch.")
+  public static final ConfigurationProperty<Integer> API_QUERY_PLAN_CACHE_SIZE = new ConfigurationProperty<>(
+      "api.query.plan.cache.size", 500);
+
+  /**
+   * The maximum number of compiled query predicates which are cached.
+   */
+  @Markdown(
+      relatedTo = "api.query.plan.cache.size",
+      description = "The maximum number of compiled REST API query predicates which are cached for queries repeating the same literal values.")
+  public static final ConfigurationProperty<Integer> API_QUERY_PREDICATE_CACHE_SIZE = new ConfigurationProperty<>(
+      "api.query.predicate.cache.size", 1000);
+
+  /**
+   * Determines whether polled REST API collections are tagged with a resource
+   * version which is advanced by the STOMP update events.
+   */
+  @Markdown(description = "Determines whether GET responses for hosts, host components, requests and alerts carry an `ETag` "
+      + "which is derived from the STOMP update events. Unchanged responses are answered with `304 Not Modified`, and a "
+      + "`since` query parameter restricts the response to the resources changed after the given version.")
+  public static final ConfigurationProperty<Boolean> API_RESOURCE_VERSIONING_ENABLED = new ConfigurationProperty<>(
+      "api.resource.versioning.enabled", Boolean.FALSE);
+
+  /**
+   * The number of changes per resource type which are kept to answer delta
+   * requests.
+   */
+  @Markdown(
+      relatedTo = "api.resource.versioning.enabled",
+      description = "The number of resource changes per resource type which are kept to answer requests with a `since` "
+          + "version. Older versions are answered with a full response.")
+  public static final ConfigurationProperty<Integer> API_RESOURCE_VERSIONING_HISTORY_SIZE = new ConfigurationProperty<>(
+      "api.resource.versioning.history.size", 10000);
+
   /**
    * Determiens whether communication with the Ambari Agents should have the
    * JSON payloads compressed with GZIP.
@@ -690,6 +728,23 @@ public class Configuration {
   public static final ConfigurationProperty<String> LDAP_SYNC_USERNAME_COLLISIONS_BEHAVIOR = new ConfigurationProperty<>(
       "ldap.sync.username.collision.behavior", "add");
 
+  /**
+   * Determines whether a sync of all LDAP users or groups reads LDAP in pages and persists changes in batches.
+   */
+  @Markdown(
+      description = "Determines whether a synchronization of all LDAP users or groups reads LDAP entries page by page and persists the changes in batches instead of loading all entries into memory first. "
+          + "If such a synchronization fails, the batches persisted before the failure are kept. Running the synchronization again completes it.")
+  public static final ConfigurationProperty<Boolean> LDAP_SYNC_STREAMING_ENABLED = new ConfigurationProperty<>(
+      "ldap.sync.streaming.enabled", Boolean.FALSE);
+
+  /**
+   * The number of pending changes which triggers persisting them during a streaming LDAP sync.
+   */
+  @Markdown(
+      description = "The number of pending user, group and membership changes after which a streaming LDAP synchronization persists them.")
+  public static final ConfigurationProperty<Integer> LDAP_SYNC_STREAMING_BATCH_SIZE = new ConfigurationProperty<>(
+      "ldap.sync.streaming.batch.size", 1000);
+
   /**
    * The location on the Ambari Server where stack extensions exist.
    */
@@ -987,6 +1042,14 @@ public class Configuration {
   public static final ConfigurationProperty<Long> SERVER_EC_CACHE_SIZE = new ConfigurationProperty<>(
       "server.ecCacheSize", 10000L);
 
+  /**
+   * The number of older, non-desired configuration versions kept in memory
+   * per cluster.
+   */
+  @Markdown(description = "The number of non-desired configuration versions which are kept in memory for each cluster. The desired version of every configuration type is always held in memory; older versions are loaded from the database on demand and retained in a least-recently-used cache of this size.")
+  public static final ConfigurationProperty<Integer> SERVER_CLUSTER_CONFIG_VERSIONS_CACHE_SIZE = new ConfigurationProperty<>(
+      "server.cluster.configVersions.cache.size", 100);
+
   /**
    * Determines whether caching a requests's
    * {@link HostRoleCommandStatusSummaryDTO} is enabled.
@@ -1725,6 +1788,14 @@ public class Configuration {
   public static final ConfigurationProperty<Integer> SERVER_TASK_TIMEOUT = new ConfigurationProperty<>(
       "server.task.timeout", 1200);
 
+  /**
+   * The number of threads running server side tasks.
+   */
+  @Markdown(description = "The number of threads running server-side tasks. Tasks of the same request always run one at a time, in order. "
+      + "Tasks of different requests run in parallel up to this limit.")
+  public static final ConfigurationProperty<Integer> SERVER_TASK_THREADS = new ConfigurationProperty<>(
+      "server.task.threads", 4);
+
   /**
    * A location of hooks folder relative to resources folder.
    */
@@ -1854,6 +1925,29 @@ public class Configuration {
   public static final ConfigurationProperty<Integer> AGENTS_REPORT_THREAD_POOL_SIZE = new ConfigurationProperty<>(
       "agents.reports.thread.pool.size", 10);
 
+  /**
+   * The number of threads dispatching events of the Ambari event bus.
+   */
+  @Markdown(description = "The number of threads dispatching events to the server's internal listeners. "
+      + "Events of the same cluster or host are always dispatched in order. A single thread dispatches all events in order.")
+  public static final ConfigurationProperty<Integer> AMBARI_EVENTS_DISPATCHER_THREADS = new ConfigurationProperty<>(
+      "events.ambari.dispatcher.threads", 1);
+
+  /**
+   * The number of threads dispatching STOMP update events.
+   */
+  @Markdown(description = "The number of threads dispatching STOMP update events to the UI and agents. "
+      + "Events of the same host, request or type are always dispatched in order.")
+  public static final ConfigurationProperty<Integer> STOMP_EVENTS_DISPATCHER_THREADS = new ConfigurationProperty<>(
+      "events.stomp.dispatcher.threads", 1);
+
+  /**
+   * The capacity of the ring buffer of each event dispatcher thread.
+   */
+  @Markdown(description = "The number of events each event dispatcher thread buffers before spilling to an unbounded overflow queue.")
+  public static final ConfigurationProperty<Integer> EVENTS_DISPATCHER_RING_SIZE = new ConfigurationProperty<>(
+      "events.dispatcher.ring.size", 4096);
+
   /**
    * Server to API STOMP endpoint heartbeat interval in milliseconds.
    */
@@ -1968,6 +2062,33 @@ public class Configuration {
   public static final ConfigurationProperty<Long> PROPERTY_PROVIDER_THREADPOOL_COMPLETION_TIMEOUT = new ConfigurationProperty<>(
       "server.property-provider.threadpool.completion.timeout", 5000L);
 
+  /**
+   * Determines whether the {@link PropertyProvider}s of a resource type are run
+   * concurrently when populating resources.
+   */
+  @Markdown(description = "Determines whether the property providers of a resource type, such as JMX, metrics and alert summaries, "
+      + "populate the resources of a request concurrently instead of one after another.")
+  public static final ConfigurationProperty<Boolean> PROPERTY_PROVIDER_PARALLEL_ENABLED = new ConfigurationProperty<>(
+      "server.property-provider.parallel.enabled", Boolean.FALSE);
+
+  /**
+   * The number of threads that will be used to run {@link PropertyProvider}s
+   * concurrently.
+   */
+  @Markdown(description = "The number of threads that will be used to run the property providers of a request concurrently. "
+      + "Property providers are run on the request thread while all threads are busy.")
+  public static final ConfigurationProperty<Integer> PROPERTY_PROVIDER_PARALLEL_THREADPOOL_SIZE = new ConfigurationProperty<>(
+      "server.property-provider.parallel.threadpool.size", PROCESSOR_BASED_THREADPOOL_CORE_SIZE_DEFAULT);
+
+  /**
+   * The maximum time, in {@link TimeUnit#MILLISECONDS}, that a request waits
+   * for a {@link PropertyProvider} which is run concurrently.
+   */
+  @Markdown(description = "The maximum time, in milliseconds, that a request waits for a property provider which is run concurrently. "
+      + "The properties of a provider which does not complete in time are left out of the response.")
+  public static final ConfigurationProperty<Long> PROPERTY_PROVIDER_PARALLEL_TIMEOUT = new ConfigurationProperty<>(
+      "server.property-provider.parallel.timeout", 10000L);
+
   /**
    * The time, in {@link TimeUnit#SECONDS}, that HTTP requests remain valid when
    * inactive.
@@ -2060,6 +2181,46 @@ public class Configuration {
   public static final ConfigurationProperty<Boolean> TIMELINE_METRICS_CACHE_USE_CUSTOM_SIZING_ENGINE = new ConfigurationProperty<>(
       "server.timeline.metrics.cache.use.custom.sizing.engine", Boolean.TRUE);
 
+  /**
+   * The cache implementation used for Ambari Metric data, either {@code ehcache}
+   * or {@code series}.
+   */
+  @Markdown(
+      relatedTo = "server.timeline.metrics.cache.disabled",
+      description = "The cache implementation used for Ambari Metric data. `ehcache` blocks readers while an entry is refreshed from Ambari Metrics. "
+          + "`series` coalesces identical requests and serves slightly stale data while the missing tail is fetched in the background.")
+  public static final ConfigurationProperty<String> TIMELINE_METRICS_CACHE_IMPLEMENTATION = new ConfigurationProperty<>(
+      "server.timeline.metrics.cache.implementation", "ehcache");
+
+  /**
+   * The time, in {@link TimeUnit#MILLISECONDS}, that a cached series may lag
+   * behind the requested end time and still be served while it is refreshed.
+   */
+  @Markdown(
+      relatedTo = "server.timeline.metrics.cache.implementation",
+      description = "The time, in milliseconds, that cached Ambari Metric data may lag behind the requested window and still be returned while it is refreshed in the background. "
+          + "Only used by the `series` cache implementation.")
+  public static final ConfigurationProperty<Long> TIMELINE_METRICS_CACHE_STALE_TOLERANCE = new ConfigurationProperty<>(
+      "server.timeline.metrics.cache.stale.tolerance.millis", 30000L);
+
+  /**
+   * The maximum number of series kept by the {@code series} metrics cache.
+   */
+  @Markdown(
+      relatedTo = "server.timeline.metrics.cache.implementation",
+      description = "The maximum number of metric requests whose series are kept in the cache. Only used by the `series` cache implementation.")
+  public static final ConfigurationProperty<Integer> TIMELINE_METRICS_CACHE_MAX_ENTRIES = new ConfigurationProperty<>(
+      "server.timeline.metrics.cache.max.entries", 10000);
+
+  /**
+   * The number of threads refreshing stale series in the {@code series} metrics cache.
+   */
+  @Markdown(
+      relatedTo = "server.timeline.metrics.cache.implementation",
+      description = "The number of threads fetching new data for stale cache entries from Ambari Metrics. Only used by the `series` cache implementation.")
+  public static final ConfigurationProperty<Integer> TIMELINE_METRICS_CACHE_REFRESH_THREADS = new ConfigurationProperty<>(
+      "server.timeline.metrics.cache.refresh.threads", 4);
+
   /**
    * Timeline Metrics SSL settings
    */
@@ -3814,6 +3975,34 @@ public class Configuration {
     return getProperty(API_GZIP_MIN_COMPRESSION_SIZE);
   }
 
+  /**
+   * @return the maximum number of cached query plans, 0 disables the cache
+   */
+  public int getApiQueryPlanCacheSize() {
+    return Integer.parseInt(getProperty(API_QUERY_PLAN_CACHE_SIZE));
+  }
+
+  /**
+   * @return the maximum number of cached query predicates
+   */
+  public int getApiQueryPredicateCacheSize() {
+    return Integer.parseInt(getProperty(API_QUERY_PREDICATE_CACHE_SIZE));
+  }
+
+  /**
+   * @return {@code true} if polled REST API responses are versioned
+   */
+  public boolean isApiResourceVersioningEnabled() {
+    return Boolean.parseBoolean(getProperty(API_RESOURCE_VERSIONING_ENABLED));
+  }
+
+  /**
+   * @return the number of resource changes per resource type which are kept
+   */
+  public int getApiResourceVersioningHistorySize() {
+    return Integer.parseInt(getProperty(API_RESOURCE_VERSIONING_HISTORY_SIZE));
+  }
+
   /**
    * Check persistence type Ambari Server should use. Possible values:
    * in-memory - use in-memory Derby database to store data
@@ -4521,6 +4710,13 @@ public class Configuration {
     }
   }
 
+  /**
+   * @return the number of threads running server-side tasks.
+   */
+  public int getServerTaskThreads() {
+    return Integer.parseInt(getProperty(SERVER_TASK_THREADS));
+  }
+
   public String getResourceDirPath() {
     return getProperty(RESOURCES_DIR);
   }
@@ -4554,6 +4750,14 @@ public class Configuration {
     return Integer.parseInt(getProperty(REGISTRATION_THREAD_POOL_SIZE));
   }
 
+  /**
+   * @return the number of non-desired configuration versions cached in memory
+   *         for each cluster.
+   */
+  public int getClusterConfigVersionsCacheSize() {
+    return Integer.parseInt(getProperty(SERVER_CLUSTER_CONFIG_VERSIONS_CACHE_SIZE));
+  }
+
   /**
    * @return max cache size for spring subscription registry.
    */
@@ -4590,6 +4794,27 @@ public class Configuration {
     return Integer.parseInt(getProperty(AGENTS_REPORT_THREAD_POOL_SIZE));
   }
 
+  /**
+   * @return the number of threads dispatching events of the Ambari event bus.
+   */
+  public int getAmbariEventsDispatcherThreads() {
+    return Integer.parseInt(getProperty(AMBARI_EVENTS_DISPATCHER_THREADS));
+  }
+
+  /**
+   * @return the number of threads dispatching STOMP update events.
+   */
+  public int getStompEventsDispatcherThreads() {
+    return Integer.parseInt(getProperty(STOMP_EVENTS_DISPATCHER_THREADS));
+  }
+
+  /**
+   * @return the ring buffer capacity of each event dispatcher thread.
+   */
+  public int getEventsDispatcherRingSize() {
+    return Integer.parseInt(getProperty(EVENTS_DISPATCHER_RING_SIZE));
+  }
+
   /**
    * @return server to API STOMP endpoint heartbeat interval in milliseconds.
    */
@@ -4717,6 +4942,34 @@ public class Configuration {
     return Long.parseLong(getProperty(PROPERTY_PROVIDER_THREADPOOL_COMPLETION_TIMEOUT));
   }
 
+  /**
+   * Gets whether the property providers of a resource type are run concurrently.
+   *
+   * @return {@code true} if property providers are run concurrently
+   */
+  public boolean isParallelPropertyProvidersEnabled() {
+    return Boolean.parseBoolean(getProperty(PROPERTY_PROVIDER_PARALLEL_ENABLED));
+  }
+
+  /**
+   * Get the size of the thread pool property providers are run concurrently on.
+   *
+   * @return the parallel property-providers' thread pool size
+   */
+  public int getParallelPropertyProvidersThreadPoolSize() {
+    return Integer.parseInt(getProperty(PROPERTY_PROVIDER_PARALLEL_THREADPOOL_SIZE));
+  }
+
+  /**
+   * Get the time, in milliseconds, a request waits for a property provider
+   * which is run concurrently.
+   *
+   * @return the parallel property-providers' timeout, in millis.
+   */
+  public long getParallelPropertyProvidersTimeout() {
+    return Long.parseLong(getProperty(PROPERTY_PROVIDER_PARALLEL_TIMEOUT));
+  }
+
   /**
    * Get the view extraction thread pool timeout.
    *
@@ -4876,6 +5129,24 @@ public class Configuration {
         LdapUsernameCollisionHandlingBehavior.ADD);
   }
 
+  /**
+   * Determines whether a sync of all LDAP users or groups is streamed.
+   *
+   * @return true if LDAP entries are read page by page and changes are persisted in batches
+   */
+  public boolean isLdapSyncStreamingEnabled() {
+    return Boolean.parseBoolean(getProperty(LDAP_SYNC_STREAMING_ENABLED));
+  }
+
+  /**
+   * Gets the number of pending changes which triggers persisting them during a streaming LDAP sync.
+   *
+   * @return the batch size
+   */
+  public int getLdapSyncStreamingBatchSize() {
+    return Integer.parseInt(getProperty(LDAP_SYNC_STREAMING_BATCH_SIZE));
+  }
+
   /**
    * Gets the type of database by examining the {@link #getDatabaseUrl()} JDBC
    * URL.
@@ -5122,6 +5393,34 @@ public class Configuration {
     return Boolean.parseBoolean(getProperty(TIMELINE_METRICS_CACHE_USE_CUSTOM_SIZING_ENGINE));
   }
 
+  /**
+   * Metrics cache implementation, {@code ehcache} or {@code series}.
+   */
+  public String getMetricsCacheImplementation() {
+    return getProperty(TIMELINE_METRICS_CACHE_IMPLEMENTATION).trim().toLowerCase();
+  }
+
+  /**
+   * Max lag of a cached series that is still served while it is refreshed.
+   */
+  public long getMetricsCacheStaleToleranceMillis() {
+    return Long.parseLong(getProperty(TIMELINE_METRICS_CACHE_STALE_TOLERANCE));
+  }
+
+  /**
+   * Max number of entries kept by the series metrics cache.
+   */
+  public int getMetricsCacheMaxEntries() {
+    return Integer.parseInt(getProperty(TIMELINE_METRICS_CACHE_MAX_ENTRIES));
+  }
+
+  /**
+   * Number of threads refreshing stale entries of the series metrics cache.
+   */
+  public int getMetricsCacheRefreshThreads() {
+    return Integer.parseInt(getProperty(TIMELINE_METRICS_CACHE_REFRESH_THREADS));
+  }
+
   /**
    * Gets the Kerberos authentication-specific properties container
    *
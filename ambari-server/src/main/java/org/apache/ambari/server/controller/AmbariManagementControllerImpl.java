@@ -5029,7 +5029,11 @@ public class AmbariManagementControllerImpl implements AmbariManagementControlle
       if (userRequest != null) {
         switch (userRequest.getType()) {
           case ALL:
-            ldapDataPopulator.synchronizeAllLdapUsers(batchInfo);
+            if (configs.isLdapSyncStreamingEnabled()) {
+              ldapDataPopulator.synchronizeAllLdapUsersStreaming(batchInfo, configs.getLdapSyncStreamingBatchSize());
+            } else {
+              ldapDataPopulator.synchronizeAllLdapUsers(batchInfo);
+            }
             break;
           case EXISTING:
             ldapDataPopulator.synchronizeExistingLdapUsers(batchInfo);
@@ -5042,7 +5046,11 @@ public class AmbariManagementControllerImpl implements AmbariManagementControlle
       if (groupRequest != null) {
         switch (groupRequest.getType()) {
           case ALL:
-            ldapDataPopulator.synchronizeAllLdapGroups(batchInfo);
+            if (configs.isLdapSyncStreamingEnabled()) {
+              ldapDataPopulator.synchronizeAllLdapGroupsStreaming(batchInfo, configs.getLdapSyncStreamingBatchSize());
+            } else {
+              ldapDataPopulator.synchronizeAllLdapGroups(batchInfo);
+            }
             break;
           case EXISTING:
             ldapDataPopulator.synchronizeExistingLdapGroups(batchInfo);
@@ -48,6 +48,7 @@ import org.apache.ambari.server.state.StackId;
 import org.apache.ambari.server.state.ValueAttributesInfo;
 import org.apache.ambari.server.topology.AdvisedConfiguration;
 import org.apache.ambari.server.topology.Blueprint;
+import org.apache.ambari.server.topology.CachingClusterTopology;
 import org.apache.ambari.server.topology.Cardinality;
 import org.apache.ambari.server.topology.ClusterTopology;
 import org.apache.ambari.server.topology.ConfigRecommendationStrategy;
@@ -420,8 +421,19 @@ public class BlueprintConfigurationProcessor {
    * @return Set of config type names that were updated by this update call
    */
   public Set<String> doUpdateForClusterCreate() throws ConfigurationTopologyException {
+    // the topology doesn't change while the configuration is processed, so component -> host
+    // lookups issued by the property updaters can be resolved once and shared
+    ClusterTopology originalTopology = clusterTopology;
+    clusterTopology = new CachingClusterTopology(originalTopology);
+    try {
+      return doUpdateForClusterCreate(clusterTopology.getConfiguration());
+    } finally {
+      clusterTopology = originalTopology;
+    }
+  }
+
+  private Set<String> doUpdateForClusterCreate(Configuration clusterConfig) throws ConfigurationTopologyException {
     Set<String> configTypesUpdated = new HashSet<>();
-    Configuration clusterConfig = clusterTopology.getConfiguration();
 
     doRecommendConfigurations(clusterConfig, configTypesUpdated);
 
@@ -626,6 +638,12 @@ public class BlueprintConfigurationProcessor {
                                                         Set<String> configTypesUpdated) {
     // Iterate through the updaters and apply them in case applicable properties exist
     Collection<Map<String, Map<String, PropertyUpdater>>> updaters = createCollectionOfUpdaters();
+
+    // merged host group properties are expensive to compute, calculate them once per host group
+    // and keep them in sync with the values written by the updaters below. The merged view also
+    // contains the cluster properties, so it is rebuilt after a cluster property is changed.
+    Map<HostGroupInfo, Map<String, Map<String, String>>> hgConfigPropsByGroup = new HashMap<>();
+
     for (Map<String, Map<String, PropertyUpdater>> updaterMap : updaters) {
       for (Map.Entry<String, Map<String, PropertyUpdater>> entry : updaterMap.entrySet()) {
         final String configType = entry.getKey();
@@ -642,15 +660,23 @@ public class BlueprintConfigurationProcessor {
             if (null == updatedValue) {
               continue;
             }
+            if (!updatedValue.equals(originalValue)) {
+              hgConfigPropsByGroup.clear();
+            }
           }
           // host group configs
           for (HostGroupInfo groupInfo : clusterTopology.getHostGroupInfo().values()) {
             Configuration hgConfig = groupInfo.getConfiguration();
-            Map<String, Map<String, String>> hgConfigProps = hgConfig.getFullProperties(1);
+            Map<String, Map<String, String>> hgConfigProps =
+              hgConfigPropsByGroup.computeIfAbsent(groupInfo, group -> hgConfig.getFullProperties(1));
             Map<String, String> hgTypeMap = hgConfigProps.get(configType);
             if (hgTypeMap != null && hgTypeMap.containsKey(propertyName)) {
               final String originalValue = hgTypeMap.get(propertyName);
-              updateValue(configType, propertyName, originalValue, updater, hgConfigProps, hgConfig, configTypesUpdated, true);
+              final String updatedValue =
+                updateValue(configType, propertyName, originalValue, updater, hgConfigProps, hgConfig, configTypesUpdated, true);
+              if (null != updatedValue) {
+                hgTypeMap.put(propertyName, updatedValue);
+              }
             }
           }
         }
@@ -18,10 +18,12 @@
 
 package org.apache.ambari.server.controller.internal;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
@@ -30,7 +32,16 @@ import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.TreeSet;
-
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.ambari.server.configuration.Configuration;
 import org.apache.ambari.server.controller.spi.ClusterController;
 import org.apache.ambari.server.controller.spi.ExtendedResourceProvider;
 import org.apache.ambari.server.controller.spi.NoSuchParentResourceException;
@@ -58,6 +69,11 @@ import org.apache.ambari.server.controller.utilities.PredicateHelper;
 import org.apache.ambari.server.controller.utilities.PropertyHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.security.concurrent.DelegatingSecurityContextCallable;
+
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.persist.UnitOfWork;
 
 /**
  * Default cluster controller implementation.
@@ -101,12 +117,60 @@ public class ClusterControllerImpl implements ClusterController {
     DEFAULT_RESOURCE_PREDICATE_EVALUATOR =
     new DefaultResourcePredicateEvaluator();
 
+  /**
+   * Executor on which the property providers of a resource type are run
+   * concurrently; {@code null} if they are run one after another.
+   */
+  private static volatile ExecutorService propertyProviderExecutor;
+
+  /**
+   * The time, in milliseconds, to wait for a property provider which is run
+   * concurrently.
+   */
+  private static volatile long propertyProviderTimeout;
+
+  /**
+   * The unit of work of the property providers run on the executor.
+   */
+  private static volatile UnitOfWork propertyProviderUnitOfWork;
+
   // ----- Constructors ------------------------------------------------------
 
   public ClusterControllerImpl(ProviderModule providerModule) {
     this.providerModule = providerModule;
   }
 
+  /**
+   * Configures whether the property providers of a resource type are run
+   * concurrently.  The pool is bounded; once all of its threads are busy,
+   * providers are run on the request thread.
+   *
+   * @param configuration  the configuration
+   * @param unitOfWork     the unit of work to run the providers on the pool in
+   */
+  public static synchronized void init(Configuration configuration, UnitOfWork unitOfWork) {
+    ExecutorService previous = propertyProviderExecutor;
+
+    if (configuration.isParallelPropertyProvidersEnabled()) {
+      int size = configuration.getParallelPropertyProvidersThreadPoolSize();
+      ThreadPoolExecutor executor = new ThreadPoolExecutor(size, size, 60L, TimeUnit.SECONDS,
+          new SynchronousQueue<>(),
+          new ThreadFactoryBuilder().setDaemon(true).setNameFormat("ambari-parallel-property-provider-%d").build(),
+          new ThreadPoolExecutor.CallerRunsPolicy());
+      executor.allowCoreThreadTimeOut(true);
+
+      propertyProviderTimeout = configuration.getParallelPropertyProvidersTimeout();
+      propertyProviderUnitOfWork = unitOfWork;
+      propertyProviderExecutor = executor;
+    } else {
+      propertyProviderExecutor = null;
+    }
+
+    if (previous != null) {
+      previous.shutdown();
+    }
+  }
+
 
 
   // ----- ClusterController -------------------------------------------------
@@ -148,11 +212,28 @@ public class ClusterControllerImpl implements ClusterController {
                                          Predicate predicate) throws SystemException {
     Set<Resource> keepers = resources;
     List<PropertyProvider> propertyProviders = ensurePropertyProviders(type);
+    PropertyProviderTimings timings = PropertyProviderTimings.current();
+    ExecutorService executor = propertyProviderExecutor;
+
+    // providers which do not depend on each other are run together, the
+    // groups are run in order
+    List<PropertyProvider> group = new ArrayList<>();
     for (PropertyProvider propertyProvider : propertyProviders) {
       if (providesRequestProperties(propertyProvider, request, predicate)) {
-        keepers = propertyProvider.populateResources(keepers, request, predicate);
+        if (executor == null) {
+          keepers = populateResources(type, propertyProvider, keepers, request, predicate, timings);
+        } else {
+          if (propertyProvider.dependsOnPrecedingProviders() && !group.isEmpty()) {
+            keepers = populateResources(type, group, keepers, request, predicate, timings, executor);
+            group.clear();
+          }
+          group.add(propertyProvider);
+        }
       }
     }
+    if (!group.isEmpty()) {
+      keepers = populateResources(type, group, keepers, request, predicate, timings, executor);
+    }
     return keepers;
   }
 
@@ -532,6 +613,197 @@ public class ClusterControllerImpl implements ClusterController {
     return pbWithPredicate == null ? null : pbWithPredicate.toPredicate();
   }
 
+  /**
+   * Populate the given resources with a single property provider.
+   *
+   * @param type       the resource type
+   * @param provider   the property provider
+   * @param resources  the resources to populate
+   * @param request    the request
+   * @param predicate  the predicate
+   * @param timings    the timings to record the elapsed time in; may be null
+   *
+   * @return the resources kept by the provider
+   *
+   * @throws SystemException if the provider fails to populate the resources
+   */
+  private static Set<Resource> populateResources(Type type, PropertyProvider provider, Set<Resource> resources,
+                                                 Request request, Predicate predicate,
+                                                 PropertyProviderTimings timings) throws SystemException {
+    long start = System.nanoTime();
+    try {
+      return provider.populateResources(resources, request, predicate);
+    } finally {
+      if (timings != null) {
+        timings.record(type, provider, System.nanoTime() - start);
+      }
+    }
+  }
+
+  /**
+   * Populate the given resources with independent property providers which
+   * are run concurrently.  All but the last provider are submitted to the
+   * executor, the last one is run on the calling thread.  Each provider
+   * populates its own copies of the resources, and only the copies of the
+   * providers that completed are merged back into the resources, in the order
+   * of the providers, so a provider that did not complete within the timeout
+   * is cancelled and its properties are left out even if it keeps running.
+   * A resource is kept if it is kept by every provider that completed.
+   *
+   * @param type       the resource type
+   * @param providers  the property providers
+   * @param resources  the resources to populate
+   * @param request    the request
+   * @param predicate  the predicate
+   * @param timings    the timings to record the elapsed times in; may be null
+   * @param executor   the executor to run the providers on
+   *
+   * @return the resources kept by all of the providers
+   *
+   * @throws SystemException if a provider fails to populate the resources
+   */
+  private static Set<Resource> populateResources(Type type, List<PropertyProvider> providers,
+                                                 Set<Resource> resources, Request request,
+                                                 Predicate predicate, PropertyProviderTimings timings,
+                                                 ExecutorService executor) throws SystemException {
+    int last = providers.size() - 1;
+    if (last == 0) {
+      return populateResources(type, providers.get(0), resources, request, predicate, timings);
+    }
+
+    // the values of the resources before they are populated, by resource
+    Map<Resource, Resource> snapshots = new IdentityHashMap<>();
+    for (Resource resource : resources) {
+      snapshots.put(resource, new ResourceImpl(resource));
+    }
+
+    // the originals of the copies of each provider
+    List<Map<Resource, Resource>> originals = new ArrayList<>(providers.size());
+    List<Set<Resource>> copies = new ArrayList<>(providers.size());
+    for (int i = 0; i <= last; i++) {
+      Map<Resource, Resource> providerOriginals = new IdentityHashMap<>();
+      Set<Resource> providerCopies = new LinkedHashSet<>();
+      for (Resource resource : resources) {
+        Resource copy = new ResourceImpl(resource);
+        providerOriginals.put(copy, resource);
+        providerCopies.add(copy);
+      }
+      originals.add(providerOriginals);
+      copies.add(providerCopies);
+    }
+
+    Thread caller = Thread.currentThread();
+    UnitOfWork unitOfWork = propertyProviderUnitOfWork;
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(propertyProviderTimeout);
+    List<Future<Set<Resource>>> futures = new ArrayList<>(last);
+    // the results by provider index, null for the providers that did not complete
+    List<Set<Resource>> results = new ArrayList<>(Collections.nCopies(providers.size(), null));
+    try {
+      for (int i = 0; i < last; i++) {
+        PropertyProvider provider = providers.get(i);
+        Set<Resource> providerCopies = copies.get(i);
+        Callable<Set<Resource>> callable = () -> {
+          // a provider which the pool runs on the calling thread shares its unit of work
+          if (unitOfWork == null || Thread.currentThread() == caller) {
+            return populateResources(type, provider, providerCopies, request, predicate, timings);
+          }
+          unitOfWork.begin();
+          try {
+            return populateResources(type, provider, providerCopies, request, predicate, timings);
+          } finally {
+            unitOfWork.end();
+          }
+        };
+        // the providers check the authorization of the current user
+        futures.add(executor.submit(new DelegatingSecurityContextCallable<>(callable)));
+      }
+
+      results.set(last, populateResources(type, providers.get(last), copies.get(last), request, predicate, timings));
+
+      for (int i = 0; i < last; i++) {
+        try {
+          results.set(i, futures.get(i).get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+        } catch (TimeoutException e) {
+          LOG.error("Timed out after waiting {}ms for property provider {} to populate {} resources",
+              propertyProviderTimeout, providers.get(i).getClass().getName(), type);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SystemException("Interrupted while populating " + type + " resources", e);
+    } catch (ExecutionException e) {
+      Throwables.propagateIfPossible(e.getCause(), SystemException.class);
+      throw new SystemException("Unable to populate " + type + " resources", e.getCause());
+    } finally {
+      for (Future<Set<Resource>> future : futures) {
+        future.cancel(true);
+      }
+    }
+
+    // resources are compared by identity since their hash codes change as
+    // the copies are merged into them
+    Set<Resource> kept = null;
+    for (int i = 0; i <= last; i++) {
+      Set<Resource> result = results.get(i);
+      if (result == null) {
+        continue;
+      }
+      Map<Resource, Resource> providerOriginals = originals.get(i);
+      for (Map.Entry<Resource, Resource> entry : providerOriginals.entrySet()) {
+        mergeProperties(entry.getKey(), snapshots.get(entry.getValue()), entry.getValue());
+      }
+      if (result != copies.get(i)) {
+        Set<Resource> providerKept = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Resource copy : result) {
+          Resource original = providerOriginals.get(copy);
+          if (original != null && (kept == null || kept.contains(original))) {
+            providerKept.add(original);
+          }
+        }
+        kept = providerKept;
+      }
+    }
+    if (kept == null) {
+      return resources;
+    }
+
+    Set<Resource> keepers = new LinkedHashSet<>();
+    for (Resource resource : resources) {
+      if (kept.contains(resource)) {
+        keepers.add(resource);
+      }
+    }
+    return keepers;
+  }
+
+  /**
+   * Set the properties a property provider populated on a copy of a resource
+   * on the resource.  The copy and the snapshot started out with the same
+   * values, so the properties whose values differ from the snapshot are the
+   * ones set by the provider; the resource itself may already hold the values
+   * merged from other providers.
+   *
+   * @param copy      the populated copy
+   * @param snapshot  the values of the resource when it was copied
+   * @param original  the resource which was copied
+   */
+  private static void mergeProperties(Resource copy, Resource snapshot, Resource original) {
+    for (Map.Entry<String, Map<String, Object>> categoryEntry : copy.getPropertiesMap().entrySet()) {
+      String category = categoryEntry.getKey();
+      Map<String, Object> properties = categoryEntry.getValue();
+      if (properties.isEmpty()) {
+        original.addCategory(category);
+      }
+      for (Map.Entry<String, Object> propertyEntry : properties.entrySet()) {
+        String propertyId = PropertyHelper.getPropertyId(category, propertyEntry.getKey());
+        Object value = propertyEntry.getValue();
+        if (snapshot.getPropertyValue(propertyId) != value) {
+          original.setProperty(propertyId, value);
+        }
+      }
+    }
+  }
+
   /**
    * Indicates whether or not the given property provider can service the given request.
    *
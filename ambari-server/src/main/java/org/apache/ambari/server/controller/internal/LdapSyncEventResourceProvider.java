@@ -523,14 +523,14 @@ public class LdapSyncEventResourceProvider extends AbstractControllerResourcePro
    * @param syncInfo  the sync results
    */
   private void populateLdapSyncEvent(LdapSyncEventEntity event, LdapBatchDto syncInfo) {
-    event.setUsersCreated(syncInfo.getUsersToBeCreated().size());
-    event.setUsersUpdated(syncInfo.getUsersToBecomeLdap().size());
-    event.setUsersRemoved(syncInfo.getUsersToBeRemoved().size());
-    event.setUsersSkipped(syncInfo.getUsersSkipped().size());
-    event.setGroupsCreated(syncInfo.getGroupsToBeCreated().size());
-    event.setGroupsUpdated(syncInfo.getGroupsToBecomeLdap().size());
-    event.setGroupsRemoved(syncInfo.getGroupsToBeRemoved().size());
-    event.setMembershipsCreated(syncInfo.getMembershipToAdd().size());
-    event.setMembershipsRemoved(syncInfo.getMembershipToRemove().size());
+    event.setUsersCreated(syncInfo.getUsersToBeCreatedCount());
+    event.setUsersUpdated(syncInfo.getUsersToBecomeLdapCount());
+    event.setUsersRemoved(syncInfo.getUsersToBeRemovedCount());
+    event.setUsersSkipped(syncInfo.getUsersSkippedCount());
+    event.setGroupsCreated(syncInfo.getGroupsToBeCreatedCount());
+    event.setGroupsUpdated(syncInfo.getGroupsToBecomeLdapCount());
+    event.setGroupsRemoved(syncInfo.getGroupsToBeRemovedCount());
+    event.setMembershipsCreated(syncInfo.getMembershipToAddCount());
+    event.setMembershipsRemoved(syncInfo.getMembershipToRemoveCount());
   }
 }
@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.controller.internal;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ambari.server.controller.spi.PropertyProvider;
+import org.apache.ambari.server.controller.spi.Resource;
+
+/**
+ * Collects the time spent in each {@link PropertyProvider} while a request is
+ * served, so that it can be reported in the response. Collection is enabled
+ * for the current thread between {@link #start()} and {@link #stop()}; the
+ * {@link ClusterControllerImpl} records into the instance returned by
+ * {@link #current()}, which may be {@code null}.
+ */
+public class PropertyProviderTimings {
+
+  private static final ThreadLocal<PropertyProviderTimings> CURRENT = new ThreadLocal<>();
+
+  /**
+   * Elapsed nanoseconds keyed by resource type and provider class.
+   */
+  private final Map<String, Long> timings = new ConcurrentHashMap<>();
+
+  /**
+   * Starts collecting the property provider timings of the current thread.
+   *
+   * @return the timings collected until {@link #stop()} is called
+   */
+  public static PropertyProviderTimings start() {
+    PropertyProviderTimings timings = new PropertyProviderTimings();
+    CURRENT.set(timings);
+    return timings;
+  }
+
+  /**
+   * @return the timings collected for the current thread, or {@code null} if
+   *         collection is not enabled
+   */
+  public static PropertyProviderTimings current() {
+    return CURRENT.get();
+  }
+
+  /**
+   * Stops collecting the property provider timings of the current thread.
+   */
+  public static void stop() {
+    CURRENT.remove();
+  }
+
+  /**
+   * Adds the time a provider spent populating resources of the given type.
+   * Providers which are invoked more than once for a request, e.g. for the
+   * sub-resources of several parents, accumulate their time.
+   *
+   * @param type      the resource type
+   * @param provider  the property provider
+   * @param nanos     the elapsed time, in nanoseconds
+   */
+  void record(Resource.Type type, PropertyProvider provider, long nanos) {
+    String name = provider.getClass().getSimpleName();
+    if (name.isEmpty()) {
+      name = provider.getClass().getName();
+    }
+    timings.merge(type + "/" + name, nanos, Long::sum);
+  }
+
+  /**
+   * @return the elapsed milliseconds keyed by {@code <resource type>/<provider class>}
+   */
+  public Map<String, Long> getTimings() {
+    Map<String, Long> millis = new TreeMap<>();
+    for (Map.Entry<String, Long> entry : timings.entrySet()) {
+      millis.put(entry.getKey(), TimeUnit.NANOSECONDS.toMillis(entry.getValue()));
+    }
+    return Collections.unmodifiableMap(millis);
+  }
+}
@@ -106,11 +106,10 @@ public class ResourceImpl implements Resource {
   public void setProperty(String id, Object value) {
     String categoryKey = getCategoryKey(PropertyHelper.getPropertyCategory(id));
 
-    Map<String, Object> properties = propertiesMap.get(categoryKey);
-    if (properties == null) {
-      properties = Collections.synchronizedMap(new TreeMap<String, Object>());
-      propertiesMap.put(categoryKey, properties);
-    }
+    // property providers may populate the same resource concurrently, so the
+    // category map has to be created atomically
+    Map<String, Object> properties = propertiesMap.computeIfAbsent(categoryKey,
+        k -> Collections.synchronizedMap(new TreeMap<String, Object>()));
     properties.put(PropertyHelper.getPropertyName(id), value);
   }
 
@@ -118,9 +117,7 @@ public class ResourceImpl implements Resource {
   public void addCategory(String id) {
     String categoryKey = getCategoryKey(id);
 
-    if (!propertiesMap.containsKey(categoryKey)) {
-      propertiesMap.put(categoryKey, new HashMap<>());
-    }
+    propertiesMap.computeIfAbsent(categoryKey, k -> Collections.synchronizedMap(new HashMap<String, Object>()));
   }
 
   @Override
@@ -34,7 +34,7 @@ import net.sf.ehcache.constructs.blocking.UpdatingCacheEntryFactory;
 import net.sf.ehcache.constructs.blocking.UpdatingSelfPopulatingCache;
 import net.sf.ehcache.statistics.StatisticsGateway;
 
-public class TimelineMetricCache extends UpdatingSelfPopulatingCache {
+public class TimelineMetricCache extends UpdatingSelfPopulatingCache implements TimelineAppMetricsCache {
 
   private final static Logger LOG = LoggerFactory.getLogger(TimelineMetricCache.class);
   private static AtomicInteger printCacheStatsCounter = new AtomicInteger(0);
@@ -55,6 +55,7 @@ public class TimelineMetricCache extends UpdatingSelfPopulatingCache {
    * @param key @TimelineAppMetricCacheKey
    * @return @org.apache.hadoop.metrics2.sink.timeline.TimelineMetrics
    */
+  @Override
   public TimelineMetrics getAppTimelineMetricsFromCache(TimelineAppMetricCacheKey key) throws IllegalArgumentException, IOException {
     if (LOG.isDebugEnabled()) {
       LOG.debug("Fetching metrics with key: {}", key);
@@ -137,7 +138,7 @@ public class TimelineMetricCache extends UpdatingSelfPopulatingCache {
     return super.get(key);
   }
 
-  private void validateKey(TimelineAppMetricCacheKey key) throws IllegalArgumentException {
+  static void validateKey(TimelineAppMetricCacheKey key) throws IllegalArgumentException {
     StringBuilder msg = new StringBuilder("Invalid metric key requested.");
     boolean throwException = false;
 
@@ -19,6 +19,8 @@ package org.apache.ambari.server.controller.metrics.timeline.cache;
 
 import static net.sf.ehcache.config.PersistenceConfiguration.Strategy;
 
+import java.util.concurrent.TimeUnit;
+
 import org.apache.ambari.server.configuration.Configuration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -41,10 +43,11 @@ import net.sf.ehcache.store.MemoryStoreEvictionPolicy;
  */
 @Singleton
 public class TimelineMetricCacheProvider {
-  private TimelineMetricCache timelineMetricsCache;
+  private TimelineAppMetricsCache timelineMetricsCache;
   private volatile boolean isCacheInitialized = false;
   public static final String TIMELINE_METRIC_CACHE_MANAGER_NAME = "timelineMetricCacheManager";
   public static final String TIMELINE_METRIC_CACHE_INSTANCE_NAME = "timelineMetricCache";
+  public static final String SERIES_CACHE_IMPLEMENTATION = "series";
 
   Configuration configuration;
   TimelineMetricCacheEntryFactory cacheEntryFactory;
@@ -64,6 +67,23 @@ public class TimelineMetricCacheProvider {
       return;
     }
 
+    if (SERIES_CACHE_IMPLEMENTATION.equals(configuration.getMetricsCacheImplementation())) {
+      LOG.info("Creating Metrics series cache with timeouts => ttl = " +
+        configuration.getMetricCacheTTLSeconds() + ", idle = " +
+        configuration.getMetricCacheIdleSeconds() + ", stale tolerance millis = " +
+        configuration.getMetricsCacheStaleToleranceMillis());
+
+      timelineMetricsCache = new TimelineMetricSeriesCache(cacheEntryFactory,
+        configuration.getMetricsCacheStaleToleranceMillis(),
+        configuration.getMetricsCacheMaxEntries(),
+        TimeUnit.SECONDS.toMillis(configuration.getMetricCacheTTLSeconds()),
+        TimeUnit.SECONDS.toMillis(configuration.getMetricCacheIdleSeconds()),
+        configuration.getMetricsCacheRefreshThreads());
+
+      isCacheInitialized = true;
+      return;
+    }
+
     System.setProperty("net.sf.ehcache.skipUpdateCheck", "true");
     if (configuration.useMetricsCacheCustomSizingEngine()) {
       // Use custom sizing engine to speed cache sizing calculations
@@ -90,12 +110,13 @@ public class TimelineMetricCacheProvider {
     Cache cache = new Cache(cacheConfiguration);
 
     // Decorate with UpdatingSelfPopulatingCache
-    timelineMetricsCache = new TimelineMetricCache(cache, cacheEntryFactory);
+    TimelineMetricCache ehcache = new TimelineMetricCache(cache, cacheEntryFactory);
 
     LOG.info("Registering metrics cache with provider: name = " +
       cache.getName() + ", guid: " + cache.getGuid());
 
-    manager.addCache(timelineMetricsCache);
+    manager.addCache(ehcache);
+    timelineMetricsCache = ehcache;
 
     isCacheInitialized = true;
   }
@@ -119,10 +140,11 @@ public class TimelineMetricCacheProvider {
   }
 
   /**
-   * Return an instance of a Ehcache
-   * @return @TimelineMetricCache or null if caching is disabled through config.
+   * Return the configured metrics cache, an Ehcache backed @TimelineMetricCache
+   * or a @TimelineMetricSeriesCache.
+   * @return @TimelineAppMetricsCache or null if caching is disabled through config.
    */
-  public TimelineMetricCache getTimelineMetricsCache() {
+  public TimelineAppMetricsCache getTimelineMetricsCache() {
     if (configuration.isMetricsCacheDisabled()) {
       return null;
     }
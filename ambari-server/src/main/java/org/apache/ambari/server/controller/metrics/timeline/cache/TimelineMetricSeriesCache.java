@@ -0,0 +1,329 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.controller.metrics.timeline.cache;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ambari.server.controller.spi.TemporalInfo;
+import org.apache.hadoop.metrics2.sink.timeline.Precision;
+import org.apache.hadoop.metrics2.sink.timeline.TimelineMetric;
+import org.apache.hadoop.metrics2.sink.timeline.TimelineMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Metrics cache that does not depend on Ehcache. Entries are keyed by the
+ * requested metrics, app and hosts, the time window is not part of the key.
+ * <p>
+ * Compared to @TimelineMetricCache readers are never blocked behind a lock:
+ * <ul>
+ * <li>Concurrent requests for the same key share a single call to the
+ * collector.</li>
+ * <li>When the requested window only moves forward by less than the stale
+ * tolerance, the cached series is returned right away and the missing tail
+ * is fetched in the background.</li>
+ * </ul>
+ * Cached values are never modified in place, a refresh works on a copy which
+ * replaces the served value once the collector returns.
+ */
+public class TimelineMetricSeriesCache implements TimelineAppMetricsCache {
+  private final static Logger LOG = LoggerFactory.getLogger(TimelineMetricSeriesCache.class);
+
+  private final TimelineMetricCacheEntryFactory cacheEntryFactory;
+  private final long staleToleranceMillis;
+  private final int maxEntries;
+  private final long ttlMillis;
+  private final long idleMillis;
+  private final ThreadPoolExecutor refreshExecutor;
+  private final Map<TimelineAppMetricCacheKey, SeriesEntry> entries = new ConcurrentHashMap<>();
+  private volatile long lastSweepTime;
+
+  public TimelineMetricSeriesCache(TimelineMetricCacheEntryFactory cacheEntryFactory,
+                                   long staleToleranceMillis, int maxEntries,
+                                   long ttlMillis, long idleMillis, int refreshThreads) {
+    this.cacheEntryFactory = cacheEntryFactory;
+    this.staleToleranceMillis = staleToleranceMillis;
+    this.maxEntries = maxEntries;
+    this.ttlMillis = ttlMillis;
+    this.idleMillis = idleMillis;
+    this.lastSweepTime = System.currentTimeMillis();
+
+    int threads = Math.max(1, refreshThreads);
+    // A refresh that cannot be queued is simply retried by the next reader
+    refreshExecutor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+      new LinkedBlockingQueue<>(Math.max(1, maxEntries)),
+      new ThreadFactoryBuilder().setNameFormat("ambari-metrics-cache-refresh-%d").setDaemon(true).build());
+    refreshExecutor.allowCoreThreadTimeOut(true);
+  }
+
+  @Override
+  public TimelineMetrics getAppTimelineMetricsFromCache(TimelineAppMetricCacheKey key) throws IllegalArgumentException, IOException {
+    LOG.debug("Fetching metrics with key: {}", key);
+
+    TimelineMetricCache.validateKey(key);
+
+    long now = System.currentTimeMillis();
+    evictExpiredEntries(now);
+
+    // Snapshot the key since its window and spec are updated by every request
+    TimelineAppMetricCacheKey requestKey = copyOf(key);
+    SeriesEntry entry = entries.computeIfAbsent(requestKey, k -> new SeriesEntry(now));
+    entry.lastAccessTime = now;
+
+    TimelineMetricsCacheValue value = entry.value;
+    if (value == null) {
+      value = refresh(entry, requestKey, null);
+    } else {
+      switch (getFreshness(value, requestKey.getTemporalInfo())) {
+        case FRESH:
+          break;
+        case STALE:
+          refreshInBackground(entry, requestKey);
+          break;
+        default:
+          value = refresh(entry, requestKey, value);
+          // A coalesced refresh may have served a different precision
+          if (value != null && getFreshness(value, requestKey.getTemporalInfo()) == Freshness.EXPIRED) {
+            value = refresh(entry, requestKey, value);
+          }
+      }
+    }
+
+    if (value == null) {
+      return new TimelineMetrics();
+    }
+
+    LOG.debug("Returning value from cache: {}", value);
+    return value.getTimelineMetrics();
+  }
+
+  /**
+   * Number of entries currently cached.
+   */
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * Stop background refreshes.
+   */
+  public void shutdown() {
+    refreshExecutor.shutdownNow();
+  }
+
+  enum Freshness {
+    /** Cached series covers the requested window. */
+    FRESH,
+    /** Cached series lags behind the requested window by less than the stale tolerance. */
+    STALE,
+    /** Cached series cannot be used to answer the request. */
+    EXPIRED
+  }
+
+  Freshness getFreshness(TimelineMetricsCacheValue value, TemporalInfo temporalInfo) {
+    long requestedStartTime = temporalInfo.getStartTimeMillis();
+    long requestedEndTime = temporalInfo.getEndTimeMillis();
+    long cachedStartTime = getMillisecondsTime(value.getStartTime());
+    long cachedEndTime = getMillisecondsTime(value.getEndTime());
+
+    Precision requestedPrecision = Precision.getPrecision(requestedStartTime, requestedEndTime);
+    if (!requestedPrecision.equals(value.getPrecision()) || requestedStartTime < cachedStartTime
+        || requestedStartTime > cachedEndTime) {
+      return Freshness.EXPIRED;
+    }
+
+    if (requestedEndTime <= cachedEndTime) {
+      return Freshness.FRESH;
+    }
+
+    return requestedEndTime - cachedEndTime <= staleToleranceMillis ? Freshness.STALE : Freshness.EXPIRED;
+  }
+
+  /**
+   * Fetch new data for the entry and wait for it. Callers of the same key
+   * which arrive while a fetch is in flight wait on that fetch instead of
+   * issuing their own.
+   *
+   * @param observed the value the caller found in the entry, if another
+   *                 fetch replaced it since, that result is returned as is
+   */
+  private TimelineMetricsCacheValue refresh(SeriesEntry entry, TimelineAppMetricCacheKey key,
+                                            TimelineMetricsCacheValue observed) throws IOException {
+    CompletableFuture<TimelineMetricsCacheValue> future;
+    boolean owner = false;
+    synchronized (entry) {
+      future = entry.inFlight;
+      if (future == null) {
+        if (entry.value != observed) {
+          return entry.value;
+        }
+        future = new CompletableFuture<>();
+        entry.inFlight = future;
+        owner = true;
+      }
+    }
+
+    if (owner) {
+      load(entry, key, future);
+    }
+
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for metrics of " + key.getMetricNames(), e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IOException(cause);
+    }
+  }
+
+  private void refreshInBackground(final SeriesEntry entry, final TimelineAppMetricCacheKey key) {
+    final CompletableFuture<TimelineMetricsCacheValue> future;
+    synchronized (entry) {
+      if (entry.inFlight != null) {
+        return;
+      }
+      future = new CompletableFuture<>();
+      entry.inFlight = future;
+    }
+
+    try {
+      refreshExecutor.execute(() -> load(entry, key, future));
+    } catch (RejectedExecutionException e) {
+      LOG.debug("Skipping background refresh of {}, refresh queue is full", key.getMetricNames());
+      synchronized (entry) {
+        entry.inFlight = null;
+      }
+      future.complete(entry.value);
+    }
+  }
+
+  private void load(SeriesEntry entry, TimelineAppMetricCacheKey key,
+                    CompletableFuture<TimelineMetricsCacheValue> future) {
+    try {
+      TimelineMetricsCacheValue current = entry.value;
+      TimelineMetricsCacheValue next;
+      if (current == null) {
+        next = (TimelineMetricsCacheValue) cacheEntryFactory.createEntry(key);
+      } else {
+        // Only the missing tail is requested from the collector
+        next = copyOf(current);
+        cacheEntryFactory.updateEntryValue(key, next);
+      }
+
+      if (next != null) {
+        entry.value = next;
+      }
+
+      synchronized (entry) {
+        entry.inFlight = null;
+      }
+      future.complete(next != null ? next : current);
+    } catch (Throwable t) {
+      LOG.debug("Failed to refresh metrics for {}", key.getMetricNames(), t);
+      synchronized (entry) {
+        entry.inFlight = null;
+      }
+      future.completeExceptionally(t);
+    }
+  }
+
+  /**
+   * Drop entries past their time to live or idle time, then the least recently
+   * used ones while the cache holds more than the allowed number of entries.
+   */
+  private void evictExpiredEntries(long now) {
+    if (now - lastSweepTime < Math.min(idleMillis, 60000L) && entries.size() <= maxEntries) {
+      return;
+    }
+    lastSweepTime = now;
+
+    Iterator<SeriesEntry> iterator = entries.values().iterator();
+    while (iterator.hasNext()) {
+      SeriesEntry entry = iterator.next();
+      if (now - entry.creationTime >= ttlMillis || now - entry.lastAccessTime >= idleMillis) {
+        iterator.remove();
+      }
+    }
+
+    int excess = entries.size() - maxEntries;
+    if (excess > 0) {
+      List<Map.Entry<TimelineAppMetricCacheKey, SeriesEntry>> candidates = new ArrayList<>(entries.entrySet());
+      candidates.sort((e1, e2) -> Long.compare(e1.getValue().lastAccessTime, e2.getValue().lastAccessTime));
+      for (int i = 0; i < excess && i < candidates.size(); i++) {
+        entries.remove(candidates.get(i).getKey());
+      }
+    }
+  }
+
+  private static TimelineAppMetricCacheKey copyOf(TimelineAppMetricCacheKey key) {
+    TimelineAppMetricCacheKey copy = new TimelineAppMetricCacheKey(key.getMetricNames(),
+      key.getAppId(), key.getHostNames(), key.getTemporalInfo());
+    copy.setSpec(key.getSpec());
+    return copy;
+  }
+
+  private static TimelineMetricsCacheValue copyOf(TimelineMetricsCacheValue value) {
+    TimelineMetrics metrics = new TimelineMetrics();
+    for (TimelineMetric metric : value.getTimelineMetrics().getMetrics()) {
+      metrics.getMetrics().add(new TimelineMetric(metric));
+    }
+    return new TimelineMetricsCacheValue(value.getStartTime(), value.getEndTime(), metrics, value.getPrecision());
+  }
+
+  private static long getMillisecondsTime(long time) {
+    if (time < 9999999999l) {
+      return time * 1000;
+    } else {
+      return time;
+    }
+  }
+
+  private static final class SeriesEntry {
+    private final long creationTime;
+    private volatile long lastAccessTime;
+    private volatile TimelineMetricsCacheValue value;
+    // Guarded by the entry
+    private CompletableFuture<TimelineMetricsCacheValue> inFlight;
+
+    private SeriesEntry(long creationTime) {
+      this.creationTime = creationTime;
+      this.lastAccessTime = creationTime;
+    }
+  }
+}
@@ -52,4 +52,15 @@ public interface PropertyProvider {
    *         that all of the given property ids are supported.
    */
   Set<String> checkPropertyIds(Set<String> propertyIds);
+
+  /**
+   * Indicates whether this provider reads properties which are set by the
+   * property providers registered before it for the same resource type.  A
+   * dependent provider is never run concurrently with the providers preceding it.
+   *
+   * @return true if this provider depends on the providers preceding it
+   */
+  default boolean dependsOnPrecedingProviders() {
+    return false;
+  }
 }
@@ -17,25 +17,27 @@
  */
 package org.apache.ambari.server.events.publishers;
 
-import java.util.concurrent.Executors;
-
+import org.apache.ambari.server.configuration.Configuration;
 import org.apache.ambari.server.events.AmbariEvent;
+import org.apache.ambari.server.events.ClusterEvent;
+import org.apache.ambari.server.events.HostEvent;
 
-import com.google.common.eventbus.AsyncEventBus;
 import com.google.common.eventbus.EventBus;
 import com.google.common.eventbus.Subscribe;
+import com.google.inject.Inject;
 import com.google.inject.Singleton;
 
 /**
  * The {@link AmbariEventPublisher} is used to publish instances of
  * {@link AmbariEvent} to any {@link Subscribe} methods interested. It uses a
- * single-threaded {@link AsyncEventBus}.
+ * {@link PartitionedEventBus} which keeps the events of a cluster or host in
+ * order. With a single worker, all events are processed in serial.
  */
 @Singleton
 public class AmbariEventPublisher {
 
   /**
-   * A single threaded event bus for processing Ambari events in serial.
+   * The event bus for processing Ambari events.
    */
   private final EventBus m_eventBus;
 
@@ -43,8 +45,42 @@ public class AmbariEventPublisher {
    * Constructor.
    */
   public AmbariEventPublisher() {
-    m_eventBus = new AsyncEventBus("ambari-event-bus",
-        Executors.newSingleThreadExecutor());
+    this(1, Configuration.EVENTS_DISPATCHER_RING_SIZE.getDefaultValue());
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param configuration
+   *          the configuration with the number of event bus workers.
+   */
+  @Inject
+  public AmbariEventPublisher(Configuration configuration) {
+    this(configuration.getAmbariEventsDispatcherThreads(),
+        configuration.getEventsDispatcherRingSize());
+  }
+
+  private AmbariEventPublisher(int workers, int ringSize) {
+    m_eventBus = new PartitionedEventBus("ambari-event-bus", workers, ringSize,
+        AmbariEventPublisher::getPartitionKey);
+  }
+
+  /**
+   * Gets the key which orders the specified event: the cluster for cluster
+   * events, the host for host events.
+   *
+   * @param event
+   *          the event
+   * @return the partition key or {@code null} for events of neither.
+   */
+  static Object getPartitionKey(Object event) {
+    if (event instanceof ClusterEvent) {
+      return ((ClusterEvent) event).getClusterId();
+    }
+    if (event instanceof HostEvent) {
+      return ((HostEvent) event).getHostName();
+    }
+    return null;
   }
 
   /**
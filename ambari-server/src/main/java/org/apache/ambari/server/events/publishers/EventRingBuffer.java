@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.events.publishers;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The {@link EventRingBuffer} is a bounded, lock-free queue for many producers
+ * and a single consumer. Each slot carries a sequence number which tells
+ * producers whether the slot is free and the consumer whether it is filled,
+ * so neither side needs a lock.
+ */
+class EventRingBuffer<T> {
+
+  private final int m_mask;
+  private final AtomicReferenceArray<T> m_slots;
+  private final AtomicLongArray m_sequences;
+  private final AtomicLong m_head = new AtomicLong();
+  private final AtomicLong m_tail = new AtomicLong();
+
+  /**
+   * Constructor.
+   *
+   * @param capacity
+   *          the requested capacity, rounded up to the next power of two.
+   */
+  EventRingBuffer(int capacity) {
+    int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+    m_mask = size - 1;
+    m_slots = new AtomicReferenceArray<>(size);
+    m_sequences = new AtomicLongArray(size);
+    for (int i = 0; i < size; i++) {
+      m_sequences.set(i, i);
+    }
+  }
+
+  /**
+   * Adds an element, safe to call from any thread.
+   *
+   * @return {@code false} if the buffer is full.
+   */
+  boolean offer(T element) {
+    long position = m_tail.get();
+    while (true) {
+      int index = (int) (position & m_mask);
+      long difference = m_sequences.get(index) - position;
+      if (difference == 0) {
+        if (m_tail.compareAndSet(position, position + 1)) {
+          m_slots.set(index, element);
+          m_sequences.set(index, position + 1);
+          return true;
+        }
+        position = m_tail.get();
+      } else if (difference < 0) {
+        return false;
+      } else {
+        position = m_tail.get();
+      }
+    }
+  }
+
+  /**
+   * Removes the oldest element, must only be called by the consumer thread.
+   *
+   * @return the element or {@code null} if the buffer is empty.
+   */
+  T poll() {
+    long position = m_head.get();
+    int index = (int) (position & m_mask);
+    if (m_sequences.get(index) != position + 1) {
+      return null;
+    }
+
+    T element = m_slots.get(index);
+    m_slots.set(index, null);
+    m_sequences.set(index, position + m_mask + 1);
+    m_head.set(position + 1);
+    return element;
+  }
+
+  /**
+   * @return the number of elements waiting, approximate while producers are
+   *         adding.
+   */
+  int size() {
+    return (int) Math.max(0, m_tail.get() - m_head.get());
+  }
+
+  int capacity() {
+    return m_mask + 1;
+  }
+}
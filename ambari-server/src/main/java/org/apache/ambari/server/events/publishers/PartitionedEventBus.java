@@ -0,0 +1,460 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.events.publishers;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.eventbus.AllowConcurrentEvents;
+import com.google.common.eventbus.DeadEvent;
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+
+/**
+ * The {@link PartitionedEventBus} is an {@link EventBus} which dispatches
+ * events on a fixed number of worker threads. Each event is routed to a worker
+ * by a partition key, such as a cluster, host or request ID, so that events
+ * sharing a key are delivered in the order they were posted while events for
+ * different keys no longer wait on each other.
+ * <p>
+ * Subscribers are discovered the same way as with Guava's {@link EventBus}.
+ * Methods which are not marked with {@link AllowConcurrentEvents} are never
+ * invoked concurrently, even from different workers.
+ * <p>
+ * Each worker reads from a lock-free {@link EventRingBuffer}. Once the ring is
+ * full, events spill to an unbounded overflow queue so that a subscriber which
+ * posts to its own bus can never block its worker.
+ */
+public class PartitionedEventBus extends EventBus {
+
+  private static final Logger LOG = LoggerFactory.getLogger(PartitionedEventBus.class);
+
+  /**
+   * Every bus created in this JVM, read by the event bus metrics source.
+   */
+  private static final List<PartitionedEventBus> s_instances = new CopyOnWriteArrayList<>();
+
+  /**
+   * Maximum time a worker sleeps before checking its queues again.
+   */
+  private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+  private final String m_identifier;
+  private final Function<Object, Object> m_partitioner;
+  private final Worker[] m_workers;
+
+  /**
+   * Subscribers by the event type they accept.
+   */
+  private final Map<Class<?>, Set<EventSubscriber>> m_subscribers = new ConcurrentHashMap<>();
+
+  /**
+   * Supertypes of every event type posted so far.
+   */
+  private final Map<Class<?>, Set<Class<?>>> m_eventTypes = new ConcurrentHashMap<>();
+
+  /**
+   * Dispatch statistics by listener class.
+   */
+  private final Map<String, ListenerStatistics> m_statistics = new ConcurrentHashMap<>();
+
+  /**
+   * Constructor.
+   *
+   * @param identifier
+   *          the name of the bus, also used for the worker thread names.
+   * @param workers
+   *          the number of worker threads.
+   * @param ringSize
+   *          the capacity of each worker's ring buffer.
+   * @param partitioner
+   *          computes the partition key of an event, {@code null} keys all go
+   *          to the first worker.
+   */
+  public PartitionedEventBus(String identifier, int workers, int ringSize,
+      Function<Object, Object> partitioner) {
+    super(identifier);
+    m_identifier = identifier;
+    m_partitioner = partitioner;
+    m_workers = new Worker[Math.max(1, workers)];
+    for (int i = 0; i < m_workers.length; i++) {
+      m_workers[i] = new Worker(identifier + "-" + i, ringSize);
+      m_workers[i].start();
+    }
+
+    s_instances.add(this);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void register(Object listener) {
+    for (EventSubscriber subscriber : findSubscribers(listener)) {
+      m_subscribers.computeIfAbsent(subscriber.m_eventType,
+          type -> ConcurrentHashMap.newKeySet()).add(subscriber);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void unregister(Object listener) {
+    List<EventSubscriber> subscribers = findSubscribers(listener);
+    boolean registered = false;
+    for (EventSubscriber subscriber : subscribers) {
+      Set<EventSubscriber> existing = m_subscribers.get(subscriber.m_eventType);
+      if (existing != null) {
+        registered |= existing.remove(subscriber);
+      }
+    }
+
+    if (!registered && !subscribers.isEmpty()) {
+      throw new IllegalArgumentException(
+          "missing event subscriber for an annotated method. Is " + listener + " registered?");
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void post(Object event) {
+    Object key = m_partitioner.apply(event);
+    int partition = key == null ? 0 : (key.hashCode() & Integer.MAX_VALUE) % m_workers.length;
+    m_workers[partition].enqueue(event);
+  }
+
+  /**
+   * Gets the name of this bus.
+   *
+   * @return the identifier
+   */
+  public String getIdentifier() {
+    return m_identifier;
+  }
+
+  /**
+   * Gets the number of events waiting in each worker's queues.
+   *
+   * @return the queue depth per worker.
+   */
+  public int[] getQueueDepths() {
+    int[] depths = new int[m_workers.length];
+    for (int i = 0; i < m_workers.length; i++) {
+      depths[i] = m_workers[i].getQueueDepth();
+    }
+    return depths;
+  }
+
+  /**
+   * Gets the dispatch statistics of each listener class.
+   *
+   * @return the statistics by listener class name.
+   */
+  public Map<String, ListenerStatistics> getListenerStatistics() {
+    return Collections.unmodifiableMap(m_statistics);
+  }
+
+  /**
+   * Stops the worker threads, events which have not been dispatched yet are
+   * discarded.
+   */
+  public void shutdown() {
+    s_instances.remove(this);
+    for (Worker worker : m_workers) {
+      worker.m_running = false;
+      worker.interrupt();
+    }
+  }
+
+  /**
+   * Gets every {@link PartitionedEventBus} which has not been shut down.
+   *
+   * @return the event buses.
+   */
+  public static List<PartitionedEventBus> getInstances() {
+    return Collections.unmodifiableList(s_instances);
+  }
+
+  /**
+   * Invokes every subscriber interested in the event on the calling worker.
+   */
+  private void dispatch(Object event) {
+    boolean delivered = false;
+    for (Class<?> type : getEventTypes(event.getClass())) {
+      Set<EventSubscriber> subscribers = m_subscribers.get(type);
+      if (subscribers == null) {
+        continue;
+      }
+
+      for (EventSubscriber subscriber : subscribers) {
+        delivered = true;
+        subscriber.dispatch(event);
+      }
+    }
+
+    if (!delivered && !(event instanceof DeadEvent)) {
+      dispatch(new DeadEvent(this, event));
+    }
+  }
+
+  private Set<Class<?>> getEventTypes(Class<?> eventClass) {
+    return m_eventTypes.computeIfAbsent(eventClass, type -> {
+      Set<Class<?>> types = new HashSet<>();
+      collectSupertypes(type, types);
+      return types;
+    });
+  }
+
+  private static void collectSupertypes(Class<?> type, Set<Class<?>> types) {
+    if (type == null || !types.add(type)) {
+      return;
+    }
+
+    collectSupertypes(type.getSuperclass(), types);
+    for (Class<?> anInterface : type.getInterfaces()) {
+      collectSupertypes(anInterface, types);
+    }
+  }
+
+  /**
+   * Finds the {@link Subscribe} methods of the listener, walking its class
+   * hierarchy so that methods of proxied listeners are found as well.
+   */
+  private List<EventSubscriber> findSubscribers(Object listener) {
+    Set<Class<?>> types = new HashSet<>();
+    collectSupertypes(listener.getClass(), types);
+
+    Map<String, Method> methods = new LinkedHashMap<>();
+    for (Class<?> type : types) {
+      for (Method method : type.getDeclaredMethods()) {
+        if (!method.isAnnotationPresent(Subscribe.class) || method.isSynthetic()) {
+          continue;
+        }
+
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        if (parameterTypes.length != 1) {
+          throw new IllegalArgumentException("Method " + method + " has @Subscribe annotation but has "
+              + parameterTypes.length + " parameters.  Subscriber methods must have exactly 1 parameter.");
+        }
+
+        methods.putIfAbsent(method.getName() + parameterTypes[0].getName(), method);
+      }
+    }
+
+    ListenerStatistics statistics = m_statistics.computeIfAbsent(getListenerName(listener),
+        name -> new ListenerStatistics());
+
+    List<EventSubscriber> subscribers = new ArrayList<>(methods.size());
+    for (Method method : methods.values()) {
+      method.setAccessible(true);
+      subscribers.add(new EventSubscriber(listener, method, statistics));
+    }
+    return subscribers;
+  }
+
+  /**
+   * Strips Guice's generated subclass suffix from listener names.
+   */
+  private static String getListenerName(Object listener) {
+    String name = listener.getClass().getSimpleName();
+    int index = name.indexOf("$$");
+    return index > 0 ? name.substring(0, index) : name;
+  }
+
+  /**
+   * A single {@link Subscribe} method of a registered listener.
+   */
+  private final class EventSubscriber {
+    private final Object m_target;
+    private final Method m_method;
+    private final Class<?> m_eventType;
+    private final boolean m_concurrent;
+    private final ListenerStatistics m_listenerStatistics;
+
+    private EventSubscriber(Object target, Method method, ListenerStatistics statistics) {
+      m_target = target;
+      m_method = method;
+      m_eventType = method.getParameterTypes()[0];
+      m_concurrent = method.isAnnotationPresent(AllowConcurrentEvents.class);
+      m_listenerStatistics = statistics;
+    }
+
+    private void dispatch(Object event) {
+      long start = System.nanoTime();
+      try {
+        if (m_concurrent) {
+          m_method.invoke(m_target, event);
+        } else {
+          synchronized (this) {
+            m_method.invoke(m_target, event);
+          }
+        }
+      } catch (InvocationTargetException exception) {
+        LOG.error("Exception thrown by subscriber method {}({}) on subscriber {} when dispatching event: {}",
+            m_method.getName(), m_eventType.getName(), m_target, event, exception.getCause());
+      } catch (IllegalAccessException | IllegalArgumentException exception) {
+        LOG.error("Unable to invoke subscriber method {} on {}", m_method, m_target, exception);
+      } finally {
+        m_listenerStatistics.record(System.nanoTime() - start);
+      }
+    }
+
+    @Override
+    public boolean equals(Object object) {
+      if (!(object instanceof EventSubscriber)) {
+        return false;
+      }
+
+      EventSubscriber that = (EventSubscriber) object;
+      return m_target == that.m_target && m_method.equals(that.m_method);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * m_method.hashCode() + System.identityHashCode(m_target);
+    }
+  }
+
+  /**
+   * Dispatch counts and latencies of the subscriber methods of one listener
+   * class.
+   */
+  public static final class ListenerStatistics {
+    private final LongAdder m_count = new LongAdder();
+    private final LongAdder m_totalNanos = new LongAdder();
+    private final AtomicLong m_maxNanos = new AtomicLong();
+
+    private void record(long nanos) {
+      m_count.increment();
+      m_totalNanos.add(nanos);
+      m_maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * @return the number of events dispatched to the listener.
+     */
+    public long getCount() {
+      return m_count.sum();
+    }
+
+    /**
+     * @return the total time spent in the listener.
+     */
+    public long getTotalNanos() {
+      return m_totalNanos.sum();
+    }
+
+    /**
+     * Gets the longest dispatch since the last call and starts a new interval.
+     *
+     * @return the maximum time of a single dispatch.
+     */
+    public long getAndResetMaxNanos() {
+      return m_maxNanos.getAndSet(0);
+    }
+  }
+
+  /**
+   * A worker thread which dispatches the events of one partition in order.
+   */
+  private final class Worker extends Thread {
+    private final EventRingBuffer<Object> m_ring;
+    private final Queue<Object> m_overflow = new ConcurrentLinkedQueue<>();
+    private final AtomicLong m_overflowSize = new AtomicLong();
+    private volatile boolean m_waiting = false;
+    private volatile boolean m_running = true;
+
+    private Worker(String name, int ringSize) {
+      super(name);
+      setDaemon(true);
+      m_ring = new EventRingBuffer<>(ringSize);
+    }
+
+    private void enqueue(Object event) {
+      // once events overflow, later events must queue behind them
+      if (m_overflowSize.get() > 0 || !m_ring.offer(event)) {
+        m_overflowSize.incrementAndGet();
+        m_overflow.add(event);
+      }
+
+      if (m_waiting) {
+        LockSupport.unpark(this);
+      }
+    }
+
+    private Object next() {
+      Object event = m_ring.poll();
+      if (event == null) {
+        event = m_overflow.poll();
+        if (event != null) {
+          m_overflowSize.decrementAndGet();
+        }
+      }
+      return event;
+    }
+
+    private int getQueueDepth() {
+      return m_ring.size() + (int) m_overflowSize.get();
+    }
+
+    @Override
+    public void run() {
+      while (m_running) {
+        Object event = next();
+        if (event == null) {
+          m_waiting = true;
+          event = next();
+          if (event == null) {
+            LockSupport.parkNanos(this, MAX_PARK_NANOS);
+            m_waiting = false;
+            continue;
+          }
+          m_waiting = false;
+        }
+
+        try {
+          dispatch(event);
+        } catch (RuntimeException exception) {
+          LOG.error("Unable to dispatch event {} on {}", event, getName(), exception);
+        }
+      }
+    }
+  }
+}
@@ -17,14 +17,13 @@
  */
 package org.apache.ambari.server.events.publishers;
 
-import java.util.concurrent.Executors;
-
+import org.apache.ambari.server.configuration.Configuration;
 import org.apache.ambari.server.events.HostComponentsUpdateEvent;
 import org.apache.ambari.server.events.RequestUpdateEvent;
 import org.apache.ambari.server.events.STOMPEvent;
+import org.apache.ambari.server.events.STOMPHostEvent;
 import org.apache.ambari.server.events.ServiceUpdateEvent;
 
-import com.google.common.eventbus.AsyncEventBus;
 import com.google.common.eventbus.EventBus;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
@@ -44,8 +43,35 @@ public class STOMPUpdatePublisher {
   private ServiceUpdateEventPublisher serviceUpdateEventPublisher;
 
   public STOMPUpdatePublisher() {
-    m_eventBus = new AsyncEventBus("ambari-update-bus",
-      Executors.newSingleThreadExecutor());
+    this(1, Configuration.EVENTS_DISPATCHER_RING_SIZE.getDefaultValue());
+  }
+
+  @Inject
+  public STOMPUpdatePublisher(Configuration configuration) {
+    this(configuration.getStompEventsDispatcherThreads(),
+      configuration.getEventsDispatcherRingSize());
+  }
+
+  private STOMPUpdatePublisher(int workers, int ringSize) {
+    m_eventBus = new PartitionedEventBus("ambari-update-bus", workers, ringSize,
+      STOMPUpdatePublisher::getPartitionKey);
+  }
+
+  /**
+   * Updates for a host stay in order per host, request updates per request
+   * and all other updates per event type.
+   */
+  static Object getPartitionKey(Object event) {
+    if (event instanceof STOMPHostEvent) {
+      return ((STOMPHostEvent) event).getHostId();
+    }
+    if (event instanceof RequestUpdateEvent) {
+      return ((RequestUpdateEvent) event).getRequestId();
+    }
+    if (event instanceof STOMPEvent) {
+      return ((STOMPEvent) event).getType();
+    }
+    return null;
   }
 
   public void publish(STOMPEvent event) {
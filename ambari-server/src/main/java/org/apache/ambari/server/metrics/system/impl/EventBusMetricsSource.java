@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.metrics.system.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ambari.server.events.publishers.PartitionedEventBus;
+import org.apache.ambari.server.events.publishers.PartitionedEventBus.ListenerStatistics;
+import org.apache.ambari.server.metrics.system.MetricsSink;
+import org.apache.ambari.server.metrics.system.SingleMetric;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * @{link EventBusMetricsSource} collects queue depths and per listener dispatch
+ * latencies of the server's {@link PartitionedEventBus} instances and publishes
+ * them to the configured Metric Sink.
+ */
+public class EventBusMetricsSource extends AbstractMetricsSource {
+  private static final Logger LOG = LoggerFactory.getLogger(EventBusMetricsSource.class);
+  private static final String EVENT_BUS_PREFIX = "events.bus.";
+  private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private ScheduledExecutorService executor = Executors.newScheduledThreadPool(1);
+  private int interval = 60;
+
+  /**
+   * Count and total latency of each listener at the previous publish.
+   */
+  private final Map<String, long[]> previousTotals = new HashMap<>();
+
+  @Override
+  public void init(MetricsConfiguration configuration, MetricsSink sink) {
+    super.init(configuration, sink);
+    interval = Integer.parseInt(configuration.getProperty("interval", "60"));
+    LOG.info("Initialized event bus metrics source...");
+  }
+
+  @Override
+  public void start() {
+    try {
+      executor.scheduleWithFixedDelay(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            List<SingleMetric> metrics = getMetrics();
+            if (!metrics.isEmpty()) {
+              sink.publish(metrics);
+              LOG.debug("Published event bus metrics to sink");
+            }
+          } catch (Exception e) {
+            LOG.debug("Error in publishing event bus metrics to sink.", e);
+          }
+        }
+      }, interval, interval, TimeUnit.SECONDS);
+      LOG.info("Started event bus metrics source...");
+    } catch (Exception e) {
+      LOG.info("Throwing exception when starting event bus metrics source", e);
+    }
+  }
+
+  /**
+   * Queue depth of every bus and, for each listener, the number of events and
+   * the average and maximum dispatch time in milliseconds since the previous
+   * call.
+   */
+  List<SingleMetric> getMetrics() {
+    List<SingleMetric> metrics = new ArrayList<>();
+    long timestamp = System.currentTimeMillis();
+
+    for (PartitionedEventBus eventBus : PartitionedEventBus.getInstances()) {
+      String prefix = EVENT_BUS_PREFIX + eventBus.getIdentifier();
+
+      int total = 0;
+      int max = 0;
+      for (int depth : eventBus.getQueueDepths()) {
+        total += depth;
+        max = Math.max(max, depth);
+      }
+      metrics.add(new SingleMetric(prefix + ".queue.depth", total, timestamp));
+      metrics.add(new SingleMetric(prefix + ".queue.depth.max", max, timestamp));
+
+      for (Map.Entry<String, ListenerStatistics> entry : eventBus.getListenerStatistics().entrySet()) {
+        String name = prefix + ".listener." + entry.getKey();
+        ListenerStatistics statistics = entry.getValue();
+
+        long count = statistics.getCount();
+        long totalNanos = statistics.getTotalNanos();
+        long[] previous = previousTotals.getOrDefault(name, new long[2]);
+        previousTotals.put(name, new long[] { count, totalNanos });
+
+        long events = count - previous[0];
+        double average = events == 0 ? 0 : (totalNanos - previous[1]) / NANOS_PER_MILLI / events;
+        metrics.add(new SingleMetric(name + ".events", events, timestamp));
+        metrics.add(new SingleMetric(name + ".latency.avg", average, timestamp));
+        metrics.add(new SingleMetric(name + ".latency.max",
+            statistics.getAndResetMaxNanos() / NANOS_PER_MILLI, timestamp));
+      }
+    }
+
+    return metrics;
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.metrics.system.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ambari.server.api.predicate.CachingPredicateCompiler;
+import org.apache.ambari.server.metrics.system.MetricsSink;
+import org.apache.ambari.server.metrics.system.SingleMetric;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.CacheStats;
+
+/**
+ * @{link QueryPlanCacheMetricsSource} publishes the request counts, hit rates
+ * and sizes of the REST API query plan and predicate caches of
+ * {@link CachingPredicateCompiler} to the configured Metric Sink.
+ */
+public class QueryPlanCacheMetricsSource extends AbstractMetricsSource {
+  private static final Logger LOG = LoggerFactory.getLogger(QueryPlanCacheMetricsSource.class);
+  private static final String PLAN_CACHE_PREFIX = "api.query.plan.cache";
+  private static final String PREDICATE_CACHE_PREFIX = "api.query.predicate.cache";
+
+  private ScheduledExecutorService executor = Executors.newScheduledThreadPool(1);
+  private int interval = 60;
+
+  /**
+   * Statistics at the previous publish.
+   */
+  private CacheStats previousPlanStatistics = new CacheStats(0, 0, 0, 0, 0, 0);
+  private CacheStats previousPredicateStatistics = new CacheStats(0, 0, 0, 0, 0, 0);
+
+  @Override
+  public void init(MetricsConfiguration configuration, MetricsSink sink) {
+    super.init(configuration, sink);
+    interval = Integer.parseInt(configuration.getProperty("interval", "60"));
+    LOG.info("Initialized query plan cache metrics source...");
+  }
+
+  @Override
+  public void start() {
+    try {
+      executor.scheduleWithFixedDelay(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            sink.publish(getMetrics());
+            LOG.debug("Published query plan cache metrics to sink");
+          } catch (Exception e) {
+            LOG.debug("Error in publishing query plan cache metrics to sink.", e);
+          }
+        }
+      }, interval, interval, TimeUnit.SECONDS);
+      LOG.info("Started query plan cache metrics source...");
+    } catch (Exception e) {
+      LOG.info("Throwing exception when starting query plan cache metrics source", e);
+    }
+  }
+
+  /**
+   * The number of lookups and the hit rate of both caches since the previous
+   * call, and their current sizes.
+   */
+  List<SingleMetric> getMetrics() {
+    CachingPredicateCompiler compiler = CachingPredicateCompiler.getInstance();
+    List<SingleMetric> metrics = new ArrayList<>();
+    long timestamp = System.currentTimeMillis();
+
+    CacheStats planStatistics = compiler.getPlanCacheStatistics();
+    addMetrics(metrics, PLAN_CACHE_PREFIX, planStatistics.minus(previousPlanStatistics),
+        compiler.getPlanCacheSize(), timestamp);
+    previousPlanStatistics = planStatistics;
+
+    CacheStats predicateStatistics = compiler.getPredicateCacheStatistics();
+    addMetrics(metrics, PREDICATE_CACHE_PREFIX, predicateStatistics.minus(previousPredicateStatistics),
+        compiler.getPredicateCacheSize(), timestamp);
+    previousPredicateStatistics = predicateStatistics;
+
+    return metrics;
+  }
+
+  private static void addMetrics(List<SingleMetric> metrics, String prefix, CacheStats statistics, long size,
+                                 long timestamp) {
+    metrics.add(new SingleMetric(prefix + ".requests", statistics.requestCount(), timestamp));
+    metrics.add(new SingleMetric(prefix + ".hit.rate", statistics.hitRate(), timestamp));
+    metrics.add(new SingleMetric(prefix + ".evictions", statistics.evictionCount(), timestamp));
+    metrics.add(new SingleMetric(prefix + ".size", size, timestamp));
+  }
+}
@@ -254,6 +254,25 @@ public class ClusterDAO {
     return daoUtils.selectList(query);
   }
 
+  /**
+   * Gets every configuration version of the specified cluster, selected or
+   * not.
+   *
+   * @param clusterId
+   *          the ID of the cluster.
+   * @return all configurations of the cluster.
+   */
+  @RequiresSession
+  public List<ClusterConfigEntity> getAllConfigs(long clusterId) {
+
+    TypedQuery<ClusterConfigEntity> query = entityManagerProvider.get().createNamedQuery(
+        "ClusterConfigEntity.findAllConfigs", ClusterConfigEntity.class);
+
+    query.setParameter("clusterId", clusterId);
+
+    return daoUtils.selectList(query);
+  }
+
   /**
    * Gets the latest configurations for the specified cluster.
    *
@@ -18,6 +18,7 @@
 package org.apache.ambari.server.orm.dao;
 
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -80,6 +81,23 @@ public class GroupDAO {
     }
   }
 
+  /**
+   * Find the group entities with the given group names.
+   *
+   * @param groupNames  the (lowercase) group names
+   *
+   * @return the list of groups matching the query
+   */
+  @RequiresSession
+  public List<GroupEntity> findGroupsByNames(Collection<String> groupNames) {
+    if (groupNames == null || groupNames.isEmpty()) {
+      return Collections.emptyList();
+    }
+    TypedQuery<GroupEntity> query = entityManagerProvider.get().createQuery("SELECT group_entity FROM GroupEntity group_entity WHERE group_entity.groupName IN :groupNames", GroupEntity.class);
+    query.setParameter("groupNames", groupNames);
+    return daoUtils.selectList(query);
+  }
+
   /**
    * Find the group entities for the given list of principals
    *
@@ -18,6 +18,8 @@
 
 package org.apache.ambari.server.orm.dao;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import javax.persistence.EntityManager;
@@ -172,6 +174,24 @@ public class HostComponentStateDAO {
     return hostComponentStateEntity;
   }
 
+  /**
+   * Merges the entities in a single transaction, so that their updates are
+   * written together as one JDBC batch when the transaction commits.
+   *
+   * @param hostComponentStateEntities
+   *          the entities to merge
+   * @return the managed entities, in the order given
+   */
+  @Transactional
+  public List<HostComponentStateEntity> mergeAll(Collection<HostComponentStateEntity> hostComponentStateEntities) {
+    EntityManager entityManager = entityManagerProvider.get();
+    List<HostComponentStateEntity> managedList = new ArrayList<>(hostComponentStateEntities.size());
+    for (HostComponentStateEntity hostComponentStateEntity : hostComponentStateEntities) {
+      managedList.add(entityManager.merge(hostComponentStateEntity));
+    }
+    return managedList;
+  }
+
   @Transactional
   public void remove(HostComponentStateEntity hostComponentStateEntity) {
     entityManagerProvider.get().remove(hostComponentStateEntity);
@@ -17,6 +17,7 @@
  */
 package org.apache.ambari.server.orm.dao;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -29,6 +30,7 @@ import javax.persistence.TypedQuery;
 import org.apache.ambari.server.orm.RequiresSession;
 import org.apache.ambari.server.orm.entities.PrincipalEntity;
 import org.apache.ambari.server.orm.entities.UserEntity;
+import org.apache.ambari.server.security.authorization.UserAuthenticationType;
 
 import com.google.inject.Inject;
 import com.google.inject.Provider;
@@ -65,6 +67,44 @@ public class UserDAO {
     }
   }
 
+  /**
+   * Find the user entities with the given user names.
+   *
+   * @param userNames the (lowercase) user names
+   * @return the matching list of user entities
+   */
+  @RequiresSession
+  public List<UserEntity> findUsersByNames(Collection<String> userNames) {
+    if (userNames == null || userNames.isEmpty()) {
+      return Collections.emptyList();
+    }
+    TypedQuery<UserEntity> query = entityManagerProvider.get().createQuery("SELECT user_entity FROM UserEntity user_entity WHERE user_entity.userName IN :userNames", UserEntity.class);
+    query.setParameter("userNames", userNames);
+    return daoUtils.selectList(query);
+  }
+
+  /**
+   * Find, in ascending order, the names of the users having an authentication method of the given type.
+   * Results are returned in pages using the last user name of the previous page as the starting point
+   * so that the result stays stable while the previously returned users are modified.
+   *
+   * @param authenticationType the authentication type
+   * @param afterUserName      only user names ordered after this one are returned; may be <code>null</code>
+   * @param maxResults         the maximum number of user names to return
+   * @return the ordered list of user names
+   */
+  @RequiresSession
+  public List<String> findUserNamesByAuthenticationType(UserAuthenticationType authenticationType, String afterUserName, int maxResults) {
+    TypedQuery<String> query = entityManagerProvider.get().createQuery(
+        "SELECT DISTINCT user_entity.userName FROM UserEntity user_entity JOIN user_entity.authenticationEntities authentication " +
+        "WHERE authentication.authenticationType = :authenticationType AND user_entity.userName > :afterUserName " +
+        "ORDER BY user_entity.userName", String.class);
+    query.setParameter("authenticationType", authenticationType);
+    query.setParameter("afterUserName", afterUserName == null ? "" : afterUserName);
+    query.setMaxResults(maxResults);
+    return daoUtils.selectList(query);
+  }
+
   /**
    * Find the user entities for the given list of admin principal entities.
    *
@@ -55,6 +55,9 @@ import org.apache.commons.lang.builder.EqualsBuilder;
     @NamedQuery(
         name = "ClusterConfigEntity.findNextConfigVersion",
         query = "SELECT COALESCE(MAX(clusterConfig.version),0) + 1 as nextVersion FROM ClusterConfigEntity clusterConfig WHERE clusterConfig.type=:configType AND clusterConfig.clusterId=:clusterId"),
+    @NamedQuery(
+        name = "ClusterConfigEntity.findAllConfigs",
+        query = "SELECT clusterConfig FROM ClusterConfigEntity clusterConfig WHERE clusterConfig.clusterId=:clusterId"),
     @NamedQuery(
         name = "ClusterConfigEntity.findAllConfigsByStack",
         query = "SELECT clusterConfig FROM ClusterConfigEntity clusterConfig WHERE clusterConfig.clusterId=:clusterId AND clusterConfig.stack=:stack"),
@@ -68,6 +68,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 import com.google.common.base.Strings;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Sets;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
@@ -87,6 +88,11 @@ public class Users {
    */
   private static final int MAX_RETRIES = 10;
 
+  /**
+   * The maximum number of names bound to a single IN clause when users or groups are looked up by name.
+   */
+  private static final int NAMES_QUERY_CHUNK_SIZE = 500;
+
   @Inject
   private Provider<EntityManager> entityManagerProvider;
 
@@ -143,6 +149,33 @@ public class Users {
     return users;
   }
 
+  /**
+   * Gets the users with the given user names.
+   *
+   * @param userNames the user names
+   * @return the users found; names without a matching user are ignored
+   */
+  public List<User> getUsers(Collection<String> userNames) {
+    List<User> users = new ArrayList<>(userNames.size());
+    for (List<String> chunk : Iterables.partition(userNames, NAMES_QUERY_CHUNK_SIZE)) {
+      for (UserEntity userEntity : userDAO.findUsersByNames(chunk)) {
+        users.add(new User(userEntity));
+      }
+    }
+    return users;
+  }
+
+  /**
+   * Gets, in ascending order, a page of the names of the users which are able to authenticate using LDAP.
+   *
+   * @param afterUserName the last user name of the previous page or <code>null</code> for the first page
+   * @param maxResults    the maximum number of user names to return
+   * @return the ordered list of user names; an empty list if there are no more users
+   */
+  public List<String> getLdapUserNames(String afterUserName, int maxResults) {
+    return userDAO.findUserNamesByAuthenticationType(UserAuthenticationType.LDAP, afterUserName, maxResults);
+  }
+
   public List<UserEntity> getAllUserEntities() {
     return userDAO.findAll();
   }
@@ -704,14 +737,27 @@ public class Users {
     final Map<String, UserEntity> allUsers = new HashMap<>();
     final Map<String, GroupEntity> allGroups = new HashMap<>();
 
-    // prefetch all user and group data to avoid heavy queries in membership creation
+    // prefetch the users and groups referenced by new memberships to avoid heavy queries in membership creation;
+    // only the referenced ones are loaded so that the cost of a batch depends on its size rather than on the
+    // number of users and groups known to Ambari
 
-    for (UserEntity userEntity : userDAO.findAll()) {
-      allUsers.put(userEntity.getUserName(), userEntity);
+    final Set<String> memberUserNames = new HashSet<>();
+    final Set<String> memberGroupNames = new HashSet<>();
+    for (LdapUserGroupMemberDto member : batchInfo.getMembershipToAdd()) {
+      memberUserNames.add(member.getUserName());
+      memberGroupNames.add(member.getGroupName());
     }
 
-    for (GroupEntity groupEntity : groupDAO.findAll()) {
-      allGroups.put(groupEntity.getGroupName(), groupEntity);
+    for (List<String> chunk : Iterables.partition(memberUserNames, NAMES_QUERY_CHUNK_SIZE)) {
+      for (UserEntity userEntity : userDAO.findUsersByNames(chunk)) {
+        allUsers.put(userEntity.getUserName(), userEntity);
+      }
+    }
+
+    for (List<String> chunk : Iterables.partition(memberGroupNames, NAMES_QUERY_CHUNK_SIZE)) {
+      for (GroupEntity groupEntity : groupDAO.findGroupsByNames(chunk)) {
+        allGroups.put(groupEntity.getGroupName(), groupEntity);
+      }
     }
 
     final PrincipalTypeEntity groupPrincipalType = principalTypeDAO
@@ -17,6 +17,7 @@
  */
 package org.apache.ambari.server.security.ldap;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -253,6 +254,190 @@ public class AmbariLdapDataPopulator {
     return batchInfo;
   }
 
+  /**
+   * Performs synchronization of all users without holding all of them in memory.
+   * <p/>
+   * LDAP users are read in pages and each page is compared against the matching Ambari users only.
+   * Pending changes are persisted through {@link Users#processLdapSync(LdapBatchDto)} whenever at least
+   * <code>batchSize</code> of them have accumulated.  Once LDAP has been read, the LDAP users known to Ambari
+   * are walked in name order and each page of them is looked up in LDAP to find the ones which no longer exist.
+   * <p/>
+   * The batches are persisted in separate transactions.  If the synchronization fails, the batches which were
+   * persisted before the failure are kept; as the changes are computed from the current state of LDAP and
+   * Ambari, running the synchronization again completes it.
+   *
+   * @param batchInfo batch update object; holds the changes which were not persisted yet on return
+   * @param batchSize the number of pending changes which triggers persisting them
+   * @throws AmbariException if synchronization failed for any reason
+   */
+  public LdapBatchDto synchronizeAllLdapUsersStreaming(final LdapBatchDto batchInfo, final int batchSize) throws AmbariException {
+    LOG.trace("Synchronize All LDAP users (streaming)...");
+    LdapServerProperties ldapServerProperties = getLdapProperties();
+    EqualsFilter userObjectFilter = new EqualsFilter(OBJECT_CLASS_ATTRIBUTE,
+        ldapServerProperties.getUserObjectClass());
+
+    try {
+      forEachLdapUserPage(ldapServerProperties.getBaseDN(), userObjectFilter, page -> {
+        Set<String> pageUserNames = new HashSet<>();
+        for (LdapUserDto userDto : page) {
+          pageUserNames.add(userDto.getUserName());
+        }
+        Map<String, User> internalUsersMap = getInternalUsersByName(pageUserNames);
+
+        for (LdapUserDto userDto : page) {
+          String userName = userDto.getUserName();
+          final User user = internalUsersMap.get(userName);
+          if (user == null) {
+            batchInfo.getUsersToBeCreated().add(userDto);
+          } else if (!user.isLdapUser()) {
+            if (LdapUsernameCollisionHandlingBehavior.SKIP == getConfiguration().syncCollisionHandlingBehavior()) {
+              LOG.info("User '{}' skipped because it is local user", userName);
+              batchInfo.getUsersSkipped().add(userDto);
+            } else {
+              batchInfo.getUsersToBecomeLdap().add(userDto);
+              LOG.trace("Convert user '{}' to LDAP user.", userName);
+            }
+          }
+        }
+        processBatchIfFull(batchInfo, batchSize);
+      });
+
+      String lastUserName = null;
+      List<String> ldapUserNames;
+      do {
+        ldapUserNames = users.getLdapUserNames(lastUserName, USERS_PAGE_SIZE);
+        if (!ldapUserNames.isEmpty()) {
+          Set<String> externalUserNames = getExternalUserNames(userObjectFilter, ldapUserNames);
+          for (String userName : ldapUserNames) {
+            if (!externalUserNames.contains(userName)) {
+              LdapUserDto userDto = new LdapUserDto();
+              userDto.setUserName(userName);
+              userDto.setDn(null);  // Setting to null since we do not know what the DN for this user was.
+              batchInfo.getUsersToBeRemoved().add(userDto);
+            }
+            lastUserName = userName;
+          }
+        }
+        processBatchIfFull(batchInfo, batchSize);
+      } while (ldapUserNames.size() == USERS_PAGE_SIZE);
+    } catch (RuntimeException e) {
+      logPartialSync(batchInfo);
+      throw e;
+    }
+
+    return batchInfo;
+  }
+
+  /**
+   * Performs synchronization of all groups without holding all LDAP groups and Ambari users in memory.
+   * <p/>
+   * LDAP groups are read in pages.  The members of the groups of a page are resolved and compared against
+   * the matching Ambari users only.  Pending changes are persisted through {@link Users#processLdapSync(LdapBatchDto)}
+   * whenever at least <code>batchSize</code> of them have accumulated.
+   * <p/>
+   * As with {@link #synchronizeAllLdapUsersStreaming(LdapBatchDto, int)}, the batches persisted before a failure
+   * are kept and running the synchronization again completes it.
+   *
+   * @param batchInfo batch update object; holds the changes which were not persisted yet on return
+   * @param batchSize the number of pending changes which triggers persisting them
+   * @throws AmbariException if synchronization failed for any reason
+   */
+  public LdapBatchDto synchronizeAllLdapGroupsStreaming(final LdapBatchDto batchInfo, final int batchSize) throws AmbariException {
+    LOG.trace("Synchronize All LDAP groups (streaming)...");
+    final Map<String, Group> internalGroupsMap = getInternalGroups();
+    LdapServerProperties ldapServerProperties = getLdapProperties();
+    EqualsFilter groupObjectFilter = new EqualsFilter(OBJECT_CLASS_ATTRIBUTE,
+        ldapServerProperties.getGroupObjectClass());
+
+    try {
+      forEachLdapGroupPage(ldapServerProperties.getBaseDN(), groupObjectFilter, page -> {
+        Map<LdapGroupDto, Set<LdapUserDto>> externalMembersByGroup = new HashMap<>();
+        Set<String> memberUserNames = new HashSet<>();
+        for (LdapGroupDto groupDto : page) {
+          addLdapGroup(batchInfo, internalGroupsMap, groupDto);
+          // members are not resolved recursively as all groups are processed anyway
+          Set<LdapUserDto> externalMembers = getExternalGroupMembers(batchInfo, groupDto, Collections.emptyMap(),
+              internalGroupsMap, null, false);
+          for (LdapUserDto externalMember : externalMembers) {
+            memberUserNames.add(externalMember.getUserName());
+          }
+          externalMembersByGroup.put(groupDto, externalMembers);
+        }
+
+        Map<String, User> internalUsersMap = getInternalUsersByName(memberUserNames);
+        for (Entry<LdapGroupDto, Set<LdapUserDto>> entry : externalMembersByGroup.entrySet()) {
+          refreshGroupMemberships(batchInfo, entry.getKey().getGroupName(), entry.getValue(), internalUsersMap);
+        }
+        processBatchIfFull(batchInfo, batchSize);
+      });
+    } catch (AmbariException | RuntimeException e) {
+      logPartialSync(batchInfo);
+      throw e;
+    }
+
+    for (Entry<String, Group> internalGroup : internalGroupsMap.entrySet()) {
+      if (internalGroup.getValue().isLdapGroup()) {
+        LdapGroupDto groupDto = new LdapGroupDto();
+        groupDto.setGroupName(internalGroup.getValue().getGroupName());
+        batchInfo.getGroupsToBeRemoved().add(groupDto);
+      }
+    }
+
+    return batchInfo;
+  }
+
+  /**
+   * Finds which of the given user names belong to LDAP users.
+   *
+   * @param userObjectFilter the filter matching the LDAP users
+   * @param userNames        the user names to look up
+   * @return the names of the given users which exist in LDAP
+   */
+  protected Set<String> getExternalUserNames(Filter userObjectFilter, Collection<String> userNames) {
+    LdapServerProperties ldapServerProperties = getLdapProperties();
+    OrFilter userNameFilter = new OrFilter();
+    for (String userName : userNames) {
+      userNameFilter.or(new EqualsFilter(ldapServerProperties.getUsernameAttribute(), userName));
+    }
+    AndFilter filter = new AndFilter();
+    filter.and(userObjectFilter);
+    filter.and(userNameFilter);
+
+    final Set<String> externalUserNames = new HashSet<>();
+    forEachLdapUserPage(ldapServerProperties.getBaseDN(), filter, page -> {
+      for (LdapUserDto userDto : page) {
+        externalUserNames.add(userDto.getUserName());
+      }
+    });
+    return externalUserNames;
+  }
+
+  /**
+   * Logs the changes which were already persisted by a streaming synchronization which failed.
+   *
+   * @param batchInfo batch update object of the failed synchronization
+   */
+  private void logPartialSync(LdapBatchDto batchInfo) {
+    if (batchInfo.getProcessedChangesCount() > 0) {
+      LOG.warn("LDAP synchronization failed after {} changes were persisted, they are kept. " +
+          "Run the synchronization again to complete it.", batchInfo.getProcessedChangesCount());
+    }
+  }
+
+  /**
+   * Persists the pending changes of the given batch once there are at least <code>batchSize</code> of them.
+   *
+   * @param batchInfo batch update object
+   * @param batchSize the number of pending changes which triggers persisting them
+   */
+  protected void processBatchIfFull(LdapBatchDto batchInfo, int batchSize) {
+    if (batchInfo.getPendingChangesCount() >= batchSize) {
+      LOG.debug("Persisting {} pending LDAP sync changes", batchInfo.getPendingChangesCount());
+      users.processLdapSync(batchInfo);
+      batchInfo.clearProcessedChanges();
+    }
+  }
+
   /**
    * Performs synchronization of given set of groupnames.
    *
@@ -389,6 +574,26 @@ public class AmbariLdapDataPopulator {
   protected void refreshGroupMembers(LdapBatchDto batchInfo, LdapGroupDto group, Map<String, User> internalUsers,
                                      Map<String, Group> internalGroupsMap, Set<String> groupMemberAttributes, boolean recursive)
       throws AmbariException {
+    Set<LdapUserDto> externalMembers = getExternalGroupMembers(batchInfo, group, internalUsers, internalGroupsMap,
+        groupMemberAttributes, recursive);
+    refreshGroupMemberships(batchInfo, group.getGroupName(), externalMembers, internalUsers);
+  }
+
+  /**
+   * Resolves the LDAP users which are members of the given group.  Nested groups are added to the batch and,
+   * if recursive, their members are refreshed as well.
+   *
+   * @param batchInfo             batch update object
+   * @param group                 ldap group
+   * @param internalUsers         map of internal users; only used when refreshing nested groups
+   * @param internalGroupsMap     map of internal groups
+   * @param groupMemberAttributes set of group member attributes that have already been refreshed
+   * @param recursive             if disabled, it won't refresh members recursively
+   * @return the LDAP users which are direct members of the group
+   */
+  protected Set<LdapUserDto> getExternalGroupMembers(LdapBatchDto batchInfo, LdapGroupDto group, Map<String, User> internalUsers,
+                                                     Map<String, Group> internalGroupsMap, Set<String> groupMemberAttributes,
+                                                     boolean recursive) throws AmbariException {
     Set<LdapUserDto> externalMembers = new HashSet<>();
 
     if (groupMemberAttributes == null) {
@@ -412,7 +617,20 @@ public class AmbariLdapDataPopulator {
         }
       }
     }
-    String groupName = group.getGroupName();
+    return externalMembers;
+  }
+
+  /**
+   * Compares the given LDAP members of a group with the Ambari members of the group: adds the missing ones
+   * and removes the ones absent in external LDAP.
+   *
+   * @param batchInfo       batch update object
+   * @param groupName       the name of the group
+   * @param externalMembers the LDAP users which are members of the group
+   * @param internalUsers   map of internal users; must contain the Ambari users matching the external members
+   */
+  protected void refreshGroupMemberships(LdapBatchDto batchInfo, String groupName, Set<LdapUserDto> externalMembers,
+                                         Map<String, User> internalUsers) {
     final Map<String, User> internalMembers = getInternalMembers(groupName);
     for (LdapUserDto externalMember : externalMembers) {
       String userName = externalMember.getUserName();
@@ -683,6 +901,20 @@ public class AmbariLdapDataPopulator {
 
   private Set<LdapUserDto> getFilteredLdapUsers(String baseDn, Filter filter) {
     final Set<LdapUserDto> users = new HashSet<>();
+    forEachLdapUserPage(baseDn, filter, users::addAll);
+    return users;
+  }
+
+  /**
+   * Searches the LDAP users matching the given filter and hands them to the given consumer one page at a time.
+   * If pagination is disabled, all users are handed over as a single page.
+   *
+   * @param baseDn       the base DN of the search
+   * @param filter       the search filter
+   * @param pageConsumer consumer of the users of each page
+   */
+  protected <E extends Exception> void forEachLdapUserPage(String baseDn, Filter filter,
+                                                           PageConsumer<List<LdapUserDto>, E> pageConsumer) throws E {
     final LdapTemplate ldapTemplate = loadLdapTemplate();
     LdapServerProperties ldapServerProperties = getLdapProperties();
     PagedResultsDirContextProcessor processor = createPagingProcessor();
@@ -697,14 +929,47 @@ public class AmbariLdapDataPopulator {
       List dtos = ldapServerProperties.isPaginationEnabled() ?
           ldapTemplate.search(LdapUtils.newLdapName(baseDn), encodedFilter, searchControls, ldapUserContextMapper, processor) :
           ldapTemplate.search(LdapUtils.newLdapName(baseDn), encodedFilter, searchControls, ldapUserContextMapper);
+      List<LdapUserDto> page = new ArrayList<>(dtos.size());
       for (Object dto : dtos) {
         if (dto != null) {
-          users.add((LdapUserDto) dto);
+          page.add((LdapUserDto) dto);
         }
       }
+      pageConsumer.accept(page);
+    } while (ldapServerProperties.isPaginationEnabled()
+        && (processor.getCookie() != null) && (processor.getCookie().getCookie() != null));
+  }
+
+  /**
+   * Searches the LDAP groups matching the given filter and hands them to the given consumer one page at a time.
+   * If pagination is disabled, all groups are handed over as a single page.
+   *
+   * @param baseDn       the base DN of the search
+   * @param filter       the search filter
+   * @param pageConsumer consumer of the groups of each page
+   */
+  protected <E extends Exception> void forEachLdapGroupPage(String baseDn, Filter filter,
+                                                            PageConsumer<Set<LdapGroupDto>, E> pageConsumer) throws E {
+    final LdapTemplate ldapTemplate = loadLdapTemplate();
+    LdapServerProperties ldapServerProperties = getLdapProperties();
+    PagedResultsDirContextProcessor processor = createPagingProcessor();
+    SearchControls searchControls = new SearchControls();
+    searchControls.setReturningObjFlag(true);
+    searchControls.setSearchScope(SearchControls.SUBTREE_SCOPE);
+    String encodedFilter = filter.encode();
+
+    do {
+      LOG.trace("LDAP Group Query - Base DN: '{}' ; Filter: '{}'", baseDn, encodedFilter);
+      final Set<LdapGroupDto> page = new HashSet<>();
+      LdapGroupContextMapper ldapGroupContextMapper = new LdapGroupContextMapper(page, ldapServerProperties);
+      if (ldapServerProperties.isPaginationEnabled()) {
+        ldapTemplate.search(LdapUtils.newLdapName(baseDn), encodedFilter, searchControls, ldapGroupContextMapper, processor);
+      } else {
+        ldapTemplate.search(LdapUtils.newLdapName(baseDn), encodedFilter, searchControls, ldapGroupContextMapper);
+      }
+      pageConsumer.accept(page);
     } while (ldapServerProperties.isPaginationEnabled()
         && (processor.getCookie() != null) && (processor.getCookie().getCookie() != null));
-    return users;
   }
 
   /**
@@ -736,6 +1001,20 @@ public class AmbariLdapDataPopulator {
     return internalUsersMap;
   }
 
+  /**
+   * Creates a map of the internal users with the given names.
+   *
+   * @param userNames the user names
+   * @return map of UserName-User pairs
+   */
+  protected Map<String, User> getInternalUsersByName(Collection<String> userNames) {
+    final Map<String, User> internalUsersMap = new HashMap<>();
+    for (User user : users.getUsers(userNames)) {
+      internalUsersMap.put(user.getUserName(), user);
+    }
+    return internalUsersMap;
+  }
+
   /**
    * Creates a map of internal users present in specified group.
    *
@@ -866,6 +1145,17 @@ public class AmbariLdapDataPopulator {
     return configurationProvider.get();
   }
 
+  /**
+   * Consumer of a page of LDAP search results.
+   *
+   * @param <T> the type of the page
+   * @param <E> the exception thrown by the consumer
+   */
+  @FunctionalInterface
+  protected interface PageConsumer<T, E extends Exception> {
+    void accept(T page) throws E;
+  }
+
   protected static class LdapUserContextMapper implements ContextMapper {
 
     private final LdapServerProperties ldapServerProperties;
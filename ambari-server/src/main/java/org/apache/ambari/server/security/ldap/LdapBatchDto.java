@@ -35,6 +35,17 @@ public class LdapBatchDto {
   private final Set<LdapUserGroupMemberDto> membershipToAdd = new HashSet<>();
   private final Set<LdapUserGroupMemberDto> membershipToRemove = new HashSet<>();
 
+  // counts of changes which were already persisted and cleared from this batch
+  private int processedUsersSkipped;
+  private int processedUsersToBecomeLdap;
+  private int processedUsersToBeCreated;
+  private int processedUsersToBeRemoved;
+  private int processedGroupsToBecomeLdap;
+  private int processedGroupsToBeCreated;
+  private int processedGroupsToBeRemoved;
+  private int processedMembershipToAdd;
+  private int processedMembershipToRemove;
+
   public Set<LdapUserDto> getUsersSkipped() {
     return usersSkipped;
   }
@@ -74,4 +85,88 @@ public class LdapBatchDto {
   public Set<LdapGroupDto> getGroupsProcessedInternal() {
     return groupsProcessedInternal;
   }
+
+  /**
+   * Gets the number of changes which are pending in this batch.
+   *
+   * @return the number of pending user, group and membership changes
+   */
+  public int getPendingChangesCount() {
+    return usersSkipped.size() + usersToBecomeLdap.size() + usersToBeCreated.size() + usersToBeRemoved.size() +
+        groupsToBecomeLdap.size() + groupsToBeCreated.size() + groupsToBeRemoved.size() +
+        membershipToAdd.size() + membershipToRemove.size();
+  }
+
+  /**
+   * Gets the number of changes which were persisted and cleared from this batch.
+   *
+   * @return the number of persisted user, group and membership changes
+   */
+  public int getProcessedChangesCount() {
+    return processedUsersSkipped + processedUsersToBecomeLdap + processedUsersToBeCreated + processedUsersToBeRemoved +
+        processedGroupsToBecomeLdap + processedGroupsToBeCreated + processedGroupsToBeRemoved +
+        processedMembershipToAdd + processedMembershipToRemove;
+  }
+
+  /**
+   * Clears the pending changes once they have been persisted.  The number of cleared changes is retained
+   * so that a sync which is persisted in several chunks still reports its totals.
+   */
+  public void clearProcessedChanges() {
+    processedUsersSkipped += usersSkipped.size();
+    processedUsersToBecomeLdap += usersToBecomeLdap.size();
+    processedUsersToBeCreated += usersToBeCreated.size();
+    processedUsersToBeRemoved += usersToBeRemoved.size();
+    processedGroupsToBecomeLdap += groupsToBecomeLdap.size();
+    processedGroupsToBeCreated += groupsToBeCreated.size();
+    processedGroupsToBeRemoved += groupsToBeRemoved.size();
+    processedMembershipToAdd += membershipToAdd.size();
+    processedMembershipToRemove += membershipToRemove.size();
+
+    usersSkipped.clear();
+    usersToBecomeLdap.clear();
+    usersToBeCreated.clear();
+    usersToBeRemoved.clear();
+    groupsToBecomeLdap.clear();
+    groupsToBeCreated.clear();
+    groupsToBeRemoved.clear();
+    membershipToAdd.clear();
+    membershipToRemove.clear();
+  }
+
+  public int getUsersSkippedCount() {
+    return processedUsersSkipped + usersSkipped.size();
+  }
+
+  public int getUsersToBecomeLdapCount() {
+    return processedUsersToBecomeLdap + usersToBecomeLdap.size();
+  }
+
+  public int getUsersToBeCreatedCount() {
+    return processedUsersToBeCreated + usersToBeCreated.size();
+  }
+
+  public int getUsersToBeRemovedCount() {
+    return processedUsersToBeRemoved + usersToBeRemoved.size();
+  }
+
+  public int getGroupsToBecomeLdapCount() {
+    return processedGroupsToBecomeLdap + groupsToBecomeLdap.size();
+  }
+
+  public int getGroupsToBeCreatedCount() {
+    return processedGroupsToBeCreated + groupsToBeCreated.size();
+  }
+
+  public int getGroupsToBeRemovedCount() {
+    return processedGroupsToBeRemoved + groupsToBeRemoved.size();
+  }
+
+  public int getMembershipToAddCount() {
+    return processedMembershipToAdd + membershipToAdd.size();
+  }
+
+  public int getMembershipToRemoveCount() {
+    return processedMembershipToRemove + membershipToRemove.size();
+  }
 }
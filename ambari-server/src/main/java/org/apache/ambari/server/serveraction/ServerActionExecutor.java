@@ -22,7 +22,9 @@ import java.io.File;
 import java.io.FilenameFilter;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -33,7 +35,13 @@ import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.ambari.server.AmbariException;
 import org.apache.ambari.server.Role;
@@ -57,16 +65,23 @@ import org.slf4j.LoggerFactory;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.util.ClassUtils;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import com.google.inject.Injector;
+import com.google.inject.persist.UnitOfWork;
 
 /**
  * Server Action Executor used to execute server-side actions (or tasks)
  * <p/>
- * The ServerActionExecutor executes in its own thread, polling for AMBARI_SERVER_ACTION
- * HostRoleCommands queued for execution.  It is expected that this thread is managed by the
+ * The ServerActionExecutor executes in its own thread, looking for AMBARI_SERVER_ACTION
+ * HostRoleCommands queued for execution whenever it is awoken by the ActionScheduler, or at the
+ * latest after each polling interval.  It is expected that this thread is managed by the
  * ActionScheduler such that it is started when the ActionScheduler is started and stopped when the
  * ActionScheduler is stopped.
+ * <p/>
+ * Queued tasks are handed to a bounded pool of worker threads.  Tasks of the same request run one
+ * at a time in the order in which they were queued, tasks of different requests run in parallel.
+ * Task timeouts are enforced by a shared scheduler.
  */
 @StaticallyInject
 public class ServerActionExecutor {
@@ -124,6 +139,29 @@ public class ServerActionExecutor {
    */
   private Thread executorThread = null;
 
+  /**
+   * Tasks dispatched to the worker pool, by request ID.  The head of each queue is the task
+   * currently running for that request.
+   * <p/>
+   * Any access to it should synchronize on the requestTaskQueues object
+   */
+  private final Map<Long, Deque<TaskExecution>> requestTaskQueues = new HashMap<>();
+
+  /**
+   * The IDs of the tasks dispatched to the worker pool which have not finished yet.
+   */
+  private final Set<Long> dispatchedTaskIds = ConcurrentHashMap.newKeySet();
+
+  /**
+   * The pool of threads executing tasks, created on the first dispatch.
+   */
+  private ThreadPoolExecutor workerPool = null;
+
+  /**
+   * The scheduler used to time out running tasks.
+   */
+  private final ScheduledThreadPoolExecutor timeoutScheduler;
+
   /**
    * A timer used to clear out {@link #requestSharedDataMap}. Since this "cache"
    * isn't timer- or access-based, then we must periodically check it in order
@@ -155,6 +193,10 @@ public class ServerActionExecutor {
     // start in 1 hour, run every hour
     cacheTimer.schedule(new ServerActionSharedRequestEvictor(), TimeUnit.HOURS.toMillis(1),
         TimeUnit.HOURS.toMillis(1));
+
+    timeoutScheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactoryBuilder()
+        .setNameFormat("Server Action Executor Timeout %d").setDaemon(true).build());
+    timeoutScheduler.setRemoveOnCancelPolicy(true);
   }
 
   /**
@@ -175,7 +217,7 @@ public class ServerActionExecutor {
               activeAwakeRequest = false;
             }
 
-            doWork();
+            dispatchQueuedTasks();
           } catch (InterruptedException e) {
             LOG.warn("Server Action Executor thread interrupted, starting to shutdown...");
             break;
@@ -200,6 +242,7 @@ public class ServerActionExecutor {
 
     if (executorThread != null) {
       executorThread.interrupt();
+      interruptRunningTasks();
 
       // Wait for about 60 seconds for the thread to stop
       for (int i = 0; i < 120; i++) {
@@ -219,6 +262,8 @@ public class ServerActionExecutor {
       }
     }
 
+    shutdownWorkerPool();
+
     if (executorThread == null) {
       LOG.info("Server Action Executor thread stopped.");
     } else {
@@ -362,58 +407,66 @@ public class ServerActionExecutor {
   /**
    * Execute the logic to handle each task in the queue in the order in which it was queued.
    * <p/>
-   * A single task is executed at one time, allowing for a specified (ExecutionCommand.KeyNames.COMMAND_TIMEOUT)
-   * or the default timeout for it to complete before considering the task timed out.
+   * Tasks of the same request are executed one at a time, allowing for a specified
+   * (ExecutionCommand.KeyNames.COMMAND_TIMEOUT) or the default timeout for each to complete before
+   * considering the task timed out.  Tasks of different requests are executed in parallel.  This
+   * method returns once every task it found has completed or timed out.
    *
    * @throws InterruptedException
    */
   public void doWork() throws InterruptedException {
+    List<TaskExecution> executions = dispatchQueuedTasks();
+
+    try {
+      for (TaskExecution execution : executions) {
+        execution.awaitCompletion();
+      }
+    } catch (InterruptedException e) {
+      // Make sure the workers are interrupted as well.
+      for (TaskExecution execution : executions) {
+        execution.interrupt();
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Hands each queued task to the worker pool without waiting for it to complete.
+   *
+   * @return the tasks which were dispatched
+   */
+  private List<TaskExecution> dispatchQueuedTasks() {
     List<HostRoleCommand> tasks = db.getTasksByRoleAndStatus(Role.AMBARI_SERVER_ACTION.name(),
       HostRoleStatus.QUEUED);
 
+    List<TaskExecution> executions = new ArrayList<>();
     if ((tasks != null) && !tasks.isEmpty()) {
       for (HostRoleCommand task : tasks) {
         Long taskId = task.getTaskId();
 
         LOG.debug("Processing task #{}", taskId);
 
-        if (task.getStatus() == HostRoleStatus.QUEUED) {
+        if (dispatchedTaskIds.contains(taskId)) {
+          LOG.debug("Task #{} was already dispatched, skipping.", taskId);
+        } else if (task.getStatus() == HostRoleStatus.QUEUED) {
           ExecutionCommandWrapper executionWrapper = task.getExecutionCommandWrapper();
 
           if (executionWrapper != null) {
             ExecutionCommand executionCommand = executionWrapper.getExecutionCommand();
 
             if (executionCommand != null) {
-              // For now, execute only one task at a time. This may change in the future in the
-              // event it is discovered that this is a bottleneck. Since this implementation may
-              // change, it should be noted from outside of this class, that there is no expectation
-              // that tasks will be processed in order or serially.
-              Worker worker = new Worker(task, executionCommand);
-              Thread workerThread = new Thread(worker, String.format("Server Action Executor Worker %s", taskId));
-              Long timeout = determineTimeout(executionCommand);
+              // It should be noted from outside of this class, that there is no expectation that
+              // tasks of different requests will be processed in order or serially.
+              TaskExecution execution = new TaskExecution(task, executionCommand,
+                  determineTimeout(executionCommand));
 
+              dispatchedTaskIds.add(taskId);
               updateHostRoleState(task, executionCommand, createInProgressReport());
 
-              LOG.debug("Starting Server Action Executor Worker thread for task #{}.", taskId);
-              workerThread.start();
-
-              try {
-                workerThread.join(timeout);
-              } catch (InterruptedException e) {
-                // Make sure the workerThread is interrupted as well.
-                workerThread.interrupt();
-                throw e;
-              }
-
-              if (workerThread.isAlive()) {
-                LOG.debug("Server Action Executor Worker thread for task #{} timed out - it failed to complete within {} ms.",
-                    taskId, timeout);
-                workerThread.interrupt();
-                updateHostRoleState(task, executionCommand, createTimedOutReport());
-              } else {
-                LOG.debug("Server Action Executor Worker thread for task #{} exited on its own.", taskId);
-                updateHostRoleState(task, executionCommand, worker.getCommandReport());
-              }
+              LOG.debug("Dispatching task #{} of request {} to the Server Action Executor Workers.",
+                  taskId, task.getRequestId());
+              enqueue(execution);
+              executions.add(execution);
             } else {
               LOG.warn("Task #{} failed to produce an ExecutionCommand, skipping.", taskId);
             }
@@ -426,6 +479,206 @@ public class ServerActionExecutor {
         }
       }
     }
+
+    return executions;
+  }
+
+  /**
+   * Queues the task behind the tasks of its request, starting it right away if none is running.
+   *
+   * @param execution the task to run
+   */
+  private void enqueue(TaskExecution execution) {
+    synchronized (requestTaskQueues) {
+      Deque<TaskExecution> queue = requestTaskQueues.computeIfAbsent(execution.requestId,
+          requestId -> new ArrayDeque<>());
+      queue.add(execution);
+      if (queue.size() == 1) {
+        getWorkerPool().execute(execution);
+      }
+    }
+  }
+
+  /**
+   * Removes the finished task of a request and starts the next one, if any.
+   *
+   * @param execution the task which completed or timed out
+   */
+  private void dequeue(TaskExecution execution) {
+    synchronized (requestTaskQueues) {
+      Deque<TaskExecution> queue = requestTaskQueues.get(execution.requestId);
+      if (queue == null) {
+        return;
+      }
+
+      queue.remove(execution);
+      TaskExecution next = queue.peek();
+      if (next == null) {
+        requestTaskQueues.remove(execution.requestId);
+      } else {
+        getWorkerPool().execute(next);
+      }
+    }
+  }
+
+  /**
+   * Interrupts every task currently running.
+   */
+  private void interruptRunningTasks() {
+    synchronized (requestTaskQueues) {
+      for (Deque<TaskExecution> queue : requestTaskQueues.values()) {
+        TaskExecution running = queue.peek();
+        if (running != null) {
+          running.interrupt();
+        }
+      }
+    }
+  }
+
+  /**
+   * Shuts down the worker pool, whose threads would otherwise keep the JVM alive.  Tasks which
+   * have not started are dropped so that they are dispatched again if this executor is restarted.
+   */
+  private void shutdownWorkerPool() {
+    synchronized (requestTaskQueues) {
+      for (Deque<TaskExecution> queue : requestTaskQueues.values()) {
+        // the head of the queue is running and records its state when it exits
+        queue.poll();
+        for (TaskExecution waiting : queue) {
+          dispatchedTaskIds.remove(waiting.hostRoleCommand.getTaskId());
+        }
+      }
+      requestTaskQueues.clear();
+
+      if (workerPool != null) {
+        for (Runnable notStarted : workerPool.shutdownNow()) {
+          dispatchedTaskIds.remove(((TaskExecution) notStarted).hostRoleCommand.getTaskId());
+        }
+        workerPool = null;
+      }
+    }
+  }
+
+  /**
+   * Gets the pool of worker threads, sized by the configured number of server task threads.
+   * Any access to it should synchronize on the requestTaskQueues object
+   *
+   * @return the worker pool
+   */
+  private ThreadPoolExecutor getWorkerPool() {
+    if (workerPool == null) {
+      int threads = (configuration == null)
+          ? Configuration.SERVER_TASK_THREADS.getDefaultValue()
+          : Math.max(1, configuration.getServerTaskThreads());
+
+      workerPool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+          new LinkedBlockingQueue<>(), new ThreadFactoryBuilder()
+          .setNameFormat("Server Action Executor Worker %d").build());
+      workerPool.allowCoreThreadTimeOut(true);
+    }
+    return workerPool;
+  }
+
+  /**
+   * A task dispatched to the worker pool.  Its final state is recorded exactly once, either when
+   * the {@link Worker} returns or when the task times out, whichever happens first.
+   */
+  private class TaskExecution implements Runnable {
+    private final HostRoleCommand hostRoleCommand;
+    private final ExecutionCommand executionCommand;
+    private final long requestId;
+    private final long timeout;
+    private final Worker worker;
+    private final AtomicBoolean finished = new AtomicBoolean(false);
+    private final CountDownLatch completion = new CountDownLatch(1);
+
+    /**
+     * The thread running the worker, guarded by this TaskExecution
+     */
+    private Thread thread = null;
+
+    private ScheduledFuture<?> timeoutFuture = null;
+
+    private TaskExecution(HostRoleCommand hostRoleCommand, ExecutionCommand executionCommand, long timeout) {
+      this.hostRoleCommand = hostRoleCommand;
+      this.executionCommand = executionCommand;
+      this.requestId = hostRoleCommand.getRequestId();
+      this.timeout = timeout;
+      worker = new Worker(hostRoleCommand, executionCommand);
+    }
+
+    @Override
+    public void run() {
+      Long taskId = hostRoleCommand.getTaskId();
+      synchronized (this) {
+        if (finished.get()) {
+          return;
+        }
+        thread = Thread.currentThread();
+      }
+
+      // a timeout of 0 waits for the task to complete, however long it takes
+      if (timeout > 0) {
+        timeoutFuture = timeoutScheduler.schedule(this::timeOut, timeout, TimeUnit.MILLISECONDS);
+      }
+
+      LOG.debug("Starting Server Action Executor Worker for task #{}.", taskId);
+      UnitOfWork unitOfWork = injector.getInstance(UnitOfWork.class);
+      try {
+        unitOfWork.begin();
+        try {
+          worker.run();
+        } finally {
+          unitOfWork.end();
+        }
+      } catch (RuntimeException e) {
+        // the worker handles its own failures, this is the unit of work failing to begin or end
+        LOG.warn("Task #{} failed to run in a unit of work", taskId, e);
+      } finally {
+        synchronized (this) {
+          thread = null;
+        }
+        // do not leak an interrupt meant for this task to the next task of the pooled thread
+        Thread.interrupted();
+      }
+
+      if (finished.compareAndSet(false, true)) {
+        LOG.debug("Server Action Executor Worker for task #{} exited on its own.", taskId);
+        if (timeoutFuture != null) {
+          timeoutFuture.cancel(false);
+        }
+        finish(worker.getCommandReport());
+      }
+    }
+
+    private void timeOut() {
+      if (finished.compareAndSet(false, true)) {
+        LOG.debug("Server Action Executor Worker for task #{} timed out - it failed to complete within {} ms.",
+            hostRoleCommand.getTaskId(), timeout);
+        interrupt();
+        finish(createTimedOutReport());
+      }
+    }
+
+    private synchronized void interrupt() {
+      if (thread != null) {
+        thread.interrupt();
+      }
+    }
+
+    private void finish(CommandReport commandReport) {
+      try {
+        updateHostRoleState(hostRoleCommand, executionCommand, commandReport);
+      } finally {
+        dispatchedTaskIds.remove(hostRoleCommand.getTaskId());
+        dequeue(this);
+        completion.countDown();
+      }
+    }
+
+    private void awaitCompletion() throws InterruptedException {
+      completion.await();
+    }
   }
 
   /**
@@ -472,6 +725,9 @@ public class ServerActionExecutor {
             taskId, t.getClass().getName(), t.getLocalizedMessage(), t);
 
         commandReport = createErrorReport(t.getLocalizedMessage());
+      } finally {
+        // do not leave the internal administrator authenticated on the pooled thread
+        SecurityContextHolder.clearContext();
       }
     }
 
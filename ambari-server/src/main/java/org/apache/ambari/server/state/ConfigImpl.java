@@ -41,6 +41,8 @@ import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import com.google.gson.Gson;
 import com.google.gson.JsonSyntaxException;
 import com.google.inject.Inject;
@@ -59,6 +61,13 @@ public class ConfigImpl implements Config {
    */
   private static final String PROPERTY_LOCK_LABEL = "configurationPropertyLock";
 
+  /**
+   * Shares identical property names and values between every configuration
+   * version loaded from the database, since consecutive versions of a type
+   * usually differ in only a handful of properties.
+   */
+  private static final Interner<String> PROPERTY_INTERNER = Interners.newWeakInterner();
+
   public static final String GENERATED_TAG_PREFIX = "generatedTag_";
 
   private final long configId;
@@ -193,7 +202,7 @@ public class ConfigImpl implements Config {
         deserializedProperties = new HashMap<>();
       }
 
-      properties = deserializedProperties;
+      properties = intern(deserializedProperties);
     } catch (JsonSyntaxException e) {
       LOG.error("Malformed configuration JSON stored in the database for {}/{}", entity.getType(),
           entity.getTag());
@@ -205,7 +214,11 @@ public class ConfigImpl implements Config {
           entity.getAttributes(), Map.class);
 
       if (null != deserializedAttributes) {
-        propertiesAttributes = new HashMap<>(deserializedAttributes);
+        propertiesAttributes = new HashMap<>(deserializedAttributes.size());
+        for (Map.Entry<String, Map<String, String>> entry : deserializedAttributes.entrySet()) {
+          Map<String, String> attributes = entry.getValue();
+          propertiesAttributes.put(entry.getKey(), null == attributes ? null : intern(attributes));
+        }
       }
     } catch (JsonSyntaxException e) {
       LOG.error("Malformed configuration attribute JSON stored in the database for {}/{}",
@@ -213,6 +226,27 @@ public class ConfigImpl implements Config {
     }
   }
 
+  /**
+   * Copies the given properties, interning every name and value. Entries are
+   * handled untyped since they come straight from {@link Gson}.
+   *
+   * @param properties
+   *          the properties to copy.
+   * @return a new map with interned names and values.
+   */
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  private static Map<String, String> intern(Map<String, String> properties) {
+    Map<Object, Object> interned = new HashMap<>(properties.size());
+    for (Map.Entry<?, ?> entry : properties.entrySet()) {
+      interned.put(internValue(entry.getKey()), internValue(entry.getValue()));
+    }
+    return (Map) interned;
+  }
+
+  private static Object internValue(Object value) {
+    return value instanceof String ? PROPERTY_INTERNER.intern((String) value) : value;
+  }
+
   /**
    * Constructor. This will create an instance suitable only for
    * representation/serialization as it is incomplete.
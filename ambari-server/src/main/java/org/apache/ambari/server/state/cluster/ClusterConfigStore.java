@@ -0,0 +1,401 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.state.cluster;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+import org.apache.ambari.server.state.Config;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * The {@link ClusterConfigStore} keeps track of every configuration version of
+ * a cluster without holding all of them in memory. Each version is registered
+ * by its type, tag and version number; only pinned versions (the desired
+ * configurations and those created since the desired version of their type
+ * last changed) are kept materialized. All other versions are loaded on demand
+ * and retained in a small LRU cache.
+ * <p/>
+ * Loaded versions are always re-read from the database, so evicting a
+ * {@link Config} never loses persisted state.
+ * <p/>
+ * Changes to the registered versions are made under the store lock; reads
+ * are lock free.
+ */
+final class ClusterConfigStore {
+
+  /**
+   * Loads a configuration by type and tag, returning {@code null} if it does
+   * not exist.
+   */
+  private final BiFunction<String, String, Config> loader;
+
+  /**
+   * Loads every configuration of the cluster with a single query.
+   */
+  private final Supplier<Collection<Config>> bulkLoader;
+
+  /**
+   * Guards changes to {@link #versions} and the pinned versions.
+   */
+  private final Object lock = new Object();
+
+  /**
+   * [ Config Type -> [ Config Version Tag -> Version ] ]
+   */
+  private final ConcurrentMap<String, ConcurrentMap<String, ConfigVersion>> versions = new ConcurrentHashMap<>();
+
+  /**
+   * Non-pinned versions which have been materialized recently.
+   */
+  private final Cache<ConfigVersion, Config> recent;
+
+  /**
+   * Constructor.
+   *
+   * @param cacheSize
+   *          the number of non-pinned versions to keep in memory.
+   * @param loader
+   *          loads a configuration from the database by type and tag.
+   * @param bulkLoader
+   *          loads all configurations from the database.
+   */
+  ClusterConfigStore(int cacheSize, BiFunction<String, String, Config> loader,
+      Supplier<Collection<Config>> bulkLoader) {
+    this.loader = loader;
+    this.bulkLoader = bulkLoader;
+    recent = CacheBuilder.newBuilder().maximumSize(Math.max(0, cacheSize)).build();
+  }
+
+  /**
+   * Registers a version without materializing it.
+   *
+   * @param type
+   *          the configuration type.
+   * @param tag
+   *          the configuration tag.
+   * @param version
+   *          the configuration version.
+   */
+  void register(String type, String tag, Long version) {
+    synchronized (lock) {
+      getOrCreateType(type).putIfAbsent(tag, new ConfigVersion(version));
+    }
+  }
+
+  /**
+   * Registers a materialized version and pins it in memory. Other pinned
+   * versions of the type stay pinned, since creating a version does not make
+   * it the desired one; they are demoted by {@link #select(String, String)}.
+   *
+   * @param config
+   *          the configuration to add.
+   */
+  void pin(Config config) {
+    synchronized (lock) {
+      ConfigVersion configVersion = new ConfigVersion(config.getVersion());
+      configVersion.pinned = config;
+      ConfigVersion previous = getOrCreateType(config.getType()).put(config.getTag(), configVersion);
+      if (null != previous) {
+        recent.invalidate(previous);
+      }
+    }
+  }
+
+  /**
+   * Makes a registered version the desired version of its type. It is pinned,
+   * loading it if needed, and every other pinned version of the type is
+   * demoted to the LRU cache.
+   *
+   * @param type
+   *          the configuration type.
+   * @param tag
+   *          the tag of the new desired version.
+   */
+  void select(String type, String tag) {
+    synchronized (lock) {
+      ConfigVersion selected = find(type, tag);
+      if (null == selected) {
+        return;
+      }
+
+      Config config = materialize(type, tag, selected);
+      for (ConfigVersion configVersion : versions.get(type).values()) {
+        Config pinned = configVersion.pinned;
+        if (null != pinned && configVersion != selected) {
+          // cache before unpinning, so that readers never miss it in memory
+          recent.put(configVersion, pinned);
+          configVersion.pinned = null;
+        }
+      }
+
+      if (null != config) {
+        selected.pinned = config;
+        recent.invalidate(selected);
+      }
+    }
+  }
+
+  /**
+   * Removes all versions.
+   */
+  void clear() {
+    synchronized (lock) {
+      versions.clear();
+      recent.invalidateAll();
+    }
+  }
+
+  /**
+   * @param type
+   *          the configuration type.
+   * @return {@code true} if at least one version of the type is registered.
+   */
+  boolean containsType(String type) {
+    return versions.containsKey(type);
+  }
+
+  /**
+   * @param type
+   *          the configuration type.
+   * @param tag
+   *          the configuration tag.
+   * @return the version number of the given type and tag, or {@code null} if
+   *         it is not registered.
+   */
+  Long getVersion(String type, String tag) {
+    ConfigVersion configVersion = find(type, tag);
+    return null == configVersion ? null : configVersion.version;
+  }
+
+  /**
+   * Gets a configuration, loading it if it is not in memory.
+   *
+   * @param type
+   *          the configuration type.
+   * @param tag
+   *          the configuration tag.
+   * @return the configuration, or {@code null} if it does not exist.
+   */
+  Config get(String type, String tag) {
+    return materialize(type, tag, find(type, tag));
+  }
+
+  /**
+   * Gets a configuration by its version number, loading it if it is not in
+   * memory.
+   *
+   * @param type
+   *          the configuration type.
+   * @param version
+   *          the configuration version.
+   * @return the configuration, or {@code null} if it does not exist.
+   */
+  Config getByVersion(String type, Long version) {
+    Map<String, ConfigVersion> tags = versions.get(type);
+    if (null == tags) {
+      return null;
+    }
+
+    for (Map.Entry<String, ConfigVersion> entry : tags.entrySet()) {
+      if (Objects.equals(entry.getValue().version, version)) {
+        return materialize(type, entry.getKey(), entry.getValue());
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Gets a read-only view of all versions of a type. Versions are only loaded
+   * when their values are accessed.
+   *
+   * @param type
+   *          the configuration type.
+   * @return the versions keyed by tag, or {@code null} if the type is not
+   *         registered.
+   */
+  Map<String, Config> getByType(String type) {
+    ConcurrentMap<String, ConfigVersion> tags = versions.get(type);
+    return null == tags ? null : new TypeView(type, tags);
+  }
+
+  /**
+   * @return all versions of all types; the versions which are not in memory
+   *         are loaded with a single query and are not cached.
+   */
+  Collection<Config> getAll() {
+    List<Config> list = new ArrayList<>();
+    Map<String, Map<String, Config>> loaded = null;
+    for (Map.Entry<String, ConcurrentMap<String, ConfigVersion>> typeEntry : versions.entrySet()) {
+      String type = typeEntry.getKey();
+      for (Map.Entry<String, ConfigVersion> entry : typeEntry.getValue().entrySet()) {
+        ConfigVersion configVersion = entry.getValue();
+        Config config = configVersion.pinned;
+        if (null == config) {
+          config = recent.getIfPresent(configVersion);
+        }
+        if (null == config) {
+          if (null == loaded) {
+            loaded = loadAll();
+          }
+          Map<String, Config> tags = loaded.get(type);
+          config = null == tags ? null : tags.get(entry.getKey());
+        }
+        if (null != config) {
+          list.add(config);
+        }
+      }
+    }
+    return list;
+  }
+
+  /**
+   * @return the number of materialized versions which are not pinned.
+   */
+  long getCachedCount() {
+    recent.cleanUp();
+    return recent.size();
+  }
+
+  private Map<String, Map<String, Config>> loadAll() {
+    Map<String, Map<String, Config>> loaded = new HashMap<>();
+    for (Config config : bulkLoader.get()) {
+      loaded.computeIfAbsent(config.getType(), k -> new HashMap<>()).put(config.getTag(), config);
+    }
+    return loaded;
+  }
+
+  private ConcurrentMap<String, ConfigVersion> getOrCreateType(String type) {
+    return versions.computeIfAbsent(type, k -> new ConcurrentHashMap<>());
+  }
+
+  private ConfigVersion find(String type, String tag) {
+    Map<String, ConfigVersion> tags = versions.get(type);
+    return null == tags || null == tag ? null : tags.get(tag);
+  }
+
+  private Config materialize(String type, String tag, ConfigVersion configVersion) {
+    if (null == configVersion) {
+      return null;
+    }
+
+    Config config = configVersion.pinned;
+    if (null != config) {
+      return config;
+    }
+
+    config = recent.getIfPresent(configVersion);
+    if (null == config) {
+      config = loader.apply(type, tag);
+      if (null != config) {
+        recent.put(configVersion, config);
+      }
+    }
+
+    return config;
+  }
+
+  /**
+   * A registered configuration version.
+   */
+  private static final class ConfigVersion {
+    private final Long version;
+    private volatile Config pinned;
+
+    private ConfigVersion(Long version) {
+      this.version = version;
+    }
+  }
+
+  /**
+   * A lazy, read-only view of all versions of a single type.
+   */
+  private final class TypeView extends AbstractMap<String, Config> {
+    private final String type;
+    private final ConcurrentMap<String, ConfigVersion> tags;
+
+    private TypeView(String type, ConcurrentMap<String, ConfigVersion> tags) {
+      this.type = type;
+      this.tags = tags;
+    }
+
+    @Override
+    public Config get(Object key) {
+      return key instanceof String ? materialize(type, (String) key, tags.get(key)) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return tags.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+      return tags.size();
+    }
+
+    @Override
+    public Set<String> keySet() {
+      return Collections.unmodifiableSet(tags.keySet());
+    }
+
+    @Override
+    public Set<Entry<String, Config>> entrySet() {
+      return new AbstractSet<Entry<String, Config>>() {
+        @Override
+        public Iterator<Entry<String, Config>> iterator() {
+          Iterator<Entry<String, ConfigVersion>> iterator = tags.entrySet().iterator();
+          return new Iterator<Entry<String, Config>>() {
+            @Override
+            public boolean hasNext() {
+              return iterator.hasNext();
+            }
+
+            @Override
+            public Entry<String, Config> next() {
+              Entry<String, ConfigVersion> entry = iterator.next();
+              return new SimpleImmutableEntry<>(entry.getKey(),
+                  materialize(type, entry.getKey(), entry.getValue()));
+            }
+          };
+        }
+
+        @Override
+        public int size() {
+          return tags.size();
+        }
+      };
+    }
+  }
+}
@@ -57,6 +57,7 @@ import org.apache.ambari.server.ServiceComponentNotFoundException;
 import org.apache.ambari.server.ServiceNotFoundException;
 import org.apache.ambari.server.agent.ExecutionCommand.KeyNames;
 import org.apache.ambari.server.api.services.AmbariMetaInfo;
+import org.apache.ambari.server.configuration.Configuration;
 import org.apache.ambari.server.controller.AmbariManagementController;
 import org.apache.ambari.server.controller.AmbariSessionManager;
 import org.apache.ambari.server.controller.ClusterResponse;
@@ -146,6 +147,7 @@ import org.apache.ambari.server.state.scheduler.RequestExecution;
 import org.apache.ambari.server.state.scheduler.RequestExecutionFactory;
 import org.apache.ambari.server.topology.STOMPComponentsDeleteHandler;
 import org.apache.ambari.server.topology.TopologyRequest;
+import org.apache.ambari.server.utils.ClusterHostInfoTracker;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang.StringUtils;
@@ -184,9 +186,10 @@ public class ClusterImpl implements Cluster {
   private final ConcurrentSkipListMap<String, Service> services = new ConcurrentSkipListMap<>();
 
   /**
-   * [ Config Type -> [ Config Version Tag -> Config ] ]
+   * Every configuration version of the cluster; only the desired versions are
+   * kept in memory, older ones are loaded on demand.
    */
-  private final ConcurrentMap<String, ConcurrentMap<String, Config>> allConfigs = new ConcurrentHashMap<>();
+  private ClusterConfigStore allConfigs;
 
   /**
    * [ ServiceName -> [ ServiceComponentName -> [ HostName -> [ ... ] ] ] ]
@@ -198,6 +201,12 @@ public class ClusterImpl implements Cluster {
    */
   private final ConcurrentMap<String, List<ServiceComponentHost>> serviceComponentHostsByHost = new ConcurrentHashMap<>();
 
+  /**
+   * The host and component layout sent to agents as clusterHostInfo, kept up
+   * to date as hosts and host components are added and removed.
+   */
+  private final ClusterHostInfoTracker clusterHostInfoTracker = new ClusterHostInfoTracker();
+
   /**
    * Map of existing config groups
    */
@@ -220,6 +229,9 @@ public class ClusterImpl implements Cluster {
   @Inject
   private ClusterDAO clusterDAO;
 
+  @Inject
+  private Configuration configuration;
+
   @Inject
   private ClusterStateDAO clusterStateDAO;
 
@@ -340,6 +352,9 @@ public class ClusterImpl implements Cluster {
 
     clusterGlobalLock = lockFactory.newReadWriteLock("clusterGlobalLock");
 
+    allConfigs = new ClusterConfigStore(configuration.getClusterConfigVersionsCacheSize(),
+        this::loadConfig, this::loadAllConfigs);
+
     loadStackVersion();
     loadServices();
     loadServiceHostComponents();
@@ -700,6 +715,7 @@ public class ClusterImpl implements Cluster {
       svcCompHost);
 
     serviceComponentHostsByHost.get(hostname).add(svcCompHost);
+    clusterHostInfoTracker.addComponent(componentName, svcCompHost.isClientComponent(), hostname);
   }
 
   @Override
@@ -774,6 +790,64 @@ public class ClusterImpl implements Cluster {
     if (schToRemove != null) {
       serviceComponentHostsByHost.get(hostname).remove(schToRemove);
     }
+
+    clusterHostInfoTracker.removeComponent(componentName, svcCompHost.isClientComponent(), hostname);
+  }
+
+  /**
+   * Records that a host was mapped to this cluster.
+   *
+   * @param hostName
+   *          the host name.
+   */
+  void hostMapped(String hostName) {
+    clusterHostInfoTracker.addHost(hostName);
+  }
+
+  /**
+   * Records that a host was unmapped from this cluster.
+   *
+   * @param hostName
+   *          the host name.
+   */
+  void hostUnmapped(String hostName) {
+    clusterHostInfoTracker.removeHost(hostName);
+  }
+
+  /**
+   * Gets the tracked host and component layout of this cluster, populating it
+   * on first use.
+   *
+   * @return the tracker, or {@code null} if it could not be populated because
+   *         the cluster kept changing while it was being read.
+   */
+  public ClusterHostInfoTracker getClusterHostInfoTracker() {
+    for (int attempt = 0; attempt < 3 && !clusterHostInfoTracker.isInitialized(); attempt++) {
+      long modificationCount = clusterHostInfoTracker.getModificationCount();
+
+      List<String> hostNames = new ArrayList<>();
+      for (Host host : getHosts()) {
+        hostNames.add(host.getHostName());
+      }
+
+      Map<String, Set<String>> componentHosts = new HashMap<>();
+      Set<String> clientComponents = new HashSet<>();
+      for (Map<String, ConcurrentMap<String, ServiceComponentHost>> components : serviceComponentHosts.values()) {
+        for (Entry<String, ConcurrentMap<String, ServiceComponentHost>> entry : components.entrySet()) {
+          for (ServiceComponentHost sch : entry.getValue().values()) {
+            componentHosts.computeIfAbsent(entry.getKey(), k -> new HashSet<>()).add(sch.getHostName());
+            if (sch.isClientComponent()) {
+              clientComponents.add(entry.getKey());
+            }
+          }
+        }
+      }
+
+      clusterHostInfoTracker.initialize(modificationCount, hostNames, componentHosts,
+          clientComponents);
+    }
+
+    return clusterHostInfoTracker.isInitialized() ? clusterHostInfoTracker : null;
   }
 
   @Override
@@ -1132,11 +1206,7 @@ public class ClusterImpl implements Cluster {
   public Map<String, Config> getConfigsByType(String configType) {
     clusterGlobalLock.readLock().lock();
     try {
-      if (!allConfigs.containsKey(configType)) {
-        return null;
-      }
-
-      return Collections.unmodifiableMap(allConfigs.get(configType));
+      return allConfigs.getByType(configType);
     } finally {
       clusterGlobalLock.readLock().unlock();
     }
@@ -1146,11 +1216,7 @@ public class ClusterImpl implements Cluster {
   public Config getConfig(String configType, String versionTag) {
     clusterGlobalLock.readLock().lock();
     try {
-      if (!allConfigs.containsKey(configType)
-          || !allConfigs.get(configType).containsKey(versionTag)) {
-        return null;
-      }
-      return allConfigs.get(configType).get(versionTag);
+      return allConfigs.get(configType, versionTag);
     } finally {
       clusterGlobalLock.readLock().unlock();
     }
@@ -1168,17 +1234,7 @@ public class ClusterImpl implements Cluster {
   public Config getConfigByVersion(String configType, Long configVersion) {
     clusterGlobalLock.readLock().lock();
     try {
-      if (!allConfigs.containsKey(configType)) {
-        return null;
-      }
-
-      for (Map.Entry<String, Config> entry : allConfigs.get(configType).entrySet()) {
-        if (entry.getValue().getVersion().equals(configVersion)) {
-          return entry.getValue();
-        }
-      }
-
-      return null;
+      return allConfigs.getByVersion(configType, configVersion);
     } finally {
       clusterGlobalLock.readLock().unlock();
     }
@@ -1192,11 +1248,7 @@ public class ClusterImpl implements Cluster {
 
     clusterGlobalLock.writeLock().lock();
     try {
-      if (!allConfigs.containsKey(config.getType())) {
-        allConfigs.put(config.getType(), new ConcurrentHashMap<>());
-      }
-
-      allConfigs.get(config.getType()).put(config.getTag(), config);
+      allConfigs.pin(config);
     } finally {
       clusterGlobalLock.writeLock().unlock();
     }
@@ -1206,13 +1258,7 @@ public class ClusterImpl implements Cluster {
   public Collection<Config> getAllConfigs() {
     clusterGlobalLock.readLock().lock();
     try {
-      List<Config> list = new ArrayList<>();
-      for (Entry<String, ConcurrentMap<String, Config>> entry : allConfigs.entrySet()) {
-        for (Config config : entry.getValue().values()) {
-          list.add(config);
-        }
-      }
-      return Collections.unmodifiableList(list);
+      return Collections.unmodifiableCollection(allConfigs.getAll());
     } finally {
       clusterGlobalLock.readLock().unlock();
     }
@@ -1492,21 +1538,20 @@ public class ClusterImpl implements Cluster {
           desiredConfig.setServiceName(null);
           desiredConfig.setTag(configEntity.getTag());
 
-          if (!allConfigs.containsKey(configEntity.getType())) {
+          if (!allConfigs.containsType(configEntity.getType())) {
             LOG.error("An inconsistency exists for configuration {}", configEntity.getType());
             continue;
           }
 
-          Map<String, Config> configMap = allConfigs.get(configEntity.getType());
-          if(!configMap.containsKey(configEntity.getTag())) {
+          Long version = allConfigs.getVersion(configEntity.getType(), configEntity.getTag());
+          if (null == version) {
             LOG.error("An inconsistency exists for the configuration {} with tag {}",
                 configEntity.getType(), configEntity.getTag());
 
             continue;
           }
 
-          Config config = configMap.get(configEntity.getTag());
-          desiredConfig.setVersion(config.getVersion());
+          desiredConfig.setVersion(version);
 
           Set<DesiredConfig> configs = map.get(configEntity.getType());
           if (configs == null) {
@@ -1813,7 +1858,7 @@ public class ClusterImpl implements Cluster {
     serviceConfigVersionResponse.setConfigurations(new ArrayList<>());
     List<ClusterConfigEntity> clusterConfigEntities = serviceConfigEntity.getClusterConfigEntities();
     for (ClusterConfigEntity clusterConfigEntity : clusterConfigEntities) {
-      Config config = allConfigs.get(clusterConfigEntity.getType()).get(
+      Config config = allConfigs.get(clusterConfigEntity.getType(),
           clusterConfigEntity.getTag());
 
       serviceConfigVersionResponse.getConfigurations().add(
@@ -1892,6 +1937,7 @@ public class ClusterImpl implements Cluster {
         if (!duplicatevalues.contains(configEntity)) {
           configEntity.setSelected(true);
           clusterDAO.merge(configEntity);
+          allConfigs.select(configEntity.getType(), configEntity.getTag());
         }
       }
     } else {
@@ -1901,7 +1947,7 @@ public class ClusterImpl implements Cluster {
         configGroupName = configGroup.getName();
         Map<String, Config> groupDesiredConfigs = new HashMap<>();
         for (ClusterConfigEntity entity : serviceConfigEntity.getClusterConfigEntities()) {
-          Config config = allConfigs.get(entity.getType()).get(entity.getTag());
+          Config config = allConfigs.get(entity.getType(), entity.getTag());
           groupDesiredConfigs.put(config.getType(), config);
         }
         configGroup.setConfigurations(groupDesiredConfigs);
@@ -1983,6 +2029,10 @@ public class ClusterImpl implements Cluster {
 
     clusterEntity = clusterDAO.merge(clusterEntity);
 
+    for (ClusterConfigEntity appliedConfig : appliedConfigs) {
+      allConfigs.select(appliedConfig.getType(), appliedConfig.getTag());
+    }
+
     if (serviceName == null) {
       ArrayList<String> configTypes = new ArrayList<>();
       for (Config config: configs) {
@@ -2602,7 +2652,9 @@ public class ClusterImpl implements Cluster {
   }
 
   /**
-   * Caches all of the {@link ClusterConfigEntity}s in {@link #allConfigs}.
+   * Registers all of the {@link ClusterConfigEntity}s in {@link #allConfigs}.
+   * Only the selected versions are materialized; the rest are loaded on
+   * demand.
    */
   private void cacheConfigurations() {
     clusterGlobalLock.writeLock().lock();
@@ -2610,16 +2662,11 @@ public class ClusterImpl implements Cluster {
       ClusterEntity clusterEntity = getClusterEntity();
       allConfigs.clear();
 
-      if (!clusterEntity.getClusterConfigEntities().isEmpty()) {
-        for (ClusterConfigEntity entity : clusterEntity.getClusterConfigEntities()) {
-
-          if (!allConfigs.containsKey(entity.getType())) {
-            allConfigs.put(entity.getType(), new ConcurrentHashMap<>());
-          }
-
-          Config config = configFactory.createExisting(this, entity);
-
-          allConfigs.get(entity.getType()).put(entity.getTag(), config);
+      for (ClusterConfigEntity entity : clusterEntity.getClusterConfigEntities()) {
+        if (entity.isSelected()) {
+          allConfigs.pin(configFactory.createExisting(this, entity));
+        } else {
+          allConfigs.register(entity.getType(), entity.getTag(), entity.getVersion());
         }
       }
     } finally {
@@ -2627,6 +2674,33 @@ public class ClusterImpl implements Cluster {
     }
   }
 
+  /**
+   * Loads a configuration version which is not held in memory.
+   *
+   * @param type
+   *          the configuration type.
+   * @param tag
+   *          the configuration tag.
+   * @return the configuration, or {@code null} if it does not exist.
+   */
+  private Config loadConfig(String type, String tag) {
+    ClusterConfigEntity entity = clusterDAO.findConfig(clusterId, type, tag);
+    return null == entity ? null : configFactory.createExisting(this, entity);
+  }
+
+  /**
+   * Loads every configuration version of this cluster with a single query.
+   *
+   * @return all configurations of the cluster.
+   */
+  private Collection<Config> loadAllConfigs() {
+    List<Config> configs = new ArrayList<>();
+    for (ClusterConfigEntity entity : clusterDAO.getAllConfigs(clusterId)) {
+      configs.add(configFactory.createExisting(this, entity));
+    }
+    return configs;
+  }
+
   private void loadStackVersion() {
     desiredStackVersion = new StackId(getClusterEntity().getDesiredStack());
 
@@ -658,6 +658,10 @@ public class ClustersImpl implements Clusters {
     mapHostClusterEntities(hostname, clusterId);
     hostClustersMap.get(hostname).add(cluster);
     getClusterHostsMap().get(clusterName).add(host);
+
+    if (cluster instanceof ClusterImpl) {
+      ((ClusterImpl) cluster).hostMapped(hostname);
+    }
   }
 
   @Transactional
@@ -779,6 +783,10 @@ public class ClustersImpl implements Clusters {
 
       getHostClustersMap().get(hostname).remove(cluster);
       getClusterHostsMap().get(cluster.getClusterName()).remove(host);
+
+      if (cluster instanceof ClusterImpl) {
+        ((ClusterImpl) cluster).hostUnmapped(hostname);
+      }
     }
 
     deleteConfigGroupHostMapping(hostEntity.getHostId());
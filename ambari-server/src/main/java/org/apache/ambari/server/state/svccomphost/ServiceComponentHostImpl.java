@@ -1071,6 +1071,38 @@ public class ServiceComponentHostImpl implements ServiceComponentHost {
     }
   }
 
+  /**
+   * Gets the id of the state entity, which orders host components for locking.
+   */
+  long getHostComponentStateId() {
+    return hostComponentStateId;
+  }
+
+  /**
+   * Gets the lock guarding the state machine of this host component.  Used by
+   * {@link ServiceComponentHostTransitionProcessor} to lock several host
+   * components at once.
+   */
+  Lock getWriteLock() {
+    return writeLock;
+  }
+
+  /**
+   * Runs the state machine for the given event without persisting the new
+   * state.  The caller must hold the {@link #getWriteLock() write lock}.
+   */
+  void doTransition(ServiceComponentHostEvent event) throws InvalidStateTransitionException {
+    stateMachine.doTransition(event.getType(), event);
+  }
+
+  /**
+   * Sets the current state of the state machine without persisting it.  The
+   * caller must hold the {@link #getWriteLock() write lock}.
+   */
+  void setCurrentState(State state) {
+    stateMachine.setCurrentState(state);
+  }
+
   @Override
   public String getServiceComponentName() {
     return serviceComponent.getName();
@@ -1592,7 +1624,7 @@ public class ServiceComponentHostImpl implements ServiceComponentHost {
    * @return the {@link HostComponentStateEntity} for this
    *         {@link ServiceComponentHost}, or {@code null} if there is none.
    */
-  private HostComponentStateEntity getStateEntity() {
+  HostComponentStateEntity getStateEntity() {
     return hostComponentStateDAO.findById(hostComponentStateId);
   }
 
@@ -0,0 +1,288 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.state.svccomphost;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.ambari.server.events.HostComponentUpdate;
+import org.apache.ambari.server.events.HostComponentsUpdateEvent;
+import org.apache.ambari.server.events.publishers.STOMPUpdatePublisher;
+import org.apache.ambari.server.orm.dao.HostComponentStateDAO;
+import org.apache.ambari.server.orm.entities.HostComponentStateEntity;
+import org.apache.ambari.server.state.ServiceComponentHost;
+import org.apache.ambari.server.state.ServiceComponentHostEvent;
+import org.apache.ambari.server.state.State;
+import org.apache.ambari.server.state.fsm.InvalidStateTransitionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.persist.Transactional;
+
+/**
+ * Applies the state changes reported for many host components at once.
+ * Unlike {@link ServiceComponentHost#handleEvent(ServiceComponentHostEvent)}
+ * and {@link ServiceComponentHost#setState(State)}, which each lock, persist and
+ * publish a single host component, the host components of a batch are locked
+ * together in a fixed order, their changed states are merged in one
+ * transaction and a single {@link HostComponentsUpdateEvent} is published for
+ * all of them.
+ */
+@Singleton
+public class ServiceComponentHostTransitionProcessor {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ServiceComponentHostTransitionProcessor.class);
+
+  /**
+   * Host components are always locked in the order of their state entity ids,
+   * so concurrent batches cannot deadlock.
+   */
+  private static final Comparator<ServiceComponentHostImpl> LOCK_ORDER =
+      Comparator.comparingLong(ServiceComponentHostImpl::getHostComponentStateId);
+
+  @Inject
+  private HostComponentStateDAO hostComponentStateDAO;
+
+  @Inject
+  private STOMPUpdatePublisher STOMPUpdatePublisher;
+
+  /**
+   * Applies the transitions in the order given.  A transition which is not
+   * valid in the current state of its host component is logged and skipped;
+   * the other transitions are still applied.  Whether a transition applies
+   * is decided while its host component is locked.
+   *
+   * @param transitions  the transitions to apply
+   */
+  @Transactional
+  public void process(List<Transition> transitions) {
+    Map<ServiceComponentHostImpl, List<Transition>> transitionsByHostComponent = new LinkedHashMap<>();
+    for (Transition transition : transitions) {
+      ServiceComponentHost serviceComponentHost = transition.getServiceComponentHost();
+      if (serviceComponentHost instanceof ServiceComponentHostImpl) {
+        transitionsByHostComponent.computeIfAbsent((ServiceComponentHostImpl) serviceComponentHost,
+            k -> new ArrayList<>()).add(transition);
+      } else {
+        applyDirectly(transition);
+      }
+    }
+    if (transitionsByHostComponent.isEmpty()) {
+      return;
+    }
+
+    List<ServiceComponentHostImpl> hostComponents = new ArrayList<>(transitionsByHostComponent.keySet());
+    hostComponents.sort(LOCK_ORDER);
+
+    List<ServiceComponentHostImpl> locked = new ArrayList<>(hostComponents.size());
+    try {
+      for (ServiceComponentHostImpl hostComponent : hostComponents) {
+        hostComponent.getWriteLock().lock();
+        locked.add(hostComponent);
+      }
+
+      List<HostComponentStateEntity> changedEntities = new ArrayList<>();
+      List<State> previousStates = new ArrayList<>();
+      for (Map.Entry<ServiceComponentHostImpl, List<Transition>> entry : transitionsByHostComponent.entrySet()) {
+        ServiceComponentHostImpl hostComponent = entry.getKey();
+        HostComponentStateEntity stateEntity = hostComponent.getStateEntity();
+        if (stateEntity == null) {
+          LOG.warn("Setting a member on an entity object that may have been previously deleted, serviceName = {}, "
+              + "componentName = {}, hostName = {}", hostComponent.getServiceName(),
+              hostComponent.getServiceComponentName(), hostComponent.getHostName());
+          continue;
+        }
+
+        State previousState = stateEntity.getCurrentState();
+        State previousLiveState = stateEntity.getLastLiveState();
+        for (Transition transition : entry.getValue()) {
+          apply(hostComponent, stateEntity, transition);
+        }
+
+        State state = hostComponent.getState();
+        if (!state.equals(previousState) || stateEntity.getLastLiveState() != previousLiveState) {
+          stateEntity.setCurrentState(state);
+          changedEntities.add(stateEntity);
+          previousStates.add(previousState);
+        }
+        if (!state.equals(previousState)) {
+          LOG.info("Host role transitioned to a new state, serviceComponentName={}, hostName={}, oldState={}, "
+              + "currentState={}", hostComponent.getServiceComponentName(), hostComponent.getHostName(),
+              previousState, state);
+        }
+      }
+
+      if (changedEntities.isEmpty()) {
+        return;
+      }
+      List<HostComponentStateEntity> mergedEntities = hostComponentStateDAO.mergeAll(changedEntities);
+
+      List<HostComponentUpdate> hostComponentUpdates = new ArrayList<>(mergedEntities.size());
+      for (int i = 0; i < mergedEntities.size(); i++) {
+        HostComponentStateEntity stateEntity = mergedEntities.get(i);
+        if (!stateEntity.getCurrentState().equals(previousStates.get(i))) {
+          hostComponentUpdates.add(HostComponentUpdate.createHostComponentStatusUpdate(stateEntity,
+              previousStates.get(i)));
+        }
+      }
+      if (!hostComponentUpdates.isEmpty()) {
+        STOMPUpdatePublisher.publish(new HostComponentsUpdateEvent(hostComponentUpdates));
+      }
+    } finally {
+      for (ListIterator<ServiceComponentHostImpl> iterator = locked.listIterator(locked.size()); iterator.hasPrevious(); ) {
+        iterator.previous().getWriteLock().unlock();
+      }
+    }
+  }
+
+  /**
+   * Applies a transition to a locked host component and its state entity.
+   */
+  private void apply(ServiceComponentHostImpl hostComponent, HostComponentStateEntity stateEntity,
+                     Transition transition) {
+    if (!transition.appliesTo(hostComponent.getState())) {
+      LOG.debug("Ignoring reported state {} of {} on host {} in state {}", transition.getState(),
+          hostComponent.getServiceComponentName(), hostComponent.getHostName(), hostComponent.getState());
+      return;
+    }
+    if (transition.getEvent() != null) {
+      ServiceComponentHostEvent event = transition.getEvent();
+      LOG.debug("Handling ServiceComponentHostEvent event, eventType={}, event={}", event.getType().name(), event);
+      try {
+        hostComponent.doTransition(event);
+      } catch (InvalidStateTransitionException e) {
+        LOG.warn("Can't handle ServiceComponentHostEvent event at current state, serviceComponentName={}, "
+            + "hostName={}, currentState={}, eventType={}, event={}", hostComponent.getServiceComponentName(),
+            hostComponent.getHostName(), hostComponent.getState(), event.getType(), event);
+      }
+    } else {
+      hostComponent.setCurrentState(transition.getState());
+      if (transition.getState() != State.UNKNOWN) {
+        stateEntity.setLastLiveState(transition.getState());
+      }
+    }
+  }
+
+  /**
+   * Applies a transition of a host component which is not backed by a
+   * {@link ServiceComponentHostImpl} one at a time.
+   */
+  private void applyDirectly(Transition transition) {
+    ServiceComponentHost serviceComponentHost = transition.getServiceComponentHost();
+    if (!transition.appliesTo(serviceComponentHost.getState())) {
+      return;
+    }
+    if (transition.getEvent() != null) {
+      try {
+        serviceComponentHost.handleEvent(transition.getEvent());
+      } catch (InvalidStateTransitionException e) {
+        LOG.warn("State machine exception. " + e.getMessage());
+      }
+    } else {
+      serviceComponentHost.setState(transition.getState());
+    }
+  }
+
+  /**
+   * A state change of a single host component: either an event for its state
+   * machine or a state reported by a status command.
+   */
+  public static final class Transition {
+
+    /**
+     * The states in which a host component takes the state reported by a
+     * status command; reports for a component in INIT or in any "in progress"
+     * state are ignored.
+     */
+    private static final Set<State> STATUS_REPORT_STATES =
+        Collections.unmodifiableSet(EnumSet.of(State.INSTALLED, State.STARTED, State.UNKNOWN));
+
+    private final ServiceComponentHost serviceComponentHost;
+
+    private final ServiceComponentHostEvent event;
+
+    private final State state;
+
+    /**
+     * The states the host component has to be in for the transition to
+     * apply; null if it applies in any state.
+     */
+    private final Set<State> previousStates;
+
+    private Transition(ServiceComponentHost serviceComponentHost, ServiceComponentHostEvent event, State state,
+                       Set<State> previousStates) {
+      this.serviceComponentHost = serviceComponentHost;
+      this.event = event;
+      this.state = state;
+      this.previousStates = previousStates;
+    }
+
+    /**
+     * @return a transition running the state machine of the host component
+     *         for the event, like {@link ServiceComponentHost#handleEvent}
+     */
+    public static Transition of(ServiceComponentHost serviceComponentHost, ServiceComponentHostEvent event) {
+      return new Transition(serviceComponentHost, event, null, null);
+    }
+
+    /**
+     * @return a transition setting the host component to the reported state,
+     *         like {@link ServiceComponentHost#setState}
+     */
+    public static Transition of(ServiceComponentHost serviceComponentHost, State state) {
+      return new Transition(serviceComponentHost, null, state, null);
+    }
+
+    /**
+     * @return a transition setting the host component to the state reported
+     *         by a status command, unless the component is in INIT or in an
+     *         "in progress" state
+     */
+    public static Transition ofStatusReport(ServiceComponentHost serviceComponentHost, State reportedState) {
+      return new Transition(serviceComponentHost, null, reportedState, STATUS_REPORT_STATES);
+    }
+
+    public ServiceComponentHost getServiceComponentHost() {
+      return serviceComponentHost;
+    }
+
+    public ServiceComponentHostEvent getEvent() {
+      return event;
+    }
+
+    public State getState() {
+      return state;
+    }
+
+    /**
+     * @param currentState  the current state of the host component
+     * @return true if the transition applies to the host component in the state
+     */
+    public boolean appliesTo(State currentState) {
+      return previousStates == null || previousStates.contains(currentState);
+    }
+  }
+}
@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.topology;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.ambari.server.controller.RequestStatusResponse;
+import org.apache.ambari.server.controller.internal.ProvisionAction;
+
+/**
+ * A {@link ClusterTopology} view which memoizes the component -> host group and
+ * component -> host lookups of the wrapped topology.
+ * <p/>
+ * Resolving the hosts of a component requires walking every host group of the blueprint
+ * and copying the host names of every matching group.  Configuration processing performs
+ * these lookups for every property updater, so for large topologies the lookups dominate.
+ * The wrapped topology must not be modified behind the back of this view while it is in use;
+ * modifications made through this view invalidate the memoized results.
+ */
+public class CachingClusterTopology implements ClusterTopology {
+
+  private final ClusterTopology delegate;
+
+  private final Map<String, Collection<String>> hostGroupsByComponent = new ConcurrentHashMap<>();
+  private final Map<String, Collection<String>> hostsByComponent = new ConcurrentHashMap<>();
+
+  public CachingClusterTopology(ClusterTopology delegate) {
+    this.delegate = delegate;
+  }
+
+  /**
+   * Get the underlying topology.
+   *
+   * @return wrapped topology
+   */
+  public ClusterTopology getDelegate() {
+    return delegate;
+  }
+
+  /**
+   * Discard all memoized lookups.
+   */
+  public void invalidate() {
+    hostGroupsByComponent.clear();
+    hostsByComponent.clear();
+  }
+
+  @Override
+  public Long getClusterId() {
+    return delegate.getClusterId();
+  }
+
+  @Override
+  public void setClusterId(Long clusterId) {
+    delegate.setClusterId(clusterId);
+  }
+
+  @Override
+  public Blueprint getBlueprint() {
+    return delegate.getBlueprint();
+  }
+
+  @Override
+  public Configuration getConfiguration() {
+    return delegate.getConfiguration();
+  }
+
+  @Override
+  public Map<String, HostGroupInfo> getHostGroupInfo() {
+    return delegate.getHostGroupInfo();
+  }
+
+  @Override
+  public Collection<String> getHostGroupsForComponent(String component) {
+    return hostGroupsByComponent.computeIfAbsent(component,
+      c -> Collections.unmodifiableCollection(delegate.getHostGroupsForComponent(c)));
+  }
+
+  @Override
+  public String getHostGroupForHost(String hostname) {
+    return delegate.getHostGroupForHost(hostname);
+  }
+
+  @Override
+  public Collection<String> getHostAssignmentsForComponent(String component) {
+    return hostsByComponent.computeIfAbsent(component,
+      c -> Collections.unmodifiableCollection(delegate.getHostAssignmentsForComponent(c)));
+  }
+
+  @Override
+  public void update(TopologyRequest topologyRequest) throws InvalidTopologyException {
+    try {
+      delegate.update(topologyRequest);
+    } finally {
+      invalidate();
+    }
+  }
+
+  @Override
+  public void addHostToTopology(String hostGroupName, String host) throws InvalidTopologyException, NoSuchHostGroupException {
+    try {
+      delegate.addHostToTopology(hostGroupName, host);
+    } finally {
+      invalidate();
+    }
+  }
+
+  @Override
+  public boolean isNameNodeHAEnabled() {
+    return delegate.isNameNodeHAEnabled();
+  }
+
+  @Override
+  public boolean isYarnResourceManagerHAEnabled() {
+    return delegate.isYarnResourceManagerHAEnabled();
+  }
+
+  @Override
+  public boolean isClusterKerberosEnabled() {
+    return delegate.isClusterKerberosEnabled();
+  }
+
+  @Override
+  public RequestStatusResponse installHost(String hostName, boolean skipInstallTaskCreate, boolean skipFailure) {
+    return delegate.installHost(hostName, skipInstallTaskCreate, skipFailure);
+  }
+
+  @Override
+  public RequestStatusResponse startHost(String hostName, boolean skipFailure) {
+    return delegate.startHost(hostName, skipFailure);
+  }
+
+  @Override
+  public void setConfigRecommendationStrategy(ConfigRecommendationStrategy strategy) {
+    delegate.setConfigRecommendationStrategy(strategy);
+  }
+
+  @Override
+  public ConfigRecommendationStrategy getConfigRecommendationStrategy() {
+    return delegate.getConfigRecommendationStrategy();
+  }
+
+  @Override
+  public void setProvisionAction(ProvisionAction provisionAction) {
+    delegate.setProvisionAction(provisionAction);
+  }
+
+  @Override
+  public ProvisionAction getProvisionAction() {
+    return delegate.getProvisionAction();
+  }
+
+  @Override
+  public Map<String, AdvisedConfiguration> getAdvisedConfigurations() {
+    return delegate.getAdvisedConfigurations();
+  }
+
+  @Override
+  public AmbariContext getAmbariContext() {
+    return delegate.getAmbariContext();
+  }
+
+  @Override
+  public void removeHost(String hostname) {
+    try {
+      delegate.removeHost(hostname);
+    } finally {
+      invalidate();
+    }
+  }
+
+  @Override
+  public String getDefaultPassword() {
+    return delegate.getDefaultPassword();
+  }
+
+  @Override
+  public boolean isComponentHadoopCompatible(String component) {
+    return delegate.isComponentHadoopCompatible(component);
+  }
+}
@@ -0,0 +1,320 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * The {@link ClusterHostInfoTracker} maintains the host and component layout
+ * of a single cluster which {@link StageUtils#getClusterHostInfo} sends to
+ * agents. Instead of walking every host component whenever a stage is created,
+ * the layout is updated as hosts are mapped to or unmapped from the cluster and
+ * as host components are added or removed.
+ * <p/>
+ * Readers receive an immutable snapshot which is replaced (copy-on-write) the
+ * first time it is read after a change; only the components affected by the
+ * change are recomputed, unless a host was removed, which shifts the index of
+ * every following host.
+ */
+public class ClusterHostInfoTracker {
+
+  /**
+   * The cluster's hosts in the order of their indexes.
+   */
+  private final List<String> hosts = new ArrayList<>();
+
+  /**
+   * Host name to index in {@link #hosts}.
+   */
+  private final Map<String, Integer> hostIndexes = new HashMap<>();
+
+  /**
+   * The clusterHostInfo key of a component (such as {@code namenode_hosts}) to
+   * the names of the hosts it is installed on.
+   */
+  private final Map<String, Set<String>> roleHosts = new HashMap<>();
+
+  /**
+   * Roles which need to be recomputed on the next publication.
+   */
+  private final Set<String> dirtyRoles = new HashSet<>();
+
+  /**
+   * Whether {@link #hosts} changed since the last publication.
+   */
+  private boolean hostsChanged = true;
+
+  /**
+   * Whether host indexes were shifted since the last publication, requiring
+   * all roles to be recomputed.
+   */
+  private boolean indexesShifted = false;
+
+  /**
+   * Whether the tracker was populated from the cluster; changes are ignored
+   * until then.
+   */
+  private volatile boolean initialized = false;
+
+  /**
+   * Incremented on every change, whether or not the tracker is populated, so
+   * that a population racing with a change can be detected.
+   */
+  private long modificationCount = 0;
+
+  /**
+   * The last published snapshot.
+   */
+  private Map<String, Set<String>> published = Collections.emptyMap();
+
+  /**
+   * The snapshot handed to readers, or {@code null} if it must be republished.
+   */
+  private volatile Map<String, Set<String>> snapshot = null;
+
+  /**
+   * @return {@code true} if the tracker has been populated.
+   */
+  public boolean isInitialized() {
+    return initialized;
+  }
+
+  /**
+   * @return the number of changes seen so far; passed back to
+   *         {@link #initialize} to detect concurrent changes.
+   */
+  public synchronized long getModificationCount() {
+    return modificationCount;
+  }
+
+  /**
+   * Populates the tracker from a consistent read of the cluster. The cluster
+   * is read without holding the lock on this tracker, so the population is
+   * rejected if any change was recorded since {@code expectedModificationCount}
+   * was obtained.
+   *
+   * @param expectedModificationCount
+   *          the value of {@link #getModificationCount()} before the cluster
+   *          was read.
+   * @param hostNames
+   *          the hosts of the cluster.
+   * @param componentHosts
+   *          each component to the hosts it is installed on.
+   * @param clientComponents
+   *          the components which are clients.
+   * @return {@code true} if the tracker was populated.
+   */
+  public synchronized boolean initialize(long expectedModificationCount,
+      Collection<String> hostNames, Map<String, ? extends Collection<String>> componentHosts,
+      Set<String> clientComponents) {
+    if (expectedModificationCount != modificationCount) {
+      return false;
+    }
+
+    hosts.clear();
+    hostIndexes.clear();
+    roleHosts.clear();
+    dirtyRoles.clear();
+    published = Collections.emptyMap();
+    hostsChanged = true;
+    indexesShifted = true;
+    initialized = true;
+    snapshot = null;
+
+    for (String hostName : hostNames) {
+      addHost(hostName);
+    }
+
+    for (Map.Entry<String, ? extends Collection<String>> entry : componentHosts.entrySet()) {
+      boolean clientComponent = clientComponents.contains(entry.getKey());
+      for (String hostName : entry.getValue()) {
+        addComponent(entry.getKey(), clientComponent, hostName);
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Adds a host at the end of the host list.
+   *
+   * @param hostName
+   *          the host which was mapped to the cluster.
+   */
+  public synchronized void addHost(String hostName) {
+    modificationCount++;
+    if (!initialized || hostIndexes.containsKey(hostName)) {
+      return;
+    }
+
+    hostIndexes.put(hostName, hosts.size());
+    hosts.add(hostName);
+    hostsChanged = true;
+    snapshot = null;
+  }
+
+  /**
+   * Removes a host and all of its components.
+   *
+   * @param hostName
+   *          the host which was unmapped from the cluster.
+   */
+  public synchronized void removeHost(String hostName) {
+    modificationCount++;
+    if (!initialized || !hostIndexes.containsKey(hostName)) {
+      return;
+    }
+
+    hosts.remove(hostName);
+    hostIndexes.clear();
+    for (int i = 0; i < hosts.size(); i++) {
+      hostIndexes.put(hosts.get(i), i);
+    }
+
+    for (Set<String> roleHostNames : roleHosts.values()) {
+      roleHostNames.remove(hostName);
+    }
+
+    hostsChanged = true;
+    indexesShifted = true;
+    snapshot = null;
+  }
+
+  /**
+   * Records that a component was added to a host.
+   *
+   * @param componentName
+   *          the component name.
+   * @param clientComponent
+   *          whether the component is a client.
+   * @param hostName
+   *          the host name.
+   */
+  public synchronized void addComponent(String componentName, boolean clientComponent,
+      String hostName) {
+    modificationCount++;
+    String roleName = StageUtils.getClusterHostInfoRoleName(componentName, clientComponent);
+    if (!initialized || null == roleName) {
+      return;
+    }
+
+    if (roleHosts.computeIfAbsent(roleName, k -> new HashSet<>()).add(hostName)) {
+      dirtyRoles.add(roleName);
+      snapshot = null;
+    }
+  }
+
+  /**
+   * Records that a component was removed from a host.
+   *
+   * @param componentName
+   *          the component name.
+   * @param clientComponent
+   *          whether the component is a client.
+   * @param hostName
+   *          the host name.
+   */
+  public synchronized void removeComponent(String componentName, boolean clientComponent,
+      String hostName) {
+    modificationCount++;
+    String roleName = StageUtils.getClusterHostInfoRoleName(componentName, clientComponent);
+    if (!initialized || null == roleName) {
+      return;
+    }
+
+    Set<String> roleHostNames = roleHosts.get(roleName);
+    if (null != roleHostNames && roleHostNames.remove(hostName)) {
+      dirtyRoles.add(roleName);
+      snapshot = null;
+    }
+  }
+
+  /**
+   * Gets the current layout: the ordered host list under
+   * {@link StageUtils#HOSTS_LIST} and the ranged host indexes of each
+   * component. The returned map and its values are immutable.
+   *
+   * @return the current snapshot.
+   */
+  public Map<String, Set<String>> getSnapshot() {
+    Map<String, Set<String>> current = snapshot;
+    if (null != current) {
+      return current;
+    }
+
+    synchronized (this) {
+      if (null == snapshot) {
+        publish();
+      }
+      return snapshot;
+    }
+  }
+
+  /**
+   * Copies the last published snapshot, recomputing only what changed.
+   */
+  private void publish() {
+    Map<String, Set<String>> next = new HashMap<>(published);
+
+    if (hostsChanged) {
+      next.put(StageUtils.HOSTS_LIST, Collections.unmodifiableSet(new LinkedHashSet<>(hosts)));
+    }
+
+    if (indexesShifted) {
+      next.keySet().retainAll(Collections.singleton(StageUtils.HOSTS_LIST));
+      dirtyRoles.addAll(roleHosts.keySet());
+    }
+
+    for (String roleName : dirtyRoles) {
+      Set<String> roleHostNames = roleHosts.get(roleName);
+      SortedSet<Integer> indexes = new TreeSet<>();
+      if (null != roleHostNames) {
+        for (String hostName : roleHostNames) {
+          Integer index = hostIndexes.get(hostName);
+          if (null != index) {
+            indexes.add(index);
+          }
+        }
+      }
+
+      if (indexes.isEmpty()) {
+        next.remove(roleName);
+        roleHosts.remove(roleName);
+      } else {
+        next.put(roleName, Collections.unmodifiableSet(StageUtils.replaceRanges(indexes)));
+      }
+    }
+
+    dirtyRoles.clear();
+    hostsChanged = false;
+    indexesShifted = false;
+
+    published = Collections.unmodifiableMap(next);
+    snapshot = published;
+  }
+}
@@ -60,6 +60,7 @@ import org.apache.ambari.server.state.Cluster;
 import org.apache.ambari.server.state.Host;
 import org.apache.ambari.server.state.Service;
 import org.apache.ambari.server.state.ServiceComponent;
+import org.apache.ambari.server.state.cluster.ClusterImpl;
 import org.apache.ambari.server.state.svccomphost.ServiceComponentHostInstallEvent;
 import org.apache.ambari.server.topology.TopologyManager;
 import org.apache.commons.lang.StringUtils;
@@ -280,7 +281,34 @@ public class StageUtils {
     return componentName.toLowerCase()+"_hosts";
   }
 
+  /**
+   * Gets the clusterHostInfo key under which the hosts of a component are
+   * listed.
+   *
+   * @param componentName
+   *          the component name.
+   * @param clientComponent
+   *          whether the component is a client.
+   * @return the key, or {@code null} if the component is not listed.
+   */
+  static String getClusterHostInfoRoleName(String componentName, boolean clientComponent) {
+    String roleName = componentToClusterInfoKeyMap.get(componentName);
+    if (null == roleName && !clientComponent) {
+      roleName = getClusterHostInfoKey(componentName);
+    }
+    return roleName;
+  }
+
   public static Map<String, Set<String>> getClusterHostInfo(Cluster cluster) throws AmbariException {
+    // pending blueprint hosts are not tracked, so compute the layout from scratch
+    Map<String, Collection<String>> pendingHostComponents = topologyManager.getPendingHostComponents();
+    if (cluster instanceof ClusterImpl && pendingHostComponents.isEmpty()) {
+      ClusterHostInfoTracker tracker = ((ClusterImpl) cluster).getClusterHostInfoTracker();
+      if (null != tracker) {
+        return getTrackedClusterHostInfo(cluster, tracker.getSnapshot());
+      }
+    }
+
     //Fill hosts and ports lists
     Set<String>   hostsSet  = new LinkedHashSet<>();
     List<Integer> portsList = new ArrayList<>();
@@ -303,7 +331,6 @@ public class StageUtils {
     }
 
     // add hosts from topology manager
-    Map<String, Collection<String>> pendingHostComponents = topologyManager.getPendingHostComponents();
     for (String hostname : pendingHostComponents.keySet()) {
       if (!hostsSet.contains(hostname)) {
         hostsSet.add(hostname);
@@ -419,6 +446,67 @@ public class StageUtils {
     clusterHostInfo.put(IPV4_ADDRESSES, replaceMappedRanges(ipV4List));
     clusterHostInfo.put(RACKS, replaceMappedRanges(rackList));
 
+    addServerHostInfo(clusterHostInfo);
+    return clusterHostInfo;
+  }
+
+  /**
+   * Builds the clusterHostInfo from the layout maintained by a
+   * {@link ClusterHostInfoTracker}. Host attributes are read from the hosts
+   * since they are updated on registration without any notification.
+   *
+   * @param cluster
+   *          the cluster.
+   * @param snapshot
+   *          the tracked host and component layout.
+   * @return a mutable clusterHostInfo.
+   */
+  private static Map<String, Set<String>> getTrackedClusterHostInfo(Cluster cluster,
+      Map<String, Set<String>> snapshot) {
+    Map<String, Set<String>> clusterHostInfo = new HashMap<>();
+    for (Map.Entry<String, Set<String>> entry : snapshot.entrySet()) {
+      clusterHostInfo.put(entry.getKey(), new HashSet<>(entry.getValue()));
+    }
+
+    Set<String> hostsSet = new LinkedHashSet<>(snapshot.get(HOSTS_LIST));
+    clusterHostInfo.put(HOSTS_LIST, hostsSet);
+
+    Map<String, Host> hosts = new HashMap<>();
+    for (Host host : cluster.getHosts()) {
+      hosts.put(host.getHostName(), host);
+    }
+
+    List<Integer> portsList = new ArrayList<>(hostsSet.size());
+    List<String> rackList = new ArrayList<>(hostsSet.size());
+    List<String> ipV4List = new ArrayList<>(hostsSet.size());
+    for (String hostName : hostsSet) {
+      Host host = hosts.get(hostName);
+
+      Integer currentPingPort = null == host ? null : host.getCurrentPingPort();
+      portsList.add(currentPingPort == null ? DEFAULT_PING_PORT : currentPingPort);
+
+      String rackInfo = null == host ? null : host.getRackInfo();
+      rackList.add(StringUtils.isEmpty(rackInfo) ? DEFAULT_RACK : rackInfo);
+
+      String iPv4 = null == host ? null : host.getIPv4();
+      ipV4List.add(StringUtils.isEmpty(iPv4) ? DEFAULT_IPV4_ADDRESS : iPv4);
+    }
+
+    clusterHostInfo.put(PORTS, replaceMappedRanges(portsList));
+    clusterHostInfo.put(IPV4_ADDRESSES, replaceMappedRanges(ipV4List));
+    clusterHostInfo.put(RACKS, replaceMappedRanges(rackList));
+
+    addServerHostInfo(clusterHostInfo);
+    return clusterHostInfo;
+  }
+
+  /**
+   * Adds the Ambari Server host, port and SSL usage to a clusterHostInfo.
+   *
+   * @param clusterHostInfo
+   *          the clusterHostInfo to update.
+   */
+  private static void addServerHostInfo(Map<String, Set<String>> clusterHostInfo) {
     // Fill server host
     /*
      * Note: We don't replace server host name, port, ssl usage by an index (like we do
@@ -432,8 +520,6 @@ public class StageUtils {
     int port = serverUseSsl ? configuration.getClientSSLApiPort() : configuration.getClientApiPort();
     clusterHostInfo.put(AMBARI_SERVER_PORT, Sets.newHashSet(Integer.toString(port)));
     clusterHostInfo.put(AMBARI_SERVER_USE_SSL, Sets.newHashSet(Boolean.toString(serverUseSsl)));
-
-    return clusterHostInfo;
   }
 
   /**
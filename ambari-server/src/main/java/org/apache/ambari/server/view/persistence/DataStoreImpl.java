@@ -23,17 +23,20 @@ import java.beans.Introspector;
 import java.beans.PropertyDescriptor;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
@@ -111,6 +114,11 @@ public class DataStoreImpl implements DataStore {
    */
   private final Map<String, JPADynamicTypeBuilder> typeBuilderMap = new LinkedHashMap<>();
 
+  /**
+   * Map of property accessors keyed by view entity class.
+   */
+  private final ConcurrentMap<Class<?>, EntityAccessor> accessorMap = new ConcurrentHashMap<>();
+
   /**
    * Indicates whether or not the data store has been initialized.
    */
@@ -141,33 +149,12 @@ public class DataStoreImpl implements DataStore {
 
   @Override
   public void store(Object entity) throws PersistenceException {
-    checkInitialize();
+    storeEntities(Collections.singletonList(entity), "view entity " + entity);
+  }
 
-    EntityManager em = getEntityManager();
-    try {
-      em.getTransaction().begin();
-      try {
-        DynamicEntity dynamicEntity = persistEntity(entity, em, new HashSet<>());
-        em.getTransaction().commit();
-        Map<String, Object> props = getEntityProperties(entity);
-        List<String> keys = new ArrayList<>(props.keySet());
-        for( String key : keys){
-          String attribute = getAttributeName(key);
-          try {
-            props.put(key, dynamicEntity.get(attribute));
-          }catch(DynamicException de){
-            LOG.debug("Error occurred while copying entity property : {} : {}", key, de);
-            // ignore - the property was not found in Dynamic entity.
-          }
-        }
-        setEntityProperties(entity,props);
-      } catch (Exception e) {
-        rollbackTransaction(em.getTransaction());
-        throwPersistenceException("Caught exception trying to store view entity " + entity, e);
-      }
-    } finally {
-      em.close();
-    }
+  @Override
+  public void storeAll(Collection<?> entities) throws PersistenceException {
+    storeEntities(entities, entities.size() + " view entities");
   }
 
   @Override
@@ -182,8 +169,8 @@ public class DataStoreImpl implements DataStore {
 
       if (type != null) {
         try {
-          Map<String, Object> properties    = getEntityProperties(entity);
-          DynamicEntity       dynamicEntity = em.getReference(type.getJavaClass(), properties.get(id));
+          DynamicEntity dynamicEntity =
+              em.getReference(type.getJavaClass(), getEntityAccessor(clazz).getProperty(entity, id));
 
           if (dynamicEntity != null) {
             em.getTransaction().begin();
@@ -205,6 +192,38 @@ public class DataStoreImpl implements DataStore {
     }
   }
 
+  @Override
+  public void removeAll(Collection<?> entities) throws PersistenceException {
+    checkInitialize();
+
+    EntityManager em = getEntityManager();
+    try {
+      em.getTransaction().begin();
+      try {
+        for (Object entity : entities) {
+          Class       clazz = entity.getClass();
+          String      id    = getIdFieldName(clazz);
+          DynamicType type  = getDynamicEntityType(clazz);
+
+          if (type != null) {
+            DynamicEntity dynamicEntity =
+                em.getReference(type.getJavaClass(), getEntityAccessor(clazz).getProperty(entity, id));
+
+            if (dynamicEntity != null) {
+              em.remove(dynamicEntity);
+            }
+          }
+        }
+        em.getTransaction().commit();
+      } catch (Exception e) {
+        rollbackTransaction(em.getTransaction());
+        throwPersistenceException("Caught exception trying to remove " + entities.size() + " view entities", e);
+      }
+    } finally {
+      em.close();
+    }
+  }
+
   @Override
   public <T> T find(Class<T> clazz, Object primaryKey) throws PersistenceException {
     checkInitialize();
@@ -229,16 +248,89 @@ public class DataStoreImpl implements DataStore {
 
   @Override
   public <T> Collection<T> findAll(Class<T> clazz, String whereClause) throws PersistenceException {
+    return findAll(clazz, whereClause, -1, -1, false);
+  }
+
+  @Override
+  public <T> Collection<T> findAll(Class<T> clazz, String whereClause, int firstResult, int maxResults)
+      throws PersistenceException {
+    if (firstResult < 0 || maxResults <= 0) {
+      throw new IllegalArgumentException("Invalid page: firstResult=" + firstResult + ", maxResults=" + maxResults);
+    }
+    return findAll(clazz, whereClause, firstResult, maxResults, true);
+  }
+
+
+  // ----- helper methods ----------------------------------------------------
+
+  // store the given view entities in a single transaction
+  private void storeEntities(Collection<?> entities, String description) throws PersistenceException {
     checkInitialize();
 
     EntityManager em = getEntityManager();
     try {
-      Collection<T> resources = new HashSet<>();
+      em.getTransaction().begin();
+      try {
+        List<DynamicEntity> dynamicEntities = new ArrayList<>(entities.size());
+        for (Object entity : entities) {
+          dynamicEntities.add(persistEntity(entity, em, new HashSet<DynamicEntity>()));
+        }
+        em.getTransaction().commit();
+
+        // copy the generated values (i.e. ids) back to the view entities
+        Iterator<DynamicEntity> iterator = dynamicEntities.iterator();
+        for (Object entity : entities) {
+          copyDynamicEntityProperties(iterator.next(), entity);
+        }
+      } catch (Exception e) {
+        rollbackTransaction(em.getTransaction());
+        throwPersistenceException("Caught exception trying to store " + description, e);
+      }
+    } finally {
+      em.close();
+    }
+  }
+
+  // set the properties of the given view entity from the given dynamic entity
+  private void copyDynamicEntityProperties(DynamicEntity dynamicEntity, Object entity)
+      throws IntrospectionException, InvocationTargetException, IllegalAccessException,
+      InstantiationException, NoSuchFieldException {
+    Map<String, Object> props = getEntityProperties(entity);
+    List<String> keys = new ArrayList<>(props.keySet());
+    for( String key : keys){
+      String attribute = getAttributeName(key);
+      try {
+        props.put(key, dynamicEntity.get(attribute));
+      }catch(DynamicException de){
+        LOG.debug("Error occurred while copying entity property : {} : {}", key, de);
+        // ignore - the property was not found in Dynamic entity.
+      }
+    }
+    setEntityProperties(entity,props);
+  }
+
+  // find the entities for the given where clause; only the requested page if paged is true
+  private <T> Collection<T> findAll(Class<T> clazz, String whereClause, int firstResult, int maxResults,
+                                    boolean paged) throws PersistenceException {
+    checkInitialize();
+
+    EntityManager em = getEntityManager();
+    try {
+      Collection<T> resources = paged ? new ArrayList<T>() : new HashSet<T>();
       DynamicType   type      = getDynamicEntityType(clazz);
 
       if (type != null) {
         try {
-          Query query = em.createQuery(getSelectStatement(clazz, whereClause));
+          String statement = getSelectStatement(clazz, whereClause);
+          if (paged && !hasOrderByClause(whereClause)) {
+            // a stable order is needed to page through the entities
+            statement += " ORDER BY e." + getAttributeName(getIdFieldName(clazz));
+          }
+          Query query = em.createQuery(statement);
+          if (paged) {
+            query.setFirstResult(firstResult);
+            query.setMaxResults(maxResults);
+          }
 
           List dynamicEntities = query.getResultList();
 
@@ -256,9 +348,6 @@ public class DataStoreImpl implements DataStore {
     }
   }
 
-
-  // ----- helper methods ----------------------------------------------------
-
   // lazy initialize the data store
   private void checkInitialize() throws PersistenceException {
     if (!initialized) {
@@ -496,9 +585,52 @@ public class DataStoreImpl implements DataStore {
     return resource;
   }
 
+  /**
+   * Determine whether the given where clause has an ORDER BY clause.  String literals
+   * and parenthesized expressions are skipped.
+   *
+   * @param whereClause  the where clause; may be null
+   *
+   * @return true if the where clause has an ORDER BY clause
+   */
+  static boolean hasOrderByClause(String whereClause) {
+    if (whereClause == null) {
+      return false;
+    }
+    StringTokenizer tokenizer = new StringTokenizer(whereClause, " \t\n\r\f()'\"", true);
+    String          quote     = null;
+    int             depth     = 0;
+    boolean         order     = false;
+
+    while (tokenizer.hasMoreTokens()) {
+      String token = tokenizer.nextToken();
+
+      if (quote != null) {
+        if (token.equals(quote)) {
+          quote = null;
+        }
+      } else if (token.equals("'") || token.equals("\"")) {
+        quote = token;
+        order = false;
+      } else if (token.equals("(")) {
+        ++depth;
+        order = false;
+      } else if (token.equals(")")) {
+        --depth;
+        order = false;
+      } else if (!token.trim().isEmpty()) {
+        if (depth == 0 && order && token.equalsIgnoreCase("BY")) {
+          return true;
+        }
+        order = depth == 0 && token.equalsIgnoreCase("ORDER");
+      }
+    }
+    return false;
+  }
+
   // build a JPA select statement from the given view entity class and where clause
   private <T> String getSelectStatement(Class<T> clazz, String whereClause)
-      throws IntrospectionException {
+      throws IntrospectionException, IllegalAccessException {
     StringBuilder stringBuilder = new StringBuilder();
     String        entityName    = entityClassMap.get(clazz);
 
@@ -528,16 +660,7 @@ public class DataStoreImpl implements DataStore {
   // get a map of properties from the given view entity
   private Map<String, Object> getEntityProperties(Object entity)
       throws IntrospectionException, InvocationTargetException, IllegalAccessException {
-    Map<String, Object> properties = new HashMap<>();
-
-    for (PropertyDescriptor pd : Introspector.getBeanInfo(entity.getClass()).getPropertyDescriptors()) {
-      String name       = pd.getName();
-      Method readMethod = pd.getReadMethod();
-      if (readMethod != null) {
-        properties.put(name, readMethod.invoke(entity));
-      }
-    }
-    return properties;
+    return getEntityAccessor(entity.getClass()).getProperties(entity);
   }
 
   // set the properties on the given view entity from the given map of properties; convert all
@@ -545,49 +668,59 @@ public class DataStoreImpl implements DataStore {
   private void setEntityProperties(Object entity, Map<String, Object> properties)
       throws IntrospectionException, InvocationTargetException, IllegalAccessException,
       InstantiationException, NoSuchFieldException {
-    for (PropertyDescriptor pd : Introspector.getBeanInfo(entity.getClass()).getPropertyDescriptors()) {
-      String name = pd.getName();
-      if (properties.containsKey(name)) {
+    EntityAccessor accessor = getEntityAccessor(entity.getClass());
 
-        Method writeMethod = pd.getWriteMethod();
-        if (writeMethod != null) {
+    for (String name : accessor.getWritablePropertyNames()) {
+      if (properties.containsKey(name)) {
 
-          Object value = properties.get(name);
+        Object value = properties.get(name);
 
-          if (value instanceof Collection) {
-            Set<Object> newCollection = new HashSet<>();
+        if (value instanceof Collection) {
+          Set<Object> newCollection = new HashSet<>();
 
-            for (Object collectionValue: (Collection)value) {
+          for (Object collectionValue: (Collection)value) {
 
-              if (collectionValue instanceof DynamicEntity) {
+            if (collectionValue instanceof DynamicEntity) {
 
-                Class<?> clazz = entity.getClass();
-                Class<?> parameterizedTypeClass = getParameterizedTypeClass(clazz, pd.getName());
+              Class<?> clazz = entity.getClass();
+              Class<?> parameterizedTypeClass = getParameterizedTypeClass(clazz, name);
 
-                collectionValue = toEntity(parameterizedTypeClass,
-                    getDynamicEntityType(parameterizedTypeClass), (DynamicEntity) collectionValue);
-              }
-              if ( collectionValue != null) {
-                newCollection.add(collectionValue);
-              }
+              collectionValue = toEntity(parameterizedTypeClass,
+                  getDynamicEntityType(parameterizedTypeClass), (DynamicEntity) collectionValue);
             }
-            writeMethod.invoke(entity, newCollection);
-          } else {
-            if (value instanceof DynamicEntity) {
+            if ( collectionValue != null) {
+              newCollection.add(collectionValue);
+            }
+          }
+          accessor.setProperty(entity, name, newCollection);
+        } else {
+          if (value instanceof DynamicEntity) {
 
-              Class<?> clazz = pd.getPropertyType();
+            Class<?> clazz = accessor.getPropertyType(name);
 
-              value = toEntity(clazz, getDynamicEntityType(clazz), (DynamicEntity) value);
-            }
-            if ( value != null) {
-              writeMethod.invoke(entity, value);
-            }
+            value = toEntity(clazz, getDynamicEntityType(clazz), (DynamicEntity) value);
+          }
+          if ( value != null) {
+            accessor.setProperty(entity, name, value);
           }
         }
       }
     }
   }
 
+  // get the cached property accessors for the given view entity class
+  private EntityAccessor getEntityAccessor(Class<?> clazz) throws IntrospectionException, IllegalAccessException {
+    EntityAccessor accessor = accessorMap.get(clazz);
+    if (accessor == null) {
+      accessor = EntityAccessor.forClass(clazz);
+      EntityAccessor existing = accessorMap.putIfAbsent(clazz, accessor);
+      if (existing != null) {
+        accessor = existing;
+      }
+    }
+    return accessor;
+  }
+
   // determine whether or not a property of the given type should be a direct mapping in the dynamic entity
   private boolean isDirectMappingType(Class<?> propertyType) {
     return !Collection.class.isAssignableFrom(propertyType) && entityClassMap.get(propertyType) == null;
@@ -625,12 +758,8 @@ public class DataStoreImpl implements DataStore {
   }
 
   // get the property names for the given view entity class
-  private static Set<String> getPropertyNames(Class clazz) throws IntrospectionException {
-    Set<String> propertyNames = new HashSet<>();
-    for (PropertyDescriptor pd : Introspector.getBeanInfo(clazz).getPropertyDescriptors()) {
-      propertyNames.add(pd.getName());
-    }
-    return propertyNames;
+  private Set<String> getPropertyNames(Class clazz) throws IntrospectionException, IllegalAccessException {
+    return getEntityAccessor(clazz).getPropertyNames();
   }
 
   // get the parameterized type class for the given field of the given class
@@ -0,0 +1,243 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.view.persistence;
+
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Property accessors of a view entity class.  The bean properties are introspected once
+ * and read and written through method handles.  Setters with a primitive parameter are
+ * called through reflection, which applies the primitive widening conversions that a
+ * method handle adaptation does not.
+ */
+class EntityAccessor {
+
+  private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+  private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+  /**
+   * Names of all bean properties of the class.
+   */
+  private final Set<String> propertyNames;
+
+  /**
+   * Names of the writable bean properties of the class.
+   */
+  private final Set<String> writablePropertyNames;
+
+  /**
+   * Getters keyed by property name.
+   */
+  private final Map<String, MethodHandle> getters;
+
+  /**
+   * Setters keyed by property name.
+   */
+  private final Map<String, MethodHandle> setters;
+
+  /**
+   * Setters with a primitive parameter keyed by property name.
+   */
+  private final Map<String, Method> primitiveSetters;
+
+  /**
+   * Property types keyed by property name.
+   */
+  private final Map<String, Class<?>> propertyTypes;
+
+
+  // ----- Constructors ------------------------------------------------------
+
+  private EntityAccessor(Set<String> propertyNames, Map<String, MethodHandle> getters,
+                         Map<String, MethodHandle> setters, Map<String, Method> primitiveSetters,
+                         Map<String, Class<?>> propertyTypes, Set<String> writablePropertyNames) {
+    this.propertyNames         = propertyNames;
+    this.writablePropertyNames = writablePropertyNames;
+    this.getters               = getters;
+    this.setters               = setters;
+    this.primitiveSetters      = primitiveSetters;
+    this.propertyTypes         = propertyTypes;
+  }
+
+  /**
+   * Create the accessors for the given bean class.
+   *
+   * @param clazz  the view entity class
+   *
+   * @return the accessors
+   *
+   * @throws IntrospectionException if the class can not be introspected
+   * @throws IllegalAccessException if a property accessor is not accessible
+   */
+  static EntityAccessor forClass(Class<?> clazz) throws IntrospectionException, IllegalAccessException {
+    MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+    Map<String, MethodHandle> getters          = new LinkedHashMap<>();
+    Map<String, MethodHandle> setters          = new LinkedHashMap<>();
+    Map<String, Method>       primitiveSetters = new HashMap<>();
+    Map<String, Class<?>>     propertyTypes    = new HashMap<>();
+    Set<String>               names            = new LinkedHashSet<>();
+    Set<String>               writableNames    = new LinkedHashSet<>();
+
+    for (PropertyDescriptor pd : Introspector.getBeanInfo(clazz).getPropertyDescriptors()) {
+      String name = pd.getName();
+
+      names.add(name);
+      propertyTypes.put(name, pd.getPropertyType());
+
+      Method readMethod = pd.getReadMethod();
+      if (readMethod != null) {
+        getters.put(name, unreflect(lookup, readMethod).asType(GETTER_TYPE));
+      }
+      Method writeMethod = pd.getWriteMethod();
+      if (writeMethod != null) {
+        writableNames.add(name);
+        if (writeMethod.getParameterTypes()[0].isPrimitive()) {
+          if (!writeMethod.isAccessible()) {
+            writeMethod.setAccessible(true);
+          }
+          primitiveSetters.put(name, writeMethod);
+        } else {
+          setters.put(name, unreflect(lookup, writeMethod).asType(SETTER_TYPE));
+        }
+      }
+    }
+    return new EntityAccessor(Collections.unmodifiableSet(names), getters, setters, primitiveSetters,
+        propertyTypes, Collections.unmodifiableSet(writableNames));
+  }
+
+
+  // ----- EntityAccessor ----------------------------------------------------
+
+  /**
+   * @return the names of all the bean properties
+   */
+  Set<String> getPropertyNames() {
+    return propertyNames;
+  }
+
+  /**
+   * @return the names of the writable bean properties
+   */
+  Set<String> getWritablePropertyNames() {
+    return writablePropertyNames;
+  }
+
+  /**
+   * Get the type of the given property.
+   *
+   * @param name  the property name
+   *
+   * @return the property type; null if the class has no such property
+   */
+  Class<?> getPropertyType(String name) {
+    return propertyTypes.get(name);
+  }
+
+  /**
+   * Get the values of all the readable properties of the given entity.
+   *
+   * @param entity  the view entity
+   *
+   * @return the property values keyed by property name
+   *
+   * @throws InvocationTargetException if a getter throws an exception
+   */
+  Map<String, Object> getProperties(Object entity) throws InvocationTargetException {
+    Map<String, Object> properties = new HashMap<>();
+    for (Map.Entry<String, MethodHandle> entry : getters.entrySet()) {
+      properties.put(entry.getKey(), invokeGetter(entry.getValue(), entity));
+    }
+    return properties;
+  }
+
+  /**
+   * Get the value of the given property of the given entity.
+   *
+   * @param entity  the view entity
+   * @param name    the property name
+   *
+   * @return the property value; null if the property is not readable
+   *
+   * @throws InvocationTargetException if the getter throws an exception
+   */
+  Object getProperty(Object entity, String name) throws InvocationTargetException {
+    MethodHandle getter = getters.get(name);
+    return getter == null ? null : invokeGetter(getter, entity);
+  }
+
+  /**
+   * Set the value of the given property of the given entity.
+   *
+   * @param entity  the view entity
+   * @param name    the property name
+   * @param value   the value
+   *
+   * @throws InvocationTargetException if the setter throws an exception
+   * @throws IllegalAccessException if the setter is not accessible
+   */
+  void setProperty(Object entity, String name, Object value)
+      throws InvocationTargetException, IllegalAccessException {
+    MethodHandle setter = setters.get(name);
+    if (setter != null) {
+      try {
+        setter.invokeExact(entity, value);
+      } catch (Throwable t) {
+        throw new InvocationTargetException(t);
+      }
+    } else {
+      Method primitiveSetter = primitiveSetters.get(name);
+      if (primitiveSetter != null) {
+        primitiveSetter.invoke(entity, value);
+      }
+    }
+  }
+
+
+  // ----- helper methods ----------------------------------------------------
+
+  private static Object invokeGetter(MethodHandle getter, Object entity) throws InvocationTargetException {
+    try {
+      return getter.invokeExact(entity);
+    } catch (Throwable t) {
+      throw new InvocationTargetException(t);
+    }
+  }
+
+  // view entity classes are public but may be declared in a non-public class
+  private static MethodHandle unreflect(MethodHandles.Lookup lookup, Method method) throws IllegalAccessException {
+    if (!method.isAccessible()) {
+      method.setAccessible(true);
+    }
+    return lookup.unreflect(method);
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.agent;
+
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ambari.server.AmbariException;
+import org.apache.ambari.server.configuration.Configuration;
+import org.junit.Test;
+
+import com.google.inject.Guice;
+import com.google.inject.persist.UnitOfWork;
+
+/**
+ * AgentReportsProcessor tests.
+ */
+public class AgentReportsProcessorTest {
+
+  @Test
+  public void testCoalesceStatusReports() {
+    AgentReport first = statusReport("h1", status("DATANODE", "INSTALLED"), status("NAMENODE", "STARTED"));
+    AgentReport other = statusReport("h2", status("DATANODE", "STARTED"));
+    AgentReport second = statusReport("h1", status("DATANODE", "STARTED"));
+
+    List<AgentReport> coalesced = AgentReportsProcessor.coalesce(Arrays.asList(first, other, second));
+
+    assertEquals(2, coalesced.size());
+    assertEquals("h1", coalesced.get(0).getHostName());
+    assertSame(other, coalesced.get(1));
+
+    List<ComponentStatus> statuses = ((ComponentStatusAgentReport) coalesced.get(0)).getReport();
+    assertEquals(2, statuses.size());
+    assertEquals("NAMENODE", statuses.get(0).getComponentName());
+    assertEquals("STARTED", statuses.get(0).getStatus());
+    assertEquals("DATANODE", statuses.get(1).getComponentName());
+    assertEquals("STARTED", statuses.get(1).getStatus());
+  }
+
+  @Test
+  public void testCoalesceKeepsOrderAroundOtherReports() {
+    AgentReport first = statusReport("h1", status("DATANODE", "INSTALLED"));
+    AgentReport command = new CommandStatusAgentReport(null, "h1", Collections.emptyList());
+    AgentReport second = statusReport("h1", status("DATANODE", "STARTED"));
+
+    List<AgentReport> coalesced = AgentReportsProcessor.coalesce(Arrays.asList(first, command, second));
+
+    assertEquals(Arrays.asList(first, command, second), coalesced);
+  }
+
+  @Test
+  public void testEachReportHasItsOwnUnitOfWork() throws Exception {
+    Configuration configuration = createNiceMock(Configuration.class);
+    expect(configuration.getAgentsReportThreadPoolSize()).andReturn(1).anyTimes();
+    replay(configuration);
+
+    int reportCount = 3;
+    CountingUnitOfWork unitOfWork = new CountingUnitOfWork(reportCount);
+    AgentReportsProcessor processor = Guice.createInjector(binder -> {
+      // a provider, so that the mock is not injected
+      binder.bind(Configuration.class).toProvider(() -> configuration);
+      binder.bind(UnitOfWork.class).toInstance(unitOfWork);
+    }).getInstance(AgentReportsProcessor.class);
+
+    List<Integer> unitsOfWork = Collections.synchronizedList(new ArrayList<>());
+    for (int i = 0; i < reportCount; i++) {
+      boolean fail = i == 1;
+      processor.addAgentReport(new AgentReport<Void>("h" + i, null) {
+        @Override
+        protected void process(Void report, String hostName) throws AmbariException {
+          unitsOfWork.add(unitOfWork.begun.get());
+          if (fail) {
+            throw new AmbariException("failed");
+          }
+        }
+      });
+    }
+
+    assertTrue(unitOfWork.ended.await(5, TimeUnit.SECONDS));
+    // a failing report does not end the unit of work of the others
+    assertEquals(Arrays.asList(1, 2, 3), unitsOfWork);
+    assertFalse(unitOfWork.nested);
+  }
+
+  private static AgentReport statusReport(String hostName, ComponentStatus... statuses) {
+    return new ComponentStatusAgentReport(null, hostName, new ArrayList<>(Arrays.asList(statuses)));
+  }
+
+  private static ComponentStatus status(String componentName, String state) {
+    ComponentStatus status = new ComponentStatus();
+    status.setClusterId(1L);
+    status.setServiceName("HDFS");
+    status.setComponentName(componentName);
+    status.setStatus(state);
+    return status;
+  }
+
+  /**
+   * Counts units of work and records whether one was begun inside another.
+   */
+  private static class CountingUnitOfWork implements UnitOfWork {
+    private final AtomicInteger begun = new AtomicInteger();
+    private final CountDownLatch ended;
+    private volatile boolean working;
+    private volatile boolean nested;
+
+    private CountingUnitOfWork(int count) {
+      ended = new CountDownLatch(count);
+    }
+
+    @Override
+    public void begin() {
+      nested |= working;
+      working = true;
+      begun.incrementAndGet();
+    }
+
+    @Override
+    public void end() {
+      working = false;
+      ended.countDown();
+    }
+  }
+}
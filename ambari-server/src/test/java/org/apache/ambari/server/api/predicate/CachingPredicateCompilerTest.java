@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.api.predicate;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.apache.ambari.server.controller.spi.Predicate;
+import org.junit.Test;
+
+/**
+ * CachingPredicateCompiler and QueryPlan unit tests.
+ */
+public class CachingPredicateCompilerTest {
+
+  private static final List<String> QUERIES = Arrays.asList(
+      "a=1",
+      "foo=bar&(a<1&(b<=2|c>3)&d>=100)|e!=5&!(f=6|g=7)",
+      "Hosts/host_name.in(Host1.example.com,host2.example.com)&Hosts/maintenance_state!=ON",
+      "HostRoles/component_name=DATANODE&HostRoles/state.in(STARTED,INSTALLED)&fields=HostRoles/state,Hosts/*&_=1501",
+      "fields=Hosts/host_name&minimal_response=true&Hosts/host_status=HEALTHY&page_size=10&from=0",
+      "Hosts/host_name.matches(.*example.com)|Hosts/rack_info.isEmpty()",
+      "Hosts/host_name.matches(host(1|2).*)",
+      "!(a=b)&c.isEmpty()",
+      "_=1501&fields=Hosts/*",
+      "a=b?c&d=?");
+
+  @Test
+  public void testPlanBindsToLexerTokens() throws Exception {
+    QueryLexer lexer = new QueryLexer();
+    Collection<String> ignored = Collections.singleton("Hosts/maintenance_state");
+    for (String query : QUERIES) {
+      for (Collection<String> ignoredProperties : Arrays.<Collection<String>>asList(Collections.emptySet(), ignored)) {
+        QueryPlan.Shape shape = QueryPlan.shape(query);
+        if (shape == null) {
+          continue;
+        }
+        QueryPlan plan = QueryPlan.create(new QueryLexer(), new QueryParser(), shape, ignoredProperties);
+        assertTrue(query, plan.isCacheable());
+        assertArrayEquals(query, lexer.tokens(query, ignoredProperties), plan.bind(plan.getBoundValues(shape)));
+      }
+    }
+  }
+
+  @Test
+  public void testShape() {
+    QueryPlan.Shape shape = QueryPlan.shape("Hosts/host_name.in(h1,h2)&Hosts/cpu_count>=4&_=1501");
+    assertNotNull(shape);
+    assertEquals("Hosts/host_name.in(?)&Hosts/cpu_count>=?&_=?", shape.getText());
+    assertEquals(Arrays.asList("h1,h2", "4", "1501"), shape.getValues());
+
+    // values spanning several tokens are not planned
+    assertNull(QueryPlan.shape("Hosts/host_name.matches(host(1|2).*)"));
+    assertNull(QueryPlan.shape("a=&b=c"));
+  }
+
+  @Test
+  public void testCompileMatchesPredicateCompiler() throws Exception {
+    PredicateCompiler compiler = new PredicateCompiler();
+    CachingPredicateCompiler cachingCompiler = new CachingPredicateCompiler(10, 10);
+    Collection<String> ignored = new HashSet<>(Collections.singleton("Hosts/maintenance_state"));
+    for (int i = 0; i < 2; i++) {
+      for (String query : QUERIES) {
+        assertEquals(query, compiler.compile(query), cachingCompiler.compile(query));
+        assertEquals(query, compiler.compile(query, ignored), cachingCompiler.compile(query, ignored));
+      }
+    }
+  }
+
+  @Test
+  public void testIgnoredValuesShareThePredicate() throws Exception {
+    CachingPredicateCompiler compiler = new CachingPredicateCompiler(10, 10);
+    Predicate first = compiler.compile("Hosts/host_name.in(h1,h2)&fields=Hosts/*&_=1501");
+    Predicate second = compiler.compile("Hosts/host_name.in(h1,h2)&fields=Hosts/*&_=1502");
+    Predicate other = compiler.compile("Hosts/host_name.in(h3)&fields=Hosts/*&_=1503");
+
+    assertSame(first, second);
+    assertNotSame(first, other);
+    assertEquals(new PredicateCompiler().compile("Hosts/host_name.in(h3)"), other);
+
+    assertEquals(3, compiler.getPlanCacheStatistics().requestCount());
+    assertEquals(2, compiler.getPlanCacheStatistics().hitCount());
+    assertEquals(1, compiler.getPredicateCacheStatistics().hitCount());
+    assertEquals(2, compiler.getPredicateCacheStatistics().missCount());
+    assertEquals(1, compiler.getPlanCacheSize());
+    assertEquals(2, compiler.getPredicateCacheSize());
+  }
+
+  @Test
+  public void testValuesAreBoundIntoThePlannedExpression() throws Exception {
+    PredicateCompiler compiler = new PredicateCompiler();
+    CachingPredicateCompiler cachingCompiler = new CachingPredicateCompiler(10, 10);
+    List<String> queries = Arrays.asList(
+        "Hosts/host_name=HOST1.example.com&!(Hosts/rack_info.in(r1,r2)|Hosts/cpu_count>4)",
+        "Hosts/host_name=Host2.Example.com&!(Hosts/rack_info.in(r3)|Hosts/cpu_count>8)",
+        "Hosts/host_name=host3&!(Hosts/rack_info.in(R4,r5,r6)|Hosts/cpu_count>16)");
+    for (String query : queries) {
+      assertEquals(query, compiler.compile(query), cachingCompiler.compile(query));
+    }
+    assertEquals(1, cachingCompiler.getPlanCacheSize());
+    assertEquals(3, cachingCompiler.getPredicateCacheSize());
+
+    QueryPlan.Shape shape = QueryPlan.shape(queries.get(0));
+    QueryPlan plan = QueryPlan.create(new QueryLexer(), new QueryParser(), shape, Collections.emptySet());
+    assertTrue(plan.isParsed());
+    assertEquals(compiler.compile(queries.get(2)),
+        plan.toPredicate(QueryPlan.shape(queries.get(2)).getValues()));
+  }
+
+  @Test
+  public void testIgnoredPropertiesArePartOfThePlan() throws Exception {
+    CachingPredicateCompiler compiler = new CachingPredicateCompiler(10, 10);
+    String query = "a=1&b=2";
+    Predicate all = compiler.compile(query);
+    Predicate withoutB = compiler.compile(query, Collections.singleton("b"));
+
+    assertEquals(new PredicateCompiler().compile("a=1"), withoutB);
+    assertFalse(all.equals(withoutB));
+    assertEquals(2, compiler.getPlanCacheSize());
+  }
+
+  @Test
+  public void testOnlyIgnoredProperties() throws Exception {
+    CachingPredicateCompiler compiler = new CachingPredicateCompiler(10, 10);
+    assertNull(compiler.compile("fields=Hosts/*&_=1"));
+    assertNull(compiler.compile("fields=Hosts/*&_=2"));
+    assertEquals(1, compiler.getPredicateCacheStatistics().hitCount());
+  }
+
+  @Test
+  public void testInvalidQuery() throws Exception {
+    CachingPredicateCompiler compiler = new CachingPredicateCompiler(10, 10);
+    for (String query : Arrays.asList("a=1&(b=2", "a=1)", "a==1", "=1", "a.in(1")) {
+      for (int i = 0; i < 2; i++) {
+        try {
+          compiler.compile(query);
+          fail("Expected InvalidQueryException for " + query);
+        } catch (InvalidQueryException e) {
+          // expected
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testDisabled() throws Exception {
+    CachingPredicateCompiler compiler = new CachingPredicateCompiler(0, 0);
+    assertEquals(new PredicateCompiler().compile("a=1&b.in(2,3)"), compiler.compile("a=1&b.in(2,3)"));
+    assertEquals(0, compiler.getPlanCacheStatistics().requestCount());
+  }
+}
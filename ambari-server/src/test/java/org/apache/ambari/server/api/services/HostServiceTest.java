@@ -19,18 +19,46 @@
 
 package org.apache.ambari.server.api.services;
 
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.reset;
+import static org.easymock.EasyMock.verify;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import java.lang.reflect.Method;
+import java.net.URI;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
 
+import org.apache.ambari.server.api.predicate.QueryLexer;
+import org.apache.ambari.server.api.resources.ResourceDefinition;
 import org.apache.ambari.server.api.resources.ResourceInstance;
 import org.apache.ambari.server.api.services.parsers.RequestBodyParser;
 import org.apache.ambari.server.api.services.serializers.ResultSerializer;
+import org.apache.ambari.server.configuration.Configuration;
+import org.apache.ambari.server.controller.internal.ResourceImpl;
+import org.apache.ambari.server.controller.spi.Predicate;
+import org.apache.ambari.server.controller.spi.Resource;
+import org.apache.ambari.server.events.HostUpdateEvent;
+import org.apache.ambari.server.events.publishers.AmbariEventPublisher;
+import org.apache.ambari.server.events.publishers.STOMPUpdatePublisher;
+import org.junit.After;
+import org.junit.Test;
+
+import com.sun.jersey.core.util.MultivaluedMapImpl;
 
 /**
  * Unit tests for HostService.
@@ -85,6 +113,145 @@ public class HostServiceTest extends BaseServiceTest {
     return listInvocations;
   }
 
+  @After
+  public void clearResourceChangeTracker() {
+    BaseService.setResourceChangeTracker(null);
+  }
+
+  @Test
+  public void testGetHostsNotModified() throws Exception {
+    ResourceChangeTracker tracker = createTracker();
+    BaseService.setResourceChangeTracker(tracker);
+    String version = Long.toString(tracker.getVersion(Resource.Type.Host));
+
+    Response response = invokeHosts(Request.Type.GET, null, null, new RequestBody());
+    assertEquals(200, response.getStatus());
+    assertEquals(version, header(response, ResourceChangeTracker.VERSION_HEADER));
+    assertNull(header(response, ResourceChangeTracker.DELTA_HEADER));
+    String eTag = header(response, HttpHeaders.ETAG);
+    assertNotNull(eTag);
+
+    // neither request is processed
+    response = invokeHosts(Request.Type.GET, null, eTag, null);
+    assertEquals(304, response.getStatus());
+    assertEquals(eTag, header(response, HttpHeaders.ETAG));
+    assertEquals(version, header(response, ResourceChangeTracker.VERSION_HEADER));
+
+    response = invokeHosts(Request.Type.GET, version, null, null);
+    assertEquals(304, response.getStatus());
+  }
+
+  @Test
+  public void testGetHostsDelta() throws Exception {
+    ResourceChangeTracker tracker = createTracker();
+    BaseService.setResourceChangeTracker(tracker);
+    long version = tracker.getVersion(Resource.Type.Host);
+
+    tracker.onHostUpdate(new HostUpdateEvent("c1", "h1", "HEALTHY", null, null, null, null));
+
+    RequestBody requestBody = new RequestBody();
+    Response response = invokeHosts(Request.Type.GET, Long.toString(version), null, requestBody);
+    assertEquals(200, response.getStatus());
+    assertEquals("true", header(response, ResourceChangeTracker.DELTA_HEADER));
+    assertEquals(Long.toString(tracker.getVersion(Resource.Type.Host)),
+        header(response, ResourceChangeTracker.VERSION_HEADER));
+
+    // only the changed host is read
+    Predicate deltaPredicate = requestBody.getDeltaPredicate();
+    assertTrue(deltaPredicate.evaluate(host("h1")));
+    assertFalse(deltaPredicate.evaluate(host("h2")));
+  }
+
+  @Test
+  public void testGetHostsFullResponseAfterReset() throws Exception {
+    ResourceChangeTracker tracker = createTracker();
+    BaseService.setResourceChangeTracker(tracker);
+    long version = tracker.getVersion(Resource.Type.Host);
+
+    // a modification through the API forgets the history
+    Response response = invokeHosts(Request.Type.PUT, null, null, new RequestBody());
+    assertEquals(200, response.getStatus());
+    assertTrue(tracker.getVersion(Resource.Type.Host) > version);
+
+    RequestBody requestBody = new RequestBody();
+    response = invokeHosts(Request.Type.GET, Long.toString(version), null, requestBody);
+    assertEquals(200, response.getStatus());
+    assertEquals("false", header(response, ResourceChangeTracker.DELTA_HEADER));
+    assertEquals(Long.toString(tracker.getVersion(Resource.Type.Host)),
+        header(response, ResourceChangeTracker.VERSION_HEADER));
+    assertNull(requestBody.getDeltaPredicate());
+  }
+
+  /**
+   * Invoke getHosts or updateHosts.
+   *
+   * @param requestType  GET or PUT
+   * @param since        the version given with the since parameter; may be null
+   * @param ifNoneMatch  the If-None-Match header; may be null
+   * @param requestBody  the body processed by the request; null if the request is not expected to be processed
+   */
+  private Response invokeHosts(Request.Type requestType, String since, String ifNoneMatch,
+                               RequestBody requestBody) throws Exception {
+    reset(resourceInstance, requestFactory, request, result, bodyParser, serializer, httpHeaders, uriInfo);
+
+    ResourceDefinition definition = createNiceMock(ResourceDefinition.class);
+    expect(definition.getType()).andReturn(Resource.Type.Host).anyTimes();
+    expect(definition.getReadDirectives()).andReturn(Collections.emptySet()).anyTimes();
+    replay(definition);
+    expect(resourceInstance.getResourceDefinition()).andReturn(definition).anyTimes();
+    expect(resourceInstance.isCollectionResource()).andReturn(true).anyTimes();
+
+    MultivaluedMap<String, String> parameters = new MultivaluedMapImpl();
+    String query = "";
+    if (since != null) {
+      parameters.putSingle(QueryLexer.QUERY_SINCE, since);
+      query = "?" + QueryLexer.QUERY_SINCE + "=" + since;
+    }
+    expect(uriInfo.getQueryParameters()).andReturn(parameters).anyTimes();
+    expect(uriInfo.getRequestUri()).andReturn(
+        new URI("http://localhost:8080/api/v1/clusters/clusterName/hosts" + query)).anyTimes();
+    expect(uriInfo.getPath()).andReturn("clusters/clusterName/hosts").anyTimes();
+    expect(httpHeaders.getRequestHeader(HttpHeaders.IF_NONE_MATCH)).andReturn(
+        ifNoneMatch == null ? null : Collections.singletonList(ifNoneMatch)).anyTimes();
+
+    String body = requestType == Request.Type.GET ? null : "body";
+    if (requestBody != null) {
+      expect(requestFactory.createRequest(eq(httpHeaders), anyObject(RequestBody.class), eq(uriInfo),
+          eq(requestType), eq(resourceInstance))).andReturn(request).times(2);
+      expect(bodyParser.parse(body)).andReturn(Collections.singleton(requestBody));
+      expect(request.process()).andReturn(result);
+      expect(result.getStatus()).andReturn(new ResultStatus(ResultStatus.STATUS.OK)).anyTimes();
+      expect(serializer.serialize(result)).andReturn(serializedResult);
+    }
+    replay(resourceInstance, requestFactory, request, result, bodyParser, serializer, httpHeaders, uriInfo);
+
+    HostService service = new TestHostService("clusterName", null);
+    Response response = requestType == Request.Type.GET ?
+        service.getHosts(body, httpHeaders, uriInfo) : service.updateHosts(body, httpHeaders, uriInfo);
+
+    verify(resourceInstance, requestFactory, request, result, bodyParser, serializer);
+    return response;
+  }
+
+  private static String header(Response response, String name) {
+    Object value = response.getMetadata().getFirst(name);
+    return value == null ? null : value.toString();
+  }
+
+  private static Resource host(String hostName) {
+    Resource resource = new ResourceImpl(Resource.Type.Host);
+    resource.setProperty("Hosts/host_name", hostName);
+    return resource;
+  }
+
+  private static ResourceChangeTracker createTracker() {
+    Configuration configuration = createNiceMock(Configuration.class);
+    expect(configuration.getApiResourceVersioningHistorySize()).andReturn(100).anyTimes();
+    replay(configuration);
+    return new ResourceChangeTracker(configuration, createNiceMock(STOMPUpdatePublisher.class),
+        createNiceMock(AmbariEventPublisher.class));
+  }
+
   private class TestHostService extends HostService {
     private String m_clusterId;
     private String m_hostId;
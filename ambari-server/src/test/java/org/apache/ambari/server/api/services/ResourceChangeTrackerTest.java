@@ -0,0 +1,284 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.api.services;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.ws.rs.core.MultivaluedMap;
+
+import org.apache.ambari.server.api.resources.ResourceDefinition;
+import org.apache.ambari.server.api.resources.ResourceInstance;
+import org.apache.ambari.server.configuration.Configuration;
+import org.apache.ambari.server.controller.internal.ResourceImpl;
+import org.apache.ambari.server.controller.spi.Predicate;
+import org.apache.ambari.server.controller.spi.Resource;
+import org.apache.ambari.server.events.AlertUpdateEvent;
+import org.apache.ambari.server.events.HostComponentUpdate;
+import org.apache.ambari.server.events.HostComponentsUpdateEvent;
+import org.apache.ambari.server.events.HostUpdateEvent;
+import org.apache.ambari.server.events.HostsAddedEvent;
+import org.apache.ambari.server.events.RequestUpdateEvent;
+import org.apache.ambari.server.events.publishers.AmbariEventPublisher;
+import org.apache.ambari.server.events.publishers.STOMPUpdatePublisher;
+import org.apache.ambari.server.state.MaintenanceState;
+import org.junit.Test;
+
+import com.sun.jersey.core.util.MultivaluedMapImpl;
+
+/**
+ * ResourceChangeTracker tests.
+ */
+public class ResourceChangeTrackerTest {
+
+  @Test
+  public void testHostUpdate() {
+    ResourceChangeTracker tracker = createTracker(100);
+    long version = tracker.getVersion(Resource.Type.Host);
+
+    tracker.onHostUpdate(hostUpdate("h1"));
+
+    assertTrue(tracker.getVersion(Resource.Type.Host) > version);
+    assertEquals(version, tracker.getVersion(Resource.Type.Request));
+
+    Predicate predicate = tracker.getChangedSince(Resource.Type.Host, version);
+    assertTrue(predicate.evaluate(host("h1")));
+    assertFalse(predicate.evaluate(host("h2")));
+
+    // nothing changed since the current version
+    predicate = tracker.getChangedSince(Resource.Type.Host, tracker.getVersion(Resource.Type.Host));
+    assertFalse(predicate.evaluate(host("h1")));
+  }
+
+  @Test
+  public void testHostComponentsUpdate() {
+    ResourceChangeTracker tracker = createTracker(100);
+    long version = tracker.getVersion(Resource.Type.HostComponent);
+
+    tracker.onHostComponentsUpdate(new HostComponentsUpdateEvent(Collections.singletonList(
+        HostComponentUpdate.createHostComponentMaintenanceStatusUpdate(1L, "HDFS", "h1", "DATANODE",
+            MaintenanceState.ON))));
+
+    Predicate predicate = tracker.getChangedSince(Resource.Type.HostComponent, version);
+    assertTrue(predicate.evaluate(hostComponent("h1", "DATANODE")));
+    assertFalse(predicate.evaluate(hostComponent("h1", "NAMENODE")));
+    assertFalse(predicate.evaluate(hostComponent("h2", "DATANODE")));
+
+    // the host of the component changed as well
+    assertTrue(tracker.getChangedSince(Resource.Type.Host, version).evaluate(host("h1")));
+  }
+
+  @Test
+  public void testRequestAndAlertUpdate() {
+    ResourceChangeTracker tracker = createTracker(100);
+    long requestVersion = tracker.getVersion(Resource.Type.Request);
+    long alertVersion = tracker.getVersion(Resource.Type.Alert);
+
+    tracker.onRequestUpdate(new RequestUpdateEvent(5L, null, Collections.emptySet()));
+    tracker.onAlertUpdate(new AlertUpdateEvent(Collections.singletonMap(1L,
+        Collections.singletonMap("datanode_process", null))));
+
+    Resource request = new ResourceImpl(Resource.Type.Request);
+    request.setProperty("Requests/id", 5L);
+    assertTrue(tracker.getChangedSince(Resource.Type.Request, requestVersion).evaluate(request));
+
+    Resource alert = new ResourceImpl(Resource.Type.Alert);
+    alert.setProperty("Alert/definition_name", "datanode_process");
+    assertTrue(tracker.getChangedSince(Resource.Type.Alert, alertVersion).evaluate(alert));
+  }
+
+  @Test
+  public void testResetForgetsHistory() {
+    ResourceChangeTracker tracker = createTracker(100);
+    long version = tracker.getVersion(Resource.Type.Host);
+
+    tracker.onHostUpdate(hostUpdate("h1"));
+    tracker.onHostsAdded(new HostsAddedEvent(1L, Collections.singleton("h2")));
+
+    assertNull(tracker.getChangedSince(Resource.Type.Host, version));
+    assertTrue(tracker.getVersion(Resource.Type.Host) > version);
+
+    version = tracker.getVersion(Resource.Type.Request);
+    tracker.resetAll();
+    assertNull(tracker.getChangedSince(Resource.Type.Request, version));
+  }
+
+  @Test
+  public void testHistorySize() {
+    ResourceChangeTracker tracker = createTracker(2);
+    long version = tracker.getVersion(Resource.Type.Host);
+
+    tracker.onHostUpdate(hostUpdate("h1"));
+    long firstVersion = tracker.getVersion(Resource.Type.Host);
+    tracker.onHostUpdate(hostUpdate("h2"));
+    tracker.onHostUpdate(hostUpdate("h3"));
+
+    assertNull(tracker.getChangedSince(Resource.Type.Host, version));
+
+    Predicate predicate = tracker.getChangedSince(Resource.Type.Host, firstVersion);
+    assertFalse(predicate.evaluate(host("h1")));
+    assertTrue(predicate.evaluate(host("h2")));
+    assertTrue(predicate.evaluate(host("h3")));
+  }
+
+  @Test
+  public void testConcurrentUpdatesAreNotMissed() throws Exception {
+    int threadCount = 4;
+    int updateCount = 1000;
+    ResourceChangeTracker tracker = createTracker(threadCount * updateCount);
+    long version = tracker.getVersion(Resource.Type.Host);
+
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < threadCount; i++) {
+      String prefix = "t" + i + "-";
+      threads.add(new Thread(() -> {
+        for (int j = 0; j < updateCount; j++) {
+          tracker.onHostUpdate(hostUpdate(prefix + j));
+        }
+      }));
+    }
+    threads.forEach(Thread::start);
+
+    // poll for deltas the way a client does, each since the version of the previous poll
+    Set<String> seen = new HashSet<>();
+    boolean running = true;
+    while (running) {
+      running = threads.stream().anyMatch(Thread::isAlive);
+      long latest = tracker.getVersion(Resource.Type.Host);
+      Predicate predicate = tracker.getChangedSince(Resource.Type.Host, version);
+      for (int i = 0; i < threadCount; i++) {
+        for (int j = 0; j < updateCount; j++) {
+          if (predicate.evaluate(host("t" + i + "-" + j))) {
+            seen.add("t" + i + "-" + j);
+          }
+        }
+      }
+      version = latest;
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertEquals(threadCount * updateCount, seen.size());
+  }
+
+  @Test
+  public void testIsTracked() {
+    ResourceChangeTracker tracker = createTracker(100);
+    ResourceInstance hosts = resource(Resource.Type.Host, true);
+
+    assertTrue(tracker.isTracked(hosts, parameters(), null));
+    assertTrue(tracker.isTracked(hosts,
+        parameters("fields", "Hosts/host_status,Hosts/maintenance_state,host_components/HostRoles/state",
+            "sortBy", "Hosts/host_name.desc"), null));
+    assertTrue(tracker.isTracked(hosts, parameters("fields", "Hosts/host_status"),
+        "fields=Hosts/host_status&Hosts/host_state=HEALTHY&_=1234"));
+
+    assertFalse(tracker.isTracked(hosts, parameters("fields", "Hosts/*"), null));
+    assertFalse(tracker.isTracked(hosts, parameters("fields", "host_components/HostRoles/desired_state"), null));
+    assertFalse(tracker.isTracked(hosts, parameters("fields", "metrics/cpu[1,2,3]"), null));
+    assertFalse(tracker.isTracked(hosts, parameters("sortBy", "Hosts/cpu_count.asc"), null));
+    assertFalse(tracker.isTracked(hosts, parameters(), "Hosts/cpu_count>2"));
+    assertFalse(tracker.isTracked(hosts, parameters("format", "summary"), null));
+
+    assertTrue(tracker.isTracked(resource(Resource.Type.Request, false), parameters("fields", "Requests/*"), null));
+    assertFalse(tracker.isTracked(resource(Resource.Type.Request, false), parameters(), null));
+    assertTrue(tracker.isTracked(resource(Resource.Type.Alert, true), parameters("format", "summary"), null));
+    assertFalse(tracker.isTracked(resource(Resource.Type.Cluster, true), parameters(), null));
+  }
+
+  @Test
+  public void testETag() {
+    String eTag = ResourceChangeTracker.getETag(10L, "admin", "hosts", parameters("fields", "Hosts/host_status", "_", "1"));
+
+    assertTrue(eTag.startsWith("\"10-"));
+    assertEquals(eTag, ResourceChangeTracker.getETag(10L, "admin", "hosts",
+        parameters("fields", "Hosts/host_status", "_", "2")));
+    assertFalse(eTag.equals(ResourceChangeTracker.getETag(11L, "admin", "hosts",
+        parameters("fields", "Hosts/host_status"))));
+    assertFalse(eTag.equals(ResourceChangeTracker.getETag(10L, "user", "hosts",
+        parameters("fields", "Hosts/host_status"))));
+
+    assertTrue(ResourceChangeTracker.matches(Collections.singletonList(eTag), eTag));
+    assertTrue(ResourceChangeTracker.matches(Collections.singletonList("\"1-0\", W/" + eTag), eTag));
+    assertFalse(ResourceChangeTracker.matches(Arrays.asList("\"1-0\"", "*"), eTag));
+    assertFalse(ResourceChangeTracker.matches(null, eTag));
+  }
+
+  private static ResourceChangeTracker createTracker(int historySize) {
+    Configuration configuration = createNiceMock(Configuration.class);
+    expect(configuration.getApiResourceVersioningHistorySize()).andReturn(historySize).anyTimes();
+    STOMPUpdatePublisher stompUpdatePublisher = createNiceMock(STOMPUpdatePublisher.class);
+    stompUpdatePublisher.register(anyObject());
+    expectLastCall().once();
+    AmbariEventPublisher ambariEventPublisher = createNiceMock(AmbariEventPublisher.class);
+    replay(configuration, stompUpdatePublisher, ambariEventPublisher);
+
+    return new ResourceChangeTracker(configuration, stompUpdatePublisher, ambariEventPublisher);
+  }
+
+  private static HostUpdateEvent hostUpdate(String hostName) {
+    return new HostUpdateEvent("c1", hostName, "HEALTHY", null, null, null, null);
+  }
+
+  private static Resource host(String hostName) {
+    Resource resource = new ResourceImpl(Resource.Type.Host);
+    resource.setProperty("Hosts/host_name", hostName);
+    return resource;
+  }
+
+  private static Resource hostComponent(String hostName, String componentName) {
+    Resource resource = new ResourceImpl(Resource.Type.HostComponent);
+    resource.setProperty("HostRoles/host_name", hostName);
+    resource.setProperty("HostRoles/component_name", componentName);
+    return resource;
+  }
+
+  private static ResourceInstance resource(Resource.Type type, boolean collection) {
+    ResourceDefinition definition = createNiceMock(ResourceDefinition.class);
+    expect(definition.getType()).andReturn(type).anyTimes();
+    expect(definition.getReadDirectives()).andReturn(Collections.emptySet()).anyTimes();
+    ResourceInstance resource = createNiceMock(ResourceInstance.class);
+    expect(resource.getResourceDefinition()).andReturn(definition).anyTimes();
+    expect(resource.isCollectionResource()).andReturn(collection).anyTimes();
+    replay(definition, resource);
+    return resource;
+  }
+
+  private static MultivaluedMap<String, String> parameters(String... keysAndValues) {
+    MultivaluedMap<String, String> parameters = new MultivaluedMapImpl();
+    for (int i = 0; i < keysAndValues.length; i += 2) {
+      parameters.add(keysAndValues[i], keysAndValues[i + 1]);
+    }
+    return parameters;
+  }
+}
@@ -24,6 +24,7 @@ import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
 import static org.junit.Assert.assertEquals;
 
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -244,5 +245,42 @@ public class JsonSerializerTest {
     String  json = new JsonSerializer().serialize(result).toString().replace("\r", "");
     assertEquals(expected, json);
   }
-  
+
+  @Test
+  public void testSerializeProviderTiming() throws Exception {
+    Resource resource = createMock(Resource.class);
+
+    Result result = new ResultImpl(true);
+    result.setResultStatus(new ResultStatus(ResultStatus.STATUS.OK));
+    TreeNode<Resource> tree = result.getResultTree();
+    TreeNode<Resource> itemsNode = tree.addChild(null, "items");
+    itemsNode.addChild(resource, "resource1");
+
+    Map<String, Long> timings = new LinkedHashMap<>();
+    timings.put("Host/AlertSummaryPropertyProvider", 3L);
+    timings.put("Host/MetricsHostPropertyProvider", 42L);
+    itemsNode.setProperty("provider_timing", timings);
+
+    Map<String, Map<String, Object>> propertyMap = new LinkedHashMap<>();
+    propertyMap.put(null, new LinkedHashMap<>(Collections.singletonMap("prop1", "value1")));
+
+    expect(resource.getPropertiesMap()).andReturn(propertyMap).anyTimes();
+    replay(resource);
+
+    String expected = "{\n" +
+        "  \"provider_timing\" : {\n" +
+        "    \"Host/AlertSummaryPropertyProvider\" : 3,\n" +
+        "    \"Host/MetricsHostPropertyProvider\" : 42\n" +
+        "  },\n" +
+        "  \"items\" : [\n" +
+        "    {\n" +
+        "      \"prop1\" : \"value1\"\n" +
+        "    }\n" +
+        "  ]\n" +
+        "}";
+    String json = new JsonSerializer().serialize(result).toString().replace("\r", "");
+    assertEquals(expected, json);
+
+    verify(resource);
+  }
 }
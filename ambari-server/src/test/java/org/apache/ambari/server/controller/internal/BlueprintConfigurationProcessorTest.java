@@ -21,6 +21,7 @@ package org.apache.ambari.server.controller.internal;
 import static com.google.common.collect.Iterators.peekingIterator;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonMap;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
 import static org.easymock.EasyMock.anyObject;
@@ -2549,6 +2550,73 @@ public class BlueprintConfigurationProcessorTest extends EasyMockSupport {
     assertEquals("testhost", group2Config.getProperties().get("yarn-site").get("yarn.resourcemanager.resource-tracker.address"));
   }
 
+  @Test
+  public void testDoUpdateForClusterCreate_hostGroupConfigsMergedWithUpdatedClusterConfig() throws Exception {
+    Map<String, Map<String, String>> properties = new HashMap<>();
+    Map<String, String> yarnSiteProps = new HashMap<>();
+    yarnSiteProps.put("yarn.resourcemanager.hostname", "localhost");
+    yarnSiteProps.put("yarn.resourcemanager.resource-tracker.address", "localhost:8025");
+    properties.put("yarn-site", yarnSiteProps);
+    Map<String, String> oozieEnvProps = new HashMap<>();
+    oozieEnvProps.put("oozie_heapsize", "1024");
+    properties.put("oozie-env", oozieEnvProps);
+    Map<String, String> customProps = new HashMap<>();
+    customProps.put("custom.server.address", "%HOSTGROUP::group1%:1234");
+    properties.put("custom-site", customProps);
+
+    Configuration clusterConfig = new Configuration(properties, emptyMap());
+
+    Collection<String> group1Components = new HashSet<>();
+    group1Components.add("NAMENODE");
+    group1Components.add("SECONDARY_NAMENODE");
+    group1Components.add("RESOURCEMANAGER");
+    TestHostGroup group1 = new TestHostGroup("group1", group1Components, Collections.singleton("testhost"));
+
+    Collection<String> workerComponents = new HashSet<>();
+    workerComponents.add("DATANODE");
+    workerComponents.add("HDFS_CLIENT");
+
+    // overrides a property which is updated on cluster level too
+    Map<String, Map<String, String>> group2Properties = new HashMap<>();
+    group2Properties.put("yarn-site", new HashMap<>(singletonMap("yarn.resourcemanager.resource-tracker.address", "localhost:9025")));
+    Configuration group2Config = new Configuration(group2Properties, emptyMap());
+    TestHostGroup group2 = new TestHostGroup("group2", workerComponents, Collections.singleton("testhost2"), group2Config);
+
+    // only inherits the updated cluster properties
+    Map<String, Map<String, String>> group3Properties = new HashMap<>();
+    group3Properties.put("oozie-env", new HashMap<>(singletonMap("oozie_permsize", "256")));
+    Configuration group3Config = new Configuration(group3Properties, emptyMap());
+    TestHostGroup group3 = new TestHostGroup("group3", workerComponents, Arrays.asList("testhost3", "testhost4"), group3Config);
+
+    Collection<TestHostGroup> hostGroups = new HashSet<>();
+    hostGroups.add(group1);
+    hostGroups.add(group2);
+    hostGroups.add(group3);
+
+    ClusterTopology topology = createClusterTopology(bp, clusterConfig, hostGroups);
+    BlueprintConfigurationProcessor updater = new BlueprintConfigurationProcessor(topology);
+
+    updater.doUpdateForClusterCreate();
+
+    assertEquals("testhost", clusterConfig.getPropertyValue("yarn-site", "yarn.resourcemanager.hostname"));
+    assertEquals("testhost:8025", clusterConfig.getPropertyValue("yarn-site", "yarn.resourcemanager.resource-tracker.address"));
+    assertEquals("1024m", clusterConfig.getPropertyValue("oozie-env", "oozie_heapsize"));
+    assertEquals("testhost:1234", clusterConfig.getPropertyValue("custom-site", "custom.server.address"));
+
+    Map<String, Map<String, String>> group2Merged = group2Config.getFullProperties();
+    assertEquals("testhost", group2Merged.get("yarn-site").get("yarn.resourcemanager.hostname"));
+    assertEquals("testhost:9025", group2Merged.get("yarn-site").get("yarn.resourcemanager.resource-tracker.address"));
+    assertEquals("1024m", group2Merged.get("oozie-env").get("oozie_heapsize"));
+    assertEquals("testhost:1234", group2Merged.get("custom-site").get("custom.server.address"));
+
+    Map<String, Map<String, String>> group3Merged = group3Config.getFullProperties();
+    assertEquals("testhost", group3Merged.get("yarn-site").get("yarn.resourcemanager.hostname"));
+    assertEquals("testhost:8025", group3Merged.get("yarn-site").get("yarn.resourcemanager.resource-tracker.address"));
+    assertEquals("1024m", group3Merged.get("oozie-env").get("oozie_heapsize"));
+    assertEquals("256m", group3Merged.get("oozie-env").get("oozie_permsize"));
+    assertEquals("testhost:1234", group3Merged.get("custom-site").get("custom.server.address"));
+  }
+
   @Test
   public void testDoUpdateForClusterCreate_SingleHostProperty__MissingComponent() throws Exception {
     Map<String, Map<String, String>> properties = new HashMap<>();
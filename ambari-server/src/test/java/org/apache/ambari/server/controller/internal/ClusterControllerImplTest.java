@@ -20,11 +20,13 @@ package org.apache.ambari.server.controller.internal;
 
 import static org.easymock.EasyMock.anyObject;
 import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.createStrictMock;
 import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -34,8 +36,13 @@ import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.ambari.server.configuration.Configuration;
 import org.apache.ambari.server.controller.spi.ClusterController;
 import org.apache.ambari.server.controller.spi.NoSuchParentResourceException;
 import org.apache.ambari.server.controller.spi.NoSuchResourceException;
@@ -58,8 +65,12 @@ import org.apache.ambari.server.controller.utilities.PredicateBuilder;
 import org.apache.ambari.server.controller.utilities.PredicateHelper;
 import org.apache.ambari.server.controller.utilities.PropertyHelper;
 import org.easymock.EasyMock;
+import org.junit.After;
 import org.junit.Test;
 
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.google.inject.persist.UnitOfWork;
+
 import junit.framework.Assert;
 
 /**
@@ -871,6 +882,263 @@ public class ClusterControllerImplTest {
     }
   }
 
+  @After
+  public void tearDown() {
+    ClusterControllerImpl.init(new Configuration(new Properties()), null);
+    PropertyProviderTimings.stop();
+  }
+
+  @Test
+  public void testPopulateResourcesParallel() throws Exception {
+    // the provider run on the pool gets its own unit of work
+    UnitOfWork unitOfWork = createStrictMock(UnitOfWork.class);
+    unitOfWork.begin();
+    unitOfWork.end();
+    replay(unitOfWork);
+    initParallelPropertyProviders(5000L, unitOfWork);
+
+    // both providers wait for each other, so they only complete if they run concurrently
+    CyclicBarrier barrier = new CyclicBarrier(2);
+    Resource r1 = createHost("h1");
+    Resource r2 = createHost("h2");
+
+    ClusterControllerImpl controller = createController(
+        new TestPropertyProvider("c3/p5", barrier, 0L, "h2"),
+        new TestPropertyProvider("c4/p7", barrier, 0L, null));
+
+    Set<Resource> keepers = controller.populateResources(Resource.Type.Host,
+        new LinkedHashSet<>(Arrays.asList(r1, r2)), PropertyHelper.getReadRequest(), null);
+
+    Assert.assertEquals(Collections.singletonList(r1), new ArrayList<>(keepers));
+    Assert.assertEquals("c3/p5", r1.getPropertyValue("c3/p5"));
+    Assert.assertEquals("c4/p7", r1.getPropertyValue("c4/p7"));
+    verify(unitOfWork);
+  }
+
+  @Test
+  public void testPopulateResourcesParallelDependentProvider() throws Exception {
+    initParallelPropertyProviders(5000L);
+
+    Resource r1 = createHost("h1");
+    Resource r2 = createHost("h2");
+
+    TestPropertyProvider dependent = new TestPropertyProvider("c4/p7", null, 0L, null) {
+      @Override
+      public Set<Resource> populateResources(Set<Resource> resources, Request request, Predicate predicate)
+          throws SystemException {
+        for (Resource resource : resources) {
+          Assert.assertEquals("c3/p5", resource.getPropertyValue("c3/p5"));
+        }
+        return super.populateResources(resources, request, predicate);
+      }
+
+      @Override
+      public boolean dependsOnPrecedingProviders() {
+        return true;
+      }
+    };
+
+    ClusterControllerImpl controller = createController(
+        new TestPropertyProvider("c3/p5", null, 0L, "h2"), dependent);
+
+    Set<Resource> keepers = controller.populateResources(Resource.Type.Host,
+        new LinkedHashSet<>(Arrays.asList(r1, r2)), PropertyHelper.getReadRequest(), null);
+
+    Assert.assertEquals(Collections.singletonList(r1), new ArrayList<>(keepers));
+    Assert.assertEquals("c4/p7", r1.getPropertyValue("c4/p7"));
+    Assert.assertNull(r2.getPropertyValue("c4/p7"));
+  }
+
+  @Test
+  public void testPopulateResourcesParallelTimeout() throws Exception {
+    initParallelPropertyProviders(100L);
+
+    Resource r1 = createHost("h1");
+
+    // the first provider is submitted to the pool, the last one runs on the calling thread
+    ClusterControllerImpl controller = createController(
+        new TestPropertyProvider("c3/p5", null, 10000L, "h1"),
+        new TestPropertyProvider("c4/p7", null, 0L, null));
+
+    long start = System.nanoTime();
+    Set<Resource> keepers = controller.populateResources(Resource.Type.Host,
+        Collections.singleton(r1), PropertyHelper.getReadRequest(), null);
+
+    Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 10000L);
+    Assert.assertEquals(Collections.singleton(r1), keepers);
+    Assert.assertNull(r1.getPropertyValue("c3/p5"));
+    Assert.assertEquals("c4/p7", r1.getPropertyValue("c4/p7"));
+  }
+
+  @Test
+  public void testPopulateResourcesParallelSameProperty() throws Exception {
+    initParallelPropertyProviders(5000L);
+
+    // c3/p5 is set before population, both providers overwrite it on h1 and only the first on h2
+    Resource r1 = createHost("h1");
+    Resource r2 = createHost("h2");
+    r1.setProperty("c3/p5", "old");
+    r2.setProperty("c3/p5", "old");
+
+    PropertyProvider first = new TestPropertyProvider("c3/p5", null, 0L, null);
+    PropertyProvider second = new TestPropertyProvider("c4/p7", null, 0L, null) {
+      @Override
+      public Set<Resource> populateResources(Set<Resource> resources, Request request, Predicate predicate)
+          throws SystemException {
+        for (Resource resource : resources) {
+          if (resource.getPropertyValue("Hosts/host_name").equals("h1")) {
+            resource.setProperty("c3/p5", "second");
+          }
+        }
+        return super.populateResources(resources, request, predicate);
+      }
+    };
+
+    ClusterControllerImpl controller = createController(first, second);
+    controller.populateResources(Resource.Type.Host,
+        new LinkedHashSet<>(Arrays.asList(r1, r2)), PropertyHelper.getReadRequest(), null);
+
+    // the provider registered last wins, a provider which did not touch the property keeps the other's value
+    Assert.assertEquals("second", r1.getPropertyValue("c3/p5"));
+    Assert.assertEquals("c3/p5", r2.getPropertyValue("c3/p5"));
+    Assert.assertEquals("c4/p7", r2.getPropertyValue("c4/p7"));
+  }
+
+  @Test
+  public void testPopulateResourcesParallelTimeoutIgnoringInterrupts() throws Exception {
+    initParallelPropertyProviders(100L);
+
+    Resource r1 = createHost("h1");
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch done = new CountDownLatch(1);
+
+    PropertyProvider stuck = new TestPropertyProvider("c3/p5", null, 0L, null) {
+      @Override
+      public Set<Resource> populateResources(Set<Resource> resources, Request request, Predicate predicate)
+          throws SystemException {
+        Uninterruptibles.awaitUninterruptibly(release);
+        try {
+          return super.populateResources(resources, request, predicate);
+        } finally {
+          done.countDown();
+        }
+      }
+    };
+
+    ClusterControllerImpl controller = createController(stuck, new TestPropertyProvider("c4/p7", null, 0L, null));
+
+    Set<Resource> keepers = controller.populateResources(Resource.Type.Host,
+        Collections.singleton(r1), PropertyHelper.getReadRequest(), null);
+
+    // the provider completes after the timeout, its properties must not show up
+    release.countDown();
+    Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+    Assert.assertEquals(Collections.singleton(r1), keepers);
+    Assert.assertNull(r1.getPropertyValue("c3/p5"));
+    Assert.assertEquals("c4/p7", r1.getPropertyValue("c4/p7"));
+  }
+
+  @Test(expected = SystemException.class)
+  public void testPopulateResourcesParallelException() throws Exception {
+    initParallelPropertyProviders(5000L);
+
+    PropertyProvider failing = new TestPropertyProvider("c3/p5", null, 0L, null) {
+      @Override
+      public Set<Resource> populateResources(Set<Resource> resources, Request request, Predicate predicate)
+          throws SystemException {
+        throw new SystemException("failed");
+      }
+    };
+
+    ClusterControllerImpl controller = createController(failing, new TestPropertyProvider("c4/p7", null, 0L, null));
+
+    controller.populateResources(Resource.Type.Host, Collections.singleton(createHost("h1")),
+        PropertyHelper.getReadRequest(), null);
+  }
+
+  @Test
+  public void testPopulateResourcesTimings() throws Exception {
+    ClusterControllerImpl controller = createController(new TestPropertyProvider("c3/p5", null, 0L, null));
+
+    PropertyProviderTimings timings = PropertyProviderTimings.start();
+    controller.populateResources(Resource.Type.Host, Collections.singleton(createHost("h1")),
+        PropertyHelper.getReadRequest(), null);
+    PropertyProviderTimings.stop();
+
+    Assert.assertEquals(Collections.singleton("Host/TestPropertyProvider"), timings.getTimings().keySet());
+    Assert.assertNull(PropertyProviderTimings.current());
+  }
+
+  private static void initParallelPropertyProviders(long timeout) {
+    initParallelPropertyProviders(timeout, createNiceMock(UnitOfWork.class));
+  }
+
+  private static void initParallelPropertyProviders(long timeout, UnitOfWork unitOfWork) {
+    Properties properties = new Properties();
+    properties.setProperty(Configuration.PROPERTY_PROVIDER_PARALLEL_ENABLED.getKey(), "true");
+    properties.setProperty(Configuration.PROPERTY_PROVIDER_PARALLEL_THREADPOOL_SIZE.getKey(), "2");
+    properties.setProperty(Configuration.PROPERTY_PROVIDER_PARALLEL_TIMEOUT.getKey(), Long.toString(timeout));
+    ClusterControllerImpl.init(new Configuration(properties), unitOfWork);
+  }
+
+  private static ClusterControllerImpl createController(PropertyProvider... providers) {
+    ProviderModule providerModule = createNiceMock(ProviderModule.class);
+    expect(providerModule.getPropertyProviders(Resource.Type.Host)).andReturn(Arrays.asList(providers)).anyTimes();
+    replay(providerModule);
+    return new ClusterControllerImpl(providerModule);
+  }
+
+  private static Resource createHost(String hostName) {
+    Resource resource = new ResourceImpl(Resource.Type.Host);
+    resource.setProperty(PropertyHelper.getPropertyId("Hosts", "host_name"), hostName);
+    return resource;
+  }
+
+  /**
+   * Sets one property on each resource, optionally after waiting on a barrier or
+   * sleeping, and drops the resource of the given host.
+   */
+  private static class TestPropertyProvider implements PropertyProvider {
+    private final String propertyId;
+    private final CyclicBarrier barrier;
+    private final long sleepMillis;
+    private final String droppedHost;
+
+    private TestPropertyProvider(String propertyId, CyclicBarrier barrier, long sleepMillis, String droppedHost) {
+      this.propertyId = propertyId;
+      this.barrier = barrier;
+      this.sleepMillis = sleepMillis;
+      this.droppedHost = droppedHost;
+    }
+
+    @Override
+    public Set<Resource> populateResources(Set<Resource> resources, Request request, Predicate predicate)
+        throws SystemException {
+      try {
+        if (barrier != null) {
+          barrier.await(5, TimeUnit.SECONDS);
+        }
+        Thread.sleep(sleepMillis);
+      } catch (Exception e) {
+        throw new SystemException("Interrupted", e);
+      }
+
+      Set<Resource> keepers = new HashSet<>();
+      for (Resource resource : resources) {
+        resource.setProperty(propertyId, propertyId);
+        if (!resource.getPropertyValue("Hosts/host_name").equals(droppedHost)) {
+          keepers.add(resource);
+        }
+      }
+      return keepers;
+    }
+
+    @Override
+    public Set<String> checkPropertyIds(Set<String> propertyIds) {
+      return Collections.emptySet();
+    }
+  }
+
   /**
    * Tests that when a {@link PageResponse} is present on the
    * {@link Request}, in-memory paging is not performed.
@@ -178,7 +178,7 @@ public class TimelineMetricCacheTest {
     expect(cacheProvider.createCacheConfiguration()).andReturn(createTestCacheConfiguration(configuration)).anyTimes();
     replay(cacheProvider);
 
-    TimelineMetricCache cache = cacheProvider.getTimelineMetricsCache();
+    TimelineAppMetricsCache cache = cacheProvider.getTimelineMetricsCache();
 
     // call to get
     metrics = cache.getAppTimelineMetricsFromCache(queryKey);
@@ -498,7 +498,7 @@ public class TimelineMetricCacheTest {
     expect(cacheProvider.createCacheConfiguration()).andReturn(createTestCacheConfiguration(configuration)).anyTimes();
     replay(cacheProvider);
 
-    TimelineMetricCache cache = cacheProvider.getTimelineMetricsCache();
+    TimelineAppMetricsCache cache = cacheProvider.getTimelineMetricsCache();
 
     // call to get
     metrics = cache.getAppTimelineMetricsFromCache(key);
@@ -0,0 +1,192 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.controller.metrics.timeline.cache;
+
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.replay;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ambari.server.configuration.Configuration;
+import org.apache.ambari.server.controller.internal.TemporalInfoImpl;
+import org.apache.hadoop.metrics2.sink.timeline.Precision;
+import org.apache.hadoop.metrics2.sink.timeline.TimelineMetric;
+import org.apache.hadoop.metrics2.sink.timeline.TimelineMetrics;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TimelineMetricSeriesCacheTest {
+
+  private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+  @Test
+  public void testConcurrentIdenticalRequestsAreCoalesced() throws Exception {
+    final long now = System.currentTimeMillis();
+    final CountDownLatch release = new CountDownLatch(1);
+    final TestEntryFactory factory = new TestEntryFactory(release);
+    final TimelineMetricSeriesCache cache = new TimelineMetricSeriesCache(factory, 30000, 100, HOUR, HOUR, 1);
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    List<Future<TimelineMetrics>> results = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      results.add(executor.submit(() -> cache.getAppTimelineMetricsFromCache(createKey(now - HOUR, now))));
+    }
+
+    // All callers are waiting on the first fetch
+    Thread.sleep(200);
+    release.countDown();
+
+    for (Future<TimelineMetrics> result : results) {
+      TimelineMetrics metrics = result.get(10, TimeUnit.SECONDS);
+      Assert.assertEquals(1, metrics.getMetrics().size());
+      Assert.assertEquals("cpu_user", metrics.getMetrics().get(0).getMetricName());
+    }
+    executor.shutdown();
+    cache.shutdown();
+
+    Assert.assertEquals(1, factory.creates.get());
+    Assert.assertEquals(0, factory.updates.get());
+    Assert.assertEquals(1, cache.size());
+  }
+
+  @Test
+  public void testStaleSeriesServedWhileTailIsFetched() throws Exception {
+    long now = System.currentTimeMillis();
+    CountDownLatch release = new CountDownLatch(0);
+    TestEntryFactory factory = new TestEntryFactory(release);
+    TimelineMetricSeriesCache cache = new TimelineMetricSeriesCache(factory, 30000, 100, HOUR, HOUR, 1);
+
+    TimelineMetrics metrics = cache.getAppTimelineMetricsFromCache(createKey(now - HOUR, now));
+    Assert.assertEquals(1, metrics.getMetrics().get(0).getMetricValues().size());
+
+    // Shifted by less than the stale tolerance, the refresh runs in the background
+    factory.release = new CountDownLatch(1);
+    metrics = cache.getAppTimelineMetricsFromCache(createKey(now - HOUR + 15000, now + 15000));
+    Assert.assertEquals(1, metrics.getMetrics().get(0).getMetricValues().size());
+
+    // A second reader of the same window does not start another refresh
+    metrics = cache.getAppTimelineMetricsFromCache(createKey(now - HOUR + 15000, now + 15000));
+    Assert.assertEquals(1, metrics.getMetrics().get(0).getMetricValues().size());
+
+    factory.release.countDown();
+    long deadline = System.currentTimeMillis() + 10000;
+    while (factory.completedUpdates.get() == 0 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    Assert.assertEquals(1, factory.updates.get());
+
+    metrics = cache.getAppTimelineMetricsFromCache(createKey(now - HOUR + 15000, now + 15000));
+    Assert.assertEquals(2, metrics.getMetrics().get(0).getMetricValues().size());
+    Assert.assertEquals(1, factory.creates.get());
+    Assert.assertEquals(1, factory.updates.get());
+    cache.shutdown();
+  }
+
+  @Test
+  public void testFreshness() throws Exception {
+    long now = System.currentTimeMillis();
+    TimelineMetricSeriesCache cache = new TimelineMetricSeriesCache(
+      new TestEntryFactory(new CountDownLatch(0)), 30000, 100, HOUR, HOUR, 1);
+    TimelineMetricsCacheValue value = new TimelineMetricsCacheValue(now - HOUR, now, new TimelineMetrics(),
+      Precision.getPrecision(now - HOUR, now));
+
+    Assert.assertEquals(TimelineMetricSeriesCache.Freshness.FRESH,
+      cache.getFreshness(value, new TemporalInfoImpl(now - HOUR, now, 1)));
+    Assert.assertEquals(TimelineMetricSeriesCache.Freshness.STALE,
+      cache.getFreshness(value, new TemporalInfoImpl(now - HOUR + 10000, now + 10000, 1)));
+    // Shifted beyond the tolerance
+    Assert.assertEquals(TimelineMetricSeriesCache.Freshness.EXPIRED,
+      cache.getFreshness(value, new TemporalInfoImpl(now - HOUR + 60000, now + 60000, 1)));
+    // Older data than cached
+    Assert.assertEquals(TimelineMetricSeriesCache.Freshness.EXPIRED,
+      cache.getFreshness(value, new TemporalInfoImpl(now - 2 * HOUR, now, 1)));
+    // Different precision
+    Assert.assertEquals(TimelineMetricSeriesCache.Freshness.EXPIRED,
+      cache.getFreshness(value, new TemporalInfoImpl(now - 10 * 24 * HOUR, now, 1)));
+    cache.shutdown();
+  }
+
+  private static TimelineAppMetricCacheKey createKey(long startTime, long endTime) {
+    TimelineAppMetricCacheKey key = new TimelineAppMetricCacheKey(Collections.singleton("cpu_user"),
+      "app1", new TemporalInfoImpl(startTime, endTime, 1));
+    key.setSpec("http://collector:6188/ws/v1/timeline/metrics?metricNames=cpu_user&appId=app1");
+    return key;
+  }
+
+  /**
+   * Entry factory which blocks on a latch and adds one value per call.
+   */
+  private static class TestEntryFactory extends TimelineMetricCacheEntryFactory {
+    private volatile CountDownLatch release;
+    private final AtomicInteger creates = new AtomicInteger();
+    private final AtomicInteger updates = new AtomicInteger();
+    private final AtomicInteger completedUpdates = new AtomicInteger();
+
+    private TestEntryFactory(CountDownLatch release) {
+      super(createConfiguration());
+      this.release = release;
+    }
+
+    private static Configuration createConfiguration() {
+      Configuration configuration = createNiceMock(Configuration.class);
+      replay(configuration);
+      return configuration;
+    }
+
+    @Override
+    public Object createEntry(Object key) throws Exception {
+      creates.incrementAndGet();
+      release.await(10, TimeUnit.SECONDS);
+
+      TemporalInfoImpl temporalInfo = (TemporalInfoImpl) ((TimelineAppMetricCacheKey) key).getTemporalInfo();
+      TimelineMetric metric = new TimelineMetric();
+      metric.setMetricName("cpu_user");
+      metric.setAppId("app1");
+      TreeMap<Long, Double> values = new TreeMap<>();
+      values.put(temporalInfo.getEndTimeMillis(), 1.0);
+      metric.setMetricValues(values);
+
+      TimelineMetrics metrics = new TimelineMetrics();
+      metrics.getMetrics().add(metric);
+      return new TimelineMetricsCacheValue(temporalInfo.getStartTime(), temporalInfo.getEndTime(), metrics,
+        Precision.getPrecision(temporalInfo.getStartTimeMillis(), temporalInfo.getEndTimeMillis()));
+    }
+
+    @Override
+    public void updateEntryValue(Object key, Object value) throws Exception {
+      updates.incrementAndGet();
+      release.await(10, TimeUnit.SECONDS);
+
+      TemporalInfoImpl temporalInfo = (TemporalInfoImpl) ((TimelineAppMetricCacheKey) key).getTemporalInfo();
+      TimelineMetricsCacheValue cacheValue = (TimelineMetricsCacheValue) value;
+      cacheValue.getTimelineMetrics().getMetrics().get(0).getMetricValues().put(temporalInfo.getEndTimeMillis(), 2.0);
+      cacheValue.setStartTime(temporalInfo.getStartTime());
+      cacheValue.setEndTime(temporalInfo.getEndTime());
+      completedUpdates.incrementAndGet();
+    }
+  }
+}
@@ -0,0 +1,211 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.events.publishers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.common.eventbus.Subscribe;
+
+/**
+ * Tests {@link PartitionedEventBus}.
+ */
+public class PartitionedEventBusTest {
+
+  private PartitionedEventBus m_eventBus;
+
+  @After
+  public void teardown() {
+    if (m_eventBus != null) {
+      m_eventBus.shutdown();
+    }
+  }
+
+  /**
+   * Tests that events sharing a key are delivered in order.
+   */
+  @Test
+  public void testOrderPerKey() throws Exception {
+    m_eventBus = new PartitionedEventBus("test-bus", 4, 8, event -> ((KeyedEvent) event).m_key);
+    OrderListener listener = new OrderListener(400);
+    m_eventBus.register(listener);
+
+    for (int i = 0; i < 100; i++) {
+      for (int key = 0; key < 4; key++) {
+        m_eventBus.post(new KeyedEvent(key, i));
+      }
+    }
+
+    assertTrue(listener.m_latch.await(10, TimeUnit.SECONDS));
+    for (int key = 0; key < 4; key++) {
+      List<Integer> sequences = listener.m_received.get(key);
+      assertEquals(100, sequences.size());
+      for (int i = 0; i < 100; i++) {
+        assertEquals(i, sequences.get(i).intValue());
+      }
+    }
+
+    PartitionedEventBus.ListenerStatistics statistics = m_eventBus.getListenerStatistics().get("OrderListener");
+    assertEquals(400, statistics.getCount());
+    assertTrue(PartitionedEventBus.getInstances().contains(m_eventBus));
+  }
+
+  /**
+   * Tests that a slow listener only delays events of its own key.
+   */
+  @Test
+  public void testSlowKeyDoesNotBlockOtherKeys() throws Exception {
+    m_eventBus = new PartitionedEventBus("test-bus", 2, 8, event -> ((KeyedEvent) event).m_key);
+    final CountDownLatch release = new CountDownLatch(1);
+    final CountDownLatch fastDelivered = new CountDownLatch(1);
+    m_eventBus.register(new Object() {
+      @Subscribe
+      public void onEvent(KeyedEvent event) throws InterruptedException {
+        if (event.m_key == 0) {
+          release.await(10, TimeUnit.SECONDS);
+        } else {
+          fastDelivered.countDown();
+        }
+      }
+    });
+
+    m_eventBus.post(new KeyedEvent(0, 0));
+    m_eventBus.post(new KeyedEvent(1, 0));
+
+    assertTrue(fastDelivered.await(5, TimeUnit.SECONDS));
+    release.countDown();
+  }
+
+  /**
+   * Tests that a subscriber without concurrent events is never invoked from two
+   * workers at once.
+   */
+  @Test
+  public void testSubscriberIsNotInvokedConcurrently() throws Exception {
+    m_eventBus = new PartitionedEventBus("test-bus", 4, 8, event -> ((KeyedEvent) event).m_key);
+    final AtomicInteger active = new AtomicInteger();
+    final AtomicInteger overlaps = new AtomicInteger();
+    final CountDownLatch latch = new CountDownLatch(200);
+    m_eventBus.register(new Object() {
+      @Subscribe
+      public void onEvent(KeyedEvent event) throws InterruptedException {
+        if (active.incrementAndGet() > 1) {
+          overlaps.incrementAndGet();
+        }
+        Thread.sleep(1);
+        active.decrementAndGet();
+        latch.countDown();
+      }
+    });
+
+    for (int i = 0; i < 200; i++) {
+      m_eventBus.post(new KeyedEvent(i % 4, i));
+    }
+
+    assertTrue(latch.await(10, TimeUnit.SECONDS));
+    assertEquals(0, overlaps.get());
+  }
+
+  /**
+   * Tests that a listener can post to its own bus while the ring is full.
+   */
+  @Test
+  public void testOverflowWhenRingIsFull() throws Exception {
+    m_eventBus = new PartitionedEventBus("test-bus", 1, 2, event -> null);
+    final CountDownLatch latch = new CountDownLatch(50);
+    m_eventBus.register(new Object() {
+      @Subscribe
+      public void onEvent(KeyedEvent event) {
+        if (event.m_sequence < 10) {
+          for (int i = 0; i < 4; i++) {
+            m_eventBus.post(new KeyedEvent(0, 10 + event.m_sequence * 4 + i));
+          }
+        }
+        latch.countDown();
+      }
+    });
+
+    for (int i = 0; i < 10; i++) {
+      m_eventBus.post(new KeyedEvent(0, i));
+    }
+
+    assertTrue(latch.await(10, TimeUnit.SECONDS));
+  }
+
+  /**
+   * Tests the bounds of {@link EventRingBuffer}.
+   */
+  @Test
+  public void testRingBuffer() {
+    EventRingBuffer<Integer> ring = new EventRingBuffer<>(3);
+    assertEquals(4, ring.capacity());
+    for (int i = 0; i < 4; i++) {
+      assertTrue(ring.offer(i));
+    }
+    assertFalse(ring.offer(4));
+    assertEquals(4, ring.size());
+
+    assertEquals(Integer.valueOf(0), ring.poll());
+    assertTrue(ring.offer(4));
+    for (int i = 1; i < 5; i++) {
+      assertEquals(Integer.valueOf(i), ring.poll());
+    }
+    assertNull(ring.poll());
+    assertEquals(0, ring.size());
+  }
+
+  private static final class KeyedEvent {
+    private final int m_key;
+    private final int m_sequence;
+
+    private KeyedEvent(int key, int sequence) {
+      m_key = key;
+      m_sequence = sequence;
+    }
+  }
+
+  private static final class OrderListener {
+    private final Map<Integer, List<Integer>> m_received = new ConcurrentHashMap<>();
+    private final CountDownLatch m_latch;
+
+    private OrderListener(int expected) {
+      m_latch = new CountDownLatch(expected);
+    }
+
+    @Subscribe
+    public void onEvent(KeyedEvent event) {
+      m_received.computeIfAbsent(event.m_key, key -> Collections.synchronizedList(new ArrayList<>()))
+          .add(event.m_sequence);
+      m_latch.countDown();
+    }
+  }
+}
@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.security.ldap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.apache.ambari.server.H2DatabaseCleaner;
+import org.apache.ambari.server.audit.AuditLoggerModule;
+import org.apache.ambari.server.configuration.AmbariServerConfigurationKey;
+import org.apache.ambari.server.ldap.LdapModule;
+import org.apache.ambari.server.ldap.domain.AmbariLdapConfiguration;
+import org.apache.ambari.server.orm.GuiceJpaInitializer;
+import org.apache.ambari.server.orm.entities.UserEntity;
+import org.apache.ambari.server.security.authorization.AuthorizationTestModule;
+import org.apache.ambari.server.security.authorization.Group;
+import org.apache.ambari.server.security.authorization.GroupType;
+import org.apache.ambari.server.security.authorization.User;
+import org.apache.ambari.server.security.authorization.Users;
+import org.apache.directory.server.annotations.CreateLdapServer;
+import org.apache.directory.server.annotations.CreateTransport;
+import org.apache.directory.server.core.annotations.ApplyLdifFiles;
+import org.apache.directory.server.core.annotations.ContextEntry;
+import org.apache.directory.server.core.annotations.CreateDS;
+import org.apache.directory.server.core.annotations.CreatePartition;
+import org.apache.directory.server.core.integ.AbstractLdapTestUnit;
+import org.apache.directory.server.core.integ.FrameworkRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.ldap.control.PagedResultsDirContextProcessor;
+
+import com.google.inject.Guice;
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+
+/**
+ * Runs the streaming synchronization of all LDAP users and groups against an embedded LDAP server
+ * and the in-memory database.
+ */
+@RunWith(FrameworkRunner.class)
+@CreateDS(allowAnonAccess = true,
+    name = "AmbariLdapDataPopulatorStreamingTest",
+    partitions = {
+        @CreatePartition(name = "Root",
+            suffix = "dc=apache,dc=org",
+            contextEntry = @ContextEntry(
+                entryLdif =
+                    "dn: dc=apache,dc=org\n" +
+                        "dc: apache\n" +
+                        "objectClass: top\n" +
+                        "objectClass: domain\n\n" +
+                        "dn: dc=ambari,dc=apache,dc=org\n" +
+                        "dc: ambari\n" +
+                        "objectClass: top\n" +
+                        "objectClass: domain\n\n"))
+    })
+@CreateLdapServer(allowAnonymousAccess = true,
+    transports = {@CreateTransport(protocol = "LDAP")})
+@ApplyLdifFiles("users_for_streaming_sync.ldif")
+public class AmbariLdapDataPopulatorStreamingTest extends AbstractLdapTestUnit {
+
+  // smaller than the number of users and groups so that LDAP is read in several pages
+  private static final int PAGE_SIZE = 2;
+  private static final int BATCH_SIZE = 2;
+
+  private Injector injector;
+
+  @Inject
+  private Users users;
+
+  private AmbariLdapDataPopulator populator;
+
+  @Before
+  public void setUp() throws Exception {
+    injector = Guice.createInjector(new AuthorizationTestModule(), new AuditLoggerModule(), new LdapModule());
+    injector.getInstance(GuiceJpaInitializer.class);
+    injector.injectMembers(this);
+
+    final AmbariLdapConfiguration ldapConfiguration = new AmbariLdapConfiguration();
+    ldapConfiguration.setValueFor(AmbariServerConfigurationKey.SERVER_HOST, "localhost");
+    ldapConfiguration.setValueFor(AmbariServerConfigurationKey.SERVER_PORT, String.valueOf(ldapServer.getPort()));
+    ldapConfiguration.setValueFor(AmbariServerConfigurationKey.USER_SEARCH_BASE, "dc=ambari,dc=apache,dc=org");
+    ldapConfiguration.setValueFor(AmbariServerConfigurationKey.GROUP_OBJECT_CLASS, "groupOfNames");
+    ldapConfiguration.setValueFor(AmbariServerConfigurationKey.PAGINATION_ENABLED, "true");
+
+    populator = new AmbariLdapDataPopulator(() -> ldapConfiguration, users) {
+      @Override
+      protected PagedResultsDirContextProcessor createPagingProcessor() {
+        return new PagedResultsDirContextProcessor(PAGE_SIZE, null);
+      }
+    };
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    H2DatabaseCleaner.clearDatabaseAndStopPersistenceService(injector);
+  }
+
+  @Test
+  public void testSynchronizeAllLdapUsersStreaming() throws Exception {
+    createLdapUser("user1");
+    createLdapUser("removed_user");
+    UserEntity localUser = users.createUser("user3", "user3", "user3");
+    users.addLocalAuthentication(localUser, "password");
+
+    LdapBatchDto batchInfo = populator.synchronizeAllLdapUsersStreaming(new LdapBatchDto(), BATCH_SIZE);
+    // done by the caller for the changes which did not fill a batch
+    users.processLdapSync(batchInfo);
+
+    for (String userName : Arrays.asList("user1", "user2", "user3", "user4", "user5")) {
+      User user = users.getUser(userName);
+      assertNotNull(userName, user);
+      assertTrue(userName, user.isLdapUser());
+    }
+    assertNull(users.getUser("removed_user"));
+
+    assertEquals(3, batchInfo.getUsersToBeCreatedCount());
+    assertEquals(1, batchInfo.getUsersToBecomeLdapCount());
+    assertEquals(1, batchInfo.getUsersToBeRemovedCount());
+    assertEquals(0, batchInfo.getUsersSkippedCount());
+    assertTrue(batchInfo.getProcessedChangesCount() > 0);
+  }
+
+  @Test
+  public void testSynchronizeAllLdapGroupsStreaming() throws Exception {
+    createLdapUser("user1");
+    createLdapUser("user3");
+    users.createGroup("group1", GroupType.LDAP);
+    users.addMemberToGroup("group1", "user1");
+    users.createGroup("group2", GroupType.LOCAL);
+    users.createGroup("removed_group", GroupType.LDAP);
+    users.addMemberToGroup("removed_group", "user3");
+
+    LdapBatchDto batchInfo = populator.synchronizeAllLdapGroupsStreaming(new LdapBatchDto(), BATCH_SIZE);
+    users.processLdapSync(batchInfo);
+
+    for (String groupName : Arrays.asList("group1", "group2", "group3")) {
+      Group group = users.getGroup(groupName);
+      assertNotNull(groupName, group);
+      assertTrue(groupName, group.isLdapGroup());
+    }
+    assertNull(users.getGroup("removed_group"));
+
+    assertEquals(new HashSet<>(Arrays.asList("user1", "user2")), new HashSet<>(users.getAllMembers("group1")));
+    assertEquals(new HashSet<>(Arrays.asList("user3")), new HashSet<>(users.getAllMembers("group2")));
+    assertEquals(new HashSet<>(Arrays.asList("user4", "user5")), new HashSet<>(users.getAllMembers("group3")));
+    for (String userName : Arrays.asList("user2", "user4", "user5")) {
+      assertTrue(userName, users.getUser(userName).isLdapUser());
+    }
+
+    assertEquals(1, batchInfo.getGroupsToBeCreatedCount());
+    assertEquals(1, batchInfo.getGroupsToBecomeLdapCount());
+    assertEquals(1, batchInfo.getGroupsToBeRemovedCount());
+    assertEquals(3, batchInfo.getUsersToBeCreatedCount());
+    assertEquals(4, batchInfo.getMembershipToAddCount());
+  }
+
+  private void createLdapUser(String userName) throws Exception {
+    UserEntity userEntity = users.createUser(userName, userName, userName);
+    users.addLdapAuthentication(userEntity, "uid=" + userName + ",ou=people,dc=ambari,dc=apache,dc=org");
+  }
+}
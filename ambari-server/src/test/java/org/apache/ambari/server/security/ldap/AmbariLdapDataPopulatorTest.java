@@ -36,6 +36,7 @@ import static org.junit.Assert.assertEquals;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -996,6 +997,101 @@ public class AmbariLdapDataPopulatorTest {
     verify(populator.loadLdapTemplate(), populator);
   }
 
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testSynchronizeAllLdapUsersStreaming() throws Exception {
+
+    User user1 = createNiceMock(User.class);
+    User user2 = createNiceMock(User.class);
+    User user3 = createNiceMock(User.class);
+    expect(user1.getUserName()).andReturn("synced_user1").anyTimes();
+    expect(user2.getUserName()).andReturn("synced_user2").anyTimes();
+    expect(user3.getUserName()).andReturn("unsynced_user2").anyTimes();
+    expect(user1.isLdapUser()).andReturn(true).anyTimes();
+    expect(user2.isLdapUser()).andReturn(true).anyTimes();
+    expect(user3.isLdapUser()).andReturn(false).anyTimes();
+    replay(user1, user2, user3);
+
+    final Map<String, User> internalUsers = new HashMap<>();
+    for (User user : Arrays.asList(user1, user2, user3)) {
+      internalUsers.put(user.getUserName(), user);
+    }
+
+    final Provider<AmbariLdapConfiguration> configurationProvider = createNiceMock(Provider.class);
+    AmbariLdapConfiguration configuration = createNiceMock(AmbariLdapConfiguration.class);
+    expect(configurationProvider.get()).andReturn(configuration).anyTimes();
+    Users users = createNiceMock(Users.class);
+    LdapTemplate ldapTemplate = createNiceMock(LdapTemplate.class);
+    LdapServerProperties ldapServerProperties = createNiceMock(LdapServerProperties.class);
+
+    // only the users of the current LDAP page are looked up
+    expect(users.getUsers(EasyMock.anyObject())).andAnswer(() -> {
+      List<User> found = new ArrayList<>();
+      for (String userName : (Collection<String>) EasyMock.getCurrentArguments()[0]) {
+        if (internalUsers.containsKey(userName)) {
+          found.add(internalUsers.get(userName));
+        }
+      }
+      return found;
+    }).times(2);
+    expect(users.getLdapUserNames(null, 500)).andReturn(Arrays.asList("synced_user1", "synced_user2"));
+    // the batch reaches its size after the second page
+    final Capture<LdapBatchDto> processedBatch = EasyMock.newCapture();
+    final List<Integer> processedUsersToBeCreated = new ArrayList<>();
+    users.processLdapSync(capture(processedBatch));
+    expectLastCall().andAnswer(() -> {
+      processedUsersToBeCreated.add(processedBatch.getValue().getUsersToBeCreated().size());
+      return null;
+    }).once();
+    expect(users.getAllUsers()).andThrow(new AssertionError("all users must not be loaded")).anyTimes();
+
+    replay(ldapTemplate, ldapServerProperties, users, configurationProvider, configuration);
+
+    AmbariLdapDataPopulatorTestInstance populator = createMockBuilder(AmbariLdapDataPopulatorTestInstance.class)
+        .addMockedMethod("forEachLdapUserPage")
+        .addMockedMethod("getExternalUserNames")
+        .withConstructor(configurationProvider, users)
+        .createNiceMock();
+
+    LdapUserDto externalUser1 = createNiceMock(LdapUserDto.class);
+    LdapUserDto externalUser2 = createNiceMock(LdapUserDto.class);
+    LdapUserDto externalUser3 = createNiceMock(LdapUserDto.class);
+    LdapUserDto externalUser4 = createNiceMock(LdapUserDto.class);
+    expect(externalUser1.getUserName()).andReturn("synced_user2").anyTimes();
+    expect(externalUser2.getUserName()).andReturn("unsynced_user2").anyTimes();
+    expect(externalUser3.getUserName()).andReturn("external_user1").anyTimes();
+    expect(externalUser4.getUserName()).andReturn("external_user2").anyTimes();
+    replay(externalUser1, externalUser2, externalUser3, externalUser4);
+
+    populator.forEachLdapUserPage(EasyMock.anyObject(), EasyMock.anyObject(), EasyMock.anyObject());
+    expectLastCall().andAnswer(() -> {
+      AmbariLdapDataPopulator.PageConsumer<List<LdapUserDto>, RuntimeException> pageConsumer =
+          (AmbariLdapDataPopulator.PageConsumer<List<LdapUserDto>, RuntimeException>) EasyMock.getCurrentArguments()[2];
+      pageConsumer.accept(Arrays.asList(externalUser1, externalUser2));
+      pageConsumer.accept(Arrays.asList(externalUser3, externalUser4));
+      return null;
+    });
+    // only the Ambari LDAP users are looked up in LDAP
+    expect(populator.getExternalUserNames(EasyMock.anyObject(), EasyMock.eq(Arrays.asList("synced_user1", "synced_user2"))))
+        .andReturn(Collections.singleton("synced_user2"));
+    replay(populator);
+
+    populator.setLdapTemplate(ldapTemplate);
+    populator.setLdapServerProperties(ldapServerProperties);
+
+    LdapBatchDto result = populator.synchronizeAllLdapUsersStreaming(new LdapBatchDto(), 2);
+
+    assertEquals(Collections.singletonList(2), processedUsersToBeCreated);
+    verifyUsersInSet(result.getUsersToBeRemoved(), Sets.newHashSet("synced_user1"));
+    assertTrue(result.getUsersToBeCreated().isEmpty());
+    assertTrue(result.getUsersToBecomeLdap().isEmpty());
+    assertEquals(2, result.getUsersToBeCreatedCount());
+    assertEquals(1, result.getUsersToBecomeLdapCount());
+    assertEquals(1, result.getUsersToBeRemovedCount());
+    assertEquals(0, result.getMembershipToAddCount());
+    verify(populator, users);
+  }
+
   @SuppressWarnings("unchecked")
   @Test
   public void testSynchronizeAllLdapSkipLocal() throws Exception {
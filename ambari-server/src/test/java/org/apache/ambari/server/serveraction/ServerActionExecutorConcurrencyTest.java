@@ -0,0 +1,243 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.serveraction;
+
+import static org.easymock.EasyMock.anyLong;
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.anyString;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.getCurrentArguments;
+import static org.easymock.EasyMock.isNull;
+import static org.easymock.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ambari.server.Role;
+import org.apache.ambari.server.actionmanager.ActionDBAccessor;
+import org.apache.ambari.server.actionmanager.ExecutionCommandWrapper;
+import org.apache.ambari.server.actionmanager.HostRoleCommand;
+import org.apache.ambari.server.actionmanager.HostRoleStatus;
+import org.apache.ambari.server.agent.CommandReport;
+import org.apache.ambari.server.agent.ExecutionCommand;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.inject.Guice;
+import com.google.inject.persist.UnitOfWork;
+
+/**
+ * Tests the dispatching of server-side tasks to the {@link ServerActionExecutor} worker pool.
+ */
+public class ServerActionExecutorConcurrencyTest {
+
+  private static final Map<Long, CountDownLatch> RELEASES = new ConcurrentHashMap<>();
+  private static final List<Long> STARTED = Collections.synchronizedList(new ArrayList<>());
+  private static final AtomicInteger UNITS_BEGUN = new AtomicInteger();
+  private static final AtomicInteger UNITS_ENDED = new AtomicInteger();
+
+  /**
+   * Task status by task ID, each task lives in a stage with the same ID.
+   */
+  private final Map<Long, HostRoleStatus> statuses = new ConcurrentHashMap<>();
+
+  @Before
+  public void setup() {
+    RELEASES.clear();
+    STARTED.clear();
+    UNITS_BEGUN.set(0);
+    UNITS_ENDED.set(0);
+    ServerActionExecutor.init(Guice.createInjector(
+        binder -> binder.bind(UnitOfWork.class).toInstance(new CountingUnitOfWork())));
+  }
+
+  /**
+   * Tasks of different requests run in parallel, tasks of the same request
+   * run in order.
+   */
+  @Test
+  public void testParallelRequestsAndOrderWithinRequest() throws Exception {
+    RELEASES.put(1L, new CountDownLatch(1));
+    final ServerActionExecutor executor = new ServerActionExecutor(createDb(
+        createTask(1L, 100L, 60), createTask(2L, 100L, 60), createTask(3L, 200L, 60)), 1000);
+
+    Thread doWork = new Thread(() -> {
+      try {
+        executor.doWork();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    doWork.start();
+
+    // task 3 of the other request completes while task 1 is still running
+    waitForStatus(3L, HostRoleStatus.COMPLETED);
+    assertEquals(HostRoleStatus.IN_PROGRESS, statuses.get(1L));
+    assertFalse(STARTED.contains(2L));
+
+    RELEASES.get(1L).countDown();
+    doWork.join(10000);
+    assertFalse(doWork.isAlive());
+
+    assertEquals(HostRoleStatus.COMPLETED, statuses.get(1L));
+    assertEquals(HostRoleStatus.COMPLETED, statuses.get(2L));
+    assertTrue(STARTED.indexOf(1L) < STARTED.indexOf(2L));
+
+    // every task runs in a unit of work of its own
+    assertEquals(3, UNITS_BEGUN.get());
+    assertEquals(3, UNITS_ENDED.get());
+  }
+
+  /**
+   * A timed out task does not hold back the next task of its request.
+   */
+  @Test
+  public void testTimeoutReleasesRequest() throws Exception {
+    RELEASES.put(1L, new CountDownLatch(1));
+    ServerActionExecutor executor = new ServerActionExecutor(createDb(
+        createTask(1L, 100L, 1), createTask(2L, 100L, 60)), 1000);
+
+    executor.doWork();
+
+    assertEquals(HostRoleStatus.TIMEDOUT, statuses.get(1L));
+    assertEquals(HostRoleStatus.COMPLETED, statuses.get(2L));
+    assertEquals(Arrays.asList(1L, 2L), STARTED);
+  }
+
+  private void waitForStatus(long taskId, HostRoleStatus status) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 10000;
+    while (status != statuses.get(taskId) && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(status, statuses.get(taskId));
+  }
+
+  private ActionDBAccessor createDb(HostRoleCommand... tasks) {
+    ActionDBAccessor db = createNiceMock(ActionDBAccessor.class);
+    expect(db.getTasksByRoleAndStatus(Role.AMBARI_SERVER_ACTION.name(), HostRoleStatus.QUEUED))
+        .andReturn(Arrays.asList(tasks)).once();
+
+    db.updateHostRoleState(isNull(String.class), anyLong(), anyLong(), anyString(),
+        anyObject(CommandReport.class));
+    expectLastCall().andAnswer(() -> {
+      long stageId = (Long) getCurrentArguments()[2];
+      CommandReport report = (CommandReport) getCurrentArguments()[4];
+      statuses.put(stageId, HostRoleStatus.valueOf(report.getStatus()));
+      return null;
+    }).anyTimes();
+
+    replay(db);
+    return db;
+  }
+
+  private HostRoleCommand createTask(long taskId, long requestId, int timeoutSeconds) {
+    ExecutionCommand executionCommand = new ExecutionCommand();
+    executionCommand.setRole(Role.AMBARI_SERVER_ACTION.name());
+    executionCommand.setRoleParams(Collections.singletonMap(ServerAction.ACTION_NAME,
+        BlockingServerAction.class.getName()));
+    executionCommand.setCommandParams(Collections.singletonMap(
+        ExecutionCommand.KeyNames.COMMAND_TIMEOUT, String.valueOf(timeoutSeconds)));
+
+    ExecutionCommandWrapper wrapper = createNiceMock(ExecutionCommandWrapper.class);
+    expect(wrapper.getExecutionCommand()).andReturn(executionCommand).anyTimes();
+
+    HostRoleCommand task = createNiceMock(HostRoleCommand.class);
+    expect(task.getTaskId()).andReturn(taskId).anyTimes();
+    expect(task.getRequestId()).andReturn(requestId).anyTimes();
+    expect(task.getStageId()).andReturn(taskId).anyTimes();
+    expect(task.getStatus()).andReturn(HostRoleStatus.QUEUED).anyTimes();
+    expect(task.getExecutionCommandWrapper()).andReturn(wrapper).anyTimes();
+
+    replay(wrapper, task);
+    return task;
+  }
+
+  /**
+   * Unit of work which counts the units begun and ended.
+   */
+  private static class CountingUnitOfWork implements UnitOfWork {
+    @Override
+    public void begin() {
+      UNITS_BEGUN.incrementAndGet();
+    }
+
+    @Override
+    public void end() {
+      UNITS_ENDED.incrementAndGet();
+    }
+  }
+
+  /**
+   * Server action which waits for its task's latch, if any.
+   */
+  public static class BlockingServerAction implements ServerAction {
+    private ExecutionCommand executionCommand;
+    private HostRoleCommand hostRoleCommand;
+
+    @Override
+    public ExecutionCommand getExecutionCommand() {
+      return executionCommand;
+    }
+
+    @Override
+    public void setExecutionCommand(ExecutionCommand command) {
+      executionCommand = command;
+    }
+
+    @Override
+    public HostRoleCommand getHostRoleCommand() {
+      return hostRoleCommand;
+    }
+
+    @Override
+    public void setHostRoleCommand(HostRoleCommand hostRoleCommand) {
+      this.hostRoleCommand = hostRoleCommand;
+    }
+
+    @Override
+    public CommandReport execute(ConcurrentMap<String, Object> requestSharedDataContext)
+        throws InterruptedException {
+      long taskId = hostRoleCommand.getTaskId();
+      STARTED.add(taskId);
+
+      CountDownLatch release = RELEASES.get(taskId);
+      if (release != null) {
+        release.await(30, TimeUnit.SECONDS);
+      }
+
+      CommandReport report = new CommandReport();
+      report.setStatus(HostRoleStatus.COMPLETED.toString());
+      report.setStdErr("");
+      report.setStdOut("");
+      return report;
+    }
+  }
+}
@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.state.cluster;
+
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ambari.server.state.Config;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests {@link ClusterConfigStore}.
+ */
+public class ClusterConfigStoreTest {
+
+  private final Map<String, Config> database = new HashMap<>();
+  private final AtomicInteger loads = new AtomicInteger();
+  private final AtomicInteger bulkLoads = new AtomicInteger();
+
+  private ClusterConfigStore createStore(int cacheSize) {
+    return new ClusterConfigStore(cacheSize, (type, tag) -> {
+      loads.incrementAndGet();
+      return database.get(type + "/" + tag);
+    }, () -> {
+      bulkLoads.incrementAndGet();
+      return new ArrayList<>(database.values());
+    });
+  }
+
+  private Config createConfig(String type, String tag, long version) {
+    Config config = createNiceMock(Config.class);
+    expect(config.getType()).andReturn(type).anyTimes();
+    expect(config.getTag()).andReturn(tag).anyTimes();
+    expect(config.getVersion()).andReturn(version).anyTimes();
+    replay(config);
+    database.put(type + "/" + tag, config);
+    return config;
+  }
+
+  /**
+   * Tests that registered versions are only loaded when accessed and that
+   * pinned versions are never loaded.
+   */
+  @Test
+  public void testLazyLoading() {
+    ClusterConfigStore store = createStore(10);
+    createConfig("core-site", "version1", 1L);
+    Config current = createConfig("core-site", "version2", 2L);
+
+    store.register("core-site", "version1", 1L);
+    store.pin(current);
+
+    Assert.assertTrue(store.containsType("core-site"));
+    Assert.assertEquals(Long.valueOf(1L), store.getVersion("core-site", "version1"));
+    Assert.assertEquals(2, store.getByType("core-site").size());
+    Assert.assertTrue(store.getByType("core-site").containsKey("version1"));
+    Assert.assertEquals(0, loads.get());
+
+    Assert.assertSame(current, store.get("core-site", "version2"));
+    Assert.assertEquals(0, loads.get());
+
+    Config old = store.getByVersion("core-site", 1L);
+    Assert.assertEquals("version1", old.getTag());
+    Assert.assertSame(old, store.get("core-site", "version1"));
+    Assert.assertEquals(1, loads.get());
+
+    Assert.assertNull(store.get("core-site", "version3"));
+    Assert.assertNull(store.getByType("hdfs-site"));
+    Assert.assertEquals(2, store.getAll().size());
+    Assert.assertEquals(0, bulkLoads.get());
+  }
+
+  /**
+   * Tests that all versions which are not in memory are loaded by a single
+   * query.
+   */
+  @Test
+  public void testGetAllLoadsInBulk() {
+    ClusterConfigStore store = createStore(1);
+    for (int i = 1; i <= 5; i++) {
+      createConfig("hdfs-site", "version" + i, i);
+      store.register("hdfs-site", "version" + i, (long) i);
+    }
+    Config current = createConfig("core-site", "version1", 1L);
+    store.pin(current);
+
+    Assert.assertEquals(6, store.getAll().size());
+    Assert.assertTrue(store.getAll().contains(current));
+    Assert.assertEquals(0, loads.get());
+    Assert.assertEquals(2, bulkLoads.get());
+  }
+
+  /**
+   * Tests that only a bounded number of non-pinned versions are kept in
+   * memory and that selecting a new desired version demotes the previous one.
+   */
+  @Test
+  public void testEvictionAndDemotion() {
+    ClusterConfigStore store = createStore(2);
+    for (int i = 1; i <= 5; i++) {
+      createConfig("hdfs-site", "version" + i, i);
+      store.register("hdfs-site", "version" + i, (long) i);
+    }
+
+    for (Config config : store.getByType("hdfs-site").values()) {
+      Assert.assertNotNull(config);
+    }
+    Assert.assertEquals(5, loads.get());
+    Assert.assertTrue(store.getCachedCount() <= 2);
+
+    Config first = createConfig("yarn-site", "version1", 1L);
+    Config second = createConfig("yarn-site", "version2", 2L);
+    store.pin(first);
+    store.pin(second);
+    store.select("yarn-site", "version2");
+
+    // the demoted version is still served from memory
+    loads.set(0);
+    Assert.assertSame(first, store.get("yarn-site", "version1"));
+    Assert.assertSame(second, store.get("yarn-site", "version2"));
+    Assert.assertEquals(0, loads.get());
+
+    store.clear();
+    Assert.assertFalse(store.containsType("yarn-site"));
+    Assert.assertEquals(0, store.getCachedCount());
+  }
+
+  /**
+   * Tests that creating a version does not demote the desired one, only
+   * selecting a new desired version does.
+   */
+  @Test
+  public void testOnlySelectionDemotes() {
+    ClusterConfigStore store = createStore(0);
+    Config desired = createConfig("hive-site", "version1", 1L);
+    Config created = createConfig("hive-site", "version2", 2L);
+    store.pin(desired);
+    store.pin(created);
+
+    Assert.assertSame(desired, store.get("hive-site", "version1"));
+    Assert.assertSame(created, store.get("hive-site", "version2"));
+    Assert.assertEquals(0, loads.get());
+
+    // without a cache the demoted version is loaded again
+    store.select("hive-site", "version2");
+    Assert.assertSame(created, store.get("hive-site", "version2"));
+    Assert.assertEquals(0, loads.get());
+    Assert.assertSame(desired, store.get("hive-site", "version1"));
+    Assert.assertEquals(1, loads.get());
+
+    // a version which is not in memory is loaded and pinned when selected
+    store.select("hive-site", "version1");
+    Assert.assertEquals(2, loads.get());
+    Assert.assertSame(desired, store.get("hive-site", "version1"));
+    Assert.assertEquals(2, loads.get());
+  }
+}
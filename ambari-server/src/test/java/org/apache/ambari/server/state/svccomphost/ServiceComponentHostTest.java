@@ -20,6 +20,7 @@ package org.apache.ambari.server.state.svccomphost;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -68,6 +69,7 @@ import org.apache.ambari.server.state.UpgradeState;
 import org.apache.ambari.server.state.configgroup.ConfigGroup;
 import org.apache.ambari.server.state.configgroup.ConfigGroupFactory;
 import org.apache.ambari.server.state.fsm.InvalidStateTransitionException;
+import org.apache.ambari.server.state.svccomphost.ServiceComponentHostTransitionProcessor.Transition;
 import org.apache.ambari.server.utils.EventBusSynchronizer;
 import org.apache.commons.lang3.StringUtils;
 import org.junit.After;
@@ -1067,6 +1069,53 @@ public class ServiceComponentHostTest {
     Assert.assertEquals(MaintenanceState.ON, entity.getMaintenanceState());
   }
 
+  @Test
+  public void testBulkTransitions() throws Exception {
+    ServiceComponentHost namenode = createNewServiceComponentHost(clusterName, "HDFS", "NAMENODE", hostName1, false);
+    ServiceComponentHost datanode = createNewServiceComponentHost(clusterName, "HDFS", "DATANODE", hostName1, false);
+    namenode.setState(State.INSTALLED);
+    datanode.setState(State.INSTALLED);
+
+    ServiceComponentHostTransitionProcessor processor =
+        injector.getInstance(ServiceComponentHostTransitionProcessor.class);
+    processor.process(Arrays.asList(
+        Transition.of(namenode, new ServiceComponentHostStartEvent("NAMENODE", hostName1, 1L)),
+        Transition.of(datanode, State.STARTED),
+        Transition.of(namenode, new ServiceComponentHostStartedEvent("NAMENODE", hostName1, 2L)),
+        // not valid in STARTED and skipped
+        Transition.of(datanode, new ServiceComponentHostInstallEvent("DATANODE", hostName1, 3L, "HDP-2.0.6"))));
+
+    Assert.assertEquals(State.STARTED, namenode.getState());
+    Assert.assertEquals(2L, ((ServiceComponentHostImpl) namenode).getLastOpEndTime());
+    Assert.assertEquals(State.STARTED, datanode.getState());
+
+    HostComponentStateEntity namenodeEntity = hostComponentStateDAO.findByServiceComponentAndHost(
+        "HDFS", "NAMENODE", hostName1);
+    Assert.assertEquals(State.STARTED, namenodeEntity.getCurrentState());
+    HostComponentStateEntity datanodeEntity = hostComponentStateDAO.findByServiceComponentAndHost(
+        "HDFS", "DATANODE", hostName1);
+    Assert.assertEquals(State.STARTED, datanodeEntity.getCurrentState());
+    Assert.assertEquals(State.STARTED, datanodeEntity.getLastLiveState());
+  }
+
+  @Test
+  public void testStatusReportsOnlyApplyInSettledStates() throws Exception {
+    ServiceComponentHost namenode = createNewServiceComponentHost(clusterName, "HDFS", "NAMENODE", hostName1, false);
+    ServiceComponentHost datanode = createNewServiceComponentHost(clusterName, "HDFS", "DATANODE", hostName1, false);
+    namenode.setState(State.STARTING);
+    datanode.setState(State.INSTALLED);
+
+    ServiceComponentHostTransitionProcessor processor =
+        injector.getInstance(ServiceComponentHostTransitionProcessor.class);
+    processor.process(Arrays.asList(
+        Transition.ofStatusReport(namenode, State.INSTALLED),
+        Transition.ofStatusReport(datanode, State.STARTED)));
+
+    // the operation in progress decides the state of the name node
+    Assert.assertEquals(State.STARTING, namenode.getState());
+    Assert.assertEquals(State.STARTED, datanode.getState());
+  }
+
   /**
    * Tests that the host version for a repository can transition properly to
    * CURRENT even if other components on that host have not reported in correct
@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.topology;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.easymock.EasyMock.createStrictMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Collection;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for CachingClusterTopology.
+ */
+public class CachingClusterTopologyTest {
+
+  @Test
+  public void testLookupsAreResolvedOnce() {
+    ClusterTopology delegate = createStrictMock(ClusterTopology.class);
+    expect(delegate.getHostGroupsForComponent("NAMENODE")).andReturn(asList("group1", "group2")).once();
+    expect(delegate.getHostAssignmentsForComponent("NAMENODE")).andReturn(asList("host1", "host2")).once();
+    replay(delegate);
+
+    ClusterTopology topology = new CachingClusterTopology(delegate);
+    for (int i = 0; i < 10; i++) {
+      assertEquals(asList("group1", "group2"), asList(topology.getHostGroupsForComponent("NAMENODE").toArray()));
+      assertEquals(asList("host1", "host2"), asList(topology.getHostAssignmentsForComponent("NAMENODE").toArray()));
+    }
+
+    verify(delegate);
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testCachedLookupsAreUnmodifiable() {
+    ClusterTopology delegate = createStrictMock(ClusterTopology.class);
+    expect(delegate.getHostAssignmentsForComponent("NAMENODE")).andReturn(asList("host1", "host2"));
+    replay(delegate);
+
+    Collection<String> hosts = new CachingClusterTopology(delegate).getHostAssignmentsForComponent("NAMENODE");
+    hosts.clear();
+  }
+
+  @Test
+  public void testModificationInvalidatesLookups() throws Exception {
+    ClusterTopology delegate = createStrictMock(ClusterTopology.class);
+    expect(delegate.getHostAssignmentsForComponent("DATANODE")).andReturn(singletonList("host1"));
+    delegate.addHostToTopology("group1", "host2");
+    expectLastCall();
+    expect(delegate.getHostAssignmentsForComponent("DATANODE")).andReturn(asList("host1", "host2"));
+    delegate.removeHost("host1");
+    expectLastCall();
+    expect(delegate.getHostAssignmentsForComponent("DATANODE")).andReturn(singletonList("host2"));
+    replay(delegate);
+
+    ClusterTopology topology = new CachingClusterTopology(delegate);
+    assertEquals(1, topology.getHostAssignmentsForComponent("DATANODE").size());
+    topology.addHostToTopology("group1", "host2");
+    assertEquals(2, topology.getHostAssignmentsForComponent("DATANODE").size());
+    topology.removeHost("host1");
+    assertEquals(singletonList("host2"), asList(topology.getHostAssignmentsForComponent("DATANODE").toArray()));
+
+    verify(delegate);
+  }
+}
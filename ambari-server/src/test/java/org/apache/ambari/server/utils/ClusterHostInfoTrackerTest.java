@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.utils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+
+/**
+ * Tests {@link ClusterHostInfoTracker}.
+ */
+public class ClusterHostInfoTrackerTest {
+
+  private ClusterHostInfoTracker createTracker() {
+    ClusterHostInfoTracker tracker = new ClusterHostInfoTracker();
+
+    Map<String, List<String>> componentHosts = new HashMap<>();
+    componentHosts.put("NAMENODE", Arrays.asList("h1"));
+    componentHosts.put("DATANODE", Arrays.asList("h1", "h2", "h3"));
+    componentHosts.put("HDFS_CLIENT", Arrays.asList("h1", "h2"));
+
+    Assert.assertTrue(tracker.initialize(tracker.getModificationCount(),
+        Arrays.asList("h1", "h2", "h3"), componentHosts, Collections.singleton("HDFS_CLIENT")));
+
+    return tracker;
+  }
+
+  /**
+   * Tests that the snapshot lists ranged host indexes for every non-client
+   * component.
+   */
+  @Test
+  public void testSnapshot() {
+    ClusterHostInfoTracker tracker = createTracker();
+    Map<String, Set<String>> snapshot = tracker.getSnapshot();
+
+    Assert.assertEquals(new LinkedHashSet<>(Arrays.asList("h1", "h2", "h3")),
+        snapshot.get(StageUtils.HOSTS_LIST));
+    Assert.assertEquals(Sets.newHashSet("0"), snapshot.get("namenode_hosts"));
+    Assert.assertEquals(Sets.newHashSet("0-2"), snapshot.get("datanode_hosts"));
+    Assert.assertFalse(snapshot.containsKey("hdfs_client_hosts"));
+
+    // unchanged snapshots are shared
+    Assert.assertSame(snapshot, tracker.getSnapshot());
+  }
+
+  /**
+   * Tests that changes publish a new snapshot without altering the previous
+   * one.
+   */
+  @Test
+  public void testIncrementalChanges() {
+    ClusterHostInfoTracker tracker = createTracker();
+    Map<String, Set<String>> first = tracker.getSnapshot();
+
+    tracker.addHost("h4");
+    tracker.addComponent("DATANODE", false, "h4");
+    tracker.addComponent("ZOOKEEPER_SERVER", false, "h4");
+    tracker.removeComponent("NAMENODE", false, "h1");
+
+    Map<String, Set<String>> second = tracker.getSnapshot();
+    Assert.assertNotSame(first, second);
+    Assert.assertEquals(Sets.newHashSet("0"), first.get("namenode_hosts"));
+    Assert.assertFalse(second.containsKey("namenode_hosts"));
+    Assert.assertEquals(Sets.newHashSet("0-3"), second.get("datanode_hosts"));
+    Assert.assertEquals(Sets.newHashSet("3"), second.get("zookeeper_server_hosts"));
+
+    // removing a host shifts the indexes of the following hosts
+    tracker.removeHost("h2");
+    Map<String, Set<String>> third = tracker.getSnapshot();
+    Assert.assertEquals(new LinkedHashSet<>(Arrays.asList("h1", "h3", "h4")),
+        third.get(StageUtils.HOSTS_LIST));
+    Assert.assertEquals(Sets.newHashSet("0-2"), third.get("datanode_hosts"));
+    Assert.assertEquals(Sets.newHashSet("2"), third.get("zookeeper_server_hosts"));
+  }
+
+  /**
+   * Tests that a population racing with a change is rejected and that
+   * changes before population are ignored.
+   */
+  @Test
+  public void testInitializeRace() {
+    ClusterHostInfoTracker tracker = new ClusterHostInfoTracker();
+    long modificationCount = tracker.getModificationCount();
+
+    tracker.addHost("h1");
+    Assert.assertFalse(tracker.isInitialized());
+
+    Assert.assertFalse(tracker.initialize(modificationCount, Collections.emptyList(),
+        Collections.emptyMap(), Collections.emptySet()));
+    Assert.assertFalse(tracker.isInitialized());
+
+    Assert.assertTrue(tracker.initialize(tracker.getModificationCount(),
+        Collections.singletonList("h1"), Collections.emptyMap(), Collections.emptySet()));
+    Assert.assertEquals(Collections.singleton("h1"), tracker.getSnapshot().get(StageUtils.HOSTS_LIST));
+  }
+}
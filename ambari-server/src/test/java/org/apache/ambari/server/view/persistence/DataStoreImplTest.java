@@ -26,9 +26,11 @@ import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -676,6 +678,206 @@ public class DataStoreImplTest {
         dynamicEntity1, dynamicEntity2, dynamicEntity3, query, schemaManager, jpaEntityManager, session, databaseLogin);
   }
 
+  @Test
+  public void testFindAll_paged() throws Exception {
+    DynamicClassLoader classLoader = new DynamicClassLoader(DataStoreImplTest.class.getClassLoader());
+
+    // create mocks
+    JpaEntityManager jpaEntityManager = createMock(JpaEntityManager.class);
+    ServerSession session = createMock(ServerSession.class);
+    DatabaseLogin databaseLogin = createMock(DatabaseLogin.class);
+    EntityManagerFactory entityManagerFactory = createMock(EntityManagerFactory.class);
+    EntityManager entityManager = createMock(EntityManager.class);
+    JPADynamicHelper jpaDynamicHelper = createNiceMock(JPADynamicHelper.class);
+    SchemaManager schemaManager = createNiceMock(SchemaManager.class);
+    DynamicEntity dynamicEntity1 = createMock(DynamicEntity.class);
+    DynamicEntity dynamicEntity2 = createMock(DynamicEntity.class);
+    Query query = createMock(Query.class);
+
+    // set expectations
+    PowerMock.mockStatic(JpaHelper.class);
+    expect(JpaHelper.getEntityManager(entityManager)).andReturn(jpaEntityManager).anyTimes();
+    PowerMock.replay(JpaHelper.class);
+    expect(jpaEntityManager.getServerSession()).andReturn(session).anyTimes();
+    expect(session.getLogin()).andReturn(databaseLogin).anyTimes();
+    Capture<Sequence> sequenceCapture = EasyMock.newCapture();
+    databaseLogin.addSequence(capture(sequenceCapture));
+    EasyMock.expectLastCall().anyTimes();
+    Capture<DynamicType> typeCapture = EasyMock.newCapture();
+    Capture<DynamicType> typeCapture2 = EasyMock.newCapture();
+    jpaDynamicHelper.addTypes(eq(true), eq(true), capture(typeCapture), capture(typeCapture2));
+
+    expect(entityManagerFactory.createEntityManager()).andReturn(entityManager).anyTimes();
+    expect(entityManager.createQuery(
+        "SELECT e FROM DS_DataStoreImplTest$TestEntity_1 e WHERE e.DS_name='foo' ORDER BY e.DS_id")).andReturn(query);
+    entityManager.close();
+
+    expect(query.setFirstResult(10)).andReturn(query);
+    expect(query.setMaxResults(2)).andReturn(query);
+    List<DynamicEntity> entityList = new LinkedList<>();
+    entityList.add(dynamicEntity1);
+    entityList.add(dynamicEntity2);
+    expect(query.getResultList()).andReturn(entityList);
+
+    expect(dynamicEntity1.get("DS_id")).andReturn(110);
+    expect(dynamicEntity1.get("DS_name")).andReturn("foo");
+    expect(dynamicEntity1.get("DS_subEntity")).andReturn(new TestSubEntity("bar"));
+
+    expect(dynamicEntity2.get("DS_id")).andReturn(111);
+    expect(dynamicEntity2.get("DS_name")).andReturn("foo");
+    expect(dynamicEntity2.get("DS_subEntity")).andReturn(new TestSubEntity("bar"));
+
+    // replay mocks
+    replay(entityManagerFactory, entityManager, jpaDynamicHelper,
+        dynamicEntity1, dynamicEntity2, query, schemaManager, jpaEntityManager, session, databaseLogin);
+
+    DataStoreImpl dataStore = getDataStore(entityManagerFactory, jpaDynamicHelper, classLoader, schemaManager);
+
+    Collection<TestEntity> entities = dataStore.findAll(TestEntity.class, "name='foo'", 10, 2);
+
+    // the page is returned in order
+    Assert.assertEquals(2, entities.size());
+    Iterator<TestEntity> iterator = entities.iterator();
+    Assert.assertEquals(110, (int) iterator.next().getId());
+    Assert.assertEquals(111, (int) iterator.next().getId());
+
+    // verify mocks
+    verify(entityManagerFactory, entityManager, jpaDynamicHelper,
+        dynamicEntity1, dynamicEntity2, query, schemaManager, jpaEntityManager, session, databaseLogin);
+  }
+
+  @Test
+  public void testHasOrderByClause() throws Exception {
+    Assert.assertFalse(DataStoreImpl.hasOrderByClause(null));
+    Assert.assertFalse(DataStoreImpl.hasOrderByClause("name='foo'"));
+    Assert.assertTrue(DataStoreImpl.hasOrderByClause("name='foo' ORDER BY id"));
+    Assert.assertTrue(DataStoreImpl.hasOrderByClause("name='foo' order\n  by id desc"));
+    Assert.assertTrue(DataStoreImpl.hasOrderByClause("(name='foo' OR name='bar') ORDER BY name"));
+    // string literals and properties containing the keywords are not an ORDER BY clause
+    Assert.assertFalse(DataStoreImpl.hasOrderByClause("name='sort ORDER BY date'"));
+    Assert.assertFalse(DataStoreImpl.hasOrderByClause("name='it''s ORDER BY'"));
+    Assert.assertFalse(DataStoreImpl.hasOrderByClause("name=\"ORDER BY\""));
+    Assert.assertFalse(DataStoreImpl.hasOrderByClause("orderBy='x' AND bypass=1"));
+  }
+
+  @Test
+  public void testStoreAll() throws Exception {
+    DynamicClassLoader classLoader = new DynamicClassLoader(DataStoreImplTest.class.getClassLoader());
+
+    // create mocks
+    EntityManagerFactory entityManagerFactory = createMock(EntityManagerFactory.class);
+    JpaEntityManager jpaEntityManager = createMock(JpaEntityManager.class);
+    ServerSession session = createMock(ServerSession.class);
+    DatabaseLogin databaseLogin = createMock(DatabaseLogin.class);
+    EntityManager entityManager = createMock(EntityManager.class);
+    JPADynamicHelper jpaDynamicHelper = createNiceMock(JPADynamicHelper.class);
+    SchemaManager schemaManager = createNiceMock(SchemaManager.class);
+    EntityTransaction transaction = createMock(EntityTransaction.class);
+
+    // set expectations
+    PowerMock.mockStatic(JpaHelper.class);
+    expect(JpaHelper.getEntityManager(entityManager)).andReturn(jpaEntityManager).anyTimes();
+    PowerMock.replay(JpaHelper.class);
+    expect(jpaEntityManager.getServerSession()).andReturn(session).anyTimes();
+    expect(session.getLogin()).andReturn(databaseLogin).anyTimes();
+    Capture<Sequence> sequenceCapture = EasyMock.newCapture();
+    databaseLogin.addSequence(capture(sequenceCapture));
+    EasyMock.expectLastCall().anyTimes();
+
+    entityManager.persist(EasyMock.anyObject(DynamicEntity.class));
+    EasyMock.expectLastCall().andAnswer(new IAnswer<Object>() {
+      private int id = 99;
+
+      @Override
+      public Object answer() throws Throwable {
+        ((DynamicEntity) EasyMock.getCurrentArguments()[0]).set("DS_id", id++);
+        return null;
+      }
+    }).times(2);
+
+    Capture<DynamicType> typeCapture = EasyMock.newCapture();
+    Capture<DynamicType> typeCapture2 = EasyMock.newCapture();
+    jpaDynamicHelper.addTypes(eq(true), eq(true), capture(typeCapture), capture(typeCapture2));
+
+    expect(entityManagerFactory.createEntityManager()).andReturn(entityManager).anyTimes();
+    expect(entityManager.getTransaction()).andReturn(transaction).anyTimes();
+
+    entityManager.close();
+
+    // a single transaction for all the entities
+    transaction.begin();
+    transaction.commit();
+
+    // replay mocks
+    replay(entityManagerFactory, entityManager, jpaDynamicHelper, transaction, schemaManager, jpaEntityManager, session, databaseLogin);
+
+    DataStoreImpl dataStore = getDataStore(entityManagerFactory, jpaDynamicHelper, classLoader, schemaManager);
+
+    TestSubEntity entity1 = new TestSubEntity("foo");
+    TestSubEntity entity2 = new TestSubEntity("bar");
+    dataStore.storeAll(Arrays.asList(entity1, entity2));
+
+    Assert.assertEquals(new Integer(99), entity1.getId());
+    Assert.assertEquals(new Integer(100), entity2.getId());
+
+    // verify mocks
+    verify(entityManagerFactory, entityManager, jpaDynamicHelper, transaction, schemaManager, jpaEntityManager, session, databaseLogin);
+  }
+
+  @Test
+  public void testRemoveAll() throws Exception {
+    DynamicClassLoader classLoader = new DynamicClassLoader(DataStoreImplTest.class.getClassLoader());
+
+    // create mocks
+    JpaEntityManager jpaEntityManager = createMock(JpaEntityManager.class);
+    ServerSession session = createMock(ServerSession.class);
+    DatabaseLogin databaseLogin = createMock(DatabaseLogin.class);
+    EntityManagerFactory entityManagerFactory = createMock(EntityManagerFactory.class);
+    EntityManager entityManager = createMock(EntityManager.class);
+    JPADynamicHelper jpaDynamicHelper = createNiceMock(JPADynamicHelper.class);
+    SchemaManager schemaManager = createNiceMock(SchemaManager.class);
+    EntityTransaction transaction = createMock(EntityTransaction.class);
+    DynamicEntity dynamicEntity1 = createMock(DynamicEntity.class);
+    DynamicEntity dynamicEntity2 = createMock(DynamicEntity.class);
+
+    // set expectations
+    PowerMock.mockStatic(JpaHelper.class);
+    expect(JpaHelper.getEntityManager(entityManager)).andReturn(jpaEntityManager).anyTimes();
+    PowerMock.replay(JpaHelper.class);
+    expect(jpaEntityManager.getServerSession()).andReturn(session).anyTimes();
+    expect(session.getLogin()).andReturn(databaseLogin).anyTimes();
+    Capture<Sequence> sequenceCapture = EasyMock.newCapture();
+    databaseLogin.addSequence(capture(sequenceCapture));
+    EasyMock.expectLastCall().anyTimes();
+
+    Capture<DynamicType> typeCapture = EasyMock.newCapture();
+    Capture<DynamicType> typeCapture2 = EasyMock.newCapture();
+    jpaDynamicHelper.addTypes(eq(true), eq(true), capture(typeCapture), capture(typeCapture2));
+
+    expect(entityManagerFactory.createEntityManager()).andReturn(entityManager).anyTimes();
+    expect(entityManager.getTransaction()).andReturn(transaction).anyTimes();
+    expect(entityManager.getReference(EasyMock.anyObject(Class.class), eq(99))).andReturn(dynamicEntity1);
+    expect(entityManager.getReference(EasyMock.anyObject(Class.class), eq(100))).andReturn(dynamicEntity2);
+    entityManager.remove(dynamicEntity1);
+    entityManager.remove(dynamicEntity2);
+    entityManager.close();
+
+    // a single transaction for all the entities
+    transaction.begin();
+    transaction.commit();
+
+    // replay mocks
+    replay(entityManagerFactory, entityManager, jpaDynamicHelper, transaction, schemaManager, dynamicEntity1, dynamicEntity2, jpaEntityManager, session, databaseLogin);
+
+    DataStoreImpl dataStore = getDataStore(entityManagerFactory, jpaDynamicHelper, classLoader, schemaManager);
+
+    dataStore.removeAll(Arrays.asList(new TestEntity(99, "foo", new TestSubEntity("bar")),
+        new TestEntity(100, "foo", new TestSubEntity("bar"))));
+
+    // verify mocks
+    verify(entityManagerFactory, entityManager, jpaDynamicHelper, transaction, schemaManager, dynamicEntity1, dynamicEntity2, jpaEntityManager, session, databaseLogin);
+  }
+
   private DataStoreImpl getDataStore(EntityManagerFactory entityManagerFactory,
                                      JPADynamicHelper jpaDynamicHelper,
                                      DynamicClassLoader classLoader,
@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.view.persistence;
+
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * EntityAccessor tests.
+ */
+public class EntityAccessorTest {
+
+  @Test
+  public void testGetProperties() throws Exception {
+    EntityAccessor accessor = EntityAccessor.forClass(TestEntity.class);
+    TestEntity entity = new TestEntity();
+    entity.setName("foo");
+    entity.setCount(5L);
+    entity.setEnabled(true);
+
+    Assert.assertEquals(ImmutableSet.of("class", "name", "count", "enabled"), accessor.getPropertyNames());
+    Assert.assertEquals(ImmutableSet.of("name", "count", "enabled"), accessor.getWritablePropertyNames());
+    Assert.assertEquals(long.class, accessor.getPropertyType("count"));
+
+    Map<String, Object> properties = accessor.getProperties(entity);
+    Assert.assertEquals("foo", properties.get("name"));
+    Assert.assertEquals(5L, properties.get("count"));
+    Assert.assertEquals(true, properties.get("enabled"));
+  }
+
+  @Test
+  public void testSetProperty() throws Exception {
+    EntityAccessor accessor = EntityAccessor.forClass(TestEntity.class);
+    TestEntity entity = new TestEntity();
+
+    accessor.setProperty(entity, "name", "foo");
+    accessor.setProperty(entity, "count", 5L);
+    accessor.setProperty(entity, "enabled", true);
+
+    Assert.assertEquals("foo", entity.getName());
+    Assert.assertEquals(5L, entity.getCount());
+    Assert.assertTrue(entity.isEnabled());
+  }
+
+  @Test
+  public void testSetProperty_primitiveWidening() throws Exception {
+    EntityAccessor accessor = EntityAccessor.forClass(TestEntity.class);
+    TestEntity entity = new TestEntity();
+
+    // the database may return a narrower type than the property type
+    accessor.setProperty(entity, "count", 5);
+
+    Assert.assertEquals(5L, entity.getCount());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSetProperty_primitiveNarrowing() throws Exception {
+    EntityAccessor accessor = EntityAccessor.forClass(TestEntity.class);
+
+    accessor.setProperty(new TestEntity(), "count", 5.5d);
+  }
+
+  public static class TestEntity {
+    private String name;
+    private long count;
+    private boolean enabled;
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    public void setCount(long count) {
+      this.count = count;
+    }
+
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+  }
+}
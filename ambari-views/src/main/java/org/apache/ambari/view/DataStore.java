@@ -22,6 +22,9 @@ import java.util.Collection;
 
 /**
  * View data store.
+ * <p>
+ * The data store is provided to a view by the Ambari server through
+ * {@link ViewContext#getDataStore()}.  Views use it but do not implement it.
  */
 public interface DataStore {
 
@@ -35,6 +38,16 @@ public interface DataStore {
    */
   public void store(Object entity) throws PersistenceException;
 
+  /**
+   * Save the given entities to persistent storage in a single transaction.  Either
+   * all or none of the entities are persisted.
+   *
+   * @param entities  the entities to be persisted.
+   *
+   * @throws PersistenceException thrown if the given entities can not be persisted
+   */
+  public void storeAll(Collection<?> entities) throws PersistenceException;
+
   /**
    * Remove the given entity from persistent storage.
    *
@@ -44,6 +57,16 @@ public interface DataStore {
    */
   public void remove(Object entity) throws PersistenceException;
 
+  /**
+   * Remove the given entities from persistent storage in a single transaction.  Either
+   * all or none of the entities are removed.
+   *
+   * @param entities  the entities to be removed.
+   *
+   * @throws PersistenceException thrown if the given entities can not be removed
+   */
+  public void removeAll(Collection<?> entities) throws PersistenceException;
+
   /**
    * Find the entity of the given class type that is uniquely identified by the
    * given primary key.
@@ -72,4 +95,23 @@ public interface DataStore {
    * @throws PersistenceException
    */
   public <T> Collection<T> findAll(Class<T> clazz, String whereClause) throws PersistenceException;
+
+  /**
+   * Find a page of the entities for the given where clause.  The entities are ordered
+   * by their primary key unless the where clause specifies an order.  Specifying null for
+   * the where clause pages through all entities of the given class type.
+   *
+   * @param clazz        the entity class
+   * @param whereClause  the where clause; may be null
+   * @param firstResult  the position of the first entity to return, starting from 0
+   * @param maxResults   the maximum number of entities to return
+   * @param <T>          the entity type
+   *
+   * @return the entities of the requested page in order; empty collection if no
+   *         entities can be found
+   *
+   * @throws PersistenceException
+   */
+  public <T> Collection<T> findAll(Class<T> clazz, String whereClause, int firstResult, int maxResults)
+      throws PersistenceException;
 }
@@ -0,0 +1,176 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.simulator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jetty.websocket.client.WebSocketClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.web.socket.client.jetty.JettyWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+/**
+ * Load test harness which runs thousands of simulated STOMP agents against an
+ * Ambari Server, either embedded on top of the in-memory database or running
+ * elsewhere, and periodically prints latency percentiles and resource usage.
+ * <p/>
+ * Usage: {@code AgentSimulator [simulator.properties]}
+ */
+public class AgentSimulator {
+
+  private static final Logger LOG = LoggerFactory.getLogger(AgentSimulator.class);
+
+  private static final int MAX_MESSAGE_SIZE = 32 * 1024 * 1024;
+
+  private final SimulatorConfiguration config;
+  private final SimulatorMetrics metrics = new SimulatorMetrics();
+  private final ResourceMonitor resourceMonitor = new ResourceMonitor();
+  private final List<SimulatedAgent> agents = new ArrayList<>();
+
+  public AgentSimulator(SimulatorConfiguration config) {
+    this.config = config;
+  }
+
+  public static void main(String[] args) throws Exception {
+    SimulatorConfiguration config = SimulatorConfiguration.load(args.length > 0 ? args[0] : null);
+    new AgentSimulator(config).run();
+    System.exit(0);
+  }
+
+  public void run() throws Exception {
+    EmbeddedAmbariServer server = null;
+    if (config.isEmbeddedServer()) {
+      server = new EmbeddedAmbariServer(config);
+      server.start(TimeUnit.MINUTES.toMillis(5));
+    }
+
+    WebSocketClient jettyClient = new WebSocketClient();
+    jettyClient.getPolicy().setMaxTextMessageSize(MAX_MESSAGE_SIZE);
+    jettyClient.start();
+
+    ThreadPoolTaskScheduler stompScheduler = new ThreadPoolTaskScheduler();
+    stompScheduler.setPoolSize(2);
+    stompScheduler.setThreadNamePrefix("stomp-heartbeat-");
+    stompScheduler.initialize();
+
+    WebSocketStompClient stompClient = new WebSocketStompClient(new JettyWebSocketClient(jettyClient));
+    stompClient.setMessageConverter(new MappingJackson2MessageConverter());
+    stompClient.setInboundMessageSizeLimit(MAX_MESSAGE_SIZE);
+    stompClient.setTaskScheduler(stompScheduler);
+
+    ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(config.getSchedulerThreads(), r -> {
+      Thread thread = new Thread(r, "simulated-agents");
+      thread.setDaemon(true);
+      return thread;
+    });
+    ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+
+    try {
+      String url = String.format("ws://%s:%d/agent/stomp/v1", config.getServerHost(), config.getAgentPort());
+      String agentVersion = config.getAgentVersion();
+      for (int i = 0; i < config.getAgentCount(); i++) {
+        String hostName = String.format(config.getHostNamePattern(), i);
+        agents.add(new SimulatedAgent(hostName, url, config, metrics, stompClient, scheduler, agentVersion));
+      }
+
+      long reportInterval = config.getReportIntervalSeconds();
+      reporter.scheduleAtFixedRate(() -> {
+        for (SimulatedAgent agent : agents) {
+          agent.expirePendingResponses(TimeUnit.MINUTES.toMillis(1));
+        }
+        report("progress");
+      }, reportInterval, reportInterval, TimeUnit.SECONDS);
+
+      List<String> registered = registerAgents();
+      LOG.info("{} of {} agents registered", registered.size(), agents.size());
+
+      if (config.isProvisionCluster() && !registered.isEmpty()) {
+        try {
+          new ClusterProvisioner(config, metrics).provision(registered);
+        } catch (Exception e) {
+          LOG.error("Unable to provision cluster {}, continuing with registered agents only",
+              config.getClusterName(), e);
+        }
+      }
+
+      Thread.sleep(TimeUnit.SECONDS.toMillis(config.getDurationSeconds()));
+      report("final");
+    } finally {
+      reporter.shutdownNow();
+      for (SimulatedAgent agent : agents) {
+        agent.stop();
+      }
+      scheduler.shutdownNow();
+      stompScheduler.shutdown();
+      jettyClient.stop();
+      if (server != null) {
+        server.stop();
+      }
+    }
+  }
+
+  /**
+   * Connects and registers all agents, keeping at most the configured number of
+   * registrations in flight.
+   *
+   * @return names of the hosts which registered successfully
+   */
+  private List<String> registerAgents() throws InterruptedException {
+    Semaphore inFlight = new Semaphore(config.getRegistrationConcurrency());
+    AtomicInteger finished = new AtomicInteger();
+    for (SimulatedAgent agent : agents) {
+      inFlight.acquire();
+      agent.start().whenComplete((ok, e) -> {
+        finished.incrementAndGet();
+        inFlight.release();
+      });
+    }
+    while (finished.get() < agents.size()) {
+      Thread.sleep(100);
+    }
+
+    List<String> registered = new ArrayList<>();
+    for (SimulatedAgent agent : agents) {
+      if (agent.isRegistered()) {
+        registered.add(agent.getHostName());
+      }
+    }
+    return registered;
+  }
+
+  private void report(String title) {
+    StringBuilder report = new StringBuilder();
+    report.append(String.format("%n==== %s: %d agents ====%n", title, agents.size()));
+    for (LatencyStats stats : metrics.getLatencies()) {
+      report.append(stats).append(System.lineSeparator());
+    }
+    report.append(metrics.counters()).append(System.lineSeparator());
+    report.append(resourceMonitor.sample()).append(System.lineSeparator());
+    report.append(resourceMonitor.summary()).append(System.lineSeparator());
+    System.out.print(report);
+  }
+}
@@ -0,0 +1,248 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.simulator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Creates a cluster over the REST API from the registered simulated hosts, then
+ * installs and starts its components, which makes the server dispatch execution
+ * commands to every agent.
+ */
+public class ClusterProvisioner {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ClusterProvisioner.class);
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private final SimulatorConfiguration config;
+  private final SimulatorMetrics metrics;
+  private final String baseUrl;
+  private final String authorization;
+
+  public ClusterProvisioner(SimulatorConfiguration config, SimulatorMetrics metrics) {
+    this.config = config;
+    this.metrics = metrics;
+    baseUrl = String.format("http://%s:%d/api/v1", config.getServerHost(), config.getApiPort());
+    authorization = "Basic " + Base64.getEncoder().encodeToString(
+        (config.getApiUser() + ":" + config.getApiPassword()).getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Creates the cluster with all given hosts and moves its components through
+   * INSTALLED to STARTED.
+   */
+  public void provision(List<String> hostNames) throws IOException, InterruptedException {
+    String cluster = config.getClusterName();
+    String service = config.getServiceName();
+
+    execute("POST", "/clusters/" + cluster,
+        singleton("Clusters", singleton("version", config.getStackVersion())));
+
+    List<Object> hosts = new ArrayList<>();
+    for (String hostName : hostNames) {
+      hosts.add(singleton("Hosts", singleton("host_name", hostName)));
+    }
+    execute("POST", "/clusters/" + cluster + "/hosts", hosts);
+
+    Map<String, Object> serviceInfo = singleton("service_name", service);
+    serviceInfo.put("desired_repository_version_id", createRepositoryVersion());
+    execute("POST", "/clusters/" + cluster + "/services", singleton("ServiceInfo", serviceInfo));
+    List<String> masters = nonEmpty(config.getMasterComponents());
+    List<String> slaves = nonEmpty(config.getSlaveComponents());
+    for (String component : concat(masters, slaves)) {
+      execute("POST", "/clusters/" + cluster + "/services/" + service + "/components/" + component, null);
+    }
+
+    addHostComponents(cluster, hostNames.subList(0, 1), masters);
+    addHostComponents(cluster, hostNames, slaves);
+
+    waitFor(execute("PUT", "/clusters/" + cluster + "/host_components?HostRoles/state=INIT",
+        singleton("HostRoles", singleton("state", "INSTALLED"))));
+    waitFor(execute("PUT", "/clusters/" + cluster + "/host_components?HostRoles/state=INSTALLED",
+        singleton("HostRoles", singleton("state", "STARTED"))));
+  }
+
+  /**
+   * Registers a repository version of the cluster stack pointing at a dummy base
+   * url; simulated agents never install packages from it.
+   *
+   * @return the id of the new repository version
+   */
+  @SuppressWarnings("unchecked")
+  private long createRepositoryVersion() throws IOException {
+    String stack = config.getStackVersion();
+    int separator = stack.lastIndexOf('-');
+    String stackName = stack.substring(0, separator);
+    String stackVersion = stack.substring(separator + 1);
+    String version = stackVersion + ".0-1";
+
+    Map<String, Object> repository = singleton("repo_id", stack);
+    repository.put("repo_name", stackName);
+    repository.put("base_url", "http://localhost/" + config.getClusterName() + "/" + version);
+    Map<String, Object> operatingSystem = singleton("OperatingSystems",
+        singleton("os_type", config.getRepositoryOsType()));
+    operatingSystem.put("repositories", Collections.singletonList(singleton("Repositories", repository)));
+
+    Map<String, Object> repositoryVersion = singleton("repository_version", version);
+    repositoryVersion.put("display_name", stack + "." + version);
+    Map<String, Object> body = singleton("RepositoryVersions", repositoryVersion);
+    body.put("operating_systems", Collections.singletonList(operatingSystem));
+
+    String path = "/stacks/" + stackName + "/versions/" + stackVersion + "/repository_versions";
+    execute("POST", path, body);
+    Map<String, Object> created = execute("GET", path + "?RepositoryVersions/repository_version=" + version, null);
+    List<Map<String, Object>> items = (List<Map<String, Object>>) created.get("items");
+    if (items == null || items.isEmpty()) {
+      throw new IOException("Repository version " + version + " was not created");
+    }
+    return ((Number) ((Map<String, Object>) items.get(0).get("RepositoryVersions")).get("id")).longValue();
+  }
+
+  private void addHostComponents(String cluster, List<String> hostNames, List<String> components)
+      throws IOException {
+    if (components.isEmpty()) {
+      return;
+    }
+    List<Object> hostComponents = new ArrayList<>();
+    for (String component : components) {
+      hostComponents.add(singleton("HostRoles", singleton("component_name", component)));
+    }
+    Map<String, Object> body = new LinkedHashMap<>();
+    body.put("RequestInfo", singleton("query", "Hosts/host_name.in(" + String.join(",", hostNames) + ")"));
+    body.put("Body", singleton("host_components", hostComponents));
+    execute("POST", "/clusters/" + cluster + "/hosts", body);
+  }
+
+  /**
+   * Waits until the given asynchronous request finished and records how long it took.
+   */
+  @SuppressWarnings("unchecked")
+  private void waitFor(Map<String, Object> response) throws IOException, InterruptedException {
+    Map<String, Object> request = response == null ? null : (Map<String, Object>) response.get("Requests");
+    if (request == null) {
+      return;
+    }
+    long requestId = ((Number) request.get("id")).longValue();
+    Long submitted = metrics.requestSubmitTimes.get(requestId);
+    String path = "/clusters/" + config.getClusterName() + "/requests/" + requestId;
+    while (true) {
+      Map<String, Object> status = (Map<String, Object>) execute("GET", path, null).get("Requests");
+      String requestStatus = String.valueOf(status.get("request_status"));
+      if (!"PENDING".equals(requestStatus) && !"IN_PROGRESS".equals(requestStatus)
+          && !"QUEUED".equals(requestStatus)) {
+        if (submitted != null) {
+          metrics.requestCompletion.recordSince(submitted);
+        }
+        LOG.info("Request {} finished with status {}", requestId, requestStatus);
+        return;
+      }
+      Thread.sleep(500);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private Map<String, Object> execute(String method, String path, Object body) throws IOException {
+    long start = System.nanoTime();
+    if (!"GET".equals(method)) {
+      metrics.lastRequestSubmitTime = start;
+    }
+    HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+    try {
+      connection.setRequestMethod(method);
+      connection.setRequestProperty("Authorization", authorization);
+      connection.setRequestProperty("X-Requested-By", "ambari");
+      if (body != null) {
+        connection.setDoOutput(true);
+        try (OutputStream out = connection.getOutputStream()) {
+          MAPPER.writeValue(out, body);
+        }
+      }
+      int code = connection.getResponseCode();
+      String content = read(code >= 400 ? connection.getErrorStream() : connection.getInputStream());
+      if (code >= 400) {
+        throw new IOException(String.format("%s %s failed with %d: %s", method, path, code, content));
+      }
+      if (content.trim().isEmpty()) {
+        return Collections.emptyMap();
+      }
+      Map<String, Object> response = MAPPER.readValue(content, Map.class);
+      Object request = response.get("Requests");
+      if (request instanceof Map && "Accepted".equals(((Map<String, Object>) request).get("status"))) {
+        metrics.requestSubmitTimes.put(((Number) ((Map<String, Object>) request).get("id")).longValue(), start);
+      }
+      return response;
+    } finally {
+      connection.disconnect();
+    }
+  }
+
+  private static String read(InputStream in) throws IOException {
+    if (in == null) {
+      return "";
+    }
+    try (InputStream input = in) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+      int read;
+      while ((read = input.read(buffer)) != -1) {
+        out.write(buffer, 0, read);
+      }
+      return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+  }
+
+  private static Map<String, Object> singleton(String key, Object value) {
+    Map<String, Object> map = new LinkedHashMap<>();
+    map.put(key, value);
+    return map;
+  }
+
+  private static List<String> nonEmpty(String[] values) {
+    List<String> result = new ArrayList<>();
+    for (String value : values) {
+      if (!value.isEmpty()) {
+        result.add(value);
+      }
+    }
+    return result;
+  }
+
+  private static List<String> concat(List<String> first, List<String> second) {
+    List<String> result = new ArrayList<>(first);
+    result.addAll(second);
+    return result;
+  }
+}
@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.simulator;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Properties;
+
+import org.apache.ambari.server.audit.AuditLoggerModule;
+import org.apache.ambari.server.configuration.ComponentSSLConfiguration;
+import org.apache.ambari.server.configuration.Configuration;
+import org.apache.ambari.server.controller.AmbariServer;
+import org.apache.ambari.server.controller.ControllerModule;
+import org.apache.ambari.server.ldap.LdapModule;
+import org.apache.ambari.server.orm.DBAccessor;
+import org.apache.ambari.server.orm.GuiceJpaInitializer;
+import org.apache.ambari.server.orm.PersistenceType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+/**
+ * Runs an Ambari Server inside the simulator JVM on top of an in-memory H2
+ * database created from the Derby DDL script, so that a load test needs
+ * nothing but a single Linux box.
+ */
+public class EmbeddedAmbariServer {
+
+  private static final Logger LOG = LoggerFactory.getLogger(EmbeddedAmbariServer.class);
+
+  private final SimulatorConfiguration config;
+
+  private AmbariServer server;
+  private Thread serverThread;
+
+  public EmbeddedAmbariServer(SimulatorConfiguration config) {
+    this.config = config;
+  }
+
+  /**
+   * Starts the server and waits until it accepts agent and REST API connections.
+   */
+  public void start(long timeoutMs) throws Exception {
+    File resourcesDir = new File(config.getResourcesDir()).getCanonicalFile();
+    File workDir = Files.createTempDirectory("ambari-simulator").toFile();
+
+    Properties properties = new Properties();
+    File passwordFile = new File(workDir, "password.dat");
+    Files.write(passwordFile.toPath(), "bigdata".getBytes(StandardCharsets.UTF_8));
+
+    // the "in-memory" persistence type leaves the database without its seed data,
+    // so the H2 database is used as a remote one and created from the DDL script
+    properties.setProperty(Configuration.SERVER_PERSISTENCE_TYPE.getKey(), PersistenceType.REMOTE.getValue());
+    properties.setProperty(Configuration.SERVER_JDBC_URL.getKey(), Configuration.JDBC_IN_MEMORY_URL);
+    properties.setProperty(Configuration.SERVER_JDBC_DRIVER.getKey(), Configuration.JDBC_IN_MEMORY_DRIVER);
+    properties.setProperty(Configuration.SERVER_JDBC_USER_NAME.getKey(), Configuration.JDBC_IN_MEMORY_USER);
+    properties.setProperty(Configuration.SERVER_JDBC_USER_PASSWD.getKey(), passwordFile.getPath());
+    properties.setProperty(Configuration.METADATA_DIR_PATH.getKey(), new File(resourcesDir, "stacks").getPath());
+    properties.setProperty(Configuration.COMMON_SERVICES_DIR_PATH.getKey(),
+        new File(resourcesDir, "common-services").getPath());
+    properties.setProperty(Configuration.SERVER_VERSION_FILE.getKey(), new File(resourcesDir, "version").getPath());
+    properties.setProperty(Configuration.SHARED_RESOURCES_DIR.getKey(), resourcesDir.getPath());
+    properties.setProperty(Configuration.RESOURCES_DIR.getKey(), resourcesDir.getPath());
+    properties.setProperty(Configuration.OS_VERSION.getKey(), "centos6");
+    properties.setProperty(Configuration.AGENT_USE_SSL.getKey(), "false");
+    properties.setProperty(Configuration.CLIENT_API_PORT.getKey(), Integer.toString(config.getApiPort()));
+    // agents talk to the two-way port, the only one SecurityFilter lets plain HTTP through on
+    properties.setProperty(Configuration.SRVR_TWO_WAY_SSL_PORT.getKey(), Integer.toString(config.getAgentPort()));
+    properties.setProperty(Configuration.SRVR_ONE_WAY_SSL_PORT.getKey(), Integer.toString(config.getAgentPort() - 1));
+    properties.setProperty(Configuration.SRVR_KSTR_DIR.getKey(), workDir.getPath());
+    properties.setProperty(Configuration.SERVER_TMP_DIR.getKey(), workDir.getPath());
+    properties.setProperty(Configuration.VIEWS_DIRECTORY.getKey(), mkdir(workDir, "views"));
+    properties.setProperty(Configuration.WEBAPP_DIRECTORY.getKey(), mkdir(workDir, "web"));
+
+    Injector injector = Guice.createInjector(new ControllerModule(properties), new AuditLoggerModule(),
+        new LdapModule());
+    injector.getInstance(GuiceJpaInitializer.class).setInitialized();
+    DBAccessor dbAccessor = injector.getInstance(DBAccessor.class);
+    // the Derby script seeds its tables from Derby's single row dummy table
+    dbAccessor.executeQuery("CREATE SCHEMA IF NOT EXISTS SYSIBM");
+    dbAccessor.executeQuery("CREATE TABLE IF NOT EXISTS SYSIBM.SYSDUMMY1 (IBMREQD CHAR(1))");
+    dbAccessor.executeQuery("INSERT INTO SYSIBM.SYSDUMMY1 VALUES ('Y')");
+    dbAccessor.executeScript(new File(config.getDdlScript()).getCanonicalPath());
+
+    AmbariServer.setupProxyAuth();
+    server = injector.getInstance(AmbariServer.class);
+    server.initViewRegistry();
+    ComponentSSLConfiguration.instance().init(injector.getInstance(Configuration.class));
+    serverThread = new Thread(() -> {
+      try {
+        server.run();
+      } catch (Exception e) {
+        LOG.error("Embedded Ambari Server failed", e);
+      }
+    }, "embedded-ambari-server");
+    serverThread.setDaemon(true);
+    serverThread.start();
+
+    long deadline = System.currentTimeMillis() + timeoutMs;
+    while (!isUp()) {
+      if (!serverThread.isAlive() || System.currentTimeMillis() > deadline) {
+        throw new IllegalStateException("Embedded Ambari Server did not start");
+      }
+      Thread.sleep(500);
+    }
+    LOG.info("Embedded Ambari Server is up, api port {}, agent port {}", config.getApiPort(),
+        config.getAgentPort());
+  }
+
+  public void stop() {
+    if (server != null) {
+      try {
+        server.stop();
+      } catch (Exception e) {
+        LOG.warn("Unable to stop embedded Ambari Server", e);
+      }
+    }
+  }
+
+  private static String mkdir(File parent, String name) throws IOException {
+    return Files.createDirectories(new File(parent, name).toPath()).toString();
+  }
+
+  /**
+   * @return whether the agent connector accepts connections and the REST API answers
+   */
+  private boolean isUp() {
+    try (Socket socket = new Socket()) {
+      socket.connect(new InetSocketAddress(config.getServerHost(), config.getAgentPort()), 1000);
+    } catch (IOException e) {
+      return false;
+    }
+    try {
+      HttpURLConnection connection = (HttpURLConnection) new URL(
+          String.format("http://%s:%d/api/v1/stacks", config.getServerHost(), config.getApiPort())).openConnection();
+      connection.setConnectTimeout(1000);
+      connection.setReadTimeout(5000);
+      try {
+        return connection.getResponseCode() > 0;
+      } finally {
+        connection.disconnect();
+      }
+    } catch (IOException e) {
+      return false;
+    }
+  }
+}
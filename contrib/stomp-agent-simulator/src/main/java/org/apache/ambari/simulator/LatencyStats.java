@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.simulator;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock free latency histogram. Samples are kept in microseconds in log-linear
+ * buckets (16 sub-buckets per power of two), so reported percentiles are
+ * within about 6% of the recorded value.
+ */
+public class LatencyStats {
+
+  private static final int SUB_BUCKET_BITS = 4;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+  private final String name;
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong sum = new AtomicLong();
+  private final AtomicLong max = new AtomicLong();
+  private final AtomicLong errors = new AtomicLong();
+
+  public LatencyStats(String name) {
+    this.name = name;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Records the time elapsed since {@code startNanos}, taken from {@link System#nanoTime()}.
+   */
+  public void recordSince(long startNanos) {
+    record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+  }
+
+  public void record(long duration, TimeUnit unit) {
+    long micros = Math.max(0L, unit.toMicros(duration));
+    buckets.incrementAndGet(bucketOf(micros));
+    count.incrementAndGet();
+    sum.addAndGet(micros);
+    long current;
+    while (micros > (current = max.get()) && !max.compareAndSet(current, micros)) {
+      // retry
+    }
+  }
+
+  /**
+   * Counts an operation which did not complete, e.g. a failed registration or a
+   * response which never arrived.
+   */
+  public void recordError() {
+    errors.incrementAndGet();
+  }
+
+  public long getCount() {
+    return count.get();
+  }
+
+  public long getErrors() {
+    return errors.get();
+  }
+
+  public double getMeanMillis() {
+    long n = count.get();
+    return n == 0 ? 0.0 : sum.get() / (double) n / 1000.0;
+  }
+
+  public double getMaxMillis() {
+    return max.get() / 1000.0;
+  }
+
+  /**
+   * @param percentile the percentile, between 0 and 100
+   * @return the upper bound of the bucket holding the percentile, in milliseconds
+   */
+  public double getPercentileMillis(double percentile) {
+    long n = count.get();
+    if (n == 0) {
+      return 0.0;
+    }
+    long rank = Math.max(1L, (long) Math.ceil(n * percentile / 100.0));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += buckets.get(i);
+      if (seen >= rank) {
+        return Math.min(upperBoundOf(i), max.get()) / 1000.0;
+      }
+    }
+    return getMaxMillis();
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%-24s count=%-9d errors=%-6d mean=%9.2fms p50=%9.2fms p95=%9.2fms p99=%9.2fms max=%9.2fms",
+        name, getCount(), getErrors(), getMeanMillis(), getPercentileMillis(50), getPercentileMillis(95),
+        getPercentileMillis(99), getMaxMillis());
+  }
+
+  static int bucketOf(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+    int subBucket = (int) (value >>> exponent) - SUB_BUCKETS;
+    return (exponent + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  static long upperBoundOf(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    int exponent = bucket / SUB_BUCKETS - 1;
+    long subBucket = bucket % SUB_BUCKETS + SUB_BUCKETS;
+    return ((subBucket + 1) << exponent) - 1;
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.simulator;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Samples CPU, heap, thread and GC usage of the current JVM. When the server is
+ * embedded the numbers include the simulated agents as well; run the server
+ * separately to attribute them to the server alone.
+ */
+public class ResourceMonitor {
+
+  private final OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+  private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+  private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+  private double maxCpuLoad;
+  private long maxHeapUsed;
+  private int maxThreads;
+
+  /**
+   * Takes a sample and returns it formatted for the periodic report.
+   */
+  public synchronized String sample() {
+    double cpuLoad = getProcessCpuLoad();
+    long heapUsed = memory.getHeapMemoryUsage().getUsed();
+    int threadCount = threads.getThreadCount();
+    maxCpuLoad = Math.max(maxCpuLoad, cpuLoad);
+    maxHeapUsed = Math.max(maxHeapUsed, heapUsed);
+    maxThreads = Math.max(maxThreads, threadCount);
+
+    long gcCount = 0;
+    long gcTime = 0;
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      gcCount += Math.max(0L, gc.getCollectionCount());
+      gcTime += Math.max(0L, gc.getCollectionTime());
+    }
+
+    return String.format("cpu=%5.1f%% load=%.2f heap=%dMB/%dMB threads=%d gc=%d (%dms)",
+        cpuLoad * 100, os.getSystemLoadAverage(), heapUsed >> 20, memory.getHeapMemoryUsage().getMax() >> 20,
+        threadCount, gcCount, gcTime);
+  }
+
+  public synchronized String summary() {
+    return String.format("peak cpu=%5.1f%% peak heap=%dMB peak threads=%d",
+        maxCpuLoad * 100, maxHeapUsed >> 20, maxThreads);
+  }
+
+  private double getProcessCpuLoad() {
+    if (os instanceof com.sun.management.OperatingSystemMXBean) {
+      return Math.max(0.0, ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuLoad());
+    }
+    return 0.0;
+  }
+}
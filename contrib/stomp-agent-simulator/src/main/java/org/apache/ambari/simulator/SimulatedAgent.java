@@ -0,0 +1,533 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.simulator;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.ambari.server.agent.CommandReport;
+import org.apache.ambari.server.agent.HeartBeat;
+import org.apache.ambari.server.agent.HostInfo;
+import org.apache.ambari.server.agent.Register;
+import org.apache.ambari.server.agent.stomp.dto.AckReport;
+import org.apache.ambari.server.agent.stomp.dto.CommandStatusReports;
+import org.apache.ambari.server.agent.stomp.dto.ComponentStatusReport;
+import org.apache.ambari.server.agent.stomp.dto.ComponentStatusReports;
+import org.apache.ambari.server.state.Alert;
+import org.apache.ambari.server.state.AlertState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+/**
+ * A single agent speaking the STOMP agent protocol. The agent registers,
+ * heartbeats, acknowledges and executes {@code ExecutionCommandEvent}s and
+ * periodically sends component statuses and alert results. All periodic work
+ * runs on a scheduler shared by every simulated agent, so thousands of agents
+ * need only a handful of threads.
+ */
+public class SimulatedAgent extends StompSessionHandlerAdapter {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SimulatedAgent.class);
+
+  static final String CORRELATION_ID_HEADER = "correlationId";
+  static final String MESSAGE_ID_HEADER = "messageId";
+
+  private enum Pending {
+    REGISTER, HEARTBEAT, COMMAND_REPORT, COMPONENT_STATUS, ALERTS, ACK
+  }
+
+  private final String hostName;
+  private final String url;
+  private final SimulatorConfiguration config;
+  private final SimulatorMetrics metrics;
+  private final WebSocketStompClient stompClient;
+  private final ScheduledExecutorService scheduler;
+  private final String agentVersion;
+
+  private final AtomicLong correlationIds = new AtomicLong();
+  private final ConcurrentMap<String, PendingResponse> pendingResponses = new ConcurrentHashMap<>();
+
+  /**
+   * Component state reported by status reports, by cluster id and component name.
+   */
+  private final ConcurrentMap<String, ConcurrentMap<String, ComponentStatusReport>> components =
+      new ConcurrentHashMap<>();
+
+  /**
+   * The moment the last command of a request was reported as completed, by request id.
+   */
+  private final ConcurrentMap<Long, Long> lastCompletedByRequest = new ConcurrentHashMap<>();
+
+  private final List<ScheduledFuture<?>> tasks = Collections.synchronizedList(new ArrayList<>());
+
+  private volatile StompSession session;
+  private volatile long responseId = -1;
+  private volatile boolean registered;
+  private volatile long connectStart;
+  private volatile CompletableFuture<Boolean> registrationFuture;
+
+  public SimulatedAgent(String hostName, String url, SimulatorConfiguration config, SimulatorMetrics metrics,
+                        WebSocketStompClient stompClient, ScheduledExecutorService scheduler,
+                        String agentVersion) {
+    this.hostName = hostName;
+    this.url = url;
+    this.config = config;
+    this.metrics = metrics;
+    this.stompClient = stompClient;
+    this.scheduler = scheduler;
+    this.agentVersion = agentVersion;
+  }
+
+  public String getHostName() {
+    return hostName;
+  }
+
+  public boolean isRegistered() {
+    return registered;
+  }
+
+  /**
+   * Connects to the server and registers.
+   *
+   * @return a future completed with {@code true} once the agent is registered, or
+   *         with {@code false} if connecting or registering failed
+   */
+  public CompletableFuture<Boolean> start() {
+    registrationFuture = new CompletableFuture<>();
+    connectStart = System.nanoTime();
+    stompClient.connect(url, this).addCallback(s -> metrics.connect.recordSince(connectStart), e -> {
+      metrics.connect.recordError();
+      LOG.warn("{} failed to connect: {}", hostName, e.toString());
+      LOG.debug("{} connection failure", hostName, e);
+      registrationFuture.complete(false);
+    });
+    return registrationFuture;
+  }
+
+  public void stop() {
+    cancelTasks();
+    StompSession current = session;
+    if (current != null && current.isConnected()) {
+      current.disconnect();
+    }
+  }
+
+  @Override
+  public void afterConnected(StompSession session, StompHeaders connectedHeaders) {
+    this.session = session;
+    session.subscribe("/user/", new Handler(this::handleResponse));
+    session.subscribe("/user/commands", new Handler(this::handleCommands));
+    session.subscribe("/user/agent_actions", new Handler((headers, payload) -> { }));
+    session.subscribe("/user/alert_definitions", new Handler((headers, payload) -> { }));
+    register();
+  }
+
+  @Override
+  public void handleException(StompSession session, StompCommand command, StompHeaders headers, byte[] payload,
+                              Throwable exception) {
+    LOG.warn("{} failed to handle {} frame", hostName, command, exception);
+  }
+
+  @Override
+  public void handleTransportError(StompSession session, Throwable exception) {
+    if (!session.isConnected()) {
+      metrics.disconnects.incrementAndGet();
+      if (registered) {
+        registered = false;
+        metrics.registeredAgents.decrementAndGet();
+      }
+      cancelTasks();
+      CompletableFuture<Boolean> future = registrationFuture;
+      if (future != null) {
+        future.complete(false);
+      }
+    }
+    LOG.debug("{} transport error", hostName, exception);
+  }
+
+  private void register() {
+    Register register = new Register();
+    register.setHostname(hostName);
+    register.setPublicHostname(hostName);
+    register.setTimestamp(System.currentTimeMillis());
+    register.setAgentStartTime(System.currentTimeMillis());
+    register.setCurrentPingPort(8670);
+    register.setAgentVersion(agentVersion);
+    register.setPrefix("/var/lib/ambari-agent/data");
+    register.setHardwareProfile(createHostInfo());
+    send("/register", register, Pending.REGISTER);
+  }
+
+  private HostInfo createHostInfo() {
+    HostInfo hostInfo = new HostInfo();
+    hostInfo.setHostName(hostName);
+    hostInfo.setFQDN(hostName);
+    hostInfo.setOS(config.getOsType());
+    hostInfo.setOSFamily(config.getOsFamily());
+    hostInfo.setOSRelease(config.getOsRelease());
+    hostInfo.setArchitecture("x86_64");
+    hostInfo.setProcessorCount(8);
+    hostInfo.setPhysicalProcessorCount(8);
+    hostInfo.setMemoryTotal(32L * 1024 * 1024);
+    hostInfo.setFreeMemory(16L * 1024 * 1024);
+    return hostInfo;
+  }
+
+  private void onRegistered(Map<String, Object> response) {
+    if (!isRegistered(response)) {
+      LOG.warn("{} failed to register: {}", hostName, response.get("log"));
+      registrationFuture.complete(false);
+      return;
+    }
+    responseId = ((Number) response.get("id")).longValue();
+    if (!registered) {
+      registered = true;
+      metrics.registeredAgents.incrementAndGet();
+    }
+
+    cancelTasks();
+    schedule(this::heartbeat, config.getHeartbeatIntervalMs());
+    schedule(this::sendComponentStatus, config.getComponentStatusIntervalMs());
+    schedule(this::sendAlerts, config.getAlertIntervalMs());
+    registrationFuture.complete(true);
+  }
+
+  private static boolean isRegistered(Map<String, Object> response) {
+    Object exitStatus = response.get("exitstatus");
+    boolean failed = exitStatus instanceof Number && ((Number) exitStatus).intValue() != 0;
+    return !failed && response.get("id") instanceof Number && ((Number) response.get("id")).longValue() >= 0;
+  }
+
+  private void schedule(Runnable task, long intervalMs) {
+    if (intervalMs <= 0) {
+      return;
+    }
+    long initialDelay = ThreadLocalRandom.current().nextLong(intervalMs);
+    tasks.add(scheduler.scheduleAtFixedRate(() -> {
+      try {
+        task.run();
+      } catch (RuntimeException e) {
+        LOG.debug("{} periodic task failed", hostName, e);
+      }
+    }, initialDelay, intervalMs, TimeUnit.MILLISECONDS));
+  }
+
+  private void cancelTasks() {
+    synchronized (tasks) {
+      for (ScheduledFuture<?> task : tasks) {
+        task.cancel(false);
+      }
+      tasks.clear();
+    }
+  }
+
+  private void heartbeat() {
+    HeartBeat heartBeat = new HeartBeat();
+    heartBeat.setResponseId(responseId);
+    heartBeat.setTimestamp(System.currentTimeMillis());
+    heartBeat.setHostname(hostName);
+    send("/heartbeat", heartBeat, Pending.HEARTBEAT);
+  }
+
+  private void onHeartbeatResponse(Map<String, Object> response) {
+    if (Boolean.TRUE.equals(response.get("restartAgent"))) {
+      LOG.info("{} was asked to register again", hostName);
+      cancelTasks();
+      register();
+      return;
+    }
+    Object id = response.get("id");
+    if (id instanceof Number) {
+      responseId = ((Number) id).longValue();
+    }
+  }
+
+  private void sendComponentStatus() {
+    TreeMap<String, List<ComponentStatusReport>> reports = new TreeMap<>();
+    for (Map.Entry<String, ConcurrentMap<String, ComponentStatusReport>> cluster : components.entrySet()) {
+      if (!cluster.getValue().isEmpty()) {
+        reports.put(cluster.getKey(), new ArrayList<>(cluster.getValue().values()));
+      }
+    }
+    if (!reports.isEmpty()) {
+      send("/reports/component_status", new ComponentStatusReports(reports), Pending.COMPONENT_STATUS);
+    }
+  }
+
+  private void sendAlerts() {
+    List<Alert> alerts = new ArrayList<>();
+    for (String name : config.getAlertNames()) {
+      Alert alert = new Alert(name, null, "AMBARI", "AMBARI_AGENT", hostName, AlertState.OK);
+      alert.setLabel(name);
+      alert.setText("OK");
+      alerts.add(alert);
+    }
+    send("/reports/alerts_status", alerts.toArray(new Alert[alerts.size()]), Pending.ALERTS);
+  }
+
+  @SuppressWarnings("unchecked")
+  private void handleCommands(StompHeaders headers, Map<String, Object> payload) {
+    long received = System.nanoTime();
+    String messageId = headers.getFirst(MESSAGE_ID_HEADER);
+    if (messageId != null) {
+      AckReport ack = new AckReport();
+      ack.setStatus(AckReport.AckStatus.OK);
+      ack.setMessageId(Long.valueOf(messageId));
+      send("/reports/responses", ack, Pending.ACK);
+    }
+
+    Map<String, Object> clusters = (Map<String, Object>) payload.get("clusters");
+    if (clusters == null) {
+      return;
+    }
+    for (Object cluster : clusters.values()) {
+      List<Map<String, Object>> commands = (List<Map<String, Object>>) ((Map<String, Object>) cluster).get("commands");
+      if (commands == null) {
+        continue;
+      }
+      for (Map<String, Object> command : commands) {
+        metrics.commandsReceived.incrementAndGet();
+        recordDispatch(command, received);
+        execute(command);
+      }
+    }
+  }
+
+  private void recordDispatch(Map<String, Object> command, long received) {
+    Object requestId = command.get("requestId");
+    if (!(requestId instanceof Number)) {
+      return;
+    }
+    long id = ((Number) requestId).longValue();
+    Long since = lastCompletedByRequest.get(id);
+    if (since == null) {
+      since = metrics.requestSubmitTimes.get(id);
+    }
+    if (since == null && metrics.lastRequestSubmitTime != 0) {
+      since = metrics.lastRequestSubmitTime;
+    }
+    if (since != null) {
+      metrics.commandDispatch.record(received - since, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  private void execute(Map<String, Object> command) {
+    CommandReport report = createReport(command);
+    report.setStatus("IN_PROGRESS");
+    sendCommandReport(report);
+
+    scheduler.schedule(() -> {
+      boolean failed = ThreadLocalRandom.current().nextDouble() < config.getCommandFailureRate();
+      CommandReport done = createReport(command);
+      done.setStatus(failed ? "FAILED" : "COMPLETED");
+      done.setExitCode(failed ? 1 : 0);
+      if (failed) {
+        metrics.commandsFailed.incrementAndGet();
+      } else {
+        metrics.commandsCompleted.incrementAndGet();
+        updateComponentState(command);
+      }
+      Object requestId = command.get("requestId");
+      if (requestId instanceof Number) {
+        lastCompletedByRequest.put(((Number) requestId).longValue(), System.nanoTime());
+      }
+      sendCommandReport(done);
+    }, config.getCommandDurationMs(), TimeUnit.MILLISECONDS);
+  }
+
+  private CommandReport createReport(Map<String, Object> command) {
+    CommandReport report = new CommandReport();
+    report.setRole(String.valueOf(command.get("role")));
+    report.setRoleCommand(String.valueOf(command.get("roleCommand")));
+    report.setServiceName(String.valueOf(command.get("serviceName")));
+    report.setClusterId(String.valueOf(command.get("clusterId")));
+    report.setTaskId(((Number) command.get("taskId")).longValue());
+    report.setActionId(String.valueOf(command.get("commandId")));
+    report.setStdOut("");
+    report.setStdErr("");
+    report.setStructuredOut("{}");
+    return report;
+  }
+
+  private void sendCommandReport(CommandReport report) {
+    CommandStatusReports reports = new CommandStatusReports();
+    TreeMap<String, List<CommandReport>> clusters = new TreeMap<>();
+    clusters.put(report.getClusterId(), Collections.singletonList(report));
+    reports.setClustersComponentReports(clusters);
+    send("/reports/commands_status", reports, Pending.COMMAND_REPORT);
+  }
+
+  private void updateComponentState(Map<String, Object> command) {
+    String state;
+    switch (String.valueOf(command.get("roleCommand"))) {
+      case "INSTALL":
+      case "STOP":
+        state = "INSTALLED";
+        break;
+      case "START":
+        state = "STARTED";
+        break;
+      default:
+        return;
+    }
+    String clusterId = String.valueOf(command.get("clusterId"));
+    String component = String.valueOf(command.get("role"));
+    components.computeIfAbsent(clusterId, k -> new ConcurrentHashMap<>()).put(component,
+        new ComponentStatusReport(component, ComponentStatusReport.CommandStatusCommand.STATUS, state,
+            String.valueOf(command.get("serviceName")), Long.valueOf(clusterId)));
+  }
+
+  private void handleResponse(StompHeaders headers, Map<String, Object> payload) {
+    String correlationId = headers.getFirst(CORRELATION_ID_HEADER);
+    PendingResponse pending = correlationId == null ? null : pendingResponses.remove(correlationId);
+    if (pending == null) {
+      return;
+    }
+    LatencyStats stats = statsFor(pending.type);
+    if ("FAILED".equals(payload.get("status")) || (pending.type == Pending.REGISTER && !isRegistered(payload))) {
+      stats.recordError();
+    } else {
+      stats.recordSince(pending.sent);
+    }
+
+    switch (pending.type) {
+      case REGISTER:
+        onRegistered(payload);
+        break;
+      case HEARTBEAT:
+        onHeartbeatResponse(payload);
+        break;
+      default:
+        break;
+    }
+  }
+
+  private LatencyStats statsFor(Pending type) {
+    switch (type) {
+      case REGISTER:
+        return metrics.registration;
+      case HEARTBEAT:
+        return metrics.heartbeat;
+      case COMMAND_REPORT:
+        return metrics.commandReport;
+      case COMPONENT_STATUS:
+        return metrics.componentStatusReport;
+      case ALERTS:
+        return metrics.alertReport;
+      default:
+        return metrics.ackReport;
+    }
+  }
+
+  private void send(String destination, Object payload, Pending type) {
+    StompSession current = session;
+    if (current == null || !current.isConnected()) {
+      statsFor(type).recordError();
+      return;
+    }
+    String correlationId = Long.toString(correlationIds.incrementAndGet());
+    StompHeaders headers = new StompHeaders();
+    headers.setDestination(destination);
+    headers.set(CORRELATION_ID_HEADER, correlationId);
+    pendingResponses.put(correlationId, new PendingResponse(type, System.nanoTime()));
+    try {
+      current.send(headers, payload);
+    } catch (RuntimeException e) {
+      pendingResponses.remove(correlationId);
+      statsFor(type).recordError();
+      LOG.debug("{} failed to send to {}", hostName, destination, e);
+    }
+  }
+
+  /**
+   * Drops responses which did not arrive within the given time and counts them
+   * as errors.
+   */
+  public void expirePendingResponses(long timeoutMs) {
+    long deadline = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+    pendingResponses.entrySet().removeIf(entry -> {
+      if (entry.getValue().sent < deadline) {
+        statsFor(entry.getValue().type).recordError();
+        if (entry.getValue().type == Pending.REGISTER) {
+          registrationFuture.complete(false);
+        }
+        return true;
+      }
+      return false;
+    });
+  }
+
+  private static final class PendingResponse {
+    private final Pending type;
+    private final long sent;
+
+    private PendingResponse(Pending type, long sent) {
+      this.type = type;
+      this.sent = sent;
+    }
+  }
+
+  /**
+   * Hands frames of a subscription to a callback as a JSON map.
+   */
+  private final class Handler implements StompFrameHandler {
+    private final FrameCallback callback;
+
+    private Handler(FrameCallback callback) {
+      this.callback = callback;
+    }
+
+    @Override
+    public Type getPayloadType(StompHeaders headers) {
+      return Map.class;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void handleFrame(StompHeaders headers, Object payload) {
+      try {
+        callback.handle(headers, payload == null ? Collections.emptyMap() : (Map<String, Object>) payload);
+      } catch (RuntimeException e) {
+        LOG.warn("{} failed to process frame from {}", hostName, headers.getDestination(), e);
+      }
+    }
+  }
+
+  @FunctionalInterface
+  private interface FrameCallback {
+    void handle(StompHeaders headers, Map<String, Object> payload);
+  }
+}
@@ -0,0 +1,246 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.simulator;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Properties;
+
+/**
+ * Settings of a simulation run. Values are read from a properties file and may
+ * be overridden with {@code -D} system properties of the same name.
+ */
+public class SimulatorConfiguration {
+
+  private final Properties properties;
+
+  public SimulatorConfiguration(Properties properties) {
+    this.properties = properties;
+  }
+
+  /**
+   * Loads the configuration from the given file; a {@code null} or missing file
+   * leaves every setting at its default.
+   */
+  public static SimulatorConfiguration load(String path) throws IOException {
+    Properties properties = new Properties();
+    if (path != null && new File(path).isFile()) {
+      try (InputStream in = new FileInputStream(path)) {
+        properties.load(in);
+      }
+    }
+    return new SimulatorConfiguration(properties);
+  }
+
+  /**
+   * @return whether an in-memory Ambari Server is started inside the simulator JVM
+   */
+  public boolean isEmbeddedServer() {
+    return getBoolean("server.embedded", true);
+  }
+
+  public String getServerHost() {
+    return get("server.host", "localhost");
+  }
+
+  public int getApiPort() {
+    return getInt("server.api.port", 8080);
+  }
+
+  /**
+   * @return the server's two-way port agents open their STOMP connection on
+   */
+  public int getAgentPort() {
+    return getInt("server.agent.port", 8441);
+  }
+
+  public String getApiUser() {
+    return get("server.api.user", "admin");
+  }
+
+  public String getApiPassword() {
+    return get("server.api.password", "admin");
+  }
+
+  /**
+   * @return the directory holding {@code stacks}, {@code common-services},
+   *         {@code os_family.json} and {@code version} for the embedded server
+   */
+  public String getResourcesDir() {
+    return get("server.resources.dir", "../../ambari-server/src/test/resources");
+  }
+
+  /**
+   * @return the DDL script the embedded server's database is created from
+   */
+  public String getDdlScript() {
+    return get("server.ddl.script", "../../ambari-server/src/main/resources/Ambari-DDL-Derby-CREATE.sql");
+  }
+
+  /**
+   * @return the version reported by agents; it must match the server version
+   */
+  public String getAgentVersion() throws IOException {
+    String version = get("agent.version", null);
+    if (version == null) {
+      File versionFile = new File(getResourcesDir(), "version");
+      version = new String(Files.readAllBytes(versionFile.toPath()), StandardCharsets.UTF_8).trim();
+    }
+    return version;
+  }
+
+  public int getAgentCount() {
+    return getInt("agents.count", 1000);
+  }
+
+  public String getHostNamePattern() {
+    return get("agents.hostname.pattern", "sim-host-%05d.example.com");
+  }
+
+  public String getOsType() {
+    return get("agents.os.type", "centos");
+  }
+
+  /**
+   * @return the os family which, with the release major version, has to match
+   *         an os of the cluster repository version
+   */
+  public String getOsFamily() {
+    return get("agents.os.family", "redhat");
+  }
+
+  public String getOsRelease() {
+    return get("agents.os.release", "6.9");
+  }
+
+  /**
+   * @return how many agents may be connecting and registering at the same time
+   */
+  public int getRegistrationConcurrency() {
+    return getInt("agents.registration.concurrency", 50);
+  }
+
+  public long getHeartbeatIntervalMs() {
+    return getLong("agents.heartbeat.interval.ms", 10000L);
+  }
+
+  /**
+   * @return interval of component status reports per agent, 0 disables them
+   */
+  public long getComponentStatusIntervalMs() {
+    return getLong("agents.component.status.interval.ms", 60000L);
+  }
+
+  /**
+   * @return interval of alert results per agent, 0 disables them
+   */
+  public long getAlertIntervalMs() {
+    return getLong("agents.alerts.interval.ms", 60000L);
+  }
+
+  public String[] getAlertNames() {
+    return get("agents.alerts.names", "ambari_agent_disk_usage").split("\\s*,\\s*");
+  }
+
+  /**
+   * @return simulated execution time of a command between IN_PROGRESS and COMPLETED
+   */
+  public long getCommandDurationMs() {
+    return getLong("agents.command.duration.ms", 1000L);
+  }
+
+  /**
+   * @return ratio of commands which are reported as FAILED
+   */
+  public double getCommandFailureRate() {
+    return Double.parseDouble(get("agents.command.failure.rate", "0"));
+  }
+
+  public int getSchedulerThreads() {
+    return getInt("agents.scheduler.threads", Runtime.getRuntime().availableProcessors() * 2);
+  }
+
+  /**
+   * @return whether a cluster is created and its components installed and
+   *         started once all agents registered
+   */
+  public boolean isProvisionCluster() {
+    return getBoolean("cluster.provision", true);
+  }
+
+  public String getClusterName() {
+    return get("cluster.name", "sim");
+  }
+
+  public String getStackVersion() {
+    return get("cluster.stack", "HDP-2.2.0");
+  }
+
+  /**
+   * @return the os family of the repository version the cluster is installed from
+   */
+  public String getRepositoryOsType() {
+    return get("cluster.repository.os", "redhat6");
+  }
+
+  public String getServiceName() {
+    return get("cluster.service", "HDFS");
+  }
+
+  /**
+   * @return components which are placed on the first host only
+   */
+  public String[] getMasterComponents() {
+    return get("cluster.components.master", "NAMENODE,SECONDARY_NAMENODE").split("\\s*,\\s*");
+  }
+
+  /**
+   * @return components which are placed on every host
+   */
+  public String[] getSlaveComponents() {
+    return get("cluster.components.slave", "DATANODE").split("\\s*,\\s*");
+  }
+
+  public long getDurationSeconds() {
+    return getLong("run.duration.seconds", 300L);
+  }
+
+  public long getReportIntervalSeconds() {
+    return getLong("run.report.interval.seconds", 30L);
+  }
+
+  private String get(String key, String defaultValue) {
+    return System.getProperty(key, properties.getProperty(key, defaultValue));
+  }
+
+  private int getInt(String key, int defaultValue) {
+    return Integer.parseInt(get(key, Integer.toString(defaultValue)));
+  }
+
+  private long getLong(String key, long defaultValue) {
+    return Long.parseLong(get(key, Long.toString(defaultValue)));
+  }
+
+  private boolean getBoolean(String key, boolean defaultValue) {
+    return Boolean.parseBoolean(get(key, Boolean.toString(defaultValue)));
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.simulator;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latencies and counters shared by all simulated agents.
+ * <p/>
+ * Every latency is measured from the moment a frame is handed to the STOMP
+ * session until the server's answer arrives, which on a single box is
+ * dominated by server side processing:
+ * <ul>
+ *   <li>registration - {@code /register} until the registration response</li>
+ *   <li>heartbeat - {@code /heartbeat} until the heartbeat response</li>
+ *   <li>command dispatch - REST request submission, or the agent's previous
+ *       completed report of the same request, until the next
+ *       {@code ExecutionCommandEvent} reaches the agent</li>
+ *   <li>report latencies - {@code /reports/*} until the server accepted the report</li>
+ *   <li>request completion - REST request submission until the request finished</li>
+ * </ul>
+ */
+public class SimulatorMetrics {
+
+  final LatencyStats connect = new LatencyStats("connect");
+  final LatencyStats registration = new LatencyStats("registration");
+  final LatencyStats heartbeat = new LatencyStats("heartbeat");
+  final LatencyStats commandDispatch = new LatencyStats("command dispatch");
+  final LatencyStats commandReport = new LatencyStats("command report");
+  final LatencyStats componentStatusReport = new LatencyStats("component status report");
+  final LatencyStats alertReport = new LatencyStats("alert report");
+  final LatencyStats ackReport = new LatencyStats("command ack");
+  final LatencyStats requestCompletion = new LatencyStats("request completion");
+
+  final AtomicInteger registeredAgents = new AtomicInteger();
+  final AtomicLong commandsReceived = new AtomicLong();
+  final AtomicLong commandsCompleted = new AtomicLong();
+  final AtomicLong commandsFailed = new AtomicLong();
+  final AtomicLong disconnects = new AtomicLong();
+
+  /**
+   * Submission time ({@link System#nanoTime()}) of REST requests, by request id.
+   */
+  final ConcurrentMap<Long, Long> requestSubmitTimes = new ConcurrentHashMap<>();
+
+  /**
+   * Submission time of the latest REST request, used for commands which arrive
+   * before the request id is known to the simulator.
+   */
+  volatile long lastRequestSubmitTime;
+
+  public List<LatencyStats> getLatencies() {
+    return Arrays.asList(connect, registration, heartbeat, commandDispatch, ackReport, commandReport,
+        componentStatusReport, alertReport, requestCompletion);
+  }
+
+  public String counters() {
+    return String.format("registered=%d commands received=%d completed=%d failed=%d disconnects=%d",
+        registeredAgents.get(), commandsReceived.get(), commandsCompleted.get(), commandsFailed.get(),
+        disconnects.get());
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.simulator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class LatencyStatsTest {
+
+  @Test
+  public void testBucketsCoverEveryValue() {
+    for (long value = 0; value < 1L << 20; value++) {
+      int bucket = LatencyStats.bucketOf(value);
+      assertTrue(value <= LatencyStats.upperBoundOf(bucket));
+      assertTrue(bucket == 0 || value > LatencyStats.upperBoundOf(bucket - 1));
+    }
+    assertTrue(LatencyStats.bucketOf(Long.MAX_VALUE) >= 0);
+  }
+
+  @Test
+  public void testPercentiles() {
+    LatencyStats stats = new LatencyStats("test");
+    for (int i = 1; i <= 1000; i++) {
+      stats.record(i, TimeUnit.MILLISECONDS);
+    }
+    stats.recordError();
+
+    assertEquals(1000, stats.getCount());
+    assertEquals(1, stats.getErrors());
+    assertEquals(500.5, stats.getMeanMillis(), 0.001);
+    assertEquals(1000.0, stats.getMaxMillis(), 0.001);
+    assertEquals(1000.0, stats.getPercentileMillis(100), 0.001);
+    assertEquals(500.0, stats.getPercentileMillis(50), 500.0 * 0.07);
+    assertEquals(990.0, stats.getPercentileMillis(99), 990.0 * 0.07);
+  }
+
+  @Test
+  public void testEmpty() {
+    LatencyStats stats = new LatencyStats("test");
+    assertEquals(0.0, stats.getPercentileMillis(99), 0.0);
+    assertEquals(0.0, stats.getMeanMillis(), 0.0);
+  }
+}